@@ -20,14 +20,17 @@ package ca.pfv.spmf.algorithms.associationrules.TopKRules_and_TNR;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.List;
 import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import ca.pfv.spmf.algorithms.ArraysAlgos;
 import ca.pfv.spmf.tools.MemoryLogger;
@@ -40,6 +43,13 @@ import ca.pfv.spmf.tools.MemoryLogger;
  * <br/><br/>
  * 
  * Fournier-Viger, P., Wu, C.-W., Tseng, V. S. (2012). Mining Top-K Association Rules. Proceedings of the 25th Canadian Conf. on Artificial Intelligence (AI 2012), Springer, LNAI 7310, pp. 61-73.
+ * <br/><br/>
+ * 
+ * The support of the expansions of a rule is calculated by intersecting the words of 
+ * the tidset of the rule with the words of the tidsets of the items, which are 
+ * calculated once, rather than by scanning the transactions containing the rule.
+ * The candidates can be expanded by several threads (see {@link #setThreadCount(int)}),
+ * which share the set of candidates and the minimum support threshold.
  * 
  * @author Philippe Fournier-Viger, 2012
  * @see AlgoTopKRules
@@ -62,12 +72,15 @@ public class AlgoTopKRules {
 	/**  a transaction database */
 	Database database;   
 
-	/** minimum support that will be reased during the search */
-	int minsuppRelative;
+	/** minimum support that will be reased during the search (shared by the threads) */
+	AtomicInteger minsuppRelative;
 	
 	/** a vertical representation of the database 
 	 * [item], IDs of transaction containing the item */
 	BitSet[] tableItemTids;  
+	/** the words of the tidset of each item (see BitSet.toLongArray())
+	 * [item], words */
+	long[][] tableItemWords;
 	/** a table indicating the support of each item
 	 * [item], support
 	 */
@@ -82,6 +95,12 @@ public class AlgoTopKRules {
 	/** the maximum number of candidates at the same time during the last execution */
 	int maxCandidateCount = 0;
 	
+	/** the number of threads that are expanding a candidate */
+	private int activeWorkerCount = 0;
+	
+	/** the number of threads used to expand the candidates (1 = sequential) */
+	private int threadCount = 1;
+	
 	/**  the maximum size of the antecedent of rules (optional) */
 	int maxAntecedentSize = Integer.MAX_VALUE;
 	
@@ -112,8 +131,10 @@ public class AlgoTopKRules {
 		this.k = k;
 
 		// prepare internal variables and structures
-		this.minsuppRelative = 1;
+		this.minsuppRelative = new AtomicInteger(1);
+		this.activeWorkerCount = 0;
 		tableItemTids = new BitSet[database.maxItem + 1]; // id item, count
+		tableItemWords = new long[database.maxItem + 1][];
 		tableItemCount = new int[database.maxItem + 1];
 		kRules = new PriorityQueue<RuleG>();
 		candidates = new PriorityQueue<RuleG>(new Comparator<RuleG>(){
@@ -150,33 +171,41 @@ public class AlgoTopKRules {
 		main: for (int itemI = 0; itemI <= database.maxItem; itemI++) {
 			// if the item is not frequent according to the current
 			// minsup threshold, then skip it
-			if (tableItemCount[itemI] < minsuppRelative) {
+			if (tableItemCount[itemI] < minsuppRelative.get()) {
 				continue main;
 			}
 			// Get the bitset corresponding to item I
 			BitSet tidsI = tableItemTids[itemI];
+			// and its words that are not empty
+			long[] wordsI = new long[tableItemWords[itemI].length];
+			int[] wordIndexesI = new int[wordsI.length];
+			int[] remainingTidCountsI = new int[wordsI.length + 1];
+			compactWords(tableItemWords[itemI], wordsI, wordIndexesI, remainingTidCountsI);
 
 			// for each item J in the database
 			main2: for (int itemJ = itemI + 1; itemJ <= database.maxItem; itemJ++) {
 				// if the item is not frequent according to the current
 				// minsup threshold, then skip it
-				if (tableItemCount[itemJ] < minsuppRelative) {
+				if (tableItemCount[itemJ] < minsuppRelative.get()) {
 					continue main2;
 				}
-				// Get the bitset corresponding to item J
-				BitSet tidsJ = tableItemTids[itemJ];
-
-				// Calculate the list of transaction IDs shared
-				// by I and J.
-				// To do that with a bitset, we just do a logical AND.
-				BitSet commonTids = (BitSet) tidsI.clone();
-				commonTids.and(tidsJ);
-				// We keep the cardinality of the new bitset because in java
-				// the cardinality() method is expensive, and we will need it again later.
-				int support = commonTids.cardinality();
+				// Count the transactions shared by I and J, without
+				// creating their bitset if the rules I ==> J and J ==> I
+				// do not have enough support.
+				int support = countCommonTids(wordsI, wordIndexesI, remainingTidCountsI,
+						tableItemWords[itemJ], minsuppRelative.get());
 				
 				// If the rules I ==> J and J ==> I have enough support
-				if (support >= minsuppRelative) {
+				if (support >= minsuppRelative.get()) {
+					// Get the bitset corresponding to item J
+					BitSet tidsJ = tableItemTids[itemJ];
+
+					// Calculate the list of transaction IDs shared
+					// by I and J.
+					// To do that with a bitset, we just do a logical AND.
+					BitSet commonTids = (BitSet) tidsI.clone();
+					commonTids.and(tidsJ);
+					
 					// generate  rules I ==> J and J ==> I and remember these rules
 					// for future possible expansions
 					generateRuleSize11(itemI, tidsI, itemJ, tidsJ, commonTids,
@@ -189,25 +218,98 @@ public class AlgoTopKRules {
 		// in the left side and 1 in the right side,
 		// the next step is to recursively expand rules in the set 
 		// "candidates" to find more rules.
-		while (candidates.size() > 0) {
-			// We take the rule that has the highest support first
-			RuleG rule = candidates.poll();
-			// if there is no more candidates with enough support, then we stop
-			if (rule.getAbsoluteSupport() < minsuppRelative) {
-				// candidates.remove(rule);
-				break;
+		if(threadCount == 1){
+			expandCandidates();
+		}else{
+			expandCandidatesInParallel();
+		}
+	}
+	
+	/**
+	 * Expand the candidates with several threads. Each thread takes the
+	 * candidate having the highest support from the shared set of candidates and
+	 * expands it, until no candidate has enough support and no thread is expanding a rule.
+	 */
+	private void expandCandidatesInParallel() {
+		ExecutorService pool = Executors.newFixedThreadPool(threadCount);
+		try {
+			List<Future<?>> workers = new ArrayList<Future<?>>();
+			for(int i = 0; i < threadCount; i++){
+				workers.add(pool.submit(new Runnable(){
+					@Override
+					public void run() {
+						expandCandidates();
+					}}));
 			}
-			// Otherwise, we try to expand the rule
-			if (rule.expandLR) {
-				// we do it
-				expandLR(rule);
-			} else {
-				// If the rule should only be expanded by left side to
-				// avoid generating redundant rules, then we 
-				// only expand the left side.
-				expandR(rule);
+			// wait for all the threads
+			for(Future<?> worker : workers){
+				try {
+					worker.get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException("Interrupted while expanding rules in parallel", e);
+				} catch (ExecutionException e) {
+					if(e.getCause() instanceof RuntimeException) {
+						throw (RuntimeException) e.getCause();
+					}
+					if(e.getCause() instanceof Error) {
+						throw (Error) e.getCause();
+					}
+					throw new IllegalStateException(e.getCause());
+				}
+			}
+		}finally {
+			pool.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Expand the candidates, by taking the candidate having the highest support first,
+	 * until there is no candidate with enough support. This method is called by each 
+	 * thread when the candidates are expanded by several threads.
+	 */
+	private void expandCandidates() {
+		while (true) {
+			RuleG rule;
+			synchronized (candidates) {
+				while (true) {
+					// We take the rule that has the highest support first
+					rule = candidates.poll();
+					// if there is no more candidates with enough support, the other
+					// candidates can be removed because the minimum support only increases
+					if (rule != null && rule.getAbsoluteSupport() < minsuppRelative.get()) {
+						candidates.clear();
+						rule = null;
+					}
+					if (rule != null) {
+						activeWorkerCount++;
+						break;
+					}
+					// if no thread is expanding a rule, no candidate will be added, so we stop
+					if (activeWorkerCount == 0) {
+						candidates.notifyAll();
+						return;
+					}
+					// otherwise, we wait for the candidates generated by the other threads
+					try {
+						candidates.wait();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return;
+					}
+				}
+			}
+			try {
+				// Otherwise, we try to expand the rule
+				expandRule(rule);
+			} finally {
+				synchronized (candidates) {
+					activeWorkerCount--;
+					if (activeWorkerCount == 0) {
+						candidates.notifyAll();
+					}
+				}
 			}
-			// candidates.remove(rule);
 		}
 	}
 
@@ -273,237 +375,97 @@ public class AlgoTopKRules {
 	private void registerAsCandidate(boolean expandLR, RuleG rule) {
 		// add the rule to candidates
 		rule.expandLR = expandLR;
-		candidates.add(rule);
-
-		// record the maximum number of candidates for statistics
-		if (candidates.size() >= maxCandidateCount) {
-			maxCandidateCount = candidates.size();
+		synchronized (candidates) {
+			candidates.add(rule);
+	
+			// record the maximum number of candidates for statistics
+			if (candidates.size() >= maxCandidateCount) {
+				maxCandidateCount = candidates.size();
+			}
+			// wake up a thread waiting for a candidate
+			candidates.notify();
 		}
 		// check the memory usage
 		MemoryLogger.getInstance().checkMemory();
 	}
 
 	/**
-	 * Try to expand a rule by left and right expansions.
+	 * Try to expand a rule by left and right expansions, or only by right expansions
+	 * if the rule should only be expanded by the right side to avoid generating redundant rules.
+	 * <br/><br/>
+	 * 
+	 * Instead of scanning the transactions containing the rule, the support of each
+	 * expansion with an item c is calculated by intersecting the words of the tidset of the 
+	 * rule with the words of the tidset of c (see {@link #countCommonTids(long[], int[], int[], long[], int)}).
+	 * The tidset of an expansion is only created if the expansion has enough support.
 	 * @param ruleG the rule
 	 */
-	private void expandLR(RuleG ruleG) {
-    	if(ruleG.getItemset2().length == maxConsequentSize && ruleG.getItemset1().length == maxAntecedentSize){
-    		return;
-    	}
-    	
-		// Maps to record the potential item to expand the left/right sides of the rule
-		// Key: item   Value: bitset indicating the IDs of the transaction containing the item
-		// from the transactions containing the rule.
-		Map<Integer, BitSet> mapCountLeft = new HashMap<Integer, BitSet>();
-		Map<Integer, BitSet> mapCountRight = new HashMap<Integer, BitSet>();
-
-		
-		for (int tid = ruleG.common.nextSetBit(0); tid >= 0; tid = ruleG.common
-				.nextSetBit(tid + 1)) {
-			Iterator<Integer> iter = database.getTransactions().get(tid)
-					.getItems().iterator();
-			while (iter.hasNext()) {
-				Integer item = iter.next();
-				// CAN DO THIS BECAUSE TRANSACTIONS ARE SORTED BY DESCENDING
-				// ITEM IDS (see Database.Java)
-				if (item < ruleG.maxLeft && item < ruleG.maxRight) { //
-					break;
-				}
-				if (tableItemCount[item] < minsuppRelative) {
-					iter.remove();
-					continue;
-				}
-				if (item > ruleG.maxLeft
-						&& !ArraysAlgos.containsLEX(ruleG.getItemset2(), item,
-								ruleG.maxRight)) {
-					BitSet tidsItem = mapCountLeft.get(item);
-					if (tidsItem == null) {
-						tidsItem = new BitSet();
-						mapCountLeft.put(item, tidsItem);
-					}
-					tidsItem.set(tid);
-				}
-				if (item > ruleG.maxRight
-						&& !ArraysAlgos.containsLEX(ruleG.getItemset1(), item,
-								ruleG.maxLeft)) {
-					BitSet tidsItem = mapCountRight.get(item);
-					if (tidsItem == null) {
-						tidsItem = new BitSet();
-						mapCountRight.put(item, tidsItem);
-					}
-					tidsItem.set(tid);
-				}
-			}
+	private void expandRule(RuleG ruleG) {
+		// check if the left and right sides of the rule can be expanded
+		boolean expandLeft = ruleG.expandLR && ruleG.getItemset1().length < maxAntecedentSize;
+		boolean expandRight = ruleG.getItemset2().length < maxConsequentSize;
+		if(expandLeft == false && expandRight == false){
+			return;
 		}
-
-		// for each item c found in the previous step, we create a rule	
-		// I  ==> J U {c} if the support is enough 	
-		if(ruleG.getItemset2().length < maxConsequentSize){
-			for (Entry<Integer, BitSet> entry : mapCountRight.entrySet()) {
-				BitSet tidsRule = entry.getValue();
-				int ruleSupport = tidsRule.cardinality();
-	
-				// if the support is enough
-				if (ruleSupport >= minsuppRelative) {
-					Integer itemC = entry.getKey();
-	
-					// create new right part of rule
-					Integer[] newRightItemset = new Integer[ruleG.getItemset2().length + 1];
-					System.arraycopy(ruleG.getItemset2(), 0, newRightItemset, 0,
-							ruleG.getItemset2().length);
-					newRightItemset[ruleG.getItemset2().length] = itemC;
-	
-					// recompute maxRight
-					int maxRight = (itemC >= ruleG.maxRight) ? itemC
-							: ruleG.maxRight;
-	
-					// calculate the confidence of the rule
-					double confidence = ((double) ruleSupport)
-							/ ruleG.tids1.cardinality();
-					
-					// create the rule
-					RuleG candidate = new RuleG(ruleG.getItemset1(),
-							newRightItemset, ruleSupport, ruleG.tids1, tidsRule,
-							ruleG.maxLeft, maxRight);
-					
-					// if the confidence is enough
-					if (confidence >= minConfidence) {
-						// save the rule in current top-k rules
-						save(candidate, ruleSupport);
-					}
-					// register the rule as a candidate for future expansion
-					if(candidate.getItemset2().length < maxConsequentSize){
-						registerAsCandidate(false, candidate);
-					}
-				}
+		
+		// the words of the tidset of the rule that are not empty
+		long[] words = ruleG.common.toLongArray();
+		long[] ruleWords = new long[words.length];
+		int[] wordIndexes = new int[words.length];
+		int[] remainingTidCounts = new int[words.length + 1];
+		compactWords(words, ruleWords, wordIndexes, remainingTidCounts);
+		// the support of the antecedent (used to calculate the confidence of right expansions)
+		int antecedentSupport = ruleG.tids1.cardinality();
+		
+		// An item c can only be added to the left side if it is larger than the largest
+		// item of the left side, and to the right side if it is larger than the largest item
+		// of the right side.
+		int firstItem = expandLeft ? Math.min(ruleG.maxLeft, ruleG.maxRight) + 1 : ruleG.maxRight + 1;
+		
+		// for each item c that could be added to the rule
+		for(int itemC = firstItem; itemC <= database.maxItem; itemC++){
+			int minsup = minsuppRelative.get();
+			// if the item is not frequent, then skip it
+			if (tableItemCount[itemC] < minsup) {
+				continue;
 			}
-		}
-
-		// for each item c found in the previous step, we create a rule	
-		// I  U {c} ==> J if the support is enough
-		if(ruleG.getItemset1().length < maxAntecedentSize){
-			for (Entry<Integer, BitSet> entry : mapCountLeft.entrySet()) {
-				BitSet tidsRule = entry.getValue();
-				int ruleSupport = tidsRule.cardinality();
-	
-				// if the support is enough
-				if (ruleSupport >= minsuppRelative) {
-					Integer itemC = entry.getKey();
-	
-					// The tidset of the left itemset is calculated
-					BitSet tidsLeft = (BitSet) ruleG.tids1.clone();
-					tidsLeft.and(tableItemTids[itemC]);
-	
-					// create new left part of rule
-					Integer[] newLeftItemset = new Integer[ruleG.getItemset1().length + 1];
-					System.arraycopy(ruleG.getItemset1(), 0, newLeftItemset, 0,
-							ruleG.getItemset1().length);
-					newLeftItemset[ruleG.getItemset1().length] = itemC;
-	
-					// recompute maxLeft
-					int maxLeft = itemC >= ruleG.maxLeft ? itemC : ruleG.maxLeft;
-	
-					// calculate the confidence of the rule
-					double confidence = ((double) ruleSupport)
-							/ tidsLeft.cardinality();
-					
-					// create the rule
-					RuleG candidate = new RuleG(newLeftItemset,
-							ruleG.getItemset2(), ruleSupport, tidsLeft, tidsRule,
-							maxLeft, ruleG.maxRight);
-	
-					// if the confidence is high enough
-					if (confidence >= minConfidence) {
-						// save the rule to the top-k rules
-						save(candidate, ruleSupport);
-					}
-					// register the rule as a candidate for further expansions
-					if(candidate.getItemset1().length < maxAntecedentSize ||
-							candidate.getItemset2().length < maxConsequentSize	){
-						registerAsCandidate(true, candidate);
-					}
-				}
+			
+			boolean isLeftExpansion = expandLeft && itemC > ruleG.maxLeft
+					&& !ArraysAlgos.containsLEX(ruleG.getItemset2(), itemC, ruleG.maxRight);
+			boolean isRightExpansion = expandRight && itemC > ruleG.maxRight
+					&& !ArraysAlgos.containsLEX(ruleG.getItemset1(), itemC, ruleG.maxLeft);
+			if(isLeftExpansion == false && isRightExpansion == false){
+				continue;
 			}
-		}
-	}
-	
-	/**
-	 * Try to expand a rule by right expansion only.
-	 * @param ruleG the rule
-	 */
-	private void expandR(RuleG ruleG) {
-    	if(ruleG.getItemset2().length == maxConsequentSize){
-    		return;
-    	}
-    	
-		// map to record the potential item to expand the right side of the rule
-		// Key: item   Value: bitset indicating the IDs of the transaction containing the item
-		// from the transactions containing the rule.
-		Map<Integer, BitSet> mapCountRight = new HashMap<Integer, BitSet>();
-		
-		// for each transaction containing the rule
-		for (int tid = ruleG.common.nextSetBit(0); tid >= 0; tid = ruleG.common
-				.nextSetBit(tid + 1)) {
 			
-			// iterate over the items in this transaction
-			Iterator<Integer> iter = database.getTransactions().get(tid)
-					.getItems().iterator();
-			while (iter.hasNext()) {
-				Integer item = iter.next();
-				
-				// if  that item is not frequent, then remove it from the transaction
-				if (tableItemCount[item] < minsuppRelative) {
-					iter.remove();
-					continue;
-				}
-				
-				//If the item is smaller than the largest item in the right side
-				// of the rule, we can stop this loop because items
-				// are sorted in lexicographical order.
-				if (item < ruleG.maxRight) {
-					break;
-				}
-				
-				// if the item is larger than the maximum item in the right side
-				// and is not contained in the left side of the rule
-				if (item > ruleG.maxRight
-						&& !ArraysAlgos.containsLEX(ruleG.getItemset1(), item,
-								ruleG.maxLeft)) {
-					
-					// update the tidset of the item
-					BitSet tidsItem = mapCountRight.get(item);
-					if (tidsItem == null) {
-						tidsItem = new BitSet();
-						mapCountRight.put(item, tidsItem);
-					}
-					tidsItem.set(tid);
-				}
+			// calculate the support of the rules I U {c} ==> J  and I ==> J U {c}
+			int ruleSupport = countCommonTids(ruleWords, wordIndexes, remainingTidCounts,
+					tableItemWords[itemC], minsup);
+			
+			// if the support is not enough
+			if (ruleSupport < minsup) {
+				continue;
 			}
-		}
-
-		// for each item c found in the previous step, we create a rule	
-		// I ==> J U {c} if the support is enough
-    	for (Entry<Integer, BitSet> entry : mapCountRight.entrySet()) {
-			BitSet tidsRule = entry.getValue();
-			int ruleSupport = tidsRule.cardinality();
 			
-			// if the support is enough
-			if (ruleSupport >= minsuppRelative) {
-				Integer itemC = entry.getKey();
+			// The tidset of the rules is calculated
+			BitSet tidsRule = (BitSet) ruleG.common.clone();
+			tidsRule.and(tableItemTids[itemC]);
 
+			// we create a rule I  ==> J U {c}
+			if(isRightExpansion){
 				// create new right part of rule
 				Integer[] newRightItemset = new Integer[ruleG.getItemset2().length + 1];
 				System.arraycopy(ruleG.getItemset2(), 0, newRightItemset, 0,
 						ruleG.getItemset2().length);
 				newRightItemset[ruleG.getItemset2().length] = itemC;
 
-				//recompute maxRight
-				int maxRight = itemC >= ruleG.maxRight ? itemC : ruleG.maxRight;
+				// recompute maxRight
+				int maxRight = (itemC >= ruleG.maxRight) ? itemC
+						: ruleG.maxRight;
 
-				// calculate confidence
+				// calculate the confidence of the rule
 				double confidence = ((double) ruleSupport)
-						/ ruleG.tids1.cardinality();
+						/ antecedentSupport;
 				
 				// create the rule
 				RuleG candidate = new RuleG(ruleG.getItemset1(),
@@ -512,15 +474,108 @@ public class AlgoTopKRules {
 				
 				// if the confidence is enough
 				if (confidence >= minConfidence) {
-					// save the rule to the current top-k rules
+					// save the rule in current top-k rules
 					save(candidate, ruleSupport);
 				}
-				// register the rule as a candidate for future expansion(s)
-				if(candidate.getItemset2().length < maxConsequentSize	){
-					registerAsCandidate(false, candidate); 
+				// register the rule as a candidate for future expansion
+				if(candidate.getItemset2().length < maxConsequentSize){
+					registerAsCandidate(false, candidate);
 				}
 			}
+
+			// we create a rule I  U {c} ==> J
+			if(isLeftExpansion){
+				// The tidset of the left itemset is calculated
+				BitSet tidsLeft = (BitSet) ruleG.tids1.clone();
+				tidsLeft.and(tableItemTids[itemC]);
+
+				// create new left part of rule
+				Integer[] newLeftItemset = new Integer[ruleG.getItemset1().length + 1];
+				System.arraycopy(ruleG.getItemset1(), 0, newLeftItemset, 0,
+						ruleG.getItemset1().length);
+				newLeftItemset[ruleG.getItemset1().length] = itemC;
+
+				// recompute maxLeft
+				int maxLeft = itemC >= ruleG.maxLeft ? itemC : ruleG.maxLeft;
+
+				// calculate the confidence of the rule
+				double confidence = ((double) ruleSupport)
+						/ tidsLeft.cardinality();
+				
+				// create the rule
+				RuleG candidate = new RuleG(newLeftItemset,
+						ruleG.getItemset2(), ruleSupport, tidsLeft, tidsRule,
+						maxLeft, ruleG.maxRight);
+
+				// if the confidence is high enough
+				if (confidence >= minConfidence) {
+					// save the rule to the top-k rules
+					save(candidate, ruleSupport);
+				}
+				// register the rule as a candidate for further expansions
+				if(candidate.getItemset1().length < maxAntecedentSize ||
+						candidate.getItemset2().length < maxConsequentSize	){
+					registerAsCandidate(true, candidate);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Keep the words of a tidset that are not empty, so that the tidset can be intersected
+	 * with other tidsets without reading its empty words.
+	 * @param words the words of the tidset (see BitSet.toLongArray())
+	 * @param nonEmptyWords an array to store the words that are not empty (same length as words)
+	 * @param wordIndexes an array to store the index of each of these words in the tidset
+	 * @param remainingTidCounts an array to store, for each of these words, the number of 
+	 *        transactions in this word and the following words (length of words + 1)
+	 * @return the number of words that are not empty
+	 */
+	private static int compactWords(long[] words, long[] nonEmptyWords, int[] wordIndexes,
+			int[] remainingTidCounts) {
+		int count = 0;
+		for(int i = 0; i < words.length; i++){
+			if(words[i] != 0){
+				nonEmptyWords[count] = words[i];
+				wordIndexes[count] = i;
+				count++;
+			}
+		}
+		// the end of the arrays is marked by a count of 0 transactions
+		remainingTidCounts[count] = 0;
+		for(int i = count - 1; i >= 0; i--){
+			remainingTidCounts[i] = remainingTidCounts[i + 1] + Long.bitCount(nonEmptyWords[i]);
+		}
+		return count;
+	}
+	
+	/**
+	 * Count the transactions that are in two tidsets, by intersecting their words
+	 * (64 transactions at a time).
+	 * @param words the words of the first tidset that are not empty (see {@link #compactWords(long[], long[], int[], int[])})
+	 * @param wordIndexes the index of each of these words in the first tidset
+	 * @param remainingTidCounts for each of these words, the number of transactions
+	 *        in this word and the following words (0 after the last word)
+	 * @param otherWords the words of the second tidset (see BitSet.toLongArray())
+	 * @param minsup if the count cannot reach this number of transactions, the intersection
+	 *        stops early and the count is incomplete (smaller than minsup)
+	 * @return the number of transactions
+	 */
+	private static int countCommonTids(long[] words, int[] wordIndexes, int[] remainingTidCounts,
+			long[] otherWords, int minsup) {
+		int count = 0;
+		for(int i = 0; remainingTidCounts[i] != 0; i++){
+			// early skip
+			if(count + remainingTidCounts[i] < minsup){
+				return count;
+			}
+			int index = wordIndexes[i];
+			if(index >= otherWords.length){
+				break;
+			}
+			count += Long.bitCount(words[i] & otherWords[index]);
 		}
+		return count;
 	}
 	
 	/**
@@ -529,22 +584,29 @@ public class AlgoTopKRules {
 	 * @param support the support of the rule
 	 */
 	private void save(RuleG rule, int support) {
-		// We add the rule to the set of top-k rules
-		kRules.add(rule);
-		// if the size becomes larger than k
-		if (kRules.size() > k) {
-			// if the support of the rule that we haved added is higher than
-			// the minimum support, we will need to take out at least one rule
-			if (support > this.minsuppRelative) {
-				// we recursively remove the rule having the lowest support,
-				// until only k rules are left
-				do {
-					kRules.poll();
-				} while (kRules.size() > k);
+		synchronized (kRules) {
+			// if the minimum support was raised by another thread since the support
+			// of the rule was checked, the rule is not a top-k rule anymore
+			if (support < this.minsuppRelative.get()) {
+				return;
+			}
+			// We add the rule to the set of top-k rules
+			kRules.add(rule);
+			// if the size becomes larger than k
+			if (kRules.size() > k) {
+				// if the support of the rule that we haved added is higher than
+				// the minimum support, we will need to take out at least one rule
+				if (support > this.minsuppRelative.get()) {
+					// we recursively remove the rule having the lowest support,
+					// until only k rules are left
+					do {
+						kRules.poll();
+					} while (kRules.size() > k);
+				}
+				// we raise the minimum support to the lowest support in the 
+				// set of top-k rules
+				this.minsuppRelative.set(kRules.peek().getAbsoluteSupport());
 			}
-			// we raise the minimum support to the lowest support in the 
-			// set of top-k rules
-			this.minsuppRelative = kRules.peek().getAbsoluteSupport();
 		}
 	}
 
@@ -568,6 +630,11 @@ public class AlgoTopKRules {
 				tableItemCount[item] = tableItemCount[item] + 1;
 			}
 		}
+		// keep the words of each tidset to calculate the support of rules by intersecting words
+		for (int item = 0; item <= database.maxItem; item++) {
+			tableItemWords[item] = tableItemTids[item] == null ? new long[0] 
+					: tableItemTids[item].toLongArray();
+		}
 	}
 	
 	/**
@@ -575,7 +642,7 @@ public class AlgoTopKRules {
 	 */
 	public void printStats() {
 		System.out.println("=============  TOP-K RULES SPMF v.2.10 - STATS =============");
-		System.out.println("Minsup : " + minsuppRelative);
+		System.out.println("Minsup : " + minsuppRelative.get());
 		System.out.println("Rules count: " + kRules.size());
 		System.out.println("Memory : " + MemoryLogger.getInstance().getMaxMemory() + " mb");
 		System.out.println("Total time : " + (timeEnd - timeStart) + " ms");
@@ -640,4 +707,20 @@ public class AlgoTopKRules {
 		this.maxConsequentSize = maxConsequentSize;
 	}
 
+	/**
+	 * Set the number of threads used to expand the candidates (optional).
+	 * The final minimum support and the rules having a higher support are always the same.
+	 * But when several rules have the lowest support of the result, which of them are kept depends on
+	 * the order in which the rules are found. With several threads, this order changes from one run
+	 * to another, so the number and the choice of these rules can be different on each run,
+	 * even on the same database and with the same parameters.
+	 * @param threadCount the number of threads (at least 1)
+	 */
+	public void setThreadCount(int threadCount) {
+		if(threadCount < 1) {
+			throw new IllegalArgumentException("The number of threads must be at least 1");
+		}
+		this.threadCount = threadCount;
+	}
+
 }
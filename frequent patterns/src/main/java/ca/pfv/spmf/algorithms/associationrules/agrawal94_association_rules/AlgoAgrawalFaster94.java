@@ -19,10 +19,16 @@ package ca.pfv.spmf.algorithms.associationrules.agrawal94_association_rules;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import ca.pfv.spmf.algorithms.ArraysAlgos;
 import ca.pfv.spmf.patterns.itemset_array_integers_with_count.Itemset;
@@ -38,6 +44,13 @@ import ca.pfv.spmf.patterns.itemset_array_integers_with_count.Itemsets;
  * or can alternatively keep it into memory if no output 
  * path is provided by the user when the runAlgorithm()
  * method is called.
+ * <br/><br/>
+ * 
+ * The support of the antecedents and consequents is found with an {@link ItemsetSupportIndex}
+ * built from the frequent itemsets. Rules can be generated by several threads
+ * (see {@link #AlgoAgrawalFaster94(int)}): the itemsets of each level are split in chunks
+ * that are processed by a thread pool, and the rules of each chunk are saved in the order 
+ * of the sequential algorithm.
  * 
  *  @see   AssocRule
  *  @see   AssocRules
@@ -70,6 +83,19 @@ public class AlgoAgrawalFaster94{
 	/** maximum antecedent length */
 	private int maxAntecedentLength = Integer.MAX_VALUE;
 	
+	/** the index used to find the support of itemsets */
+	private ItemsetSupportIndex supportIndex = null;
+	
+	/** the number of threads used to generate rules (1 = sequential) */
+	private int threadCount = 1;
+	
+	/** the number of itemsets processed by a task when rules are generated by several threads */
+	private static final int PARALLEL_CHUNK_SIZE = 256;
+	
+	/** if this object generates the rules of a chunk for the parallel generation
+	 * and the result is saved to a file, the rules written by this object (otherwise null) */
+	private StringWriter chunkOutput = null;
+	
 	// parameters
 	protected double minconf;
 	protected double minlift;
@@ -82,6 +108,19 @@ public class AlgoAgrawalFaster94{
 		
 	}
 
+	/**
+	 * Constructor to generate the rules with several threads.
+	 * The rules are the same, and in the same order, as with a single thread (the default).
+	 * The subclasses for closed rules have their own runAlgorithm methods and always use one thread.
+	 * @param threadCount the number of threads (at least 1)
+	 */
+	public AlgoAgrawalFaster94(int threadCount){
+		if(threadCount < 1) {
+			throw new IllegalArgumentException("The number of threads must be at least 1");
+		}
+		this.threadCount = threadCount;
+	}
+
 	/**
 	 * Run the algorithm
 	 * @param patterns  a set of frequent itemsets
@@ -157,13 +196,10 @@ public class AlgoAgrawalFaster94{
 		this.patterns = patterns;
 		
 		// SORTING
-		// First, we sort all itemsets having the same size by lexical order
-		// We do this for optimization purposes. If the itemsets are sorted, it allows to
-		// perform two optimizations:
-		// 1) When we need to calculate the support of an itemset (in the method
-		// "calculateSupport()") we can use a binary search instead of browsing the whole list.
-		// 2) When combining itemsets to generate candidate, we can use the
-		//    lexical order to avoid comparisons (in the method "generateCandidates()").
+		// First, we sort all itemsets having the same size by lexical order.
+		// The support of itemsets is found with a hash index (in the method
+		// "calculateSupport()"), so the order is not needed for searching itemsets, 
+		// but it makes the rules generated in a deterministic order.
 		
 		// For itemsets of the same size
 		for(List<Itemset> itemsetsSameSize : patterns.getLevels()){
@@ -178,70 +214,19 @@ public class AlgoAgrawalFaster94{
 		}
 		// END OF SORTING
 		
-		// Now we will generate the rules.
+		// Build the index for finding the support of itemsets
+		supportIndex = new ItemsetSupportIndex(patterns);
 		
-		// For each frequent itemset of size >=2 that we will name "lk"
-		for (int k = 2; k < patterns.getLevels().size(); k++) {
-			for (Itemset lk : patterns.getLevels().get(k)) {
-				
-				// create a variable H1 for recursion
-				List<int[]> H1_for_recursion = new ArrayList<int[]>();
-				
-				// For each itemset "itemsetSize1" of size 1 that is member of lk
-				for(int item : lk.getItems()) {
-					int itemsetHm_P_1[] = new int[] {item};
-	
-					if(lk.size() - 1 <= maxAntecedentLength){
-						// make a copy of  lk without items from  hm_P_1
-						int[] itemset_Lk_minus_hm_P_1 = ArraysAlgos.cloneItemSetMinusOneItem(lk.getItems(), item);
-	
-						// Now we will calculate the support and confidence
-						// of the rule: itemset_Lk_minus_hm_P_1 ==>  hm_P_1
-						int support = calculateSupport(itemset_Lk_minus_hm_P_1); // THIS COULD BE
-																	// OPTIMIZED ?
-						double supportAsDouble = (double) support;
-						
-						// calculate the confidence of the rule : itemset_Lk_minus_hm_P_1 ==>  hm_P_1
-						double conf = lk.getAbsoluteSupport() / supportAsDouble;
-	
-						// if the confidence is lower than minconf
-						if(conf < minconf || Double.isInfinite(conf)){
-							continue;
-						}
-						
-						double lift = 0;
-						int supportHm_P_1 = 0;
-						// if the user is using the minlift threshold, we will need
-						// to also calculate the lift of the rule:  itemset_Lk_minus_hm_P_1 ==>  hm_P_1
-						if(usingLift){
-							// if we want to calculate the lift, we need the support of hm_P_1
-							supportHm_P_1 = calculateSupport(itemsetHm_P_1);  // if we want to calculate the lift, we need to add this.
-							// calculate the lift
-							double term1 = ((double)lk.getAbsoluteSupport()) /databaseSize;
-							double term2 = supportAsDouble /databaseSize;
-							double term3 = ((double)supportHm_P_1 / databaseSize);
-							lift = term1 / (term2 * term3);
-							
-							// if the lift is not enough
-							if(lift < minlift){
-								continue;
-							}
-						}
-						
-						// If we are here, it means that the rule respect the minconf and minlift parameters.
-						// Therefore, we output the rule.
-						saveRule(itemset_Lk_minus_hm_P_1, support, itemsetHm_P_1, supportHm_P_1, lk.getAbsoluteSupport(), conf, lift);
-					}
-					// Then we keep the itemset  hm_P_1 to find more rules using this itemset and lk.
-					if(1 < maxConsequentLength ){
-						H1_for_recursion.add(itemsetHm_P_1);
-					}
-					// ================ END OF WHAT I HAVE ADDED
+		// Now we will generate the rules.
+		if(threadCount > 1) {
+			generateRulesInParallel();
+		}else {
+			// For each frequent itemset of size >=2 that we will name "lk"
+			for (int k = 2; k < patterns.getLevels().size(); k++) {
+				for (Itemset lk : patterns.getLevels().get(k)) {
+					generateRules(k, lk);
 				}
-				// Finally, we make a recursive call to continue explores rules that can be made with "lk"
-				apGenrules(k, 1, lk, H1_for_recursion);
 			}
-			
 		}
 
 		// close the file if we saved the result to a file
@@ -256,6 +241,173 @@ public class AlgoAgrawalFaster94{
 		return rules;
 	}
 
+	/**
+	 * Generate the rules that can be made with a frequent itemset
+	 * @param k the size of the itemset
+	 * @param lk the itemset
+	 * @throws IOException exception if error while writing output file
+	 */
+	private void generateRules(int k, Itemset lk) throws IOException {
+		// create a variable H1 for recursion
+		List<int[]> H1_for_recursion = new ArrayList<int[]>();
+		
+		// For each itemset "itemsetSize1" of size 1 that is member of lk
+		for(int item : lk.getItems()) {
+			int itemsetHm_P_1[] = new int[] {item};
+	
+			if(lk.size() - 1 <= maxAntecedentLength){
+				// make a copy of  lk without items from  hm_P_1
+				int[] itemset_Lk_minus_hm_P_1 = ArraysAlgos.cloneItemSetMinusOneItem(lk.getItems(), item);
+	
+				// Now we will calculate the support and confidence
+				// of the rule: itemset_Lk_minus_hm_P_1 ==>  hm_P_1
+				int support = calculateSupport(itemset_Lk_minus_hm_P_1); // THIS COULD BE
+															// OPTIMIZED ?
+				double supportAsDouble = (double) support;
+				
+				// calculate the confidence of the rule : itemset_Lk_minus_hm_P_1 ==>  hm_P_1
+				double conf = lk.getAbsoluteSupport() / supportAsDouble;
+	
+				// if the confidence is lower than minconf
+				if(conf < minconf || Double.isInfinite(conf)){
+					continue;
+				}
+				
+				double lift = 0;
+				int supportHm_P_1 = 0;
+				// if the user is using the minlift threshold, we will need
+				// to also calculate the lift of the rule:  itemset_Lk_minus_hm_P_1 ==>  hm_P_1
+				if(usingLift){
+					// if we want to calculate the lift, we need the support of hm_P_1
+					supportHm_P_1 = calculateSupport(itemsetHm_P_1);  // if we want to calculate the lift, we need to add this.
+					// calculate the lift
+					double term1 = ((double)lk.getAbsoluteSupport()) /databaseSize;
+					double term2 = supportAsDouble /databaseSize;
+					double term3 = ((double)supportHm_P_1 / databaseSize);
+					lift = term1 / (term2 * term3);
+					
+					// if the lift is not enough
+					if(lift < minlift){
+						continue;
+					}
+				}
+				
+				// If we are here, it means that the rule respect the minconf and minlift parameters.
+				// Therefore, we output the rule.
+				saveRule(itemset_Lk_minus_hm_P_1, support, itemsetHm_P_1, supportHm_P_1, lk.getAbsoluteSupport(), conf, lift);
+			}
+			// Then we keep the itemset  hm_P_1 to find more rules using this itemset and lk.
+			if(1 < maxConsequentLength ){
+				H1_for_recursion.add(itemsetHm_P_1);
+			}
+			// ================ END OF WHAT I HAVE ADDED
+		}
+		// Finally, we make a recursive call to continue explores rules that can be made with "lk"
+		apGenrules(k, 1, lk, H1_for_recursion);
+	}
+	
+	/**
+	 * Generate the rules with several threads. The itemsets of each level are split in chunks
+	 * that are processed by the tasks of a thread pool. Each task saves its rules in a
+	 * buffer, and the buffers are saved in the order of the sequential algorithm.
+	 * @throws IOException exception if error while writing output file
+	 */
+	private void generateRulesInParallel() throws IOException {
+		ExecutorService pool = Executors.newFixedThreadPool(threadCount);
+		// the tasks that have been submitted, in the order of the sequential algorithm
+		ArrayDeque<Future<AlgoAgrawalFaster94>> pendingChunks = new ArrayDeque<Future<AlgoAgrawalFaster94>>();
+		try {
+			// For each level of itemsets of size >=2
+			for (int k = 2; k < patterns.getLevels().size(); k++) {
+				final int size = k;
+				final List<Itemset> level = patterns.getLevels().get(k);
+				// split the level in chunks
+				for(int start = 0; start < level.size(); start += PARALLEL_CHUNK_SIZE) {
+					final int from = start;
+					final int to = Math.min(level.size(), start + PARALLEL_CHUNK_SIZE);
+					pendingChunks.add(pool.submit(() -> {
+						AlgoAgrawalFaster94 worker = createChunkWorker();
+						for(int i = from; i < to; i++) {
+							worker.generateRules(size, level.get(i));
+						}
+						if(worker.writer != null) {
+							worker.writer.flush();
+						}
+						return worker;
+					}));
+					// the number of chunks waiting to be saved is bounded to limit the memory usage
+					while(pendingChunks.size() >= threadCount * 2) {
+						saveRulesOfChunk(pendingChunks.poll());
+					}
+				}
+			}
+			while(pendingChunks.isEmpty() == false) {
+				saveRulesOfChunk(pendingChunks.poll());
+			}
+		}finally {
+			pool.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Create an object to generate the rules of a chunk of itemsets in a task.
+	 * It has the same parameters and support index as this object, but saves
+	 * the rules in its own buffer.
+	 * @return the object
+	 */
+	private AlgoAgrawalFaster94 createChunkWorker() {
+		AlgoAgrawalFaster94 worker = new AlgoAgrawalFaster94();
+		worker.patterns = patterns;
+		worker.supportIndex = supportIndex;
+		worker.databaseSize = databaseSize;
+		worker.minconf = minconf;
+		worker.minlift = minlift;
+		worker.usingLift = usingLift;
+		worker.maxAntecedentLength = maxAntecedentLength;
+		worker.maxConsequentLength = maxConsequentLength;
+		if(writer != null) {
+			worker.chunkOutput = new StringWriter();
+			worker.writer = new BufferedWriter(worker.chunkOutput);
+		}else {
+			worker.rules = new AssocRules("ASSOCIATION RULES");
+		}
+		return worker;
+	}
+	
+	/**
+	 * Wait for a chunk processed by a task and save its rules
+	 * @param chunk the task
+	 * @throws IOException exception if error while writing output file
+	 */
+	private void saveRulesOfChunk(Future<AlgoAgrawalFaster94> chunk) throws IOException {
+		AlgoAgrawalFaster94 worker;
+		try {
+			worker = chunk.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while generating rules", e);
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			if(e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if(e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+		ruleCount += worker.ruleCount;
+		if(writer != null) {
+			writer.write(worker.chunkOutput.toString());
+		}else {
+			for(AssocRule rule : worker.rules.getRules()) {
+				rules.addRule(rule);
+			}
+		}
+	}
+
 	/**
 	 * The ApGenRules as described in p.14 of the paper by Agrawal.
 	 * (see the Agrawal paper for more details).
@@ -335,45 +487,16 @@ public class AlgoAgrawalFaster94{
 	}
 	
 	/**
-	 * Calculate the support of an itemset by looking at the frequent patterns
-	 * of the same size.
-	 * Because patterns are sorted by lexical order, we use a binary search.
-	 * This is MUCH MORE efficient than just browsing the full list of patterns.
+	 * Calculate the support of an itemset by looking at the frequent patterns.
+	 * The itemset is searched in a hash index of the patterns, which is
+	 * faster than a binary search in the list of patterns having the same size.
 	 * 
 	 * @param itemset the itemset.
 	 * @return the support of the itemset
 	 */
 	private int calculateSupport(int[] itemset) {
-		// We first get the list of patterns having the same size as "itemset"
-		List<Itemset> patternsSameSize = patterns.getLevels().get(itemset.length);
-//		
-		// We perform a binary search to find the position of itemset in this list
-        int first = 0;
-        int last = patternsSameSize.size() - 1;
-       
-        while( first <= last )
-        {
-        	int middle = ( first + last ) >>1 ; // >>1 means to divide by 2
-        	int[] itemsetMiddle = patternsSameSize.get(middle).getItems();
-
-        	int comparison = ArraysAlgos.comparatorItemsetSameSize.compare(itemset, itemsetMiddle);
-            if(comparison  > 0 ){
-            	first = middle + 1;  //  the itemset compared is larger than the subset according to the lexical order
-            }
-            else if(comparison  < 0 ){
-            	last = middle - 1; //  the itemset compared is smaller than the subset  is smaller according to the lexical order
-            }
-            else{
-            	// we have found the itemset, so we return its support.
-            	return patternsSameSize.get(middle).getAbsoluteSupport();
-            }
-        }
-        // The following line will not happen because in the context of this algorithm, we will
-        // always search for itemsets that are frequent and thus will be in the list of patterns.
-        // We just put the following line to avoid compilation error and detect if the error if this
-        // case was ever to happen.
-        return 0;
-//        throw new RuntimeException("INVALID SUPPORT - THIS SHOULD NOT HAPPEN BECAUSE ALL ITEMSETS HAVE TO BE FREQUENT");
+		// The itemsets that are searched are always frequent, so they are in the index
+		return supportIndex.getSupport(itemset);
 	}
 
 	/**
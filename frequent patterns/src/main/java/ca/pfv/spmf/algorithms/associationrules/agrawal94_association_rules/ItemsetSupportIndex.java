@@ -0,0 +1,187 @@
+package ca.pfv.spmf.algorithms.associationrules.agrawal94_association_rules;
+
+/* This file is part of the SPMF DATA MINING SOFTWARE
+* (http://www.philippe-fournier-viger.com/spmf).
+*
+* SPMF is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+* SPMF is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* SPMF. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.util.List;
+
+import ca.pfv.spmf.patterns.itemset_array_integers_with_count.Itemset;
+import ca.pfv.spmf.patterns.itemset_array_integers_with_count.Itemsets;
+
+/**
+ * An index to find the support of an itemset among a set of itemsets in constant time.
+ * <br/><br/>
+ *
+ * The items of all itemsets are packed in a single array of ints, and a hash table
+ * with open addressing (linear probing) stores the position of each itemset in that array.
+ * Compared to a binary search in the list of itemsets having the same size, a lookup
+ * does not compare the itemset with O(log n) other itemsets and does not follow references
+ * to Itemset objects.
+ * <br/><br/>
+ *
+ * The index is not modified after it has been built, so several threads can use it at the same time.
+ * The items of an itemset must be given in the same order as in the itemsets used to
+ * build the index (the lexical order for the itemsets found by SPMF algorithms).
+ *
+ * @see AlgoAgrawalFaster94
+ */
+public class ItemsetSupportIndex {
+
+	/** the items of all itemsets, one after the other */
+	private final int[] items;
+	/** the start of each itemset in items (plus the end of the last itemset) */
+	private final int[] starts;
+	/** the support of each itemset */
+	private final int[] supports;
+
+	/** the hash table: the position of an itemset plus 1, or 0 if the slot is empty */
+	private final int[] table;
+	/** the hash code of the itemset in each slot of the table */
+	private final int[] tableHashes;
+	/** the number of slots minus 1 (the number of slots is a power of 2) */
+	private final int mask;
+
+	/**
+	 * Build the index of a set of itemsets
+	 * @param patterns the itemsets
+	 */
+	public ItemsetSupportIndex(Itemsets patterns) {
+		// count the itemsets and their items
+		int itemsetCount = 0;
+		long itemCount = 0;
+		for(List<Itemset> level : patterns.getLevels()) {
+			for(Itemset itemset : level) {
+				itemsetCount++;
+				itemCount += itemset.size();
+			}
+		}
+		if(itemCount > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Too many items to build an itemset index: " + itemCount);
+		}
+
+		items = new int[(int) itemCount];
+		starts = new int[itemsetCount + 1];
+		supports = new int[itemsetCount];
+
+		// the table is at least twice larger than the number of itemsets
+		int capacity = Integer.highestOneBit(Math.max(2, itemsetCount) * 2 - 1) << 1;
+		table = new int[capacity];
+		tableHashes = new int[capacity];
+		mask = capacity - 1;
+
+		// add the itemsets
+		int position = 0;
+		int itemsetIndex = 0;
+		for(List<Itemset> level : patterns.getLevels()) {
+			for(Itemset itemset : level) {
+				int[] itemsetItems = itemset.getItems();
+				int length = itemset.size();
+				System.arraycopy(itemsetItems, 0, items, position, length);
+				starts[itemsetIndex] = position;
+				supports[itemsetIndex] = itemset.getAbsoluteSupport();
+				position += length;
+
+				// find an empty slot (an itemset that appears twice keeps its first support)
+				int hash = hash(itemsetItems, length);
+				int slot = hash & mask;
+				while(table[slot] != 0) {
+					if(tableHashes[slot] == hash && equals(table[slot] - 1, itemsetItems, length)) {
+						break;
+					}
+					slot = (slot + 1) & mask;
+				}
+				if(table[slot] == 0) {
+					table[slot] = itemsetIndex + 1;
+					tableHashes[slot] = hash;
+				}
+				itemsetIndex++;
+			}
+		}
+		starts[itemsetCount] = position;
+	}
+
+	/**
+	 * Get the support of an itemset
+	 * @param itemset the items of the itemset
+	 * @return the support or 0 if the itemset is not in the index
+	 */
+	public int getSupport(int[] itemset) {
+		return getSupport(itemset, itemset.length);
+	}
+
+	/**
+	 * Get the support of an itemset
+	 * @param itemset an array starting with the items of the itemset
+	 * @param length the number of items of the itemset
+	 * @return the support or 0 if the itemset is not in the index
+	 */
+	public int getSupport(int[] itemset, int length) {
+		int hash = hash(itemset, length);
+		int slot = hash & mask;
+		// linear probing until an empty slot
+		while(table[slot] != 0) {
+			if(tableHashes[slot] == hash && equals(table[slot] - 1, itemset, length)) {
+				return supports[table[slot] - 1];
+			}
+			slot = (slot + 1) & mask;
+		}
+		return 0;
+	}
+
+	/**
+	 * Get the number of itemsets in this index
+	 * @return the number of itemsets
+	 */
+	public int size() {
+		return supports.length;
+	}
+
+	/**
+	 * Check if an itemset of the index is equal to an itemset
+	 * @param itemsetIndex the position of the itemset of the index
+	 * @param itemset the items of the other itemset
+	 * @param length the number of items of the other itemset
+	 * @return true if they contain the same items in the same order
+	 */
+	private boolean equals(int itemsetIndex, int[] itemset, int length) {
+		int start = starts[itemsetIndex];
+		if(starts[itemsetIndex + 1] - start != length) {
+			return false;
+		}
+		for(int i = 0; i < length; i++) {
+			if(items[start + i] != itemset[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Calculate the hash code of an itemset
+	 * @param itemset the items
+	 * @param length the number of items
+	 * @return the hash code
+	 */
+	private static int hash(int[] itemset, int length) {
+		int hash = length;
+		for(int i = 0; i < length; i++) {
+			hash = hash * 31 + itemset[i];
+		}
+		// spread the bits since the low bits are used to find the slot
+		hash ^= (hash >>> 16);
+		hash *= 0x85ebca6b;
+		hash ^= (hash >>> 13);
+		return hash;
+	}
+}
@@ -28,8 +28,14 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import ca.pfv.spmf.algorithms.ArraysAlgos;
+import ca.pfv.spmf.datastructures.tidset.BitSetTidset;
+import ca.pfv.spmf.datastructures.tidset.CompressedTidset;
+import ca.pfv.spmf.datastructures.tidset.Tidset;
 import ca.pfv.spmf.datastructures.triangularmatrix.TriangularMatrix;
 import ca.pfv.spmf.input.transaction_database_list_integers.TransactionDatabase;
 import ca.pfv.spmf.patterns.itemset_array_integers_with_tids_bitset.Itemset;
@@ -38,7 +44,8 @@ import ca.pfv.spmf.tools.MemoryLogger;
  
 /**
  * This is a new implementation of the CHARM algorithm (2014) that relies on bitsets to implement
- * tidsets.
+ * tidsets. The tidsets can also be stored as compressed bitmaps (see setUseCompressedTidsets()),
+ * which use less memory for sparse tidsets.
  *  
  * Charm was proposed by ZAKI (2001).
  * <br/><br/>
@@ -52,6 +59,16 @@ import ca.pfv.spmf.tools.MemoryLogger;
  * This  version  saves the result to a file
  * or keep it into memory if no output path is provided
  * by the user to the runAlgorithm method().
+ * <br/><br/>
+ * 
+ * The equivalence classes can be processed by several threads (see {@link #setThreadCount(int)}).
+ * In that case, the equivalence classes of the frequent items are generated by the calling thread
+ * (since the Charm properties remove items that come later in the total order), and each
+ * class is processed by a task of a ForkJoinPool. A task processes each large equivalence class
+ * that it finds with a new task, so that idle threads can steal the remaining work of busy threads.
+ * Since the itemsets are then not found in the order of the sequential algorithm, 
+ * the hash table replaces the itemsets that are subsumed by an itemset when it is added (see 
+ * {@link HashTable#putIfNoSuperset}), and the closed itemsets are saved at the end.
  * 
  * @see TriangularMatrix
  * @see TransactionDatabase
@@ -98,6 +115,16 @@ public class AlgoCharm_Bitset {
 	
 	/** if true, transaction identifiers of each pattern will be shown*/
 	boolean showTransactionIdentifiers = false;
+	
+	/** if true, tidsets are stored as compressed bitmaps instead of BitSets */
+	boolean useCompressedTidsets = false;
+	
+	/** the number of threads used to process the equivalence classes */
+	private int threadCount = 1;
+	
+	/** in parallel mode, an equivalence class containing at least this number of
+	 * itemsets is processed by a new task rather than by the task that found it */
+	static final int MIN_TASK_CLASS_SIZE = 8;
 
 	
 	/**
@@ -205,140 +232,14 @@ public class AlgoCharm_Bitset {
 		// Now we will combine each pairs of single items to generate equivalence classes
 		// of 2-itemsets
 		
-		// For each frequent item X according to the total order
-		for(int i=0; i < frequentItems.size(); i++) {
-			Integer itemX = frequentItems.get(i);
-			// If the itemset is null (which means that it has been removed, then we 
-			// continue to the next item
-			if(itemX == null) {
-				continue;
-			}
-
-			// We obtain the tidset and support of that item X
-			BitSetSupport tidsetX = mapItemTIDS.get(itemX);
-			
-			// We create an itemset with the item X.
-			int[] itemsetX = new int[] {itemX};
-			
-			// We create an empty equivalence class for storing all itemsets obtained by joining
-			// X with other itemsets.
-			// This equivalence class is represented by two structures.
-			// The first structure stores the suffix of all itemsets starting with the prefix "X".
-			// For example, if X = "1" and the equivalence class contains 12, 13, 14, then
-			// the structure "equivalenceClassIitems" will only contain  2, 3 and 4 instead of
-			// 12, 13 and 14.  The reason for this implementation choice is that it is more
-			// memory efficient.
-			/// Moreover, when the charm properties requires to replace X with Xj (see the article),
-			//  it can be done very efficiently if we keep X separately.
-			List<int[]> equivalenceClassIitemsets = new ArrayList<int[]>();
-			// The second structure stores the tidset of each itemset in the equivalence class
-			// of the prefix "i"
-			List<BitSetSupport> equivalenceClassItidsets = new ArrayList<BitSetSupport>();
-			
-			// For each item itemJ that is larger than i according to the total order of
-			// increasing support.
-loopJ:		for(int j=i+1; j < frequentItems.size(); j++) {
-				Integer itemJ = frequentItems.get(j);
-				// If the itemset is null (which means that it has been removed, then we 
-				// continue to the next item
-				if(itemJ == null) {
-					continue;
-				}
-				
-				// If the triangular matrix optimization is activated and X is a single item
-				// we obtain the support of the pair of item "x", "j" by using the matrix. 
-				// This allows to determine
-				// directly the support without performing a join.
-				// Then if the support is less than minsup, the itemset X + j is infrequent
-				// and we don't need to consider it anymore.
-				int supportIJ = -1;
-				if(itemsetX.length == 1 && useTriangularMatrixOptimization) {
-					// check the support of {i,j} according to the triangular matrix
-					supportIJ = matrix.getSupportForItems(itemX, itemJ);
-					// if not frequent
-					if (supportIJ < minsupRelative) {
-						// skip j;
-						continue loopJ;
-					}
-				}
-				
-				// We obtain the tidset of J.
-				BitSetSupport tidsetJ = mapItemTIDS.get(itemJ);
-
-				// Calculate the tidset of itemset "X" + "J" by performing the intersection of 
-				// the tidsets of X and the tidset of J.
-				BitSetSupport bitsetSupportUnion = new BitSetSupport();
-				if(itemsetX.length == 1 && useTriangularMatrixOptimization) {
-					// If the triangular matrix optimization is used and X is a single item, then
-					// we perform the intersection but we do not calculate the support since
-					// it was already calculated using the triangular matrix
-					bitsetSupportUnion = performANDFirstTime(tidsetX, tidsetJ, supportIJ);
-				}else {
-					// Otherwise, we perform the intersection and calculate the support
-					// by calculating the cardinality of the resulting tidset.
-					bitsetSupportUnion = performAND(tidsetX, tidsetJ);
-				}
-				
-				// if the union is infrequent, we don't need to consider it further
-				if(bitsetSupportUnion.support < minsupRelative) {
-					continue;
-				}
-				
-				// We next check which of the four Charm properties hold
-				// If Property 1 holds
-				if(tidsetX.support == tidsetJ.support && 
-					bitsetSupportUnion.support == tidsetX.support) {
-					// We remove Xj 
-					frequentItems.set(j, null);
-					// Then, we calculate the union of X and Xj
-					int[] realUnion = new int[itemsetX.length + 1];
-					System.arraycopy(itemsetX, 0, realUnion, 0, itemsetX.length);
-					realUnion[itemsetX.length] = itemJ;
-					// Then we replace X by the union
-					itemsetX = realUnion;
-				}else if(tidsetX.support < tidsetJ.support
-						&& bitsetSupportUnion.support == tidsetX.support) {
-					// If property 2 holds
-					// Then, we calculate the union of X and Xj
-					int[] realUnion = new int[itemsetX.length + 1];
-					System.arraycopy(itemsetX, 0, realUnion, 0, itemsetX.length);
-					realUnion[itemsetX.length] = itemJ;
-					// Then we replace X by the union
-					itemsetX = realUnion;
-				}else if(tidsetX.support > tidsetJ.support
-						&& bitsetSupportUnion.support == tidsetJ.support) {
-					// If property 3 holds
-					// We remove Xj
-					frequentItems.set(j, null);
-					// Then, we add the itemset X + J to the equivalence class that
-					// we are building.
-					// Note that we actually only add J because we keep the prefix X for
-					// for the whole equivalence class. Thus X + J can be reconstructed at any time.
-					equivalenceClassIitemsets.add(new int[] {itemJ});
-					// We also keep the tidset of X + J
-					equivalenceClassItidsets.add(bitsetSupportUnion);
-				}else {  
-					// If property 4 holds
-					// Then, we add the itemset X + J to the equivalence class that
-					// we are building.
-					// Note that we actually only add J because we keep the prefix X for
-					// for the whole equivalence class. Thus X + J can be reconstructed at any time.
-					equivalenceClassIitemsets.add(new int[] {itemJ});
-					// We also keep the tidset of X + J
-					equivalenceClassItidsets.add(bitsetSupportUnion);
-				}
-			}
-			
-			// Process all itemsets from the equivalence class that we are building, which 
-			// has X as prefix, to find larger itemsets.
-			// Note that we only do that if the equivalence class contains at least an itemset.
-			if(equivalenceClassIitemsets.size() > 0) {
-				// call to recursive method
-				processEquivalenceClass(itemsetX, equivalenceClassIitemsets, equivalenceClassItidsets);
+		if(threadCount > 1) {
+			// Process the equivalence classes in parallel
+			processItemsParallel(frequentItems, mapItemTIDS, useTriangularMatrixOptimization);
+		}else {
+			// For each frequent item X according to the total order
+			for(int i=0; i < frequentItems.size(); i++) {
+				processItem(i, frequentItems, mapItemTIDS, useTriangularMatrixOptimization, null, null);
 			}
-			
-			// Save the itemset X  with its support (can be obtained from its tidset.
-			save(null, itemsetX, tidsetX);
 		}
 			
 		// close the output file if the result was saved to a file
@@ -357,6 +258,264 @@ loopJ:		for(int j=i+1; j < frequentItems.size(); j++) {
 	}
 
 
+	/**
+	 * Generate the equivalence class of the itemsets obtained by joining a frequent item X
+	 * with the following frequent items, process it to find larger itemsets, and attempt to
+	 * save X. The items that Charm properties 1 and 3 remove are replaced by null in the list of
+	 * frequent items, so the items must be processed in the order of the list.
+	 * @param i the position of the item X in the list of frequent items
+	 * @param frequentItems the frequent items, sorted by the total order of increasing support
+	 * @param mapItemTIDS the tidset of each item
+	 * @param useTriangularMatrixOptimization if true the triangular matrix optimization is applied.
+	 * @param pool in parallel mode, the pool used to process the equivalence class, otherwise null
+	 * @param tasks in parallel mode, a list where the task processing the equivalence class is added
+	 * @throws IOException if an error occurs when writing to file
+	 */
+	private void processItem(int i, List<Integer> frequentItems, Map<Integer, BitSetSupport> mapItemTIDS,
+			boolean useTriangularMatrixOptimization, ForkJoinPool pool, List<ForkJoinTask<Void>> tasks) throws IOException {
+		Integer itemX = frequentItems.get(i);
+		// If the itemset is null (which means that it has been removed, then there
+		// is nothing to do
+		if(itemX == null) {
+			return;
+		}
+
+		// We obtain the tidset and support of that item X
+		BitSetSupport tidsetX = mapItemTIDS.get(itemX);
+		
+		// We create an itemset with the item X.
+		int[] itemsetX = new int[] {itemX};
+		
+		// We create an empty equivalence class for storing all itemsets obtained by joining
+		// X with other itemsets.
+		// This equivalence class is represented by two structures.
+		// The first structure stores the suffix of all itemsets starting with the prefix "X".
+		// For example, if X = "1" and the equivalence class contains 12, 13, 14, then
+		// the structure "equivalenceClassIitems" will only contain  2, 3 and 4 instead of
+		// 12, 13 and 14.  The reason for this implementation choice is that it is more
+		// memory efficient.
+		/// Moreover, when the charm properties requires to replace X with Xj (see the article),
+		//  it can be done very efficiently if we keep X separately.
+		List<int[]> equivalenceClassIitemsets = new ArrayList<int[]>();
+		// The second structure stores the tidset of each itemset in the equivalence class
+		// of the prefix "i"
+		List<BitSetSupport> equivalenceClassItidsets = new ArrayList<BitSetSupport>();
+		
+		// For each item itemJ that is larger than i according to the total order of
+		// increasing support.
+loopJ:	for(int j=i+1; j < frequentItems.size(); j++) {
+			Integer itemJ = frequentItems.get(j);
+			// If the itemset is null (which means that it has been removed, then we 
+			// continue to the next item
+			if(itemJ == null) {
+				continue;
+			}
+			
+			// If the triangular matrix optimization is activated and X is a single item
+			// we obtain the support of the pair of item "x", "j" by using the matrix. 
+			// This allows to determine
+			// directly the support without performing a join.
+			// Then if the support is less than minsup, the itemset X + j is infrequent
+			// and we don't need to consider it anymore.
+			int supportIJ = -1;
+			if(itemsetX.length == 1 && useTriangularMatrixOptimization) {
+				// check the support of {i,j} according to the triangular matrix
+				supportIJ = matrix.getSupportForItems(itemX, itemJ);
+				// if not frequent
+				if (supportIJ < minsupRelative) {
+					// skip j;
+					continue loopJ;
+				}
+			}
+			
+			// We obtain the tidset of J.
+			BitSetSupport tidsetJ = mapItemTIDS.get(itemJ);
+
+			// Calculate the tidset of itemset "X" + "J" by performing the intersection of 
+			// the tidsets of X and the tidset of J.
+			BitSetSupport bitsetSupportUnion = new BitSetSupport();
+			if(itemsetX.length == 1 && useTriangularMatrixOptimization) {
+				// If the triangular matrix optimization is used and X is a single item, then
+				// we perform the intersection but we do not calculate the support since
+				// it was already calculated using the triangular matrix
+				bitsetSupportUnion = performANDFirstTime(tidsetX, tidsetJ, supportIJ);
+			}else {
+				// Otherwise, we perform the intersection and calculate the support
+				// by calculating the cardinality of the resulting tidset.
+				bitsetSupportUnion = performAND(tidsetX, tidsetJ);
+			}
+			
+			// if the union is infrequent, we don't need to consider it further
+			if(bitsetSupportUnion.support < minsupRelative) {
+				continue;
+			}
+			
+			// We next check which of the four Charm properties hold
+			// If Property 1 holds
+			if(tidsetX.support == tidsetJ.support && 
+				bitsetSupportUnion.support == tidsetX.support) {
+				// We remove Xj 
+				frequentItems.set(j, null);
+				// Then, we calculate the union of X and Xj
+				int[] realUnion = new int[itemsetX.length + 1];
+				System.arraycopy(itemsetX, 0, realUnion, 0, itemsetX.length);
+				realUnion[itemsetX.length] = itemJ;
+				// Then we replace X by the union
+				itemsetX = realUnion;
+			}else if(tidsetX.support < tidsetJ.support
+					&& bitsetSupportUnion.support == tidsetX.support) {
+				// If property 2 holds
+				// Then, we calculate the union of X and Xj
+				int[] realUnion = new int[itemsetX.length + 1];
+				System.arraycopy(itemsetX, 0, realUnion, 0, itemsetX.length);
+				realUnion[itemsetX.length] = itemJ;
+				// Then we replace X by the union
+				itemsetX = realUnion;
+			}else if(tidsetX.support > tidsetJ.support
+					&& bitsetSupportUnion.support == tidsetJ.support) {
+				// If property 3 holds
+				// We remove Xj
+				frequentItems.set(j, null);
+				// Then, we add the itemset X + J to the equivalence class that
+				// we are building.
+				// Note that we actually only add J because we keep the prefix X for
+				// for the whole equivalence class. Thus X + J can be reconstructed at any time.
+				equivalenceClassIitemsets.add(new int[] {itemJ});
+				// We also keep the tidset of X + J
+				equivalenceClassItidsets.add(bitsetSupportUnion);
+			}else {  
+				// If property 4 holds
+				// Then, we add the itemset X + J to the equivalence class that
+				// we are building.
+				// Note that we actually only add J because we keep the prefix X for
+				// for the whole equivalence class. Thus X + J can be reconstructed at any time.
+				equivalenceClassIitemsets.add(new int[] {itemJ});
+				// We also keep the tidset of X + J
+				equivalenceClassItidsets.add(bitsetSupportUnion);
+			}
+		}
+		
+		// Process all itemsets from the equivalence class that we are building, which 
+		// has X as prefix, to find larger itemsets.
+		// Note that we only do that if the equivalence class contains at least an itemset.
+		if(equivalenceClassIitemsets.size() > 0) {
+			if(pool != null) {
+				// In parallel mode, the equivalence class and X are processed by a task
+				tasks.add(submitEquivalenceClass(pool, itemsetX, tidsetX, 
+						equivalenceClassIitemsets, equivalenceClassItidsets));
+				return;
+			}
+			// call to recursive method
+			processEquivalenceClass(itemsetX, equivalenceClassIitemsets, equivalenceClassItidsets);
+		}
+		
+		// Save the itemset X  with its support (can be obtained from its tidset.
+		save(null, itemsetX, tidsetX);
+	}
+
+	/**
+	 * Process the equivalence classes of the frequent items in parallel. The equivalence
+	 * classes are generated by the calling thread and processed by tasks. The closed itemsets
+	 * are saved when all tasks are done.
+	 * @param frequentItems the frequent items, sorted by the total order of increasing support
+	 * @param mapItemTIDS the tidset of each item
+	 * @param useTriangularMatrixOptimization if true the triangular matrix optimization is applied.
+	 * @throws IOException if an error occurs when writing to file
+	 */
+	private void processItemsParallel(List<Integer> frequentItems, Map<Integer, BitSetSupport> mapItemTIDS,
+			boolean useTriangularMatrixOptimization) throws IOException {
+		ForkJoinPool pool = new ForkJoinPool(threadCount);
+		try {
+			// For each frequent item X according to the total order
+			List<ForkJoinTask<Void>> tasks = new ArrayList<ForkJoinTask<Void>>();
+			for(int i=0; i < frequentItems.size(); i++) {
+				processItem(i, frequentItems, mapItemTIDS, useTriangularMatrixOptimization, pool, tasks);
+			}
+			// wait for the tasks
+			for(ForkJoinTask<Void> task : tasks) {
+				try {
+					task.get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted while processing the equivalence classes in parallel", e);
+				} catch (ExecutionException e) {
+					if(e.getCause() instanceof IOException) {
+						throw (IOException) e.getCause();
+					}
+					if(e.getCause() instanceof RuntimeException) {
+						throw (RuntimeException) e.getCause();
+					}
+					if(e.getCause() instanceof Error) {
+						throw (Error) e.getCause();
+					}
+					throw new IOException(e.getCause());
+				}
+			}
+		}finally {
+			pool.shutdownNow();
+		}
+		
+		// save the closed itemsets, which are those in the hash table
+		for(ca.pfv.spmf.patterns.itemset_array_integers_with_count.Itemset itemset : hash.getItemsets()) {
+			itemsetCount++;
+			writeItemset(itemset, ((ItemsetWithTidset) itemset).tidset);
+		}
+		// we check the memory usage
+		MemoryLogger.getInstance().checkMemory();
+	}
+	
+	/**
+	 * Submit a task to process the equivalence class of an itemset X and then attempt to save X
+	 * (in parallel mode).
+	 * @param pool the pool
+	 * @param itemsetX the itemset X
+	 * @param tidsetX the tidset of X
+	 * @param equivalenceClassItemsets the list of last items of itemsets of the equivalence class
+	 * @param equivalenceClassTidsets the list of tidsets of itemsets of the equivalence class
+	 * @return the task
+	 */
+	private ForkJoinTask<Void> submitEquivalenceClass(ForkJoinPool pool, final int[] itemsetX, final BitSetSupport tidsetX,
+			final List<int[]> equivalenceClassItemsets, final List<BitSetSupport> equivalenceClassTidsets) {
+		return pool.submit(() -> {
+			processEquivalenceClassTask(itemsetX, equivalenceClassItemsets, equivalenceClassTidsets);
+			save(null, itemsetX, tidsetX);
+			return null;
+		});
+	}
+	
+	/**
+	 * Start a new task to process an equivalence class (in parallel mode).
+	 * @param prefix the prefix of all itemsets of the equivalence class
+	 * @param equivalenceClassItemsets the list of last items of itemsets of the equivalence class
+	 * @param equivalenceClassTidsets the list of tidsets of itemsets of the equivalence class
+	 * @return the task
+	 */
+	private ForkJoinTask<Void> forkEquivalenceClass(final int[] prefix, final List<int[]> equivalenceClassItemsets,
+			final List<BitSetSupport> equivalenceClassTidsets) {
+		return ForkJoinTask.adapt(() -> {
+			processEquivalenceClassTask(prefix, equivalenceClassItemsets, equivalenceClassTidsets);
+			return (Void) null;
+		}).fork();
+	}
+	
+	/**
+	 * Process an equivalence class in a task and wait for the tasks that it starts.
+	 * @param prefix the prefix of all itemsets of the equivalence class
+	 * @param equivalenceClassItemsets the list of last items of itemsets of the equivalence class
+	 * @param equivalenceClassTidsets the list of tidsets of itemsets of the equivalence class
+	 * @throws IOException if an error occurs when writing to file
+	 */
+	private void processEquivalenceClassTask(int[] prefix, List<int[]> equivalenceClassItemsets,
+			List<BitSetSupport> equivalenceClassTidsets) throws IOException {
+		List<ForkJoinTask<Void>> forkedTasks = new ArrayList<ForkJoinTask<Void>>();
+		processEquivalenceClass(prefix, equivalenceClassItemsets, equivalenceClassTidsets, forkedTasks);
+		// wait for the tasks, starting with the last one which is the most likely 
+		// to not have been stolen by another thread
+		for(int i = forkedTasks.size() - 1; i >= 0; i--) {
+			forkedTasks.get(i).join();
+		}
+	}
+
 	int calculateSupportSingleItems(TransactionDatabase database,
 			final Map<Integer, BitSetSupport> mapItemTIDS) {
 		int maxItemId = 0;
@@ -378,11 +537,15 @@ loopJ:		for(int j=i+1; j < frequentItems.size(); j++) {
 					}
 				}
 				// we add the current transaction id to the tidset of the item
-				tids.bitset.set(i);
+				tids.bitset.add(i);
 				// we increase the support of that item
 				tids.support++;
 			}
 		}
+		// the tidsets are complete, so they can be compressed
+		for(BitSetSupport tids : mapItemTIDS.values()) {
+			tids.bitset.optimize();
+		}
 		return maxItemId;
 	}
 
@@ -398,8 +561,7 @@ loopJ:		for(int j=i+1; j < frequentItems.size(); j++) {
 			BitSetSupport tidsetJ, int supportIJ) {
 		// Create the new tidset and perform the logical AND to intersect the tidset
 		BitSetSupport bitsetSupportIJ = new BitSetSupport();
-		bitsetSupportIJ.bitset = (BitSet)tidsetI.bitset.clone();
-		bitsetSupportIJ.bitset.and(tidsetJ.bitset);
+		bitsetSupportIJ.bitset = tidsetI.bitset.and(tidsetJ.bitset);
 		// set the support as the support provided as parameter
 		bitsetSupportIJ.support = supportIJ;
 		// return the new tidset
@@ -415,8 +577,7 @@ loopJ:		for(int j=i+1; j < frequentItems.size(); j++) {
 	BitSetSupport performAND(BitSetSupport tidsetI,	BitSetSupport tidsetJ) {
 		// Create the new tidset and perform the logical AND to intersect the tidset
 		BitSetSupport bitsetSupportIJ = new BitSetSupport();
-		bitsetSupportIJ.bitset = (BitSet)tidsetI.bitset.clone();
-		bitsetSupportIJ.bitset.and(tidsetJ.bitset);
+		bitsetSupportIJ.bitset = tidsetI.bitset.and(tidsetJ.bitset);
 		// set the support as the cardinality of the new tidset
 		bitsetSupportIJ.support = bitsetSupportIJ.bitset.cardinality();
 		// return the new tidset
@@ -432,6 +593,20 @@ loopJ:		for(int j=i+1; j < frequentItems.size(); j++) {
 	 */
 	void processEquivalenceClass(int[] prefix, List<int[]> equivalenceClassItemsets,
 			List<BitSetSupport> equivalenceClassTidsets) throws IOException {
+		processEquivalenceClass(prefix, equivalenceClassItemsets, equivalenceClassTidsets, null);
+	}
+	
+	/**
+	 * This method process all itemsets from an equivalence class to generate larger itemsets,
+	 * @param prefix  the prefix of all itemsets of the current equivalence class
+	 * @param equivalenceClassItemsets  the list of last items of itemsets of the current equivalence class
+	 * @param equivalenceClassTidsets the list of tidsets of itemsets of the current equivalence class
+	 * @param forkedTasks in parallel mode, a list where the tasks started to process the large
+	 *    equivalence classes are added, otherwise null
+	 * @throws IOException 
+	 */
+	private void processEquivalenceClass(int[] prefix, List<int[]> equivalenceClassItemsets,
+			List<BitSetSupport> equivalenceClassTidsets, List<ForkJoinTask<Void>> forkedTasks) throws IOException {
 		
 		// If there is only on itemset in equivalence class
 		if(equivalenceClassItemsets.size() == 1) {
@@ -567,7 +742,12 @@ loopJ:		for(int j=i+1; j < frequentItems.size(); j++) {
 			// Note that we only do that if the equivalence class contains at least an itemset
 			if(equivalenceClassIitemsets.size()>0) {
 				int[] newPrefix = ArraysAlgos.concatenate(prefix, itemsetX);
-				processEquivalenceClass(newPrefix, equivalenceClassIitemsets, equivalenceClassItidsets);
+				if(forkedTasks != null && equivalenceClassIitemsets.size() >= MIN_TASK_CLASS_SIZE) {
+					// In parallel mode, a large equivalence class is processed by a new task
+					forkedTasks.add(forkEquivalenceClass(newPrefix, equivalenceClassIitemsets, equivalenceClassItidsets));
+				}else {
+					processEquivalenceClass(newPrefix, equivalenceClassIitemsets, equivalenceClassItidsets, forkedTasks);
+				}
 			}
 			// Finally, we attempt to save the itemset prefix+X since it may be a closed itemset.
 			save(prefix, itemsetX, tidsetX);
@@ -585,6 +765,38 @@ loopJ:		for(int j=i+1; j < frequentItems.size(); j++) {
 	public void setShowTransactionIdentifiers(boolean showTransactionIdentifiers) {
 		this.showTransactionIdentifiers = showTransactionIdentifiers;
 	}
+	
+	/**
+	 * Set that tidsets should be stored as compressed bitmaps (true) or as BitSets (false, by default).
+	 * Compressed bitmaps use less memory and are generally faster to intersect when tidsets
+	 * are sparse, i.e. when the database is large and the minimum support is low.
+	 * @param useCompressedTidsets true or false
+	 * @see CompressedTidset
+	 */
+	public void setUseCompressedTidsets(boolean useCompressedTidsets) {
+		this.useCompressedTidsets = useCompressedTidsets;
+	}
+	
+	/**
+	 * Set the number of threads used to process the equivalence classes.
+	 * The closed itemsets are the same as with a single thread (the default), but
+	 * they are not saved in the same order.
+	 * @param threadCount the number of threads (at least 1)
+	 */
+	public void setThreadCount(int threadCount) {
+		if(threadCount < 1) {
+			throw new IllegalArgumentException("The number of threads must be at least 1");
+		}
+		this.threadCount = threadCount;
+	}
+	
+	/**
+	 * Create an empty tidset using the representation chosen by the user.
+	 * @return the tidset
+	 */
+	Tidset newTidset() {
+		return useCompressedTidsets ? new CompressedTidset() : new BitSetTidset();
+	}
 
 	/**
 	 * Print statistics about the algorithm execution to System.out.
@@ -612,12 +824,12 @@ loopJ:		for(int j=i+1; j < frequentItems.size(); j++) {
 	}
 	
 	/**
-	 * Anonymous inner class to store a bitset and its cardinality.
+	 * Anonymous inner class to store a tidset and its cardinality.
 	 * Storing the cardinality is useful because the cardinality() method
 	 * of a bitset in Java is very expensive.
 	 */
 	public class BitSetSupport{
-		BitSet bitset = new BitSet();
+		Tidset bitset = newTidset();
 		int support;
 	}
 	
@@ -639,12 +851,22 @@ loopJ:		for(int j=i+1; j < frequentItems.size(); j++) {
 		// Sort the resulting itemset
 		Arrays.sort(prefixSuffix);
 		
+		// Calculate the hash code of that itemset 
+		int hashcode = hash.hashCode(tidset.bitset);
+		
+		// In parallel mode, the itemset is only added to the hash table, which removes 
+		// the itemsets that it subsumes. The tidset is kept if it is needed to save the itemset.
+		if(threadCount > 1) {
+			boolean keepTidset = writer == null || showTransactionIdentifiers;
+			ItemsetWithTidset itemset = new ItemsetWithTidset(prefixSuffix, keepTidset ? tidset.bitset : null);
+			itemset.setAbsoluteSupport(tidset.support);
+			hash.putIfNoSuperset(itemset, hashcode);
+			return;
+		}
+		
 		// Create an instance of "Itemset" for that itemset to put in hash table
 		ca.pfv.spmf.patterns.itemset_array_integers_with_count.Itemset itemset = new ca.pfv.spmf.patterns.itemset_array_integers_with_count.Itemset(prefixSuffix);
 		itemset.setAbsoluteSupport(tidset.support);
-
-		// Calculate the hash code of that itemset 
-		int hashcode = hash.hashCode(tidset.bitset);
 		
 		// Check in the hash table to see if the itemset has 
 		// a superset already in the hash table. If not, then it is
@@ -653,27 +875,64 @@ loopJ:		for(int j=i+1; j < frequentItems.size(); j++) {
 		if (!hash.containsSupersetOf(itemset, hashcode)) {
 			// increase the itemset count
 			itemsetCount++;
-			// if the result should be saved to memory
-			if (writer == null) {
-				// save it to memory with its tidset
-				Itemset itemsetWithTidset = new Itemset(prefixSuffix, tidset.bitset, tidset.support);
-				closedItemsets.addItemset(itemsetWithTidset, itemset.size());
-			} else {
-				// otherwise if the result should be saved to a file,
-				// then write it to the output file
-				writer.write(itemset.toString() + " #SUP: " + itemset.support);
-				if(showTransactionIdentifiers) {
-					BitSet bitset = tidset.bitset;
-		        	writer.append(" #TID:");
-		        	for (int tid = bitset.nextSetBit(0); tid != -1; tid = bitset.nextSetBit(tid + 1)) {
-		        		writer.append(" " + tid); 
-		        	}
-				}
-				writer.newLine();
-			}
+			// save the itemset
+			writeItemset(itemset, tidset.bitset);
 			// add the itemset to the hashtable
 			hash.put(itemset, hashcode);
 		}
 	}
+	
+	/**
+	 * Write a closed itemset to the output file or keep it into memory.
+	 * @param itemset the itemset, with its support
+	 * @param tidset the tidset of this itemset
+	 * @throws IOException if an error occurs when writing to file
+	 */
+	void writeItemset(ca.pfv.spmf.patterns.itemset_array_integers_with_count.Itemset itemset, Tidset tidset) throws IOException {
+		// if the result should be saved to memory
+		if (writer == null) {
+			// save it to memory with its tidset
+			Itemset itemsetWithTidset = new Itemset(itemset.getItems(), getTidsetToKeep(tidset), itemset.getAbsoluteSupport());
+			closedItemsets.addItemset(itemsetWithTidset, itemset.size());
+		} else {
+			// otherwise if the result should be saved to a file,
+			// then write it to the output file
+			writer.write(itemset.toString() + " #SUP: " + itemset.support);
+			if(showTransactionIdentifiers) {
+	        	writer.append(" #TID:");
+	        	for (int tid = tidset.nextSetBit(0); tid != -1; tid = tidset.nextSetBit(tid + 1)) {
+	        		writer.append(" " + tid); 
+	        	}
+			}
+			writer.newLine();
+		}
+	}
+	
+	/**
+	 * Get the tidset to keep with a closed itemset when the result is saved into memory.
+	 * @param tidset the tidset of the itemset
+	 * @return the tidset as a BitSet
+	 */
+	BitSet getTidsetToKeep(Tidset tidset) {
+		return tidset.toBitSet();
+	}
+	
+	/**
+	 * An itemset and its tidset, as stored in the hash table in parallel mode.
+	 */
+	static class ItemsetWithTidset extends ca.pfv.spmf.patterns.itemset_array_integers_with_count.Itemset {
+		/** the tidset of the itemset or null if it is not needed */
+		final Tidset tidset;
+		
+		/**
+		 * Constructor
+		 * @param items the items of the itemset
+		 * @param tidset the tidset of the itemset or null if it is not needed
+		 */
+		ItemsetWithTidset(int[] items, Tidset tidset) {
+			super(items);
+			this.tidset = tidset;
+		}
+	}
 
 }
@@ -16,12 +16,10 @@ package ca.pfv.spmf.algorithms.frequentpatterns.charm;
 * SPMF. If not, see <http://www.gnu.org/licenses/>.
 */
 
-import java.io.IOException;
-import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Map;
 
-import ca.pfv.spmf.algorithms.ArraysAlgos;
+import ca.pfv.spmf.datastructures.tidset.Tidset;
 import ca.pfv.spmf.datastructures.triangularmatrix.TriangularMatrix;
 import ca.pfv.spmf.input.transaction_database_list_integers.TransactionDatabase;
 import ca.pfv.spmf.patterns.itemset_array_integers_with_tids_bitset.Itemset;
@@ -31,7 +29,8 @@ import ca.pfv.spmf.tools.MemoryLogger;
 /**
  * This is an implementation of the dCharm algorithm. The difference between DECLAT
  * and CHARM is that dCharm utilizes diffsets instead of tidsets.
- * In this implementation, diffsets are represented as bitsets.
+ * In this implementation, diffsets are represented as bitsets, or as compressed bitmaps
+ * if setUseCompressedTidsets(true) is called.
  * Note that this class is a subclass of the Charm algorithm because a lot of
  * code is the same and we wanted to avoid redundancy. 
  * 
@@ -86,35 +85,19 @@ public class AlgoDCharm_Bitset extends AlgoCharm_Bitset{
 	int calculateSupportSingleItems(TransactionDatabase database,
 			final Map<Integer, BitSetSupport> mapItemTIDS) {
 		
-		// (1) First database pass : calculate diffsets of each item.
-		int maxItemId = 0;
-		// for each transaction
-		for (int i = 0; i < database.size(); i++) {
-			// Add the transaction id to the set of all transaction ids
-			// for each item in that transaction
-			
-			// For each item
-			for (Integer item : database.getTransactions().get(i)) {
-				// Get the current tidset of that item
-				BitSetSupport tids = mapItemTIDS.get(item);
-				// If none, then we create one
-				if(tids == null){
-					tids = new BitSetSupport();
-					// For a new item, we sets all the bits of its diffset to true
-					tids.bitset.set(0, database.size(), true);
-					mapItemTIDS.put(item, tids);
-					// we remember the largest item seen until now
-					if (item > maxItemId) {
-						maxItemId = item;
-					}
-				}
-				//We set to false the bit corresponding to this transaction
-				// in the diffset of that item
-				tids.bitset.set(i, false);
-				// we increase the support of that item
-				tids.support++;
-			}
-		}	
+		// (1) First database pass : calculate the tidset of each item.
+		int maxItemId = super.calculateSupportSingleItems(database, mapItemTIDS);
+		
+		// The set of all transaction identifiers
+		Tidset allTransactions = newTidset();
+		allTransactions.addRange(0, database.size());
+		
+		// Then, replace the tidset of each item by its diffset, which contains
+		// the transactions that do not contain the item
+		for(BitSetSupport tids : mapItemTIDS.values()) {
+			tids.bitset = allTransactions.andNot(tids.bitset);
+			tids.bitset.optimize();
+		}
 		return maxItemId;
 	}
 
@@ -129,8 +112,7 @@ public class AlgoDCharm_Bitset extends AlgoCharm_Bitset{
 		// Create the new diffset 
 		BitSetSupport bitsetSupportIJ = new BitSetSupport();
 		// Calculate the diffset 
-		bitsetSupportIJ.bitset = (BitSet)tidsetJ.bitset.clone();
-		bitsetSupportIJ.bitset.andNot(tidsetI.bitset);
+		bitsetSupportIJ.bitset = tidsetJ.bitset.andNot(tidsetI.bitset);
 		// Calculate the support
 		bitsetSupportIJ.support = tidsetI.support - bitsetSupportIJ.bitset.cardinality();
 		// return the new diffset
@@ -150,8 +132,7 @@ public class AlgoDCharm_Bitset extends AlgoCharm_Bitset{
 		// Create the new diffset and perform the logical AND to intersect the diffsets
 		BitSetSupport bitsetSupportIJ = new BitSetSupport();
 		//Calculate the diffset
-		bitsetSupportIJ.bitset = (BitSet)tidsetJ.bitset.clone();
-		bitsetSupportIJ.bitset.andNot(tidsetI.bitset);
+		bitsetSupportIJ.bitset = tidsetJ.bitset.andNot(tidsetI.bitset);
 		// Calculate the support
 		bitsetSupportIJ.support = tidsetI.support - bitsetSupportIJ.bitset.cardinality();
 		// return the new tidset
@@ -159,60 +140,14 @@ public class AlgoDCharm_Bitset extends AlgoCharm_Bitset{
 	}
 
 	/**
-	 * Save an itemset(as described in the paper).
-	 * @param prefix the prefix part of this itemset
-	 * @param suffix the suffix part of this itemset
-	 * @param tidset the tidset of this itemset
-	 * @throws IOException if an error occurs when writing to file
+	 * Get the tidset to keep with a closed itemset when the result is saved into memory.
+	 * @param tidset the diffset of the itemset
+	 * @return null
 	 */
-	void save(int[] prefix, int[] suffix, BitSetSupport tidset) throws IOException {
-		// First we concatenate the suffix and prefix of that itemset.
-		int[] prefixSuffix;
-		if(prefix == null) {
-			prefixSuffix = suffix;
-		}else {
-			prefixSuffix = ArraysAlgos.concatenate(prefix, suffix);
-		}
-		// Sort the resulting itemset
-		Arrays.sort(prefixSuffix);
-		
-		// Create an instance of "Itemset" for that itemset to put in hash table
-		ca.pfv.spmf.patterns.itemset_array_integers_with_count.Itemset itemset = new ca.pfv.spmf.patterns.itemset_array_integers_with_count.Itemset(prefixSuffix);
-		itemset.setAbsoluteSupport(tidset.support);
-
-		// Calculate the hash code of that itemset 
-		int hashcode = hash.hashCode(tidset.bitset);
-		
-		// Check in the hash table to see if the itemset has 
-		// a superset already in the hash table. If not, then it is
-		// a closed itemset and we should output it as well
-		// as insert it in the hash table.
-		if (!hash.containsSupersetOf(itemset, hashcode)) {
-			// increase the itemset count
-			itemsetCount++;
-			// if the result should be saved to memory
-			if (writer == null) { 
-				// save it to memory with its tidset
-				Itemset itemsetWithTidset = new Itemset(prefixSuffix, null, tidset.support);
-				//  ^^  NOTE: IN THE LINE ABOVE WE SET THE "TIDSET" TO NULL FOR DCHARM BECAUSE
-				// IT IS NOT MEANINGFUL TO KEEP THE DIFFSET.
-				closedItemsets.addItemset(itemsetWithTidset, itemset.size()); 
-			} else {
-				// otherwise if the result should be saved to a file,
-				// then write it to the output file
-				writer.write(itemset.toString() + " #SUP: " + itemset.support);
-				if(showTransactionIdentifiers) {
-					BitSet bitset = tidset.bitset;
-		        	writer.append(" #TID:");
-		        	for (int tid = bitset.nextSetBit(0); tid != -1; tid = bitset.nextSetBit(tid + 1)) {
-		        		writer.append(" " + tid); 
-		        	}
-				}
-				writer.newLine();
-			}
-			// add the itemset to the hashtable
-			hash.put(itemset, hashcode);
-		}
+	BitSet getTidsetToKeep(Tidset tidset) {
+		// NOTE: WE SET THE "TIDSET" TO NULL FOR DCHARM BECAUSE
+		// IT IS NOT MEANINGFUL TO KEEP THE DIFFSET.
+		return null;
 	}
 
 }
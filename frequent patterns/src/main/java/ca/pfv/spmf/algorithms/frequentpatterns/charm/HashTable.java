@@ -18,9 +18,11 @@ package ca.pfv.spmf.algorithms.frequentpatterns.charm;
 
 import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
+import ca.pfv.spmf.datastructures.tidset.Tidset;
 import ca.pfv.spmf.datastructures.triangularmatrix.TriangularMatrix;
 import ca.pfv.spmf.input.transaction_database_list_integers.TransactionDatabase;
 import ca.pfv.spmf.patterns.itemset_array_integers_with_count.Itemset;
@@ -29,6 +31,11 @@ import ca.pfv.spmf.patterns.itemset_array_integers_with_count.Itemsets;
 /**
  * This class represents an HashTable for storing itemsets found by the Charm
  * algorithm to perform the closeness check.
+ * <br/><br/>
+ * 
+ * The methods containsSupersetOf() and put() must be called by a single thread. The method
+ * putIfNoSuperset() can be called by several threads at the same time (it is used by the
+ * parallel mode of Charm).
  * 
  * @see AlgoCharm_Bitset
  * @see TriangularMatrix
@@ -41,6 +48,10 @@ class HashTable {
 
 	// the internal array for the hash table
 	private List<Itemset>[] table;
+	
+	// the locks used by putIfNoSuperset(), each lock is used for the positions
+	// of the internal array that are equal modulo the number of locks
+	private final Object[] locks;
 
 	/**
 	 * Construtor.
@@ -48,6 +59,10 @@ class HashTable {
 	 */
 	public HashTable(int size) {
 		table = new ArrayList[size];
+		locks = new Object[Math.min(size, 256)];
+		for (int i = 0; i < locks.length; i++) {
+			locks[i] = new Object();
+		}
 	}
 
 	/**
@@ -94,6 +109,62 @@ class HashTable {
 		table[hashcode].add(itemset);
 	}
 
+	/**
+	 * Add an itemset to the hash table if the hash table does not contain a superset of
+	 * that itemset having the same support, and then remove the subsets of that itemset having
+	 * the same support from the hash table. Thus, the hash table only contains closed itemsets
+	 * whatever the order in which the itemsets are added, if the hashcode of an itemset only
+	 * depends on its tidset.
+	 * This method can be called by several threads at the same time.
+	 * @param itemset the itemset to be added to the hashtable
+	 * @param hashcode the hashcode of the itemset (need to be calculated before by using the
+	 *  provided hashcode() method.
+	 * @return true if the itemset was added, otherwise false.
+	 */
+	public boolean putIfNoSuperset(Itemset itemset, int hashcode) {
+		// the itemsets that could be a superset or a subset of the itemset have the same
+		// hashcode, so they are all checked and updated while holding the same lock
+		synchronized (locks[hashcode % locks.length]) {
+			List<Itemset> itemsets = table[hashcode];
+			if (itemsets == null) {
+				itemsets = new ArrayList<Itemset>();
+				table[hashcode] = itemsets;
+			}
+			// if there is a superset having the same support, the itemset is not added
+			for (Itemset itemsetX : itemsets) {
+				if (itemsetX.getAbsoluteSupport() == itemset.getAbsoluteSupport()
+						&& itemsetX.containsAll(itemset)) {
+					return false;
+				}
+			}
+			// remove the subsets having the same support
+			Iterator<Itemset> iterator = itemsets.iterator();
+			while (iterator.hasNext()) {
+				Itemset itemsetX = iterator.next();
+				if (itemsetX.getAbsoluteSupport() == itemset.getAbsoluteSupport()
+						&& itemset.containsAll(itemsetX)) {
+					iterator.remove();
+				}
+			}
+			itemsets.add(itemset);
+			return true;
+		}
+	}
+	
+	/**
+	 * Get all the itemsets in the hash table.
+	 * @return a list of itemsets
+	 */
+	public List<Itemset> getItemsets() {
+		List<Itemset> itemsets = new ArrayList<Itemset>();
+		for (List<Itemset> list : table) {
+			if (list != null) {
+				itemsets.addAll(list);
+			}
+		}
+		return itemsets;
+	}
+
 	/**
 	 * Calculate the hashcode of an itemset as the sum of the tids of its tidset,
 	 * modulo the internal array length.
@@ -117,6 +188,29 @@ class HashTable {
 		return (hashcode % table.length);
 	}
 	
+	/**
+	 * Calculate the hashcode of an itemset as the sum of the tids of its tidset,
+	 * modulo the internal array length.
+	 * @param tidset the tidset of the itemset
+	 * @return the hashcode (an integer)
+	 */
+	public int hashCode(Tidset tidset) {
+		int hashcode = 0;
+		// for each tid in the tidset
+		for (int tid = tidset.nextSetBit(0); tid >= 0; tid = tidset.nextSetBit(tid+1)) {
+			// make the sum
+			hashcode += tid;
+		}
+		// If an integer overflow occurs and the hashcode is negative,
+		// then we make it positive.
+		if(hashcode < 0){
+			hashcode = 0 - hashcode;
+		}
+		// Finally the hashcode is obtained by performing the modulo 
+		// operation using the size of the internal array.
+		return (hashcode % table.length);
+	}
+	
 	/**
 	 * Calculate the hashcode of an itemset as the sum of the tids of its tidset,
 	 * modulo the internal array length.
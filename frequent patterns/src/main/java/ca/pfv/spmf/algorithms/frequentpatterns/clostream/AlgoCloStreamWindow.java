@@ -0,0 +1,669 @@
+package ca.pfv.spmf.algorithms.frequentpatterns.clostream;
+/* This file is part of the SPMF DATA MINING SOFTWARE
+* (http://www.philippe-fournier-viger.com/spmf).
+*
+* SPMF is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+*
+* SPMF is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* SPMF. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import ca.pfv.spmf.patterns.itemset_array_integers_with_count.Itemset;
+import ca.pfv.spmf.tools.MemoryLogger;
+
+/**
+ * This is a version of the CloStream algorithm that maintains the closed itemsets of a sliding
+ * window containing the last transactions of a stream (the window size is given by the user).
+ * <br/><br/>
+ *
+ * When a transaction t is added, the closed itemsets are updated as in CloStream (S.J Yen et al., 2009):
+ * for each closed itemset C having an item of t, the intersection of C and t is a closed itemset,
+ * whose support is the highest support of the closed itemsets C giving that intersection, plus one.
+ * When the window is full, the oldest transaction t leaves the window before a new transaction is added.
+ * The support of each closed itemset C contained in t is then decreased by one, and C is
+ * not closed anymore if there is a closed itemset X not contained in t such that the intersection
+ * of X and t is C, and the support of X is equal to the new support of C (X is then the closure of C).
+ * <br/><br/>
+ *
+ * The closed itemsets and the lists of closed itemsets of each item are stored in arrays of ints,
+ * and the intersections are grouped with a hash table of arrays of ints that is reused for each
+ * transaction. The memory used thus depends on the transactions of the window and not on the
+ * number of transactions of the stream.
+ *
+ * @see AlgoCloSteam
+ * @see Itemset
+ */
+public class AlgoCloStreamWindow {
+
+	/** the value of a cid indicating that there is no closed itemset (the empty set, with a support of 0) */
+	private static final int NO_CID = -1;
+
+	/** the maximum number of transactions in the window */
+	private final int windowSize;
+
+	/** the transactions of the window (a circular buffer), each one is sorted by increasing order of items */
+	private final int[][] window;
+	/** the position of the oldest transaction in the window */
+	private int windowStart = 0;
+	/** the number of transactions in the window */
+	private int windowCount = 0;
+
+	/** the items of each closed itemset (by cid), or null if the cid is not used */
+	private int[][] closedItemsets = new int[64][];
+	/** the support of each closed itemset (by cid) */
+	private int[] closedSupports = new int[64];
+	/** the number of cids that have been used (the cids of removed itemsets are reused) */
+	private int cidCount = 0;
+	/** the cids that are not used anymore */
+	private int[] freeCids = new int[64];
+	/** the number of cids that are not used anymore */
+	private int freeCidCount = 0;
+	/** the number of closed itemsets */
+	private int closedCount = 0;
+
+	/** the index of each item that has appeared in the stream (the cid lists are stored by index) */
+	private final ItemIndex itemIndex = new ItemIndex();
+	/** the cids of the closed itemsets containing each item (by index of item) */
+	private int[][] cidLists = new int[64][];
+	/** the number of cids in the list of each item (by index of item) */
+	private int[] cidListSizes = new int[64];
+
+	/** the closed itemsets having an item of the current transaction (without duplicates) */
+	private int[] candidates = new int[64];
+	/** the number of candidates */
+	private int candidateCount;
+	/** the last transaction for which each cid has been added to the candidates */
+	private int[] candidateStamps = new int[64];
+	/** the current value of the stamp */
+	private int stamp = 0;
+
+	/** the table associating each intersection with the cid having the highest support */
+	private final IntersectionTable intersections = new IntersectionTable();
+	/** buffer for storing an intersection */
+	private int[] intersectionBuffer = new int[64];
+
+	// for statistics
+	/** the number of transactions processed */
+	private long transactionCount = 0;
+	/** the time spent processing the transactions (in nanoseconds) */
+	private long processingTime = 0;
+
+	/**
+	 * Constructor
+	 * @param windowSize the number of transactions of the sliding window (at least 1)
+	 */
+	public AlgoCloStreamWindow(int windowSize) {
+		if(windowSize < 1) {
+			throw new IllegalArgumentException("The window size must be at least 1");
+		}
+		this.windowSize = windowSize;
+		this.window = new int[windowSize][];
+		MemoryLogger.getInstance().reset();
+	}
+
+	/**
+	 * This method process a new transaction from a stream to update
+	 * the set of closed itemsets of the window.
+	 * @param transaction a transaction (Itemset)
+	 */
+	public void processNewTransaction(Itemset transaction){
+		processNewTransaction(transaction.getItems());
+	}
+
+	/**
+	 * This method process a new transaction from a stream to update
+	 * the set of closed itemsets of the window. If the window is full, the oldest
+	 * transaction leaves the window.
+	 * @param items the items of the transaction (the array is not modified)
+	 */
+	public void processNewTransaction(int[] items){
+		long startTime = System.nanoTime();
+
+		// sort the items and remove the duplicates
+		int[] transaction = items.clone();
+		Arrays.sort(transaction);
+		int length = 0;
+		for(int i = 0; i < transaction.length; i++) {
+			if(length == 0 || transaction[length - 1] != transaction[i]) {
+				transaction[length++] = transaction[i];
+			}
+		}
+		if(length < transaction.length) {
+			transaction = Arrays.copyOf(transaction, length);
+		}
+
+		// if the window is full, remove the oldest transaction
+		if(windowCount == windowSize) {
+			removeTransaction(window[windowStart]);
+			window[windowStart] = null;
+			windowStart = (windowStart + 1) % windowSize;
+			windowCount--;
+		}
+		// add the new transaction
+		addTransaction(transaction);
+		window[(windowStart + windowCount) % windowSize] = transaction;
+		windowCount++;
+
+		transactionCount++;
+		processingTime += System.nanoTime() - startTime;
+		// check the memory usage (not for each transaction, because it is slow)
+		if(transactionCount % 1000 == 0) {
+			MemoryLogger.getInstance().checkMemory();
+		}
+	}
+
+	/**
+	 * Update the closed itemsets for a transaction that enters the window (as in CloStream).
+	 * @param transaction the transaction (sorted, without duplicates)
+	 */
+	private void addTransaction(int[] transaction) {
+		if(transaction.length == 0) {
+			return;
+		}
+		// the transaction is itself a closed itemset, with a support of 1 if it did not appear before
+		intersections.clear();
+		intersections.put(transaction, transaction.length, NO_CID);
+
+		// for each closed itemset C having an item of the transaction, calculate the intersection
+		// of C and the transaction, and keep the cid having the highest support for each intersection
+		findCandidates(transaction);
+		for(int i = 0; i < candidateCount; i++) {
+			int cid = candidates[i];
+			int length = intersect(closedItemsets[cid], transaction);
+			int entry = intersections.find(intersectionBuffer, length);
+			if(entry == -1) {
+				intersections.put(intersectionBuffer, length, cid);
+			}else if(getSupport(cid) > getSupport(intersections.getCid(entry))) {
+				intersections.setCid(entry, cid);
+			}
+		}
+
+		// update the closed itemsets
+		int entryCount = intersections.size();
+		for(int entry = 0; entry < entryCount; entry++) {
+			int[] itemset = intersections.getItemset(entry);
+			int cid = intersections.getCid(entry);
+			// if the intersection is the closed itemset, its support is increased
+			if(cid != NO_CID && closedItemsets[cid].length == itemset.length) {
+				closedSupports[cid]++;
+			}else {
+				// otherwise, the intersection is a new closed itemset
+				addClosedItemset(itemset, getSupport(cid) + 1);
+			}
+		}
+	}
+
+	/**
+	 * Update the closed itemsets for a transaction that leaves the window.
+	 * @param transaction the transaction (sorted, without duplicates)
+	 */
+	private void removeTransaction(int[] transaction) {
+		if(transaction.length == 0) {
+			return;
+		}
+		// for each closed itemset X having an item of the transaction but not contained in the transaction,
+		// keep the cid having the highest support for each intersection of X and the transaction
+		intersections.clear();
+		findCandidates(transaction);
+		int containedCount = 0;
+		for(int i = 0; i < candidateCount; i++) {
+			int cid = candidates[i];
+			int length = intersect(closedItemsets[cid], transaction);
+			if(length == closedItemsets[cid].length) {
+				// the closed itemsets contained in the transaction are kept at the beginning of the candidates
+				candidates[i] = candidates[containedCount];
+				candidates[containedCount++] = cid;
+				continue;
+			}
+			int entry = intersections.find(intersectionBuffer, length);
+			if(entry == -1) {
+				intersections.put(intersectionBuffer, length, cid);
+			}else if(closedSupports[cid] > closedSupports[intersections.getCid(entry)]) {
+				intersections.setCid(entry, cid);
+			}
+		}
+
+		// decrease the support of the closed itemsets contained in the transaction,
+		// and remove those that are not closed anymore
+		boolean removed = false;
+		for(int i = 0; i < containedCount; i++) {
+			int cid = candidates[i];
+			int[] itemset = closedItemsets[cid];
+			int support = --closedSupports[cid];
+			int entry = intersections.find(itemset, itemset.length);
+			if(support == 0 || (entry != -1 && closedSupports[intersections.getCid(entry)] == support)) {
+				closedItemsets[cid] = null;
+				if(freeCidCount == freeCids.length) {
+					freeCids = Arrays.copyOf(freeCids, freeCidCount * 2);
+				}
+				freeCids[freeCidCount++] = cid;
+				closedCount--;
+				removed = true;
+			}
+		}
+
+		// remove the cids of the removed itemsets from the cid lists (their items are all in the transaction)
+		if(removed) {
+			for(int item : transaction) {
+				int index = itemIndex.get(item);
+				int[] cidList = cidLists[index];
+				int size = 0;
+				for(int i = 0; i < cidListSizes[index]; i++) {
+					if(closedItemsets[cidList[i]] != null) {
+						cidList[size++] = cidList[i];
+					}
+				}
+				cidListSizes[index] = size;
+			}
+		}
+	}
+
+	/**
+	 * Find the closed itemsets having an item of a transaction, by merging the cid lists of its items.
+	 * @param transaction the transaction
+	 */
+	private void findCandidates(int[] transaction) {
+		stamp++;
+		candidateCount = 0;
+		for(int item : transaction) {
+			int index = itemIndex.get(item);
+			if(index == -1) {
+				continue;
+			}
+			int[] cidList = cidLists[index];
+			for(int i = 0; i < cidListSizes[index]; i++) {
+				int cid = cidList[i];
+				if(candidateStamps[cid] != stamp) {
+					candidateStamps[cid] = stamp;
+					if(candidateCount == candidates.length) {
+						candidates = Arrays.copyOf(candidates, candidateCount * 2);
+					}
+					candidates[candidateCount++] = cid;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Calculate the intersection of a closed itemset and a transaction in the intersection buffer
+	 * @param itemset the closed itemset (sorted)
+	 * @param transaction the transaction (sorted)
+	 * @return the number of items of the intersection
+	 */
+	private int intersect(int[] itemset, int[] transaction) {
+		if(intersectionBuffer.length < itemset.length) {
+			intersectionBuffer = new int[Math.max(itemset.length, intersectionBuffer.length * 2)];
+		}
+		int length = 0;
+		int i = 0;
+		int j = 0;
+		while(i < itemset.length && j < transaction.length) {
+			if(itemset[i] < transaction[j]) {
+				i++;
+			}else if(itemset[i] > transaction[j]) {
+				j++;
+			}else {
+				intersectionBuffer[length++] = itemset[i];
+				i++;
+				j++;
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Get the support of a closed itemset
+	 * @param cid the cid of the closed itemset, or NO_CID for the empty set
+	 * @return the support
+	 */
+	private int getSupport(int cid) {
+		return (cid == NO_CID) ? 0 : closedSupports[cid];
+	}
+
+	/**
+	 * Add a new closed itemset and add its cid to the cid lists of its items
+	 * @param itemset the items (this array is kept)
+	 * @param support the support
+	 */
+	private void addClosedItemset(int[] itemset, int support) {
+		int cid;
+		if(freeCidCount > 0) {
+			cid = freeCids[--freeCidCount];
+		}else {
+			cid = cidCount++;
+			if(cid == closedItemsets.length) {
+				closedItemsets = Arrays.copyOf(closedItemsets, cid * 2);
+				closedSupports = Arrays.copyOf(closedSupports, cid * 2);
+				candidateStamps = Arrays.copyOf(candidateStamps, cid * 2);
+			}
+		}
+		closedItemsets[cid] = itemset;
+		closedSupports[cid] = support;
+		closedCount++;
+		for(int item : itemset) {
+			int index = itemIndex.getOrAdd(item);
+			if(index == cidLists.length) {
+				cidLists = Arrays.copyOf(cidLists, index * 2);
+				cidListSizes = Arrays.copyOf(cidListSizes, index * 2);
+			}
+			if(cidLists[index] == null) {
+				cidLists[index] = new int[4];
+			}else if(cidListSizes[index] == cidLists[index].length) {
+				cidLists[index] = Arrays.copyOf(cidLists[index], cidListSizes[index] * 2);
+			}
+			cidLists[index][cidListSizes[index]++] = cid;
+		}
+	}
+
+	/**
+	 * Get the closed itemsets of the current window (without the empty set).
+	 * @return a List of closed itemsets
+	 */
+	public List<Itemset> getClosedItemsets() {
+		return getClosedItemsets(1);
+	}
+
+	/**
+	 * Get the closed itemsets of the current window having a minimum support (without the empty set).
+	 * @param minSupport the minimum support, as a number of transactions of the window
+	 * @return a List of closed itemsets
+	 */
+	public List<Itemset> getClosedItemsets(int minSupport) {
+		List<Itemset> result = new ArrayList<Itemset>();
+		for(int cid = 0; cid < cidCount; cid++) {
+			if(closedItemsets[cid] != null && closedSupports[cid] >= minSupport) {
+				Itemset itemset = new Itemset(closedItemsets[cid].clone());
+				itemset.setAbsoluteSupport(closedSupports[cid]);
+				result.add(itemset);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Get the number of closed itemsets of the current window (without the empty set)
+	 * @return the number of closed itemsets
+	 */
+	public int getClosedItemsetCount() {
+		return closedCount;
+	}
+
+	/**
+	 * Get the number of transactions in the window
+	 * @return the number of transactions
+	 */
+	public int getWindowTransactionCount() {
+		return windowCount;
+	}
+
+	/**
+	 * Print statistics about the algorithm execution to System.out.
+	 */
+	public void printStats() {
+		MemoryLogger.getInstance().checkMemory();
+		System.out.println("=============  CloStream (sliding window) - STATS =============");
+		System.out.println(" Transactions processed : " + transactionCount);
+		System.out.println(" Window size : " + windowSize + " (transactions in the window : " + windowCount + ")");
+		System.out.println(" Closed itemset count in the window : " + closedCount);
+		System.out.print(" Max memory usage: " + MemoryLogger.getInstance().getMaxMemory() + " mb \n");
+		System.out.println(" Processing time ~ " + (processingTime / 1000000) + " ms");
+		if(processingTime > 0) {
+			System.out.println(" Throughput ~ " + (long) (transactionCount * 1e9 / processingTime) + " transactions/s");
+		}
+		System.out.println("===================================================");
+	}
+
+	/**
+	 * This class gives a consecutive index to each item, with a hash table of ints using
+	 * open addressing (linear probing).
+	 */
+	private static class ItemIndex {
+		/** value of an empty position */
+		private static final int EMPTY = -1;
+		/** the items (keys) */
+		private int[] keys = new int[64];
+		/** the index of each item (values), EMPTY if the position is free */
+		private int[] values = new int[64];
+		/** the number of items */
+		private int size = 0;
+
+		/**
+		 * Constructor
+		 */
+		ItemIndex() {
+			Arrays.fill(values, EMPTY);
+		}
+
+		/**
+		 * Get the position of an item in the table, or the free position where it can be added
+		 * @param item the item
+		 * @return the position
+		 */
+		private int position(int item) {
+			int mask = keys.length - 1;
+			int position = (item * 0x9E3779B9) >>> 7 & mask;
+			while(values[position] != EMPTY && keys[position] != item) {
+				position = (position + 1) & mask;
+			}
+			return position;
+		}
+
+		/**
+		 * Get the index of an item
+		 * @param item the item
+		 * @return the index or -1 if the item has no index
+		 */
+		int get(int item) {
+			return values[position(item)];
+		}
+
+		/**
+		 * Get the index of an item, and give it the next index if it has none
+		 * @param item the item
+		 * @return the index
+		 */
+		int getOrAdd(int item) {
+			int position = position(item);
+			if(values[position] == EMPTY) {
+				// keep the table at most half full
+				if((size + 1) * 2 > keys.length) {
+					grow();
+					position = position(item);
+				}
+				keys[position] = item;
+				values[position] = size++;
+			}
+			return values[position];
+		}
+
+		/**
+		 * Double the size of the table
+		 */
+		private void grow() {
+			int[] oldKeys = keys;
+			int[] oldValues = values;
+			keys = new int[oldKeys.length * 2];
+			values = new int[oldKeys.length * 2];
+			Arrays.fill(values, EMPTY);
+			for(int i = 0; i < oldKeys.length; i++) {
+				if(oldValues[i] != EMPTY) {
+					int position = position(oldKeys[i]);
+					keys[position] = oldKeys[i];
+					values[position] = oldValues[i];
+				}
+			}
+		}
+	}
+
+	/**
+	 * This class is a hash table associating itemsets (arrays of ints) with a cid, using open addressing.
+	 * The entries are numbered by order of insertion, and the table is cleared
+	 * in constant time (the arrays are reused for the next transaction).
+	 */
+	private static class IntersectionTable {
+		/** the entry at each position of the table, or -1 if the position is free */
+		private int[] slots = new int[64];
+		/** the last stamp when each position was used (a position is free if it has an older stamp) */
+		private int[] slotStamps = new int[64];
+		/** the current stamp */
+		private int stamp = 1;
+		/** the hash code of each entry */
+		private long[] hashes = new long[32];
+		/** the itemset of each entry */
+		private int[][] itemsets = new int[32][];
+		/** the cid of each entry */
+		private int[] cids = new int[32];
+		/** the number of entries */
+		private int size = 0;
+
+		/**
+		 * Remove all the entries
+		 */
+		void clear() {
+			size = 0;
+			stamp++;
+		}
+
+		/**
+		 * Get the number of entries
+		 * @return the number of entries
+		 */
+		int size() {
+			return size;
+		}
+
+		/**
+		 * Calculate the hash code of an itemset
+		 * @param items the items
+		 * @param length the number of items
+		 * @return the hash code
+		 */
+		private static long hash(int[] items, int length) {
+			long hash = length;
+			for(int i = 0; i < length; i++) {
+				hash = (hash + items[i]) * 0x9E3779B97F4A7C15L;
+			}
+			return hash ^ (hash >>> 29);
+		}
+
+		/**
+		 * Find the entry of an itemset
+		 * @param items the items of the itemset
+		 * @param length the number of items
+		 * @return the entry or -1 if the itemset is not in the table
+		 */
+		int find(int[] items, int length) {
+			long hash = hash(items, length);
+			int mask = slots.length - 1;
+			int position = (int) hash & mask;
+			while(slotStamps[position] == stamp) {
+				int entry = slots[position];
+				if(hashes[entry] == hash && isEqual(itemsets[entry], items, length)) {
+					return entry;
+				}
+				position = (position + 1) & mask;
+			}
+			return -1;
+		}
+
+		/**
+		 * Add an itemset that is not in the table
+		 * @param items the items of the itemset (they are copied)
+		 * @param length the number of items
+		 * @param cid the cid associated with the itemset
+		 */
+		void put(int[] items, int length, int cid) {
+			if(size == itemsets.length) {
+				hashes = Arrays.copyOf(hashes, size * 2);
+				itemsets = Arrays.copyOf(itemsets, size * 2);
+				cids = Arrays.copyOf(cids, size * 2);
+			}
+			// keep the table at most half full
+			if((size + 1) * 2 > slots.length) {
+				slots = new int[slots.length * 2];
+				slotStamps = new int[slotStamps.length * 2];
+				stamp = 1;
+				for(int entry = 0; entry < size; entry++) {
+					insertSlot(hashes[entry], entry);
+				}
+			}
+			long hash = hash(items, length);
+			hashes[size] = hash;
+			itemsets[size] = Arrays.copyOf(items, length);
+			cids[size] = cid;
+			insertSlot(hash, size);
+			size++;
+		}
+
+		/**
+		 * Put an entry at the first free position for its hash code
+		 * @param hash the hash code
+		 * @param entry the entry
+		 */
+		private void insertSlot(long hash, int entry) {
+			int mask = slots.length - 1;
+			int position = (int) hash & mask;
+			while(slotStamps[position] == stamp) {
+				position = (position + 1) & mask;
+			}
+			slots[position] = entry;
+			slotStamps[position] = stamp;
+		}
+
+		/**
+		 * Check if an itemset is equal to the first items of an array
+		 * @param itemset the itemset
+		 * @param items the array
+		 * @param length the number of items of the array
+		 * @return true if they are equal
+		 */
+		private static boolean isEqual(int[] itemset, int[] items, int length) {
+			if(itemset.length != length) {
+				return false;
+			}
+			for(int i = 0; i < length; i++) {
+				if(itemset[i] != items[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Get the itemset of an entry
+		 * @param entry the entry
+		 * @return the itemset (a new array that is not reused by the table)
+		 */
+		int[] getItemset(int entry) {
+			return itemsets[entry];
+		}
+
+		/**
+		 * Get the cid of an entry
+		 * @param entry the entry
+		 * @return the cid
+		 */
+		int getCid(int entry) {
+			return cids[entry];
+		}
+
+		/**
+		 * Set the cid of an entry
+		 * @param entry the entry
+		 * @param cid the cid
+		 */
+		void setCid(int entry, int cid) {
+			cids[entry] = cid;
+		}
+	}
+}
@@ -51,7 +51,14 @@ import ca.pfv.spmf.tools.MemoryLogger;
  */
 public class AlgoDEclat extends AlgoEclat{
 	
-	
+	/**
+	 * Create an empty object of this class (for the workers of the parallel mode).
+	 * @return the object
+	 */
+	AlgoEclat newInstance() {
+		return new AlgoDEclat();
+	}
+
 
 	/**
 	 * Print statistics about the algorithm execution to System.out.
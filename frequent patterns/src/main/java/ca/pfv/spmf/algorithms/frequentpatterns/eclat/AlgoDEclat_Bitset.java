@@ -16,9 +16,9 @@ package ca.pfv.spmf.algorithms.frequentpatterns.eclat;
 * SPMF. If not, see <http://www.gnu.org/licenses/>.
 */
 
-import java.util.BitSet;
 import java.util.Map;
 
+import ca.pfv.spmf.datastructures.tidset.Tidset;
 import ca.pfv.spmf.datastructures.triangularmatrix.TriangularMatrix;
 import ca.pfv.spmf.input.transaction_database_list_integers.TransactionDatabase;
 import ca.pfv.spmf.patterns.itemset_array_integers_with_tids_bitset.Itemset;
@@ -33,7 +33,8 @@ import ca.pfv.spmf.tools.MemoryLogger;
  * code is the same and we wanted to avoid redundancy. 
  * Note also that implementing diffsets using bitsets may not provide the optimal performance for
  * dEclat since even if diffsets are smaller than tidsets, as a bitset, they may not be much
- * smaller. It is thus recommended to try also the regular implementation
+ * smaller. It is thus recommended to try also the regular implementation, or to store the diffsets
+ * as compressed bitmaps by calling setUseCompressedTidsets(true).
  * 
  * IMPORTANT: dEClat returns Itemsets annotated with their diffsets
  * rather than tidsets when the user choose to keep the result in memory.
@@ -86,36 +87,19 @@ public class AlgoDEclat_Bitset extends AlgoEclat_Bitset{
 	 */
 	int calculateSupportSingleItems(TransactionDatabase database,
 			final Map<Integer, BitSetSupport> mapItemTIDS) {
-		// (1) First database pass : calculate diffsets of each item.
-		int maxItemId = 0;
-		// for each transaction
-		for (int i = 0; i < database.size(); i++) {
-			// Add the transaction id to the set of all transaction ids
-			// for each item in that transaction
-			
-			// For each item
-			for (Integer item : database.getTransactions().get(i)) {
-				// Get the current tidset of that item
-				BitSetSupport tids = mapItemTIDS.get(item);
-				// If none, then we create one
-				if(tids == null){
-					tids = new BitSetSupport();
-					// For a new item, we sets all the bits of its diffset to true
-					tids.bitset.set(0, database.size(), true);
-					mapItemTIDS.put(item, tids);
-					// we remember the largest item seen until now
-					if (item > maxItemId) {
-						maxItemId = item;
-					}
-				}
-				//We set to false the bit corresponding to this transaction
-				// in the diffset of that item
-				tids.bitset.set(i, false);
-				// END DECLAT
-				// we increase the support of that item
-				tids.support++;
-			}
-		}	
+		// (1) First database pass : calculate the tidset of each item.
+		int maxItemId = super.calculateSupportSingleItems(database, mapItemTIDS);
+		
+		// The set of all transaction identifiers
+		Tidset allTransactions = newTidset();
+		allTransactions.addRange(0, database.size());
+		
+		// Then, replace the tidset of each item by its diffset, which contains
+		// the transactions that do not contain the item
+		for(BitSetSupport tids : mapItemTIDS.values()) {
+			tids.bitset = allTransactions.andNot(tids.bitset);
+			tids.bitset.optimize();
+		}
 		return maxItemId;
 	}
 
@@ -130,8 +114,7 @@ public class AlgoDEclat_Bitset extends AlgoEclat_Bitset{
 		// Create the new diffset 
 		BitSetSupport bitsetSupportIJ = new BitSetSupport();
 		// Calculate the diffset 
-		bitsetSupportIJ.bitset = (BitSet)tidsetJ.bitset.clone();
-		bitsetSupportIJ.bitset.andNot(tidsetI.bitset);
+		bitsetSupportIJ.bitset = tidsetJ.bitset.andNot(tidsetI.bitset);
 		// Calculate the support
 		bitsetSupportIJ.support = tidsetI.support - bitsetSupportIJ.bitset.cardinality();
 		// return the new diffset
@@ -152,8 +135,7 @@ public class AlgoDEclat_Bitset extends AlgoEclat_Bitset{
 		// Create the new diffset and perform the logical AND to intersect the diffsets
 		BitSetSupport bitsetSupportIJ = new BitSetSupport();
 		//Calculate the diffset
-		bitsetSupportIJ.bitset = (BitSet)tidsetJ.bitset.clone();
-		bitsetSupportIJ.bitset.andNot(tidsetI.bitset);
+		bitsetSupportIJ.bitset = tidsetJ.bitset.andNot(tidsetI.bitset);
 		// Calculate the support
 		bitsetSupportIJ.support = tidsetI.support - bitsetSupportIJ.bitset.cardinality();
 		// return the new tidset
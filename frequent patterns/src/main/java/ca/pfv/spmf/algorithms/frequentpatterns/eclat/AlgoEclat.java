@@ -28,6 +28,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import ca.pfv.spmf.datastructures.triangularmatrix.TriangularMatrix;
 import ca.pfv.spmf.input.transaction_database_list_integers.TransactionDatabase;
@@ -51,6 +54,13 @@ import ca.pfv.spmf.tools.MemoryLogger;
  * This  version  saves the result to a file
  * or keep it into memory if no output path is provided
  * by the user to the runAlgorithm method().
+ * <br/><br/>
+ * 
+ * The equivalence classes can be mined by several threads (see {@link #setThreadCount(int)}).
+ * In that case, the itemsets starting with each frequent item are mined by a task of a ForkJoinPool,
+ * and each large equivalence class found by a task is mined by a new task, so that idle
+ * threads can steal the remaining work of busy threads. Each task keeps the itemsets that it finds
+ * in its own buffer, and the calling thread saves them in the order of the sequential algorithm.
  * 
  * @see TriangularMatrix
  * @see TransactionDatabase
@@ -98,6 +108,18 @@ public class AlgoEclat {
 	
 	/** Special parameter to set the maximum size of itemsets to be discovered */
 	int maxItemsetSize = Integer.MAX_VALUE;
+	
+	/** the number of threads used to mine the equivalence classes */
+	private int threadCount = 1;
+	
+	/** in parallel mode, an equivalence class containing at least this number of
+	 * itemsets is mined by a new task rather than by the task that found it */
+	static final int MIN_TASK_CLASS_SIZE = 8;
+	
+	/** in parallel mode, the output of the task using this object (a worker): the itemsets found
+	 * (an Itemset or a line of the output file) and the tasks mining the equivalence classes that
+	 * it found, in the order of the sequential algorithm. It is null for the object of the user. */
+	private List<Object> taskOutput = null;
 
 	/**
 	 * Default constructor
@@ -209,70 +231,13 @@ public class AlgoEclat {
 		
 		if(maxItemsetSize >=2){
 			
-			// For each frequent item I according to the total order
-			for(int i=0; i < frequentItems.size(); i++) {
-				Integer itemI = frequentItems.get(i);
-				// we obtain the tidset and support of that item
-				Set<Integer> tidsetI = mapItemCount.get(itemI);
-				int supportI = tidsetI.size();
-				
-				// We create empty equivalence class for storing all 2-itemsets starting with
-				// the item "i".
-				// This equivalence class is represented by two structures.
-				// The first structure stores the suffix of all 2-itemsets starting with the prefix "i".
-				// For example, if itemI = "1" and the equivalence class contains 12, 13, 14, then
-				// the structure "equivalenceC  lassIitems" will only contain  2, 3 and 4 instead of
-				// 12, 13 and 14.  The reason for this implementation choice is that it is more
-				// memory efficient.
-				List<Integer> equivalenceClassIitems = new ArrayList<Integer>();
-				// The second structure stores the tidset of each 2-itemset in the equivalence class
-				// of the prefix "i".
-				List<Set<Integer>> equivalenceClassItidsets = new ArrayList<Set<Integer>>();
-				
-				// For each item itemJ that is larger than i according to the total order of
-				// increasing support.
-	loopJ:		for(int j=i+1; j < frequentItems.size(); j++) {
-					int itemJ = frequentItems.get(j);
-					
-					// if the triangular matrix optimization is activated we obtain
-					// the support of itemset "ij" in the matrix. This allows to determine
-					// directly without performing a join if "ij" is frequent.
-					if(useTriangularMatrixOptimization) {
-						// check the support of {i,j} according to the triangular matrix
-						int support = matrix.getSupportForItems(itemI, itemJ);
-						// if not frequent
-						if (support < minsupRelative) {
-							// we don't need to consider the itemset "ij" anymore
-							continue loopJ;
-						}
-					}
-	
-					// Obtain the tidset of item J and its support.
-					Set<Integer> tidsetJ = mapItemCount.get(itemJ);
-					int supportJ = tidsetJ.size();
-					
-					// Calculate the tidset of itemset "IJ" by performing the intersection of 
-					// the tidsets of I and the tidset of J.
-					Set<Integer> tidsetIJ = performANDFirstTime(tidsetI, supportI, tidsetJ, supportJ);
-					
-					// After that, we add the itemJ to the equivalence class of 2-itemsets
-					// starting with the prefix "i". Note that although we only add "j" to the
-					// equivalence class, the item "j" 
-					// actually represents the itemset "ij" since we keep the prefix "i" for the
-					// whole equilvalence class.
-					if(useTriangularMatrixOptimization || calculateSupport(2, supportI, tidsetIJ) >= minsupRelative){
-					    equivalenceClassIitems.add(itemJ);
-					     // We also keep the tidset of "ij".
-					    equivalenceClassItidsets.add(tidsetIJ);
-					}
-				}
-				// Process all itemsets from the equivalence class of 2-itemsets starting with prefix I 
-				// to find larger itemsets if that class has more than 0 itemsets.
-				if(equivalenceClassIitems.size() > 0) {
-					// This is done by a recursive call. Note that we pass
-					// item I to that method as the prefix of that equivalence class.
-					itemsetBuffer[0] = itemI;
-					processEquivalenceClass(itemsetBuffer, 1, supportI, equivalenceClassIitems, equivalenceClassItidsets);
+			if(threadCount > 1) {
+				// Mine the equivalence classes in parallel
+				processEquivalenceClassesParallel(frequentItems, mapItemCount, useTriangularMatrixOptimization);
+			}else {
+				// For each frequent item I according to the total order
+				for(int i=0; i < frequentItems.size(); i++) {
+					processItem(i, frequentItems, mapItemCount, useTriangularMatrixOptimization);
 				}
 			}
 		}
@@ -293,6 +258,207 @@ public class AlgoEclat {
 		return frequentItemsets; 
 	}
 
+	/**
+	 * Generate the equivalence class of the 2-itemsets starting with a frequent item
+	 * and process it to find all the frequent itemsets starting with that item.
+	 * @param i the position of the item in the list of frequent items
+	 * @param frequentItems the frequent items, sorted by the total order of increasing support
+	 * @param mapItemCount the tidset of each item
+	 * @param useTriangularMatrixOptimization if true the triangular matrix optimization is applied.
+	 * @throws IOException if error while writting the output to file
+	 */
+	private void processItem(int i, List<Integer> frequentItems, Map<Integer, Set<Integer>> mapItemCount,
+			boolean useTriangularMatrixOptimization) throws IOException {
+		Integer itemI = frequentItems.get(i);
+		// we obtain the tidset and support of that item
+		Set<Integer> tidsetI = mapItemCount.get(itemI);
+		int supportI = tidsetI.size();
+		
+		// We create empty equivalence class for storing all 2-itemsets starting with
+		// the item "i".
+		// This equivalence class is represented by two structures.
+		// The first structure stores the suffix of all 2-itemsets starting with the prefix "i".
+		// For example, if itemI = "1" and the equivalence class contains 12, 13, 14, then
+		// the structure "equivalenceC  lassIitems" will only contain  2, 3 and 4 instead of
+		// 12, 13 and 14.  The reason for this implementation choice is that it is more
+		// memory efficient.
+		List<Integer> equivalenceClassIitems = new ArrayList<Integer>();
+		// The second structure stores the tidset of each 2-itemset in the equivalence class
+		// of the prefix "i".
+		List<Set<Integer>> equivalenceClassItidsets = new ArrayList<Set<Integer>>();
+		
+		// For each item itemJ that is larger than i according to the total order of
+		// increasing support.
+loopJ:	for(int j=i+1; j < frequentItems.size(); j++) {
+			int itemJ = frequentItems.get(j);
+			
+			// if the triangular matrix optimization is activated we obtain
+			// the support of itemset "ij" in the matrix. This allows to determine
+			// directly without performing a join if "ij" is frequent.
+			if(useTriangularMatrixOptimization) {
+				// check the support of {i,j} according to the triangular matrix
+				int support = matrix.getSupportForItems(itemI, itemJ);
+				// if not frequent
+				if (support < minsupRelative) {
+					// we don't need to consider the itemset "ij" anymore
+					continue loopJ;
+				}
+			}
+	
+			// Obtain the tidset of item J and its support.
+			Set<Integer> tidsetJ = mapItemCount.get(itemJ);
+			int supportJ = tidsetJ.size();
+			
+			// Calculate the tidset of itemset "IJ" by performing the intersection of 
+			// the tidsets of I and the tidset of J.
+			Set<Integer> tidsetIJ = performANDFirstTime(tidsetI, supportI, tidsetJ, supportJ);
+			
+			// After that, we add the itemJ to the equivalence class of 2-itemsets
+			// starting with the prefix "i". Note that although we only add "j" to the
+			// equivalence class, the item "j" 
+			// actually represents the itemset "ij" since we keep the prefix "i" for the
+			// whole equilvalence class.
+			if(useTriangularMatrixOptimization || calculateSupport(2, supportI, tidsetIJ) >= minsupRelative){
+			    equivalenceClassIitems.add(itemJ);
+			     // We also keep the tidset of "ij".
+			    equivalenceClassItidsets.add(tidsetIJ);
+			}
+		}
+		// Process all itemsets from the equivalence class of 2-itemsets starting with prefix I 
+		// to find larger itemsets if that class has more than 0 itemsets.
+		if(equivalenceClassIitems.size() > 0) {
+			// This is done by a recursive call. Note that we pass
+			// item I to that method as the prefix of that equivalence class.
+			itemsetBuffer[0] = itemI;
+			processEquivalenceClass(itemsetBuffer, 1, supportI, equivalenceClassIitems, equivalenceClassItidsets);
+		}
+	}
+
+	/**
+	 * Mine the equivalence classes of the frequent items in parallel. The itemsets starting
+	 * with each frequent item are mined by a task, and the output of the tasks is saved 
+	 * by the calling thread in the order of the sequential algorithm.
+	 * @param frequentItems the frequent items, sorted by the total order of increasing support
+	 * @param mapItemCount the tidset of each item
+	 * @param useTriangularMatrixOptimization if true the triangular matrix optimization is applied.
+	 * @throws IOException if error while writting the output to file
+	 */
+	private void processEquivalenceClassesParallel(final List<Integer> frequentItems,
+			final Map<Integer, Set<Integer>> mapItemCount, final boolean useTriangularMatrixOptimization) throws IOException {
+		ForkJoinPool pool = new ForkJoinPool(threadCount);
+		try {
+			// submit a task for each frequent item, in the order of the sequential algorithm
+			List<ForkJoinTask<List<Object>>> tasks = new ArrayList<ForkJoinTask<List<Object>>>();
+			for(int i=0; i < frequentItems.size(); i++) {
+				final int index = i;
+				tasks.add(pool.submit(() -> {
+					AlgoEclat worker = createWorker();
+					worker.processItem(index, frequentItems, mapItemCount, useTriangularMatrixOptimization);
+					return worker.taskOutput;
+				}));
+			}
+			// save the output of each task, one task after the other
+			for(int i=0; i < tasks.size(); i++) {
+				saveTaskOutput(tasks.get(i));
+				// the task is not needed anymore
+				tasks.set(i, null);
+				// check the memory usage
+				MemoryLogger.getInstance().checkMemory();
+			}
+		}finally {
+			pool.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Create an object to mine an equivalence class in a task. It shares the parameters and 
+	 * the (read only) triangular matrix with this object, but has its own buffer and keeps
+	 * the itemsets that it finds in its task output rather than saving them.
+	 * @return the object
+	 */
+	private AlgoEclat createWorker() {
+		AlgoEclat worker = newInstance();
+		worker.minsupRelative = minsupRelative;
+		worker.matrix = matrix;
+		// the worker only checks if the result is saved to a file, it never writes to it
+		worker.writer = writer;
+		worker.showTransactionIdentifiers = showTransactionIdentifiers;
+		worker.maxItemsetSize = maxItemsetSize;
+		worker.itemsetBuffer = new int[BUFFERS_SIZE];
+		worker.taskOutput = new ArrayList<Object>();
+		return worker;
+	}
+	
+	/**
+	 * Create an empty object of the class of this algorithm (for the workers).
+	 * @return the object
+	 */
+	AlgoEclat newInstance() {
+		return new AlgoEclat();
+	}
+	
+	/**
+	 * Start a new task to mine an equivalence class (in parallel mode).
+	 * @param prefix  a common prefix to all itemsets of the equivalence class (it is copied)
+	 * @param prefixLength the prefix length
+	 * @param supportPrefix the support of the prefix
+	 * @param equivalenceClassItems  a list of suffixes of itemsets in the equivalence class.
+	 * @param equivalenceClassTidsets a list of tidsets of itemsets of the equivalence class.
+	 * @return the task, which returns its output
+	 */
+	private ForkJoinTask<List<Object>> forkEquivalenceClass(int[] prefix, final int prefixLength,
+			final int supportPrefix, final List<Integer> equivalenceClassItems,
+			final List<Set<Integer>> equivalenceClassTidsets) {
+		final AlgoEclat worker = createWorker();
+		System.arraycopy(prefix, 0, worker.itemsetBuffer, 0, prefixLength);
+		return ForkJoinTask.adapt(() -> {
+			worker.processEquivalenceClass(worker.itemsetBuffer, prefixLength, supportPrefix,
+					equivalenceClassItems, equivalenceClassTidsets);
+			return worker.taskOutput;
+		}).fork();
+	}
+	
+	/**
+	 * Wait for a task and save its output, including the output of the tasks that it started.
+	 * @param task the task
+	 * @throws IOException if error while writting the output to file
+	 */
+	@SuppressWarnings("unchecked")
+	private void saveTaskOutput(ForkJoinTask<List<Object>> task) throws IOException {
+		List<Object> output;
+		try {
+			output = task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while mining the equivalence classes in parallel", e);
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			if(e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if(e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+		for(Object object : output) {
+			if(object instanceof ForkJoinTask) {
+				// the output of an equivalence class mined by another task
+				saveTaskOutput((ForkJoinTask<List<Object>>) object);
+			}else if(writer == null) {
+				Itemset itemset = (Itemset) object;
+				frequentItemsets.addItemset(itemset, itemset.size());
+				itemsetCount++;
+			}else {
+				writer.write((String) object);
+				writer.newLine();
+				itemsetCount++;
+			}
+		}
+	}
+
 	/**
 	 * This method scans the database to calculate the support of each single item
 	 * @param database the transaction database
@@ -478,8 +644,14 @@ public class AlgoEclat {
 					prefix[prefixLength] = suffixI;
 					int newPrefixLength = prefixLength+1;
 					
-					// Recursive call
-					processEquivalenceClass(prefix, newPrefixLength, supportI, equivalenceClassISuffixItems, equivalenceITidsets);
+					if(taskOutput != null && equivalenceClassISuffixItems.size() >= MIN_TASK_CLASS_SIZE) {
+						// In parallel mode, a large equivalence class is mined by a new task
+						taskOutput.add(forkEquivalenceClass(prefix, newPrefixLength, supportI, 
+								equivalenceClassISuffixItems, equivalenceITidsets));
+					}else {
+						// Recursive call
+						processEquivalenceClass(prefix, newPrefixLength, supportI, equivalenceClassISuffixItems, equivalenceITidsets);
+					}
 				}
 			}
 		}
@@ -573,7 +745,12 @@ public class AlgoEclat {
 			// Create an object "Itemset" and add it to the set of frequent itemsets
 			Itemset itemset = new Itemset(itemsetArray);
 			itemset.setAbsoluteSupport(support);
-			frequentItemsets.addItemset(itemset, itemset.size());
+			if(taskOutput != null) {
+				// in parallel mode, the itemset is saved later by the calling thread
+				taskOutput.add(itemset);
+			}else {
+				frequentItemsets.addItemset(itemset, itemset.size());
+			}
 		}else{
 			// if the result should be saved to a file
 			// write it to the output file
@@ -593,8 +770,13 @@ public class AlgoEclat {
 	        		buffer.append(" " + tid); 
 	        	}
 			}
-			writer.write(buffer.toString());
-			writer.newLine();
+			if(taskOutput != null) {
+				// in parallel mode, the itemset is saved later by the calling thread
+				taskOutput.add(buffer.toString());
+			}else {
+				writer.write(buffer.toString());
+				writer.newLine();
+			}
 		}
 	}
 	
@@ -671,4 +853,16 @@ public class AlgoEclat {
 	public void setMaximumPatternLength(int length) {
 		this.maxItemsetSize = length;
 	}
+	
+	/**
+	 * Set the number of threads used to mine the equivalence classes.
+	 * The result is the same as with a single thread (the default).
+	 * @param threadCount the number of threads (at least 1)
+	 */
+	public void setThreadCount(int threadCount) {
+		if(threadCount < 1) {
+			throw new IllegalArgumentException("The number of threads must be at least 1");
+		}
+		this.threadCount = threadCount;
+	}
 }
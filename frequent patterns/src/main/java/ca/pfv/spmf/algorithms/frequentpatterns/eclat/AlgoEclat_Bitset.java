@@ -20,7 +20,6 @@ import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.BitSet;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -28,6 +27,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import ca.pfv.spmf.datastructures.tidset.BitSetTidset;
+import ca.pfv.spmf.datastructures.tidset.CompressedTidset;
+import ca.pfv.spmf.datastructures.tidset.Tidset;
 import ca.pfv.spmf.datastructures.triangularmatrix.TriangularMatrix;
 import ca.pfv.spmf.input.transaction_database_list_integers.TransactionDatabase;
 import ca.pfv.spmf.patterns.itemset_array_integers_with_count.Itemset;
@@ -36,7 +38,8 @@ import ca.pfv.spmf.tools.MemoryLogger;
  
 /**
  * This is a recent implementation of the ECLAT algorithm that uses bitsets to represent
- * tidsets.
+ * tidsets. The tidsets can also be stored as compressed bitmaps (see setUseCompressedTidsets()),
+ * which use less memory for sparse tidsets.
  *  
  * Eclat was proposed by ZAKI (2000).
  * <br/><br/>
@@ -93,6 +96,9 @@ public class AlgoEclat_Bitset {
 	
 	/** Special parameter to set the maximum size of itemsets to be discovered */
 	int maxItemsetSize = Integer.MAX_VALUE;
+	
+	/** if true, tidsets are stored as compressed bitmaps instead of BitSets */
+	boolean useCompressedTidsets = false;
 
 
 	/**
@@ -324,11 +330,15 @@ public class AlgoEclat_Bitset {
 					}
 				}
 				// we add the current transaction id to the tidset of the item
-				tids.bitset.set(i);
+				tids.bitset.add(i);
 				// we increase the support of that item
 				tids.support++;
 			}
 		}
+		// the tidsets are complete, so they can be compressed
+		for(BitSetSupport tids : mapItemTIDS.values()) {
+			tids.bitset.optimize();
+		}
 		return maxItemId;
 	}
 
@@ -342,8 +352,7 @@ public class AlgoEclat_Bitset {
 			BitSetSupport tidsetJ) {
 		// Create the new tidset and perform the logical AND to intersect the tidset
 		BitSetSupport bitsetSupportIJ = new BitSetSupport();
-		bitsetSupportIJ.bitset = (BitSet)tidsetI.bitset.clone();
-		bitsetSupportIJ.bitset.and(tidsetJ.bitset);
+		bitsetSupportIJ.bitset = tidsetI.bitset.and(tidsetJ.bitset);
 		// set the support as the cardinality of the new tidset
 		bitsetSupportIJ.support = bitsetSupportIJ.bitset.cardinality();
 		// return the new tidset
@@ -362,8 +371,7 @@ public class AlgoEclat_Bitset {
 			BitSetSupport tidsetJ, int supportIJ) {
 		// Create the new tidset and perform the logical AND to intersect the tidset
 		BitSetSupport bitsetSupportIJ = new BitSetSupport();
-		bitsetSupportIJ.bitset = (BitSet)tidsetI.bitset.clone();
-		bitsetSupportIJ.bitset.and(tidsetJ.bitset);
+		bitsetSupportIJ.bitset = tidsetI.bitset.and(tidsetJ.bitset);
 		// set the support as the support provided as parameter
 		bitsetSupportIJ.support = supportIJ;
 		// return the new tidset
@@ -558,7 +566,7 @@ public class AlgoEclat_Bitset {
 			buffer.append(" #SUP: ");
 			buffer.append(tidset.support);
 			if(showTransactionIdentifiers) {
-				BitSet bitset = tidset.bitset;
+				Tidset bitset = tidset.bitset;
 				buffer.append(" #TID:");
 	        	for (int tid = bitset.nextSetBit(0); tid != -1; tid = bitset.nextSetBit(tid + 1)) {
 	        		buffer.append(" " + tid); 
@@ -576,7 +584,7 @@ public class AlgoEclat_Bitset {
 	 * @param tidset the tidset of this itemset
 	 * @throws IOException if an error occurrs when writing to disk.
 	 */
-	private void saveSingleItem(int item, int support, BitSet tidset) throws IOException {
+	private void saveSingleItem(int item, int support, Tidset tidset) throws IOException {
 		// increase the itemset count
 		itemsetCount++;
 		// if the result should be saved to memory
@@ -611,6 +619,25 @@ public class AlgoEclat_Bitset {
 	public void setShowTransactionIdentifiers(boolean showTransactionIdentifiers) {
 		this.showTransactionIdentifiers = showTransactionIdentifiers;
 	}
+	
+	/**
+	 * Set that tidsets should be stored as compressed bitmaps (true) or as BitSets (false, by default).
+	 * Compressed bitmaps use less memory and are generally faster to intersect when tidsets
+	 * are sparse, i.e. when the database is large and the minimum support is low.
+	 * @param useCompressedTidsets true or false
+	 * @see CompressedTidset
+	 */
+	public void setUseCompressedTidsets(boolean useCompressedTidsets) {
+		this.useCompressedTidsets = useCompressedTidsets;
+	}
+	
+	/**
+	 * Create an empty tidset using the representation chosen by the user.
+	 * @return the tidset
+	 */
+	Tidset newTidset() {
+		return useCompressedTidsets ? new CompressedTidset() : new BitSetTidset();
+	}
 
 	/**
 	 * Print statistics about the algorithm execution to System.out.
@@ -635,14 +662,14 @@ public class AlgoEclat_Bitset {
 	}
 
 	/**
-	 * Anonymous inner class to store a bitset and its cardinality
+	 * Anonymous inner class to store a tidset and its cardinality
 	 * (an itemset's tidset and its support).
 	 * Storing the cardinality is useful because the cardinality() method
 	 * of a bitset in Java is very expensive, so it should not be called
 	 * more than once.
 	 */ 
 	public class BitSetSupport{
-		BitSet bitset = new BitSet();
+		Tidset bitset = newTidset();
 		int support;
 	}
 	
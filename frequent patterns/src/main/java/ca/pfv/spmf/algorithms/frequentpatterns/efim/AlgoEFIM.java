@@ -8,6 +8,9 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import ca.pfv.spmf.tools.MemoryLogger;
 
@@ -33,6 +36,14 @@ import ca.pfv.spmf.tools.MemoryLogger;
  * mining high-utility itemsets from a transaction database.
  * More information on the EFIM algorithm can be found in that paper: <br\>
  *
+ * The projected databases are not created for each itemset. There is a projected database for 
+ * each level of the recursion, which is reused by all the itemsets of that level (see {@link ProjectedDatabase}).
+ * <br/><br/>
+ * 
+ * The primary items of the database can be explored by several threads (see {@link #setThreadCount(int)}).
+ * In that case, each thread has its own utility-bin arrays and projected databases, and the
+ * high-utility itemsets are saved in the same order as with a single thread.
+ *
  * @author Souleymane Zida, Philippe Fournier-Viger using some code by Alan Souza
  */
 public class AlgoEFIM {
@@ -101,6 +112,20 @@ public class AlgoEFIM {
 
 	/** If true, sub-tree utility pruning will be performed */
 	private boolean activateSubtreeUtilityPruning;
+	
+	/** The projected database of each level of the recursion (created when needed) */
+	private ProjectedDatabase[] frames;
+	
+	/** The number of threads used to explore the primary items of the database (1 = sequential mining) */
+	private int threadCount = 1;
+	
+	/** If true, this object explores items in a task of the parallel mining and the 
+	 * transactions of the database are shared with other threads (they are not modified) */
+	private boolean sharedDatabase = false;
+	
+	/** If not null, the high-utility itemsets found are added to this list instead of being saved
+	 * (used by the tasks of the parallel mining) */
+	private List<Itemset> collectedItemsets = null;
     
 	/** 
 	 * Constructor
@@ -357,15 +382,24 @@ public class AlgoEFIM {
     	}
 
 //    	//======
+    	// Convert the lists of items and the list of transactions to arrays
+    	int[] itemsToKeepArray = toArray(itemsToKeep);
+    	int[] itemsToExploreArray = activateSubtreeUtilityPruning ? toArray(itemsToExplore) : itemsToKeepArray;
+    	Transaction[] transactions = dataset.getTransactions().toArray(new Transaction[dataset.getTransactions().size()]);
+    	// There is a projected database for each level of the recursion
+    	frames = new ProjectedDatabase[newItemCount + 1];
+
         // Recursive call to the algorithm
-       	// If subtree utility pruning is activated
-    	if(activateSubtreeUtilityPruning){
-    		// We call the recursive algorithm with the database, secondary items and primary items
-    		backtrackingEFIM(dataset.getTransactions(), itemsToKeep, itemsToExplore, 0);
+       	// If subtree utility pruning is activated, we call the recursive algorithm with the database,
+       	// secondary items and primary items. Otherwise, the secondary items are also the primary items.
+    	if(threadCount > 1){
+    		// the items of the first level are explored by several threads
+    		backtrackingEFIMParallel(transactions, itemsToKeepArray, itemsToExploreArray);
     	}else{
-    		// We call the recursive algorithm with the database and secondary items
-    		backtrackingEFIM(dataset.getTransactions(), itemsToKeep, itemsToKeep, 0);
+    		backtrackingEFIM(transactions, transactions.length, itemsToKeepArray, itemsToKeepArray.length, 
+    				itemsToExploreArray, itemsToExploreArray.length, 0);
     	}
+    	frames = null;
 
 		// record the end time
 		endTimestamp = System.currentTimeMillis();
@@ -426,245 +460,410 @@ public class AlgoEFIM {
     
     /**
      * Recursive method to find all high-utility itemsets
-     * @param the list of transactions containing the current prefix P
-	 * @param itemsToKeep the list of secondary items in the p-projected database
-	 * @param itemsToExplore the list of primary items in the p-projected database
-	 * @param the current prefixLength
+     * @param transactionsOfP the transactions containing the current prefix P
+     * @param transactionCountOfP the number of transactions containing P
+	 * @param itemsToKeep the secondary items in the p-projected database
+	 * @param itemsToKeepCount the number of secondary items
+	 * @param itemsToExplore the primary items in the p-projected database
+	 * @param itemsToExploreCount the number of primary items
+	 * @param prefixLength the current prefixLength
      * @throws IOException if error writing to output file
      */
-    private void backtrackingEFIM( List<Transaction> transactionsOfP,
-    		List<Integer> itemsToKeep, List<Integer> itemsToExplore, int prefixLength) throws IOException {
+    private void backtrackingEFIM(Transaction[] transactionsOfP, int transactionCountOfP,
+    		int[] itemsToKeep, int itemsToKeepCount, int[] itemsToExplore, int itemsToExploreCount,
+    		int prefixLength) throws IOException {
 
     	// update the number of candidates explored so far
-		candidateCount += itemsToExplore.size();
+		candidateCount += itemsToExploreCount;
     	
         // ========  for each frequent item  e  =============
-		for (int j = 0; j < itemsToExplore.size(); j++) {
-			Integer e = itemsToExplore.get(j);
-
-			// ========== PERFORM INTERSECTION =====================
-			// Calculate transactions containing P U {e} 
-			// At the same time project transactions to keep what appears after "e"
-	        List<Transaction> transactionsPe = new ArrayList<Transaction>();
-	        
-	        // variable to calculate the utility of P U {e}
-			int utilityPe = 0;		
-
-			// For merging transactions, we will keep track of the last transaction read
-			// and the number of identical consecutive transactions
-			Transaction previousTransaction = null;
-			int consecutiveMergeCount = 0;
-			
-	        // this variable is to record the time for performing intersection
-			long timeFirstIntersection = System.currentTimeMillis();
-			
-			// For each transaction
-	        for(Transaction transaction : transactionsOfP) {
-	        	// Increase the number of transaction read
-	        	transactionReadingCount++;
-	        	
-	        	// To record the time for performing binary searh
-	        	long timeBinaryLocal = System.currentTimeMillis();
-	        	
-	        	// we remember the position where e appears.
-	        	// we will call this position an "offset"
-	        	int positionE = -1;
-	        	// Variables low and high for binary search
-	    		int low = transaction.offset;
-	    		int high = transaction.items.length - 1;
-
-	    		// perform binary search to find e in the transaction
-	    		while (high >= low ) {
-	    			int middle = (low + high) >>> 1; // divide by 2
-	    			if (transaction.items[middle] < e) {
-	    				low = middle + 1;
-	    			}else if (transaction.items[middle] == e) {
-	    				positionE =  middle;
-	    				break;
-	    			}  else{
-	    				high = middle - 1;
-	    			}
-	    		}
-	    		// record the time spent for performing the binary search
-	        	timeBinarySearch +=  System.currentTimeMillis() - timeBinaryLocal;
-	        	
-//	        	if(prefixLength == 0 && newNamesToOldNames[e] == 385) {
-//		        	for(int i=0; i < transaction.getItems().length; i++) {
-//		        		if(transaction.getItems()[i] == e) {
-//		        			innerSum += transaction.getUtilities()[i];
-//		        		}
-//		        	}
-//		        }
-	        	
-	        	// if 'e' was found in the transaction
-	            if (positionE > -1  ) { 
-	 
-	            	// optimization: if the 'e' is the last one in this transaction,
-	            	// we don't keep the transaction
-					if(transaction.getLastPosition() == positionE){
-						// but we still update the sum of the utility of P U {e}
-						utilityPe  += transaction.utilities[positionE] + transaction.prefixUtility;
-					}else{
-						// otherwise
-		            	if(activateTransactionMerging && MAXIMUM_SIZE_MERGING >= (transaction.items.length - positionE)){
-			            	// we cut the transaction starting from position 'e'
-							Transaction projectedTransaction = new Transaction(transaction, positionE);
-							utilityPe  += projectedTransaction.prefixUtility;
+		for (int j = 0; j < itemsToExploreCount; j++) {
+			exploreItem(transactionsOfP, transactionCountOfP, itemsToKeep, itemsToKeepCount, 
+					itemsToExplore, j, prefixLength);
+		}
+
+		// check the maximum memory usage for statistics purpose
+		// (in a task of the parallel mining, this is done by the thread that runs the algorithm)
+		if(sharedDatabase == false) {
+			MemoryLogger.getInstance().checkMemory();
+		}
+    }
+
+    /**
+     * Explore the itemset P U {e} where e is a primary item of the p-projected database,
+     * and then the itemsets extending P U {e}.
+     * @param transactionsOfP the transactions containing the current prefix P
+     * @param transactionCountOfP the number of transactions containing P
+	 * @param itemsToKeep the secondary items in the p-projected database
+	 * @param itemsToKeepCount the number of secondary items
+	 * @param itemsToExplore the primary items in the p-projected database
+	 * @param j the position of e in the primary items
+	 * @param prefixLength the current prefixLength
+     * @throws IOException if error writing to output file
+     */
+    private void exploreItem(Transaction[] transactionsOfP, int transactionCountOfP,
+    		int[] itemsToKeep, int itemsToKeepCount, int[] itemsToExplore, int j,
+    		int prefixLength) throws IOException {
+		int e = itemsToExplore[j];
+		
+		// The projected database of P U {e} is stored in the projected database
+		// of the current level, which is reused for each item e
+		ProjectedDatabase projectedDatabase = frames[prefixLength];
+		if(projectedDatabase == null) {
+			projectedDatabase = new ProjectedDatabase();
+			frames[prefixLength] = projectedDatabase;
+		}
+		projectedDatabase.clear();
+
+		// ========== PERFORM INTERSECTION =====================
+		// Calculate transactions containing P U {e} 
+		// At the same time project transactions to keep what appears after "e"
+        
+        // variable to calculate the utility of P U {e}
+		int utilityPe = 0;		
+
+		// For merging transactions, we will keep track of the last transaction read
+		// and the number of identical consecutive transactions.
+		// The last transaction read is not yet counted in the size of the projected database.
+		Transaction previousTransaction = null;
+		int consecutiveMergeCount = 0;
+		
+        // this variable is to record the time for performing intersection
+		long timeFirstIntersection = System.currentTimeMillis();
+		
+		// For each transaction
+        for(int t = 0; t < transactionCountOfP; t++) {
+        	Transaction transaction = transactionsOfP[t];
+        	// Increase the number of transaction read
+        	transactionReadingCount++;
+        	
+        	// To record the time for performing binary searh
+        	long timeBinaryLocal = System.currentTimeMillis();
+        	
+        	// we remember the position where e appears.
+        	// we will call this position an "offset"
+        	int positionE = -1;
+        	// Variables low and high for binary search
+    		int low = transaction.offset;
+    		int high = transaction.end - 1;
+
+    		// perform binary search to find e in the transaction
+    		while (high >= low ) {
+    			int middle = (low + high) >>> 1; // divide by 2
+    			if (transaction.items[middle] < e) {
+    				low = middle + 1;
+    			}else if (transaction.items[middle] == e) {
+    				positionE =  middle;
+    				break;
+    			}  else{
+    				high = middle - 1;
+    			}
+    		}
+    		// record the time spent for performing the binary search
+        	timeBinarySearch +=  System.currentTimeMillis() - timeBinaryLocal;
+        	
+        	// if 'e' was found in the transaction
+            if (positionE > -1  ) { 
+ 
+            	// optimization: if the 'e' is the last one in this transaction,
+            	// we don't keep the transaction
+				if(transaction.getLastPosition() == positionE){
+					// but we still update the sum of the utility of P U {e}
+					utilityPe  += transaction.utilities[positionE] + transaction.prefixUtility;
+				}else{
+					// otherwise
+	            	if(activateTransactionMerging && MAXIMUM_SIZE_MERGING >= (transaction.end - positionE)){
+	            		
+		            	// we cut the transaction starting from position 'e'
+						// (after the previous transaction if there is one, as it is not yet in the database)
+						Transaction projectedTransaction = projectedDatabase.getTransaction(
+								previousTransaction == null ? projectedDatabase.size : projectedDatabase.size + 1);
+						projectedTransaction.project(transaction, positionE);
+						utilityPe  += projectedTransaction.prefixUtility;
+						
+						// if it is the first transaction that we read
+						if(previousTransaction == null){
+							// we keep the transaction in memory 
+							previousTransaction = projectedTransaction;
+						}else if (isEqualTo(projectedTransaction, previousTransaction)){
+							// If it is not the first transaction of the database and 
+							// if the transaction is equal to the previously read transaction,
+							// we will merge the transaction with the previous one
 							
-							// if it is the first transaction that we read
-							if(previousTransaction == null){
-								// we keep the transaction in memory 
-								previousTransaction = projectedTransaction;
-							}else if (isEqualTo(projectedTransaction, previousTransaction)){
-								// If it is not the first transaction of the database and 
-								// if the transaction is equal to the previously read transaction,
-								// we will merge the transaction with the previous one
-								
-								// increase the number of consecutive transactions merged
-								mergeCount++;
+							// increase the number of consecutive transactions merged
+							mergeCount++;
+							
+							// if the first consecutive merge
+							if(consecutiveMergeCount == 0){
+								// copy items and their profit from the previous transaction
+								int itemsCount = previousTransaction.end - previousTransaction.offset;
+								int start = projectedDatabase.allocate(itemsCount);
+								int[] items = projectedDatabase.items;
+								System.arraycopy(previousTransaction.items, previousTransaction.offset, items, start, itemsCount);
+								int[] utilities = projectedDatabase.utilities;
+								System.arraycopy(previousTransaction.utilities, previousTransaction.offset, utilities, start, itemsCount);
 								
-								// if the first consecutive merge
-								if(consecutiveMergeCount == 0){
-									// copy items and their profit from the previous transaction
-									int itemsCount = previousTransaction.items.length - previousTransaction.offset;
-									int[] items = new int[itemsCount];
-									System.arraycopy(previousTransaction.items, previousTransaction.offset, items, 0, itemsCount);
-									int[] utilities = new int[itemsCount];
-									System.arraycopy(previousTransaction.utilities, previousTransaction.offset, utilities, 0, itemsCount);
-									
-									// make the sum of utilities from the previous transaction
-							    	int positionPrevious = 0;
-									int positionProjection = projectedTransaction.offset;
-									while(positionPrevious < itemsCount){
-										utilities[positionPrevious] += projectedTransaction.utilities[positionProjection];
-										positionPrevious++;
-										positionProjection++;
-									}
-									
-									// make the sum of prefix utilities
-									int sumUtilities = previousTransaction.prefixUtility += projectedTransaction.prefixUtility;
-									
-									// create the new transaction replacing the two merged transactions
-									previousTransaction = new Transaction(items, utilities, previousTransaction.transactionUtility + projectedTransaction.transactionUtility);
-									previousTransaction.prefixUtility = sumUtilities;	
-	
-								}else{
-									// if not the first consecutive merge
-	
-									// add the utilities in the projected transaction to the previously
-									// merged transaction
-							    	int positionPrevious = 0;
-									int positionProjected = projectedTransaction.offset;
-									int itemsCount = previousTransaction.items.length;
-									while(positionPrevious < itemsCount){
-										previousTransaction.utilities[positionPrevious] += projectedTransaction.utilities[positionProjected];
-										positionPrevious++;
-										positionProjected++;
-									}
-									
-									// make also the sum of transaction utility and prefix utility
-									previousTransaction.transactionUtility += projectedTransaction.transactionUtility;
-									previousTransaction.prefixUtility += projectedTransaction.prefixUtility;	
+								// make the sum of utilities from the previous transaction
+						    	int positionPrevious = start;
+								int positionProjection = projectedTransaction.offset;
+								while(positionPrevious < start + itemsCount){
+									utilities[positionPrevious] += projectedTransaction.utilities[positionProjection];
+									positionPrevious++;
+									positionProjection++;
 								}
-								// increment the number of consecutive transaction merged
-								consecutiveMergeCount++;
+								
+								// replace the previous transaction by the transaction replacing the two merged transactions
+								previousTransaction.items = items;
+								previousTransaction.utilities = utilities;
+								previousTransaction.offset = start;
+								previousTransaction.end = start + itemsCount;
+								previousTransaction.transactionUtility += projectedTransaction.transactionUtility;
+								previousTransaction.prefixUtility += projectedTransaction.prefixUtility;
 							}else{
-								// if the transaction is not equal to the preceding transaction
-								// we cannot merge it so we just add it to the database
-								transactionsPe.add(previousTransaction);
-								// the transaction becomes the previous transaction
-								previousTransaction = projectedTransaction;
-								// and we reset the number of consecutive transactions merged
-								consecutiveMergeCount = 0;
+								// if not the first consecutive merge
+
+								// add the utilities in the projected transaction to the previously
+								// merged transaction
+						    	int positionPrevious = previousTransaction.offset;
+								int positionProjected = projectedTransaction.offset;
+								while(positionPrevious < previousTransaction.end){
+									previousTransaction.utilities[positionPrevious] += projectedTransaction.utilities[positionProjected];
+									positionPrevious++;
+									positionProjected++;
+								}
+								
+								// make also the sum of transaction utility and prefix utility
+								previousTransaction.transactionUtility += projectedTransaction.transactionUtility;
+								previousTransaction.prefixUtility += projectedTransaction.prefixUtility;	
 							}
+							// increment the number of consecutive transaction merged
+							consecutiveMergeCount++;
 						}else{
-			            	// Otherwise, if merging has been deactivated
-							// then we just create the projected transaction
-							Transaction projectedTransaction = new Transaction(transaction, positionE);
-							// we add the utility of Pe in that transaction to the total utility of Pe
-							utilityPe  += projectedTransaction.prefixUtility;
-							// we put the projected transaction in the projected database of Pe
-							transactionsPe.add(projectedTransaction);
+							// if the transaction is not equal to the preceding transaction
+							// we cannot merge it so we just add the preceding transaction to the database
+							projectedDatabase.size++;
+							// the transaction becomes the previous transaction
+							previousTransaction = projectedTransaction;
+							// and we reset the number of consecutive transactions merged
+							consecutiveMergeCount = 0;
 						}
+					}else{
+		            	// Otherwise, if merging has been deactivated
+						// then we just create the projected transaction
+						// (before the previous transaction if there is one, as it is not yet in the database)
+						Transaction projectedTransaction;
+						if(previousTransaction == null) {
+							projectedTransaction = projectedDatabase.getTransaction(projectedDatabase.size);
+						}else {
+							projectedTransaction = projectedDatabase.getTransaction(projectedDatabase.size + 1);
+							projectedDatabase.swap(projectedDatabase.size, projectedDatabase.size + 1);
+						}
+						projectedTransaction.project(transaction, positionE);
+						// we add the utility of Pe in that transaction to the total utility of Pe
+						utilityPe  += projectedTransaction.prefixUtility;
+						// we put the projected transaction in the projected database of Pe
+						projectedDatabase.size++;
 					}
-					// This is an optimization for binary search:
-					// we remember the position of E so that for the next item, we will not search
-					// before "e" in the transaction since items are visited in lexicographical order
-		            transaction.offset = positionE;   
-	            }else{
-					// This is an optimization for binary search:
-					// we remember the position of E so that for the next item, we will not search
-					// before "e" in the transaction since items are visited in lexicographical order
-	            	transaction.offset = low;
-	            }
-	        }
-	        // remember the total time for peforming the database projection
-	        timeIntersections += (System.currentTimeMillis() - timeFirstIntersection);
-
-	        // Add the last read transaction to the database if there is one
-	        if(previousTransaction != null){
-	        	transactionsPe.add(previousTransaction);
-	        }
-	        
-	        // Append item "e" to P to obtain P U {e}
-	        // but at the same time translate from new name of "e"  to its old name
-	        temp[prefixLength] = newNamesToOldNames[e];
+				}
+				// This is an optimization for binary search:
+				// we remember the position of E so that for the next item, we will not search
+				// before "e" in the transaction since items are visited in lexicographical order
+				// (the transactions of the database are not modified if they are shared with other threads)
+				if(prefixLength > 0 || sharedDatabase == false) {
+					transaction.offset = positionE;
+				}
+            }else if(prefixLength > 0 || sharedDatabase == false) {
+				// This is an optimization for binary search:
+				// we remember the position of E so that for the next item, we will not search
+				// before "e" in the transaction since items are visited in lexicographical order
+            	transaction.offset = low;
+            }
+        }
+        // remember the total time for peforming the database projection
+        timeIntersections += (System.currentTimeMillis() - timeFirstIntersection);
+
+        // Add the last read transaction to the database if there is one
+        if(previousTransaction != null){
+        	projectedDatabase.size++;
+        }
+        
+        // Append item "e" to P to obtain P U {e}
+        // but at the same time translate from new name of "e"  to its old name
+        temp[prefixLength] = newNamesToOldNames[e];
      
-	        // if the utility of PU{e} is enough to be a high utility itemset
-	        if(utilityPe  >= minUtil)
-	        {
-	        	// output PU{e}
-	        	output(prefixLength, utilityPe );
-	        }
-
-			//==== Next, we will calculate the Local Utility and Sub-tree utility of
-	        // all items that could be appended to PU{e} ====
-	        useUtilityBinArraysToCalculateUpperBounds(transactionsPe, j, itemsToKeep);  
-			
-	        // we now record time for identifying promising items
-			long initialTime = System.currentTimeMillis();
-			
-			// We will create the new list of secondary items
-			List<Integer> newItemsToKeep = new ArrayList<Integer>();
-			// We will create the new list of primary items
-			List<Integer> newItemsToExplore = new ArrayList<Integer>();
-			
-			// for each item
-	    	for (int k = j+1; k < itemsToKeep.size(); k++) {
-	        	Integer itemk =  itemsToKeep.get(k);
-	        	
-	        	// if the sub-tree utility is no less than min util
-	            if(utilityBinArraySU[itemk] >= minUtil) {
-	            	// and if sub-tree utility pruning is activated
-	            	if(activateSubtreeUtilityPruning){
-	            		// consider that item as a primary item
-	            		newItemsToExplore.add(itemk);
-	            	}
-	            	// consider that item as a secondary item
-	            	newItemsToKeep.add(itemk);
-	            }else if(utilityBinArrayLU[itemk] >= minUtil)
-	            {
-	            	// otherwise, if local utility is no less than minutil,
-	            	// consider this itemt to be a secondary item
-	            	newItemsToKeep.add(itemk);
-	            }
-	        }
-	    	// update the total time  for identifying promising items
-	    	timeIdentifyPromisingItems +=  (System.currentTimeMillis() -  initialTime);
-			
-			// === recursive call to explore larger itemsets
-	    	if(activateSubtreeUtilityPruning){
-	    		// if sub-tree utility pruning is activated, we consider primary and secondary items
-	    		backtrackingEFIM(transactionsPe, newItemsToKeep, newItemsToExplore,prefixLength+1);
-	    	}else{
-	    		// if sub-tree utility pruning is deactivated, we consider secondary items also
-	    		// as primary items
-	    		backtrackingEFIM(transactionsPe, newItemsToKeep, newItemsToKeep,prefixLength+1);
-	    	}
-		}
+        // if the utility of PU{e} is enough to be a high utility itemset
+        if(utilityPe  >= minUtil)
+        {
+        	// output PU{e}
+        	output(prefixLength, utilityPe );
+        }
 
-		// check the maximum memory usage for statistics purpose
-		MemoryLogger.getInstance().checkMemory();
+		//==== Next, we will calculate the Local Utility and Sub-tree utility of
+        // all items that could be appended to PU{e} ====
+        useUtilityBinArraysToCalculateUpperBounds(projectedDatabase.transactions, projectedDatabase.size, 
+        		j, itemsToKeep, itemsToKeepCount);  
+		
+        // we now record time for identifying promising items
+		long initialTime = System.currentTimeMillis();
+		
+		// We will create the new list of secondary items
+		// and the new list of primary items
+		projectedDatabase.ensureItemCapacity(itemsToKeepCount);
+		int[] newItemsToKeep = projectedDatabase.itemsToKeep;
+		int[] newItemsToExplore = projectedDatabase.itemsToExplore;
+		int newItemsToKeepCount = 0;
+		int newItemsToExploreCount = 0;
+		
+		// for each item
+    	for (int k = j+1; k < itemsToKeepCount; k++) {
+        	int itemk =  itemsToKeep[k];
+        	
+        	// if the sub-tree utility is no less than min util
+            if(utilityBinArraySU[itemk] >= minUtil) {
+            	// and if sub-tree utility pruning is activated
+            	if(activateSubtreeUtilityPruning){
+            		// consider that item as a primary item
+            		newItemsToExplore[newItemsToExploreCount++] = itemk;
+            	}
+            	// consider that item as a secondary item
+            	newItemsToKeep[newItemsToKeepCount++] = itemk;
+            }else if(utilityBinArrayLU[itemk] >= minUtil)
+            {
+            	// otherwise, if local utility is no less than minutil,
+            	// consider this itemt to be a secondary item
+            	newItemsToKeep[newItemsToKeepCount++] = itemk;
+            }
+        }
+    	// update the total time  for identifying promising items
+    	timeIdentifyPromisingItems +=  (System.currentTimeMillis() -  initialTime);
+		
+		// === recursive call to explore larger itemsets
+    	if(activateSubtreeUtilityPruning){
+    		// if sub-tree utility pruning is activated, we consider primary and secondary items
+    		backtrackingEFIM(projectedDatabase.transactions, projectedDatabase.size, newItemsToKeep, newItemsToKeepCount,
+    				newItemsToExplore, newItemsToExploreCount, prefixLength+1);
+    	}else{
+    		// if sub-tree utility pruning is deactivated, we consider secondary items also
+    		// as primary items
+    		backtrackingEFIM(projectedDatabase.transactions, projectedDatabase.size, newItemsToKeep, newItemsToKeepCount,
+    				newItemsToKeep, newItemsToKeepCount, prefixLength+1);
+    	}
+    }
+
+    /**
+     * Explore the primary items of the database in parallel. An item is explored by a task,
+     * and each thread has its own utility-bin arrays and projected databases (see {@link #createWorker()}).
+     * @param transactions the transactions of the database
+	 * @param itemsToKeep the secondary items
+	 * @param itemsToExplore the primary items
+     * @throws IOException if error writing to output file
+     */
+    private void backtrackingEFIMParallel(final Transaction[] transactions, final int[] itemsToKeep, 
+    		final int[] itemsToExplore) throws IOException {
+    	// update the number of candidates explored so far
+    	candidateCount += itemsToExplore.length;
+    	
+    	// the object used by each thread to explore items
+    	final List<AlgoEFIM> workers = Collections.synchronizedList(new ArrayList<AlgoEFIM>());
+    	final ThreadLocal<AlgoEFIM> workerOfThread = ThreadLocal.withInitial(() -> {
+    		AlgoEFIM worker = createWorker();
+    		workers.add(worker);
+    		return worker;
+    	});
+    	
+    	ForkJoinPool pool = new ForkJoinPool(threadCount);
+    	try {
+    		// submit the items in the order used by the sequential algorithm
+    		List<ForkJoinTask<List<Itemset>>> branches = new ArrayList<ForkJoinTask<List<Itemset>>>();
+    		for(int j = 0; j < itemsToExplore.length; j++) {
+    			final int position = j;
+    			branches.add(pool.submit(() -> {
+    				AlgoEFIM worker = workerOfThread.get();
+    				worker.collectedItemsets = new ArrayList<Itemset>();
+    				worker.exploreItem(transactions, transactions.length, itemsToKeep, itemsToKeep.length, 
+    						itemsToExplore, position, 0);
+    				List<Itemset> itemsets = worker.collectedItemsets;
+    				worker.collectedItemsets = null;
+    				return itemsets;
+    			}));
+    		}
+    		
+    		// save the high-utility itemsets of each item in the order of the sequential algorithm
+    		for(int i = 0; i < branches.size(); i++) {
+    			List<Itemset> itemsets;
+    			try {
+    				itemsets = branches.get(i).get();
+    			} catch (InterruptedException e) {
+    				Thread.currentThread().interrupt();
+    				throw new IOException("Interrupted while mining high-utility itemsets in parallel", e);
+    			} catch (ExecutionException e) {
+    				if(e.getCause() instanceof IOException) {
+    					throw (IOException) e.getCause();
+    				}
+    				if(e.getCause() instanceof RuntimeException) {
+    					throw (RuntimeException) e.getCause();
+    				}
+    				if(e.getCause() instanceof Error) {
+    					throw (Error) e.getCause();
+    				}
+    				throw new IOException(e.getCause());
+    			}
+    			// the task is not needed anymore
+    			branches.set(i, null);
+    			
+    			for(Itemset itemset : itemsets) {
+    				saveItemset(itemset);
+    			}
+    			// check the memory usage
+    			MemoryLogger.getInstance().checkMemory();
+    		}
+    	}finally {
+    		pool.shutdownNow();
+    	}
+    	
+    	// add the statistics of the threads
+    	for(AlgoEFIM worker : workers) {
+    		candidateCount += worker.candidateCount;
+    		mergeCount += worker.mergeCount;
+    		transactionReadingCount += worker.transactionReadingCount;
+    		timeIntersections += worker.timeIntersections;
+    		timeDatabaseReduction += worker.timeDatabaseReduction;
+    		timeIdentifyPromisingItems += worker.timeIdentifyPromisingItems;
+    		timeBinarySearch += worker.timeBinarySearch;
+    	}
+    }
+    
+    /**
+     * Create an object to explore items in a thread of the parallel mining. It shares the parameters,
+     * the (read only) names of items and the transactions of the database with this object, 
+     * but has its own utility-bin arrays and projected databases.
+     * @return the object
+     */
+    private AlgoEFIM createWorker() {
+    	AlgoEFIM worker = new AlgoEFIM();
+    	worker.minUtil = minUtil;
+    	worker.activateTransactionMerging = activateTransactionMerging;
+    	worker.activateSubtreeUtilityPruning = activateSubtreeUtilityPruning;
+    	worker.newNamesToOldNames = newNamesToOldNames;
+    	worker.newItemCount = newItemCount;
+    	worker.utilityBinArraySU = new int[newItemCount + 1];
+    	worker.utilityBinArrayLU = new int[newItemCount + 1];
+    	worker.frames = new ProjectedDatabase[newItemCount + 1];
+    	worker.sharedDatabase = true;
+    	return worker;
+    }
+
+    /**
+     * Convert a list of items to an array
+     * @param items the list
+     * @return the array
+     */
+    private static int[] toArray(List<Integer> items) {
+    	int[] array = new int[items.size()];
+    	for(int i = 0; i < array.length; i++) {
+    		array[i] = items.get(i);
+    	}
+    	return array;
     }
 
 
@@ -676,8 +875,8 @@ public class AlgoEFIM {
      */
     private boolean isEqualTo(Transaction t1, Transaction t2) {
     	// we first compare the transaction lenghts
-		int length1 = t1.items.length - t1.offset;
-		int length2 = t2.items.length - t2.offset;
+		int length1 = t1.end - t1.offset;
+		int length2 = t2.end - t2.offset;
 		// if not same length, then transactions are not identical
     	if(length1 != length2){
     		return false;
@@ -688,7 +887,7 @@ public class AlgoEFIM {
 		int position2 = t2.offset;
 		
 		// for each position in the first transaction
-		while(position1 < t1.items.length){
+		while(position1 < t1.end){
 			// if different from corresponding position in transaction 2
 			// return false because they are not identical
 			if(t1.items[position1]  != t2.items[position2]){
@@ -755,19 +954,21 @@ public class AlgoEFIM {
     /**
      * Utilize the utility-bin arrays to calculate the sub-tree utility and local utility of all
      * items that can extend itemset P U {e}
-     * @param transactions the projected database for P U {e}
+     * @param transactionsPe the projected database for P U {e}
+     * @param transactionCountPe the number of transactions in the projected database
      * @param j the position of j in the list of promising items
-     * @param itemsToKeep the list of promising items
+     * @param itemsToKeep the promising items
+     * @param itemsToKeepCount the number of promising items
      */
-    private void useUtilityBinArraysToCalculateUpperBounds(List<Transaction> transactionsPe, 
-    		int j, List<Integer> itemsToKeep) {
+    private void useUtilityBinArraysToCalculateUpperBounds(Transaction[] transactionsPe, int transactionCountPe,
+    		int j, int[] itemsToKeep, int itemsToKeepCount) {
 
     	// we will record the time used by this method for statistics purpose
 		long initialTime = System.currentTimeMillis();
 		
 		// For each promising item > e according to the total order
-		for (int i = j + 1; i < itemsToKeep.size(); i++) {
-			Integer item = itemsToKeep.get(i);
+		for (int i = j + 1; i < itemsToKeepCount; i++) {
+			int item = itemsToKeep[i];
 			// We reset the utility bins of that item for computing the sub-tree utility and
 			// local utility
 			utilityBinArraySU[item] = 0;
@@ -776,18 +977,19 @@ public class AlgoEFIM {
 
 		int sumRemainingUtility;
 		// for each transaction
-		for (Transaction transaction : transactionsPe) {
+		for (int t = 0; t < transactionCountPe; t++) {
+			Transaction transaction = transactionsPe[t];
 			// count the number of transactions read
 			transactionReadingCount++;
 			
 			// We reset the sum of reamining utility to 0;
 			sumRemainingUtility = 0;
 			// we set high to the last promising item for doing the binary search
-			int high = itemsToKeep.size() - 1;
+			int high = itemsToKeepCount - 1;
 
 			// for each item in the transaction that is greater than i when reading the transaction backward
 			// Note: >= is correct here. It should not be >.
-			for (int i = transaction.getItems().length - 1; i >= transaction.offset; i--) {
+			for (int i = transaction.end - 1; i >= transaction.offset; i--) {
 				// get the item
 				int item = transaction.getItems()[i];
 				
@@ -801,7 +1003,7 @@ public class AlgoEFIM {
 				// do the binary search
 				while (high >= low) {
 					int middle = (low + high) >>> 1; // divide by 2
-					int itemMiddle = itemsToKeep.get(middle);
+					int itemMiddle = itemsToKeep[middle];
 					if (itemMiddle == item) {
 						// if we found the item, then we stop
 						contains = true;
@@ -831,10 +1033,20 @@ public class AlgoEFIM {
 
     /**
      * Save a high-utility itemset to file or memory depending on what the user chose.
-     * @param itemset the itemset
+     * @param tempPosition the position of the last item of the itemset in the temporary buffer
+     * @param utility the utility of the itemset
      * @throws IOException if error while writting to output file
      */
     private void output(int tempPosition, int utility) throws IOException {
+    	// if the itemset is found by a task of the parallel mining, it is kept
+    	// until it is saved by the thread that runs the algorithm
+    	if (collectedItemsets != null) {
+			int[] copy = new int[tempPosition+1];
+			System.arraycopy(temp, 0, copy, 0, tempPosition+1);
+			collectedItemsets.add(new Itemset(copy, utility));
+			return;
+    	}
+    	
         patternCount++;
             
         	// if user wants to save the results to memory
@@ -847,28 +1059,65 @@ public class AlgoEFIM {
 			highUtilityItemsets.addItemset(new Itemset(copy, utility),copy.length); 
 		} else {
 			// if user wants to save the results to file
-			// create a stringuffer
-			StringBuffer buffer = new StringBuffer();
-			// append each item from the itemset to the stringbuffer, separated by spaces
-			for (int i = 0; i <= tempPosition; i++) {
-				buffer.append(temp[i]);
-				if (i != tempPosition) {
-					buffer.append(' ');
-				}
-			}
-			// append the utility of the itemset
-			buffer.append(" #UTIL: ");
-			buffer.append(utility);
-			
-			// write the stringbuffer to file and create a new line
-			// so that we are ready for writing the next itemset.
-			writer.write(buffer.toString());
-			writer.newLine();
+			writeItemset(temp, tempPosition + 1, utility);
 		}
     }
 
+    /**
+     * Save a high-utility itemset found by a task of the parallel mining to file or memory 
+     * depending on what the user chose.
+     * @param itemset the itemset
+     * @throws IOException if error while writting to output file
+     */
+    private void saveItemset(Itemset itemset) throws IOException {
+        patternCount++;
+        
+		if (writer == null) {
+			highUtilityItemsets.addItemset(itemset, itemset.size()); 
+		} else {
+			writeItemset(itemset.getItems(), itemset.size(), (int) itemset.getUtility());
+		}
+    }
 
- 
+    /**
+     * Write a high-utility itemset to the output file
+     * @param itemset an array starting with the items of the itemset
+     * @param length the number of items
+     * @param utility the utility of the itemset
+     * @throws IOException if error while writting to output file
+     */
+    private void writeItemset(int[] itemset, int length, int utility) throws IOException {
+		// create a stringuffer
+		StringBuilder buffer = new StringBuilder();
+		// append each item from the itemset to the stringbuffer, separated by spaces
+		for (int i = 0; i < length; i++) {
+			buffer.append(itemset[i]);
+			if (i != length - 1) {
+				buffer.append(' ');
+			}
+		}
+		// append the utility of the itemset
+		buffer.append(" #UTIL: ");
+		buffer.append(utility);
+		
+		// write the stringbuffer to file and create a new line
+		// so that we are ready for writing the next itemset.
+		writer.write(buffer.toString());
+		writer.newLine();
+    }
+
+	/**
+	 * Set the number of threads used to explore the primary items of the database.
+	 * Each thread has its own utility-bin arrays and projected databases.
+	 * The result is the same as with a single thread (the default).
+	 * @param threadCount the number of threads (at least 1)
+	 */
+	public void setThreadCount(int threadCount) {
+		if(threadCount < 1) {
+			throw new IllegalArgumentException("The number of threads must be at least 1");
+		}
+		this.threadCount = threadCount;
+	}
  
     /**
      * Print statistics about the latest execution of the EFIM algorithm.
@@ -5,6 +5,8 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+
+import ca.pfv.spmf.input.transaction_database_binary.BinaryTransactionDatabase;
 /* This file is copyright (c) 2012-2015 Souleymane Zida, Philippe Fournier-Viger, Alan Souza
 * 
 * This file is part of the SPMF DATA MINING SOFTWARE
@@ -45,6 +47,17 @@ public class Dataset {
     	// Initialize a list to store transactions in memory
         transactions = new ArrayList<Transaction>();
         
+        // a binary transaction database is read through the memory-mapped reader
+        if(BinaryTransactionDatabase.isBinaryFile(datasetPath)) {
+        	BinaryTransactionDatabase database = BinaryTransactionDatabase.open(datasetPath);
+        	try {
+        		loadTransactions(database, maximumTransactionCount);
+        	}finally {
+        		database.close();
+        	}
+        	return;
+        }
+        
         // Create a buffered reader to read the input file
         BufferedReader br = new BufferedReader(new FileReader(datasetPath));
         String line;
@@ -70,6 +83,42 @@ public class Dataset {
         br.close();
     }
 
+    /**
+     * Constructor
+     * @param database a binary transaction database containing utility values
+     * @param maximumTransactionCount the number of transaction to be read from the database
+     */
+    public Dataset(BinaryTransactionDatabase database, int maximumTransactionCount) {
+    	transactions = new ArrayList<Transaction>();
+    	loadTransactions(database, maximumTransactionCount);
+    }
+
+    /**
+     * Read the transactions of a binary transaction database
+     * @param database the database (it must contain utility values)
+     * @param maximumTransactionCount the number of transaction to be read from the database
+     */
+    private void loadTransactions(BinaryTransactionDatabase database, int maximumTransactionCount) {
+    	int count = Math.min(database.size(), maximumTransactionCount);
+    	int[] buffer = new int[database.getMaxTransactionLength()];
+    	for(int tid = 0; tid < count; tid++) {
+    		int length = database.getTransaction(tid, buffer);
+    		int[] items = new int[length];
+    		System.arraycopy(buffer, 0, items, 0, length);
+    		int[] utilities = new int[length];
+    		database.getUtilities(tid, utilities);
+    		
+    		for(int item : items) {
+    			if(item > maxItem) {
+    				maxItem = item;
+    			}
+    		}
+    		transactions.add(new Transaction(items, utilities, database.getTransactionUtility(tid)));
+    	}
+        //****** Show the number of transactions in this dataset**************************//
+        System.out.println("Transaction count :" +  transactions.size());
+    }
+
     /**
      * Create a transaction object from a line from the input file
      * @param line a line from input file
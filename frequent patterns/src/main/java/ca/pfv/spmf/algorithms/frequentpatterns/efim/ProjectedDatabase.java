@@ -0,0 +1,120 @@
+package ca.pfv.spmf.algorithms.frequentpatterns.efim;
+
+import java.util.Arrays;
+
+/* This file is copyright (c) 2012-2015 Souleymane Zida & Philippe Fournier-Viger
+*
+* This file is part of the SPMF DATA MINING SOFTWARE
+* (http://www.philippe-fournier-viger.com/spmf).
+*
+* SPMF is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+* SPMF is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* SPMF. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+/**
+ * This class represents the projected database of an itemset P U {e} as used by EFIM,
+ * with the secondary and primary items of that database.
+ * <br/><br/>
+ *
+ * There is one projected database for each level of the recursion. It is reused for each
+ * itemset of the level, so that the projected transactions (and the arrays of items
+ * and utilities of the transactions obtained by merging transactions) are created only
+ * when the projected database becomes larger than the projected databases of the previous
+ * itemsets of the same level.
+ *
+ * @see AlgoEFIM
+ * @see Transaction
+ */
+class ProjectedDatabase {
+
+	/** the projected transactions (the objects after the size are reused later) */
+	Transaction[] transactions = new Transaction[16];
+	/** the number of projected transactions */
+	int size;
+
+	/** the items of the merged transactions */
+	int[] items = new int[64];
+	/** the utilities of the merged transactions */
+	int[] utilities = new int[64];
+	/** the number of positions used in the two previous arrays */
+	int mergedSize;
+
+	/** the secondary items of the projected database */
+	int[] itemsToKeep = new int[16];
+	/** the primary items of the projected database */
+	int[] itemsToExplore = new int[16];
+
+	/**
+	 * Remove all the transactions of this projected database
+	 */
+	void clear() {
+		size = 0;
+		mergedSize = 0;
+	}
+
+	/**
+	 * Get the transaction at a given position (a new transaction is created if there is none)
+	 * @param position the position
+	 * @return the transaction
+	 */
+	Transaction getTransaction(int position) {
+		if(position >= transactions.length) {
+			transactions = Arrays.copyOf(transactions, Math.max(position + 1, transactions.length * 2));
+		}
+		Transaction transaction = transactions[position];
+		if(transaction == null) {
+			transaction = new Transaction();
+			transactions[position] = transaction;
+		}
+		return transaction;
+	}
+
+	/**
+	 * Swap the transactions at two positions
+	 * @param position1 the first position
+	 * @param position2 the second position
+	 */
+	void swap(int position1, int position2) {
+		Transaction transaction = transactions[position1];
+		transactions[position1] = transactions[position2];
+		transactions[position2] = transaction;
+	}
+
+	/**
+	 * Reserve positions in the arrays of items and utilities of merged transactions.
+	 * If there is not enough space, the arrays are replaced by larger arrays,
+	 * but the previous arrays are not copied since they are still used by the transactions
+	 * that have already been merged.
+	 * @param count the number of positions
+	 * @return the first position
+	 */
+	int allocate(int count) {
+		if(mergedSize + count > items.length) {
+			int capacity = Math.max(count, items.length * 2);
+			items = new int[capacity];
+			utilities = new int[capacity];
+			mergedSize = 0;
+		}
+		int start = mergedSize;
+		mergedSize += count;
+		return start;
+	}
+
+	/**
+	 * Make sure that the arrays of secondary and primary items can contain a number of items
+	 * @param count the number of items
+	 */
+	void ensureItemCapacity(int count) {
+		if(itemsToKeep.length < count) {
+			itemsToKeep = new int[count];
+			itemsToExplore = new int[count];
+		}
+	}
+}
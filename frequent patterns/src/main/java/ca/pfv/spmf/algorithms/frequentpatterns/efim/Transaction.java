@@ -32,6 +32,9 @@ public class Transaction {
 	/** an offset pointer, used by projected transactions*/
 	int offset;
 	
+	/** the position after the last item of the transaction in the arrays of items and utilities */
+	int end;
+	
 	/** an array of items representing the transaction */
     int[] items;
     /** an array of utilities associated to items of the transaction */
@@ -54,9 +57,17 @@ public class Transaction {
     	this.utilities = utilities;
     	this.transactionUtility = transactionUtility;
     	this.offset = 0;
+    	this.end = items.length;
     	this.prefixUtility = 0;
     }
     
+    /**
+     * Constructor of an empty transaction (used for the transactions that
+     * are reused by the algorithm when projecting transactions)
+     */
+    Transaction() {
+    }
+    
     
     /**
      * Constructor for a projected transaction
@@ -65,9 +76,21 @@ public class Transaction {
      * @param offsetE an offset over the original transaction for projecting the transaction
      */
     public Transaction(Transaction transaction, int offsetE) {	
+    	project(transaction, offsetE);
+    }
+    
+    /**
+     * Make this transaction the projection of a transaction. This is the same
+     * as creating a projected transaction, but this object is reused.
+     * @param transaction the transaction that will be projected (it may be an original transaction
+     * or a previously projected transaction
+     * @param offsetE an offset over the original transaction for projecting the transaction
+     */
+    void project(Transaction transaction, int offsetE) {
     	// copy items and utilities from the original transaction
     	this.items = transaction.getItems();
     	this.utilities = transaction.getUtilities();
+    	this.end = transaction.end;
     	
     	// copy the utility of element e
     	int utilityE = this.utilities[offsetE];
@@ -92,7 +115,7 @@ public class Transaction {
      */
      public String toString() {
 		StringBuilder buffer = new StringBuilder();
-		 for (int i = offset; i < items.length; i++) {
+		 for (int i = offset; i < end; i++) {
 			 buffer.append(items[i]);
 			 buffer.append("[");
 			 buffer.append(utilities[i]);
@@ -127,7 +150,7 @@ public class Transaction {
      * @return the last position (the number of items -1 )
      */
     public int getLastPosition(){
-    	return items.length -1;
+    	return end -1;
     }
 
     /**
@@ -161,6 +184,7 @@ public class Transaction {
     	}
     	// copy the buffer of items back into the original array
     	this.items = new int[i];
+    	this.end = i;
     	System.arraycopy(tempItems, 0, this.items, 0, i);
     	
     	// copy the buffer of utilities back into the original array
@@ -31,7 +31,12 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
 
+import ca.pfv.spmf.input.transaction_database_binary.BinaryTransactionDatabase;
 import ca.pfv.spmf.patterns.itemset_array_integers_with_count.Itemset;
 import ca.pfv.spmf.patterns.itemset_array_integers_with_count.Itemsets;
 import ca.pfv.spmf.tools.MemoryLogger;
@@ -51,6 +56,19 @@ import ca.pfv.spmf.tools.MemoryLogger;
  * 
  * I have tried to follow the paper as much as possible. However, I did not
  * use the FPArray optimization
+ * <br/><br/>
+ * 
+ * The database can be projected into partitions on disk, which are mined one after
+ * the other, when its FP-tree does not fit in memory (see {@link #setDiskPartitions(int, String)}).
+ * <br/><br/>
+ * 
+ * The initial FP-tree can be built and mined by several threads (see {@link #setThreadCount(int)}).
+ * In that case, the FP-tree is built by a {@link FPTreeBuilder}, and each item of the header table of the initial tree (a branch) is mined by a task
+ * of a ForkJoinPool that has its own CFI-tree. The closed itemsets of a branch are only
+ * checked against the closed itemsets of the same branch by the task. They are then checked
+ * against the global CFI-tree by the calling thread, one branch after the other,
+ * in the same order as the sequential algorithm, to remove those that are
+ * subsets of a closed itemset of another branch having the same support.
  *
  * @see FPTree
  * @see Itemset
@@ -94,6 +112,32 @@ public class AlgoFPClose {
 	// If set to true, the algorithm will show  information for debugging in the console
 	private final boolean DEBUG = false;
 	
+	// If set to true, the algorithm uses a PrimitiveFPTree instead of a FPTree
+	private boolean usePrimitiveFPTree = false;
+	
+	// The ranking of frequent items (used with the PrimitiveFPTree)
+	private ItemRanking ranking = null;
+	
+	// Buffer for storing a prefix path when building a conditional PrimitiveFPTree
+	private int[] pathBuffer = null;
+	
+	// The number of threads used to build and mine the initial FP-tree (1 = sequential mining)
+	private int threadCount = 1;
+	
+	// The number of partitions of the database on disk (0 = the database is not partitioned)
+	private int partitionCount = 0;
+	
+	// The directory of the partition files (null = the temporary directory of the system)
+	private String partitionDirectory = null;
+	
+	// If not null, the closed itemsets found are added to this list instead of being saved
+	// (used by the tasks of the parallel mining and by FPCloseSession)
+	private List<Itemset> collectedItemsets = null;
+	
+	// If not null, the closed itemsets found are given to this consumer instead of being saved
+	// (they are given by the thread that runs the algorithm, in the order of the output file)
+	private Consumer<Itemset> itemsetConsumer = null;
+	
 	// Comparator to compare the items based on the order of decreasing support in the original DB.
 	Comparator<Integer> comparatorOriginalOrder = new Comparator<Integer>(){
 		public int compare(Integer item1, Integer item2){
@@ -125,24 +169,20 @@ public class AlgoFPClose {
 	 * @throws IOException exception if error reading or writing files
 	 */
 	public Itemsets runAlgorithm(String input, String output, double minsupp) throws FileNotFoundException, IOException {
-		// record start time
-		startTimestamp = System.currentTimeMillis();
-		// number of itemsets found
-		itemsetCount = 0;
-		
-		//initialize tool to record memory usage
-		MemoryLogger.getInstance().reset();
-		MemoryLogger.getInstance().checkMemory();
-		
-		// if the user want to keep the result into memory
-		if(output == null){
-			writer = null;
-			patterns =  new Itemsets("FREQUENT ITEMSETS");
-	    }else{ // if the user want to save the result to a file
-			patterns = null;
-			writer = new BufferedWriter(new FileWriter(output)); 
+		// if the input is a binary transaction database, it is read through 
+		// the memory-mapped reader instead of being parsed
+		if(BinaryTransactionDatabase.isBinaryFile(input)) {
+			BinaryTransactionDatabase database = BinaryTransactionDatabase.open(input);
+			try {
+				return runAlgorithm(database, output, minsupp);
+			}finally {
+				database.close();
+			}
 		}
 		
+		// prepare the output and the statistics
+		initialize(output);
+		
 		// (1) PREPROCESSING: Initial database scan to determine the frequency of each item
 		// The frequency is stored in a map:
 		//    key: item   value: support
@@ -155,6 +195,28 @@ public class AlgoFPClose {
 
 		// Create the CFI Tree
 		cfiTree = new CFITree();	
+		cfiTree.setComparator(comparatorOriginalOrder);
+		
+		// if the primitive FP-tree is used, the items are replaced by their ranks
+		// and the tree is built with a single scan of the file
+		if(usePrimitiveFPTree) {
+			ranking = new ItemRanking(originalMapSupport, minSupportRelative);
+			PrimitiveFPTree tree = new PrimitiveFPTree(ranking.size());
+			tree.addTransactions(input, ranking);
+			return minePrimitiveTree(tree);
+		}
+		
+		// if the database is projected into partitions on disk, the partitions are mined one by one
+		if(partitionCount > 0) {
+			return mineDiskPartitions(input);
+		}
+		
+		// if several threads are used, the parts of the file are read by several threads
+		// and their FP-trees are merged
+		if(threadCount > 1) {
+			FPTree tree = new FPTreeBuilder(originalMapSupport, minSupportRelative, threadCount).build(input);
+			return mineInitialTree(tree);
+		}
 		
 		// (2) Scan the database again to build the initial FP-Tree
 		// Before inserting a transaction in the FPTree, we sort the items
@@ -191,10 +253,205 @@ public class AlgoFPClose {
 			tree.addTransaction(transaction);
 		}
 		
-		cfiTree.setComparator(comparatorOriginalOrder);
 		// close the input file
 		reader.close();
 		
+		// mine the tree
+		return mineInitialTree(tree);
+	}
+	
+	/**
+	 * Method to run the FPClose algorithm on a binary transaction database.
+	 * The support of single items is read from the database, so the database
+	 * is only scanned once, to build the initial FP-tree.
+	 * @param database a binary transaction database.
+	 * @param output the output file path for saving the result (if null, the result 
+	 *        will be returned by the method instead of being saved).
+	 * @param minsupp the minimum support threshold.
+	 * @return the result if no output file path is provided.
+	 * @throws IOException exception if error writing the output file
+	 */
+	public Itemsets runAlgorithm(BinaryTransactionDatabase database, String output, double minsupp) throws IOException {
+		// prepare the output and the statistics
+		initialize(output);
+		
+		// (1) The support of single items was calculated when the database was written
+		originalMapSupport = database.getItemSupportMap();
+		transactionCount = database.size();
+
+		// convert the minimum support as percentage to a
+		// relative minimum support
+		this.minSupportRelative = (int) Math.ceil(minsupp * transactionCount);
+		
+		// Create the CFI Tree
+		cfiTree = new CFITree();	
+		cfiTree.setComparator(comparatorOriginalOrder);
+		
+		// if the primitive FP-tree is used, the items are replaced by their ranks
+		if(usePrimitiveFPTree) {
+			ranking = new ItemRanking(originalMapSupport, minSupportRelative);
+			PrimitiveFPTree tree = new PrimitiveFPTree(ranking.size());
+			tree.addTransactions(database, ranking);
+			return minePrimitiveTree(tree);
+		}
+		
+		// (2) Scan the database to build the initial FP-Tree
+		FPTree tree = new FPTree();
+		int[] buffer = new int[database.getMaxTransactionLength()];
+		for(int tid = 0; tid < transactionCount; tid++) {
+			int length = database.getTransaction(tid, buffer);
+			List<Integer> transaction = new ArrayList<Integer>(length);
+			
+			// for each item in the transaction
+			for(int i = 0; i < length; i++) {
+				// only add items that have the minimum support
+				if(originalMapSupport.get(buffer[i]) >= minSupportRelative){
+					transaction.add(buffer[i]);	
+				}
+			}
+			// sort item in the transaction by descending order of support
+			Collections.sort(transaction, comparatorOriginalOrder);
+			// add the sorted transaction to the fptree.
+			tree.addTransaction(transaction);
+		}
+		
+		// mine the tree
+		return mineInitialTree(tree);
+	}
+	
+	/**
+	 * Method to run the FPClose algorithm on transactions that are already in memory.
+	 * The transactions are read twice: once to calculate the support of single items and
+	 * once to build the initial FP-tree.
+	 * @param transactions the transactions, each one is an array of items (empty transactions are ignored,
+	 *        as the empty lines of a file). The arrays are not modified.
+	 * @param output the output file path for saving the result (if null, the result 
+	 *        will be returned by the method instead of being saved).
+	 * @param minsupp the minimum support threshold.
+	 * @return the result if no output file path is provided.
+	 * @throws IOException exception if error writing the output file
+	 */
+	public Itemsets runAlgorithm(List<int[]> transactions, String output, double minsupp) throws IOException {
+		// prepare the output and the statistics
+		initialize(output);
+		
+		// (1) Calculate the support of each item
+		originalMapSupport = new HashMap<Integer, Integer>();
+		transactionCount = 0;
+		for(int[] transaction : transactions) {
+			if(transaction.length == 0) {
+				continue;
+			}
+			for(int item : transaction) {
+				Integer count = originalMapSupport.get(item);
+				originalMapSupport.put(item, count == null ? 1 : count + 1);
+			}
+			transactionCount++;
+		}
+
+		// convert the minimum support as percentage to a
+		// relative minimum support
+		this.minSupportRelative = (int) Math.ceil(minsupp * transactionCount);
+		
+		// Create the CFI Tree
+		cfiTree = new CFITree();	
+		cfiTree.setComparator(comparatorOriginalOrder);
+		
+		// if the primitive FP-tree is used, the items are replaced by their ranks
+		if(usePrimitiveFPTree) {
+			ranking = new ItemRanking(originalMapSupport, minSupportRelative);
+			PrimitiveFPTree tree = new PrimitiveFPTree(ranking.size());
+			tree.addTransactions(transactions, ranking);
+			return minePrimitiveTree(tree);
+		}
+		
+		// (2) Build the initial FP-Tree
+		FPTree tree = new FPTree();
+		for(int[] transaction : transactions) {
+			if(transaction.length == 0) {
+				continue;
+			}
+			List<Integer> sortedTransaction = new ArrayList<Integer>(transaction.length);
+			
+			// for each item in the transaction
+			for(int item : transaction) {
+				// only add items that have the minimum support
+				if(originalMapSupport.get(item) >= minSupportRelative){
+					sortedTransaction.add(item);	
+				}
+			}
+			// sort item in the transaction by descending order of support
+			Collections.sort(sortedTransaction, comparatorOriginalOrder);
+			// add the sorted transaction to the fptree.
+			tree.addTransaction(sortedTransaction);
+		}
+		
+		// mine the tree
+		return mineInitialTree(tree);
+	}
+	
+	/**
+	 * Method to run the FPClose algorithm on a PrimitiveFPTree that has already been built,
+	 * for example on a part of a database (used by AlgoFPCloseSegments).
+	 * @param tree the FP-tree, built with the ranks of the ranking
+	 * @param ranking the ranking of the frequent items
+	 * @param mapSupport the support of each item in the database (key: item, value: support)
+	 * @param transactionCount the number of transactions in the database
+	 * @param minSupportRelative the minimum support, as a number of transactions
+	 * @param output the output file path for saving the result (if null, the result 
+	 *        will be returned by the method instead of being saved).
+	 * @return the result if no output file path is provided.
+	 * @throws IOException exception if error writing the output file
+	 */
+	Itemsets runAlgorithm(PrimitiveFPTree tree, ItemRanking ranking, Map<Integer, Integer> mapSupport, 
+			int transactionCount, int minSupportRelative, String output) throws IOException {
+		// prepare the output and the statistics
+		initialize(output);
+		
+		this.originalMapSupport = mapSupport;
+		this.transactionCount = transactionCount;
+		this.minSupportRelative = minSupportRelative;
+		this.ranking = ranking;
+		
+		// Create the CFI Tree
+		cfiTree = new CFITree();	
+		cfiTree.setComparator(comparatorOriginalOrder);
+		
+		return minePrimitiveTree(tree);
+	}
+	
+	/**
+	 * Reset the statistics and open the output file (if any) before an execution
+	 * @param output the output file path or null to keep the result into memory
+	 * @throws IOException exception if error opening the output file
+	 */
+	private void initialize(String output) throws IOException {
+		// record start time
+		startTimestamp = System.currentTimeMillis();
+		// number of itemsets found
+		itemsetCount = 0;
+		
+		//initialize tool to record memory usage
+		MemoryLogger.getInstance().reset();
+		MemoryLogger.getInstance().checkMemory();
+		
+		// if the user want to keep the result into memory
+		if(output == null){
+			writer = null;
+			patterns =  new Itemsets("FREQUENT ITEMSETS");
+	    }else{ // if the user want to save the result to a file
+			patterns = null;
+			writer = new BufferedWriter(new FileWriter(output)); 
+		}
+	}
+	
+	/**
+	 * Mine the initial FP-tree, then close the output file.
+	 * @param tree the initial FP-tree
+	 * @return the result if no output file path is provided.
+	 * @throws IOException exception if error writing the output file
+	 */
+	private Itemsets mineInitialTree(FPTree tree) throws IOException {
 		// We create the header table for the tree using the calculated support of single items
 		tree.createHeaderList(originalMapSupport);
 		
@@ -208,8 +465,14 @@ public class AlgoFPClose {
 			// initialize the buffer for storing the current itemset
 			itemsetBuffer = new int[BUFFERS_SIZE];
 			countBuffer = new int[BUFFERS_SIZE];
-			// Next we will recursively generate frequent itemsets using the fp-tree
-			fpclose(tree, itemsetBuffer, 0, transactionCount, originalMapSupport);
+			// if several threads are used, the branches of the tree are mined in parallel
+			// (a single path is mined sequentially since it does not have branches)
+			if(threadCount > 1 && isSinglePath(tree) == false) {
+				fpcloseParallel(tree);
+			}else {
+				// Next we will recursively generate frequent itemsets using the fp-tree
+				fpclose(tree, itemsetBuffer, 0, transactionCount, originalMapSupport);
+			}
 		}
 		
 		// close the output file if the result was saved to a file
@@ -227,6 +490,55 @@ public class AlgoFPClose {
 	}
 
 	
+	/**
+	 * Project the database into partitions on disk, and mine the FP-tree of each partition, 
+	 * then close the output file. The closed itemsets are found in the same order as when the FP-tree 
+	 * of the whole database is mined: the partitions are mined from the partition of the least 
+	 * frequent items, and only the items of a partition are mined in its FP-tree. 
+	 * The CFI-tree is shared by the partitions, so that a closed itemset found in a partition
+	 * removes its subsets having the same support found in the next partitions.
+	 * @param input the path to the input file
+	 * @return the result if no output file path is provided.
+	 * @throws IOException exception if error reading the input file, writing a partition or writing the output file
+	 */
+	private Itemsets mineDiskPartitions(String input) throws IOException {
+		DiskProjectedDatabase database = new DiskProjectedDatabase(originalMapSupport, minSupportRelative, 
+				partitionCount, partitionDirectory);
+		try {
+			database.project(input);
+			// initialize the buffers
+			itemsetBuffer = new int[BUFFERS_SIZE];
+			countBuffer = new int[BUFFERS_SIZE];
+			for(int partition = database.getPartitionCount() - 1; partition >= 0; partition--) {
+				// build the FP-tree of the partition
+				FPTree tree = database.buildTree(partition);
+				tree.createHeaderList(originalMapSupport);
+				// For each item of the partition (the last items of the header list) in reverse order.
+				for(int i = tree.headerList.size()-1; i>=0; i--){
+					Integer item = tree.headerList.get(i);
+					if(database.getPartition(item) != partition) {
+						break;
+					}
+					fpcloseItem(tree, item, itemsetBuffer, 0, transactionCount, originalMapSupport);
+				}
+				// check the memory usage
+				MemoryLogger.getInstance().checkMemory();
+			}
+		}finally {
+			database.delete();
+		}
+		
+		// close the output file if the result was saved to a file
+		if(writer != null){
+			writer.close();
+		}
+		// record the execution end time
+		endTime= System.currentTimeMillis();
+		
+		// return the result (if saved to memory)
+		return patterns;
+	}
+	
 	/**
 	 * Mine an FP-Tree having more than one path.
 	 * @param tree  the FP-tree
@@ -328,118 +640,414 @@ public class AlgoFPClose {
 			for(int i = tree.headerList.size()-1; i>=0; i--){
 				// get the item
 				Integer item = tree.headerList.get(i);
-				
-				// get the item support
-				int support = mapSupport.get(item);
-				
-				// calculate the support of the new prefix beta
-				int betaSupport = (prefixSupport < support) ? prefixSupport: support;
+				// mine the itemsets having the prefix alpha U {item}
+				fpcloseItem(tree, item, prefix, prefixLength, prefixSupport, mapSupport);
+			}
+		}
+	}
+	
+	/**
+	 * Mine the itemsets having the prefix alpha U {item} in an FP-Tree having more than one path.
+	 * This is one iteration of the loop over the header list of the tree.
+	 * @param tree  the FP-tree
+	 * @param item  the item to be appended to the prefix
+	 * @param prefix  the current prefix, named "alpha"
+	 * @param prefixLength the length of the prefix
+	 * @param prefixSupport the support of the prefix
+	 * @param mapSupport the frequency of items in the FP-Tree
+	 * @throws IOException  exception if error writing the output file
+	 */
+	private void fpcloseItem(FPTree tree, Integer item, int [] prefix, int prefixLength, int prefixSupport, Map<Integer, Integer> mapSupport) throws IOException {
+		// get the item support
+		int support = mapSupport.get(item);
+		
+		// calculate the support of the new prefix beta
+		int betaSupport = (prefixSupport < support) ? prefixSupport: support;
 
-				// Create Beta by concatening item to the current prefix  alpha
-				prefix[prefixLength] = item;
-				countBuffer[prefixLength] = betaSupport;
-				
-				// === (A) Construct beta's conditional pattern base ===
-				// It is a subdatabase which consists of the set of prefix paths
-				// in the FP-tree co-occuring with the prefix pattern.
-				List<List<FPNode>> prefixPaths = new ArrayList<List<FPNode>>();
-				FPNode path = tree.mapItemNodes.get(item);
+		// if the minimum support was raised since the tree was built (by the itemset consumer),
+		// beta and its supersets are not frequent
+		if(betaSupport < minSupportRelative) {
+			return;
+		}
+
+		// Create Beta by concatening item to the current prefix  alpha
+		prefix[prefixLength] = item;
+		countBuffer[prefixLength] = betaSupport;
+		
+		// === (A) Construct beta's conditional pattern base ===
+		// It is a subdatabase which consists of the set of prefix paths
+		// in the FP-tree co-occuring with the prefix pattern.
+		List<List<FPNode>> prefixPaths = new ArrayList<List<FPNode>>();
+		FPNode path = tree.mapItemNodes.get(item);
+		
+		// Map to count the support of items in the conditional prefix tree
+		// Key: item   Value: support
+		Map<Integer, Integer> mapSupportBeta = new HashMap<Integer, Integer>();
+		
+		while(path != null){
+			// if the path is not just the root node
+			if(path.parent.itemID != -1){
+				// create the prefixpath
+				List<FPNode> prefixPath = new ArrayList<FPNode>();
+				// add this node.
+				prefixPath.add(path);   // NOTE: we add it just to keep its support,
+				// actually it should not be part of the prefixPath
 				
-				// Map to count the support of items in the conditional prefix tree
-				// Key: item   Value: support
-				Map<Integer, Integer> mapSupportBeta = new HashMap<Integer, Integer>();
+				// ####
+				int pathCount = path.counter;
 				
-				while(path != null){
-					// if the path is not just the root node
-					if(path.parent.itemID != -1){
-						// create the prefixpath
-						List<FPNode> prefixPath = new ArrayList<FPNode>();
-						// add this node.
-						prefixPath.add(path);   // NOTE: we add it just to keep its support,
-						// actually it should not be part of the prefixPath
-						
-						// ####
-						int pathCount = path.counter;
-						
-						//Recursively add all the parents of this node.
-						FPNode parent = path.parent;
-						while(parent.itemID != -1){
-							prefixPath.add(parent);
-							
-							// FOR EACH PATTERN WE ALSO UPDATE THE ITEM SUPPORT AT THE SAME TIME
-							// if the first time we see that node id
-							if(mapSupportBeta.get(parent.itemID) == null){
-								// just add the path count
-								mapSupportBeta.put(parent.itemID, pathCount);
-							}else{
-								// otherwise, make the sum with the value already stored
-								mapSupportBeta.put(parent.itemID, mapSupportBeta.get(parent.itemID) + pathCount);
-							}
-							parent = parent.parent;
-						}
-						// add the path to the list of prefixpaths
-						prefixPaths.add(prefixPath);
+				//Recursively add all the parents of this node.
+				FPNode parent = path.parent;
+				while(parent.itemID != -1){
+					prefixPath.add(parent);
+					
+					// FOR EACH PATTERN WE ALSO UPDATE THE ITEM SUPPORT AT THE SAME TIME
+					// if the first time we see that node id
+					if(mapSupportBeta.get(parent.itemID) == null){
+						// just add the path count
+						mapSupportBeta.put(parent.itemID, pathCount);
+					}else{
+						// otherwise, make the sum with the value already stored
+						mapSupportBeta.put(parent.itemID, mapSupportBeta.get(parent.itemID) + pathCount);
 					}
-					// We will look for the next prefixpath
-					path = path.nodeLink;
+					parent = parent.parent;
 				}
+				// add the path to the list of prefixpaths
+				prefixPaths.add(prefixPath);
+			}
+			// We will look for the next prefixpath
+			path = path.nodeLink;
+		}
 
-				
-				// ===== FP-CLOSE ======
-				// concatenate Beta (Head) with the item "item" (i) to check 
-				// for closure
-				int[] headWithP = new int[prefixLength+1];
-				System.arraycopy(prefix, 0, headWithP, 0, prefixLength+1);
-				
-				// Sort Head U {item} according to the original header list total order on items
-				// sort item in the transaction by descending order of support
-				sortOriginalOrder(headWithP, prefixLength+1);
+		
+		// ===== FP-CLOSE ======
+		// concatenate Beta (Head) with the item "item" (i) to check 
+		// for closure
+		int[] headWithP = new int[prefixLength+1];
+		System.arraycopy(prefix, 0, headWithP, 0, prefixLength+1);
+		
+		// Sort Head U {item} according to the original header list total order on items
+		// sort item in the transaction by descending order of support
+		sortOriginalOrder(headWithP, prefixLength+1);
 
-				//======= DEBUG ========
-				if(DEBUG) {
-					System.out.println(" CHECK2 : " + Arrays.toString(headWithP) + " sup=" + betaSupport);
-				}
-				//========== END DEBUG =======
+		//======= DEBUG ========
+		if(DEBUG) {
+			System.out.println(" CHECK2 : " + Arrays.toString(headWithP) + " sup=" + betaSupport);
+		}
+		//========== END DEBUG =======
+		
+		// CHECK IF HEAD U P IS A SUBSET OF A CFI ACCORDING TO THE CFI-TREE
+		if(cfiTree.passSubsetChecking(headWithP, prefixLength+1, betaSupport)) {
+			
+			if(DEBUG) {
+				System.out.println("    passed!");
+			}
+			// (B) Construct beta's conditional FP-Tree using its prefix path
+			// Create the tree.
+			FPTree treeBeta = new FPTree();
+			// Add each prefixpath in the FP-tree.
+			for(List<FPNode> prefixPath : prefixPaths){
+				treeBeta.addPrefixPath(prefixPath, mapSupportBeta, minSupportRelative); 
+			}  
+			// Mine recursively the Beta tree if the root has child(s)
+			if(treeBeta.root.childs.size() > 0){
+
+				// Create the header list.
+				treeBeta.createHeaderList(originalMapSupport); 
 				
-				// CHECK IF HEAD U P IS A SUBSET OF A CFI ACCORDING TO THE CFI-TREE
-				if(cfiTree.passSubsetChecking(headWithP, prefixLength+1, betaSupport)) {
-					
-					if(DEBUG) {
-						System.out.println("    passed!");
-					}
-					// (B) Construct beta's conditional FP-Tree using its prefix path
-					// Create the tree.
-					FPTree treeBeta = new FPTree();
-					// Add each prefixpath in the FP-tree.
-					for(List<FPNode> prefixPath : prefixPaths){
-						treeBeta.addPrefixPath(prefixPath, mapSupportBeta, minSupportRelative); 
-					}  
-					// Mine recursively the Beta tree if the root has child(s)
-					if(treeBeta.root.childs.size() > 0){
-
-						// Create the header list.
-						treeBeta.createHeaderList(originalMapSupport); 
-						
-						// recursive call
-						fpclose(treeBeta, prefix, prefixLength+1, betaSupport, mapSupportBeta);
-					}
-					// if the tree is empty we still need to try to save the 
-					// itemset
-					if(cfiTree.passSubsetChecking(headWithP, prefixLength+1, betaSupport)) {
-						saveItemset(headWithP, prefixLength+1, betaSupport);
+				// recursive call
+				fpclose(treeBeta, prefix, prefixLength+1, betaSupport, mapSupportBeta);
+			}
+			// if the tree is empty we still need to try to save the 
+			// itemset
+			if(cfiTree.passSubsetChecking(headWithP, prefixLength+1, betaSupport)) {
+				saveItemset(headWithP, prefixLength+1, betaSupport);
+			}
+		}
+		else {
+			if(DEBUG) {
+				System.out.println("     failed!");
+			}
+//			// OPTIMIZATION ONLY IN FPCLOSE:  IF THE CLOSURE CHECKING iS NOT PASSED
+//			// WE STOP THIS LOOP BECAUSE THE NEXT ITEMS WILL NOT PASS IT EITHER
+//			break;
+		}
+	}
+
+	/**
+	 * Mine the initial PrimitiveFPTree, then close the output file.
+	 * @param tree the initial FP-tree
+	 * @return the result if no output file path is provided.
+	 * @throws IOException exception if error writing the output file
+	 */
+	private Itemsets minePrimitiveTree(PrimitiveFPTree tree) throws IOException {
+		// if at least an item is frequent
+		if(tree.isEmpty() == false) {
+			// initialize the buffers
+			itemsetBuffer = new int[BUFFERS_SIZE];
+			countBuffer = new int[BUFFERS_SIZE];
+			pathBuffer = new int[ranking.size()];
+			// if several threads are used, the branches of the tree are mined in parallel
+			// (a single path is mined sequentially since it does not have branches)
+			if(threadCount > 1 && tree.getSinglePath(itemsetBuffer, countBuffer, 0) == -1) {
+				fpcloseParallel(tree);
+			}else {
+				// Next we will recursively generate frequent itemsets using the fp-tree
+				fpclose(tree, itemsetBuffer, 0, transactionCount);
+			}
+		}
+		
+		// close the output file if the result was saved to a file
+		if(writer != null){
+			writer.close();
+		}
+		// record the execution end time
+		endTime= System.currentTimeMillis();
+		
+		// check the memory usage
+		MemoryLogger.getInstance().checkMemory();
+		
+		// return the result (if saved to memory)
+		return patterns;
+	}
+	
+	/**
+	 * Mine a PrimitiveFPTree. This is the same as the method for FPTree, except that
+	 * the prefix contains ranks of items instead of items.
+	 * @param tree  the FP-tree
+	 * @param prefix  the current prefix, named "alpha" (ranks)
+	 * @param prefixLength the length of the prefix
+	 * @param prefixSupport the support of the prefix
+	 * @throws IOException  exception if error writing the output file
+	 */
+	private void fpclose(PrimitiveFPTree tree, int [] prefix, int prefixLength, int prefixSupport) throws IOException {
+		// We first check if the FPtree contains a single path
+		// (the items of the path are copied in the buffers after the prefix)
+		int position = tree.getSinglePath(itemsetBuffer, countBuffer, prefixLength);
+		boolean singlePath = position != -1;
+		
+		// Case 1: the FPtree contains a single path
+		// If this path has enough support:
+		if(singlePath && countBuffer[position-1] >= minSupportRelative){
+			// generate all the CFIs from this path
+			for(int i = prefixLength; i <= position; i++) {
+				// if  the last item or if the counter of item in the i+1 th position is different
+				// from the counter of item in the i th position:
+				if(i == position || (i > 0 && countBuffer[i-1] !=0 && countBuffer[i-1] != countBuffer[i])) {
+					int pathSupport = countBuffer[i-1];
+					int[] headWithP = toSortedItems(itemsetBuffer, i);
+					if(cfiTree.passSubsetChecking(headWithP, i, pathSupport)) {
+						saveSortedItemset(headWithP, i, pathSupport);
 					}
 				}
-				else {
-					if(DEBUG) {
-						System.out.println("     failed!");
-					}
-//					// OPTIMIZATION ONLY IN FPCLOSE:  IF THE CLOSURE CHECKING iS NOT PASSED
-//					// WE STOP THIS LOOP BECAUSE THE NEXT ITEMS WILL NOT PASS IT EITHER
-//					break;
+			}
+		}else {
+			// Case 2: There are multiple paths.
+			
+			// For each frequent item in the header table list of the tree in reverse order. (in decreasing order of support...)
+			int[] headerList = tree.getHeaderList();
+			for(int i = headerList.length-1; i>=0; i--){
+				// get the item
+				int item = headerList[i];
+				// mine the itemsets having the prefix alpha U {item}
+				fpcloseItem(tree, item, prefix, prefixLength, prefixSupport);
+			}
+		}
+	}
+	
+	/**
+	 * Mine the itemsets having the prefix alpha U {item} in a PrimitiveFPTree having more than one path.
+	 * This is one iteration of the loop over the header list of the tree.
+	 * @param tree  the FP-tree
+	 * @param item  the item (rank) to be appended to the prefix
+	 * @param prefix  the current prefix, named "alpha" (ranks)
+	 * @param prefixLength the length of the prefix
+	 * @param prefixSupport the support of the prefix
+	 * @throws IOException  exception if error writing the output file
+	 */
+	private void fpcloseItem(PrimitiveFPTree tree, int item, int [] prefix, int prefixLength, int prefixSupport) throws IOException {
+		// get the item support
+		int support = tree.getSupport(item);
+		
+		// calculate the support of the new prefix beta
+		int betaSupport = (prefixSupport < support) ? prefixSupport: support;
+
+		// if the minimum support was raised since the tree was built (by the itemset consumer),
+		// beta and its supersets are not frequent
+		if(betaSupport < minSupportRelative) {
+			return;
+		}
+
+		// Create Beta by concatening item to the current prefix  alpha
+		prefix[prefixLength] = item;
+		countBuffer[prefixLength] = betaSupport;
+		
+		// ===== FP-CLOSE ======
+		// Head U {item} sorted according to the original order on items
+		int[] headWithP = toSortedItems(prefix, prefixLength+1);
+		
+		// CHECK IF HEAD U P IS A SUBSET OF A CFI ACCORDING TO THE CFI-TREE
+		if(cfiTree.passSubsetChecking(headWithP, prefixLength+1, betaSupport)) {
+			// Construct beta's conditional FP-Tree using its prefix paths
+			int[] conditionalSupports = tree.calculateConditionalSupports(item);
+			PrimitiveFPTree treeBeta = tree.createConditionalTree(item, conditionalSupports, minSupportRelative, pathBuffer);
+			
+			// Mine recursively the Beta tree if the root has child(s)
+			if(treeBeta.isEmpty() == false){
+				fpclose(treeBeta, prefix, prefixLength+1, betaSupport);
+			}
+			// if the tree is empty we still need to try to save the 
+			// itemset
+			if(cfiTree.passSubsetChecking(headWithP, prefixLength+1, betaSupport)) {
+				saveSortedItemset(headWithP, prefixLength+1, betaSupport);
+			}
+		}
+	}
+	
+	/**
+	 * Check if an FP-tree contains a single path
+	 * @param tree the FP-tree
+	 * @return true if each node of the tree has at most one child
+	 */
+	private boolean isSinglePath(FPTree tree) {
+		FPNode currentNode = tree.root;
+		while(currentNode.childs.size() == 1) {
+			currentNode = currentNode.childs.get(0);
+		}
+		return currentNode.childs.size() == 0;
+	}
+	
+	/**
+	 * Mine the branches of the initial FP-tree in parallel. A branch is mined by a task 
+	 * for each item of the header list.
+	 * @param tree the initial FP-tree
+	 * @throws IOException exception if error writing the output file
+	 */
+	private void fpcloseParallel(final FPTree tree) throws IOException {
+		ForkJoinPool pool = new ForkJoinPool(threadCount);
+		try {
+			// submit the branches in the order used by the sequential algorithm
+			List<ForkJoinTask<List<Itemset>>> branches = new ArrayList<ForkJoinTask<List<Itemset>>>();
+			for(int i = tree.headerList.size()-1; i>=0; i--){
+				final Integer item = tree.headerList.get(i);
+				branches.add(pool.submit(() -> {
+					AlgoFPClose worker = createBranchWorker();
+					worker.fpcloseItem(tree, item, worker.itemsetBuffer, 0, transactionCount, originalMapSupport);
+					return worker.collectedItemsets;
+				}));
+			}
+			mergeBranches(branches);
+		}finally {
+			pool.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Mine the branches of the initial PrimitiveFPTree in parallel. A branch is mined by a task 
+	 * for each item of the header list.
+	 * @param tree the initial FP-tree
+	 * @throws IOException exception if error writing the output file
+	 */
+	private void fpcloseParallel(final PrimitiveFPTree tree) throws IOException {
+		ForkJoinPool pool = new ForkJoinPool(threadCount);
+		try {
+			// submit the branches in the order used by the sequential algorithm
+			List<ForkJoinTask<List<Itemset>>> branches = new ArrayList<ForkJoinTask<List<Itemset>>>();
+			int[] headerList = tree.getHeaderList();
+			for(int i = headerList.length-1; i>=0; i--){
+				final int item = headerList[i];
+				branches.add(pool.submit(() -> {
+					AlgoFPClose worker = createBranchWorker();
+					worker.fpcloseItem(tree, item, worker.itemsetBuffer, 0, transactionCount);
+					return worker.collectedItemsets;
+				}));
+			}
+			mergeBranches(branches);
+		}finally {
+			pool.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Create an object to mine a branch of the initial FP-tree in a task.
+	 * It shares the parameters and the (read only) support of items with this object, 
+	 * but has its own buffers and its own CFI-tree.
+	 * @return the object
+	 */
+	private AlgoFPClose createBranchWorker() {
+		AlgoFPClose worker = new AlgoFPClose();
+		worker.minSupportRelative = minSupportRelative;
+		worker.transactionCount = transactionCount;
+		worker.originalMapSupport = originalMapSupport;
+		worker.ranking = ranking;
+		worker.itemsetBuffer = new int[BUFFERS_SIZE];
+		worker.countBuffer = new int[BUFFERS_SIZE];
+		if(ranking != null) {
+			worker.pathBuffer = new int[ranking.size()];
+		}
+		worker.cfiTree = new CFITree();
+		worker.cfiTree.setComparator(worker.comparatorOriginalOrder);
+		worker.collectedItemsets = new ArrayList<Itemset>();
+		return worker;
+	}
+	
+	/**
+	 * Wait for the branches mined in parallel, one after the other, and save the closed itemsets 
+	 * of each branch that pass the subset checking against the global CFI-tree.
+	 * A closed itemset of a branch can only be a subset of a closed itemset of the same branch
+	 * (already checked by the task) or of a branch that comes before it in the list.
+	 * @param branches the tasks mining the branches, in the order of the sequential algorithm
+	 * @throws IOException exception if error writing the output file
+	 */
+	private void mergeBranches(List<ForkJoinTask<List<Itemset>>> branches) throws IOException {
+		for(int i = 0; i < branches.size(); i++) {
+			List<Itemset> candidates;
+			try {
+				candidates = branches.get(i).get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while mining the FP-tree in parallel", e);
+			} catch (ExecutionException e) {
+				if(e.getCause() instanceof IOException) {
+					throw (IOException) e.getCause();
+				}
+				if(e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				if(e.getCause() instanceof Error) {
+					throw (Error) e.getCause();
 				}
+				throw new IOException(e.getCause());
 			}
+			// the task is not needed anymore
+			branches.set(i, null);
+			
+			for(Itemset candidate : candidates) {
+				int[] itemset = candidate.getItems();
+				int support = candidate.getAbsoluteSupport();
+				if(cfiTree.passSubsetChecking(itemset, itemset.length, support)) {
+					saveSortedItemset(itemset, itemset.length, support);
+				}
+			}
+			// check the memory usage
+			MemoryLogger.getInstance().checkMemory();
 		}
 	}
+	
+	/**
+	 * Convert an itemset made of ranks to an itemset made of items sorted according to the total
+	 * order of support (which is the order of ranks).
+	 * @param ranks the ranks
+	 * @param length the number of ranks
+	 * @return a new array containing the items
+	 */
+	private int[] toSortedItems(int[] ranks, int length) {
+		int[] items = new int[length];
+		System.arraycopy(ranks, 0, items, 0, length);
+		ItemRanking.sort(items, length);
+		ranking.toItems(items, length, items);
+		return items;
+	}
 
 	/**
 	 * Write a frequent itemset that is found to the output file or
@@ -453,6 +1061,18 @@ public class AlgoFPClose {
 		System.arraycopy(itemset, 0, itemsetCopy, 0, itemsetLength);
 		sortOriginalOrder(itemsetCopy, itemsetLength);
 		
+		saveSortedItemset(itemsetCopy, itemsetLength, support);
+	}
+	
+	/**
+	 * Write a frequent itemset that is found to the output file or
+	 * keep into memory if the user prefer that the result be saved into memory.
+	 * @param itemsetCopy the itemset, sorted according to the order of decreasing support
+	 *   in the original database (this array is not reused by the caller)
+	 * @param itemsetLength the length of the itemset
+	 * @param support the support of the itemset
+	 */
+	private void saveSortedItemset(int [] itemsetCopy, int itemsetLength, int support) throws IOException {
 		if(DEBUG) {
 	//		//======= DEBUG ========
 			System.out.print(" ##### SAVING : ");
@@ -463,12 +1083,34 @@ public class AlgoFPClose {
 	//		//========== END DEBUG =======
 		}
 		
+		// if the minimum support was raised since the itemset was generated (by the itemset consumer)
+		if(support < minSupportRelative) {
+			return;
+		}
+		
 		// add the itemset to the CFI-TREE
 		cfiTree.addCFI(itemsetCopy, itemsetCopy.length, support);
 		
 		// increase the number of itemsets found for statistics purpose
 		itemsetCount++;
 		
+		// if the itemsets are collected (for example, by a task mining a branch in parallel,
+		// so that they are checked against the other branches before being saved)
+		if(collectedItemsets != null) {
+			Itemset itemsetObj = new Itemset(itemsetCopy);
+			itemsetObj.setAbsoluteSupport(support);
+			collectedItemsets.add(itemsetObj);
+			return;
+		}
+		
+		// if the itemsets are consumed as they are found (for example, by a pipeline that labels them)
+		if(itemsetConsumer != null) {
+			Itemset itemsetObj = new Itemset(itemsetCopy);
+			itemsetObj.setAbsoluteSupport(support);
+			itemsetConsumer.accept(itemsetObj);
+			return;
+		}
+		
 		// if the result should be saved to a file
 		if(writer != null){
 			
@@ -565,6 +1207,77 @@ public class AlgoFPClose {
 	}
 
 
+	/**
+	 * Use a PrimitiveFPTree, where nodes are stored in arrays of ints, instead of a FPTree.
+	 * This gives the same result with less memory.
+	 * @param usePrimitiveFPTree true to use the PrimitiveFPTree
+	 */
+	public void setUsePrimitiveFPTree(boolean usePrimitiveFPTree) {
+		this.usePrimitiveFPTree = usePrimitiveFPTree;
+	}
+
+	/**
+	 * Add the closed itemsets found by the next executions to a list instead of saving them
+	 * to a file or into memory. The items of each itemset are sorted according to the order
+	 * of decreasing support, as in the output file.
+	 * @param collectedItemsets the list or null to save the itemsets normally
+	 */
+	void setCollectedItemsets(List<Itemset> collectedItemsets) {
+		this.collectedItemsets = collectedItemsets;
+	}
+
+	/**
+	 * Give the closed itemsets found by the next executions to a consumer instead of saving them
+	 * to a file or into memory. The consumer is called by the thread running the algorithm
+	 * (also when the tree is mined by several threads), in the order of the output file.
+	 * The items of each itemset are sorted according to the order of decreasing support,
+	 * as in the output file.
+	 * <br/><br/>
+	 * The consumer can raise {@link #minSupportRelative} during the search (as AlgoFPCloseTopK does): 
+	 * the itemsets having a lower support are then not searched or given to the consumer anymore.
+	 * This gives the closed itemsets having the final minimum support because the items of a tree are
+	 * explored by increasing order of support, so that a closed superset of an itemset having the same 
+	 * support is always found before that itemset. When the tree is mined by several threads, the 
+	 * branches are still mined with the initial minimum support, and the itemsets are filtered
+	 * when the branches are merged.
+	 * @param itemsetConsumer the consumer or null to save the itemsets normally
+	 */
+	public void setItemsetConsumer(Consumer<Itemset> itemsetConsumer) {
+		this.itemsetConsumer = itemsetConsumer;
+	}
+
+	/**
+	 * Set the number of threads used to build and mine the initial FP-tree.
+	 * The FP-tree is built by several threads only when it is read from a text file
+	 * and the PrimitiveFPTree is not used.
+	 * The result is the same as with a single thread (the default).
+	 * @param threadCount the number of threads (at least 1)
+	 */
+	public void setThreadCount(int threadCount) {
+		if(threadCount < 1) {
+			throw new IllegalArgumentException("The number of threads must be at least 1");
+		}
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * Project the database into partitions stored on disk, and mine the partitions one after the other
+	 * instead of building the FP-tree of the whole database (see {@link DiskProjectedDatabase}).
+	 * Only the FP-tree of a partition is in memory at a time, and the result is the same.
+	 * Partitions are only used when the database is read from a text file and the PrimitiveFPTree 
+	 * is not used.
+	 * The partitions are mined by a single thread.
+	 * @param partitionCount the number of partitions (0 to not use partitions, which is the default)
+	 * @param directory the directory of the partition files (null for the temporary directory of the system)
+	 */
+	public void setDiskPartitions(int partitionCount, String directory) {
+		if(partitionCount < 0) {
+			throw new IllegalArgumentException("The number of partitions cannot be negative");
+		}
+		this.partitionCount = partitionCount;
+		this.partitionDirectory = directory;
+	}
+
 	/**
 	 * Print statistics about the algorithm execution to System.out.
 	 */
@@ -0,0 +1,658 @@
+package ca.pfv.spmf.algorithms.frequentpatterns.fpgrowth;
+
+/* This file is part of the SPMF DATA MINING SOFTWARE
+* (http://www.philippe-fournier-viger.com/spmf).
+*
+* SPMF is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+*
+* SPMF is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* SPMF. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ca.pfv.spmf.input.transaction_database_binary.BinaryTransactionDatabase;
+import ca.pfv.spmf.patterns.itemset_array_integers_with_count.Itemset;
+import ca.pfv.spmf.tools.MemoryLogger;
+
+/**
+ * This algorithm mines the frequent closed itemsets of several segments of a transaction database
+ * (for example, the apps of several price ranges) with a single read of the database, and gives
+ * the support of each itemset in every segment.
+ * <br/><br/>
+ *
+ * The segment of a transaction is given either by a label item (the items of a range of values
+ * are labels, the first label of a transaction is its segment and the labels are removed from the
+ * transaction) or by an array containing the label of each transaction.
+ * <br/><br/>
+ *
+ * The database is read once and kept in memory, grouped by segment. Then, for each segment,
+ * a {@link PrimitiveFPTree} is built and mined by {@link AlgoFPClose} with the minimum support
+ * threshold applied to the size of the segment. The result is the union of the closed itemsets
+ * of all segments. For each itemset, the support in the segments where it was not found is
+ * counted with bitmaps of transactions, so that the supports of an itemset in all segments
+ * can be compared directly.
+ * <br/><br/>
+ *
+ * The output file starts with the line "@SEGMENTS: label1 label2 ..." and then contains a line
+ * per itemset, for example "1 2 3 #SUP: 12 #SEGSUP: 10 0 2", where #SUP is the support in the
+ * whole database (the transactions that have a segment) and #SEGSUP is the support in each
+ * segment, in the order of the first line.
+ *
+ * @see AlgoFPClose
+ * @see PrimitiveFPTree
+ */
+public class AlgoFPCloseSegments {
+
+	// for statistics
+	private long startTimestamp; // start time of the latest execution
+	private long endTime; // end time of the latest execution
+	private int transactionCount; // number of transactions read
+	private int unlabelledTransactionCount; // number of transactions without segment
+
+	// the number of threads used by FPClose for each segment
+	private int threadCount = 1;
+
+	// the label of each segment, by increasing order
+	private int[] segmentLabels;
+	// the first transaction of each segment (plus the end of the last segment)
+	private int[] segmentStarts;
+	// the minimum support of each segment, as a number of transactions
+	private int[] segmentMinSupports;
+	// the number of closed itemsets found in each segment
+	private int[] segmentItemsetCounts;
+
+	// the itemsets found (items sorted by lexical order)
+	private List<int[]> itemsets;
+	// the support of each itemset in each segment
+	private List<int[]> itemsetSupports;
+
+	// the transactions read, one after the other, grouped by segment after reading
+	private int[] items;
+	private int itemCount;
+	// the end of each transaction in "items"
+	private int[] transactionEnds;
+	// the label of each transaction
+	private int[] transactionLabels;
+	// the length of the longest transaction
+	private int maxTransactionLength;
+	// the largest item
+	private int maxItem;
+
+	/**
+	 * Constructor
+	 */
+	public AlgoFPCloseSegments() {
+
+	}
+
+	/**
+	 * Run the algorithm where the segment of a transaction is given by a label item.
+	 * @param input the path of a transaction database (in the SPMF text format or in the binary format)
+	 * @param output the output file path (if null, the result is only kept into memory)
+	 * @param minsupp the minimum support threshold, applied to each segment
+	 * @param firstLabelItem the first item used as a label
+	 * @param lastLabelItem the last item used as a label
+	 * @throws IOException exception if error reading or writing files
+	 */
+	public void runAlgorithm(String input, String output, double minsupp, int firstLabelItem, int lastLabelItem) throws IOException {
+		if(firstLabelItem > lastLabelItem) {
+			throw new IllegalArgumentException("The first label item must not be greater than the last label item");
+		}
+		runAlgorithm(input, output, minsupp, null, firstLabelItem, lastLabelItem);
+	}
+
+	/**
+	 * Run the algorithm where the segment of each transaction is given by an array.
+	 * @param input the path of a transaction database (in the SPMF text format or in the binary format)
+	 * @param output the output file path (if null, the result is only kept into memory)
+	 * @param minsupp the minimum support threshold, applied to each segment
+	 * @param labels the label of each transaction (in the order of the database). A negative
+	 *        label means that the transaction does not belong to a segment.
+	 * @throws IOException exception if error reading or writing files
+	 */
+	public void runAlgorithm(String input, String output, double minsupp, int[] labels) throws IOException {
+		runAlgorithm(input, output, minsupp, labels, 0, -1);
+	}
+
+	/**
+	 * Run the algorithm
+	 * @param input the path of a transaction database
+	 * @param output the output file path or null
+	 * @param minsupp the minimum support threshold
+	 * @param labels the label of each transaction or null if labels are items
+	 * @param firstLabelItem the first item used as a label (if labels is null)
+	 * @param lastLabelItem the last item used as a label (if labels is null)
+	 * @throws IOException exception if error reading or writing files
+	 */
+	private void runAlgorithm(String input, String output, double minsupp, int[] labels,
+			int firstLabelItem, int lastLabelItem) throws IOException {
+		// record start time
+		startTimestamp = System.currentTimeMillis();
+		MemoryLogger.getInstance().reset();
+
+		// (1) read the database once and group the transactions by segment
+		readDatabase(input, labels, firstLabelItem, lastLabelItem);
+		groupBySegment();
+		MemoryLogger.getInstance().checkMemory();
+
+		// (2) mine the closed itemsets of each segment
+		itemsets = new ArrayList<int[]>();
+		itemsetSupports = new ArrayList<int[]>();
+		Map<ItemsetKey, Integer> mapItemsetIndex = new HashMap<ItemsetKey, Integer>();
+		segmentMinSupports = new int[segmentLabels.length];
+		segmentItemsetCounts = new int[segmentLabels.length];
+		for(int segment = 0; segment < segmentLabels.length; segment++) {
+			List<Itemset> closedItemsets = mineSegment(segment, minsupp);
+			segmentItemsetCounts[segment] = closedItemsets.size();
+
+			// add the itemsets to the union of the results
+			for(Itemset itemset : closedItemsets) {
+				int[] sortedItems = itemset.getItems();
+				Arrays.sort(sortedItems);
+				ItemsetKey key = new ItemsetKey(sortedItems);
+				Integer index = mapItemsetIndex.get(key);
+				if(index == null) {
+					index = itemsets.size();
+					mapItemsetIndex.put(key, index);
+					itemsets.add(sortedItems);
+					int[] supports = new int[segmentLabels.length];
+					Arrays.fill(supports, -1);
+					itemsetSupports.add(supports);
+				}
+				itemsetSupports.get(index)[segment] = itemset.getAbsoluteSupport();
+			}
+			MemoryLogger.getInstance().checkMemory();
+		}
+
+		// (3) count the supports that are not known
+		countMissingSupports();
+
+		// (4) save the result
+		if(output != null) {
+			writeResult(output);
+		}
+
+		// the transactions are not needed anymore
+		items = null;
+		transactionEnds = null;
+		transactionLabels = null;
+
+		MemoryLogger.getInstance().checkMemory();
+		endTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * Read the transactions of a database with their labels.
+	 * @param input the path of a transaction database (in the SPMF text format or in the binary format)
+	 * @param labels the label of each transaction or null if labels are items
+	 * @param firstLabelItem the first item used as a label (if labels is null)
+	 * @param lastLabelItem the last item used as a label (if labels is null)
+	 * @throws IOException exception if error reading the file
+	 */
+	private void readDatabase(String input, int[] labels, int firstLabelItem, int lastLabelItem) throws IOException {
+		items = new int[1024];
+		itemCount = 0;
+		transactionEnds = new int[1024];
+		transactionLabels = new int[1024];
+		transactionCount = 0;
+		unlabelledTransactionCount = 0;
+		maxTransactionLength = 0;
+		maxItem = 0;
+
+		// if the input is a binary transaction database, it is read through
+		// the memory-mapped reader instead of being parsed
+		if(BinaryTransactionDatabase.isBinaryFile(input)) {
+			BinaryTransactionDatabase database = BinaryTransactionDatabase.open(input);
+			try {
+				int[] transaction = new int[database.getMaxTransactionLength()];
+				for(int tid = 0; tid < database.size(); tid++) {
+					int length = database.getTransaction(tid, transaction);
+					addTransaction(transaction, length, labels, firstLabelItem, lastLabelItem);
+				}
+			}finally {
+				database.close();
+			}
+			return;
+		}
+
+		int[] transaction = new int[64];
+		BufferedReader reader = new BufferedReader(new FileReader(input));
+		try {
+			String line;
+			// for each line (transaction) until the end of file
+			while( ((line = reader.readLine())!= null)){
+				// if the line is  a comment, is  empty or is a
+				// kind of metadata
+				if (line.isEmpty() == true ||  line.charAt(0) == '#' || line.charAt(0) == '%' 	|| line.charAt(0) == '@') {
+					continue;
+				}
+				// split the line into items
+				String[] lineSplited = line.split(" ");
+				if(lineSplited.length > transaction.length) {
+					transaction = new int[lineSplited.length];
+				}
+				int length = 0;
+				for(String itemString : lineSplited) {
+					if(itemString.isEmpty() == false) {
+						transaction[length++] = Integer.parseInt(itemString);
+					}
+				}
+				addTransaction(transaction, length, labels, firstLabelItem, lastLabelItem);
+			}
+		}finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Add a transaction that has been read, after finding its label
+	 * @param transaction the items of the transaction
+	 * @param length the number of items
+	 * @param labels the label of each transaction or null if labels are items
+	 * @param firstLabelItem the first item used as a label (if labels is null)
+	 * @param lastLabelItem the last item used as a label (if labels is null)
+	 */
+	private void addTransaction(int[] transaction, int length, int[] labels, int firstLabelItem, int lastLabelItem) {
+		int label = -1;
+		if(labels != null) {
+			if(transactionCount >= labels.length) {
+				throw new IllegalArgumentException("The database has more transactions than labels");
+			}
+			label = labels[transactionCount];
+		}else {
+			// the first label item is the label and all label items are removed
+			int newLength = 0;
+			boolean found = false;
+			for(int i = 0; i < length; i++) {
+				int item = transaction[i];
+				if(item >= firstLabelItem && item <= lastLabelItem) {
+					if(found == false) {
+						label = item;
+						found = true;
+					}
+				}else {
+					transaction[newLength++] = item;
+				}
+			}
+			length = newLength;
+		}
+		transactionCount++;
+
+		// the transactions that do not belong to a segment are not kept
+		if(label < 0) {
+			unlabelledTransactionCount++;
+			return;
+		}
+
+		// append the transaction
+		if(itemCount + length > items.length) {
+			items = Arrays.copyOf(items, Math.max(items.length * 2, itemCount + length));
+		}
+		for(int i = 0; i < length; i++) {
+			items[itemCount++] = transaction[i];
+			if(transaction[i] > maxItem) {
+				maxItem = transaction[i];
+			}
+		}
+		int tid = transactionCount - unlabelledTransactionCount - 1;
+		if(tid == transactionEnds.length) {
+			transactionEnds = Arrays.copyOf(transactionEnds, transactionEnds.length * 2);
+			transactionLabels = Arrays.copyOf(transactionLabels, transactionLabels.length * 2);
+		}
+		transactionEnds[tid] = itemCount;
+		transactionLabels[tid] = label;
+		if(length > maxTransactionLength) {
+			maxTransactionLength = length;
+		}
+	}
+
+	/**
+	 * Find the segments and reorder the transactions so that the transactions
+	 * of each segment are consecutive (keeping their order in the database)
+	 */
+	private void groupBySegment() {
+		int count = transactionCount - unlabelledTransactionCount;
+
+		// find the distinct labels
+		int[] sortedLabels = Arrays.copyOf(transactionLabels, count);
+		Arrays.sort(sortedLabels);
+		int labelCount = 0;
+		for(int i = 0; i < count; i++) {
+			if(i == 0 || sortedLabels[i] != sortedLabels[i-1]) {
+				sortedLabels[labelCount++] = sortedLabels[i];
+			}
+		}
+		segmentLabels = Arrays.copyOf(sortedLabels, labelCount);
+
+		// count the transactions and items of each segment
+		int[] segmentOfTransaction = new int[count];
+		int[] transactionCounts = new int[labelCount];
+		int[] itemCounts = new int[labelCount];
+		for(int tid = 0; tid < count; tid++) {
+			int segment = Arrays.binarySearch(segmentLabels, transactionLabels[tid]);
+			segmentOfTransaction[tid] = segment;
+			transactionCounts[segment]++;
+			itemCounts[segment] += transactionEnds[tid] - (tid == 0 ? 0 : transactionEnds[tid-1]);
+		}
+
+		// position of the next transaction and of the next item of each segment
+		segmentStarts = new int[labelCount + 1];
+		int[] nextTransaction = new int[labelCount];
+		int[] nextItem = new int[labelCount];
+		for(int segment = 0; segment < labelCount; segment++) {
+			segmentStarts[segment+1] = segmentStarts[segment] + transactionCounts[segment];
+			nextTransaction[segment] = segmentStarts[segment];
+			if(segment > 0) {
+				nextItem[segment] = nextItem[segment-1] + itemCounts[segment-1];
+			}
+		}
+
+		// move the transactions
+		int[] groupedItems = new int[itemCount];
+		int[] groupedEnds = new int[count];
+		int[] groupedLabels = new int[count];
+		for(int tid = 0; tid < count; tid++) {
+			int segment = segmentOfTransaction[tid];
+			int start = (tid == 0) ? 0 : transactionEnds[tid-1];
+			int length = transactionEnds[tid] - start;
+			System.arraycopy(items, start, groupedItems, nextItem[segment], length);
+			nextItem[segment] += length;
+			int newTid = nextTransaction[segment]++;
+			groupedEnds[newTid] = nextItem[segment];
+			groupedLabels[newTid] = transactionLabels[tid];
+		}
+		items = groupedItems;
+		transactionEnds = groupedEnds;
+		transactionLabels = groupedLabels;
+	}
+
+	/**
+	 * Mine the closed itemsets of a segment with FPClose
+	 * @param segment the segment
+	 * @param minsupp the minimum support threshold (a percentage of the segment size)
+	 * @return the closed itemsets
+	 * @throws IOException exception if error during the mining
+	 */
+	private List<Itemset> mineSegment(int segment, double minsupp) throws IOException {
+		int start = segmentStarts[segment];
+		int end = segmentStarts[segment+1];
+		int size = end - start;
+
+		// count the support of items in the segment
+		int[] supports = new int[maxItem + 1];
+		for(int i = (start == 0 ? 0 : transactionEnds[start-1]); i < transactionEnds[end-1]; i++) {
+			supports[items[i]]++;
+		}
+		Map<Integer, Integer> mapSupport = new HashMap<Integer, Integer>();
+		for(int item = 0; item <= maxItem; item++) {
+			if(supports[item] > 0) {
+				mapSupport.put(item, supports[item]);
+			}
+		}
+
+		// build the FP-tree of the segment
+		int minSupportRelative = (int) Math.ceil(minsupp * size);
+		segmentMinSupports[segment] = minSupportRelative;
+		ItemRanking ranking = new ItemRanking(mapSupport, minSupportRelative);
+		PrimitiveFPTree tree = new PrimitiveFPTree(ranking.size());
+		int[] transaction = new int[maxTransactionLength];
+		for(int tid = start; tid < end; tid++) {
+			int from = (tid == 0) ? 0 : transactionEnds[tid-1];
+			int length = transactionEnds[tid] - from;
+			System.arraycopy(items, from, transaction, 0, length);
+			length = ranking.toRanks(transaction, length);
+			tree.addTransaction(transaction, length);
+		}
+
+		// mine the tree
+		List<Itemset> closedItemsets = new ArrayList<Itemset>();
+		AlgoFPClose algo = new AlgoFPClose();
+		algo.setThreadCount(threadCount);
+		algo.setCollectedItemsets(closedItemsets);
+		algo.runAlgorithm(tree, ranking, mapSupport, size, minSupportRelative, null);
+		return closedItemsets;
+	}
+
+	/**
+	 * Count the support of the itemsets in the segments where they were not found.
+	 * A bitmap of transactions is created for each item of these itemsets, where
+	 * each segment starts at a new word, and the support of an itemset in a segment
+	 * is the number of bits in the intersection of the bitmaps of its items.
+	 */
+	private void countMissingSupports() {
+		// the first word of each segment in the bitmaps
+		int[] segmentFirstWords = new int[segmentLabels.length + 1];
+		for(int segment = 0; segment < segmentLabels.length; segment++) {
+			int size = segmentStarts[segment+1] - segmentStarts[segment];
+			segmentFirstWords[segment+1] = segmentFirstWords[segment] + (size + 63) / 64;
+		}
+		int wordCount = segmentFirstWords[segmentLabels.length];
+
+		// create the bitmaps of the items of the itemsets having unknown supports
+		long[][] bitmaps = new long[maxItem + 1][];
+		boolean missing = false;
+		for(int i = 0; i < itemsets.size(); i++) {
+			if(hasMissingSupport(itemsetSupports.get(i))) {
+				missing = true;
+				for(int item : itemsets.get(i)) {
+					if(bitmaps[item] == null) {
+						bitmaps[item] = new long[wordCount];
+					}
+				}
+			}
+		}
+		if(missing == false) {
+			return;
+		}
+		for(int segment = 0; segment < segmentLabels.length; segment++) {
+			long firstBit = (long) segmentFirstWords[segment] * 64;
+			for(int tid = segmentStarts[segment]; tid < segmentStarts[segment+1]; tid++) {
+				long bit = firstBit + tid - segmentStarts[segment];
+				for(int i = (tid == 0) ? 0 : transactionEnds[tid-1]; i < transactionEnds[tid]; i++) {
+					long[] bitmap = bitmaps[items[i]];
+					if(bitmap != null) {
+						bitmap[(int) (bit >>> 6)] |= 1L << bit;
+					}
+				}
+			}
+		}
+		MemoryLogger.getInstance().checkMemory();
+
+		// count the supports
+		for(int i = 0; i < itemsets.size(); i++) {
+			int[] itemset = itemsets.get(i);
+			int[] supports = itemsetSupports.get(i);
+			for(int segment = 0; segment < segmentLabels.length; segment++) {
+				if(supports[segment] != -1) {
+					continue;
+				}
+				int support = 0;
+				for(int word = segmentFirstWords[segment]; word < segmentFirstWords[segment+1]; word++) {
+					long intersection = bitmaps[itemset[0]][word];
+					for(int j = 1; j < itemset.length && intersection != 0; j++) {
+						intersection &= bitmaps[itemset[j]][word];
+					}
+					support += Long.bitCount(intersection);
+				}
+				supports[segment] = support;
+			}
+		}
+	}
+
+	/**
+	 * Check if the support of an itemset is unknown in a segment
+	 * @param supports the supports of the itemset
+	 * @return true if a value is -1
+	 */
+	private boolean hasMissingSupport(int[] supports) {
+		for(int support : supports) {
+			if(support == -1) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Write the result to a file
+	 * @param output the output file path
+	 * @throws IOException exception if error writing the file
+	 */
+	private void writeResult(String output) throws IOException {
+		BufferedWriter writer = new BufferedWriter(new FileWriter(output));
+		try {
+			StringBuilder buffer = new StringBuilder("@SEGMENTS:");
+			for(int label : segmentLabels) {
+				buffer.append(' ');
+				buffer.append(label);
+			}
+			writer.write(buffer.toString());
+			writer.newLine();
+
+			for(int i = 0; i < itemsets.size(); i++) {
+				buffer.setLength(0);
+				int[] itemset = itemsets.get(i);
+				int[] supports = itemsetSupports.get(i);
+				// write the items of the itemset
+				for(int j = 0; j < itemset.length; j++) {
+					buffer.append(itemset[j]);
+					buffer.append(' ');
+				}
+				// Then, write the total support and the support in each segment
+				int totalSupport = 0;
+				for(int support : supports) {
+					totalSupport += support;
+				}
+				buffer.append("#SUP: ");
+				buffer.append(totalSupport);
+				buffer.append(" #SEGSUP:");
+				for(int support : supports) {
+					buffer.append(' ');
+					buffer.append(support);
+				}
+				writer.write(buffer.toString());
+				writer.newLine();
+			}
+		}finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Set the number of threads used by FPClose to mine each segment.
+	 * @param threadCount the number of threads (at least 1)
+	 */
+	public void setThreadCount(int threadCount) {
+		if(threadCount < 1) {
+			throw new IllegalArgumentException("The number of threads must be at least 1");
+		}
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * Get the label of each segment of the last execution.
+	 * @return the labels, by increasing order
+	 */
+	public int[] getSegmentLabels() {
+		return segmentLabels;
+	}
+
+	/**
+	 * Get the number of transactions of a segment
+	 * @param segment the segment (its position in the array returned by getSegmentLabels())
+	 * @return the number of transactions
+	 */
+	public int getSegmentSize(int segment) {
+		return segmentStarts[segment+1] - segmentStarts[segment];
+	}
+
+	/**
+	 * Get the number of itemsets found (the union of the closed itemsets of all segments).
+	 * @return the number of itemsets
+	 */
+	public int getItemsetCount() {
+		return itemsets.size();
+	}
+
+	/**
+	 * Get an itemset that was found
+	 * @param i the position of the itemset (from 0 to getItemsetCount()-1)
+	 * @return the items of the itemset, sorted by lexical order
+	 */
+	public int[] getItemset(int i) {
+		return itemsets.get(i);
+	}
+
+	/**
+	 * Get the support of an itemset in each segment
+	 * @param i the position of the itemset (from 0 to getItemsetCount()-1)
+	 * @return the supports, in the order of getSegmentLabels()
+	 */
+	public int[] getSegmentSupports(int i) {
+		return itemsetSupports.get(i);
+	}
+
+	/**
+	 * Print statistics about the algorithm execution to System.out.
+	 */
+	public void printStats() {
+		System.out.println("=============  FP-Close segments - STATS =============");
+		long temps = endTime - startTimestamp;
+		System.out.println(" Transactions count from database : " + transactionCount);
+		System.out.println(" Transactions without segment : " + unlabelledTransactionCount);
+		for(int segment = 0; segment < segmentLabels.length; segment++) {
+			System.out.println(" Segment " + segmentLabels[segment] + " : " + getSegmentSize(segment)
+					+ " transactions, minsup " + segmentMinSupports[segment]
+					+ ", " + segmentItemsetCounts[segment] + " closed itemsets");
+		}
+		System.out.print(" Max memory usage: " + MemoryLogger.getInstance().getMaxMemory() + " mb \n");
+		System.out.println(" Itemset count (all segments) : " + itemsets.size());
+		System.out.println(" Total time ~ " + temps + " ms");
+		System.out.println("===================================================");
+	}
+
+	/**
+	 * An itemset used as a key of a hash map
+	 */
+	private static class ItemsetKey {
+		// the items, sorted
+		final int[] items;
+		// the hash code
+		final int hashCode;
+
+		/**
+		 * Constructor
+		 * @param items the items sorted by lexical order
+		 */
+		ItemsetKey(int[] items) {
+			this.items = items;
+			this.hashCode = Arrays.hashCode(items);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			return object instanceof ItemsetKey && Arrays.equals(items, ((ItemsetKey) object).items);
+		}
+	}
+}
@@ -0,0 +1,658 @@
+package ca.pfv.spmf.algorithms.frequentpatterns.fpgrowth;
+
+/* This file is part of the SPMF DATA MINING SOFTWARE
+* (http://www.philippe-fournier-viger.com/spmf).
+*
+* SPMF is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+*
+* SPMF is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* SPMF. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+import ca.pfv.spmf.input.transaction_database_binary.BinaryTransactionDatabase;
+import ca.pfv.spmf.patterns.itemset_array_integers_with_count.Itemset;
+import ca.pfv.spmf.patterns.itemset_array_integers_with_count.Itemsets;
+import ca.pfv.spmf.tools.MemoryLogger;
+
+/**
+ * This is an algorithm to find the top-k closed itemsets (the k closed itemsets having the
+ * highest support) in a transaction database, without a minimum support threshold.
+ * It is based on the FPClose algorithm (Grahne et al., 2004):
+ * <br/><br/>
+ *
+ * Grahne, G., & Zhu, J. (2005). Fast algorithms for frequent itemset mining using
+ * fp-trees. Knowledge and Data Engineering, IEEE Transactions on, 17(10), 1347-1362.
+ * <br/><br/>
+ *
+ * The search starts with an internal minimum support of 1 (or of a minimum support given by the user),
+ * which is raised before the initial FP-tree is built by looking at the single items and at the itemsets
+ * of two or three items made of the most frequent items: two itemsets having different tidsets have different
+ * closures, so that if k itemsets having different tidsets have a support of at least s, there are at least
+ * k closed itemsets having a support of at least s.
+ * The FP-tree is then mined by {@link AlgoFPClose}, which gives each closed itemset found to this class
+ * (see {@link AlgoFPClose#setItemsetConsumer(java.util.function.Consumer)}).
+ * The closed itemsets found are kept in a priority queue (a min-heap by support) as in the
+ * TKO and TKU algorithms. When the queue contains k itemsets, the internal minimum support of
+ * AlgoFPClose is raised to the smallest support in the queue, and the itemsets having a lower support are
+ * removed from the queue. The internal minimum support is then used to prune the conditional FP-trees 
+ * that are built after that.
+ * <br/><br/>
+ *
+ * The result is correct because FPClose explores the items of a tree by increasing order of support:
+ * a closed superset of an itemset having the same support is always found before that itemset
+ * while the minimum support was not larger than its support.
+ * If several itemsets have the same support as the k-th itemset, they are all kept, so that
+ * the result can contain more than k itemsets.
+ * <br/><br/>
+ *
+ * The input file is read once: a text file is loaded in memory, and a binary transaction database
+ * is read through its memory-mapped reader.
+ *
+ * @see AlgoFPClose
+ * @see PrimitiveFPTree
+ */
+public class AlgoFPCloseTopK {
+
+	// for statistics
+	private long startTimestamp; // start time of the latest execution
+	private long endTime; // end time of the latest execution
+	private int transactionCount = 0; // transaction count in the database
+	private int itemsetCount; // number of closed itemsets found (before being removed from the top-k)
+
+	// parameter
+	private int k; // the number of itemsets to be found
+
+	// the internal minimum support (it is raised during the search)
+	public int minSupportRelative;
+	// the internal minimum support when the search started (for statistics)
+	private int initialMinSupport;
+
+	// the top-k closed itemsets found until now (the head is the itemset having the lowest support)
+	private PriorityQueue<Itemset> kItemsets = null;
+
+	// the largest number of frequent items used to raise the minimum support before the search
+	private static final int MAX_ITEMS_FOR_INITIAL_SUPPORT = 64;
+	// the largest number of words of tidsets that are read to raise the minimum support before the search
+	private static final long MAX_WORDS_FOR_INITIAL_SUPPORT = 500000000L;
+
+	// Map to store the support of single items in the original databse
+	private Map<Integer, Integer> originalMapSupport = null;
+
+	// the FPClose algorithm that mines the FP-tree (its minimum support is raised during the search)
+	private AlgoFPClose fpclose = null;
+
+	// Comparator to compare itemsets by increasing support (for the priority queue)
+	private static final Comparator<Itemset> comparatorSupport = new Comparator<Itemset>(){
+		public int compare(Itemset itemset1, Itemset itemset2){
+			return Integer.compare(itemset1.getAbsoluteSupport(), itemset2.getAbsoluteSupport());
+		}
+	};
+
+	/**
+	 * The transactions of a database that are read by the algorithm
+	 * (a database loaded in memory or a binary transaction database).
+	 */
+	private interface Transactions {
+		/**
+		 * Get a transaction
+		 * @param tid the transaction id
+		 * @param buffer an array where the items are written (it has the length of the longest transaction)
+		 * @return the number of items
+		 */
+		int getTransaction(int tid, int[] buffer);
+	}
+
+	/**
+	 * Constructor
+	 */
+	public AlgoFPCloseTopK() {
+
+	}
+
+	/**
+	 * Method to run the algorithm.
+	 * @param input the path to an input file containing a transaction database
+	 *        (in the SPMF text format or in the binary format).
+	 * @param output the output file path for saving the result (if null, the result
+	 *        will be returned by the method instead of being saved).
+	 * @param k the number of closed itemsets to be found.
+	 * @return the result if no output file path is provided.
+	 * @throws IOException exception if error reading or writing files
+	 */
+	public Itemsets runAlgorithm(String input, String output, int k) throws FileNotFoundException, IOException {
+		return runAlgorithm(input, output, k, 0);
+	}
+
+	/**
+	 * Method to run the algorithm with an initial minimum support threshold (the itemsets having a lower
+	 * support are not found even if there are less than k itemsets having this support).
+	 * @param input the path to an input file containing a transaction database
+	 *        (in the SPMF text format or in the binary format).
+	 * @param output the output file path for saving the result (if null, the result
+	 *        will be returned by the method instead of being saved).
+	 * @param k the number of closed itemsets to be found.
+	 * @param minsupp the initial minimum support threshold (a percentage, 0 for no threshold).
+	 * @return the result if no output file path is provided.
+	 * @throws IOException exception if error reading or writing files
+	 */
+	public Itemsets runAlgorithm(String input, String output, int k, double minsupp) throws FileNotFoundException, IOException {
+		// if the input is a binary transaction database, it is read through 
+		// the memory-mapped reader instead of being parsed
+		if(BinaryTransactionDatabase.isBinaryFile(input)) {
+			BinaryTransactionDatabase database = BinaryTransactionDatabase.open(input);
+			try {
+				return runAlgorithm(database, output, k, minsupp);
+			}finally {
+				database.close();
+			}
+		}
+		checkK(k);
+		initialize(k);
+
+		// (1) PREPROCESSING: read the database in memory and calculate the frequency of each item
+		// The frequency is stored in a map:
+		//    key: item   value: support
+		originalMapSupport = new HashMap<Integer, Integer>();
+		int[] items = new int[1024];
+		int itemCount = 0;
+		int[] transactionEnds = new int[1024];
+		int maxTransactionLength = 0;
+
+		BufferedReader reader = new BufferedReader(new FileReader(input));
+		try {
+			String line;
+			// for each line (transaction) until the end of file
+			while( ((line = reader.readLine())!= null)){
+				// if the line is  a comment, is  empty or is a
+				// kind of metadata
+				if (line.isEmpty() == true ||  line.charAt(0) == '#' || line.charAt(0) == '%' 	|| line.charAt(0) == '@') {
+					continue;
+				}
+				// split the line into items
+				String[] lineSplited = line.split(" ");
+				if(itemCount + lineSplited.length > items.length) {
+					items = Arrays.copyOf(items, Math.max(items.length * 2, itemCount + lineSplited.length));
+				}
+				int transactionStart = itemCount;
+				for(String itemString : lineSplited) {
+					if(itemString.isEmpty()) {
+						continue;
+					}
+					// increase the support count of the item
+					int item = Integer.parseInt(itemString);
+					items[itemCount++] = item;
+					Integer count = originalMapSupport.get(item);
+					originalMapSupport.put(item, count == null ? 1 : count + 1);
+				}
+				maxTransactionLength = Math.max(maxTransactionLength, itemCount - transactionStart);
+				// increase the transaction count
+				if(transactionCount == transactionEnds.length) {
+					transactionEnds = Arrays.copyOf(transactionEnds, transactionEnds.length * 2);
+				}
+				transactionEnds[transactionCount++] = itemCount;
+			}
+		}finally {
+			reader.close();
+		}
+
+		// the transactions are read from the arrays
+		final int[] databaseItems = items;
+		final int[] databaseTransactionEnds = transactionEnds;
+		Transactions transactions = new Transactions() {
+			public int getTransaction(int tid, int[] buffer) {
+				int start = (tid == 0) ? 0 : databaseTransactionEnds[tid - 1];
+				int length = databaseTransactionEnds[tid] - start;
+				System.arraycopy(databaseItems, start, buffer, 0, length);
+				return length;
+			}
+		};
+		return mine(transactions, maxTransactionLength, output, minsupp);
+	}
+
+	/**
+	 * Method to run the algorithm on a binary transaction database, with an initial minimum support 
+	 * threshold (0 for no threshold). The support of single items is read from the database.
+	 * @param database a binary transaction database.
+	 * @param output the output file path for saving the result (if null, the result
+	 *        will be returned by the method instead of being saved).
+	 * @param k the number of closed itemsets to be found.
+	 * @param minsupp the initial minimum support threshold (a percentage, 0 for no threshold).
+	 * @return the result if no output file path is provided.
+	 * @throws IOException exception if error writing the output file
+	 */
+	public Itemsets runAlgorithm(final BinaryTransactionDatabase database, String output, int k, double minsupp) throws IOException {
+		checkK(k);
+		initialize(k);
+
+		// (1) The support of single items was calculated when the database was written
+		originalMapSupport = database.getItemSupportMap();
+		transactionCount = database.size();
+
+		Transactions transactions = new Transactions() {
+			public int getTransaction(int tid, int[] buffer) {
+				return database.getTransaction(tid, buffer);
+			}
+		};
+		return mine(transactions, database.getMaxTransactionLength(), output, minsupp);
+	}
+
+	/**
+	 * Check the parameter k
+	 * @param k the number of closed itemsets to be found
+	 */
+	private static void checkK(int k) {
+		if(k < 1) {
+			throw new IllegalArgumentException("The parameter k must be at least 1");
+		}
+	}
+
+	/**
+	 * Reset the statistics and the top-k itemsets before an execution
+	 * @param k the number of closed itemsets to be found
+	 */
+	private void initialize(int k) {
+		// record start time
+		startTimestamp = System.currentTimeMillis();
+		// number of itemsets found
+		itemsetCount = 0;
+		transactionCount = 0;
+		this.k = k;
+		kItemsets = new PriorityQueue<Itemset>(k + 1, comparatorSupport);
+
+		//initialize tool to record memory usage
+		MemoryLogger.getInstance().reset();
+		MemoryLogger.getInstance().checkMemory();
+	}
+
+	/**
+	 * Raise the minimum support, build the initial FP-tree and mine it.
+	 * The support of single items and the number of transactions must have been calculated.
+	 * @param transactions the transactions of the database
+	 * @param maxTransactionLength the length of the longest transaction
+	 * @param output the output file path or null to keep the result into memory
+	 * @param minsupp the initial minimum support threshold (a percentage)
+	 * @return the result if no output file path is provided.
+	 * @throws IOException exception if error writing the output file
+	 */
+	private Itemsets mine(Transactions transactions, int maxTransactionLength, String output, double minsupp) throws IOException {
+		int[] buffer = new int[maxTransactionLength];
+
+		// convert the minimum support as percentage to a
+		// relative minimum support (at least 1)
+		this.minSupportRelative = Math.max(1, (int) Math.ceil(minsupp * transactionCount));
+
+		// raise the minimum support by using the supports of single items, so that the items that
+		// cannot appear in the top-k itemsets are not inserted in the initial FP-Tree
+		raiseMinSupportWithDistinctSupports();
+
+		// (2) Scan the transactions to raise the minimum support before the search.
+		// The tidsets of the most frequent items and the hash codes of the tidsets of all items
+		// are calculated, to find k itemsets having different tidsets and a high support.
+		// The rank of an item is its position in the order of decreasing support.
+		ItemRanking frequentItems = new ItemRanking(originalMapSupport, minSupportRelative);
+		int tidsetCount = Math.min(frequentItems.size(), MAX_ITEMS_FOR_INITIAL_SUPPORT);
+		long[][] tidsets = new long[tidsetCount][(transactionCount + 63) / 64];
+		// for each item: the hash code of the words of its tidset before the last word,
+		// the index of the last word and the last word
+		long[] tidsetHashes = new long[frequentItems.size()];
+		int[] lastWordIndexes = new int[frequentItems.size()];
+		long[] lastWords = new long[frequentItems.size()];
+		for(int tid = 0; tid < transactionCount; tid++) {
+			int length = transactions.getTransaction(tid, buffer);
+			// for each item in the transaction
+			for(int i = 0; i < length; i++) {
+				int position = frequentItems.getRank(buffer[i]);
+				// if the item has the minimum support, add the transaction to its tidset
+				if(position != -1){
+					if(position < tidsetCount) {
+						tidsets[position][tid >>> 6] |= 1L << tid;
+					}
+					if(lastWordIndexes[position] != tid >>> 6) {
+						tidsetHashes[position] += hashWord(lastWordIndexes[position], lastWords[position]);
+						lastWordIndexes[position] = tid >>> 6;
+						lastWords[position] = 0;
+					}
+					lastWords[position] |= 1L << tid;
+				}
+			}
+		}
+
+		// raise the minimum support by using the single items and the itemsets made of the most frequent items
+		long[] singleItemHashes = new long[frequentItems.size()];
+		int[] singleItemSupports = new int[frequentItems.size()];
+		for(int i = 0; i < frequentItems.size(); i++) {
+			singleItemHashes[i] = tidsetHashes[i] + hashWord(lastWordIndexes[i], lastWords[i]);
+			singleItemSupports[i] = frequentItems.getSupport(i);
+		}
+		raiseMinSupportWithSmallItemsets(singleItemSupports, singleItemHashes, tidsets);
+		tidsets = null;
+		initialMinSupport = minSupportRelative;
+
+		// (3) Scan the transactions again to build the initial FP-Tree
+		// with the items having the raised minimum support
+		ItemRanking ranking = new ItemRanking(originalMapSupport, minSupportRelative);
+		PrimitiveFPTree tree = new PrimitiveFPTree(ranking.size());
+		for(int tid = 0; tid < transactionCount; tid++) {
+			int length = transactions.getTransaction(tid, buffer);
+			// keep the frequent items, sorted by decreasing support
+			length = ranking.toRanks(buffer, length);
+			tree.addTransaction(buffer, length);
+		}
+		MemoryLogger.getInstance().checkMemory();
+
+		// (4) Mine the FP-Tree with FPClose. Each closed itemset is given to saveItemset,
+		// which raises the minimum support of FPClose when there are k itemsets
+		fpclose = new AlgoFPClose();
+		fpclose.setItemsetConsumer(this::saveItemset);
+		fpclose.runAlgorithm(tree, ranking, originalMapSupport, transactionCount, minSupportRelative, null);
+		fpclose = null;
+
+		// check the memory usage
+		MemoryLogger.getInstance().checkMemory();
+
+		// (5) Save the top-k closed itemsets
+		Itemsets patterns = saveTopK(output);
+
+		// record the execution end time
+		endTime= System.currentTimeMillis();
+
+		// return the result (if saved to memory)
+		return patterns;
+	}
+
+	/**
+	 * Raise the internal minimum support to the k-th highest support among the different supports of
+	 * single items. Items having different supports have different tidsets and thus different closures,
+	 * so that there are at least k closed itemsets having that support or a higher support.
+	 */
+	private void raiseMinSupportWithDistinctSupports() {
+		TreeSet<Integer> distinctSupports = new TreeSet<Integer>(originalMapSupport.values());
+		if(distinctSupports.size() >= k) {
+			// get the k-th highest support
+			Iterator<Integer> iterator = distinctSupports.descendingIterator();
+			int support = 0;
+			for(int i = 0; i < k; i++) {
+				support = iterator.next();
+			}
+			if(support > minSupportRelative) {
+				minSupportRelative = support;
+			}
+		}
+	}
+
+	/**
+	 * Raise the internal minimum support before the search to the k-th highest support of the single
+	 * items and of the itemsets of two or three items among the items for which a tidset is given,
+	 * counting the itemsets having the same tidset once.
+	 * Since two itemsets having different tidsets have different closures, there are at least k
+	 * closed itemsets having that support or a higher support.
+	 * @param singleItemSupports the support of each frequent item
+	 * @param singleItemHashes the hash code of the tidset of each frequent item (see {@link #hashWord(int, long)})
+	 * @param tidsets the tidsets of the first frequent items (one bit for each transaction)
+	 */
+	private void raiseMinSupportWithSmallItemsets(int[] singleItemSupports, long[] singleItemHashes, long[][] tidsets) {
+		// the k highest supports of the itemsets having different tidsets
+		PriorityQueue<Integer> supports = new PriorityQueue<Integer>(k + 1);
+		// the hash codes of the tidsets already seen (two different tidsets having the same hash code
+		// are counted once, which can only make the minimum support lower)
+		HashSet<Long> tidsetsSeen = new HashSet<Long>();
+		for(int i = 0; i < singleItemSupports.length; i++) {
+			addDistinctSupport(singleItemSupports[i], singleItemHashes[i], supports, tidsetsSeen);
+		}
+
+		int itemCount = tidsets.length;
+		int wordCount = itemCount == 0 ? 0 : tidsets[0].length;
+		// the itemsets of three items are only considered if there are not too many of them
+		long tripleCount = (long) itemCount * (itemCount - 1) * (itemCount - 2) / 6;
+		boolean useTriples = tripleCount * wordCount <= MAX_WORDS_FOR_INITIAL_SUPPORT;
+
+		long[] pairTidset = new long[wordCount];
+		for(int i = 0; i < itemCount; i++) {
+			for(int j = i + 1; j < itemCount; j++) {
+				for(int w = 0; w < wordCount; w++) {
+					pairTidset[w] = tidsets[i][w] & tidsets[j][w];
+				}
+				int pairSupport = addDistinctSupport(pairTidset, supports, tidsetsSeen);
+				// the supersets of a pair cannot have a higher support
+				if(useTriples == false || (supports.size() >= k && pairSupport <= supports.peek())) {
+					continue;
+				}
+				for(int l = j + 1; l < itemCount; l++) {
+					addDistinctSupport(pairTidset, tidsets[l], supports, tidsetsSeen);
+				}
+			}
+		}
+		// if there are k itemsets, their lowest support is the new minimum support
+		if(supports.size() >= k && supports.peek() > minSupportRelative) {
+			minSupportRelative = supports.peek();
+		}
+	}
+
+	/**
+	 * Add the support of a tidset to the k highest supports, if that tidset was not already seen
+	 * @param tidset the tidset
+	 * @param supports the k highest supports
+	 * @param tidsetsSeen the hash codes of the tidsets already seen
+	 * @return the support of the tidset
+	 */
+	private int addDistinctSupport(long[] tidset, PriorityQueue<Integer> supports, HashSet<Long> tidsetsSeen) {
+		int support = 0;
+		long hash = 0;
+		for(int w = 0; w < tidset.length; w++) {
+			support += Long.bitCount(tidset[w]);
+			hash += hashWord(w, tidset[w]);
+		}
+		addDistinctSupport(support, hash, supports, tidsetsSeen);
+		return support;
+	}
+
+	/**
+	 * Add the support of the intersection of two tidsets to the k highest supports, if that intersection
+	 * was not already seen
+	 * @param tidset1 a tidset
+	 * @param tidset2 another tidset
+	 * @param supports the k highest supports
+	 * @param tidsetsSeen the hash codes of the tidsets already seen
+	 */
+	private void addDistinctSupport(long[] tidset1, long[] tidset2, PriorityQueue<Integer> supports, HashSet<Long> tidsetsSeen) {
+		int support = 0;
+		long hash = 0;
+		for(int w = 0; w < tidset1.length; w++) {
+			long word = tidset1[w] & tidset2[w];
+			support += Long.bitCount(word);
+			hash += hashWord(w, word);
+		}
+		addDistinctSupport(support, hash, supports, tidsetsSeen);
+	}
+
+	/**
+	 * Get the hash code of a word of a tidset. The hash code of a tidset is the sum of the hash codes
+	 * of its words, so that it can be calculated while the tidset is built, one word at a time.
+	 * @param wordIndex the index of the word in the tidset
+	 * @param word the word
+	 * @return the hash code (0 if the word is 0)
+	 */
+	private static long hashWord(int wordIndex, long word) {
+		if(word == 0) {
+			return 0;
+		}
+		long hash = word ^ (wordIndex * 0x9E3779B97F4A7C15L);
+		hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+		hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		return hash ^ (hash >>> 33);
+	}
+
+	/**
+	 * Add the support of a tidset to the k highest supports, if that tidset was not already seen
+	 * @param support the support of the tidset
+	 * @param hash the hash code of the tidset
+	 * @param supports the k highest supports
+	 * @param tidsetsSeen the hash codes of the tidsets already seen
+	 */
+	private void addDistinctSupport(int support, long hash, PriorityQueue<Integer> supports, HashSet<Long> tidsetsSeen) {
+		// if the support is too low to be one of the k highest supports
+		if(support < minSupportRelative || (supports.size() >= k && support <= supports.peek())) {
+			return;
+		}
+		if(tidsetsSeen.add(hash)) {
+			supports.add(support);
+			if(supports.size() > k) {
+				supports.poll();
+			}
+		}
+	}
+
+	/**
+	 * Add a closed itemset found by FPClose to the top-k itemsets,
+	 * and raise the internal minimum support if there are k itemsets.
+	 * @param itemset the itemset, sorted according to the order of decreasing support
+	 *   in the original database, with its support
+	 */
+	private void saveItemset(Itemset itemset) {
+		int support = itemset.getAbsoluteSupport();
+
+		// increase the number of itemsets found for statistics purpose
+		itemsetCount++;
+
+		// if there are more than k itemsets and the new itemset has a support higher
+		// than the lowest support, the itemsets having the lowest support may be removed
+		boolean higherThanLowest = kItemsets.size() >= k && support > kItemsets.peek().getAbsoluteSupport();
+		kItemsets.add(itemset);
+		if(higherThanLowest) {
+			removeItemsetsHavingLowestSupport();
+		}
+
+		// raise the internal minimum support to the support of the k-th itemset
+		if(kItemsets.size() >= k && kItemsets.peek().getAbsoluteSupport() > minSupportRelative) {
+			minSupportRelative = kItemsets.peek().getAbsoluteSupport();
+			fpclose.minSupportRelative = minSupportRelative;
+		}
+	}
+
+	/**
+	 * Remove the itemsets having the lowest support from the top-k itemsets,
+	 * as long as at least k itemsets remain
+	 * (the itemsets having the same support are either all kept or all removed).
+	 */
+	private void removeItemsetsHavingLowestSupport() {
+		List<Itemset> lowestItemsets = new ArrayList<Itemset>();
+		while(kItemsets.size() > k) {
+			// remove the itemsets having the lowest support
+			int lowestSupport = kItemsets.peek().getAbsoluteSupport();
+			lowestItemsets.clear();
+			while(kItemsets.isEmpty() == false && kItemsets.peek().getAbsoluteSupport() == lowestSupport) {
+				lowestItemsets.add(kItemsets.poll());
+			}
+			// if less than k itemsets remain, they are put back in the queue
+			if(kItemsets.size() < k) {
+				kItemsets.addAll(lowestItemsets);
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Write the top-k closed itemsets to the output file by decreasing order of support,
+	 * or keep them into memory if no output file path is provided
+	 * @param output the output file path or null
+	 * @return the itemsets if no output file path is provided, otherwise null
+	 * @throws IOException exception if error writing the output file
+	 */
+	private Itemsets saveTopK(String output) throws IOException {
+		// sort the itemsets by decreasing order of support
+		List<Itemset> topK = new ArrayList<Itemset>(kItemsets);
+		Collections.sort(topK, Collections.reverseOrder(comparatorSupport));
+
+		// if the user want to keep the result into memory
+		if(output == null){
+			Itemsets patterns =  new Itemsets("TOP-K CLOSED ITEMSETS");
+			for(Itemset itemset : topK) {
+				// sort the itemset so that it is sorted according to lexical ordering before we show it to the user
+				Arrays.sort(itemset.getItems());
+				patterns.addItemset(itemset, itemset.size());
+			}
+			return patterns;
+		}
+
+		// if the result should be saved to a file
+		BufferedWriter writer = new BufferedWriter(new FileWriter(output));
+		for(Itemset itemset : topK) {
+			// Create a string buffer
+			StringBuilder buffer = new StringBuilder();
+			// write the items of the itemset
+			int[] items = itemset.getItems();
+			for(int i=0; i< items.length; i++){
+				buffer.append(items[i]);
+				if(i != items.length-1){
+					buffer.append(' ');
+				}
+			}
+			// Then, write the support
+			buffer.append(" #SUP: ");
+			buffer.append(itemset.getAbsoluteSupport());
+			// write to file and create a new line
+			writer.write(buffer.toString());
+			writer.newLine();
+		}
+		writer.close();
+		return null;
+	}
+
+	/**
+	 * Print statistics about the algorithm execution to System.out.
+	 */
+	public void printStats() {
+		System.out.println("=============  FP-Close Top-K  - STATS =============");
+		long temps = endTime - startTimestamp;
+		System.out.println(" Transactions count from database : " + transactionCount);
+		System.out.print(" Max memory usage: " + MemoryLogger.getInstance().getMaxMemory() + " mb \n");
+		System.out.println(" Top-k closed itemset count : " + kItemsets.size());
+		System.out.println(" Closed itemsets found during the search : " + itemsetCount);
+		System.out.println(" Internal minimum support at the start of the search : " + initialMinSupport);
+		System.out.println(" Final internal minimum support : " + minSupportRelative);
+		System.out.println(" Total time ~ " + temps + " ms");
+		System.out.println("===================================================");
+	}
+
+	/**
+	 * Get the number of transactions in the last transaction database read.
+	 * @return the number of transactions.
+	 */
+	public int getDatabaseSize() {
+		return transactionCount;
+	}
+
+	/**
+	 * Get the internal minimum support at the end of the last execution
+	 * (the lowest support of the top-k closed itemsets if k itemsets were found).
+	 * @return the minimum support, as a number of transactions
+	 */
+	public int getMinSupportRelative() {
+		return minSupportRelative;
+	}
+}
@@ -32,6 +32,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import ca.pfv.spmf.input.transaction_database_binary.BinaryTransactionDatabase;
 import ca.pfv.spmf.patterns.itemset_array_integers_with_count.Itemset;
 import ca.pfv.spmf.patterns.itemset_array_integers_with_count.Itemsets;
 import ca.pfv.spmf.tools.MemoryLogger;
@@ -47,6 +48,11 @@ import ca.pfv.spmf.tools.MemoryLogger;
  * This is an optimized version that saves the result to a file
  * or keep it into memory if no output path is provided
  * by the user to the runAlgorithm method().
+ * <br/><br/>
+ *
+ * The initial FP-tree can be built by several threads (see {@link #setThreadCount(int)}).
+ * The database can also be projected into partitions on disk, which are mined one after
+ * the other, when its FP-tree does not fit in memory (see {@link #setDiskPartitions(int, String)}).
  *
  * @see FPTree
  * @see Itemset
@@ -90,6 +96,30 @@ public class AlgoFPGrowth {
 	
 	/** minimum pattern length */
 	private int minPatternLength = 0;
+	
+	/** If set to true, the algorithm uses a PrimitiveFPTree instead of a FPTree */
+	private boolean usePrimitiveFPTree = false;
+	
+	/** The ranking of frequent items (used with the PrimitiveFPTree) */
+	private ItemRanking ranking = null;
+	
+	/** Buffers for the items and counters of a single path of a PrimitiveFPTree,
+	 * and for the prefix paths when building a conditional PrimitiveFPTree */
+	private int[] pathItemBuffer = null;
+	private int[] pathCounterBuffer = null;
+	private int[] pathBuffer = null;
+	
+	/** Buffer to convert an itemset made of ranks to an itemset made of items */
+	private int[] rankConversionBuffer = null;
+	
+	/** The number of threads used to build the initial FP-tree (1 = sequential construction) */
+	private int threadCount = 1;
+	
+	/** The number of partitions of the database on disk (0 = the database is not partitioned) */
+	private int partitionCount = 0;
+	
+	/** The directory of the partition files (null = the temporary directory of the system) */
+	private String partitionDirectory = null;
 
 
 
@@ -110,25 +140,20 @@ public class AlgoFPGrowth {
 	 * @throws IOException exception if error reading or writing files
 	 */
 	public Itemsets runAlgorithm(String input, String output, double minsupp) throws FileNotFoundException, IOException {
-		// record start time
-		startTimestamp = System.currentTimeMillis();
-		// number of itemsets found
-		itemsetCount = 0;
-		
-		//initialize tool to record memory usage
-		MemoryLogger.getInstance().reset();
-		MemoryLogger.getInstance().checkMemory();
-		
-		// if the user want to keep the result into memory
-		if(output == null){
-			writer = null;
-			patterns =  new Itemsets("FREQUENT ITEMSETS");
-	    }else{ // if the user want to save the result to a file
-			patterns = null;
-			writer = new BufferedWriter(new FileWriter(output)); 
-			itemsetOutputBuffer = new int[BUFFERS_SIZE];
+		// if the input is a binary transaction database, it is read through 
+		// the memory-mapped reader instead of being parsed
+		if(BinaryTransactionDatabase.isBinaryFile(input)) {
+			BinaryTransactionDatabase database = BinaryTransactionDatabase.open(input);
+			try {
+				return runAlgorithm(database, output, minsupp);
+			}finally {
+				database.close();
+			}
 		}
 		
+		// prepare the output and the statistics
+		initialize(output);
+		
 		// (1) PREPROCESSING: Initial database scan to determine the frequency of each item
 		// The frequency is stored in a map:
 		//    key: item   value: support
@@ -138,6 +163,26 @@ public class AlgoFPGrowth {
 		// relative minimum support
 		this.minSupportRelative = (int) Math.ceil(minsupp * transactionCount);
 		
+		// if the primitive FP-tree is used, the items are replaced by their ranks
+		if(usePrimitiveFPTree) {
+			ranking = new ItemRanking(mapSupport, minSupportRelative);
+			PrimitiveFPTree tree = new PrimitiveFPTree(ranking.size());
+			tree.addTransactions(input, ranking);
+			return minePrimitiveTree(tree);
+		}
+		
+		// if the database is projected into partitions on disk, the partitions are mined one by one
+		if(partitionCount > 0) {
+			return mineDiskPartitions(input, mapSupport);
+		}
+		
+		// if several threads are used, the parts of the file are read by several threads
+		// and their FP-trees are merged
+		if(threadCount > 1) {
+			FPTree tree = new FPTreeBuilder(mapSupport, minSupportRelative, threadCount).build(input);
+			return mineInitialTree(tree, mapSupport);
+		}
+		
 		// (2) Scan the database again to build the initial FP-Tree
 		// Before inserting a transaction in the FPTree, we sort the items
 		// by descending order of support.  We ignore items that
@@ -187,6 +232,113 @@ public class AlgoFPGrowth {
 		// close the input file
 		reader.close();
 		
+		// mine the tree
+		return mineInitialTree(tree, mapSupport);
+	}
+	
+	/**
+	 * Method to run the FPGRowth algorithm on a binary transaction database.
+	 * The support of single items is read from the database, so the database
+	 * is only scanned once, to build the initial FP-tree.
+	 * @param database a binary transaction database.
+	 * @param output the output file path for saving the result (if null, the result 
+	 *        will be returned by the method instead of being saved).
+	 * @param minsupp the minimum support threshold.
+	 * @return the result if no output file path is provided.
+	 * @throws IOException exception if error writing the output file
+	 */
+	public Itemsets runAlgorithm(BinaryTransactionDatabase database, String output, double minsupp) throws IOException {
+		// prepare the output and the statistics
+		initialize(output);
+		
+		// (1) The support of single items was calculated when the database was written
+		final Map<Integer, Integer> mapSupport = database.getItemSupportMap();
+		transactionCount = database.size();
+
+		// convert the minimum support as percentage to a
+		// relative minimum support
+		this.minSupportRelative = (int) Math.ceil(minsupp * transactionCount);
+		
+		// if the primitive FP-tree is used, the items are replaced by their ranks
+		if(usePrimitiveFPTree) {
+			ranking = new ItemRanking(mapSupport, minSupportRelative);
+			PrimitiveFPTree tree = new PrimitiveFPTree(ranking.size());
+			tree.addTransactions(database, ranking);
+			return minePrimitiveTree(tree);
+		}
+		
+		// the order of decreasing support used to sort transactions
+		Comparator<Integer> comparator = new Comparator<Integer>(){
+			public int compare(Integer item1, Integer item2){
+				// compare the frequency
+				int compare = mapSupport.get(item2) - mapSupport.get(item1);
+				// if the same frequency, we check the lexical ordering!
+				if(compare == 0){ 
+					return (item1 - item2);
+				}
+				// otherwise, just use the frequency
+				return compare;
+			}
+		};
+		
+		// (2) Scan the database to build the initial FP-Tree
+		FPTree tree = new FPTree();
+		int[] buffer = new int[database.getMaxTransactionLength()];
+		for(int tid = 0; tid < transactionCount; tid++) {
+			int length = database.getTransaction(tid, buffer);
+			List<Integer> transaction = new ArrayList<Integer>(length);
+			
+			// for each item in the transaction
+			for(int i = 0; i < length; i++) {
+				// only add items that have the minimum support
+				if(mapSupport.get(buffer[i]) >= minSupportRelative){
+					transaction.add(buffer[i]);	
+				}
+			}
+			// sort item in the transaction by descending order of support
+			Collections.sort(transaction, comparator);
+			// add the sorted transaction to the fptree.
+			tree.addTransaction(transaction);
+		}
+		
+		// mine the tree
+		return mineInitialTree(tree, mapSupport);
+	}
+	
+	/**
+	 * Reset the statistics and open the output file (if any) before an execution
+	 * @param output the output file path or null to keep the result into memory
+	 * @throws IOException exception if error opening the output file
+	 */
+	private void initialize(String output) throws IOException {
+		// record start time
+		startTimestamp = System.currentTimeMillis();
+		// number of itemsets found
+		itemsetCount = 0;
+		
+		//initialize tool to record memory usage
+		MemoryLogger.getInstance().reset();
+		MemoryLogger.getInstance().checkMemory();
+		
+		// if the user want to keep the result into memory
+		if(output == null){
+			writer = null;
+			patterns =  new Itemsets("FREQUENT ITEMSETS");
+	    }else{ // if the user want to save the result to a file
+			patterns = null;
+			writer = new BufferedWriter(new FileWriter(output)); 
+			itemsetOutputBuffer = new int[BUFFERS_SIZE];
+		}
+	}
+	
+	/**
+	 * Mine the initial FP-tree, then close the output file.
+	 * @param tree the initial FP-tree
+	 * @param mapSupport the support of single items
+	 * @return the result if no output file path is provided.
+	 * @throws IOException exception if error writing the output file
+	 */
+	private Itemsets mineInitialTree(FPTree tree, Map<Integer, Integer> mapSupport) throws IOException {
 		// We create the header table for the tree using the calculated support of single items
 		tree.createHeaderList(mapSupport);
 		
@@ -220,6 +372,54 @@ public class AlgoFPGrowth {
 
 
 	
+	/**
+	 * Project the database into partitions on disk, and mine the FP-tree of each partition, 
+	 * then close the output file. The itemsets are found in the same order as when the FP-tree 
+	 * of the whole database is mined: the partitions are mined from the partition of the 
+	 * least frequent items, and only the items of a partition are mined in its FP-tree.
+	 * @param input the path to the input file
+	 * @param mapSupport the support of single items
+	 * @return the result if no output file path is provided.
+	 * @throws IOException exception if error reading the input file, writing a partition or writing the output file
+	 */
+	private Itemsets mineDiskPartitions(String input, Map<Integer, Integer> mapSupport) throws IOException {
+		DiskProjectedDatabase database = new DiskProjectedDatabase(mapSupport, minSupportRelative, 
+				partitionCount, partitionDirectory);
+		try {
+			database.project(input);
+			// initialize the buffers
+			itemsetBuffer = new int[BUFFERS_SIZE];
+			fpNodeTempBuffer = new FPNode[BUFFERS_SIZE];
+			for(int partition = database.getPartitionCount() - 1; partition >= 0 && maxPatternLength > 0; partition--) {
+				// build the FP-tree of the partition
+				FPTree tree = database.buildTree(partition);
+				tree.createHeaderList(mapSupport);
+				// For each item of the partition (the last items of the header list) in reverse order.
+				for(int i = tree.headerList.size()-1; i>=0; i--){
+					Integer item = tree.headerList.get(i);
+					if(database.getPartition(item) != partition) {
+						break;
+					}
+					fpgrowthItem(tree, item, itemsetBuffer, 0, transactionCount, mapSupport);
+				}
+				// check the memory usage
+				MemoryLogger.getInstance().checkMemory();
+			}
+		}finally {
+			database.delete();
+		}
+		
+		// close the output file if the result was saved to a file
+		if(writer != null){
+			writer.close();
+		}
+		// record the execution end time
+		endTime= System.currentTimeMillis();
+		
+		// return the result (if saved to memory)
+		return patterns;
+	}
+	
 	/**
 	 * Mine an FP-Tree having more than one path.
 	 * @param tree  the FP-tree
@@ -286,86 +486,100 @@ public class AlgoFPGrowth {
 			for(int i = tree.headerList.size()-1; i>=0; i--){
 				// get the item
 				Integer item = tree.headerList.get(i);
-				
-				// get the item support
-				int support = mapSupport.get(item);
+				// mine the itemsets having the prefix alpha U {item}
+				fpgrowthItem(tree, item, prefix, prefixLength, prefixSupport, mapSupport);
+			}
+		}
+	}
 	
-				// Create Beta by concatening prefix Alpha by adding the current item to alpha
-				prefix[prefixLength] = item;
-				
-				// calculate the support of the new prefix beta
-				int betaSupport = (prefixSupport < support) ? prefixSupport: support;
-				
-				// save beta to the output file
-				saveItemset(prefix, prefixLength+1, betaSupport);
-				
-				if(prefixLength+1 < maxPatternLength){
-				
-					// === (A) Construct beta's conditional pattern base ===
-					// It is a subdatabase which consists of the set of prefix paths
-					// in the FP-tree co-occuring with the prefix pattern.
-					List<List<FPNode>> prefixPaths = new ArrayList<List<FPNode>>();
-					FPNode path = tree.mapItemNodes.get(item);
+	/**
+	 * Mine the itemsets having the prefix alpha U {item} in an FP-Tree having more than one path.
+	 * This is one iteration of the loop over the header list of the tree.
+	 * @param tree  the FP-tree
+	 * @param item  the item to be appended to the prefix
+	 * @param prefix  the current prefix, named "alpha"
+	 * @param prefixLength the length of the prefix
+	 * @param prefixSupport the support of the prefix
+	 * @param mapSupport the frequency of items in the FP-Tree
+	 * @throws IOException  exception if error writing the output file
+	 */
+	private void fpgrowthItem(FPTree tree, Integer item, int [] prefix, int prefixLength, int prefixSupport, Map<Integer, Integer> mapSupport) throws IOException {
+		// get the item support
+		int support = mapSupport.get(item);
+
+		// Create Beta by concatening prefix Alpha by adding the current item to alpha
+		prefix[prefixLength] = item;
+		
+		// calculate the support of the new prefix beta
+		int betaSupport = (prefixSupport < support) ? prefixSupport: support;
+		
+		// save beta to the output file
+		saveItemset(prefix, prefixLength+1, betaSupport);
+		
+		if(prefixLength+1 < maxPatternLength){
+		
+			// === (A) Construct beta's conditional pattern base ===
+			// It is a subdatabase which consists of the set of prefix paths
+			// in the FP-tree co-occuring with the prefix pattern.
+			List<List<FPNode>> prefixPaths = new ArrayList<List<FPNode>>();
+			FPNode path = tree.mapItemNodes.get(item);
+			
+			// Map to count the support of items in the conditional prefix tree
+			// Key: item   Value: support
+			Map<Integer, Integer> mapSupportBeta = new HashMap<Integer, Integer>();
+			
+			while(path != null){
+				// if the path is not just the root node
+				if(path.parent.itemID != -1){
+					// create the prefixpath
+					List<FPNode> prefixPath = new ArrayList<FPNode>();
+					// add this node.
+					prefixPath.add(path);   // NOTE: we add it just to keep its support,
+					// actually it should not be part of the prefixPath
 					
-					// Map to count the support of items in the conditional prefix tree
-					// Key: item   Value: support
-					Map<Integer, Integer> mapSupportBeta = new HashMap<Integer, Integer>();
+					// ####
+					int pathCount = path.counter;
 					
-					while(path != null){
-						// if the path is not just the root node
-						if(path.parent.itemID != -1){
-							// create the prefixpath
-							List<FPNode> prefixPath = new ArrayList<FPNode>();
-							// add this node.
-							prefixPath.add(path);   // NOTE: we add it just to keep its support,
-							// actually it should not be part of the prefixPath
-							
-							// ####
-							int pathCount = path.counter;
-							
-							//Recursively add all the parents of this node.
-							FPNode parent = path.parent;
-							while(parent.itemID != -1){
-								prefixPath.add(parent);
-								
-								// FOR EACH PATTERN WE ALSO UPDATE THE ITEM SUPPORT AT THE SAME TIME
-								// if the first time we see that node id
-								if(mapSupportBeta.get(parent.itemID) == null){
-									// just add the path count
-									mapSupportBeta.put(parent.itemID, pathCount);
-								}else{
-									// otherwise, make the sum with the value already stored
-									mapSupportBeta.put(parent.itemID, mapSupportBeta.get(parent.itemID) + pathCount);
-								}
-								parent = parent.parent;
-							}
-							// add the path to the list of prefixpaths
-							prefixPaths.add(prefixPath);
+					//Recursively add all the parents of this node.
+					FPNode parent = path.parent;
+					while(parent.itemID != -1){
+						prefixPath.add(parent);
+						
+						// FOR EACH PATTERN WE ALSO UPDATE THE ITEM SUPPORT AT THE SAME TIME
+						// if the first time we see that node id
+						if(mapSupportBeta.get(parent.itemID) == null){
+							// just add the path count
+							mapSupportBeta.put(parent.itemID, pathCount);
+						}else{
+							// otherwise, make the sum with the value already stored
+							mapSupportBeta.put(parent.itemID, mapSupportBeta.get(parent.itemID) + pathCount);
 						}
-						// We will look for the next prefixpath
-						path = path.nodeLink;
-					}
-	
-					// (B) Construct beta's conditional FP-Tree
-					// Create the tree.
-					FPTree treeBeta = new FPTree();
-					// Add each prefixpath in the FP-tree.
-					for(List<FPNode> prefixPath : prefixPaths){
-						treeBeta.addPrefixPath(prefixPath, mapSupportBeta, minSupportRelative); 
-					}  
-					
-					// Mine recursively the Beta tree if the root has child(s)
-					if(treeBeta.root.childs.size() > 0){
-	
-						// Create the header list.
-						treeBeta.createHeaderList(mapSupportBeta); 
-						// recursive call
-						fpgrowth(treeBeta, prefix, prefixLength+1, betaSupport, mapSupportBeta);
+						parent = parent.parent;
 					}
+					// add the path to the list of prefixpaths
+					prefixPaths.add(prefixPath);
 				}
+				// We will look for the next prefixpath
+				path = path.nodeLink;
+			}
+
+			// (B) Construct beta's conditional FP-Tree
+			// Create the tree.
+			FPTree treeBeta = new FPTree();
+			// Add each prefixpath in the FP-tree.
+			for(List<FPNode> prefixPath : prefixPaths){
+				treeBeta.addPrefixPath(prefixPath, mapSupportBeta, minSupportRelative); 
+			}  
+			
+			// Mine recursively the Beta tree if the root has child(s)
+			if(treeBeta.root.childs.size() > 0){
+
+				// Create the header list.
+				treeBeta.createHeaderList(mapSupportBeta); 
+				// recursive call
+				fpgrowth(treeBeta, prefix, prefixLength+1, betaSupport, mapSupportBeta);
 			}
 		}
-		
 	}
 
 
@@ -457,6 +671,141 @@ loop1:	for (long i = 1, max = 1 << position; i < max; i++) {
 	}
 
 
+	/**
+	 * Mine the initial PrimitiveFPTree, then close the output file.
+	 * @param tree the initial FP-tree
+	 * @return the result if no output file path is provided.
+	 * @throws IOException exception if error writing the output file
+	 */
+	private Itemsets minePrimitiveTree(PrimitiveFPTree tree) throws IOException {
+		// if at least an item is frequent
+		if(tree.isEmpty() == false) {
+			// initialize the buffers
+			itemsetBuffer = new int[BUFFERS_SIZE];
+			rankConversionBuffer = new int[BUFFERS_SIZE];
+			pathItemBuffer = new int[ranking.size()];
+			pathCounterBuffer = new int[ranking.size()];
+			pathBuffer = new int[ranking.size()];
+			// recursively generate frequent itemsets using the fp-tree
+			fpgrowth(tree, itemsetBuffer, 0, transactionCount);
+		}
+		
+		// close the output file if the result was saved to a file
+		if(writer != null){
+			writer.close();
+		}
+		// record the execution end time
+		endTime= System.currentTimeMillis();
+		
+		// check the memory usage
+		MemoryLogger.getInstance().checkMemory();
+		
+		// return the result (if saved to memory)
+		return patterns;
+	}
+	
+	/**
+	 * Mine a PrimitiveFPTree. This is the same as the method for FPTree, except that
+	 * the prefix contains ranks of items instead of items, and that the items
+	 * of the header table are processed in the order of their rank.
+	 * @param tree  the FP-tree
+	 * @param prefix  the current prefix, named "alpha" (ranks)
+	 * @param prefixLength the length of the prefix
+	 * @param prefixSupport the support of the prefix
+	 * @throws IOException  exception if error writing the output file
+	 */
+	private void fpgrowth(PrimitiveFPTree tree, int [] prefix, int prefixLength, int prefixSupport) throws IOException {
+		if(prefixLength == maxPatternLength){
+			return;
+		}
+		
+		// We will check if the FPtree contains a single path
+		int position = tree.getSinglePath(pathItemBuffer, pathCounterBuffer, 0);
+		
+		// Case 1: the FPtree contains a single path
+		if(position != -1){
+			saveAllCombinationsOfPrefixPath(position, prefix, prefixLength);
+		}else {
+			// For each frequent item in the header table list of the tree in reverse order.
+			int[] headerList = tree.getHeaderList();
+			for(int i = headerList.length-1; i>=0; i--){
+				// get the item
+				int item = headerList[i];
+				
+				// get the item support
+				int support = tree.getSupport(item);
+	
+				// Create Beta by concatening prefix Alpha by adding the current item to alpha
+				prefix[prefixLength] = item;
+				
+				// calculate the support of the new prefix beta
+				int betaSupport = (prefixSupport < support) ? prefixSupport: support;
+				
+				// save beta to the output file
+				saveRanks(prefix, prefixLength+1, betaSupport);
+				
+				if(prefixLength+1 < maxPatternLength){
+					// Construct beta's conditional FP-Tree
+					int[] conditionalSupports = tree.calculateConditionalSupports(item);
+					PrimitiveFPTree treeBeta = tree.createConditionalTree(item, conditionalSupports, minSupportRelative, pathBuffer);
+					
+					// Mine recursively the Beta tree if the root has child(s)
+					if(treeBeta.isEmpty() == false){
+						fpgrowth(treeBeta, prefix, prefixLength+1, betaSupport);
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * This method saves all combinations of the single path of a PrimitiveFPTree.
+	 * The path is in pathItemBuffer and pathCounterBuffer.
+	 * @param position the length of the path
+	 * @param prefix the current prefix (ranks)
+	 * @param prefixLength the current prefix length
+	 * @throws IOException if exception while writting to output file
+	 */
+	private void saveAllCombinationsOfPrefixPath(int position, int[] prefix, int prefixLength) throws IOException {
+
+		int support = 0;
+		// Generate all subsets of the prefixPath except the empty set
+		// and output them
+		// We use bits to generate all subsets.
+loop1:	for (long i = 1, max = 1L << position; i < max; i++) {
+			
+			// we create a new subset
+			int newPrefixLength = prefixLength;
+			
+			// for each bit
+			for (int j = 0; j < position; j++) {
+				// check if the j bit is set to 1
+				// if yes, add the bit position as an item to the new subset
+				if ((i & (1L << j)) != 0) {
+					if(newPrefixLength == maxPatternLength){
+						continue loop1;
+					}
+					prefix[newPrefixLength++] = pathItemBuffer[j];
+					support = pathCounterBuffer[j];
+				}
+			}
+			// save the itemset
+			saveRanks(prefix, newPrefixLength, support);
+		}
+	}
+	
+	/**
+	 * Save an itemset made of ranks of items
+	 * @param ranks the ranks
+	 * @param itemsetLength the length of the itemset
+	 * @param support the support of the itemset
+	 * @throws IOException if exception while writting to output file
+	 */
+	private void saveRanks(int[] ranks, int itemsetLength, int support) throws IOException {
+		ranking.toItems(ranks, itemsetLength, rankConversionBuffer);
+		saveItemset(rankConversionBuffer, itemsetLength, support);
+	}
+
 	/**
 	 * Write a frequent itemset that is found to the output file or
 	 * keep into memory if the user prefer that the result be saved into memory.
@@ -528,6 +877,45 @@ loop1:	for (long i = 1, max = 1 << position; i < max; i++) {
 		return transactionCount;
 	}
 
+	/**
+	 * Use a PrimitiveFPTree, where nodes are stored in arrays of ints, instead of a FPTree.
+	 * This gives the same result with less memory.
+	 * @param usePrimitiveFPTree true to use the PrimitiveFPTree
+	 */
+	public void setUsePrimitiveFPTree(boolean usePrimitiveFPTree) {
+		this.usePrimitiveFPTree = usePrimitiveFPTree;
+	}
+
+	/**
+	 * Set the number of threads used to build the initial FP-tree (see {@link FPTreeBuilder}).
+	 * The FP-tree is built by several threads only when it is read from a text file
+	 * and the PrimitiveFPTree is not used. The result is the same as with a single thread (the default).
+	 * @param threadCount the number of threads (at least 1)
+	 */
+	public void setThreadCount(int threadCount) {
+		if(threadCount < 1) {
+			throw new IllegalArgumentException("The number of threads must be at least 1");
+		}
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * Project the database into partitions stored on disk, and mine the partitions one after the other
+	 * instead of building the FP-tree of the whole database (see {@link DiskProjectedDatabase}).
+	 * Only the FP-tree of a partition is in memory at a time, and the result is the same.
+	 * Partitions are only used when the database is read from a text file and the PrimitiveFPTree 
+	 * is not used.
+	 * @param partitionCount the number of partitions (0 to not use partitions, which is the default)
+	 * @param directory the directory of the partition files (null for the temporary directory of the system)
+	 */
+	public void setDiskPartitions(int partitionCount, String directory) {
+		if(partitionCount < 0) {
+			throw new IllegalArgumentException("The number of partitions cannot be negative");
+		}
+		this.partitionCount = partitionCount;
+		this.partitionDirectory = directory;
+	}
+
 	/** 
 	 * Set the maximum pattern length
 	 * @param length the maximum length
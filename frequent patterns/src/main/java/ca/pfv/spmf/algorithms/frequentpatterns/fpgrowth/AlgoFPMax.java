@@ -88,6 +88,18 @@ public class AlgoFPMax {
 	// If set to true, the algorithm will show  information for debugging in the console
 	private final boolean DEBUG = false;
 	
+	// If set to true, the algorithm uses a PrimitiveFPTree instead of a FPTree
+	private boolean usePrimitiveFPTree = false;
+	
+	// The ranking of frequent items (used with the PrimitiveFPTree)
+	private ItemRanking ranking = null;
+	
+	// Buffer for the counters of a single path of a PrimitiveFPTree
+	private int[] countBuffer = null;
+	
+	// Buffer for storing a prefix path when building a conditional PrimitiveFPTree
+	private int[] pathBuffer = null;
+	
 	// Comparator to compare the items based on the order of decreasing support in the original DB.
 	Comparator<Integer> comparatorOriginalOrder = new Comparator<Integer>(){
 		public int compare(Integer item1, Integer item2){
@@ -150,6 +162,22 @@ public class AlgoFPMax {
 		// Create the MFI Tree
 		mfiTree = new MFITree();	
 		
+		// if the primitive FP-tree is used, the items are replaced by their ranks
+		// and the tree is built with a single scan of the file
+		if(usePrimitiveFPTree) {
+			ranking = new ItemRanking(originalMapSupport, minSupportRelative);
+			PrimitiveFPTree tree = new PrimitiveFPTree(ranking.size());
+			tree.addTransactions(input, ranking);
+			// if at least an item is frequent
+			if(tree.isEmpty() == false) {
+				itemsetBuffer = new int[BUFFERS_SIZE];
+				countBuffer = new int[BUFFERS_SIZE];
+				pathBuffer = new int[ranking.size()];
+				fpMax(tree, itemsetBuffer, 0, transactionCount);
+			}
+			return finish();
+		}
+		
 		// (2) Scan the database again to build the initial FP-Tree
 		// Before inserting a transaction in the FPTree, we sort the items
 		// by descending order of support.  We ignore items that
@@ -203,6 +231,15 @@ public class AlgoFPMax {
 			fpMax(tree, itemsetBuffer, 0, transactionCount, originalMapSupport);
 		}
 		
+		return finish();
+	}
+	
+	/**
+	 * Close the output file and record the statistics at the end of an execution.
+	 * @return the result if no output file path is provided.
+	 * @throws IOException exception if error closing the output file
+	 */
+	private Itemsets finish() throws IOException {
 		// close the output file if the result was saved to a file
 		if(writer != null){
 			writer.close();
@@ -407,6 +444,112 @@ public class AlgoFPMax {
 		}
 	}
 
+	/**
+	 * Mine a PrimitiveFPTree. This is the same as the method for FPTree, except that
+	 * the prefix contains ranks of items instead of items.
+	 * @param tree  the FP-tree
+	 * @param prefix  the current prefix, named "alpha" (ranks)
+	 * @param prefixLength the length of the prefix
+	 * @param prefixSupport the support of the prefix
+	 * @throws IOException  exception if error writing the output file
+	 */
+	private void fpMax(PrimitiveFPTree tree, int [] prefix, int prefixLength, int prefixSupport) throws IOException {
+		// We first check if the FPtree contains a single path
+		// (the items of the path are copied in the buffers after the prefix)
+		int position = tree.getSinglePath(itemsetBuffer, countBuffer, prefixLength);
+		
+		// Case 1: the FPtree contains a single path
+		if(position != -1 && countBuffer[position-1] >= minSupportRelative){	
+			// We save the path, because it is a maximal itemset
+			saveSortedItemset(toSortedItems(itemsetBuffer, position), position, countBuffer[position-1]);
+		}else {
+			// Case 2: There are multiple paths.
+			
+			// For each frequent item in the header table list of the tree in reverse order. (in decreasing order of support...)
+			int[] headerList = tree.getHeaderList();
+			for(int i = headerList.length-1; i>=0; i--){
+				// get the item
+				int item = headerList[i];
+				
+				// get the item support
+				int support = tree.getSupport(item);
+
+				// Create Beta by concatening item to the current prefix  alpha
+				prefix[prefixLength] = item;
+				
+				// calculate the support of the new prefix beta
+				int betaSupport = (prefixSupport < support) ? prefixSupport: support;
+				
+				// the support of items in beta's conditional pattern base
+				int[] conditionalSupports = tree.calculateConditionalSupports(item);
+				
+				// ===== FPMAX ======
+				// concatenate Beta with all the frequent items in the pattern base
+				// to get head U P
+				int[] headWithPRanks = new int[prefixLength + 1 + item];
+				System.arraycopy(prefix, 0, headWithPRanks, 0, prefixLength+1);
+				int headWithPLength = prefixLength+1;
+				for(int rank = 0; rank < item; rank++) {
+					if(conditionalSupports[rank] >= minSupportRelative) {
+						headWithPRanks[headWithPLength++] = rank;
+					}
+				}
+				
+				// CHECK IF HEAD U P IS A SUBSET OF A MFI ACCORDING TO THE MFI-TREE
+				if(mfiTree.passSubsetChecking(toSortedItemList(headWithPRanks, headWithPLength))) {
+					// Construct beta's conditional FP-Tree using its prefix paths
+					PrimitiveFPTree treeBeta = tree.createConditionalTree(item, conditionalSupports, minSupportRelative, pathBuffer);
+					// Mine recursively the Beta tree if the root has child(s)
+					if(treeBeta.isEmpty() == false){
+						fpMax(treeBeta, prefix, prefixLength+1, betaSupport);
+					}
+					
+					// ======= After that, we still need to check if beta is a maximal itemset ====
+					int[] beta = toSortedItems(prefix, prefixLength+1);
+					List<Integer> temp = new ArrayList<Integer>(prefixLength+1);
+					for(int betaItem : beta) {
+						temp.add(betaItem);
+					}
+					// if beta pass the test, we save it
+					if(mfiTree.passSubsetChecking(temp)) {
+						saveSortedItemset(beta, prefixLength+1, betaSupport);
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Convert an itemset made of ranks to an itemset made of items sorted according to the total
+	 * order of support (which is the order of ranks).
+	 * @param ranks the ranks
+	 * @param length the number of ranks
+	 * @return a new array containing the items
+	 */
+	private int[] toSortedItems(int[] ranks, int length) {
+		int[] items = new int[length];
+		System.arraycopy(ranks, 0, items, 0, length);
+		ItemRanking.sort(items, length);
+		ranking.toItems(items, length, items);
+		return items;
+	}
+	
+	/**
+	 * Convert an itemset made of ranks to a list of items sorted according to the total
+	 * order of support, as used by the MFI-tree.
+	 * @param ranks the ranks (the array is sorted by this method)
+	 * @param length the number of ranks
+	 * @return a list of items
+	 */
+	private List<Integer> toSortedItemList(int[] ranks, int length) {
+		ItemRanking.sort(ranks, length);
+		List<Integer> items = new ArrayList<Integer>(length);
+		for(int i = 0; i < length; i++) {
+			items.add(ranking.getItem(ranks[i]));
+		}
+		return items;
+	}
+
 	/**
 	 * Write a frequent itemset that is found to the output file or
 	 * keep into memory if the user prefer that the result be saved into memory.
@@ -419,6 +562,18 @@ public class AlgoFPMax {
 		System.arraycopy(itemset, 0, itemsetCopy, 0, itemsetLength);
 		sortOriginalOrder(itemsetCopy, itemsetLength);
 		
+		saveSortedItemset(itemsetCopy, itemsetLength, support);
+	}
+	
+	/**
+	 * Write a frequent itemset that is found to the output file or
+	 * keep into memory if the user prefer that the result be saved into memory.
+	 * @param itemsetCopy the itemset, sorted according to the order of decreasing support
+	 *   in the original database (this array is not reused by the caller)
+	 * @param itemsetLength the length of the itemset
+	 * @param support the support of the itemset
+	 */
+	private void saveSortedItemset(int [] itemsetCopy, int itemsetLength, int support) throws IOException {
 		if(DEBUG) {
 	//		//======= DEBUG ========
 			System.out.print(" ##### SAVING : ");
@@ -531,6 +686,15 @@ public class AlgoFPMax {
 	}
 
 
+	/**
+	 * Use a PrimitiveFPTree, where nodes are stored in arrays of ints, instead of a FPTree.
+	 * This gives the same result with less memory.
+	 * @param usePrimitiveFPTree true to use the PrimitiveFPTree
+	 */
+	public void setUsePrimitiveFPTree(boolean usePrimitiveFPTree) {
+		this.usePrimitiveFPTree = usePrimitiveFPTree;
+	}
+
 	/**
 	 * Print statistics about the algorithm execution to System.out.
 	 */
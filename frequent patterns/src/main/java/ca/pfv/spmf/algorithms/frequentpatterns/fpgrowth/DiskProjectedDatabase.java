@@ -0,0 +1,286 @@
+package ca.pfv.spmf.algorithms.frequentpatterns.fpgrowth;
+
+/* This file is part of the SPMF DATA MINING SOFTWARE
+* (http://www.philippe-fournier-viger.com/spmf).
+*
+* SPMF is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+*
+* SPMF is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* SPMF. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class projects a transaction database into partitions stored on disk, so that
+ * the FPGrowth and FPClose algorithms can mine a database whose FP-tree does not fit in memory
+ * (this is the database projection of Han et al., 2004, applied to groups of items).
+ * <br/><br/>
+ *
+ * The frequent items are sorted by decreasing order of support, as in an FP-tree, and divided
+ * into groups of consecutive items (a partition for each group). For each group of items appearing
+ * in a transaction, the transaction is written to the partition of the group, without the items
+ * that come after the last item of the group in the transaction. The FP-tree of a partition
+ * thus contains all the prefix paths of the items of its group, with the same counters as in the
+ * FP-tree of the whole database, so the itemsets ending with an item of the group can be
+ * mined from it (the other items of the tree do not have their real support and must not be mined).
+ * <br/><br/>
+ *
+ * The groups are chosen so that the partitions have about the same size: the size of the
+ * projection of each item (the number of items written for it if each item had its own partition)
+ * is calculated by a first scan, and the partitions are written by a second scan.
+ *
+ * @see AlgoFPGrowth
+ * @see AlgoFPClose
+ * @see FPTree
+ */
+public class DiskProjectedDatabase {
+
+	/** the size of the buffer of each partition file */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/** the ranking of the frequent items (partitions contain ranks instead of items) */
+	private final ItemRanking ranking;
+
+	/** the number of partitions that is requested */
+	private final int requestedPartitionCount;
+
+	/** the directory of the partition files (null for the temporary directory of the system) */
+	private final File directory;
+
+	/** the first rank of each partition (and the number of ranks at the end) */
+	private int[] partitionStarts = null;
+
+	/** the partition of each rank */
+	private int[] rankToPartition = null;
+
+	/** the file of each partition */
+	private File[] partitionFiles = null;
+
+	/** buffer for the ranks of the transaction that is read */
+	private int[] transactionBuffer = new int[64];
+
+	/** the number of ranks of the transaction that is read */
+	private int transactionLength;
+
+	/**
+	 * Constructor
+	 * @param mapSupport the support of each item in the database (key: item  value: support)
+	 * @param minSupport the minimum support as a number of transactions
+	 * @param partitionCount the number of partitions (at least 1; there are fewer partitions if there
+	 *        are fewer frequent items)
+	 * @param directory the directory where the partition files are written, or null for the temporary
+	 *        directory of the system
+	 */
+	public DiskProjectedDatabase(Map<Integer, Integer> mapSupport, int minSupport, int partitionCount, String directory) {
+		if(partitionCount < 1) {
+			throw new IllegalArgumentException("The number of partitions must be at least 1");
+		}
+		this.ranking = new ItemRanking(mapSupport, minSupport);
+		this.requestedPartitionCount = partitionCount;
+		this.directory = (directory == null) ? null : new File(directory);
+	}
+
+	/**
+	 * Read a transaction database file and write its partitions.
+	 * @param input the path to the file
+	 * @throws IOException exception if error reading the file or writing a partition
+	 */
+	public void project(String input) throws IOException {
+		// (1) calculate the size of the projection of each item
+		long[] rankWeights = new long[ranking.size()];
+		BufferedReader reader = new BufferedReader(new FileReader(input));
+		try {
+			while(readTransaction(reader)) {
+				for(int i = 0; i < transactionLength; i++) {
+					rankWeights[transactionBuffer[i]] += i + 1;
+				}
+			}
+		}finally {
+			reader.close();
+		}
+		createPartitions(rankWeights);
+
+		// (2) write each transaction to the partitions of its items
+		partitionFiles = new File[getPartitionCount()];
+		DataOutputStream[] outputs = new DataOutputStream[getPartitionCount()];
+		try {
+			for(int partition = 0; partition < outputs.length; partition++) {
+				partitionFiles[partition] = File.createTempFile("spmf_partition" + partition + "_", ".bin", directory);
+				outputs[partition] = new DataOutputStream(new BufferedOutputStream(
+						new FileOutputStream(partitionFiles[partition]), BUFFER_SIZE));
+			}
+			reader = new BufferedReader(new FileReader(input));
+			try {
+				while(readTransaction(reader)) {
+					for(int i = 0; i < transactionLength; i++) {
+						int partition = rankToPartition[transactionBuffer[i]];
+						// if this is the last item of the partition in the transaction,
+						// the transaction is written up to this item
+						if(i == transactionLength - 1 || rankToPartition[transactionBuffer[i + 1]] != partition) {
+							DataOutputStream output = outputs[partition];
+							output.writeInt(i + 1);
+							for(int j = 0; j <= i; j++) {
+								output.writeInt(transactionBuffer[j]);
+							}
+						}
+					}
+				}
+			}finally {
+				reader.close();
+			}
+		}finally {
+			for(DataOutputStream output : outputs) {
+				if(output != null) {
+					output.close();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Read the next transaction of a file in the transaction buffer, and convert it to ranks sorted
+	 * by increasing order (the lines that are empty, that are comments or metadata are skipped)
+	 * @param reader the reader of the file
+	 * @return false if the end of the file is reached
+	 * @throws IOException exception if error reading the file
+	 */
+	private boolean readTransaction(BufferedReader reader) throws IOException {
+		String line;
+		while((line = reader.readLine()) != null) {
+			// if the line is  a comment, is  empty or is a
+			// kind of metadata
+			if (line.isEmpty() == true ||	line.charAt(0) == '#' || line.charAt(0) == '%'
+				|| line.charAt(0) == '@') {
+				continue;
+			}
+			String[] lineSplited = line.split(" ");
+			if(lineSplited.length > transactionBuffer.length) {
+				transactionBuffer = new int[lineSplited.length];
+			}
+			for(int i = 0; i < lineSplited.length; i++) {
+				transactionBuffer[i] = Integer.parseInt(lineSplited[i]);
+			}
+			// keep the frequent items, sorted by decreasing support
+			transactionLength = ranking.toRanks(transactionBuffer, lineSplited.length);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Divide the ranks into groups of consecutive ranks having about the same total weight.
+	 * @param rankWeights the size of the projection of each rank
+	 */
+	private void createPartitions(long[] rankWeights) {
+		long totalWeight = 0;
+		for(long weight : rankWeights) {
+			totalWeight += weight;
+		}
+		int partitionCount = Math.min(requestedPartitionCount, rankWeights.length);
+		rankToPartition = new int[rankWeights.length];
+		List<Integer> starts = new ArrayList<Integer>();
+		long weight = 0;
+		for(int rank = 0; rank < rankWeights.length; rank++) {
+			// a new partition is started when the previous partitions have their share of the weight,
+			// or when the remaining ranks are needed to have one partition each
+			int partition = starts.size() - 1;
+			boolean full = partition >= 0 && weight >= totalWeight * (partition + 1) / partitionCount;
+			if(partition < 0 || (partition < partitionCount - 1
+					&& (full || rankWeights.length - rank == partitionCount - partition - 1))) {
+				starts.add(rank);
+				partition++;
+			}
+			rankToPartition[rank] = partition;
+			weight += rankWeights[rank];
+		}
+		partitionStarts = new int[starts.size() + 1];
+		for(int i = 0; i < starts.size(); i++) {
+			partitionStarts[i] = starts.get(i);
+		}
+		partitionStarts[starts.size()] = rankWeights.length;
+	}
+
+	/**
+	 * Get the number of partitions
+	 * @return the number of partitions (0 if there is no frequent item)
+	 */
+	public int getPartitionCount() {
+		return partitionStarts.length - 1;
+	}
+
+	/**
+	 * Get the partition of a frequent item.
+	 * The partitions of the items follow the order of decreasing support of the items.
+	 * @param item the item
+	 * @return the partition
+	 */
+	public int getPartition(int item) {
+		return rankToPartition[ranking.getRank(item)];
+	}
+
+	/**
+	 * Build the FP-tree of a partition. The header list of the tree is not created.
+	 * Only the items of the partition have the same support in the tree as in the database.
+	 * @param partition the partition
+	 * @return the FP-tree
+	 * @throws IOException exception if error reading the partition
+	 */
+	public FPTree buildTree(int partition) throws IOException {
+		FPTree tree = new FPTree();
+		DataInputStream input = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(partitionFiles[partition]), BUFFER_SIZE));
+		try {
+			List<Integer> transaction = new ArrayList<Integer>();
+			while(true) {
+				int length;
+				try {
+					length = input.readInt();
+				}catch(EOFException e) {
+					break;
+				}
+				// read the ranks and convert them to items (they are already sorted)
+				transaction.clear();
+				for(int i = 0; i < length; i++) {
+					transaction.add(ranking.getItem(input.readInt()));
+				}
+				tree.addTransaction(transaction);
+			}
+		}finally {
+			input.close();
+		}
+		return tree;
+	}
+
+	/**
+	 * Delete the files of the partitions
+	 */
+	public void delete() {
+		if(partitionFiles != null) {
+			for(File file : partitionFiles) {
+				if(file != null) {
+					file.delete();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,278 @@
+package ca.pfv.spmf.algorithms.frequentpatterns.fpgrowth;
+
+/* This file is part of the SPMF DATA MINING SOFTWARE
+* (http://www.philippe-fournier-viger.com/spmf).
+*
+* SPMF is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+*
+* SPMF is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* SPMF. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import ca.pfv.spmf.input.transaction_database_binary.BinaryTransactionDatabase;
+import ca.pfv.spmf.patterns.itemset_array_integers_with_count.Itemset;
+import ca.pfv.spmf.patterns.itemset_array_integers_with_count.Itemsets;
+import ca.pfv.spmf.tools.MemoryLogger;
+
+/**
+ * This class runs FPClose once on a database with the lowest minimum support threshold
+ * of interest, and then gives the frequent closed itemsets for any higher threshold
+ * without reading the database again.
+ * <br/><br/>
+ *
+ * Whether an itemset is closed does not depend on the minimum support threshold. Thus, the
+ * frequent closed itemsets for a threshold minsup are the frequent closed itemsets found with a
+ * lower threshold that have a support no less than minsup. The closed itemsets are kept sorted
+ * by decreasing support in packed arrays, so that answering a query is a binary search followed
+ * by a copy of the result.
+ * <br/><br/>
+ *
+ * The itemsets written by {@link #writeClosedItemsets(double, String)} are the same as those
+ * written by {@link AlgoFPClose#runAlgorithm(String, String, double)} with the same threshold,
+ * but ordered by decreasing support.
+ *
+ * @see AlgoFPClose
+ */
+public class FPCloseSession {
+
+	// the number of transactions in the database
+	private int transactionCount;
+	// the lowest threshold that can be queried, as a number of transactions
+	private int lowestMinSupportRelative;
+
+	// the items of the closed itemsets, one itemset after the other. The items of an itemset
+	// are sorted according to the order of decreasing support, as in the output of FPClose
+	private int[] items;
+	// the position of each itemset in "items" (plus the end of the last itemset)
+	private int[] itemsetStarts;
+	// the support of each itemset, by decreasing order
+	private int[] supports;
+
+	// the time spent mining the database (ms)
+	private long miningTime;
+
+	/**
+	 * Create a session by running FPClose on a transaction database with a single thread.
+	 * @param input the path of a transaction database (in the SPMF text format or in the binary format)
+	 * @param lowestMinsupp the lowest minimum support threshold that will be queried
+	 * @throws IOException exception if error reading the file
+	 */
+	public FPCloseSession(String input, double lowestMinsupp) throws IOException {
+		this(input, lowestMinsupp, 1);
+	}
+
+	/**
+	 * Create a session by running FPClose on a transaction database.
+	 * @param input the path of a transaction database (in the SPMF text format or in the binary format)
+	 * @param lowestMinsupp the lowest minimum support threshold that will be queried
+	 * @param threadCount the number of threads used by FPClose
+	 * @throws IOException exception if error reading the file
+	 */
+	public FPCloseSession(String input, double lowestMinsupp, int threadCount) throws IOException {
+		List<Itemset> closedItemsets = new ArrayList<Itemset>();
+		AlgoFPClose algo = createAlgorithm(threadCount, closedItemsets);
+		algo.runAlgorithm(input, null, lowestMinsupp);
+		storeClosedItemsets(algo, closedItemsets);
+	}
+
+	/**
+	 * Create a session by running FPClose on a binary transaction database.
+	 * @param database the database
+	 * @param lowestMinsupp the lowest minimum support threshold that will be queried
+	 * @param threadCount the number of threads used by FPClose
+	 * @throws IOException exception if error reading the database
+	 */
+	public FPCloseSession(BinaryTransactionDatabase database, double lowestMinsupp, int threadCount) throws IOException {
+		List<Itemset> closedItemsets = new ArrayList<Itemset>();
+		AlgoFPClose algo = createAlgorithm(threadCount, closedItemsets);
+		algo.runAlgorithm(database, null, lowestMinsupp);
+		storeClosedItemsets(algo, closedItemsets);
+	}
+
+	/**
+	 * Create the FPClose algorithm used by this session
+	 * @param threadCount the number of threads
+	 * @param closedItemsets the list where the closed itemsets will be added
+	 * @return the algorithm
+	 */
+	private AlgoFPClose createAlgorithm(int threadCount, List<Itemset> closedItemsets) {
+		miningTime = System.currentTimeMillis();
+		AlgoFPClose algo = new AlgoFPClose();
+		algo.setUsePrimitiveFPTree(true);
+		algo.setThreadCount(threadCount);
+		algo.setCollectedItemsets(closedItemsets);
+		return algo;
+	}
+
+	/**
+	 * Sort the closed itemsets found by FPClose by decreasing support and store them in the arrays
+	 * @param algo the algorithm, after its execution
+	 * @param closedItemsets the closed itemsets
+	 */
+	private void storeClosedItemsets(AlgoFPClose algo, List<Itemset> closedItemsets) {
+		transactionCount = algo.getDatabaseSize();
+		lowestMinSupportRelative = algo.minSupportRelative;
+
+		// sort by decreasing support. The sort is stable, so that itemsets having
+		// the same support stay in the order in which they were found.
+		Collections.sort(closedItemsets, new Comparator<Itemset>() {
+			public int compare(Itemset itemset1, Itemset itemset2) {
+				return itemset2.getAbsoluteSupport() - itemset1.getAbsoluteSupport();
+			}
+		});
+
+		int totalLength = 0;
+		for(Itemset itemset : closedItemsets) {
+			totalLength += itemset.size();
+		}
+		items = new int[totalLength];
+		itemsetStarts = new int[closedItemsets.size() + 1];
+		supports = new int[closedItemsets.size()];
+		int position = 0;
+		for(int i = 0; i < closedItemsets.size(); i++) {
+			Itemset itemset = closedItemsets.get(i);
+			itemsetStarts[i] = position;
+			supports[i] = itemset.getAbsoluteSupport();
+			System.arraycopy(itemset.getItems(), 0, items, position, itemset.size());
+			position += itemset.size();
+		}
+		itemsetStarts[closedItemsets.size()] = position;
+
+		miningTime = System.currentTimeMillis() - miningTime;
+		MemoryLogger.getInstance().checkMemory();
+	}
+
+	/**
+	 * Convert a minimum support threshold to a number of transactions, as done by FPClose.
+	 * @param minsupp the minimum support threshold (a percentage)
+	 * @return the threshold as a number of transactions
+	 * @throws IllegalArgumentException if the threshold is lower than the threshold of this session
+	 */
+	private int toRelativeMinSupport(double minsupp) {
+		int minSupportRelative = (int) Math.ceil(minsupp * transactionCount);
+		if(minSupportRelative < lowestMinSupportRelative) {
+			throw new IllegalArgumentException("The minimum support " + minsupp
+					+ " is lower than the minimum support used to create the session");
+		}
+		return minSupportRelative;
+	}
+
+	/**
+	 * Get the number of closed itemsets having at least a given support
+	 * @param minSupportRelative the support, as a number of transactions
+	 * @return the number of itemsets (they are the first itemsets of the arrays)
+	 */
+	private int countItemsets(int minSupportRelative) {
+		// binary search for the first itemset having a support lower than minSupportRelative
+		int low = 0;
+		int high = supports.length;
+		while(low < high) {
+			int middle = (low + high) >>> 1;
+			if(supports[middle] >= minSupportRelative) {
+				low = middle + 1;
+			}else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Get the number of frequent closed itemsets for a minimum support threshold
+	 * @param minsupp the minimum support threshold (no less than the threshold of this session)
+	 * @return the number of frequent closed itemsets
+	 */
+	public int getClosedItemsetCount(double minsupp) {
+		return countItemsets(toRelativeMinSupport(minsupp));
+	}
+
+	/**
+	 * Get the frequent closed itemsets for a minimum support threshold, as returned by
+	 * FPClose when the result is kept into memory.
+	 * @param minsupp the minimum support threshold (no less than the threshold of this session)
+	 * @return the frequent closed itemsets
+	 */
+	public Itemsets getClosedItemsets(double minsupp) {
+		int count = countItemsets(toRelativeMinSupport(minsupp));
+		Itemsets patterns = new Itemsets("FREQUENT ITEMSETS");
+		for(int i = 0; i < count; i++) {
+			// sort the itemset according to lexical ordering as FPClose does
+			int[] itemset = Arrays.copyOfRange(items, itemsetStarts[i], itemsetStarts[i+1]);
+			Arrays.sort(itemset);
+			Itemset itemsetObj = new Itemset(itemset);
+			itemsetObj.setAbsoluteSupport(supports[i]);
+			patterns.addItemset(itemsetObj, itemset.length);
+		}
+		return patterns;
+	}
+
+	/**
+	 * Write the frequent closed itemsets for a minimum support threshold to a file,
+	 * in the format of FPClose.
+	 * @param minsupp the minimum support threshold (no less than the threshold of this session)
+	 * @param output the output file path
+	 * @return the number of frequent closed itemsets written
+	 * @throws IOException exception if error writing the file
+	 */
+	public int writeClosedItemsets(double minsupp, String output) throws IOException {
+		int count = countItemsets(toRelativeMinSupport(minsupp));
+		BufferedWriter writer = new BufferedWriter(new FileWriter(output));
+		try {
+			StringBuilder buffer = new StringBuilder();
+			for(int i = 0; i < count; i++) {
+				buffer.setLength(0);
+				// write the items of the itemset
+				for(int j = itemsetStarts[i]; j < itemsetStarts[i+1]; j++) {
+					buffer.append(items[j]);
+					if(j != itemsetStarts[i+1] - 1) {
+						buffer.append(' ');
+					}
+				}
+				// Then, write the support
+				buffer.append(" #SUP: ");
+				buffer.append(supports[i]);
+				writer.write(buffer.toString());
+				writer.newLine();
+			}
+		}finally {
+			writer.close();
+		}
+		return count;
+	}
+
+	/**
+	 * Get the number of transactions in the database.
+	 * @return the number of transactions.
+	 */
+	public int getDatabaseSize() {
+		return transactionCount;
+	}
+
+	/**
+	 * Print statistics about this session to System.out.
+	 */
+	public void printStats() {
+		System.out.println("=============  FP-Close session - STATS =============");
+		System.out.println(" Transactions count from database : " + transactionCount);
+		System.out.println(" Lowest minimum support : " + lowestMinSupportRelative);
+		System.out.print(" Max memory usage: " + MemoryLogger.getInstance().getMaxMemory() + " mb \n");
+		System.out.println(" Closed frequent itemset count : " + supports.length);
+		System.out.println(" Mining time ~ " + miningTime + " ms");
+		System.out.println("===================================================");
+	}
+}
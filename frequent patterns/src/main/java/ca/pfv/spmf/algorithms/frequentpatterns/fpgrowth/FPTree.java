@@ -18,8 +18,10 @@ package ca.pfv.spmf.algorithms.frequentpatterns.fpgrowth;
 */
 
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
@@ -111,6 +113,60 @@ public class FPTree {
 		}
 	}
 	
+	/**
+	 * Method to merge another fp-tree into this fp-tree (for the initial construction
+	 * of the FP-tree by several threads). The counters of the nodes having the same path 
+	 * are added, and the nodes of the other tree that have no such node in this tree 
+	 * are moved to this tree, so the other tree cannot be used anymore.
+	 * The items of both trees must be sorted according to the same order.
+	 * The node links are not updated (see {@link #relinkNodes()}).
+	 * @param other the other fp-tree
+	 */
+	void merge(FPTree other) {
+		mergeChildren(root, other.root);
+	}
+
+	/**
+	 * Merge the child nodes of a node of another tree with the child nodes of a node of this tree
+	 * having the same path.
+	 * @param node the node of this tree
+	 * @param otherNode the node of the other tree
+	 */
+	private void mergeChildren(FPNode node, FPNode otherNode) {
+		for(FPNode otherChild : otherNode.childs){
+			// look if there is a node already in this tree
+			FPNode child = node.getChildWithID(otherChild.itemID);
+			if(child == null){
+				// there is no node, we move the node of the other tree with its child nodes
+				otherChild.parent = node;
+				node.childs.add(otherChild);
+			}else{
+				// there is a node already, we update it and merge the child nodes
+				child.counter += otherChild.counter;
+				mergeChildren(child, otherChild);
+			}
+		}
+	}
+
+	/**
+	 * Method to recreate the node links and the header table from the nodes of the tree
+	 * (after trees have been merged into this tree).
+	 */
+	void relinkNodes() {
+		mapItemNodes.clear();
+		mapItemLastNode.clear();
+		// visit the nodes in depth-first order
+		Deque<FPNode> stack = new ArrayDeque<FPNode>(root.childs);
+		while(stack.isEmpty() == false){
+			FPNode node = stack.pop();
+			node.nodeLink = null;
+			fixNodeLinks(node.itemID, node);
+			for(FPNode child : node.childs){
+				stack.push(child);
+			}
+		}
+	}
+	
 	/**
 	 * Method for adding a prefixpath to a fp-tree.
 	 * @param prefixPath  The prefix path
@@ -0,0 +1,340 @@
+package ca.pfv.spmf.algorithms.frequentpatterns.fpgrowth;
+
+/* This file is part of the SPMF DATA MINING SOFTWARE
+* (http://www.philippe-fournier-viger.com/spmf).
+*
+* SPMF is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+*
+* SPMF is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* SPMF. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * This class builds the initial FP-tree of a transaction database file with several threads,
+ * as used by the FPGrowth and FPClose algorithms.
+ * <br/><br/>
+ *
+ * The file is divided into parts having about the same number of bytes (a transaction belongs
+ * to the part where its line starts). Each part is read by a task of a ForkJoinPool, which builds
+ * an FP-tree with the transactions of the part, the items being sorted by decreasing order of
+ * support in the whole database, as in the sequential construction. The trees of two consecutive
+ * parts are then merged by a task (see {@link FPTree#merge(FPTree)}), until there is a single tree,
+ * whose node links are finally created. The resulting tree contains the same paths and the same
+ * counters as the tree built sequentially.
+ *
+ * @see FPTree
+ * @see AlgoFPGrowth
+ * @see AlgoFPClose
+ */
+public class FPTreeBuilder {
+
+	/** the minimum number of bytes of a part of the file (smaller files are read by fewer threads) */
+	private static final long MIN_PART_SIZE = 1 << 16;
+
+	/** the size of the buffer used to read a part of the file */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/** the support of each item in the database (key: item  value: support) */
+	private final Map<Integer, Integer> mapSupport;
+
+	/** the minimum support (items having a lower support are not inserted in the tree) */
+	private final int minSupport;
+
+	/** the number of threads */
+	private final int threadCount;
+
+	/** comparator to sort the items by decreasing order of support (and lexical order for ties) */
+	private final Comparator<Integer> comparatorSupport;
+
+	/**
+	 * Constructor
+	 * @param mapSupport the support of each item in the database (key: item  value: support)
+	 *        (it is read by several threads, so it must not be modified while the tree is built)
+	 * @param minSupport the minimum support as a number of transactions
+	 * @param threadCount the number of threads (at least 1)
+	 */
+	public FPTreeBuilder(final Map<Integer, Integer> mapSupport, int minSupport, int threadCount) {
+		if(threadCount < 1) {
+			throw new IllegalArgumentException("The number of threads must be at least 1");
+		}
+		this.mapSupport = mapSupport;
+		this.minSupport = minSupport;
+		this.threadCount = threadCount;
+		this.comparatorSupport = new Comparator<Integer>(){
+			public int compare(Integer item1, Integer item2){
+				// compare the frequency
+				int compare = mapSupport.get(item2) - mapSupport.get(item1);
+				// if the same frequency, we check the lexical ordering!
+				if(compare == 0){
+					return (item1 - item2);
+				}
+				// otherwise, just use the frequency
+				return compare;
+			}
+		};
+	}
+
+	/**
+	 * Build the FP-tree of a transaction database file. The header list of the tree is not created.
+	 * @param input the path to the file
+	 * @return the FP-tree
+	 * @throws IOException exception if error reading the file
+	 */
+	public FPTree build(String input) throws IOException {
+		long fileSize = new File(input).length();
+		int partCount = (int) Math.max(1, Math.min(threadCount, fileSize / MIN_PART_SIZE));
+		// compute the first byte of each part (and the end of the file)
+		long[] partStarts = new long[partCount + 1];
+		for(int i = 0; i <= partCount; i++) {
+			partStarts[i] = fileSize * i / partCount;
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(partCount);
+		try {
+			FPTree tree = pool.invoke(new BuildTask(input, partStarts, 0, partCount));
+			tree.relinkNodes();
+			return tree;
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * A task that builds the FP-tree of some consecutive parts of the file.
+	 * If there are several parts, the task is divided into two tasks, and the two trees are merged.
+	 */
+	private class BuildTask extends RecursiveTask<FPTree> {
+		private static final long serialVersionUID = 1L;
+
+		/** the path to the file */
+		private final String input;
+		/** the first byte of each part */
+		private final long[] partStarts;
+		/** the first part */
+		private final int firstPart;
+		/** the part after the last part */
+		private final int endPart;
+
+		/**
+		 * Constructor
+		 * @param input the path to the file
+		 * @param partStarts the first byte of each part (and the size of the file at the end)
+		 * @param firstPart the first part
+		 * @param endPart the part after the last part
+		 */
+		BuildTask(String input, long[] partStarts, int firstPart, int endPart) {
+			this.input = input;
+			this.partStarts = partStarts;
+			this.firstPart = firstPart;
+			this.endPart = endPart;
+		}
+
+		@Override
+		protected FPTree compute() {
+			if(endPart - firstPart == 1) {
+				try {
+					return buildPart(input, partStarts[firstPart], partStarts[endPart]);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+			int middlePart = (firstPart + endPart) >>> 1;
+			BuildTask secondHalf = new BuildTask(input, partStarts, middlePart, endPart);
+			secondHalf.fork();
+			FPTree tree = new BuildTask(input, partStarts, firstPart, middlePart).compute();
+			// the transactions of the second half come after those of the first half
+			tree.merge(secondHalf.join());
+			return tree;
+		}
+	}
+
+	/**
+	 * Build the FP-tree of the transactions whose line starts in a part of the file
+	 * @param input the path to the file
+	 * @param start the first byte of the part
+	 * @param end the byte after the last byte of the part
+	 * @return the FP-tree (without node links)
+	 * @throws IOException exception if error reading the file
+	 */
+	private FPTree buildPart(String input, long start, long end) throws IOException {
+		FPTree tree = new FPTree();
+		FileInputStream stream = new FileInputStream(input);
+		try {
+			LineReader reader = new LineReader(stream.getChannel(), start);
+			List<Integer> transaction = new ArrayList<Integer>();
+			// if the part does not start at the beginning of a line, the line belongs to the previous part
+			if(start > 0) {
+				reader.seek(start - 1);
+				reader.skipLine();
+			}
+			// for each line (transaction) starting in the part
+			while(reader.readTransaction(transaction, end)) {
+				// sort item in the transaction by descending order of support
+				Collections.sort(transaction, comparatorSupport);
+				// add the sorted transaction to the fptree.
+				tree.addTransaction(transaction);
+			}
+		}finally {
+			stream.close();
+		}
+		return tree;
+	}
+
+	/**
+	 * This class reads the lines of a file from a given position, and converts them to transactions
+	 * (this avoids creating a String for each line and for each item).
+	 */
+	private class LineReader {
+		/** the channel of the file */
+		private final FileChannel channel;
+		/** the buffer containing the bytes read */
+		private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		/** the position in the file of the first byte of the buffer */
+		private long bufferPosition;
+
+		/**
+		 * Constructor
+		 * @param channel the channel of the file
+		 * @param position the position of the first byte to be read
+		 * @throws IOException exception if error reading the file
+		 */
+		LineReader(FileChannel channel, long position) throws IOException {
+			this.channel = channel;
+			seek(position);
+		}
+
+		/**
+		 * Set the position of the next byte to be read
+		 * @param position the position
+		 * @throws IOException exception if error reading the file
+		 */
+		void seek(long position) throws IOException {
+			channel.position(position);
+			bufferPosition = position;
+			buffer.clear();
+			buffer.limit(0);
+		}
+
+		/**
+		 * Get the position in the file of the next byte to be read
+		 * @return the position
+		 */
+		long getPosition() {
+			return bufferPosition + buffer.position();
+		}
+
+		/**
+		 * Read the next byte
+		 * @return the byte or -1 if the end of the file is reached
+		 * @throws IOException exception if error reading the file
+		 */
+		private int read() throws IOException {
+			if(buffer.hasRemaining() == false) {
+				bufferPosition += buffer.limit();
+				buffer.clear();
+				int count;
+				do {
+					count = channel.read(buffer);
+				}while(count == 0);
+				buffer.flip();
+				if(count < 0) {
+					return -1;
+				}
+			}
+			return buffer.get();
+		}
+
+		/**
+		 * Skip the bytes until the end of the current line (included)
+		 * @throws IOException exception if error reading the file
+		 */
+		void skipLine() throws IOException {
+			int character;
+			do {
+				character = read();
+			}while(character != -1 && character != '\n' && character != '\r');
+		}
+
+		/**
+		 * Read the next transaction. The lines that are empty, that are comments or metadata
+		 * (starting with '#', '%' or '@') are skipped, and only the items having the minimum
+		 * support are kept.
+		 * @param transaction a list where the items of the transaction are stored (it is cleared first)
+		 * @param end the line is only read if it starts before this position
+		 * @return false if the end of the file is reached or if the next line starts after the position
+		 * @throws IOException exception if error reading the file
+		 */
+		boolean readTransaction(List<Integer> transaction, long end) throws IOException {
+			transaction.clear();
+			int character = read();
+			// skip the empty lines and the end of the line "\r\n"
+			while(character == '\n' || character == '\r') {
+				character = read();
+			}
+			// if the end of the file is reached or the line belongs to the next part
+			if(character == -1 || getPosition() - 1 >= end) {
+				return false;
+			}
+			// if the line is a comment or metadata, it is skipped
+			if(character == '#' || character == '%' || character == '@') {
+				skipLine();
+				return true;
+			}
+			// read the items, separated by single spaces
+			int item = 0;
+			boolean negative = false;
+			int digitCount = 0;
+			while(true) {
+				if(character >= '0' && character <= '9') {
+					item = item * 10 + (character - '0');
+					digitCount++;
+				}else if(character == '-' && digitCount == 0 && negative == false) {
+					negative = true;
+				}else if(character == ' ' || character == '\n' || character == '\r' || character == -1) {
+					if(negative && digitCount == 0) {
+						throw new NumberFormatException("Invalid item in the transaction database at byte " + getPosition());
+					}
+					// if there is an item (and not only spaces)
+					if(digitCount > 0) {
+						Integer itemObject = negative ? -item : item;
+						// only add items that have the minimum support
+						if(mapSupport.get(itemObject) >= minSupport){
+							transaction.add(itemObject);
+						}
+					}
+					if(character != ' ') {
+						return true;
+					}
+					item = 0;
+					negative = false;
+					digitCount = 0;
+				}else {
+					throw new NumberFormatException("Invalid item in the transaction database at byte " + getPosition());
+				}
+				character = read();
+			}
+		}
+	}
+}
@@ -0,0 +1,173 @@
+package ca.pfv.spmf.algorithms.frequentpatterns.fpgrowth;
+
+/* This file is part of the SPMF DATA MINING SOFTWARE
+* (http://www.philippe-fournier-viger.com/spmf).
+*
+* SPMF is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+*
+* SPMF is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* SPMF. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * This class renames the frequent items of a database as consecutive ranks 0, 1, 2...
+ * following the total order used by the FPGrowth family: decreasing order of support,
+ * and increasing order of item for items having the same support.
+ * <br/><br/>
+ *
+ * Because the rank of an item is its position in that order, comparing two items
+ * becomes comparing two ints, and ranks can be used as indexes in arrays.
+ * This is used by the {@link PrimitiveFPTree}.
+ *
+ * @see PrimitiveFPTree
+ */
+public class ItemRanking {
+
+	/** the item of each rank */
+	final int[] rankToItem;
+	/** the support of each rank in the whole database */
+	final int[] rankSupport;
+	/** the rank of each item (indexed by item), or -1 if the item is not frequent */
+	final int[] itemToRank;
+
+	/**
+	 * Create the ranking of the frequent items.
+	 * @param mapSupport the support of each item (key: item, value: support)
+	 * @param minSupport the minimum support (as a number of transactions)
+	 */
+	public ItemRanking(final Map<Integer, Integer> mapSupport, int minSupport) {
+		// keep the frequent items
+		List<Integer> frequentItems = new ArrayList<Integer>();
+		int maxItem = 0;
+		for(Entry<Integer, Integer> entry : mapSupport.entrySet()) {
+			if(entry.getValue() >= minSupport) {
+				frequentItems.add(entry.getKey());
+				if(entry.getKey() > maxItem) {
+					maxItem = entry.getKey();
+				}
+			}
+		}
+		// sort them by decreasing order of support
+		Collections.sort(frequentItems, new Comparator<Integer>(){
+			public int compare(Integer item1, Integer item2){
+				int compare = mapSupport.get(item2) - mapSupport.get(item1);
+				// if the same frequency, we check the lexical ordering!
+				return (compare == 0) ? (item1 - item2) : compare;
+			}
+		});
+
+		// assign the ranks
+		rankToItem = new int[frequentItems.size()];
+		rankSupport = new int[frequentItems.size()];
+		itemToRank = new int[maxItem + 1];
+		Arrays.fill(itemToRank, -1);
+		for(int rank = 0; rank < rankToItem.length; rank++) {
+			int item = frequentItems.get(rank);
+			rankToItem[rank] = item;
+			rankSupport[rank] = mapSupport.get(item);
+			itemToRank[item] = rank;
+		}
+	}
+
+	/**
+	 * Get the number of frequent items
+	 * @return the number of ranks
+	 */
+	public int size() {
+		return rankToItem.length;
+	}
+
+	/**
+	 * Get the rank of an item
+	 * @param item the item
+	 * @return its rank or -1 if it is not frequent
+	 */
+	public int getRank(int item) {
+		return (item >= 0 && item < itemToRank.length) ? itemToRank[item] : -1;
+	}
+
+	/**
+	 * Get the item having a given rank
+	 * @param rank the rank
+	 * @return the item
+	 */
+	public int getItem(int rank) {
+		return rankToItem[rank];
+	}
+
+	/**
+	 * Get the support of the item having a given rank, in the whole database
+	 * @param rank the rank
+	 * @return the support
+	 */
+	public int getSupport(int rank) {
+		return rankSupport[rank];
+	}
+
+	/**
+	 * Replace the items of a transaction by their ranks, remove the infrequent items
+	 * and sort the ranks by increasing order (which is the order of decreasing support).
+	 * @param transaction the items of a transaction (the array is modified)
+	 * @param length the number of items
+	 * @return the number of ranks stored at the beginning of the array
+	 */
+	public int toRanks(int[] transaction, int length) {
+		int newLength = 0;
+		for(int i = 0; i < length; i++) {
+			int rank = getRank(transaction[i]);
+			if(rank != -1) {
+				transaction[newLength++] = rank;
+			}
+		}
+		sort(transaction, newLength);
+		return newLength;
+	}
+
+	/**
+	 * Replace ranks by items in an array
+	 * @param ranks the ranks
+	 * @param length the number of ranks to convert
+	 * @param items an array where the items are written (it can be the same as ranks)
+	 */
+	public void toItems(int[] ranks, int length, int[] items) {
+		for(int i = 0; i < length; i++) {
+			items[i] = rankToItem[ranks[i]];
+		}
+	}
+
+	/**
+	 * Sort the beginning of an array by increasing order.
+	 * Itemsets and transactions are generally short, so an insertion sort is used for them.
+	 * @param array the array
+	 * @param length the number of values to sort
+	 */
+	static void sort(int[] array, int length) {
+		if(length > 32) {
+			Arrays.sort(array, 0, length);
+			return;
+		}
+		for(int i = 1; i < length; i++) {
+			int value = array[i];
+			int j = i - 1;
+			while(j >= 0 && array[j] > value) {
+				array[j + 1] = array[j];
+				j--;
+			}
+			array[j + 1] = value;
+		}
+	}
+}
@@ -0,0 +1,413 @@
+package ca.pfv.spmf.algorithms.frequentpatterns.fpgrowth;
+
+/* This file is part of the SPMF DATA MINING SOFTWARE
+* (http://www.philippe-fournier-viger.com/spmf).
+*
+* SPMF is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+*
+* SPMF is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* SPMF. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import ca.pfv.spmf.input.transaction_database_binary.BinaryTransactionDatabase;
+
+/**
+ * This is an implementation of a FPTree that does not use one object per node.
+ * The nodes are stored in parallel arrays of ints (item, counter, parent, node-link,
+ * first child and next sibling), and the header table is made of arrays indexed by item.
+ * <br/><br/>
+ *
+ * The items stored in this tree are not the items of the database but their ranks
+ * (see {@link ItemRanking}), so that the order of decreasing support is the natural
+ * order of ints and items can be used as array indexes. Transactions must be added
+ * with their items sorted by increasing rank.
+ * <br/><br/>
+ *
+ * This tree is used by FPGrowth, FPClose and FPMax when the "primitive FP-tree" option is activated.
+ * It gives the same results as {@link FPTree} with much less memory, because a node uses 24 bytes
+ * instead of an FPNode object, its list of children and the boxed Integers of the maps.
+ *
+ * @see FPTree
+ * @see ItemRanking
+ * @see AlgoFPGrowth
+ * @see AlgoFPClose
+ * @see AlgoFPMax
+ */
+public class PrimitiveFPTree {
+
+	/** the index of the root node */
+	static final int ROOT = 0;
+	/** the value used for a missing node */
+	static final int NONE = -1;
+
+	// The nodes. The node i has the item nodeItem[i] and the counter nodeCounter[i], etc.
+	int[] nodeItem;
+	int[] nodeCounter;
+	int[] nodeParent;
+	// link to next node with the same item (for the header table)
+	int[] nodeLink;
+	int[] nodeFirstChild;
+	int[] nodeNextSibling;
+	/** the number of nodes including the root */
+	int nodeCount;
+
+	/** the number of items (ranks) that may appear in this tree */
+	final int itemCount;
+	/** first node of each item in the node links, or NONE */
+	final int[] headerFirst;
+	/** last node of each item in the node links, or NONE */
+	final int[] headerLast;
+	/** the support of each item in this tree */
+	final int[] itemSupport;
+
+	/**
+	 * Constructor
+	 * @param itemCount the number of items (ranks) that may appear in this tree, items are 0 to itemCount-1
+	 */
+	public PrimitiveFPTree(int itemCount) {
+		this(itemCount, 64);
+	}
+
+	/**
+	 * Constructor
+	 * @param itemCount the number of items (ranks) that may appear in this tree, items are 0 to itemCount-1
+	 * @param initialCapacity the number of nodes for which memory is allocated initially
+	 */
+	public PrimitiveFPTree(int itemCount, int initialCapacity) {
+		this.itemCount = itemCount;
+		int capacity = Math.max(initialCapacity, 2);
+		nodeItem = new int[capacity];
+		nodeCounter = new int[capacity];
+		nodeParent = new int[capacity];
+		nodeLink = new int[capacity];
+		nodeFirstChild = new int[capacity];
+		nodeNextSibling = new int[capacity];
+
+		headerFirst = new int[itemCount];
+		headerLast = new int[itemCount];
+		itemSupport = new int[itemCount];
+		Arrays.fill(headerFirst, NONE);
+		Arrays.fill(headerLast, NONE);
+
+		// create the root
+		nodeItem[ROOT] = NONE;
+		nodeParent[ROOT] = NONE;
+		nodeLink[ROOT] = NONE;
+		nodeFirstChild[ROOT] = NONE;
+		nodeNextSibling[ROOT] = NONE;
+		nodeCount = 1;
+	}
+
+	/**
+	 * Method for adding a transaction to the fp-tree.
+	 * @param transaction the items (ranks) of the transaction, sorted by increasing order
+	 * @param length the number of items to read in the array
+	 * @param count the number of times that this transaction appears (1 for the initial tree,
+	 *        the path count for a conditional tree)
+	 */
+	public void addTransaction(int[] transaction, int length, int count) {
+		int currentNode = ROOT;
+		// For each item in the transaction
+		for(int i = 0; i < length; i++) {
+			int item = transaction[i];
+			itemSupport[item] += count;
+			// look if there is a node already in the FP-Tree
+			int child = getChildWithID(currentNode, item);
+			if(child == NONE) {
+				// there is no node, we create a new one
+				currentNode = createNode(item, currentNode, count);
+			}else {
+				// there is a node already, we update it
+				nodeCounter[child] += count;
+				currentNode = child;
+			}
+		}
+	}
+
+	/**
+	 * Method for adding a transaction that appears once to the fp-tree.
+	 * @param transaction the items (ranks) of the transaction, sorted by increasing order
+	 * @param length the number of items to read in the array
+	 */
+	public void addTransaction(int[] transaction, int length) {
+		addTransaction(transaction, length, 1);
+	}
+
+	/**
+	 * Add all the transactions of a file in the SPMF format to this tree
+	 * @param input the path of the file
+	 * @param ranking the ranking of the frequent items of that file
+	 * @throws IOException if error while reading the file
+	 */
+	public void addTransactions(String input, ItemRanking ranking) throws IOException {
+		int[] buffer = new int[64];
+		BufferedReader reader = new BufferedReader(new FileReader(input));
+		String line;
+		// for each line (transaction) until the end of the file
+		while( ((line = reader.readLine())!= null)){
+			// if the line is  a comment, is  empty or is a
+			// kind of metadata
+			if (line.isEmpty() == true ||	line.charAt(0) == '#' || line.charAt(0) == '%'
+				|| line.charAt(0) == '@') {
+				continue;
+			}
+			String[] lineSplited = line.split(" ");
+			if(lineSplited.length > buffer.length) {
+				buffer = new int[lineSplited.length];
+			}
+			for(int i = 0; i < lineSplited.length; i++) {
+				buffer[i] = Integer.parseInt(lineSplited[i]);
+			}
+			// keep the frequent items, sorted by decreasing support
+			int length = ranking.toRanks(buffer, lineSplited.length);
+			addTransaction(buffer, length, 1);
+		}
+		reader.close();
+	}
+
+	/**
+	 * Add all the transactions of a binary transaction database to this tree
+	 * @param database the database
+	 * @param ranking the ranking of the frequent items of that database
+	 */
+	public void addTransactions(BinaryTransactionDatabase database, ItemRanking ranking) {
+		int[] buffer = new int[database.getMaxTransactionLength()];
+		for(int tid = 0; tid < database.size(); tid++) {
+			int length = database.getTransaction(tid, buffer);
+			// keep the frequent items, sorted by decreasing support
+			length = ranking.toRanks(buffer, length);
+			addTransaction(buffer, length, 1);
+		}
+	}
+
+	/**
+	 * Add transactions that are in memory to this tree
+	 * @param transactions the transactions, each one is an array of items (not modified)
+	 * @param ranking the ranking of the frequent items of these transactions
+	 */
+	public void addTransactions(List<int[]> transactions, ItemRanking ranking) {
+		int[] buffer = new int[64];
+		for(int[] transaction : transactions) {
+			if(transaction.length > buffer.length) {
+				buffer = new int[transaction.length];
+			}
+			System.arraycopy(transaction, 0, buffer, 0, transaction.length);
+			// keep the frequent items, sorted by decreasing support
+			int length = ranking.toRanks(buffer, transaction.length);
+			addTransaction(buffer, length, 1);
+		}
+	}
+
+	/**
+	 * Return the immediate child of a node having a given item.
+	 * @param node the node
+	 * @param item the item
+	 * @return the child or NONE if there is no such child
+	 */
+	int getChildWithID(int node, int item) {
+		for(int child = nodeFirstChild[node]; child != NONE; child = nodeNextSibling[child]) {
+			if(nodeItem[child] == item) {
+				return child;
+			}
+		}
+		return NONE;
+	}
+
+	/**
+	 * Create a new node and update the node links
+	 * @param item the item of the node
+	 * @param parent the parent node
+	 * @param counter the counter of the node
+	 * @return the new node
+	 */
+	private int createNode(int item, int parent, int counter) {
+		if(nodeCount == nodeItem.length) {
+			int newCapacity = nodeCount * 2;
+			nodeItem = Arrays.copyOf(nodeItem, newCapacity);
+			nodeCounter = Arrays.copyOf(nodeCounter, newCapacity);
+			nodeParent = Arrays.copyOf(nodeParent, newCapacity);
+			nodeLink = Arrays.copyOf(nodeLink, newCapacity);
+			nodeFirstChild = Arrays.copyOf(nodeFirstChild, newCapacity);
+			nodeNextSibling = Arrays.copyOf(nodeNextSibling, newCapacity);
+		}
+		int node = nodeCount++;
+		nodeItem[node] = item;
+		nodeCounter[node] = counter;
+		nodeParent[node] = parent;
+		nodeLink[node] = NONE;
+		nodeFirstChild[node] = NONE;
+		// we link the new node to its parent
+		nodeNextSibling[node] = nodeFirstChild[parent];
+		nodeFirstChild[parent] = node;
+
+		// We update the header table.
+		if(headerLast[item] == NONE) {
+			headerFirst[item] = node;
+		}else {
+			nodeLink[headerLast[item]] = node;
+		}
+		headerLast[item] = node;
+		return node;
+	}
+
+	/**
+	 * Check if this tree has no node except the root
+	 * @return true if it is empty
+	 */
+	public boolean isEmpty() {
+		return nodeFirstChild[ROOT] == NONE;
+	}
+
+	/**
+	 * Get the number of nodes of this tree, excluding the root
+	 * @return the number of nodes
+	 */
+	public int size() {
+		return nodeCount - 1;
+	}
+
+	/**
+	 * Get the support of an item in this tree
+	 * @param item the item (rank)
+	 * @return the support
+	 */
+	public int getSupport(int item) {
+		return itemSupport[item];
+	}
+
+	/**
+	 * Get the items appearing in this tree in the order of the header table
+	 * (increasing rank, that is decreasing support in the database).
+	 * @return the items
+	 */
+	public int[] getHeaderList() {
+		int count = 0;
+		for(int item = 0; item < itemCount; item++) {
+			if(headerFirst[item] != NONE) {
+				count++;
+			}
+		}
+		int[] headerList = new int[count];
+		count = 0;
+		for(int item = 0; item < itemCount; item++) {
+			if(headerFirst[item] != NONE) {
+				headerList[count++] = item;
+			}
+		}
+		return headerList;
+	}
+
+	/**
+	 * If this tree is a single path, copy the items and counters of the path in two buffers.
+	 * @param pathItems a buffer for the items of the path, starting at position "start"
+	 * @param pathCounters a buffer for the counters of the path, starting at position "start" (may be null)
+	 * @param start the first position to use in the buffers
+	 * @return the position after the last node of the path, or -1 if the tree is not a single path
+	 */
+	public int getSinglePath(int[] pathItems, int[] pathCounters, int start) {
+		int position = start;
+		int node = nodeFirstChild[ROOT];
+		while(node != NONE) {
+			// if the node has more than one child, it is not a single path!
+			if(nodeNextSibling[node] != NONE) {
+				return -1;
+			}
+			pathItems[position] = nodeItem[node];
+			if(pathCounters != null) {
+				pathCounters[position] = nodeCounter[node];
+			}
+			position++;
+			node = nodeFirstChild[node];
+		}
+		return position;
+	}
+
+	/**
+	 * Calculate the support of the items in the conditional pattern base of an item,
+	 * that is in the prefix paths of the nodes of that item.
+	 * @param item the item
+	 * @return the support of each item (index: item), only items smaller than "item" can have a non zero support
+	 */
+	public int[] calculateConditionalSupports(int item) {
+		// the parents of a node always have a smaller rank
+		int[] supports = new int[item];
+		for(int node = headerFirst[item]; node != NONE; node = nodeLink[node]) {
+			int pathCount = nodeCounter[node];
+			for(int parent = nodeParent[node]; parent != ROOT; parent = nodeParent[parent]) {
+				supports[nodeItem[parent]] += pathCount;
+			}
+		}
+		return supports;
+	}
+
+	/**
+	 * Construct the conditional FP-tree of an item, using the prefix paths of the nodes of that item.
+	 * @param item the item
+	 * @param conditionalSupports the support of items in the prefix paths (see calculateConditionalSupports())
+	 * @param minSupport the minimum support, items having a lower support are not kept
+	 * @param pathBuffer a buffer of size at least "item" used to store a prefix path
+	 * @return the conditional FP-tree
+	 */
+	public PrimitiveFPTree createConditionalTree(int item, int[] conditionalSupports, int minSupport, int[] pathBuffer) {
+		PrimitiveFPTree treeBeta = new PrimitiveFPTree(item);
+		for(int node = headerFirst[item]; node != NONE; node = nodeLink[node]) {
+			// collect the frequent items of the prefix path, from the node to the root
+			int length = 0;
+			for(int parent = nodeParent[node]; parent != ROOT; parent = nodeParent[parent]) {
+				if(conditionalSupports[nodeItem[parent]] >= minSupport) {
+					pathBuffer[length++] = nodeItem[parent];
+				}
+			}
+			if(length > 0) {
+				// reverse the path so that items are in increasing order
+				for(int i = 0, j = length - 1; i < j; i++, j--) {
+					int temp = pathBuffer[i];
+					pathBuffer[i] = pathBuffer[j];
+					pathBuffer[j] = temp;
+				}
+				treeBeta.addTransaction(pathBuffer, length, nodeCounter[node]);
+			}
+		}
+		return treeBeta;
+	}
+
+	@Override
+	/**
+	 * Method for getting a string representation of the tree
+	 * (to be used for debugging purposes).
+	 * @return a string
+	 */
+	public String toString() {
+		StringBuilder output = new StringBuilder();
+		output.append("F HeaderList: ").append(Arrays.toString(getHeaderList())).append('\n');
+		toString(output, ROOT, "");
+		return output.toString();
+	}
+
+	/**
+	 * Append a string representation of a node and its descendants
+	 * @param output the string builder
+	 * @param node the node
+	 * @param indent an indentation
+	 */
+	private void toString(StringBuilder output, int node, String indent) {
+		output.append(nodeItem[node]).append(" (count=").append(nodeCounter[node]).append(")\n");
+		String newIndent = indent + "   ";
+		for(int child = nodeFirstChild[node]; child != NONE; child = nodeNextSibling[child]) {
+			output.append(newIndent);
+			toString(output, child, newIndent);
+		}
+	}
+}
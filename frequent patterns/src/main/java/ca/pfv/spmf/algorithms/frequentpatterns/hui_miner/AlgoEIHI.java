@@ -34,12 +34,15 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import ca.pfv.spmf.datastructures.triangularmatrix.SparseTriangularMatrixLong;
+
 /**
  * This is an implementation of the
  * "EIHI" algorithm by Fournier-Viger et al. (2015).
  * 
  * @see UtilityListEIHI
  * @see Element
+ * @see SparseTriangularMatrixLong
  * @author Philippe Fournier-Viger
  */
 public class AlgoEIHI {
@@ -74,8 +77,9 @@ public class AlgoEIHI {
 
 	/** The EUCS structure, as described in the FHM paper
 	 * It stores pairs of items and their coresponding TWU.
+	 * (a sparse matrix is used since new items can appear each time that transactions are added)
 	 */
-	Map<Integer, Map<Integer, Integer>> mapEUCS; 
+	SparseTriangularMatrixLong matrixEUCS; 
 	
 	/** If this variable is set to true, this algorithm will show debuging information 
 	 * in the console
@@ -423,9 +427,9 @@ public class AlgoEIHI {
 		this.firstLine = firstLine;
 		
 		// if first time
-		boolean firstTime = (mapEUCS == null);
+		boolean firstTime = (matrixEUCS == null);
 		if(firstTime) {
-			mapEUCS =  new HashMap<Integer, Map<Integer, Integer>>();
+			matrixEUCS =  new SparseTriangularMatrixLong();
 //			writer = new BufferedWriter(new FileWriter(output));
 			listOfUtilityLists = new ArrayList<UtilityListEIHI>();
 			mapItemToRank =  new HashMap<Integer, Integer>();
@@ -610,20 +614,9 @@ public class AlgoEIHI {
 						utilityListOfItem.addElementDP(element /*, firstLine*/);
 											
 						// BEGIN NEW OPTIMIZATION for FHM
-						Map<Integer, Integer> mapFMAPItem = mapEUCS.get(pair.item);
-						if(mapFMAPItem == null) {
-							mapFMAPItem = new HashMap<Integer, Integer>();
-							mapEUCS.put(pair.item, mapFMAPItem);
-						}
-	
 						for(int j = i+1; j< revisedTransaction.size(); j++){
 							Pair pairAfter = revisedTransaction.get(j);
-							Integer twuSum = mapFMAPItem.get(pairAfter.item);
-							if(twuSum == null) {
-								mapFMAPItem.put(pairAfter.item, newTWU);
-							}else {
-								mapFMAPItem.put(pairAfter.item, twuSum + newTWU);
-							}
+							matrixEUCS.incrementValue(pair.item, pairAfter.item, newTWU);
 						}
 							
 						// END OPTIMIZATION of FHM
@@ -721,12 +714,10 @@ public class AlgoEIHI {
 					}
 					
 					// ======================== NEW OPTIMIZATION USED IN FHM
-					Map<Integer, Integer> mapTWUF = mapEUCS.get(X.item);
-					if(mapTWUF != null) {
-						Integer twuF = mapTWUF.get(Y.item);
-						if(twuF == null || twuF < minUtility) {
-							continue;
-						}
+					// (a TWU of 0 means that X and Y do not appear together)
+					long twuF = matrixEUCS.getValue(X.item, Y.item);
+					if(twuF == 0 || twuF < minUtility) {
+						continue;
 					}
 					candidateCount++;
 					// =========================== END OF NEW OPTIMIZATION
@@ -36,8 +36,8 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 
+import ca.pfv.spmf.datastructures.triangularmatrix.AbstractTriangularMatrixLong;
 import ca.pfv.spmf.tools.MemoryLogger;
 
 /**
@@ -49,7 +49,8 @@ import ca.pfv.spmf.tools.MemoryLogger;
  *   Intelligence Systems (HAIS 2016), Springer LNAI, 14 pages, to appear.
  * 
  * @see UtilityListFCHM
- * @see Element
+ * @see ColumnarUtilityList
+ * @see AbstractTriangularMatrixLong
  * @author Philippe Fournier-Viger
  */
 public class AlgoFCHM  implements Serializable{
@@ -77,8 +78,11 @@ public class AlgoFCHM  implements Serializable{
 	/** writer to write the output file  */
 	BufferedWriter writer = null;  
 	
-	/** The eucs structure:  key: item   key: another item   value: twu&support */
-	Map<Integer, Map<Integer, TwuSupportPair>> mapSMAP;  
+	/** The eucs structure:  row: item   column: another item   value: twu */
+	AbstractTriangularMatrixLong matrixSMAPTwu;  
+	
+	/** The support of pairs of items:  row: item   column: another item   value: support */
+	AbstractTriangularMatrixLong matrixSMAPSupport;  
 	
 	/** variable for debug mode */
 	boolean DEBUG = false;
@@ -87,6 +91,9 @@ public class AlgoFCHM  implements Serializable{
 	* the idea is to always reuse the same buffer to reduce memory usage. */
 	final int BUFFERS_SIZE = 200;
 	private int[] itemsetBuffer = null;
+	
+	/** the utility-lists that can be reused for constructing the utility-lists of itemsets */
+	private transient ColumnarUtilityList.Pool<UtilityListFCHM> utilityListPool;
 
 	/** minimum bond threshold**/
 	private double minBond;  
@@ -147,9 +154,7 @@ public class AlgoFCHM  implements Serializable{
 		
 		// initialize the buffer for storing the current itemset
 		itemsetBuffer = new int[BUFFERS_SIZE];
-		
-		mapSMAP =  new HashMap<Integer, Map<Integer, TwuSupportPair>>();
-		
+		utilityListPool = new ColumnarUtilityList.Pool<UtilityListFCHM>(() -> new UtilityListFCHM(0, null));
 		
 		startTimestamp = System.currentTimeMillis();
 		
@@ -157,6 +162,8 @@ public class AlgoFCHM  implements Serializable{
 
 		//  We create a  map to store the TWU of each item
 		mapItemToTWU = new HashMap<Integer, Long>();
+		// the largest item in the database
+		int maxItem = 0;
 		
 		// save the minbond threshold
 		this.minBond = minBond;
@@ -192,6 +199,9 @@ public class AlgoFCHM  implements Serializable{
 				for(int i=0; i <items.length; i++){
 					// convert item to integer
 					Integer item = Integer.parseInt(items[i]);
+					if(item > maxItem) {
+						maxItem = item;
+					}
 					
 					// get the current TWU of that item
 					Long twu = mapItemToTWU.get(item);
@@ -211,6 +221,10 @@ public class AlgoFCHM  implements Serializable{
 			}
 	    }
 		
+		// create the eucs structure (arrays if there are not too many items)
+		matrixSMAPTwu = AbstractTriangularMatrixLong.create(maxItem + 1);
+		matrixSMAPSupport = AbstractTriangularMatrixLong.create(maxItem + 1);
+		
 		// CREATE A LIST TO STORE THE UTILITY LIST OF ITEMS WITH TWU  >= MIN_UTILITY.
 		List<UtilityListFCHM> listOfUtilityListFCHMs = new ArrayList<UtilityListFCHM>();
 		// CREATE A MAP TO STORE THE UTILITY LIST FOR EACH ITEM.
@@ -314,30 +328,13 @@ public class AlgoFCHM  implements Serializable{
 					UtilityListFCHMOfItem.bitsetDisjunctiveTIDs.support++;
 					
 					// Add a new Element to the utility list of this item corresponding to this transaction
-					Element element = new Element(tid, pair.utility, remainingUtility);
-					
-					UtilityListFCHMOfItem.addElement(element);
+					UtilityListFCHMOfItem.addElement(tid, pair.utility, remainingUtility);
 										
 					// BEGIN NEW OPTIMIZATION for FHM
-					Map<Integer, TwuSupportPair> mapFMAPItem = mapSMAP.get(pair.item);
-					if(mapFMAPItem == null) {
-						mapFMAPItem = new HashMap<Integer, TwuSupportPair>();
-						mapSMAP.put(pair.item, mapFMAPItem);
-					}
-
 					for(int j = i+1; j< revisedTransaction.size(); j++){
 						Pair pairAfter = revisedTransaction.get(j);
-						TwuSupportPair twuSupportPair = mapFMAPItem.get(pairAfter.item);
-						if(twuSupportPair == null) {
-							twuSupportPair = new TwuSupportPair();
-							mapFMAPItem.put(pairAfter.item, twuSupportPair);
-						}
-						
-						twuSupportPair.twu += newTWU;
-						twuSupportPair.support++;
-//						else {
-//							mapFMAPItem.put(pairAfter.item, twuSum + newTWU);
-//						}
+						matrixSMAPTwu.incrementValue(pair.item, pairAfter.item, newTWU);
+						matrixSMAPSupport.incrementValue(pair.item, pairAfter.item, 1);
 					}
 					// END OPTIMIZATION of FHM
 				}
@@ -364,6 +361,7 @@ public class AlgoFCHM  implements Serializable{
 		MemoryLogger.getInstance().checkMemory();
 		// close output file
 		writer.close();
+		utilityListPool = null;
 		// record end time
 		endTimestamp = System.currentTimeMillis();
 	}
@@ -417,28 +415,23 @@ public class AlgoFCHM  implements Serializable{
 					UtilityListFCHM Y = ULs.get(j);
 					
 					// ======================== NEW OPTIMIZATION USED IN FHM
-					Map<Integer, TwuSupportPair> mapTWUF = mapSMAP.get(X.item);
-					if(mapTWUF != null) {
-						TwuSupportPair twuF = mapTWUF.get(Y.item);
-						
+					// (a support of 0 means that X and Y do not appear together)
+					long supportF = matrixSMAPSupport.getValue(X.item, Y.item);
+					if(supportF != 0) {
 						
-						if(twuF != null) {
+						if(ENABLE_FHM_PRUNING && matrixSMAPTwu.getValue(X.item, Y.item) < minUtility) {
+							candidateEliminatedByFHMPruning++;
+							continue;
+						}
+						if(ENABLE_BOND_PAIR_PRUNING) {
+							boolean conditionY = supportF /  (double) Y.bitsetDisjunctiveTIDs.support < minBond;
+							boolean conditionX = supportF /  (double) X.bitsetDisjunctiveTIDs.support  < minBond;
 							
-							if(ENABLE_FHM_PRUNING && twuF.twu < minUtility) {
-								candidateEliminatedByFHMPruning++;
+							if(conditionX || conditionY ) {
+								candidateEliminatedByBondPruning++;
 								continue;
 							}
-							if(ENABLE_BOND_PAIR_PRUNING) {
-								boolean conditionY = twuF.support /  (double) Y.bitsetDisjunctiveTIDs.support < minBond;
-								boolean conditionX = twuF.support /  (double) X.bitsetDisjunctiveTIDs.support  < minBond;
-								
-								if(conditionX || conditionY ) {
-									candidateEliminatedByBondPruning++;
-									continue;
-								}
-							}
 						}
-							
 					}
 					candidateCount++;
 					// =========================== END OF NEW OPTIMIZATION
@@ -448,12 +441,17 @@ public class AlgoFCHM  implements Serializable{
 					UtilityListFCHM temp = construct(pUL, X, Y, minUtility);
 					if(temp != null && temp.getBond() >= minBond) {
 						exULs.add(temp);
+					}else if(temp != null) {
+						utilityListPool.release(temp);
 					}
 				}
 				// We create new prefix pX
 				itemsetBuffer[prefixLength] = X.item;
 				// We make a recursive call to discover all itemsets with the prefix pXY
 				fchm(itemsetBuffer, prefixLength+1, X, exULs, minUtility); 
+				
+				// the utility-lists of the extensions of pX can be reused
+				utilityListPool.releaseAll(exULs);
 			}
 		}
 		MemoryLogger.getInstance().checkMemory();
@@ -464,7 +462,7 @@ public class AlgoFCHM  implements Serializable{
 	 * @param P :  the utility list of prefix P.
 	 * @param px : the utility list of pX
 	 * @param py : the utility list of pY
-	 * @return the utility list of pXY
+	 * @return the utility list of pXY or null if the construction was stopped by LA-prune or SLA-prune
 	 */
 	private UtilityListFCHM construct(UtilityListFCHM P, UtilityListFCHM px, UtilityListFCHM py, int minUtility) {
 		
@@ -473,97 +471,29 @@ public class AlgoFCHM  implements Serializable{
 		BitSetSupport bitsetPXY = performOR(bitsetPX, bitsetPY);
 		
 		//== new optimization - SLA-prune  == /
-		// Initialize the sum of total utility
+		// Calculate the minimum support of pXY for having a bond no less than minbond
 		double maxdisjunctivesupport  = bitsetPXY.support;
-		double pxsupport = px.elements.size();
 		int minSup = (int) Math.ceil(maxdisjunctivesupport * minBond);
 		// ================================================
 		
-		// create an empty utility list for pXY
-		UtilityListFCHM pxyUL = new UtilityListFCHM(py.item, bitsetPXY);
-		
-		//== new optimization - LA-prune  == /
-		// Initialize the sum of total utility
-		long totalUtility = px.sumIutils + px.sumRutils;
-		// ================================================
-
-		
-		// for each element in the utility list of pX
-		for(Element ex : px.elements){
-			// do a binary search to find element ey in py with tid = ex.tid
-			Element ey = findElementWithTID(py, ex.tid);
-			if(ey == null){
-				//== new optimization - LA-prune == /
-				if(ENABLE_LA_PRUNE) {
-					totalUtility -= (ex.iutils+ex.rutils);
-					if(totalUtility < minUtility) {
-						candidateEliminatedByLAPrune++;
-						return null;
-					}
-				}
-				if(ENABLE_SLA_PRUNE) {
-					pxsupport--;
-					if(pxsupport < minSup){
-						candidateEliminatedBySLAPrune++;
-						return null;
-					}
-				}
-				// =============================================== /
-				continue;
-			}
-			// if the prefix p is null
-			if(P == null){
-				// Create the new element
-				Element eXY = new Element(ex.tid, ex.iutils + ey.iutils, ey.rutils);
-				// add the new element to the utility list of pXY
-				pxyUL.addElement(eXY);
-				
-			}else{
-				// find the element in the utility list of p wih the same tid
-				Element e = findElementWithTID(P, ex.tid);
-				if(e != null){
-					// Create new element
-					Element eXY = new Element(ex.tid, ex.iutils + ey.iutils - e.iutils,
-								ey.rutils);
-					// add the new element to the utility list of pXY
-					pxyUL.addElement(eXY);
-				}
-			}	
+		// construct the utility list of pXY 
+		// (LA-prune and SLA-prune stop the construction early)
+		UtilityListFCHM pxyUL = utilityListPool.get();
+		pxyUL.bitsetDisjunctiveTIDs = bitsetPXY;
+		int result = pxyUL.join(P, px, py, ENABLE_LA_PRUNE ? minUtility : Long.MIN_VALUE, 
+				ENABLE_SLA_PRUNE ? minSup : 0);
+		if(result == ColumnarUtilityList.PRUNED_BY_UTILITY) {
+			candidateEliminatedByLAPrune++;
+		}else if(result == ColumnarUtilityList.PRUNED_BY_SUPPORT) {
+			candidateEliminatedBySLAPrune++;
+		}
+		if(result != ColumnarUtilityList.JOINED) {
+			utilityListPool.release(pxyUL);
+			return null;
 		}
 		// return the utility list of pXY.
 		return pxyUL;
 	}
-	
-	/**
-	 * Do a binary search to find the element with a given tid in a utility list
-	 * @param ulist the utility list
-	 * @param tid  the tid
-	 * @return  the element or null if none has the tid.
-	 */
-	private Element findElementWithTID(UtilityListFCHM ulist, int tid){
-		List<Element> list = ulist.elements;
-		
-		// perform a binary search to check if  the subset appears in  level k-1.
-        int first = 0;
-        int last = list.size() - 1;
-       
-        // the binary search
-        while( first <= last )
-        {
-        	int middle = ( first + last ) >>> 1; // divide by 2
-
-            if(list.get(middle).tid < tid){
-            	first = middle + 1;  //  the itemset compared is larger than the subset according to the lexical order
-            }
-            else if(list.get(middle).tid > tid){
-            	last = middle - 1; //  the itemset compared is smaller than the subset  is smaller according to the lexical order
-            }
-            else{
-            	return list.get(middle);
-            }
-        }
-		return null;
-	}
 
 	/**
 	 * Method to write a high utility itemset to the output file.
@@ -635,27 +565,17 @@ public class AlgoFCHM  implements Serializable{
 		
 		// Print the SMAP
 		if(DEBUG) {
-			for(Entry<Integer, Map<Integer, TwuSupportPair>> entry : mapSMAP.entrySet()) {
-				System.out.println("Item: " + entry.getKey());
-				for(Entry<Integer, TwuSupportPair> entry2 :entry.getValue().entrySet()) {
-					System.out.println(" (Item: " + entry2.getKey() + " twu: " + entry2.getValue().twu + " sup: " + entry2.getValue().support);
-				}
-			}
+			System.out.println("TWU: ");
+			System.out.println(matrixSMAPTwu);
+			System.out.println("SUPPORT: ");
+			System.out.println(matrixSMAPSupport);
 		}
 		
 		
 		if(DEBUG) {
-			int pairCount = 0;
-			double maxMemory = getObjectSize(mapSMAP);
-			for(Entry<Integer, Map<Integer, TwuSupportPair>> entry : mapSMAP.entrySet()) {
-				maxMemory += getObjectSize(entry.getKey());
-				for(Entry<Integer, TwuSupportPair> entry2 :entry.getValue().entrySet()) {
-					pairCount++;
-					maxMemory += getObjectSize(entry2.getKey()) + getObjectSize(entry2.getValue());
-				}
-			}
+			double maxMemory = getObjectSize(matrixSMAPTwu) + getObjectSize(matrixSMAPSupport);
 			System.out.println("CMAP size " + maxMemory + " MB");
-			System.out.println("PAIR COUNT " + pairCount);
+			System.out.println("PAIR COUNT " + matrixSMAPSupport.getPairCount());
 		}
 		System.out.println("===================================================");
 	}
@@ -685,15 +605,6 @@ public class AlgoFCHM  implements Serializable{
         return maxMemory;
     }
     
-    /**
-     * Class for storing the TWU and support of a pair of items
-     * @author Philippe Fournier-Viger
-     */
-    class TwuSupportPair  implements Serializable{
-		private static final long serialVersionUID = -131200309501702633L;
-		int support = 0 ;
-    	long twu = 0;
-    }
     
 
 
@@ -34,8 +34,8 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 
+import ca.pfv.spmf.datastructures.triangularmatrix.AbstractTriangularMatrixLong;
 import ca.pfv.spmf.tools.MemoryLogger;
 
 /**
@@ -46,8 +46,8 @@ import ca.pfv.spmf.tools.MemoryLogger;
  *  Mining Algorithm using Estimated Utility Co-occurrence Pruning. 
  *  Proc. 21st International Symposium on Methodologies for Intelligent Systems (ISMIS 2014), Springer, LNAI, 12 pages (to appear).
  *
- * @see UtilityList
- * @see Element
+ * @see ColumnarUtilityList
+ * @see AbstractTriangularMatrixLong
  * @author Philippe Fournier-Viger
  */
 public class AlgoFHM {
@@ -70,8 +70,8 @@ public class AlgoFHM {
 	/** writer to write the output file  */
 	BufferedWriter writer = null;  
 	
-	/** The eucs structure:  key: item   key: another item   value: twu */
-	Map<Integer, Map<Integer, Long>> mapFMAP;  
+	/** The eucs structure:  row: item   column: another item   value: twu */
+	AbstractTriangularMatrixLong matrixFMAP;  
 	
 	/** enable LA-prune strategy  */
 	boolean ENABLE_LA_PRUNE = true;
@@ -84,6 +84,9 @@ public class AlgoFHM {
 	final int BUFFERS_SIZE = 200;
 	private int[] itemsetBuffer = null;
 	
+	/** the utility-lists that can be reused for constructing the utility-lists of itemsets */
+	private ColumnarUtilityList.Pool<ColumnarUtilityList> utilityListPool;
+	
 	/** this class represent an item and its utility in a transaction */
 	class Pair{
 		int item = 0;
@@ -110,8 +113,7 @@ public class AlgoFHM {
 		
 		// initialize the buffer for storing the current itemset
 		itemsetBuffer = new int[BUFFERS_SIZE];
-		
-		mapFMAP =  new HashMap<Integer, Map<Integer, Long>>();
+		utilityListPool = new ColumnarUtilityList.Pool<ColumnarUtilityList>(() -> new ColumnarUtilityList(0));
 		
 		startTimestamp = System.currentTimeMillis();
 		
@@ -119,6 +121,8 @@ public class AlgoFHM {
 
 		//  We create a  map to store the TWU of each item
 		mapItemToTWU = new HashMap<Integer, Long>();
+		// the largest item in the database
+		int maxItem = 0;
 
 		// We scan the database a first time to calculate the TWU of each item.
 		BufferedReader myInput = null;
@@ -146,6 +150,9 @@ public class AlgoFHM {
 				for(int i=0; i <items.length; i++){
 					// convert item to integer
 					Integer item = Integer.parseInt(items[i]);
+					if(item > maxItem) {
+						maxItem = item;
+					}
 					// get the current TWU of that item
 					Long twu = mapItemToTWU.get(item);
 					// add the utility of the item in the current transaction to its twu
@@ -163,18 +170,21 @@ public class AlgoFHM {
 			}
 	    }
 		
+		// create the eucs structure (an array if there are not too many items)
+		matrixFMAP = AbstractTriangularMatrixLong.create(maxItem + 1);
+		
 		// CREATE A LIST TO STORE THE UTILITY LIST OF ITEMS WITH TWU  >= MIN_UTILITY.
-		List<UtilityList> listOfUtilityLists = new ArrayList<UtilityList>();
+		List<ColumnarUtilityList> listOfUtilityLists = new ArrayList<ColumnarUtilityList>();
 		// CREATE A MAP TO STORE THE UTILITY LIST FOR EACH ITEM.
 		// Key : item    Value :  utility list associated to that item
-		Map<Integer, UtilityList> mapItemToUtilityList = new HashMap<Integer, UtilityList>();
+		Map<Integer, ColumnarUtilityList> mapItemToUtilityList = new HashMap<Integer, ColumnarUtilityList>();
 		
 		// For each item
 		for(Integer item: mapItemToTWU.keySet()){
 			// if the item is promising  (TWU >= minutility)
 			if(mapItemToTWU.get(item) >= minUtility){
 				// create an empty Utility List that we will fill later.
-				UtilityList uList = new UtilityList(item);
+				ColumnarUtilityList uList = new ColumnarUtilityList(item);
 				mapItemToUtilityList.put(item, uList);
 				// add the item to the list of high TWU items
 				listOfUtilityLists.add(uList); 
@@ -182,8 +192,8 @@ public class AlgoFHM {
 			}
 		}
 		// SORT THE LIST OF HIGH TWU ITEMS IN ASCENDING ORDER
-		Collections.sort(listOfUtilityLists, new Comparator<UtilityList>(){
-			public int compare(UtilityList o1, UtilityList o2) {
+		Collections.sort(listOfUtilityLists, new Comparator<ColumnarUtilityList>(){
+			public int compare(ColumnarUtilityList o1, ColumnarUtilityList o2) {
 				// compare the TWU of the items
 				return compareItems(o1.item, o2.item);
 			}
@@ -256,28 +266,15 @@ public class AlgoFHM {
 					remainingUtility = remainingUtility - pair.utility;
 					
 					// get the utility list of this item
-					UtilityList utilityListOfItem = mapItemToUtilityList.get(pair.item);
+					ColumnarUtilityList utilityListOfItem = mapItemToUtilityList.get(pair.item);
 					
 					// Add a new Element to the utility list of this item corresponding to this transaction
-					Element element = new Element(tid, pair.utility, remainingUtility);
-					
-					utilityListOfItem.addElement(element);
+					utilityListOfItem.addElement(tid, pair.utility, remainingUtility);
 										
 					// BEGIN NEW OPTIMIZATION for FHM
-					Map<Integer, Long> mapFMAPItem = mapFMAP.get(pair.item);
-					if(mapFMAPItem == null) {
-						mapFMAPItem = new HashMap<Integer, Long>();
-						mapFMAP.put(pair.item, mapFMAPItem);
-					}
-
 					for(int j = i+1; j< revisedTransaction.size(); j++){
 						Pair pairAfter = revisedTransaction.get(j);
-						Long twuSum = mapFMAPItem.get(pairAfter.item);
-						if(twuSum == null) {
-							mapFMAPItem.put(pairAfter.item, newTWU);
-						}else {
-							mapFMAPItem.put(pairAfter.item, twuSum + newTWU);
-						}
+						matrixFMAP.incrementValue(pair.item, pairAfter.item, newTWU);
 					}
 					// END OPTIMIZATION of FHM
 				}
@@ -303,6 +300,7 @@ public class AlgoFHM {
 		MemoryLogger.getInstance().checkMemory();
 		// close output file
 		writer.close();
+		utilityListPool = null;
 		// record end time
 		endTimestamp = System.currentTimeMillis();
 	}
@@ -330,12 +328,12 @@ public class AlgoFHM {
 	 * @throws IOException
 	 */
 	private void fhm(int [] prefix,
-			int prefixLength, UtilityList pUL, List<UtilityList> ULs, int minUtility)
+			int prefixLength, ColumnarUtilityList pUL, List<ColumnarUtilityList> ULs, int minUtility)
 			throws IOException {
 		
 		// For each extension X of prefix P
 		for(int i=0; i< ULs.size(); i++){
-			UtilityList X = ULs.get(i);
+			ColumnarUtilityList X = ULs.get(i);
 
 			// If pX is a high utility itemset.
 			// we save the itemset:  pX 
@@ -349,124 +347,43 @@ public class AlgoFHM {
 			// (this is the pruning condition)
 			if(X.sumIutils + X.sumRutils >= minUtility){
 				// This list will contain the utility lists of pX extensions.
-				List<UtilityList> exULs = new ArrayList<UtilityList>();
+				List<ColumnarUtilityList> exULs = new ArrayList<ColumnarUtilityList>();
 				// For each extension of p appearing
 				// after X according to the ascending order
 				for(int j=i+1; j < ULs.size(); j++){
-					UtilityList Y = ULs.get(j);
+					ColumnarUtilityList Y = ULs.get(j);
 					
 					// ======================== NEW OPTIMIZATION USED IN FHM
-					Map<Integer, Long> mapTWUF = mapFMAP.get(X.item);
-					if(mapTWUF != null) {
-						Long twuF = mapTWUF.get(Y.item);
-						if(twuF == null || twuF < minUtility) {
-							continue;
-						}
+					// (a TWU of 0 means that X and Y do not appear together)
+					long twuF = matrixFMAP.getValue(X.item, Y.item);
+					if(twuF == 0 || twuF < minUtility) {
+						continue;
 					}
 					candidateCount++;
 					// =========================== END OF NEW OPTIMIZATION
 					
 					// we construct the extension pXY 
 					// and add it to the list of extensions of pX
-					UtilityList temp = construct(pUL, X, Y, minUtility);
-					if(temp != null) {
+					// (the construction is stopped by LA-prune if pXY cannot be a high utility itemset)
+					ColumnarUtilityList temp = utilityListPool.get();
+					if(temp.join(pUL, X, Y, ENABLE_LA_PRUNE ? minUtility : Long.MIN_VALUE, 0) == ColumnarUtilityList.JOINED) {
 						exULs.add(temp);
+					}else {
+						utilityListPool.release(temp);
 					}
 				}
 				// We create new prefix pX
 				itemsetBuffer[prefixLength] = X.item;
 				// We make a recursive call to discover all itemsets with the prefix pXY
 				fhm(itemsetBuffer, prefixLength+1, X, exULs, minUtility); 
+				
+				// the utility-lists of the extensions of pX can be reused
+				utilityListPool.releaseAll(exULs);
 			}
 		}
 		MemoryLogger.getInstance().checkMemory();
 	}
 	
-	/**
-	 * This method constructs the utility list of pXY
-	 * @param P :  the utility list of prefix P.
-	 * @param px : the utility list of pX
-	 * @param py : the utility list of pY
-	 * @return the utility list of pXY
-	 */
-	private UtilityList construct(UtilityList P, UtilityList px, UtilityList py, int minUtility) {
-		// create an empy utility list for pXY
-		UtilityList pxyUL = new UtilityList(py.item);
-		
-		//== new optimization - LA-prune  == /
-		// Initialize the sum of total utility
-		long totalUtility = px.sumIutils + px.sumRutils;
-		// ================================================
-		
-		// for each element in the utility list of pX
-		for(Element ex : px.elements){
-			// do a binary search to find element ey in py with tid = ex.tid
-			Element ey = findElementWithTID(py, ex.tid);
-			if(ey == null){
-				//== new optimization - LA-prune == /
-				if(ENABLE_LA_PRUNE) {
-					totalUtility -= (ex.iutils+ex.rutils);
-					if(totalUtility < minUtility) {
-						return null;
-					}
-				}
-				// =============================================== /
-				continue;
-			}
-			// if the prefix p is null
-			if(P == null){
-				// Create the new element
-				Element eXY = new Element(ex.tid, ex.iutils + ey.iutils, ey.rutils);
-				// add the new element to the utility list of pXY
-				pxyUL.addElement(eXY);
-				
-			}else{
-				// find the element in the utility list of p wih the same tid
-				Element e = findElementWithTID(P, ex.tid);
-				if(e != null){
-					// Create new element
-					Element eXY = new Element(ex.tid, ex.iutils + ey.iutils - e.iutils,
-								ey.rutils);
-					// add the new element to the utility list of pXY
-					pxyUL.addElement(eXY);
-				}
-			}	
-		}
-		// return the utility list of pXY.
-		return pxyUL;
-	}
-	
-	/**
-	 * Do a binary search to find the element with a given tid in a utility list
-	 * @param ulist the utility list
-	 * @param tid  the tid
-	 * @return  the element or null if none has the tid.
-	 */
-	private Element findElementWithTID(UtilityList ulist, int tid){
-		List<Element> list = ulist.elements;
-		
-		// perform a binary search to check if  the subset appears in  level k-1.
-        int first = 0;
-        int last = list.size() - 1;
-       
-        // the binary search
-        while( first <= last )
-        {
-        	int middle = ( first + last ) >>> 1; // divide by 2
-
-            if(list.get(middle).tid < tid){
-            	first = middle + 1;  //  the itemset compared is larger than the subset according to the lexical order
-            }
-            else if(list.get(middle).tid > tid){
-            	last = middle - 1; //  the itemset compared is smaller than the subset  is smaller according to the lexical order
-            }
-            else{
-            	return list.get(middle);
-            }
-        }
-		return null;
-	}
-
 	/**
 	 * Method to write a high utility itemset to the output file.
 	 * @param the prefix to be writent o the output file
@@ -507,17 +424,9 @@ public class AlgoFHM {
 		System.out.println(" Candidate count : "             + candidateCount);
 		
 		if(DEBUG) {
-			int pairCount = 0;
-			double maxMemory = getObjectSize(mapFMAP);
-			for(Entry<Integer, Map<Integer, Long>> entry : mapFMAP.entrySet()) {
-				maxMemory += getObjectSize(entry.getKey());
-				for(Entry<Integer, Long> entry2 :entry.getValue().entrySet()) {
-					pairCount++;
-					maxMemory += getObjectSize(entry2.getKey()) + getObjectSize(entry2.getValue());
-				}
-			}
+			double maxMemory = getObjectSize(matrixFMAP);
 			System.out.println("CMAP size " + maxMemory + " MB");
-			System.out.println("PAIR COUNT " + pairCount);
+			System.out.println("PAIR COUNT " + matrixFMAP.getPairCount());
 		}
 		System.out.println("===================================================");
 	}
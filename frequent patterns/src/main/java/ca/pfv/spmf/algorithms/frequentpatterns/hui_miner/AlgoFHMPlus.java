@@ -36,8 +36,8 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 
+import ca.pfv.spmf.datastructures.triangularmatrix.AbstractTriangularMatrixLong;
 import ca.pfv.spmf.tools.MemoryLogger;
 
 /**
@@ -51,6 +51,7 @@ import ca.pfv.spmf.tools.MemoryLogger;
  *
  * @see UtilityListFHMPlus
  * @see ElementFHMPlus
+ * @see AbstractTriangularMatrixLong
  * @author Philippe Fournier-Viger, 2016
  */
 public class AlgoFHMPlus {
@@ -73,8 +74,8 @@ public class AlgoFHMPlus {
 	/** writer to write the output file  */
 	BufferedWriter writer = null;  
 	
-	/** The eucs structure:  key: item   key: another item   value: twu */
-	Map<Integer, Map<Integer, Long>> mapFMAP;  
+	/** The eucs structure:  row: item   column: another item   value: twu */
+	AbstractTriangularMatrixLong matrixFMAP;  
 	
 	/** enable LA-prune strategy  */
 	boolean ENABLE_LA_PRUNE = true;
@@ -149,14 +150,14 @@ public class AlgoFHMPlus {
 		this.minimumLength = minimumLength;
 		this.maximumLength = maximumLength;
 		
-		mapFMAP =  new HashMap<Integer, Map<Integer, Long>>();
-		
 		startTimestamp = System.currentTimeMillis();
 		
 		writer = new BufferedWriter(new FileWriter(output));
 
 		//  We create a  map to store the TWU of each item
 		mapItemToTWU = new HashMap<Integer, Long>();
+		// the largest item in the database
+		int maxItem = 0;
 
 		// We scan the database a first time to calculate the TWU of each item.
 		BufferedReader myInput = null;
@@ -207,6 +208,9 @@ public class AlgoFHMPlus {
 				for(int i=0; i <items.length; i++){
 					// convert item to integer
 					Integer item = Integer.parseInt(items[i]);
+					if(item > maxItem) {
+						maxItem = item;
+					}
 					
 					// get the current TWU of that item
 					Long twu = mapItemToTWU.get(item);
@@ -224,6 +228,9 @@ public class AlgoFHMPlus {
 			}
 	    }
 		
+		// create the eucs structure (an array if there are not too many items)
+		matrixFMAP = AbstractTriangularMatrixLong.create(maxItem + 1);
+		
 		// CREATE A LIST TO STORE THE UTILITY LIST OF ITEMS WITH TWU  >= MIN_UTILITY.
 		List<UtilityListFHMPlus> listOfUtilityLists = new ArrayList<UtilityListFHMPlus>();
 		// CREATE A MAP TO STORE THE UTILITY LIST FOR EACH ITEM.
@@ -331,13 +338,6 @@ public class AlgoFHMPlus {
 					element.remainingArray = new int[sizeRemainingArray];
 
 					
-					// Get the EUCS ENTRY for that item
-					Map<Integer, Long> mapFMAPItem = mapFMAP.get(pair.item);
-					if(mapFMAPItem == null) {
-						mapFMAPItem = new HashMap<Integer, Long>();
-						mapFMAP.put(pair.item, mapFMAPItem);
-					}
-
 					// update the remaining utility and EUCS at the same time
 					int numberOfItemsCanExtendWhithinMaxLimit = 0;
 					// Calculate the remaining utility
@@ -359,12 +359,7 @@ public class AlgoFHMPlus {
 
 							
 							// UPDATE THE EUCS 
-							Long twuSum = mapFMAPItem.get(otherPair.item);
-							if(twuSum == null) {
-								mapFMAPItem.put(otherPair.item, newTWU);
-							}else {
-								mapFMAPItem.put(otherPair.item, twuSum + newTWU);
-							}
+							matrixFMAP.incrementValue(pair.item, otherPair.item, newTWU);
 							// END OPTIMIZATION of FHM
 						}
 					}
@@ -477,12 +472,10 @@ public class AlgoFHMPlus {
 					UtilityListFHMPlus Y = ULs.get(j);
 					
 					// ======================== NEW OPTIMIZATION USED IN FHM
-					Map<Integer, Long> mapTWUF = mapFMAP.get(X.item);
-					if(mapTWUF != null) {
-						Long twuF = mapTWUF.get(Y.item);
-						if(twuF == null || twuF < minUtility) {
-							continue;
-						}
+					// (a TWU of 0 means that X and Y do not appear together)
+					long twuF = matrixFMAP.getValue(X.item, Y.item);
+					if(twuF == 0 || twuF < minUtility) {
+						continue;
 					}
 					candidateCount++;
 					// =========================== END OF NEW OPTIMIZATION
@@ -749,17 +742,9 @@ public class AlgoFHMPlus {
 		System.out.println(" Candidate count : "             + candidateCount);
 		
 		if(DEBUG) {
-			int pairCount = 0;
-			double maxMemory = getObjectSize(mapFMAP);
-			for(Entry<Integer, Map<Integer, Long>> entry : mapFMAP.entrySet()) {
-				maxMemory += getObjectSize(entry.getKey());
-				for(Entry<Integer, Long> entry2 :entry.getValue().entrySet()) {
-					pairCount++;
-					maxMemory += getObjectSize(entry2.getKey()) + getObjectSize(entry2.getValue());
-				}
-			}
+			double maxMemory = getObjectSize(matrixFMAP);
 			System.out.println("CMAP size " + maxMemory + " MB");
-			System.out.println("PAIR COUNT " + pairCount);
+			System.out.println("PAIR COUNT " + matrixFMAP.getPairCount());
 		}
 		System.out.println("===================================================");
 	}
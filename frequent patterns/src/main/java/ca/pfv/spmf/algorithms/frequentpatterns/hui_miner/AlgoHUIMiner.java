@@ -42,8 +42,7 @@ import ca.pfv.spmf.tools.MemoryLogger;
  *  Liu, M., Qu, J. (2012). Mining High Utility Itemsets without Candidate Generation. 
  *  Proc. of CIKM 2012. pp.55-64.
  *
- * @see UtilityList
- * @see Element
+ * @see ColumnarUtilityList
  * @author Philippe Fournier-Viger
  */
 public class AlgoHUIMiner {
@@ -71,6 +70,9 @@ public class AlgoHUIMiner {
 	final int BUFFERS_SIZE = 200;
 	private int[] itemsetBuffer = null;
 	
+	/** the utility-lists that can be reused for constructing the utility-lists of itemsets */
+	private ColumnarUtilityList.Pool<ColumnarUtilityList> utilityListPool;
+	
 	/** this class represent an item and its utility in a transaction */
 	class Pair{
 		int item = 0;
@@ -96,6 +98,7 @@ public class AlgoHUIMiner {
 		
 		// initialize the buffer for storing the current itemset
 		itemsetBuffer = new int[BUFFERS_SIZE];
+		utilityListPool = new ColumnarUtilityList.Pool<ColumnarUtilityList>(() -> new ColumnarUtilityList(0));
 		
 		startTimestamp = System.currentTimeMillis();
 		
@@ -148,17 +151,17 @@ public class AlgoHUIMiner {
 	    }
 		
 		// CREATE A LIST TO STORE THE UTILITY LIST OF ITEMS WITH TWU  >= MIN_UTILITY.
-		List<UtilityList> listOfUtilityLists = new ArrayList<UtilityList>();
+		List<ColumnarUtilityList> listOfUtilityLists = new ArrayList<ColumnarUtilityList>();
 		// CREATE A MAP TO STORE THE UTILITY LIST FOR EACH ITEM.
 		// Key : item    Value :  utility list associated to that item
-		Map<Integer, UtilityList> mapItemToUtilityList = new HashMap<Integer, UtilityList>();
+		Map<Integer, ColumnarUtilityList> mapItemToUtilityList = new HashMap<Integer, ColumnarUtilityList>();
 		
 		// For each item
 		for(Integer item: mapItemToTWU.keySet()){
 			// if the item is promising  (TWU >= minutility)
 			if(mapItemToTWU.get(item) >= minUtility){
 				// create an empty Utility List that we will fill later.
-				UtilityList uList = new UtilityList(item);
+				ColumnarUtilityList uList = new ColumnarUtilityList(item);
 				mapItemToUtilityList.put(item, uList);
 				// add the item to the list of high TWU items
 				listOfUtilityLists.add(uList); 
@@ -166,8 +169,8 @@ public class AlgoHUIMiner {
 			}
 		}
 		// SORT THE LIST OF HIGH TWU ITEMS IN ASCENDING ORDER
-		Collections.sort(listOfUtilityLists, new Comparator<UtilityList>(){
-			public int compare(UtilityList o1, UtilityList o2) {
+		Collections.sort(listOfUtilityLists, new Comparator<ColumnarUtilityList>(){
+			public int compare(ColumnarUtilityList o1, ColumnarUtilityList o2) {
 				// compare the TWU of the items
 				return compareItems(o1.item, o2.item);
 			}
@@ -231,12 +234,10 @@ public class AlgoHUIMiner {
 					remainingUtility = remainingUtility - pair.utility;
 					
 					// get the utility list of this item
-					UtilityList utilityListOfItem = mapItemToUtilityList.get(pair.item);
+					ColumnarUtilityList utilityListOfItem = mapItemToUtilityList.get(pair.item);
 					
 					// Add a new Element to the utility list of this item corresponding to this transaction
-					Element element = new Element(tid, pair.utility, remainingUtility);
-					
-					utilityListOfItem.addElement(element);
+					utilityListOfItem.addElement(tid, pair.utility, remainingUtility);
 				}
 				tid++; // increase tid number for next transaction
 
@@ -260,6 +261,7 @@ public class AlgoHUIMiner {
 		MemoryLogger.getInstance().checkMemory();
 		// close output file
 		writer.close();
+		utilityListPool = null;
 		// record end time
 		endTimestamp = System.currentTimeMillis();
 	}
@@ -281,12 +283,12 @@ public class AlgoHUIMiner {
 	 * @throws IOException
 	 */
 	private void huiMiner(int [] prefix, 
-			int prefixLength, UtilityList pUL, List<UtilityList> ULs, int minUtility)
+			int prefixLength, ColumnarUtilityList pUL, List<ColumnarUtilityList> ULs, int minUtility)
 			throws IOException {
 		
 		// For each extension X of prefix P
 		for(int i=0; i< ULs.size(); i++){
-			UtilityList X = ULs.get(i);
+			ColumnarUtilityList X = ULs.get(i);
 
 			// If pX is a high utility itemset.
 			// we save the itemset:  pX 
@@ -300,14 +302,16 @@ public class AlgoHUIMiner {
 			// (this is the pruning condition)
 			if(X.sumIutils + X.sumRutils >= minUtility){
 				// This list will contain the utility lists of pX extensions.
-				List<UtilityList> exULs = new ArrayList<UtilityList>();
+				List<ColumnarUtilityList> exULs = new ArrayList<ColumnarUtilityList>();
 				// For each extension of p appearing
 				// after X according to the ascending order
 				for(int j=i+1; j < ULs.size(); j++){
-					UtilityList Y = ULs.get(j);
+					ColumnarUtilityList Y = ULs.get(j);
 					// we construct the extension pXY 
 					// and add it to the list of extensions of pX
-					exULs.add(construct(pUL, X, Y));
+					ColumnarUtilityList pXY = utilityListPool.get();
+					pXY.join(pUL, X, Y, Long.MIN_VALUE, 0);
+					exULs.add(pXY);
 					joinCount++;
 				}
 				// We create new prefix pX
@@ -315,81 +319,13 @@ public class AlgoHUIMiner {
 				
 				// We make a recursive call to discover all itemsets with the prefix pXY
 				huiMiner(itemsetBuffer, prefixLength+1, X, exULs, minUtility); 
-			}
-		}
-	}
-	
-	/**
-	 * This method constructs the utility list of pXY
-	 * @param P :  the utility list of prefix P.
-	 * @param px : the utility list of pX
-	 * @param py : the utility list of pY
-	 * @return the utility list of pXY
-	 */
-	private UtilityList construct(UtilityList P, UtilityList px, UtilityList py) {
-		// create an empy utility list for pXY
-		UtilityList pxyUL = new UtilityList(py.item);
-		// for each element in the utility list of pX
-		for(Element ex : px.elements){
-			// do a binary search to find element ey in py with tid = ex.tid
-			Element ey = findElementWithTID(py, ex.tid);
-			if(ey == null){
-				continue;
-			}
-			// if the prefix p is null
-			if(P == null){
-				// Create the new element
-				Element eXY = new Element(ex.tid, ex.iutils + ey.iutils, ey.rutils);
-				// add the new element to the utility list of pXY
-				pxyUL.addElement(eXY);
 				
-			}else{
-				// find the element in the utility list of p wih the same tid
-				Element e = findElementWithTID(P, ex.tid);
-				if(e != null){
-					// Create new element
-					Element eXY = new Element(ex.tid, ex.iutils + ey.iutils - e.iutils,
-								ey.rutils);
-					// add the new element to the utility list of pXY
-					pxyUL.addElement(eXY);
-				}
-			}	
+				// the utility-lists of the extensions of pX can be reused
+				utilityListPool.releaseAll(exULs);
+			}
 		}
-		// return the utility list of pXY.
-		return pxyUL;
 	}
 	
-	/**
-	 * Do a binary search to find the element with a given tid in a utility list
-	 * @param ulist the utility list
-	 * @param tid  the tid
-	 * @return  the element or null if none has the tid.
-	 */
-	private Element findElementWithTID(UtilityList ulist, int tid){
-		List<Element> list = ulist.elements;
-		
-		// perform a binary search to check if  the subset appears in  level k-1.
-        int first = 0;
-        int last = list.size() - 1;
-       
-        // the binary search
-        while( first <= last )
-        {
-        	int middle = ( first + last ) >>> 1; // divide by 2
-
-            if(list.get(middle).tid < tid){
-            	first = middle + 1;  //  the itemset compared is larger than the subset according to the lexical order
-            }
-            else if(list.get(middle).tid > tid){
-            	last = middle - 1; //  the itemset compared is smaller than the subset  is smaller according to the lexical order
-            }
-            else{
-            	return list.get(middle);
-            }
-        }
-		return null;
-	}
-
 	/**
 	 * Method to write a high utility itemset to the output file.
 	 * @param the prefix to be writent o the output file
@@ -0,0 +1,290 @@
+package ca.pfv.spmf.algorithms.frequentpatterns.hui_miner;
+
+/* This file is part of the SPMF DATA MINING SOFTWARE
+* (http://www.philippe-fournier-viger.com/spmf).
+*
+* SPMF is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+*
+* SPMF is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* SPMF. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * This class represents a utility-list as used by the HUI-Miner, FHM and FCHM algorithms.
+ * It contains the same information as a {@link UtilityList}, but the elements are not objects:
+ * the tid, iutil and rutil values of the elements are stored in three arrays (one column
+ * for each field), which grow when elements are added.
+ * <br/><br/>
+ *
+ * A utility-list can be reused for another itemset (see {@link #reset(int)} and {@link Pool}),
+ * so that the arrays are only created when a utility-list becomes larger than before.
+ * The utility-list of an itemset pXY is constructed from the utility-lists of pX and pY by
+ * the {@link #join(ColumnarUtilityList, ColumnarUtilityList, ColumnarUtilityList, long, int)} method.
+ *
+ * @see AlgoHUIMiner
+ * @see AlgoFHM
+ * @see AlgoFCHM
+ */
+public class ColumnarUtilityList {
+
+	/** the result of a join that constructed the utility-list */
+	public static final int JOINED = 0;
+	/** the result of a join that was stopped because the utility is too low (LA-prune) */
+	public static final int PRUNED_BY_UTILITY = 1;
+	/** the result of a join that was stopped because the support is too low (SLA-prune) */
+	public static final int PRUNED_BY_SUPPORT = 2;
+
+	/** the item */
+	int item;
+	/** the sum of item utilities */
+	long sumIutils = 0;
+	/** the sum of remaining utilities */
+	long sumRutils = 0;
+
+	/** the transaction id of each element (by increasing order) */
+	int[] tids;
+	/** the itemset utility of each element */
+	long[] iutils;
+	/** the remaining utility of each element */
+	long[] rutils;
+	/** the number of elements */
+	int size = 0;
+
+	/**
+	 * Constructor.
+	 * @param item the item that is used for this utility list
+	 */
+	public ColumnarUtilityList(int item){
+		this.item = item;
+		tids = new int[8];
+		iutils = new long[8];
+		rutils = new long[8];
+	}
+
+	/**
+	 * Remove all the elements of this utility list, to use it for another item
+	 * (the arrays are kept).
+	 * @param item the item that is used for this utility list
+	 */
+	public void reset(int item) {
+		this.item = item;
+		sumIutils = 0;
+		sumRutils = 0;
+		size = 0;
+	}
+
+	/**
+	 * Method to add an element to this utility list and update the sums at the same time.
+	 * The transaction id must be larger than the transaction ids of the previous elements.
+	 * @param tid the transaction id
+	 * @param iutil the itemset utility
+	 * @param rutil the remaining utility
+	 */
+	public void addElement(int tid, long iutil, long rutil){
+		if(size == tids.length) {
+			int capacity = size * 2;
+			tids = Arrays.copyOf(tids, capacity);
+			iutils = Arrays.copyOf(iutils, capacity);
+			rutils = Arrays.copyOf(rutils, capacity);
+		}
+		tids[size] = tid;
+		iutils[size] = iutil;
+		rutils[size] = rutil;
+		size++;
+		sumIutils += iutil;
+		sumRutils += rutil;
+	}
+
+	/**
+	 * Get the support of the itemset represented by this utility-list
+	 * @return the support as a number of trnsactions
+	 */
+	public int getSupport() {
+		return size;
+	}
+
+	/**
+	 * Get the item of this utility list
+	 * @return the item
+	 */
+	public int getItem() {
+		return item;
+	}
+
+	/**
+	 * Get the sum of the item utilities
+	 * @return the sum
+	 */
+	public long getSumIutils() {
+		return sumIutils;
+	}
+
+	/**
+	 * Get the sum of the remaining utilities
+	 * @return the sum
+	 */
+	public long getSumRutils() {
+		return sumRutils;
+	}
+
+	/**
+	 * Construct the utility list of pXY in this utility list (which is reset first),
+	 * using the utility lists of P, pX and pY. The elements of the utility lists are
+	 * visited by increasing order of transaction ids.
+	 * <br/><br/>
+	 *
+	 * The construction is stopped early when it is found that pXY and its extensions cannot have
+	 * a utility of at least minUtility (LA-prune) or that pXY cannot have a support of at least
+	 * minSupport (SLA-prune).
+	 * @param p the utility list of prefix P or null if P is the empty set
+	 * @param px the utility list of pX
+	 * @param py the utility list of pY
+	 * @param minUtility the minimum utility for LA-prune (Long.MIN_VALUE to not use LA-prune)
+	 * @param minSupport the minimum support for SLA-prune (0 to not use SLA-prune)
+	 * @return {@link #JOINED} if the utility list was constructed, otherwise {@link #PRUNED_BY_UTILITY}
+	 *   or {@link #PRUNED_BY_SUPPORT} (the content of this utility list is then undefined)
+	 */
+	public int join(ColumnarUtilityList p, ColumnarUtilityList px, ColumnarUtilityList py,
+			long minUtility, int minSupport) {
+		reset(py.item);
+
+		// Initialize the sum of total utility and the support of pX for the early abandonment
+		long totalUtility = px.sumIutils + px.sumRutils;
+		int pxSupport = px.size;
+
+		// the current positions in the utility lists of pY and P
+		int positionY = 0;
+		int positionP = 0;
+
+		// for each element in the utility list of pX
+		for(int i = 0; i < px.size; i++){
+			int tid = px.tids[i];
+			// find element ey in py with tid = ex.tid
+			positionY = findPosition(py, positionY, tid);
+			if(positionY == py.size || py.tids[positionY] != tid){
+				//== LA-prune == /
+				totalUtility -= px.iutils[i] + px.rutils[i];
+				if(totalUtility < minUtility) {
+					return PRUNED_BY_UTILITY;
+				}
+				//== SLA-prune == /
+				pxSupport--;
+				if(pxSupport < minSupport){
+					return PRUNED_BY_SUPPORT;
+				}
+				continue;
+			}
+			// if the prefix p is null
+			if(p == null){
+				// add the new element to the utility list of pXY
+				addElement(tid, px.iutils[i] + py.iutils[positionY], py.rutils[positionY]);
+			}else{
+				// find the element in the utility list of p wih the same tid
+				positionP = findPosition(p, positionP, tid);
+				if(positionP < p.size && p.tids[positionP] == tid){
+					// add the new element to the utility list of pXY
+					addElement(tid, px.iutils[i] + py.iutils[positionY] - p.iutils[positionP],
+							py.rutils[positionY]);
+				}
+			}
+		}
+		return JOINED;
+	}
+
+	/**
+	 * Find the position of the first element having a transaction id that is not smaller than a given
+	 * transaction id, after a given position (by exponential search followed by a binary search,
+	 * which is fast both when the element is close and when it is far).
+	 * @param list a utility list
+	 * @param from the position
+	 * @param tid the transaction id
+	 * @return the position (the size of the utility list if there is none)
+	 */
+	private static int findPosition(ColumnarUtilityList list, int from, int tid) {
+		int[] tids = list.tids;
+		int size = list.size;
+		if(from >= size || tids[from] >= tid) {
+			return from;
+		}
+		// find an interval containing the position
+		int low = from;
+		int step = 1;
+		int high = from + 1;
+		while(high < size && tids[high] < tid) {
+			low = high;
+			step <<= 1;
+			high = from + step;
+		}
+		if(high > size) {
+			high = size;
+		}
+		// binary search in the interval: tids[low] < tid and (high == size or tids[high] >= tid)
+		while(high - low > 1) {
+			int middle = (low + high) >>> 1;
+			if(tids[middle] < tid) {
+				low = middle;
+			}else {
+				high = middle;
+			}
+		}
+		return high;
+	}
+
+	/**
+	 * A pool of utility lists, to reuse the utility lists that are not needed anymore
+	 * instead of creating new ones.
+	 * @param <T> the type of utility list
+	 */
+	public static class Pool<T extends ColumnarUtilityList> {
+		/** to create a utility list when the pool is empty */
+		private final Supplier<T> factory;
+		/** the utility lists that can be reused */
+		private final List<T> freeLists = new ArrayList<T>();
+
+		/**
+		 * Constructor
+		 * @param factory to create a utility list when the pool is empty
+		 */
+		public Pool(Supplier<T> factory) {
+			this.factory = factory;
+		}
+
+		/**
+		 * Get a utility list from the pool (its content is undefined until it is reset)
+		 * @return the utility list
+		 */
+		public T get() {
+			if(freeLists.isEmpty()) {
+				return factory.get();
+			}
+			return freeLists.remove(freeLists.size() - 1);
+		}
+
+		/**
+		 * Put a utility list that is not used anymore in the pool
+		 * @param list the utility list
+		 */
+		public void release(T list) {
+			freeLists.add(list);
+		}
+
+		/**
+		 * Put some utility lists that are not used anymore in the pool
+		 * @param lists the utility lists
+		 */
+		public void releaseAll(List<T> lists) {
+			freeLists.addAll(lists);
+		}
+	}
+}
@@ -4,18 +4,21 @@ import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import ca.pfv.spmf.patterns.itemset_array_integers_with_count.Itemset;
 import ca.pfv.spmf.patterns.itemset_array_integers_with_count.Itemsets;
 import ca.pfv.spmf.tools.MemoryLogger;
 
 /* This file is copyright (c) 2012-2014 Alan Souza
-* 
+*
 * This file is part of the SPMF DATA MINING SOFTWARE
 * (http://www.philippe-fournier-viger.com/spmf).
-* 
+*
 * SPMF is free software: you can redistribute it and/or modify it under the
 * terms of the GNU General Public License as published by the Free Software
 * Foundation, either version 3 of the License, or (at your option) any later
@@ -32,43 +35,85 @@ import ca.pfv.spmf.tools.MemoryLogger;
  * mining frequent closed itemsets from a transaction database.
  * More information on the LCM algorithm can be found in papers by
  * T. Uno, such as: <br/><br/>
- * 
+ *
  * T. Uno, M. Kiyomi, and H. Arimura. Lcm ver. 2:
   * Efficient mining algorithms for
  * frequent/closed/maximal itemsets. In FIMI, 2004
- * 
+ *
  * This implementation of LCM was made by Alan Souza and was
  * modified by Philippe Fournier-Viger to add optimizations.. <br/>
- * 
+ *
  * The implementation is similar to LCM version 2 with some differences.
  * For example, transaction merging is not performed yet and
  * items in transactions are not sorted in descending order of frequency.
+ * <br/><br/>
+ *
+ * The database is stored as arrays of ints (the frequent items of all transactions,
+ * one transaction after the other) and an occurrence is a transaction identifier with the
+ * position of the last item of the itemset in the transaction. The occurrences of
+ * the extensions of an itemset are obtained by occurrence delivery: a first pass
+ * over the occurrences of the itemset counts the items appearing after the last item,
+ * and a second pass copies each occurrence in the bucket of each frequent item that
+ * appears in it. The buckets of a level of the recursion are kept in a frame that
+ * is reused by all the itemsets of that level, so that no object is created
+ * during the search except the closed itemsets that are found.
+ * <br/><br/>
+ *
+ * The branches of the search (one for each frequent item) can be mined by several
+ * threads (see {@link #setThreadCount(int)}). The result is the same as with a single thread.
  *
  * @author Alan Souza <apsouza@inf.ufrgs.br>
  */
 public class AlgoLCM {
 
     private Itemsets closedFrequentItemsets;
-    
+
 	// object to write the output file
 	BufferedWriter writer = null;
-	
+
 	// the number of frequent itemsets found (for
 	// statistics)
-	private int frequentCount; 
+	private int frequentCount;
 
 	// the start time and end time of the last algorithm execution
 	long startTimestamp;
 	long endTimestamp;
 	int minsupRelative;
-	
-	// Buckets for occurence delivery 
-	// Recall that each bucket correspond to an item
-    // and contains the transactions where the items appears.
-	private List<Transaction>[] buckets;
+
+	// The frequent items sorted by increasing order. The items of
+	// the transactions are replaced by their position in this array (their rank)
+	private int[] rankToItem;
+
+	// The ranks of the frequent items of all transactions,  one transaction after
+	// the other. The items of the transaction i are from transactionStart[i]
+	// to transactionStart[i+1] - 1.
+	private int[] transactionItems;
+	private int[] transactionStart;
+
+	// The occurrences of each frequent item in the database (the buckets of the
+	// first occurrence delivery). The occurrences of the item of rank r are from
+	// itemOccurrenceStart[r] to itemOccurrenceStart[r+1] - 1.
+	private int[] itemTransactions;
+	private int[] itemPositions;
+	private int[] itemOccurrenceStart;
+
+	// The count of each item during an occurrence delivery. It is reset to 0 after each delivery.
+	private int[] itemCounts;
+	// The items that have been counted during an occurrence delivery
+	private int[] countedItems;
+
+	// The frames of the recursion (one for each level of the search, created when needed)
+	private Frame[] frames;
+
+	// The number of threads used to mine the branches (1 = sequential mining)
+	private int threadCount = 1;
+
+	// If not null, the closed itemsets found are added to this list instead of being saved
+	// (used by the tasks of the parallel mining)
+	private List<Itemset> collectedItemsets = null;
 
     public AlgoLCM() {
-         
+
     }
 
     /**
@@ -76,8 +121,6 @@ public class AlgoLCM {
      * @param minimumSupport  the minimum support threshold as percentage value between 0 and 1
      * @param dataset  the dataset
      * @param outputPath  the output file path to save the result or null if to be kept in memory
-     * @param mineAllFrequentItemsets mine all frequent itemsets
-     * @param mineAllMaximalItemsets mine only maximal itemsets
          * @return the itemsets or null if the user choose to save to file
      * @throws IOException if exception while reading/writing to file
      */
@@ -89,345 +132,427 @@ public class AlgoLCM {
 		// create object for writing the output file
 		if(outputPath != null) {
 			writer = new BufferedWriter(new FileWriter(outputPath));
+			this.closedFrequentItemsets = null;
 		}else {
 			// if the user choose to save to memory
 			writer = null;
 	        this.closedFrequentItemsets = new Itemsets("Itemsets");
 		}
-		
+
 		// reset the number of itemset found
 		frequentCount = 0;
-		
+
 		// reset the memory usage checking utility
 		MemoryLogger.getInstance().reset();
-		
+
 		// convert from an absolute minsup to a relative minsup by multiplying
 		// by the database size
 		this.minsupRelative = (int) Math.ceil(minimumSupport * dataset.getTransactions().size());
-    	
-        // Create the initial occurrence array for the dataset
+		// an itemset must appear in at least one transaction
+		if(minsupRelative == 0) {
+			minsupRelative = 1;
+		}
+
+        // Create the arrays of transactions and perform the first occurrence delivery
+        // (the support of items is calculated and infrequent items are removed)
         performFirstOccurenceDelivery(dataset);
-        
-        //======
-        // Remove infrequent items from transactions by using support calculated using
-        // the buckets. Recall that each bucket correspond to an item
-        // and contains the transactions where the items appears.
-    	for(Transaction transaction : dataset.getTransactions()) {
-    		transaction.removeInfrequentItems(buckets, minsupRelative);
-    	}
-    	
-    	//======
-    	// Create the array of all frequent items.
-    	List<Integer> allItems = new ArrayList<Integer>();
-    	for(Integer item : dataset.getUniqueItems()) {
-    		if(buckets[item].size() >= minsupRelative) {
-    			allItems.add(item);
-    		}
-    	}
-    	// Sort all items
-    	Collections.sort(allItems);
-
-    	//======
-        // Call the recursive method witht the empty set as prefix.
-        // Since it is the empty set, we will have all transactions and no frequency count
-       	backtrackingLCM(null, dataset.getTransactions(), allItems, -1);
-        	
+
+        try {
+	    	//======
+	        // Extend the empty set with each frequent item.
+        	if(threadCount > 1) {
+        		backtrackingLCMParallel();
+        	}else {
+        		for(int item = 0; item < rankToItem.length; item++) {
+        			backtrackingLCM(null, 0, item, itemTransactions, itemPositions,
+        					itemOccurrenceStart[item], itemOccurrenceStart[item+1], 0);
+        			MemoryLogger.getInstance().checkMemory();
+        		}
+        	}
+        }finally {
+			//close the output file
+			if(writer != null) {
+				writer.close();
+			}
+        }
+
 		// record the end time
 		endTimestamp = System.currentTimeMillis();
-		//close the output file
-		if(writer != null) {
-			writer.close();
-		}
-		
+
 		MemoryLogger.getInstance().checkMemory();
-        
+
+		// release the database
+		transactionItems = null;
+		transactionStart = null;
+		itemTransactions = null;
+		itemPositions = null;
+		frames = null;
+
         return closedFrequentItemsets;
     }
 
     /**
-     * Recursive method to find closed itemsets
-     * @param p  a prefix itemset P
-     * @param transactionsOfP the transactions containing P
-	 * @param frequentItems the list of frequent items in the p-projected database
-     * @param tailPosInP the tail item position in itemset P
+     * Mine the branches of the search in parallel. A branch is mined by a task
+     * for each frequent item.
      * @throws IOException if error writing to output file
      */
-	private void backtrackingLCM(List<Integer> p,
-			List<Transaction> transactionsOfP, List<Integer> frequentItems,
-			int tailPosInP) throws IOException {
-
-        // ========  for each frequent item  e  =============
-		for (int j = 0; j < frequentItems.size(); j++) {
-			Integer e = frequentItems.get(j);
-			//   if the item is not already in p  before the current tail position
-			// we will consider it to form a new closed itemset
-			if(p != null && containsByBinarySearch(p, e, tailPosInP)) {
-				continue;
-			}
-			
-			// Calculate transactions containing P U e 
-			// At the same time truncate the transactions to keep what appears after "e"
-			List<Transaction> transactionsPe = intersectTransactions(transactionsOfP, e); //ok
-			
-			//====== Check if PU{e...} is a ppc extension  ======
-			if (isPPCExtension(p, transactionsPe, e)) {
-				//  ======= Create a closed itemset using PU{e...}  =====
-				// First add all items from PU{e}
-		    	List<Integer> itemset = new ArrayList<Integer>();
-		    	if(p != null) {
-			        //add every item i of p  such that i < e to the  itemset
-			        for (int m = 0; m < p.size() && p.get(m) < e; m++) {
-			        	itemset.add(p.get(m));
-			        }
-		    	}
-		    	itemset.add(e);
-		    	int tailPositionInPe = itemset.size()-1;
-		    
-		    	for (int k = j+1; k < frequentItems.size(); k++) {
-					Integer itemk = frequentItems.get(k);
-		            // for every item i > e add if it is in all transactions of T(P U e)
-		            if(isItemInAllTransactions(transactionsPe, itemk)) {
-		            	itemset.add(itemk);
-		            }
-		        }
-
-		        // ===== save the frequent closed itemset
-		    	int supportPe = transactionsPe.size();
-				output(itemset, supportPe);
-
-				//==== perform database reduction ====
-				anyTimeDatabaseReductionClosed(transactionsPe, j, frequentItems, p, e); 
-				
-		    	// ================ Find frequent items in transactions containing P ============
-		        // Get all frequent items e such that e > tailOfP  
-		    	// (i.e. "e" appears after the position of the tail item in the list of all items)
-				List<Integer> newFrequentItems = new ArrayList<Integer>();
-		    	for (int k = j+1; k < frequentItems.size(); k++) {
-		        	Integer itemK =  frequentItems.get(k);
-		        	int supportK = buckets[itemK].size();
-		            if(supportK >= minsupRelative) {
-		            	newFrequentItems.add(itemK);
-		            }
-		        }
-				
-				// === recursive call
-				backtrackingLCM(itemset, transactionsPe, newFrequentItems, tailPositionInPe);
-			}
-		}
+    private void backtrackingLCMParallel() throws IOException {
+    	ForkJoinPool pool = new ForkJoinPool(threadCount);
+    	try {
+    		// submit the branches in the order used by the sequential algorithm
+    		List<ForkJoinTask<List<Itemset>>> branches = new ArrayList<ForkJoinTask<List<Itemset>>>();
+    		for(int i = 0; i < rankToItem.length; i++) {
+    			final int item = i;
+    			branches.add(pool.submit(() -> {
+    				AlgoLCM worker = createWorker();
+    				worker.backtrackingLCM(null, 0, item, itemTransactions, itemPositions,
+    						itemOccurrenceStart[item], itemOccurrenceStart[item+1], 0);
+    				return worker.collectedItemsets;
+    			}));
+    		}
 
-		MemoryLogger.getInstance().checkMemory();
+    		// save the closed itemsets of each branch in the order of the sequential algorithm
+    		for(int i = 0; i < branches.size(); i++) {
+    			List<Itemset> itemsets;
+    			try {
+    				itemsets = branches.get(i).get();
+    			} catch (InterruptedException e) {
+    				Thread.currentThread().interrupt();
+    				throw new IOException("Interrupted while mining closed itemsets in parallel", e);
+    			} catch (ExecutionException e) {
+    				if(e.getCause() instanceof IOException) {
+    					throw (IOException) e.getCause();
+    				}
+    				if(e.getCause() instanceof RuntimeException) {
+    					throw (RuntimeException) e.getCause();
+    				}
+    				if(e.getCause() instanceof Error) {
+    					throw (Error) e.getCause();
+    				}
+    				throw new IOException(e.getCause());
+    			}
+    			// the task is not needed anymore
+    			branches.set(i, null);
+
+    			for(Itemset itemset : itemsets) {
+    				output(itemset.getItems(), itemset.getAbsoluteSupport());
+    			}
+    			// check the memory usage
+    			MemoryLogger.getInstance().checkMemory();
+    		}
+    	}finally {
+    		pool.shutdownNow();
+    	}
     }
 
+    /**
+     * Create an object to mine a branch of the search in a task. It shares the
+     * (read only) database with this object but has its own buffers.
+     * @return the object
+     */
+    private AlgoLCM createWorker() {
+    	AlgoLCM worker = new AlgoLCM();
+    	worker.minsupRelative = minsupRelative;
+    	worker.rankToItem = rankToItem;
+    	worker.transactionItems = transactionItems;
+    	worker.transactionStart = transactionStart;
+    	worker.itemTransactions = itemTransactions;
+    	worker.itemPositions = itemPositions;
+    	worker.itemOccurrenceStart = itemOccurrenceStart;
+    	worker.itemCounts = new int[rankToItem.length];
+    	worker.countedItems = new int[rankToItem.length];
+    	worker.frames = new Frame[rankToItem.length + 1];
+    	worker.collectedItemsets = new ArrayList<Itemset>();
+    	return worker;
+    }
 
     /**
-	 * Perform the initial occurence delivery with the original dataset
-	 * containing all items
-	 * @param dataset
-	 */
-	@SuppressWarnings("unchecked")
-	public void performFirstOccurenceDelivery(Dataset dataset) {
+     * Recursive method to find closed itemsets. It considers the extension of
+     * an itemset P with an item e, and if it is a ppc extension, it saves
+     * the closure of P U {e} and extends it with the next items.
+     * @param p  the items of the itemset P (ranks in increasing order) or null for the empty set
+     * @param pLength the number of items in P
+     * @param e the item e (a rank)
+     * @param transactionsPe the transactions containing P U {e} (the array of a bucket)
+     * @param positionsPe the position of e in each transaction containing P U {e}
+     * @param start the first occurrence of P U {e} in the two previous arrays
+     * @param end the last occurrence of P U {e} plus 1 in the two previous arrays
+     * @param depth the level of the recursion
+     * @throws IOException if error writing to output file
+     */
+	private void backtrackingLCM(int[] p, int pLength, int e, int[] transactionsPe,
+			int[] positionsPe, int start, int end, int depth) throws IOException {
 
-		buckets = new List[dataset.getMaxItem() + 1]; 
+		//====== Check if PU{e...} is a ppc extension  ======
+		if(isPPCExtension(p, pLength, e, transactionsPe, positionsPe, start, end) == false) {
+			return;
+		}
 
-		for (Integer item : dataset.uniqueItems) {
-			buckets[item] = new ArrayList<Transaction>();
+		Frame frame = frames[depth];
+		if(frame == null) {
+			frame = new Frame();
+			frames[depth] = frame;
 		}
 
-		for (Transaction transaction : dataset.getTransactions()) {
-			for (Integer item : transaction.getItems()) {
-				// for each item get its bucket and add the current transaction
-				buckets[item].add(transaction);
+		// ================ Count the items after e in transactions containing P U {e} ============
+		int supportPe = end - start;
+		int countedItemCount = 0;
+		for(int i = start; i < end; i++) {
+			int transaction = transactionsPe[i];
+			int last = transactionStart[transaction + 1];
+			for(int j = positionsPe[i] + 1; j < last; j++) {
+				int item = transactionItems[j];
+				if(itemCounts[item]++ == 0) {
+					countedItems[countedItemCount++] = item;
+				}
 			}
-
 		}
-	}
-
-    
-    /**
-     * Perform the anytime database reduction for an itemset P U {e}
-     * @param transactions the transactions
-     * @param j the position of j in the list of frequent items
-     * @param frequentItems 
-     * @param itemset 
-     * @param e 
-     */
-    private void anyTimeDatabaseReductionClosed(List<Transaction> transactionsPe, int j, List<Integer> frequentItems, List<Integer> itemset, Integer e) {
+		Arrays.sort(countedItems, 0, countedItemCount);
+
+		//  ======= Create a closed itemset using PU{e...}  =====
+		// First add all items from P that are smaller than e, then e, and
+		// then the items after e that are in all transactions of T(P U e)
+		frame.ensureItemsetCapacity(pLength + 1 + countedItemCount);
+		int[] itemset = frame.itemset;
+		int itemsetLength = 0;
+		for(int i = 0; i < pLength && p[i] < e; i++) {
+			itemset[itemsetLength++] = p[i];
+		}
+		itemset[itemsetLength++] = e;
+
+		// The other items after e that are frequent are the extensions of the closed itemset.
+		// The count of an item is replaced by the position of its bucket
+		// (or -1 if the item is not an extension).
+		int candidateCount = 0;
+		int bucketPosition = 0;
+		for(int i = 0; i < countedItemCount; i++) {
+			int item = countedItems[i];
+			int count = itemCounts[item];
+			if(count == supportPe) {
+				itemset[itemsetLength++] = item;
+				itemCounts[item] = -1;
+			}else if(count >= minsupRelative) {
+				frame.ensureCandidateCapacity(candidateCount + 1);
+				frame.candidates[candidateCount] = item;
+				frame.candidateStart[candidateCount] = bucketPosition;
+				candidateCount++;
+				itemCounts[item] = bucketPosition;
+				bucketPosition += count;
+			}else {
+				itemCounts[item] = -1;
+			}
+		}
+		frame.candidateStart[candidateCount] = bucketPosition;
+
+        // ===== save the frequent closed itemset
+		output(itemset, itemsetLength, supportPe);
+
+		// ================ Deliver the occurrences of P U {e} in the buckets of the extensions ============
+		if(candidateCount > 0) {
+			frame.ensureBucketCapacity(bucketPosition);
+			int[] bucketTransactions = frame.transactions;
+			int[] bucketPositions = frame.positions;
+			for(int i = start; i < end; i++) {
+				int transaction = transactionsPe[i];
+				int last = transactionStart[transaction + 1];
+				for(int j = positionsPe[i] + 1; j < last; j++) {
+					int position = itemCounts[transactionItems[j]];
+					if(position >= 0) {
+						bucketTransactions[position] = transaction;
+						bucketPositions[position] = j;
+						itemCounts[transactionItems[j]]++;
+					}
+				}
+			}
+		}
+		// reset the counts for the next occurrence delivery
+		for(int i = 0; i < countedItemCount; i++) {
+			itemCounts[countedItems[i]] = 0;
+		}
 
-		// We just reset the buckets for item  > e
-		// instead of all buckets
-		for (int i = j+1; i < frequentItems.size(); i++) {
-			Integer item = frequentItems.get(i);
-			buckets[item] = new ArrayList<Transaction>();
+		// === recursive call for each extension
+		for(int i = 0; i < candidateCount; i++) {
+			backtrackingLCM(itemset, itemsetLength, frame.candidates[i], frame.transactions,
+					frame.positions, frame.candidateStart[i], frame.candidateStart[i+1], depth + 1);
 		}
-		
-       // for each transaction
-       for(Transaction transaction : transactionsPe) {
-    	   // we consider each item I  of the transaction such that  itemI > e 
-    	   for(int i = transaction.getItems().length-1; i >transaction.offset; i--) {
-    		   Integer item = transaction.getItems()[i];
-    		   if(item > e && frequentItems.contains(item)) {
-	    		   // we add the transaction to the bucket of the itemI
-	    		   buckets[item].add(transaction);
-    		   }
-        	}
-        }
     }
-    
-    
+
+
     /**
-     * Check if an item appears in this itemset
-     * @param item  the item
-     * @return true if it appears. Otherwise, false.
-     */
-	public boolean containsByBinarySearch(List<Integer> items, Integer item, int searchAfterPosition) {
-		if(items.size() == 0 || item > items.get(items.size() -1)) {
-			return false;
-		}
-		int low = searchAfterPosition +1;
-		int high = items.size() - 1;
+	 * Perform the initial occurence delivery with the original dataset
+	 * containing all items. It also creates the arrays of transactions
+	 * containing only the frequent items.
+	 * @param dataset the dataset
+	 */
+	private void performFirstOccurenceDelivery(Dataset dataset) {
 
-		while (high >= low) {
-			int middle = ( low + high ) >>> 1; // divide by 2
-			if (items.get(middle).equals(item)) {
-				return true;
+		// calculate the support of each item
+		int[] support = new int[dataset.getMaxItem() + 1];
+		long occurrenceCount = 0;
+		for (Transaction transaction : dataset.getTransactions()) {
+			for (Integer item : transaction.getItems()) {
+				support[item]++;
 			}
-			if (items.get(middle) < item) {
-				low = middle + 1;
+		}
+
+		// give a rank to each frequent item by increasing order of items
+		int[] itemToRank = new int[support.length];
+		int frequentItemCount = 0;
+		for(int item = 0; item < support.length; item++) {
+			if(support[item] >= minsupRelative) {
+				itemToRank[item] = frequentItemCount++;
+				occurrenceCount += support[item];
+			}else {
+				itemToRank[item] = -1;
 			}
-			if (items.get(middle) > item) {
-				high = middle - 1;
+		}
+		if(occurrenceCount > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("The database is too large: " + occurrenceCount + " occurrences of frequent items");
+		}
+		rankToItem = new int[frequentItemCount];
+		itemOccurrenceStart = new int[frequentItemCount + 1];
+		for(int item = 0; item < support.length; item++) {
+			if(itemToRank[item] >= 0) {
+				rankToItem[itemToRank[item]] = item;
+				itemOccurrenceStart[itemToRank[item] + 1] = support[item];
 			}
 		}
-		return false;
-	}
-	
-	public boolean containsByBinarySearch(List<Integer> items, Integer item) {
-		if(items.size() == 0 || item > items.get(items.size() -1)) {
-			return false;
+		for(int rank = 0; rank < frequentItemCount; rank++) {
+			itemOccurrenceStart[rank + 1] += itemOccurrenceStart[rank];
 		}
-		int low = 0;
-		int high = items.size() - 1;
 
-		while (high >= low) {
-			int middle = ( low + high ) >>> 1; // divide by 2
-			if (items.get(middle).equals(item)) {
-				return true;
-			}
-			if (items.get(middle) < item) {
-				low = middle + 1;
+		// copy the frequent items of each transaction and put each transaction in
+		// the bucket of its items. A transaction without frequent items is removed.
+		transactionItems = new int[(int) occurrenceCount];
+		transactionStart = new int[dataset.getTransactions().size() + 1];
+		itemTransactions = new int[(int) occurrenceCount];
+		itemPositions = new int[(int) occurrenceCount];
+		int[] bucketSize = new int[frequentItemCount];
+		int transactionCount = 0;
+		int position = 0;
+		for (Transaction transaction : dataset.getTransactions()) {
+			int first = position;
+			for (Integer item : transaction.getItems()) {
+				int rank = itemToRank[item];
+				if(rank >= 0) {
+					transactionItems[position] = rank;
+					int occurrence = itemOccurrenceStart[rank] + bucketSize[rank]++;
+					itemTransactions[occurrence] = transactionCount;
+					itemPositions[occurrence] = position;
+					position++;
+				}
 			}
-			if (items.get(middle) > item) {
-				high = middle - 1;
+			if(position > first) {
+				transactionStart[transactionCount++] = first;
 			}
 		}
-		return false;
-	}
-	
-    /**
-     * Calculate the transactions of the union of an itemset "P" with an item "e".
-     * @param transactionsOfP the transactions containing P
-     * @param e  the item "e"
-     * @return the transactions containing P U "e"
-     */
-    public List<Transaction> intersectTransactions(List<Transaction> transactionsOfP, Integer e) {
-        List<Transaction> transactionsPe = new ArrayList<Transaction>();
-
-        // transactions of P U e
-        for(Transaction transaction : transactionsOfP) {
-        	// we remember the position where e appears.
-        	// we will call this position an "offset"
-        	int posE = transaction.containsByBinarySearch(e);
-            if (posE != -1) { // T(P U e)
-                transactionsPe.add(new Transaction(transaction, posE));
-            }
-        }
-        return transactionsPe;
-    }
+		transactionStart[transactionCount] = position;
 
+		itemCounts = new int[frequentItemCount];
+		countedItems = new int[frequentItemCount];
+		frames = new Frame[frequentItemCount + 1];
+	}
 
     /**
      * Check if a given itemset PUe is a PPC extension according to
-     * the set of transactions containing PUe.
-     * @param p the itemset p
+     * the set of transactions containing PUe: there is no item i < e
+     * not in P that appears in all transactions of PUe.
+     * @param p the itemset p or null for the empty set
+     * @param pLength the number of items in p
      * @param e the item e
      * @param transactionsPe  the transactions containing P U e
-     * @param previouslyAddedItem 
+     * @param positionsPe the position of e in each transaction containing P U e
+     * @param start the first occurrence of P U e in the two previous arrays
+     * @param end the last occurrence of P U e plus 1 in the two previous arrays
      * @return true if it is a PPC extension
      */
-    private boolean isPPCExtension(List<Integer> p, List<Transaction> transactionsPe, Integer e) {
-
-    	// We do a loop on each item i of the first transaction 
-    	Transaction firstTrans = transactionsPe.get(0);
-    	Integer[] firstTransaction = firstTrans.getItems();
-        for (int i = 0; i < firstTrans.offset; i++) {
-        	Integer item = firstTransaction[i];
-            // if p does not contain item i < e and item i is present in all transactions, 
-        	// then it PUe is not a ppc
-            if(item < e && (p == null || !containsByBinarySearch(p,item))
-                    && isItemInAllTransactionsExceptFirst(transactionsPe, item)) {
-                return false;
-            }
-        }
-        return true;
-    }
-    
-    
-    /**
-     * Check if an item appears in all transactions after the first one in a list of transactions
-     * @param transactions a list of transactions
-     * @param item an item
-     * @return true if the item appears in all transactions after the first one
-     */
-    private boolean isItemInAllTransactionsExceptFirst(List<Transaction> transactions, Integer item) {
+    private boolean isPPCExtension(int[] p, int pLength, int e, int[] transactionsPe,
+    		int[] positionsPe, int start, int end) {
+    	// The items i < e of the first transaction that are not in P are the items
+    	// that may appear in all transactions. They are kept in the beginning of the array
+    	// of counted items, which is not used at this point.
+    	int[] candidates = countedItems;
+    	int candidateCount = 0;
+    	int firstItem = transactionStart[transactionsPe[start]];
+    	int lastItem = positionsPe[start];
+    	int posP = 0;
+    	for(int j = firstItem; j < lastItem; j++) {
+    		int item = transactionItems[j];
+    		while(posP < pLength && p[posP] < item) {
+    			posP++;
+    		}
+    		if(posP == pLength || p[posP] != item) {
+    			candidates[candidateCount++] = item;
+    		}
+    	}
 
-    	for(int i=1; i < transactions.size(); i++) {
-            if(transactions.get(i).containsByBinarySearchOriginalTransaction(item) == false) {
-                return false;
-            }
-        }
-        return true;
+    	// Keep only the items that appear in the other transactions
+    	for(int i = start + 1; i < end && candidateCount > 0; i++) {
+    		int posTransaction = transactionStart[transactionsPe[i]];
+    		int lastTransaction = positionsPe[i];
+    		int newCandidateCount = 0;
+    		for(int k = 0; k < candidateCount && posTransaction < lastTransaction; k++) {
+    			int item = candidates[k];
+    			while(posTransaction < lastTransaction && transactionItems[posTransaction] < item) {
+    				posTransaction++;
+    			}
+    			if(posTransaction < lastTransaction && transactionItems[posTransaction] == item) {
+    				candidates[newCandidateCount++] = item;
+    			}
+    		}
+    		candidateCount = newCandidateCount;
+    	}
+    	return candidateCount == 0;
     }
 
     /**
-     * Check if an item appears in all transactions of a list of transactions
-     * @param transactions a list of transactions
-     * @param item an item
-     * @return true if the item appears in all transactions 
+     * Save a frequent closed itemset to file or memory depending on what the user chose.
+     * @param itemset the ranks of the items of the itemset
+     * @param length the number of items
+     * @param support the support of the itemset
+     * @throws IOException if error while writting to output file
      */
-    private boolean isItemInAllTransactions(List<Transaction> transactions, Integer item) {
+    private void output(int[] itemset, int length, int support) throws IOException {
+    	// convert the ranks to items (the order is the same)
+    	int[] items = new int[length];
+    	for (int i = 0; i < length; i++) {
+    		items[i] = rankToItem[itemset[i]];
+    	}
 
-        for(Transaction transaction : transactions) {
-            if(transaction.containsByBinarySearch(item) == -1) {
-                return false;
-            }
-        }
-        return true;
+    	// if the itemset is found by a task of the parallel mining
+    	if(collectedItemsets != null) {
+    		Itemset itemsetObject = new Itemset(items);
+    		itemsetObject.setAbsoluteSupport(support);
+    		collectedItemsets.add(itemsetObject);
+    	}else {
+    		output(items, support);
+    	}
     }
 
     /**
      * Save a frequent closed itemset to file or memory depending on what the user chose.
      * @param itemset the itemset
+     * @param support the support of the itemset
      * @throws IOException if error while writting to output file
      */
-    private void output(List<Integer> itemset, int support) throws IOException {
+    private void output(int[] itemset, int support) throws IOException {
     	// if not the empty set
-        if(!itemset.isEmpty()) {
+        if(itemset.length != 0) {
             frequentCount++;
-            
+
         	// if save to memory
         	if(writer == null) {
-        		// The following line is not too optimized since
-        		// we convert an itemset as List<Integer> to int[]
-        		// but this cost is still quite small, so we leave it like 
-        		closedFrequentItemsets.addItemset(new Itemset(itemset, support), itemset.size());
+        		Itemset itemsetObject = new Itemset(itemset);
+        		itemsetObject.setAbsoluteSupport(support);
+        		closedFrequentItemsets.addItemset(itemsetObject, itemset.length);
         	}else {
         	// if save to file
     		// create a stringuffer
     		StringBuilder buffer = new StringBuilder();
     		// append items from the itemset to the StringBuilder
-    		for (int i = 0; i < itemset.size(); i++) {
-    			buffer.append(itemset.get(i));
-    			if (i != itemset.size() - 1) {
+    		for (int i = 0; i < itemset.length; i++) {
+    			buffer.append(itemset[i]);
+    			if (i != itemset.length - 1) {
     				buffer.append(' ');
     			}
     		}
@@ -442,18 +567,78 @@ public class AlgoLCM {
         }
     }
 
+	/**
+	 * Set the number of threads used to mine the branches of the search
+	 * (one for each frequent item). The result is the same as with a single thread (the default).
+	 * @param threadCount the number of threads (at least 1)
+	 */
+	public void setThreadCount(int threadCount) {
+		if(threadCount < 1) {
+			throw new IllegalArgumentException("The number of threads must be at least 1");
+		}
+		this.threadCount = threadCount;
+	}
 
- 
- 
     /**
      * Print statistics about the latest execution of the algorithm.
      */
 	public void printStats() {
 		System.out.println("========== LCM - STATS ============");
-		System.out.println(" Freq. closed itemsets count: " + frequentCount);			
+		System.out.println(" Freq. closed itemsets count: " + frequentCount);
 		System.out.println(" Total time ~: " + (endTimestamp - startTimestamp)
 				+ " ms");
 		System.out.println(" Max memory:" + MemoryLogger.getInstance().getMaxMemory());
 		System.out.println("=====================================");
 	}
+
+	/**
+	 * A level of the recursion. It contains the closed itemset of the level and
+	 * the buckets of its extensions. It is reused by all the itemsets of the level.
+	 */
+	private static class Frame {
+		// the closed itemset (ranks)
+		int[] itemset = new int[16];
+		// the extensions of the closed itemset (ranks)
+		int[] candidates = new int[16];
+		// the first occurrence of each extension in the buckets, plus the end of the last bucket
+		int[] candidateStart = new int[17];
+		// the buckets: the transactions of each occurrence
+		int[] transactions = new int[64];
+		// and the position of the extension in the transaction of each occurrence
+		int[] positions = new int[64];
+
+		/**
+		 * Make sure that the closed itemset can contain a number of items.
+		 * @param capacity the number of items
+		 */
+		void ensureItemsetCapacity(int capacity) {
+			if(itemset.length < capacity) {
+				itemset = new int[Math.max(capacity, itemset.length * 2)];
+			}
+		}
+
+		/**
+		 * Make sure that the frame can contain a number of extensions (the content is kept).
+		 * @param capacity the number of extensions
+		 */
+		void ensureCandidateCapacity(int capacity) {
+			if(candidates.length < capacity) {
+				int newCapacity = Math.max(capacity, candidates.length * 2);
+				candidates = Arrays.copyOf(candidates, newCapacity);
+				candidateStart = Arrays.copyOf(candidateStart, newCapacity + 1);
+			}
+		}
+
+		/**
+		 * Make sure that the buckets can contain a number of occurrences.
+		 * @param capacity the number of occurrences
+		 */
+		void ensureBucketCapacity(int capacity) {
+			if(transactions.length < capacity) {
+				int newCapacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(capacity, transactions.length * 2L));
+				transactions = new int[newCapacity];
+				positions = new int[newCapacity];
+			}
+		}
+	}
 }
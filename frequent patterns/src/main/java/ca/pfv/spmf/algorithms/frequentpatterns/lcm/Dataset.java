@@ -11,6 +11,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.regex.Pattern;
+
+import ca.pfv.spmf.input.transaction_database_binary.BinaryTransactionDatabase;
 /* This file is copyright (c) 2012-2014 Alan Souza
 * 
 * This file is part of the SPMF DATA MINING SOFTWARE
@@ -46,19 +48,71 @@ public class Dataset {
 
         transactions = new ArrayList<Transaction>();
         
-        BufferedReader br = new BufferedReader(new FileReader(datasetPath));
-        String items;
-        while((items = br.readLine()) != null) { // iterate over the lines to build the transaction
-			// if the line is  a comment, is  empty or is  metadata
-			if (items.isEmpty() == true || items.charAt(0) == '#' 
-					|| items.charAt(0) == '%' || items.charAt(0) == '@') {
-				continue;
-			}
-        	
-            getTransactions().add(createTransaction(items));
+        // a binary transaction database is read through the memory-mapped reader
+        if(BinaryTransactionDatabase.isBinaryFile(datasetPath)) {
+        	BinaryTransactionDatabase database = BinaryTransactionDatabase.open(datasetPath);
+        	try {
+        		loadTransactions(database);
+        	}finally {
+        		database.close();
+        	}
+        }else {
+	        BufferedReader br = new BufferedReader(new FileReader(datasetPath));
+	        String items;
+	        while((items = br.readLine()) != null) { // iterate over the lines to build the transaction
+				// if the line is  a comment, is  empty or is  metadata
+				if (items.isEmpty() == true || items.charAt(0) == '#' 
+						|| items.charAt(0) == '%' || items.charAt(0) == '@') {
+					continue;
+				}
+	        	
+	            getTransactions().add(createTransaction(items));
+	        }
+	        br.close();
         }
-        br.close();
         
+        sortTransactions();
+    }
+
+    /**
+     * Create a dataset from a binary transaction database
+     * @param database the binary transaction database
+     */
+    public Dataset(BinaryTransactionDatabase database) {
+        transactions = new ArrayList<Transaction>(database.size());
+        loadTransactions(database);
+        sortTransactions();
+    }
+
+    /**
+     * Read the transactions of a binary transaction database
+     * @param database the database
+     */
+    private void loadTransactions(BinaryTransactionDatabase database) {
+        int[] buffer = new int[database.getMaxTransactionLength()];
+        for(int tid = 0; tid < database.size(); tid++) {
+        	int length = database.getTransaction(tid, buffer);
+        	// empty transactions are skipped like empty lines in the text format
+        	if(length == 0) {
+        		continue;
+        	}
+        	Integer[] itemsSorted = new Integer[length];
+        	for (int i = 0; i < length; i++) {
+        		itemsSorted[i] = buffer[i];
+        		uniqueItems.add(itemsSorted[i]);
+        	}
+        	// update max item by checking the last item of the transaction
+        	if(buffer[length - 1] > maxItem) {
+        		maxItem = buffer[length - 1];
+        	}
+        	transactions.add(new Transaction(itemsSorted));
+        }
+    }
+
+    /**
+     * Sort the transactions and create the sorted list of items in the database
+     */
+    private void sortTransactions() {
         /// sort transactions by increasing last item (optimization)
         Collections.sort(transactions, new Comparator<Transaction>() {
 			public int compare(Transaction arg0, Transaction arg1) {
@@ -37,7 +37,8 @@ import ca.pfv.spmf.tools.MemoryLogger;
  * <br/><br/>
  * The main method of this algorithm is "runAlgorithm". It output the result to a file.
  *
- * @see Occurence
+ * @see OccurrenceIndex
+ * @see OccurrenceList
  * @see Sequence
  * @see SequenceDatabase
  * @author Philippe Fournier-Viger
@@ -64,9 +65,9 @@ public class AlgoERMiner {
 	SequenceDatabase database;
 	
 	//*** internal variables ***/
-	/** This map contains for each item (key) a map of occurences (value).
-	// The map of occurences associates to sequence ID (key), an occurence of the item (value). */
-	Map<Integer,  Map<Integer, Occurence>> mapItemCount;  // item, <tid, occurence> 
+	/** This index contains for each item the list of its occurences:
+	// the sequence IDs and the first and last itemsets of the item in each sequence. */
+	OccurrenceIndex occurrenceIndex;
 
 	/** object to write the output file */
 	BufferedWriter writer = null; 
@@ -185,9 +186,7 @@ public class AlgoERMiner {
 		// entry  =  key: item I    value: a map where key: item J and value: the support of {i, j} 
 		for(Entry<Integer, Map<Integer, Integer>> entry :  matrix.getMatrix().entrySet()) {
 			Integer intI = entry.getKey();
-			Map<Integer, Occurence> occurencesI = mapItemCount.get(intI);
-			// get the tidset of item I
-			Set<Integer> tidsI = occurencesI.keySet();
+			OccurrenceList occurencesI = occurrenceIndex.get(intI);
 			
 			// for each item J that co-occurs with I
 			for(Entry<Integer, Integer> entryJ : entry.getValue().entrySet()) {
@@ -196,63 +195,51 @@ public class AlgoERMiner {
 					continue;
 				}
 				Integer intJ = entryJ.getKey();
-				Map<Integer, Occurence> occurencesJ = mapItemCount.get(intJ);
+				OccurrenceList occurencesJ = occurrenceIndex.get(intJ);
 
-				// (1) We will now calculate the tids of I -->J  and J-->I.
-				
-				// initialize the tids sets
-				Set<Integer> tidsIJ = new HashSet<Integer>();  // tidset of  I -->J  
-				Set<Integer> tidsJI = new HashSet<Integer>(); // tidset of J-->I
-				
-				// for each occurence of I
-				if(occurencesI.size() < occurencesJ.size()) {
-					calculateTidsetsIJandJI(occurencesI, occurencesJ, tidsIJ, tidsJI);
-				}else {
-					calculateTidsetsIJandJI(occurencesJ, occurencesI, tidsJI, tidsIJ);
-				}
+				// (1) We will now calculate the occurences of I -->J  and J-->I.
+				OccurrenceList occurencesIJ = new OccurrenceList();  // occurences of  I -->J  
+				OccurrenceList occurencesJI = new OccurrenceList(); // occurences of J-->I
+				calculateOccurencesIJandJI(occurencesI, occurencesJ, occurencesIJ, occurencesJI);
 				
 				// (2) check if the two itemsets have enough common tids
 				// if not, we don't need to generate a rule for them.
 				
 				// create rule IJ
-				if(tidsIJ.size() >= minsuppRelative){
+				if(occurencesIJ.size() >= minsuppRelative){
 					// calculate the confidence of I ==> J
-					double confIJ = ((double)tidsIJ.size()) / occurencesI.size();
+					double confIJ = ((double)occurencesIJ.size()) / occurencesI.size();
 
 					// create itemset of the rule I ==> J
 					int[] itemsetI = new int[]{intI};
 					int[] itemsetJ = new int[]{intJ};
 
-					Set<Integer> tidsJ = occurencesJ.keySet();
-
 					// if the confidence is high enough, save the rule
 					if(confIJ >= minConfidence){
-						saveRule(tidsIJ, confIJ, itemsetI, itemsetJ);
+						saveRule(occurencesIJ, confIJ, itemsetI, itemsetJ);
 					}
 					if(maxAntecedentSize >1 || maxConsequentSize > 1){
 						// register the rule in the appropriate equivalence classes
-						registerRule11(intI, intJ, tidsI, tidsJ, tidsIJ, occurencesI, occurencesJ, mapEclassLeft, mapEclassRight);
+						registerRule11(intI, intJ, occurencesI, occurencesIJ, mapEclassLeft, mapEclassRight);
 					}
 				}
 				// check if J ==> I has enough common tids
 				// If yes, we create the rule J ==> I
-				if(tidsJI.size() >= minsuppRelative){
+				if(occurencesJI.size() >= minsuppRelative){
 					// create itemset of the rule J ==> I
 					int[] itemsetI = new int[]{intI};
 					int[] itemsetJ = new int[]{intJ};
 					
 					// calculate the confidence
-					double confJI = ((double)tidsJI.size()) / occurencesJ.size();
-
-					Set<Integer> tidsJ = occurencesJ.keySet();
+					double confJI = ((double)occurencesJI.size()) / occurencesJ.size();
 
 					// if the confidence is high enough, save the rule
 					if(confJI >= minConfidence){
-						saveRule(tidsJI, confJI, itemsetJ, itemsetI);
+						saveRule(occurencesJI, confJI, itemsetJ, itemsetI);
 					}
 					// register the rule in the appropriate equivalence classes
 					if(maxAntecedentSize > 1 || maxConsequentSize > 1){
-						registerRule11(intJ, intI, tidsJ,  tidsI, tidsJI, occurencesJ, occurencesI, mapEclassLeft, mapEclassRight);
+						registerRule11(intJ, intI, occurencesJ, occurencesJI, mapEclassLeft, mapEclassRight);
 					}
 				}
 			}
@@ -317,56 +304,70 @@ public class AlgoERMiner {
 		database = null;
 	}
 
-	private void registerRule11(Integer intI, Integer intJ, Set<Integer> tidsI,
-			Set<Integer> tidsJ, Set<Integer> tidsIJ,
-			Map<Integer, Occurence> occurencesI,
-			Map<Integer, Occurence> occurencesJ,
+	private void registerRule11(Integer intI, Integer intJ, OccurrenceList occurencesI,
+			OccurrenceList occurencesIJ,
 			Map<Integer, LeftEquivalenceClass> mapEclassLeft,
 			Map<Integer, RightEquivalenceClass> mapEclassRight) {
 		
 		// add the rule to the left equivalence class
 		LeftEquivalenceClass leftClass = mapEclassLeft.get(intJ);
 		if(leftClass == null) {
-			leftClass = new LeftEquivalenceClass(new int[] {intJ}, tidsJ, occurencesJ);
+			leftClass = new LeftEquivalenceClass(new int[] {intJ});
 			mapEclassLeft.put(intJ, leftClass);
 		}
-		LeftRule ruleL = new LeftRule(new int[] {intI}, tidsI, tidsIJ);
+		LeftRule ruleL = new LeftRule(new int[] {intI}, occurencesI, occurencesIJ);
 		leftClass.rules.add(ruleL);
 		 
 		// add the rule to the right equivalence class
 		RightEquivalenceClass rightclass = mapEclassRight.get(intI);
 		if(rightclass == null) {
-			rightclass = new RightEquivalenceClass(new int[] {intI}, tidsI, occurencesI);
+			rightclass = new RightEquivalenceClass(new int[] {intI}, occurencesI);
 			mapEclassRight.put(intI, rightclass);
 		}
-		RightRule ruleR = new RightRule(new int[] {intJ}, tidsJ, tidsIJ, occurencesJ);
+		RightRule ruleR = new RightRule(new int[] {intJ}, occurencesIJ);
 		rightclass.rules.add(ruleR);
 	}
 
 
-	private void calculateTidsetsIJandJI(Map<Integer, Occurence> occurencesI,
-			Map<Integer, Occurence> occurencesJ, Set<Integer> tidsIJ, Set<Integer> tidsJI) {
-		for(Entry<Integer, Occurence> entryOccI : occurencesI.entrySet()){
-			Integer tid = entryOccI.getKey();
-			// get the occurence of J in the same sequence
-			Occurence occJ = occurencesJ.get(tid);
-			// if J appears in that sequence
-			if(occJ !=  null){
-				Occurence occI = entryOccI.getValue();
+	/**
+	 * Calculate the occurences of the rules I ==> J and J ==> I, where I and J are two items.
+	 * For each sequence containing both items, the sequence ID is found in the occurences of J
+	 * by a galloping search (the sequence IDs are sorted).
+	 * @param occurencesI the occurences of I
+	 * @param occurencesJ the occurences of J
+	 * @param occurencesIJ the list where the occurences of I ==> J are stored
+	 *        (the first itemset of I and the last itemset of J in each sequence)
+	 * @param occurencesJI the list where the occurences of J ==> I are stored
+	 */
+	private void calculateOccurencesIJandJI(OccurrenceList occurencesI, OccurrenceList occurencesJ,
+			OccurrenceList occurencesIJ, OccurrenceList occurencesJI) {
+		int i = 0;
+		int j = 0;
+		// for each sequence containing I and J
+		while(i < occurencesI.size() && j < occurencesJ.size()){
+			int tidI = occurencesI.getSid(i);
+			int tidJ = occurencesJ.getSid(j);
+			if(tidI < tidJ){
+				i = occurencesI.advance(i, tidJ);
+			}else if(tidJ < tidI){
+				j = occurencesJ.advance(j, tidI);
+			}else{
 				// if J appeared before I in that sequence,
-				// then we put this tid in the tidset of  J-->I
-				if(occJ.firstItemset < occI.lastItemset){
-					tidsJI.add(tid);
+				// then we put this tid in the occurences of  J-->I
+				if(occurencesJ.getFirstItemset(j) < occurencesI.getLastItemset(i)){
+					occurencesJI.add(tidI, occurencesJ.getFirstItemset(j), occurencesI.getLastItemset(i));
 				}
 				// if I appeared before J in that sequence,
-				// then we put this tid in the tidset of  I-->J
-				if(occI.firstItemset < occJ.lastItemset){
-					tidsIJ.add(tid);
+				// then we put this tid in the occurences of  I-->J
+				if(occurencesI.getFirstItemset(i) < occurencesJ.getLastItemset(j)){
+					occurencesIJ.add(tidI, occurencesI.getFirstItemset(i), occurencesJ.getLastItemset(j));
 				}
+				i++;
+				j++;
 			}
 		}
 	}
-	
+
 	public int[] concatenate(int [] itemset, int item) {
 		int[] newItemset = new int[itemset.length+1];
 		System.arraycopy(itemset, 0, newItemset, 0, itemset.length);
@@ -381,8 +382,7 @@ public class AlgoERMiner {
 			int d = rule1.itemsetI[rule1.itemsetI.length -1];
 			
 			LeftEquivalenceClass rulesForRecursion 
-				= new LeftEquivalenceClass(eclass.itemsetJ, eclass.tidsJ,
-						eclass.occurencesJ);
+				= new LeftEquivalenceClass(eclass.itemsetJ);
 
 			// for each rule J != I
 			for(int m=w+1; m < eclass.rules.size(); m++)	{
@@ -397,100 +397,60 @@ public class AlgoERMiner {
 				}
 				totalCandidateCount++;
 
+				OccurrenceList occurencesC = occurrenceIndex.get(c);
 				
-				// CALCULATE TIDS I U {C}
-				Set<Integer> tidsIC = new HashSet<Integer>(); 
-				
-				Map<Integer, Occurence> mapC = mapItemCount.get(c);
-				
-				// depending of the relative size of tids of I and tids of {c} we have two ways to calculate it
-				
-				if(rule1.tidsI.size() < mapC.size()) {
-					// EARLY SKIP OPTIMIZATION: <<<<<********
-					int remains = rule1.tidsI.size();
-		 			// for each sequence containing I
-					for(Integer tid: rule1.tidsI){
-						// Get the first and last occurences of C in that sequence
-						// if there is an occurence
-			    		if(mapC.get(tid) != null){
-			    			// add the tid of the sequence to the tidset of JU{c}
-			    			tidsIC.add(tid);
-			    		}
-			    		remains--;
-			    		// early skip
-			    		if(tidsIC.size() + remains < minsuppRelative) {
-			    			break;
-			    		}
-			    	}
-				}else {
-					int remains = mapC.size();
-					// for each sequence containing I
-					for(Integer tid: mapC.keySet()){
-						// Get the first and last occurences of C in that sequence
-						// if there is an occurence
-			    		if(rule1.tidsI.contains(tid)){
-			    			// add the tid of the sequence to the tidset of JU{c}
-			    			tidsIC.add(tid);
-			    		}
-			    		remains--;
-			    		if(tidsIC.size() + remains < minsuppRelative) {
-			    			break;
-			    		}
-			    	}
-				}
+				// CALCULATE THE OCCURENCES OF I U {C}
+				// (the intersection stops early if I U {c} cannot be frequent)
+				OccurrenceList occurencesIC = rule1.occurencesI.intersect(occurencesC, minsuppRelative);
 				
-				// CALCULATE TIDS IC ==> J
-				Set<Integer>  tidsIC_J = new HashSet<Integer>();
-		    	
-				// depending of the relative size of tids of IUJ and tids of {c} we have two ways to calculate it
-				if(rule1.tidsIJ.size() < mapC.size()) {
-					// for each sequence containing I
-					for(Integer tid: rule1.tidsIJ){
-						// Get the first and last occurences of C in that sequence
-						Occurence occurenceC = mapC.get(tid);
-						// if there is an occurence
-			    		if(occurenceC != null){
-							Occurence occurenceJ = eclass.occurencesJ.get(tid);
-			    			if(occurenceC.firstItemset < occurenceJ.lastItemset){
-			    				// add the tid of the sequence to the tidset of JU{c}
-			    				tidsIC_J.add(tid);
-				    		}
-			    		}
-			    	}
-				}else {
-					// for each sequence containing I
-					for(Entry<Integer, Occurence> entryC: mapC.entrySet()){
-						int tid = entryC.getKey();
-						if(rule1.tidsIJ.contains(tid)) {
-							// Get the first and last occurences of C in that sequence
-							Occurence occurenceC = entryC.getValue();
-							// if there is an occurence
-							Occurence occurenceJ = eclass.occurencesJ.get(tid);
-			    			if(occurenceC.firstItemset < occurenceJ.lastItemset){
-				    			// add the tid of the sequence to the tidset of JU{c}
-				    			tidsIC_J.add(tid);
-			    			}
+				// CALCULATE THE OCCURENCES OF IC ==> J
+				// (only if I U {c} is frequent, otherwise IC ==> J is not frequent)
+				OccurrenceList occurencesIC_J = new OccurrenceList();
+				if(occurencesIC.size() >= minsuppRelative) {
+					OccurrenceList occurencesIJ = rule1.occurencesIJ;
+					int i = 0;
+					int j = 0;
+					// for each sequence containing I ==> J and c
+					while(i < occurencesIJ.size() && j < occurencesC.size()){
+						// EARLY SKIP OPTIMIZATION
+						if(occurencesIC_J.size() + Math.min(occurencesIJ.size() - i, occurencesC.size() - j) < minsuppRelative) {
+							break;
+						}
+						int tidIJ = occurencesIJ.getSid(i);
+						int tidC = occurencesC.getSid(j);
+						if(tidIJ < tidC){
+							i = occurencesIJ.advance(i, tidC);
+						}else if(tidC < tidIJ){
+							j = occurencesC.advance(j, tidIJ);
+						}else{
+							// if c appears before the last occurence of J
+							if(occurencesC.getFirstItemset(j) < occurencesIJ.getLastItemset(i)){
+								// add the tid of the sequence to the occurences of IU{c} ==> J
+								occurencesIC_J.add(tidIJ, Math.max(occurencesIJ.getFirstItemset(i), occurencesC.getFirstItemset(j)),
+										occurencesIJ.getLastItemset(i));
+							}
+							i++;
+							j++;
 						}
-			    	}
+					}
 				}
-	 			
 				
-				if(tidsIC_J.size() >= minsuppRelative) {
+				if(occurencesIC_J.size() >= minsuppRelative) {
 					// Create rule and calculate its confidence of IU{c} ==> J 
 			    	// defined as:  sup(IU{c} -->J) /  sup(IU{c})			
-					double confIC_J = ((double) tidsIC_J.size()) / tidsIC.size();
+					double confIC_J = ((double) occurencesIC_J.size()) / occurencesIC.size();
 		
 					// try to combine the rules
 					int itemsetIC[] = new int[rule1.itemsetI.length+1];
 					System.arraycopy(rule1.itemsetI, 0, itemsetIC, 0, rule1.itemsetI.length);
 					itemsetIC[rule1.itemsetI.length] = c;
 
-					LeftRule newRule = new LeftRule(itemsetIC, tidsIC, tidsIC_J);
+					LeftRule newRule = new LeftRule(itemsetIC, occurencesIC, occurencesIC_J);
 					
 					// if the confidence is high enough, then it is a valid rule
 					if(confIC_J >= minConfidence){
 						// save the rule
-						saveRule(tidsIC_J, confIC_J, itemsetIC,  eclass.itemsetJ);
+						saveRule(occurencesIC_J, confIC_J, itemsetIC,  eclass.itemsetJ);
 					}
 		
 					if(newRule.itemsetI.length < maxAntecedentSize){
@@ -512,7 +472,7 @@ public class AlgoERMiner {
 		for(int w=0; w < eclass.rules.size()-1; w++){ // IMPORTANT : SIZE -1 BECAUSE THE LAST ONE HAS NOTHING LEFT FOR COMPARISON
 			RightRule rule1 = eclass.rules.get(w);
 			int d = rule1.itemsetJ[rule1.itemsetJ.length -1];
-			RightEquivalenceClass rulesForRecursion= new RightEquivalenceClass(eclass.itemsetI, eclass.tidsI, eclass.occurencesI);
+			RightEquivalenceClass rulesForRecursion= new RightEquivalenceClass(eclass.itemsetI, eclass.occurencesI);
 
 			// for each rule J != I
 			for(int m=w+1; m < eclass.rules.size(); m++)	{
@@ -527,105 +487,43 @@ public class AlgoERMiner {
 				}
 				totalCandidateCount++;
 				
-				// CALCULATE TIDS OF  I ==> JC
-				Set<Integer> tidsI_JC = new HashSet<Integer>();
-				
-	 			// for each sequence containing I
-				Map<Integer, Occurence> mapC = mapItemCount.get(c);
-
-				// depending of the relative size of tids of IUJ and tids of {c} we have two ways to calculate it
-				if(rule1.tidsIJ.size() < mapC.size()) {
-					// EARLY SKIP OPTIMIZATION:
-					int remains = rule1.tidsIJ.size();
-					for(Integer tid: rule1.tidsIJ){
-						// Get the first and last occurences of C in that sequence
-						Occurence occurenceC = mapC.get(tid);
-						// if there is an occurence
-			    		if(occurenceC != null) {
-							Occurence occurenceI = eclass.occurencesI.get(tid);
-			    			if(occurenceC.lastItemset > occurenceI.firstItemset){
-			    				// add the tid of the sequence to the tidset of JU{c}
-			    				tidsI_JC.add(tid);
-			    			}
-			    		}
-			    		remains--;
-			    		if(tidsI_JC.size() + remains < minsuppRelative) {
-			    			break;
-			    		}
-			    	}
-				}else {
-					// EARLY SKIP OPTIMIZATION:
-					int remains = mapC.size();
-					for(Entry<Integer, Occurence> entryC: mapC.entrySet()){
-						int tid = entryC.getKey();
-						// if there is an occurence
-			    		if(rule1.tidsIJ.contains(tid)) {
-							Occurence occurenceC = entryC.getValue();
-							Occurence occurenceI = eclass.occurencesI.get(tid);
-			    			if(occurenceC.lastItemset > occurenceI.firstItemset){
-			    				// add the tid of the sequence to the tidset of JU{c}
-			    				tidsI_JC.add(tid);
-			    			}
-			    		}
-			    	}
-					remains--;
-		    		if(tidsI_JC.size() + remains < minsuppRelative) {
-		    			break;
-		    		}
+				// CALCULATE THE OCCURENCES OF  I ==> JC
+				OccurrenceList occurencesI_JC = new OccurrenceList();
+				OccurrenceList occurencesC = occurrenceIndex.get(c);
+				OccurrenceList occurencesIJ = rule1.occurencesIJ;
+				int i = 0;
+				int j = 0;
+				// for each sequence containing I ==> J and c
+				while(i < occurencesIJ.size() && j < occurencesC.size()){
+					// EARLY SKIP OPTIMIZATION
+					if(occurencesI_JC.size() + Math.min(occurencesIJ.size() - i, occurencesC.size() - j) < minsuppRelative) {
+						break;
+					}
+					int tidIJ = occurencesIJ.getSid(i);
+					int tidC = occurencesC.getSid(j);
+					if(tidIJ < tidC){
+						i = occurencesIJ.advance(i, tidC);
+					}else if(tidC < tidIJ){
+						j = occurencesC.advance(j, tidIJ);
+					}else{
+						// if c appears after the first occurence of I
+						if(occurencesC.getLastItemset(j) > occurencesIJ.getFirstItemset(i)){
+							// add the tid of the sequence to the occurences of I ==> JU{c}.
+							// The last occurence of JU{c} depends on if the last occurence of J
+							// is before the last occurence of c or not.
+							occurencesI_JC.add(tidIJ, occurencesIJ.getFirstItemset(i),
+									Math.min(occurencesIJ.getLastItemset(i), occurencesC.getLastItemset(j)));
+						}
+						i++;
+						j++;
+					}
 				}
 				
-				
 				// if the support of I ==> JU{c} is enough 
-	    		if(tidsI_JC.size() >= minsuppRelative){  
-	    			
-	    			// CALCULATE THE OCCURENCES OF JU{c}
-	    			Set<Integer> tidsJC = new HashSet<Integer>(rule1.tidsJ.size());
-	    			Map<Integer, Occurence> occurencesJC = new HashMap<Integer, Occurence>();
-	    			
-	    			// for each sequence containing J
-	    			if(rule1.tidsJ.size() < mapC.size()) {
-		    			for(Integer tid: rule1.tidsJ){
-		    				// Get the first and last occurences of C in that sequence
-		    				Occurence occurrenceC = mapC.get(tid);
-		    				// if there is an occurence
-		    	    		if(occurrenceC != null){
-		    	    			// add the tid of the sequence to the tidset of JU{c}
-		    	    			tidsJC.add(tid);
-		    	    			// calculate last occurence of JU{c} depending on if
-		    	    			// the last occurence of J is before the last occurence
-		    	    			// of c or not.
-		    	    			Occurence occurenceJ = rule1.occurencesJ.get(tid);
-		    	    			if(occurrenceC.lastItemset < occurenceJ.lastItemset){
-		    	    				occurencesJC.put(tid, occurrenceC);
-		    	    			}else{
-		    	    				occurencesJC.put(tid, occurenceJ);
-		    	    			}
-		    	    		}
-		    	    	}
-	    			}else {
-	    				for(Entry<Integer, Occurence> entryC: mapC.entrySet()){
-							int tid = entryC.getKey();
-							// if there is an occurence
-				    		if(rule1.tidsJ.contains(tid)) {
-								// add the tid of the sequence to the tidset of JU{c}
-		    	    			tidsJC.add(tid);
-		    	    			// calculate last occurence of JU{c} depending on if
-		    	    			// the last occurence of J is before the last occurence
-		    	    			// of c or not.
-								Occurence occurrenceC = entryC.getValue();
-		    	    			Occurence occurenceJ = rule1.occurencesJ.get(tid);
-		    	    			if(occurrenceC.lastItemset < occurenceJ.lastItemset){
-		    	    				occurencesJC.put(tid, occurrenceC);
-		    	    			}else{
-		    	    				occurencesJC.put(tid, occurenceJ);
-		    	    			}
-				    		}
-	    				}
-	    			}
-	    			
+	    		if(occurencesI_JC.size() >= minsuppRelative){  
 	    			// Create rule I ==> J U{c} and calculate its confidence   
 	    	    	// defined as:  sup(I -->J U{c}) /  sup(I)	
-	    			double confI_JC = ((double)tidsI_JC.size()) / eclass.tidsI.size();
+	    			double confI_JC = ((double)occurencesI_JC.size()) / eclass.occurencesI.size();
 					int[] itemsetJC = new int[rule1.itemsetJ.length+1];
 					System.arraycopy(rule1.itemsetJ, 0, itemsetJC, 0, rule1.itemsetJ.length);
 					itemsetJC[rule1.itemsetJ.length]= c;
@@ -633,20 +531,20 @@ public class AlgoERMiner {
 					// if the confidence is enough
 					if(confI_JC >= minConfidence){
 						// then it is a valid rule so save it
-						saveRule(tidsI_JC, confI_JC, eclass.itemsetI, itemsetJC);
+						saveRule(occurencesI_JC, confI_JC, eclass.itemsetI, itemsetJC);
 					}
 					// recursively try to expand the left and right side
 					// of the rule
 					RightRule rightRule =
-							new RightRule(itemsetJC, tidsJC, tidsI_JC, occurencesJC);
+							new RightRule(itemsetJC, occurencesI_JC);
 					
 					if(rightRule.itemsetJ.length < maxConsequentSize){
 						rulesForRecursion.rules.add(rightRule);
 					}
 					
 					if(eclass.itemsetI.length < maxAntecedentSize){
-						LeftRule leftRule = new LeftRule(eclass.itemsetI, eclass.tidsI, tidsI_JC);
-						store.register(leftRule, itemsetJC, tidsJC, eclass.occurencesI, occurencesJC); // register for left expansion
+						LeftRule leftRule = new LeftRule(eclass.itemsetI, eclass.occurencesI, occurencesI_JC);
+						store.register(leftRule, itemsetJC); // register for left expansion
 					}
 				}
 			}
@@ -662,48 +560,15 @@ public class AlgoERMiner {
 
 	/**
 	 * This method calculate the frequency of each item in one database pass.
-	 * Then it remove all items that are not frequent.
 	 * @param database : a sequence database 
-	 * @return A map such that key = item
-	 *                         value = a map  where a key = tid  and a value = Occurence
-	 * This map allows knowing the frequency of each item and their first and last occurence in each sequence.
+	 * @return the index of the occurences of each item.
+	 * This index allows knowing the frequency of each item and their first and last occurence in each sequence.
 	 */
-	private Map<Integer, Map<Integer, Occurence>> calculateFrequencyOfEachItem(SequenceDatabase database) {
-		// (1) Count the support of each item in the database in one database pass
-		mapItemCount = new HashMap<Integer, Map<Integer, Occurence>>(); // <item, Map<tid, occurence>>
-		
-		// for each sequence in the database
-		for(int k=0; k< database.size(); k++){
-			Sequence sequence = database.getSequences().get(k);
-			// for each itemset in that sequence
-			for(short j=0; j< sequence.getItemsets().size(); j++){
-				List<Integer> itemset = sequence.get(j);
-				// for each item in that itemset
-				for(Integer itemI : itemset){
-					
-					// get the map of occurences of that item
-					Map<Integer, Occurence> occurences = mapItemCount.get(itemI);
-					// if this map is null, create a new one
-					if(occurences == null){
-						occurences = new HashMap<Integer, Occurence>();
-						mapItemCount.put(itemI, occurences);
-						occurences.put(k, new Occurence(j, j));
-					}else {
-						// then update the occurence by adding j as the 
-						// last occurence in sequence k
-						Occurence occurence = occurences.get(k);
-						if(occurence == null){
-							occurences.put(k, new Occurence(j, j));
-						}else{
-							occurence.lastItemset = j;
-						}
-					}
-				}
-			}
-		}
-		
-		// return the map of occurences of items
-		return mapItemCount;
+	private OccurrenceIndex calculateFrequencyOfEachItem(SequenceDatabase database) {
+		// Count the support of each item in the database in one database pass
+		occurrenceIndex = new OccurrenceIndex(database, false);
+		// return the index of occurences of items
+		return occurrenceIndex;
 	}
 
 
@@ -719,7 +584,7 @@ public class AlgoERMiner {
 				
 				// for each item
 				for(Integer itemk : itemsetj) {
-					if(alreadyProcessed.contains(itemk) || mapItemCount.get(itemk).size() < minsuppRelative){
+					if(alreadyProcessed.contains(itemk) || occurrenceIndex.getSupport(itemk) < minsuppRelative){
 						continue;
 					}
 					
@@ -729,7 +594,7 @@ public class AlgoERMiner {
 						
 						for(Integer     itemkk    : itemsetjj) {
 							if(itemkk.equals(itemk) || alreadyProcessedWithRespectToK.contains(itemkk)
-									||  mapItemCount.get(itemkk).size() < minsuppRelative){
+									||  occurrenceIndex.getSupport(itemkk) < minsuppRelative){
 								continue;
 							}
 							
@@ -748,13 +613,13 @@ public class AlgoERMiner {
 
 	/**
 	 * Save a rule I ==> J to the output file
-	 * @param tidsIJ the tids containing the rule
+	 * @param occurencesIJ the occurences of the rule
 	 * @param confIJ the confidence
 	 * @param itemsetI the left part of the rule
 	 * @param itemsetJ the right part of the rule
 	 * @throws IOException exception if error writing the file
 	 */
-	private void saveRule(Set<Integer> tidsIJ, double confIJ, int[] itemsetI, int[] itemsetJ) {
+	private void saveRule(OccurrenceList occurencesIJ, double confIJ, int[] itemsetI, int[] itemsetJ) {
 		// increase the number of rule found
 		ruleCount++;
 		
@@ -781,7 +646,7 @@ public class AlgoERMiner {
 		}
 		// write support
 		buffer.append(" #SUP: ");
-		buffer.append(tidsIJ.size());
+		buffer.append(occurencesIJ.size());
 		// write confidence
 		buffer.append(" #CONF: ");
 		buffer.append(confIJ);
@@ -21,13 +21,10 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
 
 import ca.pfv.spmf.input.sequence_database_list_integers.Sequence;
 import ca.pfv.spmf.input.sequence_database_list_integers.SequenceDatabase;
@@ -44,7 +41,8 @@ import ca.pfv.spmf.tools.MemoryLogger;
  * <br/><br/>
  * The main method of this algorithm is "runAlgorithm". It output the result to a file.
  * 
- * @see Occurence
+ * @see OccurrenceIndex
+ * @see OccurrenceList
  * @see Sequence
  * @see SequenceDatabase
  * @author Philippe Fournier-Viger
@@ -72,9 +70,9 @@ public class AlgoRULEGROWTH {
 	SequenceDatabase database;
 	
 	/*** internal variables 
-	// This map contains for each item (key) a map of occurences (value).
-	// The map of occurences associates to sequence ID (key), an occurence of the item (value). */
-	Map<Integer,  Map<Integer, Occurence>> mapItemCount;  // item, <tid, occurence>
+	// This index contains for each item the list of its occurences:
+	// the sequence IDs and the first and last itemsets of the item in each sequence. */
+	OccurrenceIndex occurrenceIndex;
 
 	/** object to write the output file */
 	BufferedWriter writer = null; 
@@ -170,11 +168,11 @@ public class AlgoRULEGROWTH {
 		// Put frequent items in a list.
 		List<Integer> listFrequents = new ArrayList<Integer>();
 		// for each item
-		for(Entry<Integer,Map<Integer, Occurence>> entry : mapItemCount.entrySet()){
+		for(Integer item : occurrenceIndex.getItems()){
 			// if it is frequent
-			if(entry.getValue().size() >= minsuppRelative){
+			if(occurrenceIndex.getSupport(item) >= minsuppRelative){
 				// add it to the list
-				listFrequents.add(entry.getKey());
+				listFrequents.add(item);
 			}
 		}
 		
@@ -184,54 +182,28 @@ public class AlgoRULEGROWTH {
 
 		// For each pair of frequent items i  and j such that i != j
 		for(int i=0; i< listFrequents.size(); i++){
-			// get the item I and its map of occurences
+			// get the item I and its occurences
 			Integer intI = listFrequents.get(i);
-			Map<Integer, Occurence> occurencesI = mapItemCount.get(intI);
-			// get the tidset of item I
-			Set<Integer> tidsI = occurencesI.keySet();
-
+			OccurrenceList occurencesI = occurrenceIndex.get(intI);
 			
 			for(int j=i+1; j< listFrequents.size(); j++){
-				// get the item j and its map of occurences
+				// get the item j and its occurences
 				Integer intJ = listFrequents.get(j);
-				Map<Integer,Occurence> occurencesJ = mapItemCount.get(intJ);
-				// get the tidset of item J
-				Set<Integer> tidsJ = occurencesJ.keySet();
+				OccurrenceList occurencesJ = occurrenceIndex.get(intJ);
 
-//				
-				// (1) We will now calculate the tidsets
+				// (1) We will now calculate the occurences
 				// of I -->J  and the rule J-->I.
-				
-				// initialize the sets
-				Set<Integer> tidsIJ = new HashSet<Integer>();  // tidset of  I -->J  
-				Set<Integer> tidsJI = new HashSet<Integer>(); // tidset of J-->I
-				
-				// for each occurence of I
-				for(Entry<Integer, Occurence> entryOccI : occurencesI.entrySet()){
-					// get the occurence of J in the same sequence
-					Occurence occJ = occurencesJ.get(entryOccI.getKey());
-					// if J appears in that sequence
-					if(occJ !=  null){
-						// if J appeared before I in that sequence,
-						// then we put this tid in the tidset of  J-->I
-						if(occJ.firstItemset < entryOccI.getValue().lastItemset){
-							tidsJI.add(entryOccI.getKey());
-						}
-						// if I appeared before J in that sequence,
-						// then we put this tid in the tidset of  I-->J
-						if(entryOccI.getValue().firstItemset < occJ.lastItemset){
-							tidsIJ.add(entryOccI.getKey());
-						}
-					}
-				}
+				OccurrenceList occurencesIJ = new OccurrenceList();  // occurences of  I -->J  
+				OccurrenceList occurencesJI = new OccurrenceList(); // occurences of J-->I
+				calculateOccurencesIJandJI(occurencesI, occurencesJ, occurencesIJ, occurencesJI);
 				
 				// (2) check if the two itemsets have enough common tids
 				// if not, we don't need to generate a rule for them.
 				
 				// create rule IJ
-				if(tidsIJ.size() >= minsuppRelative){
+				if(occurencesIJ.size() >= minsuppRelative){
 					// calculate the confidence of I ==> J
-					double confIJ = ((double)tidsIJ.size()) / occurencesI.size();
+					double confIJ = ((double)occurencesIJ.size()) / occurencesI.size();
 
 					// create itemset of the rule I ==> J
 					int[] itemsetI = new int[1];
@@ -241,25 +213,25 @@ public class AlgoRULEGROWTH {
 					
 					// if the confidence is high enough, save the rule
 					if(confIJ >= minConfidence){
-						saveRule(tidsIJ, confIJ, itemsetI, itemsetJ);
+						saveRule(occurencesIJ, confIJ, itemsetI, itemsetJ);
 						if(DEBUG) {
-							Rule rule = new Rule(itemsetI, itemsetJ, tidsI, tidsJ, tidsIJ, occurencesI, occurencesJ);
+							Rule rule = new Rule(itemsetI, itemsetJ, occurencesI, occurencesIJ);
 							allRulesFoundForDEBUG.add(rule);
 						}
 					}
 					// recursive call to try to expand the rule on the left and
 					// right sides
 					if(itemsetI.length < maxAntecedentSize) {
-						expandLeft(itemsetI, itemsetJ, tidsI, tidsIJ, occurencesJ);
+						expandLeft(itemsetI, itemsetJ, occurencesI, occurencesIJ);
 					}
 					if(itemsetJ.length < maxConsequentSize) {
-						expandRight(itemsetI, itemsetJ, tidsI, tidsJ, tidsIJ, occurencesI, occurencesJ);
+						expandRight(itemsetI, itemsetJ, occurencesI, occurencesIJ);
 					}
 				}
 					
 				// check if J ==> I has enough common tids
 				// If yes, we create the rule J ==> I
-				if(tidsJI.size() >= minsuppRelative){
+				if(occurencesJI.size() >= minsuppRelative){
 					// create itemset of the rule J ==> I
 					int[] itemsetI = new int[1];
 					itemsetI[0]= intI;
@@ -267,13 +239,13 @@ public class AlgoRULEGROWTH {
 					itemsetJ[0]= intJ;
 					
 					// calculate the confidence
-					double confJI = ((double)tidsJI.size()) / occurencesJ.size();
+					double confJI = ((double)occurencesJI.size()) / occurencesJ.size();
 					
 					// if the confidence is high enough, save the rule
 					if(confJI >= minConfidence){
-						saveRule(tidsJI, confJI, itemsetJ, itemsetI);
+						saveRule(occurencesJI, confJI, itemsetJ, itemsetI);
 						if(DEBUG) {
-							Rule rule = new Rule(itemsetJ, itemsetI, tidsJ,  tidsI, tidsJI, occurencesJ, occurencesI);
+							Rule rule = new Rule(itemsetJ, itemsetI, occurencesJ, occurencesJI);
 							allRulesFoundForDEBUG.add(rule);
 						}
 					}
@@ -281,10 +253,10 @@ public class AlgoRULEGROWTH {
 					// recursive call to try to expand the rule on the left and
 					// right sides
 					if(itemsetI.length < maxConsequentSize) {
-						expandRight(itemsetJ, itemsetI, tidsJ,  tidsI, tidsJI, occurencesJ, occurencesI);
+						expandRight(itemsetJ, itemsetI, occurencesJ, occurencesJI);
 					}
 					if(itemsetJ.length < maxAntecedentSize) {
-						expandLeft(itemsetJ, itemsetI, tidsJ, tidsJI, occurencesI);
+						expandLeft(itemsetJ, itemsetI, occurencesJ, occurencesJI);
 					}
 				}
 			}
@@ -318,21 +290,60 @@ public class AlgoRULEGROWTH {
 		database = null;
 	}
 
+	/**
+	 * Calculate the occurences of the rules I ==> J and J ==> I, where I and J are two items.
+	 * For each sequence containing both items, the sequence ID is found in the occurences of J
+	 * by a galloping search (the sequence IDs are sorted).
+	 * @param occurencesI the occurences of I
+	 * @param occurencesJ the occurences of J
+	 * @param occurencesIJ the list where the occurences of I ==> J are stored
+	 *        (the first itemset of I and the last itemset of J in each sequence)
+	 * @param occurencesJI the list where the occurences of J ==> I are stored
+	 */
+	private void calculateOccurencesIJandJI(OccurrenceList occurencesI, OccurrenceList occurencesJ,
+			OccurrenceList occurencesIJ, OccurrenceList occurencesJI) {
+		int i = 0;
+		int j = 0;
+		// for each sequence containing I and J
+		while(i < occurencesI.size() && j < occurencesJ.size()){
+			int tidI = occurencesI.getSid(i);
+			int tidJ = occurencesJ.getSid(j);
+			if(tidI < tidJ){
+				i = occurencesI.advance(i, tidJ);
+			}else if(tidJ < tidI){
+				j = occurencesJ.advance(j, tidI);
+			}else{
+				// if J appeared before I in that sequence,
+				// then we put this tid in the occurences of  J-->I
+				if(occurencesJ.getFirstItemset(j) < occurencesI.getLastItemset(i)){
+					occurencesJI.add(tidI, occurencesJ.getFirstItemset(j), occurencesI.getLastItemset(i));
+				}
+				// if I appeared before J in that sequence,
+				// then we put this tid in the occurences of  I-->J
+				if(occurencesI.getFirstItemset(i) < occurencesJ.getLastItemset(j)){
+					occurencesIJ.add(tidI, occurencesI.getFirstItemset(i), occurencesJ.getLastItemset(j));
+				}
+				i++;
+				j++;
+			}
+		}
+	}
+
 	/**
 	 * Save a rule I ==> J to the output file
-	 * @param tidsIJ the tids containing the rule
+	 * @param occurencesIJ the occurences of the rule
 	 * @param confIJ the confidence
 	 * @param itemsetI the left part of the rule
 	 * @param itemsetJ the right part of the rule
 	 * @throws IOException exception if error writing the file
 	 */
-	private void saveRule(Set<Integer> tidsIJ, double confIJ, int[] itemsetI, int[] itemsetJ) throws IOException {
+	private void saveRule(OccurrenceList occurencesIJ, double confIJ, int[] itemsetI, int[] itemsetJ) throws IOException {
 		// increase the number of rule found
 		ruleCount++;
 //		
 //		Arrays.sort(itemsetI);
 //		Arrays.sort(itemsetJ);
-//		System.out.println(Arrays.toString(itemsetI) + " ==> " + Arrays.toString(itemsetJ) + " sup: " + tidsIJ.size() + "  conf : " + confIJ);
+//		System.out.println(Arrays.toString(itemsetI) + " ==> " + Arrays.toString(itemsetJ) + " sup: " + occurencesIJ.size() + "  conf : " + confIJ);
 //		
 		// create a string buffer
 		StringBuilder buffer = new StringBuilder();
@@ -357,7 +368,7 @@ public class AlgoRULEGROWTH {
 		}
 		// write support
 		buffer.append(" #SUP: ");
-		buffer.append(tidsIJ.size());
+		buffer.append(occurencesIJ.size());
 		// write confidence
 		buffer.append(" #CONF: ");
 		buffer.append(confIJ);
@@ -368,32 +379,37 @@ public class AlgoRULEGROWTH {
 
 	/**
 	 * This method search for items for expanding left side of a rule I --> J 
-	 * with any item c. This results in rules of the form I U�{c} --> J. The method makes sure that:
+	 * with any item c. This results in rules of the form I U{c} --> J. The method makes sure that:
 	 *   - c  is not already included in I or J
 	 *   - c appear at least minsup time in tidsIJ before last occurence of J
 	 *   - c is lexically bigger than all items in I
-	 * @throws IOException 
+	 * @param itemsetI the left side of the rule
+	 * @param itemsetJ the right side of the rule
+	 * @param occurencesI the occurences of I
+	 * @param occurencesIJ the occurences of I --> J (first itemset of I and last itemset of J)
+	 * @throws IOException exception if error writing the output file
 	 */
-    private void expandLeft(int [] itemsetI, int[] itemsetJ, Collection<Integer> tidsI, 
-    						Collection<Integer> tidsIJ, 
-    						Map<Integer, Occurence> occurencesJ) throws IOException {    	
+    private void expandLeft(int [] itemsetI, int[] itemsetJ, OccurrenceList occurencesI, 
+    						OccurrenceList occurencesIJ) throws IOException {    	
     	// The following map will be used to count the support of each item
     	// c that could potentially extend the rule.
-    	// The map associated a set of tids (value) to an item (key).
-    	Map<Integer, Set<Integer>> frequentItemsC  = new HashMap<Integer, Set<Integer>>();  
+    	// The map associates the occurences of IU{c} --> J (value) to an item (key).
+    	Map<Integer, OccurrenceList> frequentItemsC  = new HashMap<Integer, OccurrenceList>();  
     	
     	// We scan the sequence where I-->J appear to search for items c 
     	// that we could add to generate a larger rule  IU{c} --> J
-    	int left = tidsIJ.size();  // the number of tid containing I-->J
+    	int left = occurencesIJ.size();  // the number of tid containing I-->J
     	
     	// For each tid of sequence containing I-->J
-    	for(Integer tid : tidsIJ){
-    		// get the sequence and occurences of J in that sequence
+    	for(int t=0; t < occurencesIJ.size(); t++){
+    		// get the sequence and the occurence of I-->J in that sequence
+    		int tid = occurencesIJ.getSid(t);
     		Sequence sequence = database.getSequences().get(tid);
-			Occurence end = occurencesJ.get(tid);
+    		int firstI = occurencesIJ.getFirstItemset(t);
+    		int lastJ = occurencesIJ.getLastItemset(t);
 			
 			// for each itemset before the last occurence of J in that sequence
-itemLoop:	for(int k=0; k < end.lastItemset; k++){
+			for(int k=0; k < lastJ; k++){
 				List<Integer> itemset = sequence.get(k);
 				// for each item c in that itemset
 				for(int m=0; m< itemset.size(); m++){
@@ -406,59 +422,51 @@ itemLoop:	for(int k=0; k < end.lastItemset; k++){
 						continue;
 					}
 					
-					// Otherwise, we get the tidset of "c" 
-					Set<Integer> tidsItemC = frequentItemsC.get(itemC);
+					// Otherwise, we get the occurences of IU{c} --> J 
+					OccurrenceList occurencesC = frequentItemsC.get(itemC);
 					
-					// if this set is not null, which means that "c" was not seen yet
-					// when scanning the sequences from I==>J
-					
-					if(tidsItemC == null){ 
+					if(occurencesC == null){ 
 						// if there is less tids left in the tidset of I-->J to be scanned than
 						// the minsup, we don't consider c anymore because  IU{c} --> J
 						// could not be frequent
 						if(left < minsuppRelative){
-							continue itemLoop;
-						}	
+							continue;
+						}
+						// otherwise, if we did not see "c" yet, create a new list for "c"
+						occurencesC = new OccurrenceList();
+						frequentItemsC.put(itemC, occurencesC);
+					// if "c" was already seen in this sequence
+					}else if(occurencesC.getLastSid() == tid){
+						continue;
 					// if "c" was seen before but there is not enough sequences left to be scanned
 					// to allow IU{c} --> J to reach the minimum support threshold
-					}else if(tidsItemC.size() + left < minsuppRelative){
-						// remove c and continue the loop of items
-						tidsItemC.remove(itemC);
-						continue itemLoop;
-					}
-					// otherwise, if we did not see "c" yet, create a new tidset for "c"
-					if(tidsItemC == null){
-						tidsItemC = new HashSet<Integer>(tidsIJ.size());
-						frequentItemsC.put(itemC, tidsItemC);
+					}else if(occurencesC.size() + left < minsuppRelative){
+						continue;
 					}
-					// add the current tid to the tidset of "c"
-					tidsItemC.add(tid);				
+					// add the current tid to the occurences of "c"
+					// (k is the first itemset of c, since the sequence is scanned from the start)
+					occurencesC.add(tid, Math.max(firstI, k), lastJ);
 				}
 			}
 			left--;  // decrease the number of sequences left to be scanned
 		}
     	
      	// For each item c found, we create a rule	IU{c} ==> J
-    	for(Entry<Integer, Set<Integer>> entry : frequentItemsC.entrySet()){
+    	for(Entry<Integer, OccurrenceList> entry : frequentItemsC.entrySet()){
     		Integer itemC = entry.getKey();
-    		// get the tidset IU{c} ==> J
-    		Set<Integer> tidsIC_J = entry.getValue();
+    		// get the occurences of IU{c} ==> J
+    		OccurrenceList occurencesIC_J = entry.getValue();
     		
     		// if the support of IU{c} ==> J is enough 
-    		if(tidsIC_J.size() >= minsuppRelative){ 
+    		if(occurencesIC_J.size() >= minsuppRelative){ 
     			
-    			// Calculate tids containing IU{c} which is necessary
+    			// Calculate the occurences of IU{c} which are necessary
     			// to calculate the confidence
-    			Set<Integer> tidsIC = new HashSet<Integer>(tidsI.size());
-    	    	for(Integer tid: tidsI){
-    	    		if(mapItemCount.get(itemC).containsKey(tid)){
-    	    			tidsIC.add(tid);
-    	    		}
-    	    	}
+    			OccurrenceList occurencesIC = occurencesI.intersect(occurrenceIndex.get(itemC), 0);
     			
     			// Create rule and calculate its confidence of IU{c} ==> J 
     	    	// defined as:  sup(IU{c} -->J) /  sup(IU{c})			
-				double confIC_J = ((double)tidsIC_J.size()) / tidsIC.size();
+				double confIC_J = ((double)occurencesIC_J.size()) / occurencesIC.size();
 				// create the itemset IU{c}
 				int [] itemsetIC = new int[itemsetI.length+1];
 				System.arraycopy(itemsetI, 0, itemsetIC, 0, itemsetI.length);
@@ -467,15 +475,15 @@ itemLoop:	for(int k=0; k < end.lastItemset; k++){
 				// if the confidence is high enough, then it is a valid rule
 				if(confIC_J >= minConfidence){
 					// save the rule
-					saveRule(tidsIC_J, confIC_J, itemsetIC, itemsetJ);
+					saveRule(occurencesIC_J, confIC_J, itemsetIC, itemsetJ);
 					if(DEBUG) {
-						Rule newRule = new Rule(itemsetIC, itemsetJ, tidsIC, null, tidsIC_J, null, occurencesJ);
+						Rule newRule = new Rule(itemsetIC, itemsetJ, occurencesIC, occurencesIC_J);
 						allRulesFoundForDEBUG.add(newRule);
 					}
 				}
 				// recursive call to expand left side of the rule
 				if(itemsetI.length < maxAntecedentSize) {
-					expandLeft(itemsetIC, itemsetJ, tidsIC, tidsIC_J, occurencesJ);
+					expandLeft(itemsetIC, itemsetJ, occurencesIC, occurencesIC_J);
 				}
     		}
     	}
@@ -485,41 +493,41 @@ itemLoop:	for(int k=0; k < end.lastItemset; k++){
     
 	/**
 	 * This method search for items for expanding left side of a rule I --> J 
-	 * with any item c. This results in rules of the form I --> J U�{c}. The method makes sure that:
+	 * with any item c. This results in rules of the form I --> J U{c}. The method makes sure that:
 	 *   - c  is not already included in I or J
 	 *   - c appear at least minsup time in tidsIJ after the first occurence of I
 	 *   - c is lexically bigger than all items in J
-	 * @throws IOException 
+	 * @param itemsetI the left side of the rule
+	 * @param itemsetJ the right side of the rule
+	 * @param occurencesI the occurences of I
+	 * @param occurencesIJ the occurences of I --> J (first itemset of I and last itemset of J)
+	 * @throws IOException exception if error writing the output file
 	 */
     private void expandRight(int [] itemsetI, int []itemsetJ,
-							Set<Integer> tidsI, 
-    						Collection<Integer> tidsJ, 
-    						Collection<Integer> tidsIJ, 
-    						Map<Integer, Occurence> occurencesI,
-    						Map<Integer, Occurence> occurencesJ) throws IOException {
-//		if(true)
-//    	return;
-    	
+    						OccurrenceList occurencesI,
+    						OccurrenceList occurencesIJ) throws IOException {
     	// The following map will be used to count the support of each item
     	// c that could potentially extend the rule.
-    	// The map associated a set of tids (value) to an item (key).
-    	Map<Integer, Set<Integer>> frequentItemsC  = new HashMap<Integer, Set<Integer>>();  
+    	// The map associates the occurences of I --> JU{c} (value) to an item (key).
+    	Map<Integer, OccurrenceList> frequentItemsC  = new HashMap<Integer, OccurrenceList>();  
     	
     	// we scan the sequence where I-->J appear to search for items c that we could add.
     	// for each sequence containing I-->J.
-    	int left = tidsIJ.size();
+    	int left = occurencesIJ.size();
     	
     	// For each tid of sequence containing I-->J
-    	for(Integer tid : tidsIJ){
-    		// get the sequence and get occurences of I in that sequence
+    	for(int t=0; t < occurencesIJ.size(); t++){
+    		// get the sequence and the occurence of I-->J in that sequence
+    		int tid = occurencesIJ.getSid(t);
     		Sequence sequence = database.getSequences().get(tid);
-			Occurence first = occurencesI.get(tid);
+    		int firstI = occurencesIJ.getFirstItemset(t);
+    		int lastJ = occurencesIJ.getLastItemset(t);
 			
 			// for each itemset after the first occurence of I in that sequence
-			for(int k=first.firstItemset+1; k < sequence.size(); k++){
+			for(int k=firstI+1; k < sequence.size(); k++){
 				List<Integer> itemset = sequence.get(k);
 				// for each item
-	itemLoop:	for(int m=0; m< itemset.size(); m++){
+				for(int m=0; m< itemset.size(); m++){
 					// for each item c in that itemset
 					Integer itemC = itemset.get(m);
 					
@@ -529,68 +537,46 @@ itemLoop:	for(int k=0; k < end.lastItemset; k++){
 					if(containsLEX(itemsetI, itemC) ||  containsLEXPlus(itemsetJ, itemC)){
 						continue;
 					}
-					Set<Integer> tidsItemC = frequentItemsC.get(itemC);
+					OccurrenceList occurencesC = frequentItemsC.get(itemC);
 					
-					// if "c" was seen before but there is not enough sequences left to be scanned
-					// to allow IU --> J {c} to reach the minimum support threshold
-					if(tidsItemC == null){ 
+					if(occurencesC == null){ 
+						// if there is not enough sequences left to be scanned
+						// to allow I --> J U{c} to reach the minimum support threshold
 						if(left < minsuppRelative){
-							continue itemLoop;
+							continue;
 						}	
-					}else if(tidsItemC.size() + left < minsuppRelative){
+						// otherwise, if we did not see "c" yet, create a new list for "c"
+						occurencesC = new OccurrenceList();
+						frequentItemsC.put(itemC, occurencesC);
+					}else if(occurencesC.getLastSid() == tid){
+						// if "c" was already seen in this sequence, k is its last itemset until now,
+						// so the last itemset of JU{c} is updated
+						occurencesC.setLastItemset(occurencesC.size() - 1, Math.min(lastJ, k));
+						continue;
+					}else if(occurencesC.size() + left < minsuppRelative){
 						// if "c" was seen before but there is not enough sequences left to be scanned
 						// to allow I--> JU{c}  to reach the minimum support threshold,
-						// remove "c" and continue the loop of items
-						tidsItemC.remove(itemC);
-						continue itemLoop;
-					}
-					if(tidsItemC == null){
-						// otherwise, if we did not see "c" yet, create a new tidset for "c"
-						tidsItemC = new HashSet<Integer>(tidsIJ.size());
-						frequentItemsC.put(itemC, tidsItemC);
+						// continue the loop of items
+						continue;
 					}
-					// add the current tid to the tidset of "c"
-					tidsItemC.add(tid);					
+					// add the current tid to the occurences of "c"
+					occurencesC.add(tid, firstI, Math.min(lastJ, k));
 				}
 			}
 			left--;  // decrease the number of sequences left to be scanned
 		}
     	
     	// For each item c found, we create a rule	I ==> JU {c}
-    	for(Entry<Integer, Set<Integer>> entry : frequentItemsC.entrySet()){
+    	for(Entry<Integer, OccurrenceList> entry : frequentItemsC.entrySet()){
     		Integer itemC = entry.getKey();
-    		// get the tidset of I ==> JU {c}
-    		Set<Integer> tidsI_JC = entry.getValue();
+    		// get the occurences of I ==> JU {c}
+    		OccurrenceList occurencesI_JC = entry.getValue();
     		
     		// if the support of I ==> JU{c} is enough 
-    		if(tidsI_JC.size() >= minsuppRelative){  
-    			// create the itemset JU{c} and calculate the occurences of JU{c}
-    			Set<Integer> tidsJC = new HashSet<Integer>(tidsJ.size());
-    			Map<Integer, Occurence> occurencesJC = new HashMap<Integer, Occurence>();
-    			
-    			// for each sequence containing J
-    			for(Integer tid: tidsJ){
-    				// Get the first and last occurences of C in that sequence
-    				Occurence occurenceC = mapItemCount.get(itemC).get(tid);
-    				// if there is an occurence
-    	    		if(occurenceC != null){
-    	    			// add the tid of the sequence to the tidset of JU{c}
-    	    			tidsJC.add(tid);
-    	    			// calculate last occurence of JU{c} depending on if
-    	    			// the last occurence of J is before the last occurence
-    	    			// of c or not.
-    	    			Occurence occurenceJ = occurencesJ.get(tid);
-    	    			if(occurenceC.lastItemset < occurenceJ.lastItemset){
-    	    				occurencesJC.put(tid, occurenceC);
-    	    			}else{
-    	    				occurencesJC.put(tid, occurenceJ);
-    	    			}
-    	    		}
-    	    	}
-    			
+    		if(occurencesI_JC.size() >= minsuppRelative){  
     			// Create rule I ==> J U{c} and calculate its confidence   
     	    	// defined as:  sup(I -->J U{c}) /  sup(I)	
-    			double confI_JC = ((double)tidsI_JC.size()) / tidsI.size();
+    			double confI_JC = ((double)occurencesI_JC.size()) / occurencesI.size();
 				int[] itemsetJC = new int[itemsetJ.length+1];
 				System.arraycopy(itemsetJ, 0, itemsetJC, 0, itemsetJ.length);
 				itemsetJC[itemsetJ.length]= itemC;
@@ -598,19 +584,19 @@ itemLoop:	for(int k=0; k < end.lastItemset; k++){
 				// if the confidence is enough
 				if(confI_JC >= minConfidence){
 					// then it is a valid rule so save it
-					saveRule(tidsI_JC, confI_JC, itemsetI, itemsetJC);
+					saveRule(occurencesI_JC, confI_JC, itemsetI, itemsetJC);
 					if(DEBUG) {
-						Rule newRule = new Rule(itemsetI, itemsetJC, tidsI, tidsJC, tidsI_JC, occurencesI, occurencesJC);
+						Rule newRule = new Rule(itemsetI, itemsetJC, occurencesI, occurencesI_JC);
 						allRulesFoundForDEBUG.add(newRule);
 					}
 				}
 				// recursively try to expand the left and right side
 				// of the rule
 				if(itemsetJC.length < maxConsequentSize) {
-					expandRight(itemsetI, itemsetJC, tidsI, tidsJC, tidsI_JC, occurencesI, occurencesJC);  // occurencesJ
+					expandRight(itemsetI, itemsetJC, occurencesI, occurencesI_JC);
 				}
 				if(itemsetI.length < maxAntecedentSize) {
-					expandLeft(itemsetI, itemsetJC,  tidsI, tidsI_JC, occurencesJC);  // occurencesJ
+					expandLeft(itemsetI, itemsetJC, occurencesI, occurencesI_JC);
 				}
 			}
     	}
@@ -623,44 +609,13 @@ itemLoop:	for(int k=0; k < end.lastItemset; k++){
 	 * This method calculate the frequency of each item in one database pass.
 	 * Then it remove all items that are not frequent.
 	 * @param database : a sequence database 
-	 * @return A map such that key = item
-	 *                         value = a map  where a key = tid  and a value = Occurence
-	 * This map allows knowing the frequency of each item and their first and last occurence in each sequence.
+	 * @return the index of the occurences of each item.
+	 * This index allows knowing the frequency of each item and their first and last occurence in each sequence.
 	 */
-	private Map<Integer, Map<Integer, Occurence>> removeItemsThatAreNotFrequent(SequenceDatabase database) {
+	private OccurrenceIndex removeItemsThatAreNotFrequent(SequenceDatabase database) {
 		// (1) Count the support of each item in the database in one database pass
-		mapItemCount = new HashMap<Integer, Map<Integer, Occurence>>(); // <item, Map<tid, occurence>>
-		
-		// for each sequence in the database
-		for(int k=0; k< database.size(); k++){
-			Sequence sequence = database.getSequences().get(k);
-			// for each itemset in that sequence
-			for(short j=0; j< sequence.getItemsets().size(); j++){
-				List<Integer> itemset = sequence.get(j);
-				// for each item in that itemset
-				for(int i=0; i< itemset.size(); i++){
-					Integer itemI = itemset.get(i);
-					
-					// get the map of occurences of that item
-					Map<Integer, Occurence> occurences = mapItemCount.get(itemI);
-					// if this map is null, create a new one
-					if(occurences == null){
-						occurences = new HashMap<Integer, Occurence>();
-						mapItemCount.put(itemI, occurences);
-					}
-					// then update the occurence by adding j as the 
-					// last occurence in sequence k
-					Occurence occurence = occurences.get(k);
-					if(occurence == null){
-						occurence = new Occurence(j, j);
-						occurences.put(k, occurence);
-					}else{
-						occurence.lastItemset = j;
-					}
-				}
-			}
-		}
-//		System.out.println("NUMBER OF DIFFERENT ITEMS : " + mapItemCount.size());
+		occurrenceIndex = new OccurrenceIndex(database, false);
+
 		// (2) remove all items that are not frequent from the database
 		
 		// for each sequence
@@ -675,7 +630,7 @@ itemLoop:	for(int k=0; k < end.lastItemset; k++){
 				// for each item
 				while(j < itemset.size()){
 					// if the item is not frequent remove it
-					if( mapItemCount.get(itemset.get(j)).size() < minsuppRelative){
+					if(occurrenceIndex.getSupport(itemset.get(j)) < minsuppRelative){
 						itemset.remove(j);
 					}else{
 						// otherwise go to next item
@@ -685,8 +640,8 @@ itemLoop:	for(int k=0; k < end.lastItemset; k++){
 				i++;  // go to next itemset
 			}
 		}
-		// return the map of occurences of items
-		return mapItemCount;
+		// return the index of occurences of items
+		return occurrenceIndex;
 	}
 
 	/**
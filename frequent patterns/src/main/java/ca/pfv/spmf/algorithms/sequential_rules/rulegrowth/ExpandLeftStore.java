@@ -20,7 +20,6 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * This is the LeftStore structure used by the ERMiner algorithm
@@ -36,9 +35,7 @@ public class ExpandLeftStore {
 	public ExpandLeftStore() {
 		
 	}
-	public void register(LeftRule leftRule, int[] itemsetJ,
-			Set<Integer> tidsJ, Map<Integer, Occurence> occurencesI,
-			Map<Integer, Occurence> occurencesJ) {
+	public void register(LeftRule leftRule, int[] itemsetJ) {
 		int size = itemsetJ.length;
 		int hash = Arrays.hashCode(itemsetJ);
 		
@@ -49,7 +46,7 @@ public class ExpandLeftStore {
 		}	
 		List<LeftEquivalenceClass> list = map.get(hash);	
 		if(list == null) {
-			LeftEquivalenceClass eclass = new LeftEquivalenceClass(itemsetJ, tidsJ, occurencesJ);
+			LeftEquivalenceClass eclass = new LeftEquivalenceClass(itemsetJ);
 			list = new ArrayList<LeftEquivalenceClass>();
 			map.put(hash, list);
 			list.add(eclass);
@@ -62,7 +59,7 @@ public class ExpandLeftStore {
 				}
 			}
 			// if not found
-			LeftEquivalenceClass eclass = new LeftEquivalenceClass(itemsetJ, tidsJ, occurencesJ);
+			LeftEquivalenceClass eclass = new LeftEquivalenceClass(itemsetJ);
 			list.add(eclass);
 			eclass.rules.add(leftRule);
 		}
@@ -19,8 +19,6 @@ package ca.pfv.spmf.algorithms.sequential_rules.rulegrowth;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 
 import ca.pfv.spmf.patterns.itemset_array_integers_with_tids.Itemset;
 
@@ -34,17 +32,11 @@ import ca.pfv.spmf.patterns.itemset_array_integers_with_tids.Itemset;
 public class LeftEquivalenceClass {
 	
 	int[] itemsetJ; 
-	Set<Integer> tidsJ;
-	Map<Integer, Occurence> occurencesJ;
 	
 	List<LeftRule> rules = new ArrayList<LeftRule>();
 
-	public LeftEquivalenceClass(int[] itemsetJ, 
-			Set<Integer> tidsJ, 
-			Map<Integer, Occurence> occurencesJ) {
+	public LeftEquivalenceClass(int[] itemsetJ) {
 			this.itemsetJ = itemsetJ;
-			this.tidsJ = tidsJ;
-			this.occurencesJ = occurencesJ;
 	}
 	
 	@Override
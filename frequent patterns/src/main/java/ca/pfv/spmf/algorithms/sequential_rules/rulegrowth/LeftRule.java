@@ -17,7 +17,6 @@ package ca.pfv.spmf.algorithms.sequential_rules.rulegrowth;
 */
 
 import java.util.Arrays;
-import java.util.Set;
 
 import ca.pfv.spmf.patterns.itemset_array_integers_with_tids.Itemset;
 
@@ -31,15 +30,15 @@ import ca.pfv.spmf.patterns.itemset_array_integers_with_tids.Itemset;
 public class LeftRule {
 	
 	int[] itemsetI;
-	Set<Integer> tidsI;
-	Set<Integer> tidsIJ;
+	OccurrenceList occurencesI;
+	OccurrenceList occurencesIJ;
 
-	public LeftRule(int[] itemsetI, Set<Integer> tidsI,
-			Set<Integer> tidsIJ
+	public LeftRule(int[] itemsetI, OccurrenceList occurencesI,
+			OccurrenceList occurencesIJ
 			) {
 			this.itemsetI = itemsetI;
-			this.tidsI = tidsI;
-			this.tidsIJ = tidsIJ;
+			this.occurencesI = occurencesI;
+			this.occurencesIJ = occurencesIJ;
 	}
 
 	public String toString() {
@@ -0,0 +1,115 @@
+package ca.pfv.spmf.algorithms.sequential_rules.rulegrowth;
+/* This file is part of the SPMF DATA MINING SOFTWARE
+* (http://www.philippe-fournier-viger.com/spmf).
+*
+* SPMF is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+*
+* SPMF is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* SPMF. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import ca.pfv.spmf.input.sequence_database_list_integers.Sequence;
+import ca.pfv.spmf.input.sequence_database_list_integers.SequenceDatabase;
+
+/**
+ * This class is an index of the occurrences of each item of a sequence database, built in one
+ * database pass. For each item, it contains an {@link OccurrenceList} with the IDs of the sequences
+ * containing the item (sorted by increasing order), and the first and last itemsets where the item
+ * appears in each of these sequences. The ID of a sequence is its position in the database.
+ * <br/><br/>
+ *
+ * It is shared by the RuleGrowth, ERMiner and TRuleGrowth algorithms.
+ *
+ * @see OccurrenceList
+ * @see AlgoRULEGROWTH
+ * @see AlgoERMiner
+ */
+public class OccurrenceIndex {
+
+	/** the occurrences of each item (key: item  value: occurrences) */
+	private final Map<Integer, OccurrenceList> mapItemOccurrences = new HashMap<Integer, OccurrenceList>();
+
+	/**
+	 * Constructor
+	 * @param database a sequence database
+	 * @param keepPositions if true, all the itemsets where an item appears are also stored
+	 *        (see {@link OccurrenceList#getPosition(int)})
+	 */
+	public OccurrenceIndex(SequenceDatabase database, boolean keepPositions) {
+		// for each sequence in the database
+		for(int sid = 0; sid < database.size(); sid++){
+			Sequence sequence = database.getSequences().get(sid);
+			// for each itemset in that sequence
+			for(int j = 0; j < sequence.size(); j++){
+				List<Integer> itemset = sequence.get(j);
+				// for each item in that itemset
+				for(int i = 0; i < itemset.size(); i++){
+					Integer item = itemset.get(i);
+					// get the occurrences of that item (and create them if they do not exist)
+					OccurrenceList occurrences = mapItemOccurrences.get(item);
+					if(occurrences == null){
+						occurrences = keepPositions ? OccurrenceList.createWithPositions() : new OccurrenceList();
+						mapItemOccurrences.put(item, occurrences);
+					}
+					// if the item was already seen in this sequence, j becomes its last itemset,
+					// otherwise we add an occurrence for this sequence
+					if(occurrences.getLastSid() == sid){
+						int last = occurrences.size() - 1;
+						if(occurrences.getLastItemset(last) == j){
+							// the item appears twice in the same itemset
+							continue;
+						}
+						occurrences.setLastItemset(last, j);
+					}else{
+						occurrences.add(sid, j, j);
+					}
+					if(keepPositions){
+						occurrences.addPosition(j);
+					}
+				}
+			}
+		}
+		// reduce the memory used by the lists
+		for(OccurrenceList occurrences : mapItemOccurrences.values()){
+			occurrences.trim();
+		}
+	}
+
+	/**
+	 * Get the occurrences of an item
+	 * @param item the item
+	 * @return the occurrences or null if the item does not appear in the database
+	 */
+	public OccurrenceList get(Integer item) {
+		return mapItemOccurrences.get(item);
+	}
+
+	/**
+	 * Get the support of an item
+	 * @param item the item
+	 * @return the number of sequences containing the item
+	 */
+	public int getSupport(Integer item) {
+		OccurrenceList occurrences = mapItemOccurrences.get(item);
+		return occurrences == null ? 0 : occurrences.size();
+	}
+
+	/**
+	 * Get the items of the database
+	 * @return the set of items
+	 */
+	public Set<Integer> getItems() {
+		return mapItemOccurrences.keySet();
+	}
+}
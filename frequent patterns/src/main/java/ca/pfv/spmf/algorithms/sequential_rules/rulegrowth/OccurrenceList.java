@@ -0,0 +1,295 @@
+package ca.pfv.spmf.algorithms.sequential_rules.rulegrowth;
+/* This file is part of the SPMF DATA MINING SOFTWARE
+* (http://www.philippe-fournier-viger.com/spmf).
+*
+* SPMF is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+*
+* SPMF is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* SPMF. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.util.Arrays;
+
+/**
+ * This class represents the occurrences of an itemset (or of a rule) in the sequences of a
+ * sequence database, as used by the RuleGrowth, ERMiner and TRuleGrowth algorithms.
+ * <br/><br/>
+ *
+ * The occurrences are stored in parallel arrays of integers, sorted by increasing sequence ID:
+ * for each sequence, its ID, the first itemset and the last itemset of the occurrence
+ * (for an itemset, the first itemset where all its items have appeared and the last itemset after which
+ * they do not all appear anymore; for a rule I ==> J, the first itemset of I and the last itemset of J).
+ * Optionally, all the itemsets where an item appears are also stored (this is used by TRuleGrowth).
+ * <br/><br/>
+ *
+ * Because the sequence IDs are sorted, two lists can be intersected without hashing, by
+ * galloping search (see {@link #advance(int, int)}).
+ *
+ * @see OccurrenceIndex
+ * @see AlgoRULEGROWTH
+ * @see AlgoERMiner
+ */
+public class OccurrenceList {
+
+	/** the IDs of the sequences, by increasing order */
+	private int[] sids;
+
+	/** the first itemset of the occurrence in each sequence */
+	private int[] firstItemsets;
+
+	/** the last itemset of the occurrence in each sequence */
+	private int[] lastItemsets;
+
+	/** the number of sequences */
+	private int size = 0;
+
+	/** for each sequence, the index of its first itemset in the array "positions"
+	 * (null if the positions are not stored) */
+	private int[] positionStarts = null;
+
+	/** the itemsets where the item appears, for all sequences (null if the positions are not stored) */
+	private int[] positions = null;
+
+	/** the number of positions */
+	private int positionCount = 0;
+
+	/**
+	 * Constructor
+	 */
+	public OccurrenceList() {
+		this(8);
+	}
+
+	/**
+	 * Constructor
+	 * @param capacity the initial number of sequences that can be stored
+	 */
+	public OccurrenceList(int capacity) {
+		capacity = Math.max(capacity, 1);
+		sids = new int[capacity];
+		firstItemsets = new int[capacity];
+		lastItemsets = new int[capacity];
+	}
+
+	/**
+	 * Create a list that also stores all the itemsets where an item appears
+	 * (see {@link #addPosition(int)}).
+	 * @return the list
+	 */
+	static OccurrenceList createWithPositions() {
+		OccurrenceList list = new OccurrenceList();
+		list.positionStarts = new int[list.sids.length];
+		list.positions = new int[8];
+		return list;
+	}
+
+	/**
+	 * Add an occurrence. The sequence ID must be larger than the sequence IDs already in the list.
+	 * @param sid the sequence ID
+	 * @param firstItemset the first itemset of the occurrence
+	 * @param lastItemset the last itemset of the occurrence
+	 */
+	public void add(int sid, int firstItemset, int lastItemset) {
+		if(size == sids.length) {
+			int capacity = size + (size >> 1) + 1;
+			sids = Arrays.copyOf(sids, capacity);
+			firstItemsets = Arrays.copyOf(firstItemsets, capacity);
+			lastItemsets = Arrays.copyOf(lastItemsets, capacity);
+			if(positionStarts != null) {
+				positionStarts = Arrays.copyOf(positionStarts, capacity);
+			}
+		}
+		sids[size] = sid;
+		firstItemsets[size] = firstItemset;
+		lastItemsets[size] = lastItemset;
+		if(positionStarts != null) {
+			positionStarts[size] = positionCount;
+		}
+		size++;
+	}
+
+	/**
+	 * Add an itemset where the item appears in the last sequence of the list
+	 * (the itemsets must be added by increasing order).
+	 * @param itemset the position of the itemset
+	 */
+	void addPosition(int itemset) {
+		if(positionCount == positions.length) {
+			positions = Arrays.copyOf(positions, positionCount + (positionCount >> 1) + 1);
+		}
+		positions[positionCount++] = itemset;
+	}
+
+	/**
+	 * Get the number of sequences
+	 * @return the number of sequences (the support)
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Get the ID of a sequence
+	 * @param index the index of the sequence in this list
+	 * @return the sequence ID
+	 */
+	public int getSid(int index) {
+		return sids[index];
+	}
+
+	/**
+	 * Get the ID of the last sequence
+	 * @return the sequence ID or -1 if the list is empty
+	 */
+	public int getLastSid() {
+		return size == 0 ? -1 : sids[size - 1];
+	}
+
+	/**
+	 * Get the first itemset of the occurrence in a sequence
+	 * @param index the index of the sequence in this list
+	 * @return the position of the itemset
+	 */
+	public int getFirstItemset(int index) {
+		return firstItemsets[index];
+	}
+
+	/**
+	 * Get the last itemset of the occurrence in a sequence
+	 * @param index the index of the sequence in this list
+	 * @return the position of the itemset
+	 */
+	public int getLastItemset(int index) {
+		return lastItemsets[index];
+	}
+
+	/**
+	 * Set the last itemset of the occurrence in a sequence
+	 * @param index the index of the sequence in this list
+	 * @param lastItemset the position of the itemset
+	 */
+	public void setLastItemset(int index, int lastItemset) {
+		lastItemsets[index] = lastItemset;
+	}
+
+	/**
+	 * Get the index of the first itemset where the item appears in a sequence, in the array of positions
+	 * (only if the positions are stored).
+	 * @param index the index of the sequence in this list
+	 * @return the index of the position
+	 */
+	public int getPositionStart(int index) {
+		return positionStarts[index];
+	}
+
+	/**
+	 * Get the index after the last itemset where the item appears in a sequence, in the array of positions
+	 * (only if the positions are stored).
+	 * @param index the index of the sequence in this list
+	 * @return the index of the position
+	 */
+	public int getPositionEnd(int index) {
+		return index + 1 < size ? positionStarts[index + 1] : positionCount;
+	}
+
+	/**
+	 * Get an itemset where the item appears (only if the positions are stored).
+	 * @param position the index of the position (see {@link #getPositionStart(int)})
+	 * @return the position of the itemset
+	 */
+	public int getPosition(int position) {
+		return positions[position];
+	}
+
+	/**
+	 * Find the first sequence of the list, starting from a given index, whose ID is greater or equal
+	 * to a given sequence ID. The search is a galloping search (an exponential search followed by
+	 * a binary search), so that its cost depends on the distance from the index rather than on the size
+	 * of the list.
+	 * @param from the index where the search starts
+	 * @param sid the sequence ID
+	 * @return the index of the sequence or the size of the list if there is no such sequence
+	 */
+	public int advance(int from, int sid) {
+		if(from >= size || sids[from] >= sid) {
+			return from;
+		}
+		// exponential search: sids[low] < sid
+		int low = from;
+		int step = 1;
+		int high = from + 1;
+		while(high < size && sids[high] < sid) {
+			low = high;
+			step <<= 1;
+			high = low + step;
+		}
+		if(high > size) {
+			high = size;
+		}
+		// binary search between low (excluded) and high
+		low++;
+		while(low < high) {
+			int middle = (low + high) >>> 1;
+			if(sids[middle] < sid) {
+				low = middle + 1;
+			}else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Intersect the occurrences of an itemset X (this list) with those of an itemset Y,
+	 * to obtain the occurrences of the itemset X U Y. For each sequence containing both itemsets,
+	 * the first itemset is the largest of the two first itemsets and the last itemset is the smallest
+	 * of the two last itemsets.
+	 * @param other the occurrences of Y
+	 * @param minsup if the intersection cannot contain this number of sequences,
+	 *        the intersection stops early and the result is incomplete (smaller than minsup)
+	 * @return the occurrences of X U Y
+	 */
+	public OccurrenceList intersect(OccurrenceList other, int minsup) {
+		OccurrenceList result = new OccurrenceList(Math.min(size, other.size));
+		int i = 0;
+		int j = 0;
+		while(i < size && j < other.size) {
+			// early skip
+			if(result.size + Math.min(size - i, other.size - j) < minsup) {
+				break;
+			}
+			int sid = sids[i];
+			int otherSid = other.sids[j];
+			if(sid < otherSid) {
+				i = advance(i, otherSid);
+			}else if(otherSid < sid) {
+				j = other.advance(j, sid);
+			}else {
+				result.add(sid, Math.max(firstItemsets[i], other.firstItemsets[j]),
+						Math.min(lastItemsets[i], other.lastItemsets[j]));
+				i++;
+				j++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Reduce the capacity of the arrays to the number of occurrences.
+	 */
+	void trim() {
+		sids = Arrays.copyOf(sids, size);
+		firstItemsets = Arrays.copyOf(firstItemsets, size);
+		lastItemsets = Arrays.copyOf(lastItemsets, size);
+		if(positionStarts != null) {
+			positionStarts = Arrays.copyOf(positionStarts, size);
+			positions = Arrays.copyOf(positions, positionCount);
+		}
+	}
+}
@@ -17,8 +17,6 @@ package ca.pfv.spmf.algorithms.sequential_rules.rulegrowth;
 */
 
 import java.util.Arrays;
-import java.util.Map;
-import java.util.Set;
 
 import ca.pfv.spmf.patterns.itemset_array_integers_with_tids.Itemset;
 
@@ -32,17 +30,12 @@ import ca.pfv.spmf.patterns.itemset_array_integers_with_tids.Itemset;
 public class RightRule {
 	
 	int []itemsetJ; 
-	Set<Integer> tidsJ;
-	Set<Integer> tidsIJ;
-	Map<Integer, Occurence> occurencesJ;
+	OccurrenceList occurencesIJ;
 
 	public RightRule(int[] itemsetJ, 
-			Set<Integer> tidsJ, Set<Integer> tidsIJ,
-			Map<Integer, Occurence> occurencesJ) {
+			OccurrenceList occurencesIJ) {
 			this.itemsetJ = itemsetJ;
-			this.tidsJ = tidsJ;
-			this.tidsIJ = tidsIJ;
-			this.occurencesJ = occurencesJ;
+			this.occurencesIJ = occurencesIJ;
 	}
 	
 	@Override
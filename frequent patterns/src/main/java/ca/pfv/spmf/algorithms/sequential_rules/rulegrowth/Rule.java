@@ -17,8 +17,6 @@ package ca.pfv.spmf.algorithms.sequential_rules.rulegrowth;
 */
 
 import java.util.Arrays;
-import java.util.Map;
-import java.util.Set;
 
 import ca.pfv.spmf.algorithms.sequential_rules.cmdeogun.AlgoCMDeogun;
 import ca.pfv.spmf.patterns.itemset_array_integers_with_tids.Itemset;
@@ -34,23 +32,15 @@ public class Rule {
 	
 	int[] itemsetI;
 	int[] itemsetJ; 
-	Set<Integer> tidsI;
-	Set<Integer> tidsJ;
-	Set<Integer> tidsIJ;
-	Map<Integer, Occurence> occurencesI;
-	Map<Integer, Occurence> occurencesJ;
+	OccurrenceList occurencesI;
+	OccurrenceList occurencesIJ;
 
-	public Rule(int[] itemsetI, int[] itemsetJ, Set<Integer> tidsI,
-			Set<Integer> tidsJ, Set<Integer> tidsIJ,
-			Map<Integer, Occurence> occurencesI,
-			Map<Integer, Occurence> occurencesJ) {
+	public Rule(int[] itemsetI, int[] itemsetJ, OccurrenceList occurencesI,
+			OccurrenceList occurencesIJ) {
 			this.itemsetI = itemsetI;
 			this.itemsetJ = itemsetJ;
-			this.tidsI = tidsI;
-			this.tidsJ = tidsJ;
-			this.tidsIJ = tidsIJ;
 			this.occurencesI = occurencesI;
-			this.occurencesJ = occurencesJ;
+			this.occurencesIJ = occurencesIJ;
 	}
 	
 	@Override
@@ -4,18 +4,17 @@ import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
 
 import ca.pfv.spmf.algorithms.ArraysAlgos;
+import ca.pfv.spmf.algorithms.sequential_rules.rulegrowth.OccurrenceIndex;
+import ca.pfv.spmf.algorithms.sequential_rules.rulegrowth.OccurrenceList;
 import ca.pfv.spmf.input.sequence_database_list_integers.Sequence;
 import ca.pfv.spmf.input.sequence_database_list_integers.SequenceDatabase;
 import ca.pfv.spmf.tools.MemoryLogger;
@@ -44,11 +43,9 @@ public class AlgoTRuleGrowth {
 	
 	
 	//*** internal variables ***/
-	// A map to record the occurences of each item in each sequence
-	// KEY: an item
-	// VALUE:  a map of  key: sequence ID  value: occurences of the item in that sequence.
-	// (note: an occurence is an itemset position)
-	Map<Integer,  Map<Integer, Occurence>> mapItemCount;
+	// An index to record the occurences of each item in each sequence
+	// (for each item: the sequence IDs and the itemsets where the item appears in each sequence)
+	OccurrenceIndex occurrenceIndex;
 	
 	 // minimum support which will be raised dynamically
 	int minsuppRelative; 
@@ -156,11 +153,11 @@ public class AlgoTRuleGrowth {
 		// Put frequent items in a list.
 		List<Integer> listFrequents = new ArrayList<Integer>();
 		// for each item
-		for(Entry<Integer,Map<Integer, Occurence>> entry : mapItemCount.entrySet()){
+		for(Integer item : occurrenceIndex.getItems()){
 			// if it is frequent
-			if(entry.getValue().size() >= minsuppRelative){
+			if(occurrenceIndex.getSupport(item) >= minsuppRelative){
 				// add it to the list
-				listFrequents.add(entry.getKey());
+				listFrequents.add(item);
 			}
 		}
 		
@@ -170,61 +167,47 @@ public class AlgoTRuleGrowth {
 
 		// For each pair of frequent items i  and j such that i != j
 		for(int i=0; i< listFrequents.size(); i++){
-			// get the item i and its map of occurences
+			// get the item i and its occurences
 			Integer intI = listFrequents.get(i);
-			Map<Integer,Occurence> occurencesI = mapItemCount.get(intI);
+			OccurrenceList occurencesI = occurrenceIndex.get(intI);
+			// get the tidset of item I
+			List<Integer> tidsI = getTids(occurencesI);
 			
 			for(int j=i+1; j< listFrequents.size(); j++){
-				// get the item j and its map of occurences
+				// get the item j and its occurences
 				Integer intJ = listFrequents.get(j);
-				Map<Integer,Occurence> occurencesJ = mapItemCount.get(intJ);
+				OccurrenceList occurencesJ = occurrenceIndex.get(intJ);
 				
 				// (1) We will now calculate the tidsets
-				// of itemset I,  itemset J,   the rule I -->J 
+				// of itemset J,   the rule I -->J 
 				// and the rule J-->I
-				Set<Integer> tidsI = new HashSet<Integer>();
-				Set<Integer> tidsJ = null;
-				Set<Integer> tidsIJ = new HashSet<Integer>();
-				Set<Integer> tidsJI= new HashSet<Integer>();
-
-				// for each occurence of I
-	looptid:	for(Occurence occI : occurencesI.values()){
-					
-					// add the sequenceID of that occurence to tidsI
-					tidsI.add(occI.sequenceID);
-					
-					// if J does not appear in that sequence continue loop
-					Occurence occJ = occurencesJ.get(occI.sequenceID);
-					if(occJ == null){
-						continue looptid;
-					}
-					
-					// make a big loop to compare if I appears before
-					// J in that sequence and
-					// if J appears before I
-					boolean addedIJ= false;
-					boolean addedJI= false;
-					// for each occurence of I in that sequence
-			loopIJ:	for(Short posI : occI.occurences){
-						// for each occurence of J in that sequence
-						for(Short posJ : occJ.occurences){
-							if(!posI.equals(posJ) && Math.abs(posI - posJ) <= windowSize){
-								if(posI <= posJ){
-									// if I is before J
-									tidsIJ.add(occI.sequenceID);
-									addedIJ = true;
-								}else{
-									// if J is before I
-									tidsJI.add(occI.sequenceID);
-									addedJI = true;
-								}
-								// if we have found that I is before J and J is before I
-								// we don't need to continue.
-								if(addedIJ && addedJI){
-									break loopIJ;
-								}
-							}
+				// (the tidsets are lists of sequence IDs sorted by increasing order)
+				List<Integer> tidsJ = null;
+				List<Integer> tidsIJ = new ArrayList<Integer>();
+				List<Integer> tidsJI= new ArrayList<Integer>();
+
+				// for each sequence containing I and J (the sequence IDs of
+				// the occurences of I and J are intersected by galloping search)
+				int indexI = 0;
+				int indexJ = 0;
+				while(indexI < occurencesI.size() && indexJ < occurencesJ.size()){
+					int tidI = occurencesI.getSid(indexI);
+					int tidJ = occurencesJ.getSid(indexJ);
+					if(tidI < tidJ){
+						indexI = occurencesI.advance(indexI, tidJ);
+					}else if(tidJ < tidI){
+						indexJ = occurencesJ.advance(indexJ, tidI);
+					}else{
+						// if I appears before J in that sequence, within the window
+						if(appearsBeforeInWindow(occurencesI, indexI, occurencesJ, indexJ)){
+							tidsIJ.add(tidI);
+						}
+						// if J appears before I in that sequence, within the window
+						if(appearsBeforeInWindow(occurencesJ, indexJ, occurencesI, indexI)){
+							tidsJI.add(tidI);
 						}
+						indexI++;
+						indexJ++;
 					}
 				}
 				// END
@@ -244,10 +227,7 @@ public class AlgoTRuleGrowth {
 						saveRule(tidsIJ, confIJ, itemset1, itemset2);
 					}
 					// Calculate tidsJ.
-					tidsJ = new HashSet<Integer>();
-					for(Occurence occJ : occurencesJ.values()){
-						tidsJ.add(occJ.sequenceID);
-					}
+					tidsJ = getTids(occurencesJ);
 					
 					// recursive call to try to expand the rule on the left and
 					// right sides
@@ -276,10 +256,7 @@ public class AlgoTRuleGrowth {
 						
 						// Calculate tidsJ.
 						if(tidsJ == null){
-							tidsJ = new HashSet<Integer>();
-							for(Occurence occJ : occurencesJ.values()){
-								tidsJ.add(occJ.sequenceID);
-							}
+							tidsJ = getTids(occurencesJ);
 						}
 						// recursive call to try to expand the rule
 
@@ -300,6 +277,52 @@ public class AlgoTRuleGrowth {
 		database = null;
 	}
 
+	/**
+	 * Get the tidset of an item (the sequence IDs of its occurences).
+	 * @param occurences the occurences of the item
+	 * @return the list of sequence IDs, sorted by increasing order
+	 */
+	private List<Integer> getTids(OccurrenceList occurences) {
+		List<Integer> tids = new ArrayList<Integer>(occurences.size());
+		for(int i=0; i< occurences.size(); i++){
+			tids.add(occurences.getSid(i));
+		}
+		return tids;
+	}
+
+	/**
+	 * Check if an item A appears before an item B in a sequence, within the window
+	 * (there is an itemset containing A followed by an itemset containing B
+	 * such that the distance between them is smaller than the window size, that is
+	 * the window size given by the user plus 1).
+	 * @param occurencesA the occurences of A (with their positions)
+	 * @param indexA the index of the sequence in the occurences of A
+	 * @param occurencesB the occurences of B (with their positions)
+	 * @param indexB the index of the sequence in the occurences of B
+	 * @return true if A appears before B
+	 */
+	private boolean appearsBeforeInWindow(OccurrenceList occurencesA, int indexA,
+			OccurrenceList occurencesB, int indexB) {
+		int positionB = occurencesB.getPositionStart(indexB);
+		int endB = occurencesB.getPositionEnd(indexB);
+		// for each position of A (by increasing order)
+		for(int positionA = occurencesA.getPositionStart(indexA); positionA < occurencesA.getPositionEnd(indexA); positionA++){
+			int itemsetA = occurencesA.getPosition(positionA);
+			// find the first position of B after the position of A
+			while(positionB < endB && occurencesB.getPosition(positionB) <= itemsetA){
+				positionB++;
+			}
+			if(positionB == endB){
+				return false;
+			}
+			// if it is inside the window
+			if(occurencesB.getPosition(positionB) - itemsetA < windowSize){
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * This method search for items for expanding left side of a rule I --> J 
 	 * with any item c. This results in rules of the form I U�{c} --> J. The method makes sure that:
@@ -313,21 +336,22 @@ public class AlgoTRuleGrowth {
 	 * @throws IOException  exception if error while writing output file
 	 */
     private void expandLeft(int[] itemsetI, int[] itemsetJ,
-    						Collection<Integer> tidsI, 
-    						Collection<Integer> tidsIJ // ,
+    						List<Integer> tidsI, 
+    						List<Integer> tidsIJ // ,
 //    						Map<Integer, Occurence> mapOccurencesJ
     						) throws IOException {    	
     	
     	// The following map will be used to count the support of each item
     	// c that could potentially extend the rule.
-    	// The map associated a set of tids (value) to an item (key).
-    	Map<Integer, Set<Integer>> frequentItemsC  = new HashMap<Integer, Set<Integer>>();  
+    	// The map associated a list of tids (value) to an item (key).
+    	// (the tids are added by increasing order since the tids of the rule are sorted)
+    	Map<Integer, List<Integer>> frequentItemsC  = new HashMap<Integer, List<Integer>>();  
 
     	// We scan the sequence where I-->J appear to search for items c 
     	// that we could add to generate a larger rule  IU{c} --> J
     	
     	// For each tid of  sequence containing I-->J
-    	for(Integer tid : tidsIJ){
+    	for(int tid : tidsIJ){
     		Sequence sequence = database.getSequences().get(tid);
     		
     		//  there maps are used when scanning the sequence to determine
@@ -425,14 +449,16 @@ public class AlgoTRuleGrowth {
 								continue;  // skip it
 							}	
 							// otherwise, get the tidset of "c"
-							Set<Integer> tidsItemC = frequentItemsC.get(itemC);
+							List<Integer> tidsItemC = frequentItemsC.get(itemC);
 							// if there is no tidset, create one
 							if(tidsItemC == null){
-								tidsItemC = new HashSet<Integer>();
+								tidsItemC = new ArrayList<Integer>();
 								frequentItemsC.put(itemC, tidsItemC);
 							}
-							// add the tid to the tidset of c
-							tidsItemC.add(tid);	
+							// add the tid to the tidset of c (if it was not added already)
+							if(tidsItemC.isEmpty() || tidsItemC.get(tidsItemC.size() - 1).intValue() != tid){
+								tidsItemC.add(tid);
+							}
     					}
     				}
     				// update the last item scanned
@@ -446,8 +472,8 @@ public class AlgoTRuleGrowth {
     	
 
     	// For each item c found, we create a rule	IU{c} ==> J
-    	for(Entry<Integer, Set<Integer>> entry : frequentItemsC.entrySet()){
-    		Set<Integer> tidsIC_J = entry.getValue();
+    	for(Entry<Integer, List<Integer>> entry : frequentItemsC.entrySet()){
+    		List<Integer> tidsIC_J = entry.getValue();
 
     		// if the support of IU{c} ==> J is enough 
     		if(tidsIC_J.size() >= minsuppRelative){ 
@@ -459,9 +485,20 @@ public class AlgoTRuleGrowth {
 				// Calculate tids containing IU{c} within the time window which is necessary
     			// to calculate the confidence
 				
-    			Set<Integer> tidsIC = new HashSet<Integer>();
+    			List<Integer> tidsIC = new ArrayList<Integer>();
+    			// Only the sequences containing c can contain IU{c}. They are found
+    			// by galloping search in the occurences of c (the tids are sorted).
+    			OccurrenceList occurencesC = occurrenceIndex.get(itemC);
+    			int indexC = 0;
     			// for each sequence containing I 
-   loop1:	    for(Integer tid: tidsI){
+   loop1:	    for(int tid: tidsI){
+    				indexC = occurencesC.advance(indexC, tid);
+    				if(indexC == occurencesC.size()){
+    					break;
+    				}
+    				if(occurencesC.getSid(indexC) != tid){
+    					continue;
+    				}
 	   				// get the sequence
     	    		Sequence sequence = database.getSequences().get(tid);
     	    		// To check if IU{c} is contained in that sequence we will use a map
@@ -602,20 +639,21 @@ public class AlgoTRuleGrowth {
 	 * @throws IOException 
 	 */
     private void expandRight(int[] itemsetI, int[] itemsetJ, 
-							Set<Integer> tidsI, 
-    						Collection<Integer> tidsJ, 
-    						Collection<Integer> tidsIJ //,
+							List<Integer> tidsI, 
+    						List<Integer> tidsJ, 
+    						List<Integer> tidsIJ //,
 //    						Map<Integer, Occurence> occurencesI,
 //    						Map<Integer, Occurence> occurencesJ
     						) throws IOException {
 
     	// The following map will be used to count the support of each item
     	// c that could potentially extend the rule.
-    	// The map associated a set of tids (value) to an item (key).
-    	Map<Integer, Set<Integer>> frequentItemsC  = new HashMap<Integer, Set<Integer>>();  
+    	// The map associated a list of tids (value) to an item (key).
+    	// (the tids are added by increasing order since the tids of the rule are sorted)
+    	Map<Integer, List<Integer>> frequentItemsC  = new HashMap<Integer, List<Integer>>();  
     	
     	// For each tid of sequence containing I-->J
-    	 for(Integer tid : tidsIJ){
+    	 for(int tid : tidsIJ){
     		// get the sequence
     		Sequence sequence = database.getSequences().get(tid);
     		
@@ -717,15 +755,17 @@ public class AlgoTRuleGrowth {
 								continue;
 							}	
 							// otherwise, get the tidset of "c"
-							Set<Integer> tidsItemC = frequentItemsC.get(itemC);
+							List<Integer> tidsItemC = frequentItemsC.get(itemC);
 							// if there is no tidset, create one
 							if(tidsItemC == null){
 								//if we did not see "c" yet, create a new tidset for "c"
-								tidsItemC = new HashSet<Integer>();
+								tidsItemC = new ArrayList<Integer>();
 								frequentItemsC.put(itemC, tidsItemC);
 							}
-							// add the current tid to the tidset of "c"
-							tidsItemC.add(tid);	
+							// add the current tid to the tidset of "c" (if it was not added already)
+							if(tidsItemC.isEmpty() || tidsItemC.get(tidsItemC.size() - 1).intValue() != tid){
+								tidsItemC.add(tid);
+							}
     					}
     				}
     				// update last itemset scanned
@@ -736,9 +776,9 @@ public class AlgoTRuleGrowth {
  		}  	
     	 
     	// For each item c found, we create a rule	I ==> JU {c} 	
-     	for(Entry<Integer, Set<Integer>> entry : frequentItemsC.entrySet()){
+     	for(Entry<Integer, List<Integer>> entry : frequentItemsC.entrySet()){
     		// get the tidset of I ==> JU {c}
-     		Set<Integer> tidsI_JC = entry.getValue();
+     		List<Integer> tidsI_JC = entry.getValue();
 
     		// if the support of I ==> JU{c} is enough 
      		if(tidsI_JC.size() >= minsuppRelative){ 
@@ -750,9 +790,20 @@ public class AlgoTRuleGrowth {
 				itemsetJC[itemsetJ.length]= itemC;
  				
      			//  calculate the occurences of JU{c} within the time window
-     			Set<Integer> tidsJC = new HashSet<Integer>();
+     			List<Integer> tidsJC = new ArrayList<Integer>();
+    			// Only the sequences containing c can contain JU{c}. They are found
+    			// by galloping search in the occurences of c (the tids are sorted).
+    			OccurrenceList occurencesC = occurrenceIndex.get(itemC);
+    			int indexC = 0;
      			// for each sequence containing J
-    loop1:	    for(Integer tid: tidsJ){
+    loop1:	    for(int tid: tidsJ){
+    				indexC = occurencesC.advance(indexC, tid);
+    				if(indexC == occurencesC.size()){
+    					break;
+    				}
+    				if(occurencesC.getSid(indexC) != tid){
+    					continue;
+    				}
     				// get the sequence
      	    		Sequence sequence = database.getSequences().get(tid);
      	    		
@@ -826,41 +877,13 @@ public class AlgoTRuleGrowth {
 	 * This method calculate the frequency of each item in one database pass.
 	 * Then it remove all items that are not frequent in another database pass.
 	 * @param database : a sequence database 
-	 * @return A map such that key = item
-	 *                         value = a map  where a key = tid  and a value = Occurence
-	 * This map allows knowing the frequency of each item and their first and last occurence in each sequence.
+	 * @return the index of the occurences of each item.
+	 * This index allows knowing the frequency of each item and the itemsets where it appears in each sequence.
 	 */
-	private Map<Integer, Map<Integer, Occurence>> removeItemsThatAreNotFrequent(SequenceDatabase database) {
+	private OccurrenceIndex removeItemsThatAreNotFrequent(SequenceDatabase database) {
 		// (1) Count the support of each item in the database in one database pass
-		mapItemCount = new HashMap<Integer, Map<Integer, Occurence>>(); // <item, Map<tid, occurence>>
-		
-		// for each sequence in the database
-		for(Sequence sequence : database.getSequences()){
-			// for each itemset in that sequence
-			for(short j=0; j< sequence.getItemsets().size(); j++){
-				List<Integer> itemset = sequence.get(j);
-				// for each item in that sequence
-				for(int i=0; i< itemset.size(); i++){
-					Integer itemI = itemset.get(i);
-					
-					// get the map of occurences of that item
-					Map<Integer, Occurence> occurences = mapItemCount.get(itemI);
-					// if the map of occurences of that item is null, create a new one
-					if(occurences == null){
-						occurences = new HashMap<Integer, Occurence>();
-						mapItemCount.put(itemI, occurences);
-					}
-					// add this sequence id to the occurences of that item
-					Occurence occurence = occurences.get(sequence.getId());
-					if(occurence == null){
-						occurence = new Occurence(sequence.getId());
-						occurences.put(sequence.getId(), occurence);
-					}
-					// add the current itemset position to the occurences of that item
-					occurence.add(j);
-				}
-			}
-		}
+		// (and record the itemsets where each item appears)
+		occurrenceIndex = new OccurrenceIndex(database, true);
 
 		// (2) remove all items that are not frequent from the database
 		
@@ -875,7 +898,7 @@ public class AlgoTRuleGrowth {
 				
 				// for each item
 				while(j < itemset.size()){
-					double count = mapItemCount.get(itemset.get(j)).size();
+					double count = occurrenceIndex.getSupport(itemset.get(j));
 					
 					// if the item is not frequent remove it
 					if(count < minsuppRelative){
@@ -888,8 +911,8 @@ public class AlgoTRuleGrowth {
 				i++;  // go to next itemset
 			}
 		}
-		// return the map of occurences of items
-		return mapItemCount;
+		// return the index of occurences of items
+		return occurrenceIndex;
 	}
 	
 	/**
@@ -900,7 +923,7 @@ public class AlgoTRuleGrowth {
 	 * @param itemsetJ the right part of the rule
 	 * @throws IOException exception if error writing the file
 	 */
-	private void saveRule(Set<Integer> tidsIJ, double confIJ, int[] itemsetI, int[] itemsetJ) throws IOException {
+	private void saveRule(List<Integer> tidsIJ, double confIJ, int[] itemsetI, int[] itemsetJ) throws IOException {
 		// increase the number of rule found
 		ruleCount++;
 		
@@ -3,11 +3,17 @@ package ca.pfv.spmf.algorithms.sequentialpatterns.prefixspan;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import ca.pfv.spmf.patterns.itemset_list_integers_without_support.Itemset;
 import ca.pfv.spmf.tools.MemoryLogger;
@@ -25,6 +31,11 @@ import ca.pfv.spmf.tools.MemoryLogger;
  * in SPMF which was implemented in 2008, and the AGP implementation. I have re-implemented the code to make
  * it more efficient. This new implementation can be 10 times faster than the 2008 implementation, since
  * I have added more optimizations
+ * 
+ * The sequences are stored in a single array of ints (without the infrequent items), and the projected
+ * databases are stored as pairs of ints (sequence ID, position in the array) in arrays that are reused
+ * for each depth of the search. The patterns starting with different items can be explored by
+ * several threads (see {@link #setThreadCount(int)}).
  *
  * Copyright (c) 2008-2012 Philippe Fournier-Viger
  * 
@@ -69,10 +80,11 @@ public class AlgoPrefixSpan{
 	/** if true, sequence identifiers of each pattern will be shown*/
 	boolean showSequenceIdentifiers = false;
 	
-	/** buffer for storing the current pattern that is mined when performing mining
-	* the idea is to always reuse the same buffer to reduce memory usage. **/
-	final int BUFFERS_SIZE = 2000;
-	private int[] patternBuffer = new int[BUFFERS_SIZE];
+	/** the number of threads used to explore the patterns starting with different items */
+	private int threadCount = 1;
+	
+	/** the number of characters of the patterns kept by a thread before writing them to the output file */
+	private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
 	
 	/** original sequence count **/
 	int sequenceCount = 0;
@@ -83,6 +95,31 @@ public class AlgoPrefixSpan{
 	/** boolean indicating whether this database contains itemsets with multiple items or not */
 	boolean containsItemsetsWithMultipleItems = false;
 	
+	/** the sequences without the infrequent items, in a single array. Each item is replaced by its index
+	 * in itemNames, itemsets are separated by -1 (if they can contain multiple items) and sequences end with -2 */
+	private int[] database;
+	
+	/** the first position of each sequence in the database array */
+	private int[] sequenceStarts;
+	
+	/** the sequence ID of each sequence of the database array */
+	private int[] sequenceIDs;
+	
+	/** the number of sequences in the database array */
+	private int databaseSequenceCount;
+	
+	/** the frequent items (by increasing order, starting at index 1) */
+	private int[] itemNames;
+	
+	/** the projected databases of the frequent items (pairs of sequence ID and position after the item) */
+	private int[] rootProjections;
+	
+	/** the first pair of the projected database of each frequent item in rootProjections (and the end) */
+	private int[] rootStarts;
+	
+	/** the next frequent item to be explored by a thread */
+	private AtomicInteger nextRootItem;
+	
 	/**
 	 * Default constructor
 	 */
@@ -188,758 +225,576 @@ public class AlgoPrefixSpan{
 		
 		//============== CALCULATE FREQUENCY OF SINGLE ITEMS =============
 		// We have to scan the database to find all frequent sequential patterns of size 1.
-		// We note the sequences in which the items appear.
-		Map<Integer, List<Integer>> mapSequenceID = findSequencesContainingItems();
+		int[] frequentItems = findFrequentItems();
 
-		//====== Remove infrequent items and explore each projected database ================
-		// if this database have multiple items per itemset
-		if(containsItemsetsWithMultipleItems){
-			prefixspanWithMultipleItems(mapSequenceID);	
-		}else{
-			// if this database does not have multiple items per itemset
-			// we use an optimize version of the same code
-			prefixspanWithSingleItems(mapSequenceID);	
-		}
+		//====== Remove infrequent items and store the sequences in a single array ================
+		createDatabase(frequentItems);
+		
+		// We note the sequences in which each item appears
+		createRootProjections();
+		
+		//============= WE EXPLORE EACH PROJECTED DATABASE  ================================
+		exploreRootItems();
+		
+		// release the memory used by the database
+		database = null;
+		rootProjections = null;
 	}
 	
 	/**
-	 * Remove infrequent items and explore each projected databas for itemsets of size 1
-	 * @param mapSequenceID the set of items with their frequencies
-	 * @throws IOException if error writing to file
+	 * Find the items appearing in at least minsup sequences, and check if the database
+	 * contains itemsets with multiple items.
+	 * @return the frequent items, by increasing order
 	 */
-	private void prefixspanWithSingleItems(
-			Map<Integer, List<Integer>> mapSequenceID) throws IOException {
-		//=============== REMOVE INFREQUENT ITEMS ========================
-		// We scan the database to remove infrequent items  and resize sequences after removal
+	private int[] findFrequentItems() {
+		containsItemsetsWithMultipleItems = false;
+		// We use a map to store the support of each item and the last sequence where it appears
+		// Key : item   Value :  {support, last sequence ID}
+		Map<Integer, int[]> mapSupport = new HashMap<Integer, int[]>();
 		// for each sequence in the current database
 		for(int i=0; i < sequenceDatabase.size(); i++){
 			int[] sequence  = sequenceDatabase.getSequences().get(i);
 			
-			// we will copy the frequent items one by one but not those items that are infrequent
-			// The following variable will be used to remember the position were to copy (we start at 0).
-			int currentPosition = 0;
-			
+			// number of items in the current itemset 
+			int itemCountInCurrentItemset = 0;
+			 
 			// for each token in this sequence (item, separator between itemsets (-1) or end of sequence (-2)
-			for(int j =0; j < sequence.length; j++){
-				int token = sequence[j];
-				
+			for(int token : sequence){
 				// if it is an item
 				if(token > 0){
-					boolean isFrequent = mapSequenceID.get(token).size() >= minsuppAbsolute;
-					
-					// if the item is frequent
-					if(isFrequent){
-						// copy the item to the current position
-						sequence[currentPosition] = token;
-						// increment the current position
-						currentPosition++;
-					}	
-				}else if(token == -2){
-					// if the sequence is not empty after having removed the infrequent items
-					if(currentPosition >0){
-						// copy the item to the current position
-						sequence[currentPosition] = -2;
-						
-						// now replace the previous array with the new array
-						int[] newSequence = new int[currentPosition+1];
-						System.arraycopy(sequence, 0, newSequence, 0, currentPosition+1);
-						sequenceDatabase.getSequences().set(i, newSequence);
-						// continue to next sequence
-						continue; 
-					}else{
-						// if the sequence is  empty, delete this sequence by replacing it with null
-						sequenceDatabase.getSequences().set(i, null);
+					int[] supportAndSequence = mapSupport.get(token);
+					if(supportAndSequence == null){
+						supportAndSequence = new int[] {0, -1};
+						mapSupport.put(token, supportAndSequence);
+					}
+					// count the sequence if it was not already counted for this item
+					if(supportAndSequence[1] != i){
+						supportAndSequence[0]++;
+						supportAndSequence[1] = i;
 					}
+					itemCountInCurrentItemset++;
+					// if this itemset contains more than 1 item, we will remember that this database
+					// contains sequence with multiple items for optimization purpose.
+					if(itemCountInCurrentItemset > 1){
+						containsItemsetsWithMultipleItems = true;
+					}
+				}else if(token == -1){
+					itemCountInCurrentItemset = 0;
 				}
 			}
 		}
 		
-		//============= WE EXPLORE EACH PROJECTED DATABASE  ================================
-		// For each frequent item
-		for(Entry<Integer, List<Integer>> entry : mapSequenceID.entrySet()){
-			int support = entry.getValue().size();
-			// if the item is frequent  (has a support >= minsup)
-			if(support >= minsuppAbsolute){ 
-				int item = entry.getKey();
-
-				// The prefix is a frequent sequential pattern.
-				// We save it in the result.
-				savePattern(item, support, entry.getValue());  
-
-				// We make a recursive call to try to find larger sequential
-				// patterns starting with this prefix
-				if(maximumPatternLength >1){
-					
-					// Create the prefix for this projected database by copying the item in the buffer
-					patternBuffer[0] = item;
-
-					// build the projected database for that item
-					List<PseudoSequence> projectedDatabase  = buildProjectedDatabaseSingleItems(item, entry.getValue());
-					
-					// recursive call
-					recursionSingleItems(projectedDatabase, 2, 0); 
-				}
+		// keep the frequent items
+		int[] frequentItems = new int[mapSupport.size()];
+		int frequentItemCount = 0;
+		for(Entry<Integer, int[]> entry : mapSupport.entrySet()){
+			if(entry.getValue()[0] >= minsuppAbsolute){
+				frequentItems[frequentItemCount++] = entry.getKey();
 			}
 		}
+		frequentItems = Arrays.copyOf(frequentItems, frequentItemCount);
+		Arrays.sort(frequentItems);
+		return frequentItems;
 	}
-
-
+	
 	/**
-	 * Remove infrequent items and explore each projected databas for itemsets of size 1
-	 * @param mapSequenceID the set of items with their frequencies
-	 * @throws IOException
+	 * Copy the sequences to a single array, without the infrequent items. Each item is replaced
+	 * by its index (from 1) in the array of frequent items, which keeps the order of items in itemsets.
+	 * If the itemsets all have a single item, the itemset separators (-1) are removed.
+	 * Sequences that are empty after removing the infrequent items are not copied.
+	 * @param frequentItems the frequent items, by increasing order
 	 */
-	private void prefixspanWithMultipleItems(Map<Integer, List<Integer>> mapSequenceID) throws IOException {
-
-		//=============== REMOVE INFREQUENT ITEMS ========================
-		// We scan the database to remove infrequent items  and resize sequences after removal
-		// for each sequence in the current database
+	private void createDatabase(int[] frequentItems) {
+		itemNames = new int[frequentItems.length + 1];
+		System.arraycopy(frequentItems, 0, itemNames, 1, frequentItems.length);
+		
+		// calculate the size of the array
+		int size = 0;
+		for(int[] sequence : sequenceDatabase.getSequences()){
+			size += sequence.length + 1;
+		}
+		database = new int[size];
+		sequenceStarts = new int[sequenceDatabase.size()];
+		sequenceIDs = new int[sequenceDatabase.size()];
+		databaseSequenceCount = 0;
+		
+		int currentPosition = 0;
+		// for each sequence in the database
 		for(int i=0; i < sequenceDatabase.size(); i++){
 			int[] sequence  = sequenceDatabase.getSequences().get(i);
-			
-			// we will copy the frequent items one by one but not those items that are infrequent
-			// The following variable will be used to remember the position were to copy (we start at 0).
-			int currentPosition = 0;
+			int sequenceStart = currentPosition;
 			// variable to count the number of items in the current itemset (after removing infrequent items)
 			int currentItemsetItemCount = 0;
 			
 			// for each token in this sequence (item, separator between itemsets (-1) or end of sequence (-2)
-			for(int j =0; j < sequence.length; j++){
+			for(int j =0; j < sequence.length && sequence[j] != -2; j++){
 				int token = sequence[j];
-				
 				// if it is an item
 				if(token > 0){
-					boolean isFrequent = mapSequenceID.get(token).size() >= minsuppAbsolute;
-					
-					// if the item is frequent
-					if(isFrequent){
-						// copy the item to the current position
-						sequence[currentPosition] = token;
-						// increment the current position
-						currentPosition++;
-						// increment the number of items in the current itemset
+					int index = Arrays.binarySearch(frequentItems, token);
+					// if the item is frequent, copy its index
+					if(index >= 0){
+						database[currentPosition++] = index + 1;
 						currentItemsetItemCount++;
-					}	
+					}
 				}else if(token == -1){
 					// if this itemset is not empty after having removed the infrequent items
-					if(currentItemsetItemCount >0){
-						// copy the itemset separator (-1) to the current position
-						sequence[currentPosition] = -1;
-						// increment the current position
-						currentPosition++;
-						// reset the number of items in the current itemset for the next itemset
-						currentItemsetItemCount = 0;
-					}
-				}else if(token == -2){
-					// if the sequence is not empty after having removed the infrequent items
-					if(currentPosition >0){
-						// copy the item to the current position
-						sequence[currentPosition] = -2;
-						
-						// now replace the previous array with the new array
-						int[] newSequence = new int[currentPosition+1];
-						System.arraycopy(sequence, 0, newSequence, 0, currentPosition+1);
-						sequenceDatabase.getSequences().set(i, newSequence);
-						// continue to next sequence
-						continue; 
-					}else{
-						// if the sequence is  empty, delete this sequence by replacing it with null
-						sequenceDatabase.getSequences().set(i, null);
+					if(containsItemsetsWithMultipleItems && currentItemsetItemCount >0){
+						database[currentPosition++] = -1;
 					}
+					currentItemsetItemCount = 0;
 				}
 			}
-		}
-		
-		//============= WE EXPLORE EACH PROJECTED DATABASE  ================================
-		// For each frequent item
-		for(Entry<Integer, List<Integer>> entry : mapSequenceID.entrySet()){
-			int support = entry.getValue().size();
-			// if the item is frequent  (has a support >= minsup)
-			if(support >= minsuppAbsolute){ 
-				int item = entry.getKey();
-
-				// The prefix is a frequent sequential pattern.
-				// We save it in the result.
-				savePattern(item, support, entry.getValue());  
-
-				// We make a recursive call to try to find larger sequential
-				// patterns starting with this prefix
-				if(maximumPatternLength >1){
-					
-					// Create the prefix for this projected database by copying the item in the buffer
-					patternBuffer[0] = item;
-
-					// build the projected database for that item
-					List<PseudoSequence> projectedDatabase  = buildProjectedDatabaseFirstTimeMultipleItems(item, entry.getValue());
-					
-					// recursive call
-					recursion(patternBuffer, projectedDatabase, 2, 0); 
-				}
+			// if the sequence is not empty after having removed the infrequent items
+			if(currentPosition > sequenceStart){
+				database[currentPosition++] = -2;
+				sequenceStarts[databaseSequenceCount] = sequenceStart;
+				sequenceIDs[databaseSequenceCount] = i;
+				databaseSequenceCount++;
 			}
 		}
 	}
 	
 	/**
-	 * This method saves a sequential pattern containing a single item to the output file or
-	 * in memory, depending on if the user provided an output file path or not
-	 * when he launched the algorithm
-	 * @param item the pattern to be saved.
-	 * @param support the support of this item
-	 * @param sequenceIDs the list of sequences containing this item
-	 * @throws IOException exception if error while writing the output file.
+	 * Create the projected database of each frequent item, which contains, for each sequence
+	 * containing the item, the sequence ID and the position after the first occurrence of the item.
 	 */
-	private void savePattern(int item, int support, List<Integer> sequenceIDs) throws IOException {
-		// increase the number of pattern found for statistics purposes
-		patternCount++; 
-	
-		// if the result should be saved to a file
-		if(writer != null){
-			// create a StringBuilder
-			StringBuilder r = new StringBuilder();
-			r.append(item);
-			r.append(" -1 #SUP: ");
-			r.append(support);
-			if(showSequenceIdentifiers) {
-	        	r.append(" #SID: ");
-	        	for (Integer sid: sequenceIDs) {
-	        		r.append(sid);
-	        		r.append(" ");
-	        	}
+	private void createRootProjections() {
+		int itemCount = itemNames.length - 1;
+		// the last sequence (plus 1) where each item was found
+		int[] lastSequences = new int[itemCount + 1];
+		
+		// (1) count the sequences containing each item
+		rootStarts = new int[itemCount + 2];
+		for(int s = 0; s < databaseSequenceCount; s++){
+			for(int i = sequenceStarts[s]; database[i] != -2; i++){
+				int token = database[i];
+				if(token > 0 && lastSequences[token] != s + 1){
+					lastSequences[token] = s + 1;
+					rootStarts[token + 1]++;
+				}
 			}
-			// write the string to the file
-			writer.write(r.toString());
-			// start a new line
-			writer.newLine();
 		}
-		// otherwise the result is kept into memory
-		else{
-			SequentialPattern pattern = new SequentialPattern();
-			pattern.addItemset(new Itemset(item));
-			pattern.setSequenceIDs(sequenceIDs);
-			patterns.addSequence(pattern, 1);
+		for(int item = 1; item <= itemCount + 1; item++){
+			rootStarts[item] += rootStarts[item - 1];
 		}
-	}
-	
-	/**
-	 * Save a pattern containing two or more items to the output file (or in memory, depending on what the user prefer)
-	 * @param lastBufferPosition the last position in the buffer for this pattern
-	 * @param pseudoSequences the list of pseudosequences where this pattern appears.
-	 * @param length the pattern length in terms of number of items.
-	 * @throws IOException if error when writing to file
-	 */
-	private void savePattern(int lastBufferPosition, List<PseudoSequence> pseudoSequences) throws IOException {
-		// increase the number of pattern found for statistics purposes
-		patternCount++;  
-	
-		// if the result should be saved to a file
-		if(writer != null){
-
-			// create a StringBuilder
-			StringBuilder r = new StringBuilder();
-			for(int i=0; i <= lastBufferPosition; i++){
-				r.append(patternBuffer[i]);
-				r.append(" ");
-			}
-			//-------------------------------------
-			// PHILIPPE: BUG FIX 2017-10 : some -1 were missing in the output file
-			// for some patterns. This fixes the problem.
-			if(patternBuffer[lastBufferPosition] != -1){
-				r.append("-1 ");
-			}
-			//-------------------------------------
-			r.append("#SUP: ");
-			r.append(pseudoSequences.size());
-			if(showSequenceIdentifiers) {
-	        	r.append(" #SID: ");
-	        	for (PseudoSequence sequence: pseudoSequences) {
-	        		r.append(sequence.sequenceID);
-	        		r.append(" ");
-	        	}
-			}
-			// write the string to the file
-			writer.write(r.toString());
-			// start a new line
-			writer.newLine();
-		}
-		// otherwise the result is kept into memory
-		else{
-			SequentialPattern pattern = new SequentialPattern();
-			int itemsetCount  =0;
-			Itemset currentItemset = new Itemset();
-			for(int i=0; i <= lastBufferPosition; i++){
-				int token = patternBuffer[i];
-				if(token>0){
-					currentItemset.addItem(token);
-				}else if(token == -1){
-					pattern.addItemset(currentItemset);
-					currentItemset = new Itemset();
-					itemsetCount++;
+		
+		// (2) store the first occurrence of each item in each sequence
+		rootProjections = new int[rootStarts[itemCount + 1] * 2];
+		int[] cursors = Arrays.copyOf(rootStarts, itemCount + 1);
+		Arrays.fill(lastSequences, 0);
+		for(int s = 0; s < databaseSequenceCount; s++){
+			for(int i = sequenceStarts[s]; database[i] != -2; i++){
+				int token = database[i];
+				if(token > 0 && lastSequences[token] != s + 1){
+					lastSequences[token] = s + 1;
+					int cursor = cursors[token]++;
+					rootProjections[cursor * 2] = sequenceIDs[s];
+					rootProjections[cursor * 2 + 1] = i + 1;
 				}
 			}
-			pattern.addItemset(currentItemset);
-			itemsetCount++;
-			
-			List<Integer> sequencesIDs = new ArrayList<Integer>(pseudoSequences.size());
-			for (int i = 0; i< pseudoSequences.size(); i++) {
-				sequencesIDs.add(pseudoSequences.get(i).sequenceID);
-        	}
-			pattern.setSequenceIDs(sequencesIDs);
-//			System.out.println(pattern);
-			patterns.addSequence(pattern, itemsetCount);
 		}
 	}
 	
-	
 	/**
-	 * For each item, calculate the sequence id of sequences containing that item
-	 * @return Map of items to sequence IDs that contains each item
+	 * Explore the projected database of each frequent item. If there are several threads,
+	 * the items are explored by the tasks of a ForkJoinPool.
+	 * @throws IOException exception if error while writing the output file
 	 */
-	private Map<Integer, List<Integer>> findSequencesContainingItems() {
-		// number of items in the current itemset 
-		int itemCountInCurrentItemset;
-		// We use a map to store the sequence IDs where an item appear
-		// Key : item   Value :  a set of sequence IDs
-		Map<Integer, List<Integer>> mapSequenceID = new HashMap<Integer, List<Integer>>(); 
-		// for each sequence in the current database
-		for(int i=0; i < sequenceDatabase.size(); i++){
-			int[] sequence  = sequenceDatabase.getSequences().get(i);
-			
-			 itemCountInCurrentItemset = 0;
-			 
-			// for each token in this sequence (item, separator between itemsets (-1) or end of sequence (-2)
-			for(int token : sequence){
-				// if it is an item
-				if(token > 0){
-					// get the set of sequence IDs for this item until now
-					List<Integer> sequenceIDs = mapSequenceID.get(token);
-					if(sequenceIDs == null){
-						// if the set does not exist, create one
-						sequenceIDs = new ArrayList<Integer>();
-						mapSequenceID.put(token, sequenceIDs);
-					}
-					// add the sequence ID to the 
-					// set of sequences IDs of this item
-					// if it is not already there
-					if(sequenceIDs.size() == 0 || sequenceIDs.get(sequenceIDs.size() - 1) != i){
-						sequenceIDs.add(i);
-					}
-					itemCountInCurrentItemset++;
-					// if this itemset contains more than 1 item, we will remember that this database
-					// contains sequence with multiple items for optimization purpose.
-					if(itemCountInCurrentItemset > 1){
-						containsItemsetsWithMultipleItems = true;
-					}
-				}else if(token == -1){
-					itemCountInCurrentItemset = 0;
-				}
-			}
+	private void exploreRootItems() throws IOException {
+		nextRootItem = new AtomicInteger(1);
+		if(threadCount == 1){
+			new ProjectionMiner().mineRootItems();
+			return;
 		}
-//		System.out.println(mapSequenceID);
-		return mapSequenceID;
-	}
-	
-	/**
-	 * Create a projected database by pseudo-projection with the initial database and a given item.
-	 * @param item The item to use to make the pseudo-projection
-	 * @param sequenceDatabase2 The current database.
-	 * @param list  The set of sequence ids containing the item
-	 * @return the projected database.
-	 */
-	private List<PseudoSequence> buildProjectedDatabaseSingleItems(int item, List<Integer> sequenceIDs) {
-		// We create a new projected database
-		List<PseudoSequence> projectedDatabase = new ArrayList<PseudoSequence>();
-
-		// for each sequence that contains the current item
-loopSeq:for(int sequenceID : sequenceIDs){ 
-			int[] sequence = sequenceDatabase.getSequences().get(sequenceID);
-			
-			// for each token in this sequence (item  or end of sequence (-2)
-			for(int j=0; sequence[j] != -2; j++){
-				int token = sequence[j];
-				
-				// if it is the item that we want to use for projection
-				if(token == item){
-					// if it is not the end of the sequence
-					if(sequence[j+1] != -2){
-						PseudoSequence pseudoSequence = new PseudoSequence(sequenceID, j+1);
-						projectedDatabase.add(pseudoSequence);
-					}
-					
-					// break because we have found what we have created the pseudosequence for the current sequence
-					continue loopSeq;
-				}
+		ForkJoinPool pool = new ForkJoinPool(threadCount);
+		try {
+			// each task takes the next item that is not explored, until all items are explored
+			List<ForkJoinTask<Void>> tasks = new ArrayList<ForkJoinTask<Void>>();
+			for(int i = 0; i < threadCount; i++){
+				tasks.add(pool.submit(new MiningTask()));
+			}
+			for(ForkJoinTask<Void> task : tasks){
+				task.join();
 			}
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}finally {
+			pool.shutdownNow();
 		}
-		return projectedDatabase; // return the projected database
 	}
 	
 	/**
-	 * Create a projected database by pseudo-projection with the initial database and a given item.
-	 * @param item The item to use to make the pseudo-projection
-	 * @param sequenceDatabase2 The current database.
-	 * @param list  The set of sequence ids containing the item
-	 * @return the projected database.
+	 * A task that explores the projected databases of frequent items until all items are explored.
 	 */
-	private List<PseudoSequence> buildProjectedDatabaseFirstTimeMultipleItems(int item, List<Integer> sequenceIDs) {
-		// We create a new projected database
-		List<PseudoSequence> projectedDatabase = new ArrayList<PseudoSequence>();
+	private class MiningTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
 
-		// for each sequence that contains the current item
-loopSeq:for(int sequenceID : sequenceIDs){ 
-			int[] sequence = sequenceDatabase.getSequences().get(sequenceID);
-			
-			// for each token in this sequence (item, separator between itemsets (-1) or end of sequence (-2)
-			for(int j=0; sequence[j] != -2; j++){
-				int token = sequence[j];
-				
-				// if it is the item that we want to use for projection
-				if(token == item){
-					// if it is not the end of the sequence
-					boolean isEndOfSequence = sequence[j+1] == -1 && sequence[j+2] == -2;
-					if(isEndOfSequence == false){
-						PseudoSequence pseudoSequence = new PseudoSequence(sequenceID, j+1);
-						projectedDatabase.add(pseudoSequence);
-					}
-					
-					// break because we have found what we have created the pseudosequence for the current sequence
-					continue loopSeq;
-				}
+		@Override
+		protected void compute() {
+			try {
+				new ProjectionMiner().mineRootItems();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
 			}
 		}
-
-		return projectedDatabase; // return the projected database
 	}
 	
-
 	/**
-	 * Method to recursively grow a given sequential pattern.
-	 * @param database the current projected sequence database
-	 * @param k  the prefix length in terms of items
-	 * @param lastBufferPosition the last position used in the buffer for storing the current prefix
-	 * @throws IOException exception if there is an error writing to the output file
+	 * This class grows the patterns starting with some frequent items, using its own buffers
+	 * so that several threads can explore different items.
+	 * <br/><br/>
+	 * 
+	 * A projected database is a list of pseudo-sequences stored in an array of ints, where each
+	 * pseudo-sequence is a pair (sequence ID, position in the database array). The projected databases
+	 * of the extensions of a pattern are created at the same time in the array of the depth of
+	 * the pattern, which is reused for the next pattern of the same depth.
 	 */
-	private void recursionSingleItems(List<PseudoSequence> database, int k, int lastBufferPosition) throws IOException {	
-//		for(int i=0; i<= lastBufferPosition; i++){
-//			System.out.print(patternBuffer[i] + " ");
-//		}
-//		System.out.println();
-//		System.out.println("---");
+	private class ProjectionMiner {
+		/** buffer for storing the current pattern that is mined (indexes of items, and -1 between itemsets) */
+		private int[] patternBuffer = new int[64];
 		
+		/** for each depth, the projected databases of the frequent extensions of the pattern */
+		private int[][] projections = new int[16][];
+		/** for each depth, the frequent extensions of the pattern (see {@link #addOccurrence(int, int, int)}) */
+		private int[][] extensions = new int[16][];
+		/** for each depth, the first pseudo-sequence of the projected database of each extension (and the end) */
+		private int[][] extensionStarts = new int[16][];
 		
-		// find frequent items of size 1 in the current projected database, and at the same
-		// time create their respective projected databases
-		Map<Integer,List<PseudoSequence>> itemsPseudoSequences = findAllFrequentPairsSingleItems(database, lastBufferPosition);
+		/** the number of sequences containing each extension of the current pattern */
+		private final int[] counts;
+		/** the last sequence ID (plus 1) where each extension of the current pattern was found */
+		private final int[] lastSequences;
+		/** the next position in the projected database of each extension, when it is created */
+		private final int[] cursors;
+		/** the extensions found for the current pattern */
+		private final int[] foundExtensions;
+		/** the number of extensions found for the current pattern */
+		private int foundExtensionCount = 0;
+		/** the first occurrence of the extensions in each sequence (extension, sequence ID, position) */
+		private int[] occurrences = new int[192];
+		/** the number of ints used in the occurrence array */
+		private int occurrenceSize = 0;
 		
-		// release the memory used by the database
-		database = null;
+		/** the patterns that are not written to the output file yet */
+		private final StringBuilder output = new StringBuilder();
+		/** the number of patterns found by this miner */
+		private int minerPatternCount = 0;
 		
-//		for(Pair pair : pairs){
-//			System.out.print(pair.item + " isPostfix? " + pair.isPostfix() + "    " );
-//			for(PseudoSequence seq: pair.getPseudoSequences()){
-//				System.out.print( seq.getOriginalSequenceID() + "," + seq.indexFirstItem + " ");
-//			}
-//			System.out.println();
-//		}
-//		System.out.println("DEBUG");
-	
-		// For each pair found (a pair is an item with a boolean indicating if it
-		// appears in an itemset that is cut (a postfix) or not, and the sequence IDs
-		// where it appears in the projected database).
-		for(Entry<Integer, List<PseudoSequence>> entry : itemsPseudoSequences.entrySet()){
-			// if the item is frequent in the current projected database
-			if(entry.getValue().size() >= minsuppAbsolute){
-
-				//Create the new pattern by appending the item as a new itemset to the sequence
-				patternBuffer[lastBufferPosition+1] = -1;
-				patternBuffer[lastBufferPosition+2] = entry.getKey();
-				
-				// save the pattern
-				savePattern(lastBufferPosition+2, entry.getValue());
+		/**
+		 * Constructor
+		 */
+		ProjectionMiner(){
+			int extensionCount = itemNames.length * 2;
+			counts = new int[extensionCount];
+			lastSequences = new int[extensionCount];
+			cursors = new int[extensionCount];
+			foundExtensions = new int[extensionCount];
+		}
+		
+		/**
+		 * Take the next frequent item that is not explored, and grow the patterns starting with this
+		 * item, until all items are explored.
+		 * @throws IOException exception if error while writing the output file
+		 */
+		void mineRootItems() throws IOException {
+			int itemCount = itemNames.length - 1;
+			int item;
+			while((item = nextRootItem.getAndIncrement()) <= itemCount){
+				// The prefix is a frequent sequential pattern.
+				// We save it in the result.
+				patternBuffer[0] = item;
+				savePattern(0, rootProjections, rootStarts[item], rootStarts[item + 1]);
 				
-				// make a recursive call
-				if( k < maximumPatternLength){
-					recursionSingleItems(entry.getValue(), k+1, lastBufferPosition+2);
+				// We make a recursive call to try to find larger sequential
+				// patterns starting with this prefix
+				if(maximumPatternLength >1){
+					recursion(rootProjections, rootStarts[item], rootStarts[item + 1], 0, 2, 0);
 				}
 			}
+			// write the remaining patterns and update the statistics
+			if(writer != null){
+				flushOutput();
+			}
+			synchronized(AlgoPrefixSpan.this){
+				patternCount += minerPatternCount;
+			}
 		}
 		
-		// check the current memory usage
-		MemoryLogger.getInstance().checkMemory();
-	}
-	/**
-	 * Method to recursively grow a given sequential pattern.
-	 * @param database the current projected sequence database
-	 * @param k  the prefix length in terms of items
-	 * @param patternBuffer  the current sequential pattern that we want to try to grow
-	 * @param lastBufferPosition the last position used in the buffer for storing the current prefix
-	 * @throws IOException exception if there is an error writing to the output file
-	 */
-	private void recursion(int[] patternBuffer, List<PseudoSequence> database, int k, int lastBufferPosition) throws IOException {	
-//		for(int i=0; i<= lastBufferPosition; i++){
-//			System.out.print(patternBuffer[i] + " ");
-//		}
-//		System.out.println();
-//		System.out.println("---");
-		
-		
-		// FIND FREQUENT PAIRS
-		// find frequent items of size 1 in the current projected database, and at the same
-		// time create their respective projected databases
-		// We create some maps of pairs for storing the frequent items. The following object
-		// contains two maps. The first one is for item extending the current pattern as an i-extension,
-		// while the second is for item extending the current pattern as an s-extension.
-		MapFrequentPairs mapsPairs = findAllFrequentPairs(database, lastBufferPosition);
-		
-		// release the memory used by the database
-		database = null;
-		
-//		for(Pair pair : pairs){
-//			System.out.print(pair.item + " isPostfix? " + pair.isPostfix() + "    " );
-//			for(PseudoSequence seq: pair.getPseudoSequences()){
-//				System.out.print( seq.getOriginalSequenceID() + "," + seq.indexFirstItem + " ");
-//			}
-//			System.out.println();
-//		}
-//		System.out.println("DEBUG");
-	
-		// For each pair found that is in a postfix itemset(a pair is an item with a boolean indicating if it
-		// appears in an itemset that is cut (a postfix) or not, and the sequence IDs
-		// where it appears in the projected database).
-		for(Entry<Pair,Pair> entry : mapsPairs.mapPairsInPostfix.entrySet()){
-			Pair pair = entry.getKey();
+		/**
+		 * Method to recursively grow a given sequential pattern.
+		 * @param database the array containing the projected database of the pattern
+		 * @param start the first pseudo-sequence of the projected database in the array
+		 * @param end the pseudo-sequence after the last pseudo-sequence
+		 * @param depth the depth of the pattern (the array of this depth is used for the projected databases of its extensions)
+		 * @param k  the prefix length in terms of items
+		 * @param lastBufferPosition the last position used in the buffer for storing the current prefix
+		 * @throws IOException exception if there is an error writing to the output file
+		 */
+		private void recursion(int[] database, int start, int end, int depth, int k, int lastBufferPosition) throws IOException {
+			// find frequent items of size 1 in the current projected database, and at the same
+			// time create their respective projected databases
+			findExtensions(database, start, end, lastBufferPosition);
+			int extensionCount = createProjections(depth);
+			int[] depthExtensions = extensions[depth];
+			int[] depthStarts = extensionStarts[depth];
+			int[] depthProjections = projections[depth];
 			
-			// if the item is frequent in the current projected database
-			if(pair.getCount() >= minsuppAbsolute){
-
-				int newBuferPosition = lastBufferPosition;
-				// we append it to the last itemset of the prefix
-				newBuferPosition++;
-				patternBuffer[newBuferPosition] = pair.item;
-				
-				// save the pattern
-				savePattern(newBuferPosition, pair.getPseudoSequences());
+			if(patternBuffer.length < lastBufferPosition + 3){
+				patternBuffer = Arrays.copyOf(patternBuffer, patternBuffer.length * 2);
+			}
+			// For each frequent extension
+			for(int i = 0; i < extensionCount; i++){
+				int extension = depthExtensions[i];
 				
-				// make a recursive call
-				if( k < maximumPatternLength){
-					recursion(patternBuffer, pair.getPseudoSequences(), k+1, newBuferPosition);
+				int newBufferPosition = lastBufferPosition;
+				// if the item is appended to the sequence as a new itemset
+				if((extension & 1) == 0){
+					newBufferPosition++;
+					patternBuffer[newBufferPosition] = -1;
 				}
-			}
-		}
-		
-		// For each pair found representing an item that is not in a postfix
-		for(Entry<Pair,Pair> entry : mapsPairs.mapPairs.entrySet()){
-			Pair pair = entry.getKey();
-			// if the item is frequent in the current projected database
-			if(pair.getCount() >= minsuppAbsolute){
-
-				int newBuferPosition = lastBufferPosition;
-				// we append it to the last itemset of the prefix
-				newBuferPosition++;
-				patternBuffer[newBuferPosition] = -1;
-				newBuferPosition++;
-				patternBuffer[newBuferPosition] = pair.item;
+				newBufferPosition++;
+				patternBuffer[newBufferPosition] = extension >>> 1;
 				
 				// save the pattern
-				savePattern(newBuferPosition, pair.getPseudoSequences());
+				savePattern(newBufferPosition, depthProjections, depthStarts[i], depthStarts[i + 1]);
 				
 				// make a recursive call
 				if( k < maximumPatternLength){
-					recursion(patternBuffer, pair.getPseudoSequences(), k+1, newBuferPosition);
+					recursion(depthProjections, depthStarts[i], depthStarts[i + 1], depth + 1, k+1, newBufferPosition);
 				}
 			}
+			
+			// check the current memory usage
+			MemoryLogger.getInstance().checkMemory();
 		}
 		
-		// check the current memory usage
-		MemoryLogger.getInstance().checkMemory();
-	}
-	
-	/**
-	 * Method to find all frequent items in a projected sequence database
-	 * @param sequences  the set of sequences
-	 * @param patternBuffer  the current sequential pattern that we want to try to grow
-	 * @param lastBufferPosition the last position used in the buffer for storing the current prefix
-	 * @return A list of pairs, where a pair is an item with (1) a boolean indicating if it
-	 *         is in an itemset that is "cut" and (2) the sequence IDs where it occurs.
-	 */
-	protected Map<Integer,List<PseudoSequence>>  findAllFrequentPairsSingleItems(List<PseudoSequence> sequences, int lastBufferPosition){
-		// We use a Map the store the pairs.
-		Map<Integer,List<PseudoSequence>>  mapItemsPseudoSequences = new HashMap<Integer,List<PseudoSequence>>();
-
-		// for each sequence
-		for(PseudoSequence pseudoSequence : sequences){
+		/**
+		 * Find the extensions of the current pattern in a projected database, and their first
+		 * occurrence in each pseudo-sequence.
+		 * @param projection the array containing the projected database
+		 * @param start the first pseudo-sequence of the projected database in the array
+		 * @param end the pseudo-sequence after the last pseudo-sequence
+		 * @param lastBufferPosition the last position used in the buffer for storing the current prefix
+		 */
+		private void findExtensions(int[] projection, int start, int end, int lastBufferPosition) {
+			foundExtensionCount = 0;
+			occurrenceSize = 0;
 			
-			// for each sequence
-			int sequenceID = pseudoSequence.getOriginalSequenceID();
-			int[] sequence = sequenceDatabase.getSequences().get(sequenceID);
+			// find the position of the first item of the last itemset of the current sequential pattern that is grown
+			int firstPositionOfLastItemsetInBuffer = lastBufferPosition;
+			while(firstPositionOfLastItemsetInBuffer > 0 && patternBuffer[firstPositionOfLastItemsetInBuffer - 1] != -1){
+				firstPositionOfLastItemsetInBuffer--;
+			}
 			
-			// for each token in this sequence 
-			for(int i = pseudoSequence.indexFirstItem;  sequence[i] != -2 ; i++){
-				int token = sequence[i];
+			// for each pseudo-sequence
+			for(int p = start; p < end; p++){
+				int sequenceID = projection[p * 2];
+				int firstPosition = projection[p * 2 + 1];
 				
-				// if it is an item
-				if(token > 0){
-					// get the pair object stored in the map if there is one already
-					List<PseudoSequence> listSequences = mapItemsPseudoSequences.get(token);
-					// if there is no pair object yet
-					if(listSequences == null){
-						listSequences = new ArrayList<PseudoSequence>();
-						// store the pair object that we created
-						mapItemsPseudoSequences.put(token, listSequences);
+				// if this database does not have multiple items per itemset, each item is a new itemset
+				if(containsItemsetsWithMultipleItems == false){
+					for(int i = firstPosition; database[i] != -2; i++){
+						addOccurrence(database[i] << 1, sequenceID, i + 1);
 					}
+					continue;
+				}
+				
+				// check if the first itemset of that sequence is a postfix
+				// It is a postfix (the itemset is cut) if the previous item is a -1 indicating
+				// the end of an itemset
+				boolean currentItemsetIsPostfix = (database[firstPosition - 1] != -1);
+				boolean isFirstItemset = true;
+				// use a variable to try to match the last itemset of the pattern in the buffer
+				int positionToBeMatched = firstPositionOfLastItemsetInBuffer;
+				
+				// for each token in this sequence (item, separator between itemsets (-1) or end of sequence (-2)
+				for(int i = firstPosition; database[i] != -2; i++){
+					int token = database[i];
 					
-					// Check if that sequence as already been added to the projected database of this item
-					boolean ok = true;
-					if(listSequences.size() > 0){
-						ok = listSequences.get(listSequences.size() - 1).sequenceID != sequenceID;
-					}
-					// if not we add it
-					if(ok){
-						listSequences.add(new PseudoSequence(sequenceID, i+1));
+					// if it is an item
+					if(token > 0){
+						if(currentItemsetIsPostfix){
+							// the item can be appended to the last itemset of the pattern
+							addOccurrence((token << 1) | 1, sequenceID, i + 1);
+							// if the current itemset is a postfix and it is not the first itemset
+							// we must also consider that it may not be a postfix for extending the current prefix
+							if(isFirstItemset == false){
+								addOccurrence(token << 1, sequenceID, i + 1);
+							}
+						}else{
+							addOccurrence(token << 1, sequenceID, i + 1);
+							//  try to match this item with the last itemset in the prefix
+							if(patternBuffer[positionToBeMatched] == token){
+								positionToBeMatched++;
+								if(positionToBeMatched > lastBufferPosition){
+									currentItemsetIsPostfix = true;
+								}
+							}
+						}
+					}else if(token == -1){
+						isFirstItemset = false;
+						currentItemsetIsPostfix = false;
+						positionToBeMatched = firstPositionOfLastItemsetInBuffer;
 					}
 				}
 			}
 		}
-		MemoryLogger.getInstance().checkMemory();  // check the memory for statistics.
-		// return the map of pairs
-		return mapItemsPseudoSequences;
-	}
-	
-	
-	/**
-	 * This class contains two maps, which are used for counting the
-	 * frequencies of items, whether in a postfix itemset or a normal itemset.
-	 */
-	public class MapFrequentPairs{
-	    public final Map<Pair, Pair>  mapPairs = new HashMap<Pair, Pair>();
-	    public final Map<Pair, Pair>  mapPairsInPostfix = new HashMap<Pair, Pair>();
-	};
-
-	/**
-	 * Method to find all frequent items in a projected sequence database
-	 * @param sequences  the set of sequences
-	 * @param lastBufferPosition the last position used in the buffer for storing the current prefix
-	 * @return A list of pairs, where a pair is an item with (1) a boolean indicating if it
-	 *         is in an itemset that is "cut" and (2) the sequence IDs where it occurs.
-	 */
-	protected MapFrequentPairs findAllFrequentPairs(List<PseudoSequence> sequences, int lastBufferPosition){
-		// We use an object containing two maps the store the pairs.
-		MapFrequentPairs mapsPairs = new MapFrequentPairs();
-		
-		// find the position of the first item of the last itemset of the current sequential pattern that is grown
-		int firstPositionOfLastItemsetInBuffer = lastBufferPosition;
-		while(lastBufferPosition >0){
-			firstPositionOfLastItemsetInBuffer--;
-			if(firstPositionOfLastItemsetInBuffer < 0 || patternBuffer[firstPositionOfLastItemsetInBuffer] == -1){
-				firstPositionOfLastItemsetInBuffer++;
-				break;
-			}
-		};
 		
-		// use a variable to try to match the last itemset of the pattern in the buffer
-		int positionToBeMatched = firstPositionOfLastItemsetInBuffer;
+		/**
+		 * Record the occurrence of an extension in a sequence, if it is the first occurrence in this sequence
+		 * (the pseudo-sequences are visited by increasing order of sequence ID).
+		 * @param extension the index of the item multiplied by 2, plus 1 if the item is
+		 *        appended to the last itemset of the pattern
+		 * @param sequenceID the sequence ID
+		 * @param position the position after the item in the database array
+		 */
+		private void addOccurrence(int extension, int sequenceID, int position) {
+			if(lastSequences[extension] == sequenceID + 1){
+				return;
+			}
+			lastSequences[extension] = sequenceID + 1;
+			if(counts[extension]++ == 0){
+				foundExtensions[foundExtensionCount++] = extension;
+			}
+			if(occurrenceSize + 3 > occurrences.length){
+				occurrences = Arrays.copyOf(occurrences, occurrences.length * 2);
+			}
+			occurrences[occurrenceSize++] = extension;
+			occurrences[occurrenceSize++] = sequenceID;
+			occurrences[occurrenceSize++] = position;
+		}
 		
-		// for each sequence
-		for(PseudoSequence pseudoSequence : sequences){
+		/**
+		 * Create the projected databases of the frequent extensions that were found, in the array of a depth.
+		 * @param depth the depth
+		 * @return the number of frequent extensions
+		 */
+		private int createProjections(int depth) {
+			if(depth == projections.length){
+				projections = Arrays.copyOf(projections, depth * 2);
+				extensions = Arrays.copyOf(extensions, depth * 2);
+				extensionStarts = Arrays.copyOf(extensionStarts, depth * 2);
+			}
+			if(extensions[depth] == null || extensions[depth].length < foundExtensionCount){
+				extensions[depth] = new int[Math.max(foundExtensionCount, 16)];
+				extensionStarts[depth] = new int[Math.max(foundExtensionCount, 16) + 1];
+			}
+			int[] depthExtensions = extensions[depth];
+			int[] depthStarts = extensionStarts[depth];
 			
-			// for each sequence
-			int sequenceID = pseudoSequence.getOriginalSequenceID();
-			int[] sequence = sequenceDatabase.getSequences().get(sequenceID);
+			// keep the frequent extensions, sorted by item
+			int extensionCount = 0;
+			for(int i = 0; i < foundExtensionCount; i++){
+				if(counts[foundExtensions[i]] >= minsuppAbsolute){
+					depthExtensions[extensionCount++] = foundExtensions[i];
+				}
+			}
+			Arrays.sort(depthExtensions, 0, extensionCount);
 			
-			// check if the first itemset of that sequence is a postfix
-			// It is a postfix (the itemset is cut) if the previous item is a -1 indicating
-			// the end of an itemset
-			int previousItem = sequence[pseudoSequence.indexFirstItem - 1];
-			boolean currentItemsetIsPostfix = (previousItem != - 1);
-			boolean isFirstItemset = true;
+			// reserve the space of the projected database of each frequent extension
+			int size = 0;
+			for(int i = 0; i < extensionCount; i++){
+				depthStarts[i] = size;
+				cursors[depthExtensions[i]] = size;
+				size += counts[depthExtensions[i]];
+			}
+			depthStarts[extensionCount] = size;
+			if(projections[depth] == null || projections[depth].length < size * 2){
+				projections[depth] = new int[Math.max(size * 2, 64)];
+			}
+			int[] depthProjections = projections[depth];
 			
-			// for each token in this sequence (item, separator between itemsets (-1) or end of sequence (-2)
-			for(int i = pseudoSequence.indexFirstItem;  sequence[i] != -2 ; i++){
-				int token = sequence[i];
-				
-				// if it is an item
-				if(token > 0){
-					
-					// create the pair corresponding to this item
-					Pair pair = new Pair(token);   
-					// get the pair object store in the map if there is one already
-					Pair oldPair;
-					if(currentItemsetIsPostfix){
-						oldPair = mapsPairs.mapPairsInPostfix.get(pair);
-					}else{
-						oldPair = mapsPairs.mapPairs.get(pair);
-					}
-					// if there is no pair object yet
-					if(oldPair == null){
-						// store the pair object that we created
-						if(currentItemsetIsPostfix){
-							mapsPairs.mapPairsInPostfix.put(pair, pair);
-						}else{
-							mapsPairs.mapPairs.put(pair, pair);
-						}
-					}else{
-						// otherwise use the old one
-						pair = oldPair;
-					}
-					
-					// Check if that sequence as already been added to the projected database of this item
-					boolean ok = true;
-					if(pair.getPseudoSequences().size() > 0){
-						ok = pair.getPseudoSequences().get(pair.getPseudoSequences().size() - 1).sequenceID != sequenceID;
-					}
-					// if not we add it
-					if(ok){
-						pair.getPseudoSequences().add(new PseudoSequence(sequenceID, i+1));
-					}
-					
-					///////// ====== IMPORTANT =========
-					// if the current itemset is a postfix and it is not the first itemset
-					// we must also consider that it may not be a postfix for extending the current prefix
-					if(currentItemsetIsPostfix && isFirstItemset == false){
-						// create the pair corresponding to this item
-						 pair = new Pair(token);     // FALSE !!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!
-						// get the pair object store in the map if there is one already
-						 oldPair = mapsPairs.mapPairs.get(pair);
-						// if there is no pair object yet
-						if(oldPair == null){
-							// store the pair object that we created
-							mapsPairs.mapPairs.put(pair, pair);
-						}else{
-							// otherwise use the old one
-							pair = oldPair;
-						}
-						
-						// Check if that sequence as already been added to the projected database of this item
-						ok = true;
-						if(pair.getPseudoSequences().size() > 0){
-							ok = pair.getPseudoSequences().get(pair.getPseudoSequences().size() - 1).sequenceID != sequenceID;
-						}
-						// if not we add it
-						if(ok){
-							pair.getPseudoSequences().add(new PseudoSequence(sequenceID, i+1));
-						}
-						
-					}
-					//////////////////////////////////////////////////////////
-
-					
-					//  try to match this item with the last itemset in the prefix
-					if(currentItemsetIsPostfix == false && patternBuffer[positionToBeMatched] == token){
-						positionToBeMatched++;
-						if(positionToBeMatched > lastBufferPosition){
-							currentItemsetIsPostfix = true;
-						}
+			// copy the occurrences of the frequent extensions
+			for(int i = 0; i < occurrenceSize; i += 3){
+				int extension = occurrences[i];
+				if(counts[extension] >= minsuppAbsolute){
+					int cursor = cursors[extension]++;
+					depthProjections[cursor * 2] = occurrences[i + 1];
+					depthProjections[cursor * 2 + 1] = occurrences[i + 2];
+				}
+			}
+			
+			// reset the counters for the next pattern
+			for(int i = 0; i < foundExtensionCount; i++){
+				counts[foundExtensions[i]] = 0;
+				lastSequences[foundExtensions[i]] = 0;
+			}
+			return extensionCount;
+		}
+		
+		/**
+		 * Save a pattern to the output file (or in memory, depending on what the user prefer)
+		 * @param lastBufferPosition the last position in the buffer for this pattern
+		 * @param projection the array containing the projected database of the pattern
+		 * @param start the first pseudo-sequence of the projected database in the array
+		 * @param end the pseudo-sequence after the last pseudo-sequence
+		 * @throws IOException if error when writing to file
+		 */
+		private void savePattern(int lastBufferPosition, int[] projection, int start, int end) throws IOException {
+			// increase the number of pattern found for statistics purposes
+			minerPatternCount++;  
+		
+			// if the result should be saved to a file
+			if(writer != null){
+				for(int i=0; i <= lastBufferPosition; i++){
+					int token = patternBuffer[i];
+					output.append(token == -1 ? -1 : itemNames[token]);
+					output.append(' ');
+				}
+				output.append("-1 #SUP: ");
+				output.append(end - start);
+				if(showSequenceIdentifiers) {
+		        	output.append(" #SID: ");
+		        	for (int p = start; p < end; p++) {
+		        		output.append(projection[p * 2]);
+		        		output.append(' ');
+		        	}
+				}
+				output.append(System.lineSeparator());
+				if(output.length() >= OUTPUT_BUFFER_SIZE){
+					flushOutput();
+				}
+			}
+			// otherwise the result is kept into memory
+			else{
+				SequentialPattern pattern = new SequentialPattern();
+				int itemsetCount  =0;
+				Itemset currentItemset = new Itemset();
+				for(int i=0; i <= lastBufferPosition; i++){
+					int token = patternBuffer[i];
+					if(token>0){
+						currentItemset.addItem(itemNames[token]);
+					}else if(token == -1){
+						pattern.addItemset(currentItemset);
+						currentItemset = new Itemset();
+						itemsetCount++;
 					}
-
-				}else if(token == -1){
-					isFirstItemset = false;
-					currentItemsetIsPostfix = false;
-					positionToBeMatched = firstPositionOfLastItemsetInBuffer;
+				}
+				pattern.addItemset(currentItemset);
+				itemsetCount++;
+				
+				List<Integer> sequencesIDs = new ArrayList<Integer>(end - start);
+				for (int p = start; p < end; p++) {
+					sequencesIDs.add(projection[p * 2]);
+	        	}
+				pattern.setSequenceIDs(sequencesIDs);
+				synchronized(patterns){
+					patterns.addSequence(pattern, itemsetCount);
 				}
 			}
 		}
-		MemoryLogger.getInstance().checkMemory();  // check the memory for statistics.
-		// return the map of pairs
-		return mapsPairs;
+		
+		/**
+		 * Write the patterns of the output buffer to the output file
+		 * @throws IOException if error when writing to file
+		 */
+		private void flushOutput() throws IOException {
+			synchronized(writer){
+				writer.write(output.toString());
+			}
+			output.setLength(0);
+		}
 	}
 
 	/**
@@ -993,5 +848,17 @@ loopSeq:for(int sequenceID : sequenceIDs){
 	public void setShowSequenceIdentifiers(boolean showSequenceIdentifiers) {
 		this.showSequenceIdentifiers = showSequenceIdentifiers;
 	}
+	
+	/**
+	 * Set the number of threads used to explore the patterns starting with different items
+	 * (the default is 1). With several threads, the patterns are not found in the same order.
+	 * @param threadCount the number of threads (at least 1)
+	 */
+	public void setThreadCount(int threadCount) {
+		if(threadCount < 1) {
+			throw new IllegalArgumentException("The number of threads must be at least 1");
+		}
+		this.threadCount = threadCount;
+	}
 
 }
@@ -5,15 +5,10 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ForkJoinPool;
 
 import ca.pfv.spmf.algorithms.sequentialpatterns.spade_spam_AGP.candidatePatternsGeneration.CandidateGenerator;
 import ca.pfv.spmf.algorithms.sequentialpatterns.spade_spam_AGP.dataStructures.Itemset;
@@ -92,6 +87,21 @@ public class AlgoCMSPADE {
      * Number of frequent patterns found by the algorithm
      */
     private int numberOfFrequentPatterns;
+    /**
+     * Co-occurrence map of the items: key: item   value:  another item that
+     * followed the first item + support
+     * (could be replaced with a triangular matrix...)
+     */
+    private Map<Integer, Map<Integer, Integer>> coocMapAfter;
+    /**
+     * Co-occurrence map of the items: key: item   value:  another item that
+     * appeared in the same itemset as the first item + support
+     */
+    private Map<Integer, Map<Integer, Integer>> coocMapEquals;
+    /**
+     * The number of threads used by the parallel version of the algorithm
+     */
+    private int threadCount = Runtime.getRuntime().availableProcessors();
 
     
     /**
@@ -233,10 +243,44 @@ public class AlgoCMSPADE {
         }
 
         //  NEW-CODE-PFV 2013
-        // Map: key: item   value:  another item that followed the first item + support
-        // (could be replaced with a triangular matrix...)
-        Map<Integer, Map<Integer, Integer>> coocMapAfter = new HashMap<Integer, Map<Integer, Integer>>(1000);
-        Map<Integer, Map<Integer, Integer>> coocMapEquals = new HashMap<Integer, Map<Integer, Integer>>(1000);
+        createCoocMaps(database);
+
+        database = null;
+
+        //We define the root class
+        EquivalenceClass rootClass = new EquivalenceClass(null);
+        /*And we insert the equivalence classes corresponding to the frequent
+         1-patterns as its members*/
+        for (EquivalenceClass atom : frequentItems) {
+            rootClass.addClassMember(atom);
+        }
+
+        //Inizialitation of the class that is in charge of find the frequent patterns
+        FrequentPatternEnumeration frequentPatternEnumeration = new FrequentPatternEnumeration(candidateGenerator, minSupAbsolute, saver);
+        //We set the number of frequent items to the number of frequent items
+        frequentPatternEnumeration.setFrequentPatterns(frequentItems.size());
+
+        //We execute the search
+        frequentPatternEnumeration.execute(rootClass, dfs, keepPatterns, verbose, coocMapAfter, coocMapEquals);
+     
+        /* Once we had finished, we keep the number of frequent patterns that we 
+         * finally found
+         */
+        numberOfFrequentPatterns = frequentPatternEnumeration.getFrequentPatterns();
+        intersectionCounter = frequentPatternEnumeration.INTERSECTION_COUNTER;
+        // check the memory usage for statistics
+        MemoryLogger.getInstance().checkMemory();
+    }
+
+    /**
+     * Create the co-occurrence maps of the items of a database (CMAP), which
+     * are used to prune the candidates.
+     *
+     * @param database the database
+     */
+    private void createCoocMaps(SequenceDatabase database) {
+        coocMapAfter = new HashMap<Integer, Map<Integer, Integer>>(1000);
+        coocMapEquals = new HashMap<Integer, Map<Integer, Integer>>(1000);
 
         // update COOC map
         for (Sequence seq : database.getSequences()) {
@@ -317,32 +361,6 @@ public class AlgoCMSPADE {
                 }
             }
         }
-
-        database = null;
-
-        //We define the root class
-        EquivalenceClass rootClass = new EquivalenceClass(null);
-        /*And we insert the equivalence classes corresponding to the frequent
-         1-patterns as its members*/
-        for (EquivalenceClass atom : frequentItems) {
-            rootClass.addClassMember(atom);
-        }
-
-        //Inizialitation of the class that is in charge of find the frequent patterns
-        FrequentPatternEnumeration frequentPatternEnumeration = new FrequentPatternEnumeration(candidateGenerator, minSupAbsolute, saver);
-        //We set the number of frequent items to the number of frequent items
-        frequentPatternEnumeration.setFrequentPatterns(frequentItems.size());
-
-        //We execute the search
-        frequentPatternEnumeration.execute(rootClass, dfs, keepPatterns, verbose, coocMapAfter, coocMapEquals);
-     
-        /* Once we had finished, we keep the number of frequent patterns that we 
-         * finally found
-         */
-        numberOfFrequentPatterns = frequentPatternEnumeration.getFrequentPatterns();
-        intersectionCounter = frequentPatternEnumeration.INTERSECTION_COUNTER;
-        // check the memory usage for statistics
-        MemoryLogger.getInstance().checkMemory();
     }
 
     /**
@@ -399,6 +417,20 @@ public class AlgoCMSPADE {
         return (end - start);
     }
 
+    /**
+     * Set the number of threads used by the parallel version of the algorithm
+     * (runAlgorithmParallelized). By default, it is the number of available
+     * processors.
+     *
+     * @param threadCount the number of threads (at least 1)
+     */
+    public void setThreadCount(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("The number of threads must be at least 1");
+        }
+        this.threadCount = threadCount;
+    }
+
     /**
      * It gets the absolute minimum support, i.e. the minimum number of database
      * sequences where a pattern has to appear
@@ -425,88 +457,9 @@ public class AlgoCMSPADE {
      *
      * The actual method for extracting frequent sequences. This method it
      * starts with both the frequent 1-patterns and 2-patterns already found.
-     * Besides, it resolves each equivalence class formed by the 1-patterns
-     * independently.
-     *
-     * @param database The original database
-     * @param candidateGenerator The candidate generator used by the algorithm
-     * SPADE
-     * @param minSupportCount The absolute minimum support
-     * @param dfs Flag for indicating if we want a depth first search. If false,
-     * we indicate that we want a breath-first search.
-     * @param keepPatterns flag indicating if we are interested in keeping the
-     * output of the algorithm
-     * @param verbose Flag for debugging purposes
-     */
-    protected void runSPADEFromSize2PatternsParallelized(SequenceDatabase database, CandidateGenerator candidateGenerator, long minSupportCount, boolean dfs, boolean keepPatterns, boolean verbose) {
-
-        frequentItems = database.frequentItems();
-        Collection<Pattern> size1Patterns = getPatterns(frequentItems);
-        saver.savePatterns(size1Patterns);
-        List<EquivalenceClass> size2EquivalenceClass = database.getSize2FrecuentSequences(minSupAbsolute);
-        Collection<Pattern> size2Sequences = getPatterns(size2EquivalenceClass);
-        saver.savePatterns(size2Sequences);
-
-        size2EquivalenceClass = null;
-        database = null;
-
-        FrequentPatternEnumeration frequentPatternEnumeration = new FrequentPatternEnumeration(candidateGenerator, minSupAbsolute, saver);
-        frequentPatternEnumeration.setFrequentPatterns(size1Patterns.size() + size2Sequences.size());
-
-        size1Patterns = null;
-        size2Sequences = null;
-
-        Runtime runtime = Runtime.getRuntime();
-        int numberOfAvailableProcessors = runtime.availableProcessors();
-        ExecutorService pool = Executors.newFixedThreadPool(numberOfAvailableProcessors);
-        ArrayList<Future<Void>> set = new ArrayList<Future<Void>>();
-        while (frequentItems.size() > 0) {
-            EquivalenceClass frequentItem = frequentItems.get(frequentItems.size() - 1);
-
-            if (verbose) {
-                System.out.println("Exploring " + frequentItem);
-            }
-
-            Callable<Void> callable = new FrequentPatternEnumerationFacade(frequentPatternEnumeration, frequentItem, dfs, keepPatterns, verbose, saver);
-            Future<Void> future = pool.submit(callable);
-            set.add(future);
-            frequentItems.remove(frequentItems.size() - 1);
-
-            // check the memory usage for statistics
-            MemoryLogger.getInstance().checkMemory();
-        }
-
-        try {
-            int cont = 1;
-            System.err.println("There are " + set.size() + " equivalence classes and " + numberOfAvailableProcessors + " available processors");
-            while (!set.isEmpty()) {
-                for (int i = 0; i < set.size(); i++) {
-                    Future<Void> future = set.get(i);
-                    if (future.isDone()) {
-                        System.err.println(cont++ + ":this thread is done.");
-                        set.remove(i);
-                        i--;
-                    }
-                }
-            }
-
-            numberOfFrequentPatterns = frequentPatternEnumeration.getFrequentPatterns();// check the memory usage for statistics
-            MemoryLogger.getInstance().checkMemory();
-
-            pool.shutdown();
-            pool.awaitTermination(1, TimeUnit.DAYS);
-        } catch (Exception e) {
-            System.err.println("Problems with the concurrency!!");
-            e.printStackTrace();
-        }
-    }
-
-    /**
-     *
-     * The actual method for extracting frequent sequences. This method it
-     * starts with both the frequent 1-patterns and 2-patterns already found.
-     * Besides, it resolves each equivalence class formed by the 1-patterns
-     * independently.
+     * Besides, it resolves the equivalence classes formed by the 1-patterns
+     * with the threads of a ForkJoinPool, where the deeper classes are explored
+     * by new tasks when some threads do not have enough work.
      *
      * @param database The original database
      * @param candidateGenerator The candidate generator used by the algorithm
@@ -522,47 +475,32 @@ public class AlgoCMSPADE {
         frequentItems = database.frequentItems();
         Collection<Pattern> size1Sequences = getPatterns(frequentItems);
         saver.savePatterns(size1Sequences);
+        // the co-occurrence maps are used to prune the candidates
+        createCoocMaps(database);
         List<EquivalenceClass> size2EquivalenceClasses = database.getSize2FrecuentSequences(minSupAbsolute);
         Collection<Pattern> size2Sequences = getPatterns(size2EquivalenceClasses);
         saver.savePatterns(size2Sequences);
 
-        numberOfFrequentPatterns = size1Sequences.size() + size2Sequences.size();
+        FrequentPatternEnumeration frequentPatternEnumeration = new FrequentPatternEnumeration(candidateGenerator, minSupAbsolute, saver);
+        frequentPatternEnumeration.setFrequentPatterns(size1Sequences.size() + size2Sequences.size());
+
+        size1Sequences = null;
+        size2Sequences = null;
         size2EquivalenceClasses = null;
         database = null;
 
-        Runtime runtime = Runtime.getRuntime();
-        ExecutorService pool = Executors.newFixedThreadPool(runtime.availableProcessors());
-        Set<Future<Void>> set = new LinkedHashSet<Future<Void>>();
-
-        ArrayList<FrequentPatternEnumeration> enumerates = new ArrayList<FrequentPatternEnumeration>();
-
-        while (frequentItems.size() > 0) {
-            EquivalenceClass frequentAtom = frequentItems.get(frequentItems.size() - 1);
-
-            if (verbose) {
-                System.out.println("Exploring " + frequentAtom);
-            }
-            FrequentPatternEnumeration frequentPatternEnumeration = new FrequentPatternEnumeration(candidateGenerator, minSupAbsolute, saver);
-
-            enumerates.add(frequentPatternEnumeration);
-
-            Callable<Void> callable = new FrequentPatternEnumerationFacade(frequentPatternEnumeration, frequentAtom, dfs, keepPatterns, verbose, saver);
-            Future<Void> future = pool.submit(callable);
-            set.add(future);
-            frequentItems.remove(frequentItems.size() - 1);
-
-            // check the memory usage for statistics
-            MemoryLogger.getInstance().checkMemory();
-        }
-
+        /* The class of each frequent item is explored by a task of the pool,
+         * and the tasks fork new tasks for the deeper classes when some
+         * threads do not have enough work
+         */
+        ForkJoinPool pool = new ForkJoinPool(threadCount);
         try {
-            pool.shutdown();
-            pool.awaitTermination(1, TimeUnit.DAYS);
-        } catch (Exception e) {
-            System.err.println("Problems with the concurrency!!");
+            frequentPatternEnumeration.executeInParallel(frequentItems, pool, dfs, keepPatterns, verbose, coocMapAfter, coocMapEquals);
+        } finally {
+            pool.shutdownNow();
         }
-        FrequentPatternEnumeration fpe = new FrequentPatternEnumeration(candidateGenerator, minSupAbsolute, saver);
-        numberOfFrequentPatterns += fpe.getFrequentPatterns();
+        numberOfFrequentPatterns = frequentPatternEnumeration.getFrequentPatterns();
+        intersectionCounter = FrequentPatternEnumeration.INTERSECTION_COUNTER;
 
         // check the memory usage for statistics
         MemoryLogger.getInstance().checkMemory();
@@ -3,14 +3,8 @@ package ca.pfv.spmf.algorithms.sequentialpatterns.spade_spam_AGP;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Set;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ForkJoinPool;
 
 import ca.pfv.spmf.algorithms.sequentialpatterns.spade_spam_AGP.candidatePatternsGeneration.CandidateGenerator;
 import ca.pfv.spmf.algorithms.sequentialpatterns.spade_spam_AGP.dataStructures.creators.AbstractionCreator;
@@ -86,6 +80,10 @@ public class AlgoSPADE {
      * Number of frequent patterns found by the algorithm
      */
     private int numberOfFrequentPatterns;
+    /**
+     * The number of threads used by the parallel version of the algorithm
+     */
+    private int threadCount = Runtime.getRuntime().availableProcessors();
 
     /**
      * Constructor of the class that calls SPADE algorithm.
@@ -353,6 +351,20 @@ public class AlgoSPADE {
         return (end - start);
     }
 
+    /**
+     * Set the number of threads used by the parallel version of the algorithm
+     * (runAlgorithmParallelized). By default, it is the number of available
+     * processors.
+     *
+     * @param threadCount the number of threads (at least 1)
+     */
+    public void setThreadCount(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("The number of threads must be at least 1");
+        }
+        this.threadCount = threadCount;
+    }
+
     /**
      * It gets the minimum relative support, i.e. the minimum number of database
      * sequences where a pattern has to appear
@@ -378,86 +390,9 @@ public class AlgoSPADE {
      *
      * The actual method for extracting frequent sequences. This method it starts
      * with both the frequent 1-patterns and 2-patterns already found. Besides, it
-     * resolves each equivalence class formed by the 1-patterns independently.
-     * 
-     * @param database The original database
-     * @param candidateGenerator The candidate generator used by the algorithm
-     * SPADE
-     * @param minSupportCount The minimum relative support
-     * @param dfs Flag for indicating if we want a depth first search. If false,
-     * we indicate that we want a breath-first search.
-     * @param keepPatterns flag indicating if we are interested in keeping the
-     * output of the algorithm
-     * @param verbose Flag for debugging purposes
-     */
-    protected void runSPADEFromSize2PatternsParallelized(SequenceDatabase database, CandidateGenerator candidateGenerator, long minSupportCount, boolean dfs, boolean keepPatterns, boolean verbose) {
-
-        frequentItems = database.frequentItems();
-        Collection<Pattern> size1Patterns = getPatterns(frequentItems);
-        saver.savePatterns(size1Patterns);
-        List<EquivalenceClass> size2EquivalenceClass = database.getSize2FrecuentSequences(minSupRelative);
-        Collection<Pattern> size2Sequences = getPatterns(size2EquivalenceClass);
-        saver.savePatterns(size2Sequences);
-
-        size2EquivalenceClass = null;
-        database = null;
-
-        FrequentPatternEnumeration frequentPatternEnumeration = new FrequentPatternEnumeration(candidateGenerator, minSupRelative, saver);
-        frequentPatternEnumeration.setFrequentPatterns(size1Patterns.size() + size2Sequences.size());
-
-        size1Patterns = null;
-        size2Sequences = null;
-
-        Runtime runtime = Runtime.getRuntime();
-        int numberOfAvailableProcessors = runtime.availableProcessors();
-        ExecutorService pool = Executors.newFixedThreadPool(numberOfAvailableProcessors);
-        ArrayList<Future<Void>> set = new ArrayList<Future<Void>>();
-        while (frequentItems.size() > 0) {
-            EquivalenceClass frequentItem = frequentItems.get(frequentItems.size() - 1);
-
-            if (verbose) {
-                System.out.println("Exploring " + frequentItem);
-            }
-
-            Callable<Void> callable = new FrequentPatternEnumerationFacade(frequentPatternEnumeration, frequentItem, dfs, keepPatterns, verbose, saver);
-            Future<Void> future = pool.submit(callable);
-            set.add(future);
-            frequentItems.remove(frequentItems.size() - 1);
-            
-            // check the memory usage for statistics
-            MemoryLogger.getInstance().checkMemory();
-        }
-
-        try {
-            int cont = 1;
-            System.err.println("There are " + set.size() + " equivalence classes and " + numberOfAvailableProcessors + " available processors");
-            while (!set.isEmpty()) {
-                for (int i = 0; i < set.size(); i++) {
-                    Future<Void> future = set.get(i);
-                    if (future.isDone()) {
-                        System.err.println(cont++ + ":this thread is done.");
-                        set.remove(i);
-                        i--;
-                    }
-                }
-            }
-
-            numberOfFrequentPatterns = frequentPatternEnumeration.getFrequentPatterns();// check the memory usage for statistics
-            MemoryLogger.getInstance().checkMemory();
-
-            pool.shutdown();
-            pool.awaitTermination(1, TimeUnit.DAYS);
-        } catch (Exception e) {
-            System.err.println("Problems with the concurrency!!");
-            e.printStackTrace();
-        }
-    }
-
-    /**
-     *
-     * The actual method for extracting frequent sequences. This method it starts
-     * with both the frequent 1-patterns and 2-patterns already found. Besides, it
-     * resolves each equivalence class formed by the 1-patterns independently.
+     * resolves the equivalence classes formed by the 1-patterns with the threads
+     * of a ForkJoinPool, where the deeper classes are explored by new tasks when
+     * some threads do not have enough work.
      * 
      * @param database The original database
      * @param candidateGenerator The candidate generator used by the algorithm
@@ -477,44 +412,27 @@ public class AlgoSPADE {
         Collection<Pattern> size2Sequences = getPatterns(size2EquivalenceClasses);
         saver.savePatterns(size2Sequences);
 
-        numberOfFrequentPatterns = size1Sequences.size() + size2Sequences.size();
+        FrequentPatternEnumeration frequentPatternEnumeration = new FrequentPatternEnumeration(candidateGenerator, minSupRelative, saver);
+        frequentPatternEnumeration.setFrequentPatterns(size1Sequences.size() + size2Sequences.size());
+
+        size1Sequences = null;
+        size2Sequences = null;
         size2EquivalenceClasses = null;
         database = null;
 
-        Runtime runtime = Runtime.getRuntime();
-        ExecutorService pool = Executors.newFixedThreadPool(runtime.availableProcessors());
-        Set<Future<Void>> set = new LinkedHashSet<Future<Void>>();
-
-        ArrayList<FrequentPatternEnumeration> enumerates = new ArrayList<FrequentPatternEnumeration>();
-
-        while (frequentItems.size() > 0) {
-            EquivalenceClass frequentAtom = frequentItems.get(frequentItems.size() - 1);
-
-            if (verbose) {
-                System.out.println("Exploring " + frequentAtom);
-            }
-            FrequentPatternEnumeration frequentPatternEnumeration = new FrequentPatternEnumeration(candidateGenerator, minSupRelative, saver);
-
-            enumerates.add(frequentPatternEnumeration);
-
-            Callable<Void> callable = new FrequentPatternEnumerationFacade(frequentPatternEnumeration, frequentAtom, dfs, keepPatterns, verbose, saver);
-            Future<Void> future = pool.submit(callable);
-            set.add(future);
-            frequentItems.remove(frequentItems.size() - 1);
-            
-            // check the memory usage for statistics
-            MemoryLogger.getInstance().checkMemory();
-        }
-
+        /* The class of each frequent item is explored by a task of the pool,
+         * and the tasks fork new tasks for the deeper classes when some
+         * threads do not have enough work
+         */
+        ForkJoinPool pool = new ForkJoinPool(threadCount);
         try {
-            pool.shutdown();
-            pool.awaitTermination(1, TimeUnit.DAYS);
-        } catch (Exception e) {
-            System.err.println("Problems with the concurrency!!");
+            frequentPatternEnumeration.executeInParallel(frequentItems, pool, dfs, keepPatterns, verbose, null, null);
+        } finally {
+            pool.shutdownNow();
         }
-        FrequentPatternEnumeration fpe = new FrequentPatternEnumeration(candidateGenerator, minSup, saver);
-        numberOfFrequentPatterns += fpe.getFrequentPatterns();
-            
+        numberOfFrequentPatterns = frequentPatternEnumeration.getFrequentPatterns();
+        joinCount = FrequentPatternEnumeration.INTERSECTION_COUNTER;
+
         // check the memory usage for statistics
         MemoryLogger.getInstance().checkMemory();
     }
@@ -1,7 +1,11 @@
 package ca.pfv.spmf.algorithms.sequentialpatterns.spade_spam_AGP;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 import ca.pfv.spmf.algorithms.sequentialpatterns.spade_spam_AGP.candidatePatternsGeneration.CandidateGenerator;
 import ca.pfv.spmf.algorithms.sequentialpatterns.spade_spam_AGP.dataStructures.patterns.Pattern;
@@ -19,6 +23,12 @@ import ca.pfv.spmf.algorithms.sequentialpatterns.spade_spam_AGP.savers.Saver;
  * NOTE: This implementation saves the pattern to a file as soon as they are
  * found or can keep the pattern into memory, depending on what the user choose.
  *
+ * The search can also be done by the threads of a ForkJoinPool. Each equivalence
+ * class is then explored by a task, which explores its sub-classes itself, or
+ * forks a new task for a sub-class when the threads of the pool do not have
+ * enough work. The work is thus divided until the deepest classes when some
+ * classes are much larger than the others.
+ *
  * Copyright Antonio Gomariz Peñalver 2013
  *
  * This file is part of the SPMF DATA MINING SOFTWARE
@@ -55,6 +65,12 @@ public class FrequentPatternEnumeration {
      */
     private static int frequentPatterns = 0;
     public static int INTERSECTION_COUNTER = 0;
+    /**
+     * A task forks a new task for a sub-class only if there are fewer tasks
+     * than this number waiting in its queue (otherwise, the other threads
+     * already have enough work and the sub-class is explored by the task).
+     */
+    private static final int MAX_SURPLUS_TASKS = 3;
     /**
      * Saver variable to decide where the user want to save the results, if it
      * the case
@@ -91,6 +107,71 @@ public class FrequentPatternEnumeration {
      * @param patternLength number of items in each pattern of this equivalence class
      */
     public void execute(EquivalenceClass eq, boolean dfs, boolean keepPatterns, boolean verbose, Map<Integer, Map<Integer, Integer>> coocMapAfter, Map<Integer, Map<Integer, Integer>> coocMapEquals) {
+        SearchCounters counters = new SearchCounters();
+        explore(eq, dfs, keepPatterns, coocMapAfter, coocMapEquals, counters, null);
+        addCounters(counters);
+    }
+
+    /**
+     * Execution of the search of frequent patterns from several equivalence
+     * classes, by the threads of a ForkJoinPool. The classes are independent
+     * (as the classes of the frequent items, whose members are the frequent
+     * 2-patterns), and each of them is explored by a task.
+     *
+     * @param classes The equivalence classes from which we start to search.
+     * They are removed from the list when the search is finished.
+     * @param pool The pool of threads
+     * @param dfs Flag indicating if we are interested in a depth-first search
+     * if activated. Otherwise, we understand that we are interested in a
+     * breadth-first search
+     * @param keepPatterns Flag to indicate if we want to keep the patterns
+     * found.
+     * @param verbose Flag for debugging purposes
+     * @param coocMapAfter the co-occurrence map of the items appearing after
+     * another item (or null)
+     * @param coocMapEquals the co-occurrence map of the items appearing in the
+     * same itemset as another item (or null)
+     */
+    public void executeInParallel(final List<EquivalenceClass> classes, ForkJoinPool pool, final boolean dfs, final boolean keepPatterns, final boolean verbose, final Map<Integer, Map<Integer, Integer>> coocMapAfter, final Map<Integer, Map<Integer, Integer>> coocMapEquals) {
+        pool.invoke(new RecursiveAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void compute() {
+                List<ExplorationTask> tasks = new ArrayList<ExplorationTask>();
+                // the classes are explored from the last one, as in the sequential search
+                for (int i = classes.size() - 1; i >= 0; i--) {
+                    if (verbose) {
+                        System.out.println("Exploring " + classes.get(i));
+                    }
+                    tasks.add(new ExplorationTask(classes.get(i), dfs, keepPatterns, coocMapAfter, coocMapEquals));
+                }
+                invokeAll(tasks);
+            }
+        });
+        classes.clear();
+    }
+
+    /**
+     * Search the frequent patterns of an equivalence class. The sub-classes are
+     * explored recursively, or by new tasks if the search is done by the tasks
+     * of a ForkJoinPool.
+     *
+     * @param eq The equivalence class from we start to search for.
+     * @param dfs Flag indicating if we are interested in a depth-first search
+     * if activated. Otherwise, we understand that we are interested in a
+     * breadth-first search
+     * @param keepPatterns Flag to indicate if we want to keep the patterns
+     * found.
+     * @param coocMapAfter the co-occurrence map of the items appearing after
+     * another item (or null)
+     * @param coocMapEquals the co-occurrence map of the items appearing in the
+     * same itemset as another item (or null)
+     * @param counters the counters of the search
+     * @param forkedTasks the list where the tasks forked for the sub-classes are
+     * added, or null if the search is not done by the tasks of a ForkJoinPool
+     */
+    private void explore(EquivalenceClass eq, boolean dfs, boolean keepPatterns, Map<Integer, Map<Integer, Integer>> coocMapAfter, Map<Integer, Map<Integer, Integer>> coocMapEquals, SearchCounters counters, List<ExplorationTask> forkedTasks) {
         /*eq.setIdList(null);
          eq.setClassIdentifier(null);*/
         //flag indicating if a new pattern has been created
@@ -154,7 +235,7 @@ public class FrequentPatternEnumeration {
                 //For each candidate generated
                 for (Pattern extension : extensions) {
                     IDList newIdList = candidateGenerator.join(extension, child_X, child_Y, (int) minSupportAbsolute);
-                    INTERSECTION_COUNTER++;
+                    counters.intersections++;
                     //If the the pattern is frequent
                     if (newIdList != null && newIdList.getSupport() >= minSupportAbsolute) {
                         //we activated the flag
@@ -176,7 +257,7 @@ public class FrequentPatternEnumeration {
                         newEq.setIdList(newIdList);
 
                         //We increment the number of frequent patterns
-                        increaseFrequentPatterns();
+                        counters.frequentPatterns++;
 
                         /*Finally, we keep the new class as a member of the 
                          * parent class that is its prefix
@@ -197,7 +278,7 @@ public class FrequentPatternEnumeration {
                  * with the child that we have just removed
                  */
                 if (anyPatternCreated) {
-                    execute(child_X, dfs, keepPatterns, verbose, coocMapAfter, coocMapEquals);
+                    exploreSubClass(child_X, dfs, keepPatterns, coocMapAfter, coocMapEquals, counters, forkedTasks);
                 }
             }
         }
@@ -207,7 +288,7 @@ public class FrequentPatternEnumeration {
             if (anyPatternCreated) {
                 for (int i = eqMembers.size() - 1; i >= 0; i--) {
                     // we make a recursive call with the child pointed by i
-                    execute(eqMembers.get(i), dfs, keepPatterns, verbose, coocMapAfter, coocMapEquals);
+                    exploreSubClass(eqMembers.get(i), dfs, keepPatterns, coocMapAfter, coocMapEquals, counters, forkedTasks);
                     /* Once we finished of exploring, we remove from the members
                      * the member indicated by i index */
                     eqMembers.remove(i);
@@ -217,6 +298,34 @@ public class FrequentPatternEnumeration {
         }
     }
 
+    /**
+     * Search the frequent patterns of a sub-class. If the search is done by the
+     * tasks of a ForkJoinPool and the other threads do not have enough work, a
+     * new task is forked for the sub-class, so that it can be stolen by another
+     * thread. Otherwise, the sub-class is explored by the current task.
+     *
+     * @param eq The sub-class
+     * @param dfs Flag indicating if we are interested in a depth-first search
+     * @param keepPatterns Flag to indicate if we want to keep the patterns
+     * found.
+     * @param coocMapAfter the co-occurrence map of the items appearing after
+     * another item (or null)
+     * @param coocMapEquals the co-occurrence map of the items appearing in the
+     * same itemset as another item (or null)
+     * @param counters the counters of the search
+     * @param forkedTasks the list where the forked tasks are added, or null if
+     * the search is not done by the tasks of a ForkJoinPool
+     */
+    private void exploreSubClass(EquivalenceClass eq, boolean dfs, boolean keepPatterns, Map<Integer, Map<Integer, Integer>> coocMapAfter, Map<Integer, Map<Integer, Integer>> coocMapEquals, SearchCounters counters, List<ExplorationTask> forkedTasks) {
+        if (forkedTasks != null && ForkJoinTask.getSurplusQueuedTaskCount() < MAX_SURPLUS_TASKS) {
+            ExplorationTask task = new ExplorationTask(eq, dfs, keepPatterns, coocMapAfter, coocMapEquals);
+            task.fork();
+            forkedTasks.add(task);
+        } else {
+            explore(eq, dfs, keepPatterns, coocMapAfter, coocMapEquals, counters, forkedTasks);
+        }
+    }
+
     /**
      * Method to insert a class in their corresponding father. This father is
      * that is a prefix for the class given as a parameter.
@@ -251,10 +360,14 @@ public class FrequentPatternEnumeration {
     }
 
     /**
-     * Increase the number of frequent patterns
+     * Add the counters of a search to the number of frequent patterns and to
+     * the number of joins
+     *
+     * @param counters the counters of the search
      */
-    private synchronized static void increaseFrequentPatterns() {
-        frequentPatterns++;
+    private synchronized static void addCounters(SearchCounters counters) {
+        frequentPatterns += counters.frequentPatterns;
+        INTERSECTION_COUNTER += counters.intersections;
     }
 
     /**
@@ -262,7 +375,70 @@ public class FrequentPatternEnumeration {
      *
      * @param pattern The pattern that we want to keep.
      */
-    private synchronized void keepPattern(Pattern pattern) {
+    private void keepPattern(Pattern pattern) {
         saver.savePattern(pattern);
     }
-}
\ No newline at end of file
+
+    /**
+     * The counters of a search. A task has its own counters, which are added
+     * to the static counters at the end of the task, so that the threads do not
+     * update the same counters for each pattern.
+     */
+    private static class SearchCounters {
+        /** the number of frequent patterns found */
+        int frequentPatterns = 0;
+        /** the number of joins of IdLists */
+        int intersections = 0;
+    }
+
+    /**
+     * A task that searches the frequent patterns of an equivalence class, and
+     * waits for the tasks that it forked for the sub-classes.
+     */
+    private class ExplorationTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        /** the equivalence class */
+        private final EquivalenceClass equivalenceClass;
+        /** Flag indicating if we are interested in a depth-first search */
+        private final boolean dfs;
+        /** Flag to indicate if we want to keep the patterns found */
+        private final boolean keepPatterns;
+        /** the co-occurrence map of the items appearing after another item (or null) */
+        private final Map<Integer, Map<Integer, Integer>> coocMapAfter;
+        /** the co-occurrence map of the items appearing in the same itemset (or null) */
+        private final Map<Integer, Map<Integer, Integer>> coocMapEquals;
+
+        /**
+         * Constructor
+         *
+         * @param equivalenceClass the equivalence class
+         * @param dfs Flag indicating if we are interested in a depth-first search
+         * @param keepPatterns Flag to indicate if we want to keep the patterns found
+         * @param coocMapAfter the co-occurrence map of the items appearing after
+         * another item (or null)
+         * @param coocMapEquals the co-occurrence map of the items appearing in the
+         * same itemset as another item (or null)
+         */
+        ExplorationTask(EquivalenceClass equivalenceClass, boolean dfs, boolean keepPatterns, Map<Integer, Map<Integer, Integer>> coocMapAfter, Map<Integer, Map<Integer, Integer>> coocMapEquals) {
+            this.equivalenceClass = equivalenceClass;
+            this.dfs = dfs;
+            this.keepPatterns = keepPatterns;
+            this.coocMapAfter = coocMapAfter;
+            this.coocMapEquals = coocMapEquals;
+        }
+
+        @Override
+        protected void compute() {
+            SearchCounters counters = new SearchCounters();
+            List<ExplorationTask> forkedTasks = new ArrayList<ExplorationTask>();
+            explore(equivalenceClass, dfs, keepPatterns, coocMapAfter, coocMapEquals, counters, forkedTasks);
+            addCounters(counters);
+            // the last forked task is joined first, since it is the most
+            // likely to be still in the queue of this thread
+            for (int i = forkedTasks.size() - 1; i >= 0; i--) {
+                forkedTasks.get(i).join();
+            }
+        }
+    }
+}
@@ -1,7 +1,7 @@
 package ca.pfv.spmf.algorithms.sequentialpatterns.spade_spam_AGP.dataStructures.creators;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import ca.pfv.spmf.algorithms.sequentialpatterns.spade_spam_AGP.dataStructures.Item;
 import ca.pfv.spmf.algorithms.sequentialpatterns.spade_spam_AGP.dataStructures.abstractions.Abstraction_Generic;
@@ -9,6 +9,7 @@ import ca.pfv.spmf.algorithms.sequentialpatterns.spade_spam_AGP.dataStructures.a
 
 /**
  * Class that implements a creator for pairs <item,abstraction> that are used in a pattern implementation.
+ * The pairs can be created by several threads (as in the parallel version of SPADE).
  * 
  * Copyright Antonio Gomariz Peñalver 2013
  * 
@@ -36,7 +37,7 @@ public class ItemAbstractionPairCreator {
      * Static reference to make the class singleton
      */
     private static ItemAbstractionPairCreator instance = null;
-    private static Map<Item, Map<Abstraction_Generic, ItemAbstractionPair>> pailPoors = new HashMap<Item, Map<Abstraction_Generic, ItemAbstractionPair>>();
+    private static Map<Item, Map<Abstraction_Generic, ItemAbstractionPair>> pailPoors = new ConcurrentHashMap<Item, Map<Abstraction_Generic, ItemAbstractionPair>>();
 
     private ItemAbstractionPairCreator() {
     }
@@ -54,18 +55,21 @@ public class ItemAbstractionPairCreator {
 
     public ItemAbstractionPair getItemAbstractionPair(Item item, Abstraction_Generic abstraction) {
         Map<Abstraction_Generic, ItemAbstractionPair> itemPair = pailPoors.get(item);
-        ItemAbstractionPair pair;
-        if (itemPair != null) {
-            pair = itemPair.get(abstraction);
-            if (pair == null) {
-                pair = new ItemAbstractionPair(item, abstraction);
-                itemPair.put(abstraction, pair);
+        if (itemPair == null) {
+            itemPair = new ConcurrentHashMap<Abstraction_Generic, ItemAbstractionPair>();
+            // if another thread added the map of the item first, its map is used
+            Map<Abstraction_Generic, ItemAbstractionPair> existingItemPair = pailPoors.putIfAbsent(item, itemPair);
+            if (existingItemPair != null) {
+                itemPair = existingItemPair;
             }
-        } else {
-            itemPair = new HashMap<Abstraction_Generic, ItemAbstractionPair>();
+        }
+        ItemAbstractionPair pair = itemPair.get(abstraction);
+        if (pair == null) {
             pair = new ItemAbstractionPair(item, abstraction);
-            itemPair.put(abstraction, pair);
-            pailPoors.put(item, itemPair);
+            ItemAbstractionPair existingPair = itemPair.putIfAbsent(abstraction, pair);
+            if (existingPair != null) {
+                pair = existingPair;
+            }
         }
         return pair;
     }
@@ -3,7 +3,9 @@ package ca.pfv.spmf.algorithms.sequentialpatterns.spade_spam_AGP.savers;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -14,6 +16,10 @@ import ca.pfv.spmf.algorithms.sequentialpatterns.spade_spam_AGP.dataStructures.p
  * means of these lines, the user choose to keep his patterns in a file whose
  * path is given to this class.
  *
+ * The patterns can be saved by several threads. Each thread appends its
+ * patterns to its own buffer, which is written to the file when it is full,
+ * so that the threads rarely wait for each other to write.
+ *
  * Copyright Antonio Gomariz Peñalver 2013
  *
  * This file is part of the SPMF DATA MINING SOFTWARE
@@ -35,8 +41,33 @@ import ca.pfv.spmf.algorithms.sequentialpatterns.spade_spam_AGP.dataStructures.p
  */
 public class SaverIntoFile implements Saver {
 
+    /**
+     * The number of characters that a thread keeps in its buffer before
+     * writing them to the file
+     */
+    private static final int BATCH_SIZE = 1 << 16;
+
     private BufferedWriter writer = null;
     private String path = null;
+
+    /**
+     * The buffers of all the threads that saved patterns
+     */
+    private final List<StringBuilder> buffers = new ArrayList<StringBuilder>();
+
+    /**
+     * The buffer of the current thread
+     */
+    private final ThreadLocal<StringBuilder> threadBuffer = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            StringBuilder buffer = new StringBuilder(BATCH_SIZE + 1024);
+            synchronized (buffers) {
+                buffers.add(buffer);
+            }
+            return buffer;
+        }
+    };
     
     /**
      * Idendicates if sequence ids should be output for each pattern
@@ -63,24 +94,43 @@ public class SaverIntoFile implements Saver {
     @Override
     public void savePattern(Pattern p) {
         if (writer != null) {
-            // create a StringBuilder
-            StringBuilder r = new StringBuilder("");
+            StringBuilder buffer = threadBuffer.get();
             // for each itemset in this sequential pattern
-            r.append(p.toStringToFile(outputSequenceIdentifiers));
-            try {
-                // write the string to the file
-                writer.write(r.toString());
-                // start a new line
-                writer.newLine();
-            } catch (IOException ex) {
-                Logger.getLogger(SaverIntoFile.class.getName()).log(Level.SEVERE, null, ex);
+            buffer.append(p.toStringToFile(outputSequenceIdentifiers));
+            // start a new line
+            buffer.append(System.lineSeparator());
+            // if the buffer is full, it is written to the file
+            if (buffer.length() >= BATCH_SIZE) {
+                write(buffer);
             }
         }
     }
 
+    /**
+     * Write the content of a buffer to the file and empty the buffer
+     * @param buffer the buffer
+     */
+    private void write(StringBuilder buffer) {
+        try {
+            synchronized (writer) {
+                writer.append(buffer);
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(SaverIntoFile.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        buffer.setLength(0);
+    }
+
     @Override
     public void finish() {
         if (writer != null) {
+            // write the patterns remaining in the buffers (the threads
+            // have finished saving patterns)
+            synchronized (buffers) {
+                for (StringBuilder buffer : buffers) {
+                    write(buffer);
+                }
+            }
             try {
                 writer.close();
             } catch (IOException ex) {
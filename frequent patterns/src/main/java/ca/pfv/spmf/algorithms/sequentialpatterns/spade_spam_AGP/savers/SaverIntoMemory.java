@@ -65,7 +65,7 @@ public class SaverIntoMemory implements Saver{
      * @param p a pattern
      */
     @Override
-    public void savePattern(Pattern p) {
+    public synchronized void savePattern(Pattern p) {
         patterns.addSequence(p, p.size());
     }
     
@@ -47,7 +47,7 @@ import ca.pfv.spmf.tools.MemoryLogger;
  * You should have received a copy of the GNU General Public License along with
  * SPMF. If not, see <http://www.gnu.org/licenses/>.
  * 
- * @see Bitmap
+ * @see WordAlignedBitmap
 *  @see Prefix 
 *  @author Philippe Fournier-Viger  & Antonio Gomariz
  */
@@ -69,7 +69,7 @@ public class AlgoCMSPAM {
     BufferedWriter writer = null;
     
     /** Vertical database */
-    Map<Integer, Bitmap> verticalDB = new HashMap<Integer, Bitmap>();
+    Map<Integer, WordAlignedBitmap> verticalDB = new HashMap<Integer, WordAlignedBitmap>();
     
     /** List indicating the number of bits per sequence */
     List<Integer> sequencesSize = null;
@@ -77,6 +77,9 @@ public class AlgoCMSPAM {
     /** the last bit position that is used in bitmaps */
     int lastBitIndex = 0;  
     
+    /** the number of words of the segment of each sequence in the bitmaps */
+    int[] sequenceWordCounts = null;
+    
 	/** maximum pattern length in terms of item count */
 	private int minimumPatternLength = 0;
     /** maximum pattern length in terms of item count */
@@ -121,7 +124,7 @@ public class AlgoCMSPAM {
     public void runAlgorithm(String input, String outputFilePath, double minsupRel, boolean outputSequenceIdentifiers) throws IOException {
         this.outputSequenceIdentifiers = outputSequenceIdentifiers;
     	
-    	Bitmap.INTERSECTION_COUNT = 0;
+    	WordAlignedBitmap.INTERSECTION_COUNT = 0;
         // create an object to write the file
         writer = new BufferedWriter(new FileWriter(outputFilePath));
         // initialize the number of patterns found
@@ -149,7 +152,7 @@ public class AlgoCMSPAM {
     private void spam(String input, double minsupRel) throws IOException {
         // the structure to store the vertical database
         // key: an item    value : bitmap
-        verticalDB = new HashMap<Integer, Bitmap>();
+        verticalDB = new HashMap<Integer, WordAlignedBitmap>();
 
         // structure to store the horizontal database
         List<int[]> inMemoryDB = new ArrayList<int[]>();
@@ -208,6 +211,8 @@ public class AlgoCMSPAM {
             }
             // record the last bit position for the bitmaps
             lastBitIndex = bitIndex - 1;
+            // calculate the number of words of each sequence in the bitmaps
+            sequenceWordCounts = WordAlignedBitmap.getSequenceWordCounts(sequencesSize, lastBitIndex);
             reader.close(); // close the input file
         } catch (Exception e) {
             e.printStackTrace();
@@ -249,13 +254,13 @@ public class AlgoCMSPAM {
                     } else {  // indicate an item
                         // Get the bitmap for this item. If none, create one.
                         Integer item = Integer.parseInt(token);
-                        Bitmap bitmapItem = verticalDB.get(item);
+                        WordAlignedBitmap bitmapItem = verticalDB.get(item);
                         if (bitmapItem == null) {
-                            bitmapItem = new Bitmap(lastBitIndex);
+                            bitmapItem = new WordAlignedBitmap();
                             verticalDB.put(item, bitmapItem);
                         }
                         // Register the bit in the bitmap for this item
-                        bitmapItem.registerBit(sid, tid, sequencesSize);
+                        bitmapItem.registerBit(sid, tid, sequenceWordCounts);
                     }
                 }
             }
@@ -266,11 +271,11 @@ public class AlgoCMSPAM {
 
         // STEP2: REMOVE INFREQUENT ITEMS FROM THE DATABASE BECAUSE THEY WILL NOT APPEAR IN ANY FREQUENT SEQUENTIAL PATTERNS
         List<Integer> frequentItems = new ArrayList<Integer>();
-        Iterator<Entry<Integer, Bitmap>> iter = verticalDB.entrySet().iterator();
+        Iterator<Entry<Integer, WordAlignedBitmap>> iter = verticalDB.entrySet().iterator();
         // we iterate over items from the vertical database that we have in memory
         while (iter.hasNext()) {
             //  we get the bitmap for this item
-            Map.Entry<Integer, Bitmap> entry = (Map.Entry<Integer, Bitmap>) iter.next();
+            Map.Entry<Integer, WordAlignedBitmap> entry = (Map.Entry<Integer, WordAlignedBitmap>) iter.next();
             // if the cardinality of this bitmap is lower than minsup
             if (entry.getValue().getSupport() < minsup) {
                 // we remove this item from the database.
@@ -327,7 +332,7 @@ public class AlgoCMSPAM {
                     }
                 }
 
-                Bitmap bitmapOfItem = verticalDB.get(itemI);
+                WordAlignedBitmap bitmapOfItem = verticalDB.get(itemI);
                 if (bitmapOfItem == null || bitmapOfItem.getSupport() < minsup) {
                     continue;
                 }
@@ -343,7 +348,7 @@ public class AlgoCMSPAM {
                         continue;
                     }
 
-                    Bitmap bitmapOfitemJ = verticalDB.get(itemJ);
+                    WordAlignedBitmap bitmapOfitemJ = verticalDB.get(itemJ);
                     if (bitmapOfitemJ == null || bitmapOfitemJ.getSupport() < minsup) {
                         continue;
                     }
@@ -390,7 +395,7 @@ public class AlgoCMSPAM {
         // to find longer sequential patterns recursively
 
         // for each frequent item
-        for (Entry<Integer, Bitmap> entry : verticalDB.entrySet()) {
+        for (Entry<Integer, WordAlignedBitmap> entry : verticalDB.entrySet()) {
             // We create a prefix with that item
             Prefix prefix = new Prefix();
             prefix.addItemset(new Itemset(entry.getKey()));
@@ -415,7 +420,7 @@ public class AlgoCMSPAM {
      * @throws IOException if there is an error writing a pattern to the output
      * file
      */
-    private void dfsPruning(Prefix prefix, Bitmap prefixBitmap, List<Integer> sn, List<Integer> in, int hasToBeGreaterThanForIStep, int m, Integer lastAppendedItem) throws IOException {
+    private void dfsPruning(Prefix prefix, WordAlignedBitmap prefixBitmap, List<Integer> sn, List<Integer> in, int hasToBeGreaterThanForIStep, int m, Integer lastAppendedItem) throws IOException {
 //		System.out.println(prefix.toString());
 
 
@@ -423,7 +428,7 @@ public class AlgoCMSPAM {
         //  ======  S-STEPS ======
         // Temporary variables (as described in the paper)
         List<Integer> sTemp = new ArrayList<Integer>();
-        List<Bitmap> sTempBitmaps = new ArrayList<Bitmap>();
+        List<WordAlignedBitmap> sTempBitmaps = new ArrayList<WordAlignedBitmap>();
 
         // for CMAP pruning, we will only check against the last appended item
         Map<Integer, Integer> mapSupportItemsAfter = coocMapAfter.get(lastAppendedItem);
@@ -452,7 +457,7 @@ public class AlgoCMSPAM {
             }
 
             // perform the S-STEP with that item to get a new bitmap
-            Bitmap.INTERSECTION_COUNT++;
+            WordAlignedBitmap.INTERSECTION_COUNT++;
             
 //            System.out.println(prefix +  " bitmap : " + prefixBitmap.bitmap);
 //            if(prefix.size() == 1 && prefix.get(0).get(0) == 5) {
@@ -460,7 +465,7 @@ public class AlgoCMSPAM {
 //            }
             
             
-            Bitmap newBitmap = prefixBitmap.createNewBitmapSStep(verticalDB.get(i), sequencesSize, lastBitIndex, maxGap);
+            WordAlignedBitmap newBitmap = prefixBitmap.createNewBitmapSStep(verticalDB.get(i), sequenceWordCounts, maxGap);
             // if the support is higher than minsup
             if (newBitmap.getSupportWithoutGapTotal() >= minsup) {
                 // record that item and pattern in temporary variables
@@ -475,7 +480,7 @@ public class AlgoCMSPAM {
             Prefix prefixSStep = prefix.cloneSequence();
             prefixSStep.addItemset(new Itemset(item));
             // create the new bitmap
-            Bitmap newBitmap = sTempBitmaps.get(k);
+            WordAlignedBitmap newBitmap = sTempBitmaps.get(k);
 
             // save the pattern to the file
             if(newBitmap.getSupport() >= minsup) {
@@ -493,7 +498,7 @@ public class AlgoCMSPAM {
         // ========  I STEPS =======
         // Temporary variables
         List<Integer> iTemp = new ArrayList<Integer>();
-        List<Bitmap> iTempBitmaps = new ArrayList<Bitmap>();
+        List<WordAlignedBitmap> iTempBitmaps = new ArrayList<WordAlignedBitmap>();
 
         // for each item in in
         loop2:
@@ -522,8 +527,8 @@ public class AlgoCMSPAM {
 
                 // Perform an i-step with this item and the current prefix.
                 // This creates a new bitmap
-                Bitmap.INTERSECTION_COUNT++;
-                Bitmap newBitmap = prefixBitmap.createNewBitmapIStep(verticalDB.get(i), sequencesSize, lastBitIndex);
+                WordAlignedBitmap.INTERSECTION_COUNT++;
+                WordAlignedBitmap newBitmap = prefixBitmap.createNewBitmapIStep(verticalDB.get(i), sequenceWordCounts);
                 // If the support is no less than minsup
                 if (newBitmap.getSupport() >= minsup) {
                     // record that item and pattern in temporary variables
@@ -539,7 +544,7 @@ public class AlgoCMSPAM {
             Prefix prefixIStep = prefix.cloneSequence();
             prefixIStep.getItemsets().get(prefixIStep.size() - 1).addItem(item);
             // create the new bitmap
-            Bitmap newBitmap = iTempBitmaps.get(k);
+            WordAlignedBitmap newBitmap = iTempBitmaps.get(k);
 
             // save the pattern
             if(m >= minimumPatternLength) {
@@ -561,7 +566,7 @@ public class AlgoCMSPAM {
      * @param bitmap its bitmap
      * @throws IOException exception if error while writing to the file
      */
-    private void savePattern(Integer item, Bitmap bitmap) throws IOException {
+    private void savePattern(Integer item, WordAlignedBitmap bitmap) throws IOException {
     	// First, we check if the pattern contains the desired items (optional)
 		// We only do that if the user has specified some items that must appear in
 		// patterns.
@@ -585,7 +590,7 @@ public class AlgoCMSPAM {
         // if the user wants the sequence IDs, we will show them
         if(outputSequenceIdentifiers) {
         	r.append(" #SID: ");
-        	r.append(bitmap.getSIDs(sequencesSize));
+        	r.append(bitmap.getSIDs());
         }
         writer.write(r.toString());
         writer.newLine();
@@ -598,7 +603,7 @@ public class AlgoCMSPAM {
      * @param bitmap its bitmap
      * @throws IOException exception if error while writing to the file
      */
-    private void savePattern(Prefix prefix, Bitmap bitmap) throws IOException {
+    private void savePattern(Prefix prefix, WordAlignedBitmap bitmap) throws IOException {
 		// First, we check if the pattern contains the desired items (optional)
 		// We only do that if the user has specified some items that must appear in
 		// patterns.
@@ -640,7 +645,7 @@ loop:		for(Itemset itemset : prefix.getItemsets()){
         // if the user wants the sequence IDs, we will show them
         if(outputSequenceIdentifiers) {
         	r.append(" #SID: ");
-        	r.append(bitmap.getSIDs(sequencesSize));
+        	r.append(bitmap.getSIDs());
         }
         writer.write(r.toString());
 //		System.out.println(r.toString());
@@ -663,7 +668,7 @@ loop:		for(Itemset itemset : prefix.getItemsets()){
         r.append('\n');
         r.append("minsup " + minsup);
         r.append('\n');
-        r.append("Intersection count " + Bitmap.INTERSECTION_COUNT + " \n");
+        r.append("Intersection count " + WordAlignedBitmap.INTERSECTION_COUNT + " \n");
         r.append("===================================================\n");
         System.out.println(r.toString());
     }
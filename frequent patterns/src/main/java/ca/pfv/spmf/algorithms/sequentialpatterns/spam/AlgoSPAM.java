@@ -52,7 +52,7 @@ import ca.pfv.spmf.tools.MemoryLogger;
  * My implementation allows some additional constraints such as setting the maximum pattern length and maximum gap between
  * itemsets.
  *
-*  @see Bitmap
+*  @see WordAlignedBitmap
 *  @see Prefix
 * @author Philippe Fournier-Viger
  */
@@ -71,7 +71,7 @@ public class AlgoSPAM{
     BufferedWriter writer = null;
     
     /** Vertical database */
-    Map<Integer, Bitmap> verticalDB = new HashMap<Integer, Bitmap>();
+    Map<Integer, WordAlignedBitmap> verticalDB = new HashMap<Integer, WordAlignedBitmap>();
     
     /** List indicating the number of bits per sequence */
     List<Integer> sequencesSize = null;
@@ -79,6 +79,9 @@ public class AlgoSPAM{
     /** the last bit position that is used in bitmaps */
     int lastBitIndex = 0;  
     
+    /** the number of words of the segment of each sequence in the bitmaps */
+    int[] sequenceWordCounts = null;
+    
 	/** maximum pattern length in terms of item count */
 	private int minimumPatternLength = 0;
     /** maximum pattern length in terms of item count */
@@ -130,7 +133,7 @@ public class AlgoSPAM{
 	private void spam(String input, double minsupRel) throws IOException{
 		// the structure to store the vertical database
 		// key: an item    value : bitmap
-		verticalDB = new HashMap<Integer, Bitmap>();
+		verticalDB = new HashMap<Integer, WordAlignedBitmap>();
 		
 		// STEP 0: SCAN THE DATABASE TO STORE THE FIRST BIT POSITION OF EACH SEQUENCE 
 		// AND CALCULATE THE TOTAL NUMBER OF BIT FOR EACH BITMAP
@@ -165,6 +168,8 @@ public class AlgoSPAM{
 			}
 			// record the last bit position for the bitmaps
 			lastBitIndex = bitIndex -1;
+			// calculate the number of words of each sequence in the bitmaps
+			sequenceWordCounts = WordAlignedBitmap.getSequenceWordCounts(sequencesSize, lastBitIndex);
 			reader.close(); // close the input file
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -209,13 +214,13 @@ public class AlgoSPAM{
 //						System.err.println(thisLine);
 //						System.err.println("==" + token + "===");
 						Integer item = Integer.parseInt(token);
-						Bitmap bitmapItem = verticalDB.get(item);
+						WordAlignedBitmap bitmapItem = verticalDB.get(item);
 						if(bitmapItem == null){
-							bitmapItem = new Bitmap(lastBitIndex);
+							bitmapItem = new WordAlignedBitmap();
 							verticalDB.put(item, bitmapItem);
 						}
 						// Register the bit in the bitmap for this item
-						bitmapItem.registerBit(sid, tid, sequencesSize);
+						bitmapItem.registerBit(sid, tid, sequenceWordCounts);
 					}
 				}
 			}
@@ -226,11 +231,11 @@ public class AlgoSPAM{
 		
 		// STEP2: REMOVE INFREQUENT ITEMS FROM THE DATABASE BECAUSE THEY WILL NOT APPEAR IN ANY FREQUENT SEQUENTIAL PATTERNS
 		List<Integer> frequentItems = new ArrayList<Integer>();
-		Iterator<Entry<Integer, Bitmap>> iter = verticalDB.entrySet().iterator();
+		Iterator<Entry<Integer, WordAlignedBitmap>> iter = verticalDB.entrySet().iterator();
 		// we iterate over items from the vertical database that we have in memory
 		while (iter.hasNext()) {
 			//  we get the bitmap for this item
-			Map.Entry<Integer, Bitmap> entry = (Map.Entry<Integer, Bitmap>) iter.next();
+			Map.Entry<Integer, WordAlignedBitmap> entry = (Map.Entry<Integer, WordAlignedBitmap>) iter.next();
 			// if the cardinality of this bitmap is lower than minsup
 			if(entry.getValue().getSupport() < minsup){
 				// we remove this item from the database.
@@ -254,7 +259,7 @@ public class AlgoSPAM{
 			return;
 		}
 		// for each frequent item
-		for(Entry<Integer, Bitmap> entry: verticalDB.entrySet()){
+		for(Entry<Integer, WordAlignedBitmap> entry: verticalDB.entrySet()){
 			// We create a prefix with that item
 			Prefix prefix = new Prefix();
 			prefix.addItemset(new Itemset(entry.getKey()));
@@ -276,18 +281,18 @@ public class AlgoSPAM{
 	 * @param m size of the current prefix in terms of items
 	 * @throws IOException  if there is an error writing a pattern to the output file
 	 */
-	private void dfsPruning(Prefix prefix, Bitmap prefixBitmap, List<Integer> sn, List<Integer> in, int hasToBeGreaterThanForIStep, int m) throws IOException {
+	private void dfsPruning(Prefix prefix, WordAlignedBitmap prefixBitmap, List<Integer> sn, List<Integer> in, int hasToBeGreaterThanForIStep, int m) throws IOException {
 //		System.out.println(prefix.toString());
 		
 		//  ======  S-STEPS ======
 		// Temporary variables (as described in the paper)
 		List<Integer> sTemp = new ArrayList<Integer>();
-		List<Bitmap> sTempBitmaps = new ArrayList<Bitmap>();
+		List<WordAlignedBitmap> sTempBitmaps = new ArrayList<WordAlignedBitmap>();
 		
 		// for each item in sn
 		for(Integer i : sn){
 			// perform the S-STEP with that item to get a new bitmap
-			Bitmap newBitmap = prefixBitmap.createNewBitmapSStep(verticalDB.get(i), sequencesSize,  lastBitIndex, maxGap);
+			WordAlignedBitmap newBitmap = prefixBitmap.createNewBitmapSStep(verticalDB.get(i), sequenceWordCounts, maxGap);
 			// if the support is higher than minsup
 			if(newBitmap.getSupportWithoutGapTotal() >= minsup){
 				// record that item and pattern in temporary variables
@@ -302,7 +307,7 @@ public class AlgoSPAM{
 			Prefix prefixSStep = prefix.cloneSequence();
 			prefixSStep.addItemset(new Itemset(item));
 			// create the new bitmap
-			Bitmap newBitmap = sTempBitmaps.get(k);
+			WordAlignedBitmap newBitmap = sTempBitmaps.get(k);
 
 			 if(newBitmap.getSupport() >= minsup) {
 				// save the pattern to the file
@@ -320,7 +325,7 @@ public class AlgoSPAM{
 		// ========  I STEPS =======
 		// Temporary variables
 		List<Integer> iTemp = new ArrayList<Integer>();
-		List<Bitmap> iTempBitmaps = new ArrayList<Bitmap>();
+		List<WordAlignedBitmap> iTempBitmaps = new ArrayList<WordAlignedBitmap>();
 		
 		// for each item in in
 		for(Integer i : in){
@@ -330,7 +335,7 @@ public class AlgoSPAM{
 				
 				// Perform an i-step with this item and the current prefix.
 				// This creates a new bitmap
-				Bitmap newBitmap = prefixBitmap.createNewBitmapIStep(verticalDB.get(i), sequencesSize,  lastBitIndex);
+				WordAlignedBitmap newBitmap = prefixBitmap.createNewBitmapIStep(verticalDB.get(i), sequenceWordCounts);
 				// If the support is no less than minsup
 				if(newBitmap.getSupport() >= minsup){
 					// record that item and pattern in temporary variables
@@ -346,7 +351,7 @@ public class AlgoSPAM{
 			Prefix prefixIStep = prefix.cloneSequence();
 			prefixIStep.getItemsets().get(prefixIStep.size()-1).addItem(item);
 			// create the new bitmap
-			Bitmap newBitmap = iTempBitmaps.get(k);
+			WordAlignedBitmap newBitmap = iTempBitmaps.get(k);
 			
 			// save the pattern
 			 if(m >= minimumPatternLength) {
@@ -367,7 +372,7 @@ public class AlgoSPAM{
 	 * @param bitmap its bitmap
 	 * @throws IOException exception if error while writing to the file
 	 */
-	private void savePattern(Integer item, Bitmap bitmap) throws IOException {
+	private void savePattern(Integer item, WordAlignedBitmap bitmap) throws IOException {
 		patternCount++; // increase the pattern count
 		StringBuilder r = new StringBuilder("");
 		r.append(item);
@@ -377,7 +382,7 @@ public class AlgoSPAM{
         // if the user wants the sequence IDs, we will show them
         if(outputSequenceIdentifiers) {
         	r.append(" #SID: ");
-        	r.append(bitmap.getSIDs(sequencesSize));
+        	r.append(bitmap.getSIDs());
         }
 		writer.write(r.toString());
 		writer.newLine();
@@ -389,7 +394,7 @@ public class AlgoSPAM{
 	 * @param bitmap its bitmap
 	 * @throws IOException exception if error while writing to the file
 	 */
-	private void savePattern(Prefix prefix, Bitmap bitmap) throws IOException {
+	private void savePattern(Prefix prefix, WordAlignedBitmap bitmap) throws IOException {
 		patternCount++;
 		
 		StringBuilder r = new StringBuilder("");
@@ -408,7 +413,7 @@ public class AlgoSPAM{
         // if the user wants the sequence IDs, we will show them
         if(outputSequenceIdentifiers) {
         	r.append(" #SID: ");
-        	r.append(bitmap.getSIDs(sequencesSize));
+        	r.append(bitmap.getSIDs());
         }
 		
 		writer.write(r.toString());
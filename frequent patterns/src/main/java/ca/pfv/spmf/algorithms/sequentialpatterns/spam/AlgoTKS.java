@@ -50,7 +50,7 @@ import ca.pfv.spmf.tools.MemoryLogger;
  * You should have received a copy of the GNU General Public License
  * along with SPMF. If not, see <http://www.gnu.org/licenses/>.
  * 
- * @see Bitmap
+ * @see WordAlignedBitmap
 *  @see Prefix
 *  @see PatternTKS
 *  @see Candidate
@@ -77,7 +77,7 @@ public class AlgoTKS{
 	private int k = 0;  
 	
 	/** Vertical database (bitsets) */
-	Map<Integer, Bitmap> verticalDB = new HashMap<Integer, Bitmap>();
+	Map<Integer, WordAlignedBitmap> verticalDB = new HashMap<Integer, WordAlignedBitmap>();
 	
 	/** List indicating the number of bits per sequence */
 	List<Integer> sequencesSize = null;
@@ -85,6 +85,9 @@ public class AlgoTKS{
 	/**  the last bit position that is used in bitmaps */
 	int lastBitIndex = 0;  
 	
+	/** the number of words of the segment of each sequence in the bitmaps */
+	int[] sequenceWordCounts = null;
+	
 	/**  the top k patterns found until now  */
 	PriorityQueue<PatternTKS> kPatterns;  
 	
@@ -190,7 +193,7 @@ public class AlgoTKS{
 		
 		// the structure to store the vertical database
 		// key: an item    value : bitmap
-		verticalDB = new HashMap<Integer, Bitmap>();
+		verticalDB = new HashMap<Integer, WordAlignedBitmap>();
 		
 		// structure to store the horizontal database
 		List<int[]> inMemoryDB = new ArrayList<int[]>();
@@ -247,6 +250,8 @@ public class AlgoTKS{
 			}
 			// record the last bit position for the bitmaps
 			lastBitIndex = bitIndex -1;
+			// calculate the number of words of each sequence in the bitmaps
+			sequenceWordCounts = WordAlignedBitmap.getSequenceWordCounts(sequencesSize, lastBitIndex);
 			reader.close(); // close the input file
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -271,24 +276,24 @@ public class AlgoTKS{
 					tid =0;
 				}else{  // indicate an item
 					// Get the bitmap for this item. If none, create a new one.
-					Bitmap bitmapItem = verticalDB.get(item);
+					WordAlignedBitmap bitmapItem = verticalDB.get(item);
 					if(bitmapItem == null){
-						bitmapItem = new Bitmap(lastBitIndex);
+						bitmapItem = new WordAlignedBitmap();
 						verticalDB.put(item, bitmapItem);
 					}
 					// Register the bit in the bitmap for this item
-					bitmapItem.registerBit(sid, tid, sequencesSize);
+					bitmapItem.registerBit(sid, tid, sequenceWordCounts);
 				}
 			}
 		}
 		
 //		// STEP2: REMOVE INFREQUENT ITEMS FROM THE DATABASE BECAUSE THEY WILL NOT APPEAR IN ANY FREQUENT SEQUENTIAL PATTERNS
 		List<Integer> frequentItems = new LinkedList<Integer>();
-		Iterator<Entry<Integer, Bitmap>> iter = verticalDB.entrySet().iterator();
+		Iterator<Entry<Integer, WordAlignedBitmap>> iter = verticalDB.entrySet().iterator();
 		// we iterate over items from the vertical database that we have in memory
 		while (iter.hasNext()) {
 			//  we get the bitmap for this item
-			Map.Entry<Integer, Bitmap> entry = (Map.Entry<Integer, Bitmap>) iter.next();
+			Map.Entry<Integer, WordAlignedBitmap> entry = (Map.Entry<Integer, WordAlignedBitmap>) iter.next();
 			Integer item = entry.getKey();
 			Integer support = entry.getValue().getSupport();
 
@@ -345,7 +350,7 @@ public class AlgoTKS{
 	//	                    }
 	//	                }
 	
-		                Bitmap bitmapOfItem = verticalDB.get(itemI);
+		                WordAlignedBitmap bitmapOfItem = verticalDB.get(itemI);
 		                if (bitmapOfItem == null || bitmapOfItem.getSupport() < minsup) {
 		                    continue;
 		                }
@@ -361,7 +366,7 @@ public class AlgoTKS{
 		                        continue;
 		                    }
 	
-		                    Bitmap bitmapOfitemJ = verticalDB.get(itemJ);
+		                    WordAlignedBitmap bitmapOfitemJ = verticalDB.get(itemJ);
 		                    if (bitmapOfitemJ == null || bitmapOfitemJ.getSupport() < minsup) {
 		                        continue;
 		                    }
@@ -408,10 +413,10 @@ public class AlgoTKS{
 			// PRUNE INFREQUENT ITEMS FROM VERTICAL DB AND REMOVE ITEM  FROM LIST OF FREQUENT ITEMS
 			// PLUS GENERATE CANDIDATE
 			if(useCooccurrenceInformation){
-				Iterator<Entry<Integer, Bitmap>> iter2 = verticalDB.entrySet().iterator();
+				Iterator<Entry<Integer, WordAlignedBitmap>> iter2 = verticalDB.entrySet().iterator();
 				while (iter2.hasNext()) {
-					Entry<Integer, Bitmap> entry = (Entry<Integer, Bitmap>) iter2.next();
-					Bitmap bitmap = entry.getValue();
+					Entry<Integer, WordAlignedBitmap> entry = (Entry<Integer, WordAlignedBitmap>) iter2.next();
+					WordAlignedBitmap bitmap = entry.getValue();
 					if(bitmap.getSupport() >= minsup){
 						candidateExplored++;
 						Integer item = entry.getKey();
@@ -568,7 +573,7 @@ loop:		for(Itemset itemset : pattern.prefix.getItemsets()){
 	 * @param m size of the current prefix in terms of items
 	 * @throws IOException  if there is an error writing a pattern to the output file
 	 */
-	private void dfsPruning(Prefix prefix, Bitmap prefixBitmap, Collection<Integer> sn, Collection<Integer> in, int hasToBeGreaterThanForIStep, int prefixLength) throws IOException {
+	private void dfsPruning(Prefix prefix, WordAlignedBitmap prefixBitmap, Collection<Integer> sn, Collection<Integer> in, int hasToBeGreaterThanForIStep, int prefixLength) throws IOException {
 //		System.out.println(prefix.toString());
 //		Itemset lastItemsetOfPrefix = prefix.get(prefix.getItemsets().size()-1));
 //		Integer lastAppendedItem = lastItemsetOfPrefix.get(lastItemsetOfPrefix.size()-1);
@@ -578,7 +583,7 @@ loop:		for(Itemset itemset : pattern.prefix.getItemsets()){
 		//  ======  S-STEPS ======
 		// Temporary variables (as described in the paper)
 		List<Integer> sTemp = new ArrayList<Integer>();
-		List<Bitmap> sTempBitmaps = new ArrayList<Bitmap>();
+		List<WordAlignedBitmap> sTempBitmaps = new ArrayList<WordAlignedBitmap>();
 		
         // for CMAP pruning, we will only check against the last appended item
 //        Map<Integer, Integer> mapSupportItemsAfter = coocMapAfter.get(lastAppendedItem);
@@ -609,7 +614,7 @@ loopi:	for(Integer i : sn){
 			}
 			
 			// perform the S-STEP with that item to get a new bitmap
-			Bitmap newBitmap = prefixBitmap.createNewBitmapSStep(verticalDB.get(i), sequencesSize,  lastBitIndex, maxGap);
+			WordAlignedBitmap newBitmap = prefixBitmap.createNewBitmapSStep(verticalDB.get(i), sequenceWordCounts, maxGap);
 			// if the support is higher than minsup
 			if(newBitmap.getSupportWithoutGapTotal() >= minsup){
 				// record that item and pattern in temporary variables
@@ -622,7 +627,7 @@ loopi:	for(Integer i : sn){
 		for(int k=0; k < sTemp.size(); k++){
 
 			// create the new bitmap
-			Bitmap newBitmap = sTempBitmaps.get(k);
+			WordAlignedBitmap newBitmap = sTempBitmaps.get(k);
 			
 			// IMPORTANT ---- PRUNING *******************************
 			if(usePruneBranchesInsideDFSPruning && newBitmap.getSupport() < minsup){
@@ -656,7 +661,7 @@ loopi:	for(Integer i : sn){
 		// ========  I STEPS =======
 		// Temporary variables
 		List<Integer> iTemp = new ArrayList<Integer>();
-		List<Bitmap> iTempBitmaps = new ArrayList<Bitmap>();
+		List<WordAlignedBitmap> iTempBitmaps = new ArrayList<WordAlignedBitmap>();
 		
 		// for each item in in
 loop2:	for(Integer i : in){
@@ -690,7 +695,7 @@ loop2:	for(Integer i : in){
 			
 			// Perform an i-step with this item and the current prefix.
 			// This creates a new bitmap
-			Bitmap newBitmap = prefixBitmap.createNewBitmapIStep(verticalDB.get(i), sequencesSize,  lastBitIndex);
+			WordAlignedBitmap newBitmap = prefixBitmap.createNewBitmapIStep(verticalDB.get(i), sequenceWordCounts);
 			// If the support is no less than minsup
 			if(newBitmap.getSupport() >= minsup){
 				// record that item and pattern in temporary variables
@@ -702,7 +707,7 @@ loop2:	for(Integer i : in){
 		for(int k=0; k < iTemp.size(); k++){
 
 			// create the new bitmap
-			Bitmap newBitmap = iTempBitmaps.get(k);
+			WordAlignedBitmap newBitmap = iTempBitmaps.get(k);
 			
 			// IMPORTANT ---- PRUNING *******************************
 			if(usePruneBranchesInsideDFSPruning && newBitmap.getSupport() < minsup){
@@ -747,7 +752,7 @@ loop2:	for(Integer i : in){
 		r.append('\n');
 		r.append("Final minsup value: " + minsup);
 		r.append('\n');
-		r.append("Intersection count " + Bitmap.INTERSECTION_COUNT + " \n");
+		r.append("Intersection count " + WordAlignedBitmap.INTERSECTION_COUNT + " \n");
 		r.append("===================================================\n");
 		System.out.println(r.toString());
 	}
@@ -771,7 +776,7 @@ loop2:	for(Integer i : in){
 	        // if the user wants the sequence IDs, we will show them
 	        if(outputSequenceIdentifiers) {
 	        	buffer.append(" #SID: ");
-	        	buffer.append(pattern.bitmap.getSIDs(sequencesSize));
+	        	buffer.append(pattern.bitmap.getSIDs());
 	        }
 			writer.write(buffer.toString());
 			writer.newLine();
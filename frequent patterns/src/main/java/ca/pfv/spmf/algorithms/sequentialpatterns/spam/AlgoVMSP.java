@@ -49,7 +49,7 @@ import ca.pfv.spmf.tools.MemoryLogger;
  * You should have received a copy of the GNU General Public License along with
  * SPMF. If not, see <http://www.gnu.org/licenses/>.
  * 
- * @see Bitmap
+ * @see WordAlignedBitmap
 *  @see PrefixVMSP
 *  @see PatternVMSP
 *  @author Philippe Fournier-Viger  & Antonio Gomariz
@@ -68,7 +68,7 @@ public class AlgoVMSP {
     BufferedWriter writer = null;
     
     /** Vertical database */
-    Map<Integer, Bitmap> verticalDB = new HashMap<Integer, Bitmap>();
+    Map<Integer, WordAlignedBitmap> verticalDB = new HashMap<Integer, WordAlignedBitmap>();
     
     /** List indicating the number of bits per sequence */
     List<Integer> sequencesSize = null;
@@ -76,6 +76,9 @@ public class AlgoVMSP {
     /** the last bit position that is used in bitmaps */
     int lastBitIndex = 0;  
     
+    /** the number of words of the segment of each sequence in the bitmaps */
+    int[] sequenceWordCounts = null;
+    
     /** maximum pattern length in terms of item count */
     private int maximumPatternLength = 1000;
     
@@ -120,7 +123,7 @@ public class AlgoVMSP {
      * @throws IOException exception if error while writing the file or reading
      */
     public List<TreeSet<PatternVMSP>> runAlgorithm(String input, String outputFilePath, double minsupRel) throws IOException {
-        Bitmap.INTERSECTION_COUNT = 0;
+        WordAlignedBitmap.INTERSECTION_COUNT = 0;
         // create an object to write the file
         writer = new BufferedWriter(new FileWriter(outputFilePath));
         // initialize the number of patterns found
@@ -166,7 +169,7 @@ public class AlgoVMSP {
     	
         // the structure to store the vertical database
         // key: an item    value : bitmap
-        verticalDB = new HashMap<Integer, Bitmap>();
+        verticalDB = new HashMap<Integer, WordAlignedBitmap>();
 
         // structure to store the horizontal database
         List<int[]> inMemoryDB = new ArrayList<int[]>();
@@ -223,6 +226,8 @@ public class AlgoVMSP {
             }
             // record the last bit position for the bitmaps
             lastBitIndex = bitIndex - 1;
+            // calculate the number of words of each sequence in the bitmaps
+            sequenceWordCounts = WordAlignedBitmap.getSequenceWordCounts(sequencesSize, lastBitIndex);
             reader.close(); // close the input file
         } catch (Exception e) {
             e.printStackTrace();
@@ -265,13 +270,13 @@ public class AlgoVMSP {
                     } else {  // indicate an item
                         // Get the bitmap for this item. If none, create one.
                         Integer item = Integer.parseInt(token);
-                        Bitmap bitmapItem = verticalDB.get(item);
+                        WordAlignedBitmap bitmapItem = verticalDB.get(item);
                         if (bitmapItem == null) {
-                            bitmapItem = new Bitmap(lastBitIndex);
+                            bitmapItem = new WordAlignedBitmap();
                             verticalDB.put(item, bitmapItem);
                         }
                         // Register the bit in the bitmap for this item
-                        bitmapItem.registerBit(sid, tid, sequencesSize);
+                        bitmapItem.registerBit(sid, tid, sequenceWordCounts);
                     }
                 }
             }
@@ -282,11 +287,11 @@ public class AlgoVMSP {
 
         // STEP2: REMOVE INFREQUENT ITEMS FROM THE DATABASE BECAUSE THEY WILL NOT APPEAR IN ANY FREQUENT SEQUENTIAL PATTERNS
         List<Integer> frequentItems = new ArrayList<Integer>();
-        Iterator<Entry<Integer, Bitmap>> iter = verticalDB.entrySet().iterator();
+        Iterator<Entry<Integer, WordAlignedBitmap>> iter = verticalDB.entrySet().iterator();
         // we iterate over items from the vertical database that we have in memory
         while (iter.hasNext()) {
             //  we get the bitmap for this item
-            Map.Entry<Integer, Bitmap> entry = (Map.Entry<Integer, Bitmap>) iter.next();
+            Map.Entry<Integer, WordAlignedBitmap> entry = (Map.Entry<Integer, WordAlignedBitmap>) iter.next();
             // if the cardinality of this bitmap is lower than minsup
             if (entry.getValue().getSupport() < minsup) {
                 // we remove this item from the database.
@@ -303,9 +308,9 @@ public class AlgoVMSP {
         // If in debugging mode, we will show the bitmaps
         if(DEBUG){
         	System.out.println(" == VERTICAL DATABASE ==");
-        	for(Entry<Integer, Bitmap> itemBitmap : verticalDB.entrySet()){
+        	for(Entry<Integer, WordAlignedBitmap> itemBitmap : verticalDB.entrySet()){
         		System.out.print(" item " + itemBitmap.getKey());
-        		System.out.println(" bitmap " + itemBitmap.getValue().bitmap);
+        		System.out.println(" sids " + itemBitmap.getValue().getSIDs());
         	}
         	System.out.println(" =======================");
         }
@@ -363,7 +368,7 @@ public class AlgoVMSP {
                     }
                 }
 
-                Bitmap bitmapOfItem = verticalDB.get(itemI);
+                WordAlignedBitmap bitmapOfItem = verticalDB.get(itemI);
                 if (bitmapOfItem == null || bitmapOfItem.getSupport() < minsup) {
                     continue;
                 }
@@ -379,7 +384,7 @@ public class AlgoVMSP {
                         continue;
                     }
 
-                    Bitmap bitmapOfitemJ = verticalDB.get(itemJ);
+                    WordAlignedBitmap bitmapOfitemJ = verticalDB.get(itemJ);
                     if (bitmapOfitemJ == null || bitmapOfitemJ.getSupport() < minsup) {
                         continue;
                     }
@@ -427,7 +432,7 @@ public class AlgoVMSP {
 
         
         // for each frequent item
-        for (Entry<Integer, Bitmap> entry : verticalDB.entrySet()) {
+        for (Entry<Integer, WordAlignedBitmap> entry : verticalDB.entrySet()) {
             // We create a prefix with that item
             PrefixVMSP prefix = new PrefixVMSP();
             prefix.addItemset(new Itemset(entry.getKey()));
@@ -471,7 +476,7 @@ public class AlgoVMSP {
      * file
      * @return TRUE IF A FREQUENT PATTERN WAS CREATED USING THE PREFIX.
      */
-    boolean dfsPruning(PrefixVMSP prefix, Bitmap prefixBitmap, List<Integer> sn, List<Integer> in, int hasToBeGreaterThanForIStep, int m, Integer lastAppendedItem) throws IOException {
+    boolean dfsPruning(PrefixVMSP prefix, WordAlignedBitmap prefixBitmap, List<Integer> sn, List<Integer> in, int hasToBeGreaterThanForIStep, int m, Integer lastAppendedItem) throws IOException {
     	boolean atLeastOneFrequentExtension = false;
     	
     	if(DEBUG){
@@ -487,7 +492,7 @@ public class AlgoVMSP {
         //  ======  S-STEPS ======
         // Temporary variables (as described in the paper)
         List<Integer> sTemp = new ArrayList<Integer>();
-        List<Bitmap> sTempBitmaps = new ArrayList<Bitmap>();
+        List<WordAlignedBitmap> sTempBitmaps = new ArrayList<WordAlignedBitmap>();
 
         // for CMAP pruning, we will only check against the last appended item
         Map<Integer, Integer> mapSupportItemsAfter = coocMapAfter.get(lastAppendedItem);
@@ -510,8 +515,8 @@ public class AlgoVMSP {
             }
 
             // perform the S-STEP with that item to get a new bitmap
-            Bitmap.INTERSECTION_COUNT++;
-            Bitmap newBitmap = prefixBitmap.createNewBitmapSStep(verticalDB.get(i), sequencesSize, lastBitIndex, maxGap);
+            WordAlignedBitmap.INTERSECTION_COUNT++;
+            WordAlignedBitmap newBitmap = prefixBitmap.createNewBitmapSStep(verticalDB.get(i), sequenceWordCounts, maxGap);
             // if the support is higher than minsup
             if (newBitmap.getSupportWithoutGapTotal() >= minsup) {
                 // record that item and pattern in temporary variables
@@ -536,7 +541,7 @@ public class AlgoVMSP {
 //            prefixSStep.sumOfItems = item + prefix.sumOfItems;
             
             // create the new bitmap
-            Bitmap newBitmap = sTempBitmaps.get(k);
+            WordAlignedBitmap newBitmap = sTempBitmaps.get(k);
 
             // save the pattern to the file
             if(newBitmap.getSupport() >= minsup) {
@@ -560,7 +565,7 @@ public class AlgoVMSP {
         // ========  I STEPS =======
         // Temporary variables
         List<Integer> iTemp = new ArrayList<Integer>();
-        List<Bitmap> iTempBitmaps = new ArrayList<Bitmap>();
+        List<WordAlignedBitmap> iTempBitmaps = new ArrayList<WordAlignedBitmap>();
 
         // for each item in in
         loop2:
@@ -589,8 +594,8 @@ public class AlgoVMSP {
 
                 // Perform an i-step with this item and the current prefix.
                 // This creates a new bitmap
-                Bitmap.INTERSECTION_COUNT++;
-                Bitmap newBitmap = prefixBitmap.createNewBitmapIStep(verticalDB.get(i), sequencesSize, lastBitIndex);
+                WordAlignedBitmap.INTERSECTION_COUNT++;
+                WordAlignedBitmap newBitmap = prefixBitmap.createNewBitmapIStep(verticalDB.get(i), sequenceWordCounts);
                 // If the support is no less than minsup
                 if (newBitmap.getSupport() >= minsup) {
                     // record that item and pattern in temporary variables
@@ -614,7 +619,7 @@ public class AlgoVMSP {
             	prefixIStep.sumOfOddItems = item + prefix.sumOfOddItems;
             }
             // create the new bitmap
-            Bitmap newBitmap = iTempBitmaps.get(k);
+            WordAlignedBitmap newBitmap = iTempBitmaps.get(k);
 
             // recursively try to extend that pattern
             boolean hasFrequentExtension = false;
@@ -645,7 +650,7 @@ public class AlgoVMSP {
      * @throws IOException exception if error while writing to the file
      * @return true if is subsumed
      */
-    private boolean savePatternSingleItem(Integer item, Bitmap bitmap, boolean itemIsEven) throws IOException {
+    private boolean savePatternSingleItem(Integer item, WordAlignedBitmap bitmap, boolean itemIsEven) throws IOException {
     	if(DEBUG){
     		System.out.println("Trying to save : " + item);
     	}
@@ -730,7 +735,7 @@ public class AlgoVMSP {
      * @throws IOException exception if error while writing to the file
      * @return true if pattern is subsumed
      */
-    private boolean savePatternMultipleItems(PrefixVMSP prefix, Bitmap bitmap, int length) throws IOException {
+    private boolean savePatternMultipleItems(PrefixVMSP prefix, WordAlignedBitmap bitmap, int length) throws IOException {
         // CHANGED ------
     	if(DEBUG){
     		System.out.println("*Trying to save : " +  prefix);
@@ -913,7 +918,7 @@ public class AlgoVMSP {
         r.append('\n');
         r.append("minsup " + minsup);
         r.append('\n');
-        r.append("Intersection count " + Bitmap.INTERSECTION_COUNT + " \n");
+        r.append("Intersection count " + WordAlignedBitmap.INTERSECTION_COUNT + " \n");
         r.append("===================================================\n");
         
 //        // PRINT PATTERNS
@@ -985,7 +990,7 @@ public class AlgoVMSP {
 		        // if the user wants the sequence IDs, we will show them
 		        if(outputSequenceIdentifiers) {
 		        	r.append(" #SID: ");
-		        	r.append(pattern.bitmap.getSIDs(sequencesSize));
+		        	r.append(pattern.bitmap.getSIDs());
 		        }
 				
 				writer.write(r.toString());
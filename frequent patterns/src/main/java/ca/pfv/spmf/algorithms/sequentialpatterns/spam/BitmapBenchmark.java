@@ -0,0 +1,156 @@
+package ca.pfv.spmf.algorithms.sequentialpatterns.spam;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A benchmark comparing the I-step and S-step of the bitmaps of SPAM ({@link Bitmap}, based on
+ * a BitSet) with those of the word-aligned bitmaps ({@link WordAlignedBitmap}).
+ * <br/><br/>
+ *
+ * A random sequence database is generated, the bitmaps of its items are created with both
+ * representations, and the I-steps and S-steps of all pairs of items are done several times with
+ * each representation (after some warm-up rounds, so that the code is compiled by the JIT).
+ * The average time of a step and the total support of the resulting bitmaps are printed
+ * (the supports must be the same for both representations).
+ * <br/><br/>
+ *
+ * Usage: java ca.pfv.spmf.algorithms.sequentialpatterns.spam.BitmapBenchmark
+ *   [sequence count] [average number of itemsets per sequence] [item count] [item probability] [max gap]
+ * <br/><br/>
+ *
+ * Copyright (c) 2008-2012 Philippe Fournier-Viger
+ *  <br/><br/>
+ *
+ * This file is part of the SPMF DATA MINING SOFTWARE
+ * (http://www.philippe-fournier-viger.com/spmf).
+ * <br/><br/>
+ *
+ * SPMF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <br/><br/>
+ *
+ * SPMF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <br/><br/>
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SPMF.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @see Bitmap
+ * @see WordAlignedBitmap
+ */
+public class BitmapBenchmark {
+
+	/** the number of rounds that are not measured */
+	private static final int WARMUP_ROUNDS = 3;
+
+	/** the number of rounds that are measured */
+	private static final int MEASURED_ROUNDS = 5;
+
+	/**
+	 * Run the benchmark
+	 * @param args the parameters (see the description of the class)
+	 */
+	public static void main(String[] args) {
+		int sequenceCount = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		int averageLength = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		int itemCount = args.length > 2 ? Integer.parseInt(args[2]) : 40;
+		double itemProbability = args.length > 3 ? Double.parseDouble(args[3]) : 0.1;
+		int maxGap = args.length > 4 ? Integer.parseInt(args[4]) : Integer.MAX_VALUE;
+
+		// generate the database: the length of each sequence and the bits of each item
+		Random random = new Random(0);
+		List<Integer> sequencesSize = new ArrayList<Integer>();
+		int bitIndex = 0;
+		int[] lengths = new int[sequenceCount];
+		for(int sid = 0; sid < sequenceCount; sid++){
+			sequencesSize.add(bitIndex);
+			lengths[sid] = 1 + random.nextInt(2 * averageLength);
+			bitIndex += lengths[sid];
+		}
+		int lastBitIndex = bitIndex - 1;
+		int[] sequenceWordCounts = WordAlignedBitmap.getSequenceWordCounts(sequencesSize, lastBitIndex);
+
+		Bitmap[] bitmaps = new Bitmap[itemCount];
+		WordAlignedBitmap[] wordAlignedBitmaps = new WordAlignedBitmap[itemCount];
+		for(int item = 0; item < itemCount; item++){
+			bitmaps[item] = new Bitmap(lastBitIndex);
+			wordAlignedBitmaps[item] = new WordAlignedBitmap();
+			for(int sid = 0; sid < sequenceCount; sid++){
+				for(int tid = 0; tid < lengths[sid]; tid++){
+					if(random.nextDouble() < itemProbability){
+						bitmaps[item].registerBit(sid, tid, sequencesSize);
+						wordAlignedBitmaps[item].registerBit(sid, tid, sequenceWordCounts);
+					}
+				}
+			}
+		}
+
+		System.out.println("=============  BITMAP BENCHMARK =============");
+		System.out.println(" Sequences: " + sequenceCount + "  bits: " + (lastBitIndex + 1)
+				+ "  items: " + itemCount + "  max gap: " + (maxGap == Integer.MAX_VALUE ? "none" : maxGap));
+		for(int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++){
+			boolean measured = round >= WARMUP_ROUNDS;
+
+			long start = System.nanoTime();
+			long support = 0;
+			for(Bitmap prefix : bitmaps){
+				for(Bitmap item : bitmaps){
+					support += prefix.createNewBitmapIStep(item, sequencesSize, lastBitIndex).getSupport();
+				}
+			}
+			printResult(measured, round, "Bitmap             I-step", start, support, itemCount);
+
+			start = System.nanoTime();
+			support = 0;
+			for(WordAlignedBitmap prefix : wordAlignedBitmaps){
+				for(WordAlignedBitmap item : wordAlignedBitmaps){
+					support += prefix.createNewBitmapIStep(item, sequenceWordCounts).getSupport();
+				}
+			}
+			printResult(measured, round, "WordAlignedBitmap  I-step", start, support, itemCount);
+
+			start = System.nanoTime();
+			support = 0;
+			for(Bitmap prefix : bitmaps){
+				for(Bitmap item : bitmaps){
+					support += prefix.createNewBitmapSStep(item, sequencesSize, lastBitIndex, maxGap).getSupport();
+				}
+			}
+			printResult(measured, round, "Bitmap             S-step", start, support, itemCount);
+
+			start = System.nanoTime();
+			support = 0;
+			for(WordAlignedBitmap prefix : wordAlignedBitmaps){
+				for(WordAlignedBitmap item : wordAlignedBitmaps){
+					support += prefix.createNewBitmapSStep(item, sequenceWordCounts, maxGap).getSupport();
+				}
+			}
+			printResult(measured, round, "WordAlignedBitmap  S-step", start, support, itemCount);
+		}
+		System.out.println("===================================================");
+	}
+
+	/**
+	 * Print the result of a round of steps
+	 * @param measured true if the round is measured (otherwise nothing is printed)
+	 * @param round the round
+	 * @param name the name of the steps
+	 * @param start the time when the steps started (System.nanoTime())
+	 * @param support the total support of the bitmaps created by the steps
+	 * @param itemCount the number of items (there is a step for each pair of items)
+	 */
+	private static void printResult(boolean measured, int round, String name, long start, long support, int itemCount) {
+		if(measured){
+			long time = System.nanoTime() - start;
+			System.out.println(" Round " + (round - WARMUP_ROUNDS + 1) + "  " + name + ": "
+					+ (time / (itemCount * itemCount) / 1000) + " us/step  total support: " + support);
+		}
+	}
+}
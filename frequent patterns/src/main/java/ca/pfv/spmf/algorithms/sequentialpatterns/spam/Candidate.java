@@ -34,13 +34,13 @@ import java.util.Collection;
 public class Candidate implements Comparable<Candidate>{
 	
 	Prefix prefix;
-	Bitmap bitmap;
+	WordAlignedBitmap bitmap;
 	Collection<Integer> sn;
 	Collection<Integer> in;
 	Integer hasToBeGreaterThanForIStep;
 	int candidateLength = 0;
 
-	public Candidate(Prefix prefix, Bitmap bitmap, Collection<Integer> sn,
+	public Candidate(Prefix prefix, WordAlignedBitmap bitmap, Collection<Integer> sn,
 			Collection<Integer> in, Integer hasToBeGreaterThanForIStep, int candidateLength) {
 		this.prefix = prefix;
 		this.bitmap = bitmap;
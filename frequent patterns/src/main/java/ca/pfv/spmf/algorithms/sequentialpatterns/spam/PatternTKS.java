@@ -39,7 +39,7 @@ public class PatternTKS implements Comparable<PatternTKS>{
 	public int support;
 	
 	/** the bitset corresponding to this pattern, which indicates the sequences containing this pattern (optional) */
-	Bitmap bitmap;
+	WordAlignedBitmap bitmap;
 
 	/** the constructor */
 	public PatternTKS(Prefix prefix, int suppport) {
@@ -39,7 +39,7 @@ public class PatternVMSP implements Comparable<PatternVMSP>{
 	public int support;
 	
 	/** the bitset corresponding to this pattern, which indicates the sequences containing this pattern (optional) */
-	Bitmap bitmap = null;
+	WordAlignedBitmap bitmap = null;
 
 	/**
 	 * Constructor
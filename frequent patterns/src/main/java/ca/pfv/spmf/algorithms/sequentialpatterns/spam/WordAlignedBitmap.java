@@ -0,0 +1,358 @@
+package ca.pfv.spmf.algorithms.sequentialpatterns.spam;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Implementation of a bitmap for SPAM, where the bits of each sequence are stored in their own
+ * words (the segment of a sequence starts at the beginning of a long).
+ * <br/><br/>
+ *
+ * The bit of the itemset tid of a sequence is the bit (tid % 64) of the word (tid / 64) of the segment
+ * of this sequence, and a segment has as many words as needed for the itemsets of the sequence
+ * (a single word for sequences of up to 64 itemsets). Only the segments of the sequences having
+ * a bit set to 1 are stored, with their sequence ids (by increasing order), so that the support
+ * is the number of segments.
+ * <br/><br/>
+ *
+ * The I-step is an AND between the words of the segments of the same sequences. The S-step
+ * transforms the segment of the prefix with a lookup table giving, for the position of the first bit
+ * set to 1 in a word, the mask of the following bits (as in the S-step of SPAM, Ayres et al., 2002),
+ * and does an AND with the words of the item. The segments of two bitmaps are matched by merging
+ * their lists of sequence ids.
+ * <br/><br/>
+ *
+ * Copyright (c) 2008-2012 Philippe Fournier-Viger
+ *  <br/><br/>
+ *
+ * This file is part of the SPMF DATA MINING SOFTWARE
+ * (http://www.philippe-fournier-viger.com/spmf).
+ * <br/><br/>
+ *
+ * SPMF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <br/><br/>
+ *
+ * SPMF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * <br/><br/>
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SPMF.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @see Bitmap
+ * @see AlgoCMSPAM
+ * @see AlgoSPAM
+ * @see AlgoTKS
+ * @see AlgoVMSP
+ */
+public class WordAlignedBitmap {
+
+	public static long INTERSECTION_COUNT = 0;
+
+	/** the S-step transform of a word, by position of its first bit set to 1: the mask of the following bits */
+	private static final long[] SSTEP_MASKS = new long[64];
+	static {
+		for(int bit = 0; bit < 63; bit++){
+			SSTEP_MASKS[bit] = -1L << (bit + 1);
+		}
+		// there is no bit after the last bit (a shift of 64 would not change the value)
+		SSTEP_MASKS[63] = 0L;
+	}
+
+	/** the ids of the sequences having a bit set to 1 (by increasing order) */
+	private int[] sids;
+
+	/** the number of sequences having a bit set to 1 (the support) */
+	private int support = 0;
+
+	/** the words of the segments of the sequences, in the same order as the sequence ids */
+	private long[] words;
+
+	/** the number of words used */
+	private int wordCount = 0;
+
+	/** the number of sequences where the S-step found the item, without considering the max gap */
+	private int supportWithoutGapTotal = 0;
+
+	/**
+	 * Constructor of an empty bitmap
+	 */
+	WordAlignedBitmap(){
+		this.sids = new int[8];
+		this.words = new long[8];
+	}
+
+	/**
+	 * Constructor
+	 * @param sidCapacity the maximum number of sequences
+	 * @param wordCapacity the maximum number of words
+	 */
+	private WordAlignedBitmap(int sidCapacity, int wordCapacity){
+		this.sids = new int[sidCapacity];
+		this.words = new long[wordCapacity];
+	}
+
+	/**
+	 * Calculate the number of words of the segment of each sequence
+	 * @param sequencesSize the list of first bit of each sequence, as used by {@link Bitmap}
+	 * @param lastBitIndex the last bit index
+	 * @return the number of words of each sequence
+	 */
+	static int[] getSequenceWordCounts(List<Integer> sequencesSize, int lastBitIndex) {
+		int[] sequenceWordCounts = new int[sequencesSize.size()];
+		for(int sid = 0; sid < sequenceWordCounts.length; sid++){
+			int nextSequenceStart = (sid + 1 < sequencesSize.size()) ? sequencesSize.get(sid + 1) : lastBitIndex + 1;
+			int itemsetCount = nextSequenceStart - sequencesSize.get(sid);
+			sequenceWordCounts[sid] = (itemsetCount + 63) >>> 6;
+		}
+		return sequenceWordCounts;
+	}
+
+	/**
+	 * Set a bit to 1 in this bitmap. The bits must be set by increasing order of sequence id.
+	 * @param sid the sid corresponding to that bit
+	 * @param tid the tid corresponding to that bit
+	 * @param sequenceWordCounts the number of words of each sequence
+	 */
+	public void registerBit(int sid, int tid, int[] sequenceWordCounts) {
+		// if it is the first bit of this sequence, add its segment
+		if(support == 0 || sids[support - 1] != sid){
+			if(support == sids.length){
+				sids = Arrays.copyOf(sids, support * 2);
+			}
+			sids[support++] = sid;
+			int segmentWordCount = sequenceWordCounts[sid];
+			if(wordCount + segmentWordCount > words.length){
+				words = Arrays.copyOf(words, Math.max(words.length * 2, wordCount + segmentWordCount));
+			}
+			wordCount += segmentWordCount;
+		}
+		// set the bit in the segment of the last sequence
+		int segmentStart = wordCount - sequenceWordCounts[sid];
+		words[segmentStart + (tid >>> 6)] |= 1L << tid;
+	}
+
+	/**
+	 * Get the support of this bitmap (the number of sequences having a bit set to 1)
+	 * @return the support.
+	 */
+	public int getSupport() {
+		return support;
+	}
+
+	/**
+	 * Get the number of sequences where the last S-step found the item, without considering the max gap
+	 * @return the support without the gap constraint
+	 */
+	public int getSupportWithoutGapTotal() {
+		return supportWithoutGapTotal;
+	}
+
+	/**
+	 * Create a new bitmap for the s-step by doing a AND between the transformed
+	 * bitmap and the bitmap of an item.
+	 * @param bitmapItem  the bitmap of the item used for the S-Step
+	 * @param sequenceWordCounts the number of words of each sequence
+	 * @param maxGap the maximum gap between the itemset of the prefix and the itemset of the item
+	 * @return return the new bitmap
+	 */
+	WordAlignedBitmap createNewBitmapSStep(WordAlignedBitmap bitmapItem, int[] sequenceWordCounts, int maxGap) {
+		WordAlignedBitmap newBitmap = new WordAlignedBitmap(Math.min(support, bitmapItem.support),
+				Math.min(wordCount, bitmapItem.wordCount));
+		long[] newWords = newBitmap.words;
+
+		// the current sequence and segment in the bitmap of the item
+		int itemIndex = 0;
+		int itemSegmentStart = 0;
+		// the first word of the current segment in this bitmap
+		int segmentStart = 0;
+		for(int i = 0; i < support; i++){
+			int sid = sids[i];
+			int segmentWordCount = sequenceWordCounts[sid];
+			// find the sequence in the bitmap of the item
+			while(itemIndex < bitmapItem.support && bitmapItem.sids[itemIndex] < sid){
+				itemSegmentStart += sequenceWordCounts[bitmapItem.sids[itemIndex]];
+				itemIndex++;
+			}
+			if(itemIndex == bitmapItem.support){
+				break;
+			}
+			if(bitmapItem.sids[itemIndex] == sid){
+				int newSegmentStart = newBitmap.wordCount;
+				boolean match = false;
+
+				// find the first word of the prefix having a bit set to 1
+				int firstWord = 0;
+				while(words[segmentStart + firstWord] == 0){
+					firstWord++;
+				}
+				// the item must appear after the first bit of the prefix
+				long firstWordMask = SSTEP_MASKS[Long.numberOfTrailingZeros(words[segmentStart + firstWord])];
+
+				// if no maxGap constraint is used
+				if(maxGap == Integer.MAX_VALUE){
+					// AND between the transformed segment and the segment of the item
+					long word = bitmapItem.words[itemSegmentStart + firstWord] & firstWordMask;
+					newWords[newSegmentStart + firstWord] = word;
+					match = word != 0;
+					for(int j = firstWord + 1; j < segmentWordCount; j++){
+						word = bitmapItem.words[itemSegmentStart + j];
+						newWords[newSegmentStart + j] = word;
+						match |= word != 0;
+					}
+					if(match){
+						newBitmap.supportWithoutGapTotal++;
+					}
+				}else{
+					// check if the item appears after the first bit of the prefix, without considering the gap
+					boolean matchWithoutGap = (bitmapItem.words[itemSegmentStart + firstWord] & firstWordMask) != 0;
+					for(int j = firstWord + 1; j < segmentWordCount && matchWithoutGap == false; j++){
+						matchWithoutGap = bitmapItem.words[itemSegmentStart + j] != 0;
+					}
+					if(matchWithoutGap){
+						newBitmap.supportWithoutGapTotal++;
+						// the mask of the bits following a bit of the prefix by at most maxGap bits
+						setGapMask(newWords, newSegmentStart, segmentStart, segmentWordCount, maxGap);
+						// AND with the segment of the item
+						for(int j = 0; j < segmentWordCount; j++){
+							long word = newWords[newSegmentStart + j] & bitmapItem.words[itemSegmentStart + j];
+							newWords[newSegmentStart + j] = word;
+							match |= word != 0;
+						}
+					}
+				}
+
+				// keep the segment if the item was found
+				if(match){
+					newBitmap.sids[newBitmap.support++] = sid;
+					newBitmap.wordCount += segmentWordCount;
+				}else{
+					Arrays.fill(newWords, newSegmentStart, newSegmentStart + segmentWordCount, 0L);
+				}
+			}
+			segmentStart += segmentWordCount;
+		}
+		newBitmap.trim();
+		// We return the resulting bitmap
+		return newBitmap;
+	}
+
+	/**
+	 * Set the bits following a bit of a segment of this bitmap by at most maxGap bits,
+	 * in the words of a new segment (whose words are 0).
+	 * @param newWords the words of the new bitmap
+	 * @param newSegmentStart the first word of the new segment
+	 * @param segmentStart the first word of the segment of this bitmap
+	 * @param segmentWordCount the number of words of the segments
+	 * @param maxGap the maximum gap
+	 */
+	private void setGapMask(long[] newWords, int newSegmentStart, int segmentStart, int segmentWordCount, int maxGap) {
+		int lastBit = segmentWordCount * 64 - 1;
+		// the last bit that is already set
+		int coveredBit = -1;
+		for(int j = 0; j < segmentWordCount; j++){
+			long word = words[segmentStart + j];
+			while(word != 0){
+				int bit = j * 64 + Long.numberOfTrailingZeros(word);
+				word &= word - 1;
+				// set the bits from bit + 1 to bit + maxGap (those that are not set yet)
+				int from = Math.max(bit + 1, coveredBit + 1);
+				int to = (maxGap >= lastBit - bit) ? lastBit : bit + maxGap;
+				for(int position = from; position <= to; ){
+					int wordIndex = position >>> 6;
+					int lastBitOfWord = Math.min(to, wordIndex * 64 + 63);
+					// mask of the bits from position to lastBitOfWord in this word
+					long mask = (-1L << position) & (-1L >>> (63 - (lastBitOfWord & 63)));
+					newWords[newSegmentStart + wordIndex] |= mask;
+					position = lastBitOfWord + 1;
+				}
+				coveredBit = Math.max(coveredBit, to);
+			}
+		}
+	}
+
+	/**
+	 * Create a new bitmap by performing the I-STEP with this
+	 * bitmap and the bitmap of an item.
+	 * @param bitmapItem the bitmap of the item
+	 * @param sequenceWordCounts the number of words of each sequence
+	 * @return the new bitmap
+	 */
+	WordAlignedBitmap createNewBitmapIStep(WordAlignedBitmap bitmapItem, int[] sequenceWordCounts) {
+		WordAlignedBitmap newBitmap = new WordAlignedBitmap(Math.min(support, bitmapItem.support),
+				Math.min(wordCount, bitmapItem.wordCount));
+		long[] newWords = newBitmap.words;
+
+		// the current sequence and segment in the bitmap of the item
+		int itemIndex = 0;
+		int itemSegmentStart = 0;
+		// the first word of the current segment in this bitmap
+		int segmentStart = 0;
+		for(int i = 0; i < support; i++){
+			int sid = sids[i];
+			int segmentWordCount = sequenceWordCounts[sid];
+			// find the sequence in the bitmap of the item
+			while(itemIndex < bitmapItem.support && bitmapItem.sids[itemIndex] < sid){
+				itemSegmentStart += sequenceWordCounts[bitmapItem.sids[itemIndex]];
+				itemIndex++;
+			}
+			if(itemIndex == bitmapItem.support){
+				break;
+			}
+			if(bitmapItem.sids[itemIndex] == sid){
+				// We do an AND with the segment of the item
+				int newSegmentStart = newBitmap.wordCount;
+				boolean match = false;
+				for(int j = 0; j < segmentWordCount; j++){
+					long word = words[segmentStart + j] & bitmapItem.words[itemSegmentStart + j];
+					newWords[newSegmentStart + j] = word;
+					match |= word != 0;
+				}
+				// keep the segment if both bitmaps have a bit set to 1 in the same itemset
+				if(match){
+					newBitmap.sids[newBitmap.support++] = sid;
+					newBitmap.wordCount += segmentWordCount;
+				}else{
+					Arrays.fill(newWords, newSegmentStart, newSegmentStart + segmentWordCount, 0L);
+				}
+			}
+			segmentStart += segmentWordCount;
+		}
+		newBitmap.trim();
+		// We return the resulting bitmap
+		return newBitmap;
+	}
+
+	/**
+	 * Reduce the size of the arrays if less than half of them is used
+	 */
+	private void trim() {
+		if(support < sids.length / 2){
+			sids = Arrays.copyOf(sids, support);
+		}
+		if(wordCount < words.length / 2){
+			words = Arrays.copyOf(words, wordCount);
+		}
+	}
+
+	/**
+	 * Get the list of sids corresponding to this bitmap as a string
+	 * @return a string
+	 */
+	public String getSIDs() {
+		StringBuilder builder = new StringBuilder();
+		for(int i = 0; i < support; i++){
+			if(i > 0){
+				builder.append(" ");
+			}
+			builder.append(sids[i]);
+		}
+		return builder.toString();
+	}
+
+}
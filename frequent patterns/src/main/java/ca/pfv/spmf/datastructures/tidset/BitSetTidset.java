@@ -0,0 +1,94 @@
+package ca.pfv.spmf.datastructures.tidset;
+
+/* This file is part of the SPMF DATA MINING SOFTWARE
+* (http://www.philippe-fournier-viger.com/spmf).
+*
+* SPMF is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+*
+* SPMF is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* SPMF. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.util.BitSet;
+
+/**
+ * A tidset stored as a java.util.BitSet. The bitset has one bit for each transaction
+ * until the largest transaction identifier of the tidset, so it is well suited to dense tidsets.
+ *
+ * @see Tidset
+ */
+public class BitSetTidset implements Tidset {
+
+	/** the bitset */
+	private final BitSet bitset;
+
+	/**
+	 * Create an empty tidset.
+	 */
+	public BitSetTidset() {
+		this(new BitSet());
+	}
+
+	/**
+	 * Create a tidset using a bitset.
+	 * @param bitset the bitset (it is not copied)
+	 */
+	public BitSetTidset(BitSet bitset) {
+		this.bitset = bitset;
+	}
+
+	@Override
+	public void add(int tid) {
+		bitset.set(tid);
+	}
+
+	@Override
+	public void addRange(int start, int end) {
+		bitset.set(start, end);
+	}
+
+	@Override
+	public int cardinality() {
+		return bitset.cardinality();
+	}
+
+	@Override
+	public Tidset and(Tidset other) {
+		BitSet result = (BitSet) bitset.clone();
+		result.and(((BitSetTidset) other).bitset);
+		return new BitSetTidset(result);
+	}
+
+	@Override
+	public Tidset andNot(Tidset other) {
+		BitSet result = (BitSet) bitset.clone();
+		result.andNot(((BitSetTidset) other).bitset);
+		return new BitSetTidset(result);
+	}
+
+	@Override
+	public int nextSetBit(int from) {
+		return bitset.nextSetBit(from);
+	}
+
+	@Override
+	public BitSet toBitSet() {
+		return bitset;
+	}
+
+	@Override
+	public void optimize() {
+		// a BitSet has a single representation
+	}
+
+	@Override
+	public String toString() {
+		return bitset.toString();
+	}
+}
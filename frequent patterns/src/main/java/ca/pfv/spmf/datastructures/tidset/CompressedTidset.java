@@ -0,0 +1,950 @@
+package ca.pfv.spmf.datastructures.tidset;
+
+/* This file is part of the SPMF DATA MINING SOFTWARE
+* (http://www.philippe-fournier-viger.com/spmf).
+*
+* SPMF is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+*
+* SPMF is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* SPMF. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A tidset stored as a compressed bitmap, following the design of Roaring bitmaps:
+ * <br/><br/>
+ *
+ * Chambi, S., Lemire, D., Kaser, O., Godin, R. (2016). Better bitmap performance with
+ * Roaring bitmaps. Software: Practice and Experience, 46(5), 709-719.
+ * <br/><br/>
+ *
+ * The transaction identifiers are grouped by their 16 high bits. The 16 low bits of the
+ * identifiers of a group are stored in a container, whose type depends on its content:
+ * a sorted array of chars for a group of at most 4096 identifiers, a bitmap of 1024 longs
+ * for a larger group, or a list of runs of consecutive identifiers when it is smaller
+ * (for example, for the diffsets of dEclat that contain almost all the transactions).
+ * Thus, a sparse tidset uses about 2 bytes per transaction identifier, while a BitSet uses
+ * one bit per transaction of the database. Two bitmap containers are intersected word by word.
+ * <br/><br/>
+ *
+ * The tidsets returned by {@link #and(Tidset)} and {@link #andNot(Tidset)} do not share
+ * containers with their operands.
+ *
+ * @see Tidset
+ */
+public class CompressedTidset implements Tidset {
+
+	/** the maximum number of values of an array container */
+	static final int ARRAY_MAX = 4096;
+	/** the number of longs of a bitmap container */
+	static final int WORDS = 1024;
+
+	/** the 16 high bits of the identifiers of each container, in increasing order */
+	private char[] keys;
+	/** the containers */
+	private Container[] containers;
+	/** the number of containers */
+	private int size;
+	/** the number of identifiers */
+	private int cardinality;
+
+	/**
+	 * Create an empty tidset.
+	 */
+	public CompressedTidset() {
+		this(4);
+	}
+
+	/**
+	 * Create an empty tidset.
+	 * @param capacity the initial number of containers
+	 */
+	private CompressedTidset(int capacity) {
+		keys = new char[Math.max(1, capacity)];
+		containers = new Container[keys.length];
+	}
+
+	@Override
+	public void add(int tid) {
+		if(tid < 0) {
+			throw new IllegalArgumentException("A transaction identifier must be positive: " + tid);
+		}
+		char high = (char) (tid >>> 16);
+		int index;
+		// the identifiers are generally added by increasing order
+		if(size > 0 && keys[size - 1] == high) {
+			index = size - 1;
+		}else {
+			index = binarySearch(high);
+			if(index < 0) {
+				index = -index - 1;
+				insertContainer(index, high, new ArrayContainer());
+			}
+		}
+		Container container = containers[index];
+		int before = container.cardinality;
+		container = container.add((char) tid);
+		containers[index] = container;
+		cardinality += container.cardinality - before;
+	}
+
+	@Override
+	public void addRange(int start, int end) {
+		if(start < 0 || start > end) {
+			throw new IllegalArgumentException("Invalid range: " + start + " " + end);
+		}
+		if(start == end) {
+			return;
+		}
+		int lastHigh = (end - 1) >>> 16;
+		for(int high = start >>> 16; high <= lastHigh; high++) {
+			// the range in this container (the end is inclusive)
+			int lowStart = (high == start >>> 16) ? (start & 0xFFFF) : 0;
+			int lowLast = (high == lastHigh) ? ((end - 1) & 0xFFFF) : 0xFFFF;
+			int index = binarySearch((char) high);
+			if(index < 0) {
+				char[] runs = new char[] {(char) lowStart, (char) (lowLast - lowStart)};
+				insertContainer(-index - 1, (char) high, new RunContainer(runs, 1, lowLast - lowStart + 1));
+				cardinality += lowLast - lowStart + 1;
+			}else {
+				Container container = containers[index];
+				int before = container.cardinality;
+				BitmapContainer bitmap = container.toBitmap();
+				setRange(bitmap.words, lowStart, lowLast + 1);
+				bitmap.cardinality = BitmapContainer.cardinality(bitmap.words);
+				containers[index] = bitmap;
+				cardinality += bitmap.cardinality - before;
+			}
+		}
+	}
+
+	@Override
+	public int cardinality() {
+		return cardinality;
+	}
+
+	@Override
+	public Tidset and(Tidset other) {
+		CompressedTidset tidset = (CompressedTidset) other;
+		CompressedTidset result = new CompressedTidset(Math.min(size, tidset.size));
+		int i = 0;
+		int j = 0;
+		// intersect the containers having the same key
+		while(i < size && j < tidset.size) {
+			if(keys[i] == tidset.keys[j]) {
+				Container container = containers[i].and(tidset.containers[j]);
+				if(container != null) {
+					result.append(keys[i], container);
+				}
+				i++;
+				j++;
+			}else if(keys[i] < tidset.keys[j]) {
+				i++;
+			}else {
+				j++;
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public Tidset andNot(Tidset other) {
+		CompressedTidset tidset = (CompressedTidset) other;
+		CompressedTidset result = new CompressedTidset(size);
+		int i = 0;
+		int j = 0;
+		while(i < size) {
+			if(j == tidset.size || keys[i] < tidset.keys[j]) {
+				// no identifier to remove from this container
+				result.append(keys[i], containers[i].copy());
+				i++;
+			}else if(keys[i] == tidset.keys[j]) {
+				Container container = containers[i].andNot(tidset.containers[j]);
+				if(container != null) {
+					result.append(keys[i], container);
+				}
+				i++;
+				j++;
+			}else {
+				j++;
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public int nextSetBit(int from) {
+		if(from < 0) {
+			throw new IndexOutOfBoundsException("from < 0: " + from);
+		}
+		int index = binarySearch((char) (from >>> 16));
+		if(index >= 0) {
+			int low = containers[index].nextValue(from & 0xFFFF);
+			if(low >= 0) {
+				return (keys[index] << 16) | low;
+			}
+			index++;
+		}else {
+			index = -index - 1;
+		}
+		// the first identifier of the next container
+		if(index < size) {
+			return (keys[index] << 16) | containers[index].nextValue(0);
+		}
+		return -1;
+	}
+
+	@Override
+	public BitSet toBitSet() {
+		BitSet bitset = new BitSet();
+		for(int i = 0; i < size; i++) {
+			containers[i].addTo(bitset, keys[i] << 16);
+		}
+		return bitset;
+	}
+
+	@Override
+	public void optimize() {
+		for(int i = 0; i < size; i++) {
+			containers[i] = containers[i].optimize();
+		}
+		if(size < keys.length) {
+			keys = Arrays.copyOf(keys, Math.max(1, size));
+			containers = Arrays.copyOf(containers, keys.length);
+		}
+	}
+
+	/**
+	 * Find the container having a key
+	 * @param key the key
+	 * @return its position or (-(insertion point) - 1) if there is none
+	 */
+	private int binarySearch(char key) {
+		return Arrays.binarySearch(keys, 0, size, key);
+	}
+
+	/**
+	 * Insert a container
+	 * @param index its position
+	 * @param key its key
+	 * @param container the container
+	 */
+	private void insertContainer(int index, char key, Container container) {
+		if(size == keys.length) {
+			keys = Arrays.copyOf(keys, size * 2);
+			containers = Arrays.copyOf(containers, size * 2);
+		}
+		System.arraycopy(keys, index, keys, index + 1, size - index);
+		System.arraycopy(containers, index, containers, index + 1, size - index);
+		keys[index] = key;
+		containers[index] = container;
+		size++;
+	}
+
+	/**
+	 * Add a container after the last container
+	 * @param key its key (larger than the other keys)
+	 * @param container the container
+	 */
+	private void append(char key, Container container) {
+		insertContainer(size, key, container);
+		cardinality += container.cardinality;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder buffer = new StringBuilder("{");
+		for(int tid = nextSetBit(0); tid != -1; tid = nextSetBit(tid + 1)) {
+			if(buffer.length() > 1) {
+				buffer.append(", ");
+			}
+			buffer.append(tid);
+		}
+		return buffer.append('}').toString();
+	}
+
+	/**
+	 * Set the bits of an interval in an array of words
+	 * @param words the words
+	 * @param start the first bit
+	 * @param end the last bit plus 1 (larger than start)
+	 */
+	static void setRange(long[] words, int start, int end) {
+		int first = start >>> 6;
+		int last = (end - 1) >>> 6;
+		long firstMask = -1L << start;
+		long lastMask = -1L >>> -end;
+		if(first == last) {
+			words[first] |= firstMask & lastMask;
+			return;
+		}
+		words[first] |= firstMask;
+		for(int i = first + 1; i < last; i++) {
+			words[i] = -1L;
+		}
+		words[last] |= lastMask;
+	}
+
+	/**
+	 * Clear the bits of an interval in an array of words
+	 * @param words the words
+	 * @param start the first bit
+	 * @param end the last bit plus 1 (larger than start)
+	 */
+	static void clearRange(long[] words, int start, int end) {
+		int first = start >>> 6;
+		int last = (end - 1) >>> 6;
+		long firstMask = -1L << start;
+		long lastMask = -1L >>> -end;
+		if(first == last) {
+			words[first] &= ~(firstMask & lastMask);
+			return;
+		}
+		words[first] &= ~firstMask;
+		for(int i = first + 1; i < last; i++) {
+			words[i] = 0L;
+		}
+		words[last] &= ~lastMask;
+	}
+
+	/**
+	 * Copy the bits of an interval from an array of words to another array of words
+	 * @param source the words to copy
+	 * @param destination the words where the bits are set
+	 * @param start the first bit
+	 * @param end the last bit plus 1 (larger than start)
+	 */
+	static void copyRange(long[] source, long[] destination, int start, int end) {
+		int first = start >>> 6;
+		int last = (end - 1) >>> 6;
+		long firstMask = -1L << start;
+		long lastMask = -1L >>> -end;
+		if(first == last) {
+			destination[first] |= source[first] & firstMask & lastMask;
+			return;
+		}
+		destination[first] |= source[first] & firstMask;
+		for(int i = first + 1; i < last; i++) {
+			destination[i] = source[i];
+		}
+		destination[last] |= source[last] & lastMask;
+	}
+
+	/**
+	 * A container for the 16 low bits of the identifiers having the same 16 high bits.
+	 * Operations that may change the type of a container return the container to use.
+	 */
+	abstract static class Container {
+
+		/** the number of values */
+		int cardinality;
+
+		/**
+		 * Add a value
+		 * @param value the value
+		 * @return the container containing the value (this container or a new one)
+		 */
+		abstract Container add(char value);
+
+		/**
+		 * Check if this container contains a value
+		 * @param value the value
+		 * @return true if it does
+		 */
+		abstract boolean contains(char value);
+
+		/**
+		 * Intersect this container with another container
+		 * @param other the other container
+		 * @return a new container or null if the intersection is empty
+		 */
+		abstract Container and(Container other);
+
+		/**
+		 * Remove the values of another container from a copy of this container
+		 * @param other the other container
+		 * @return a new container or null if it is empty
+		 */
+		abstract Container andNot(Container other);
+
+		/**
+		 * Get the first value no less than a given value
+		 * @param from the given value (from 0 to 65535)
+		 * @return the value or -1 if there is none
+		 */
+		abstract int nextValue(int from);
+
+		/**
+		 * Set the bits of the values of this container in a bitset
+		 * @param bitset the bitset
+		 * @param high the high bits of the values
+		 */
+		abstract void addTo(BitSet bitset, int high);
+
+		/**
+		 * Copy this container
+		 * @return the copy
+		 */
+		abstract Container copy();
+
+		/**
+		 * Get the smallest representation of this container
+		 * @return this container or a new container
+		 */
+		abstract Container optimize();
+
+		/**
+		 * Convert this container to a bitmap container
+		 * @return this container if it is a bitmap container, otherwise a new container
+		 */
+		abstract BitmapContainer toBitmap();
+	}
+
+	/**
+	 * A container storing its values in a sorted array
+	 */
+	static final class ArrayContainer extends Container {
+
+		/** the values, sorted */
+		char[] values;
+
+		/**
+		 * Create an empty container
+		 */
+		ArrayContainer() {
+			values = new char[4];
+		}
+
+		/**
+		 * Create a container
+		 * @param values the values, sorted
+		 * @param cardinality the number of values
+		 */
+		ArrayContainer(char[] values, int cardinality) {
+			this.values = values;
+			this.cardinality = cardinality;
+		}
+
+		@Override
+		Container add(char value) {
+			int insert;
+			if(cardinality == 0 || value > values[cardinality - 1]) {
+				insert = cardinality;
+			}else {
+				int index = Arrays.binarySearch(values, 0, cardinality, value);
+				if(index >= 0) {
+					return this;
+				}
+				insert = -index - 1;
+			}
+			// a large container is stored as a bitmap
+			if(cardinality == ARRAY_MAX) {
+				return toBitmap().add(value);
+			}
+			if(cardinality == values.length) {
+				values = Arrays.copyOf(values, Math.min(ARRAY_MAX, values.length * 2));
+			}
+			System.arraycopy(values, insert, values, insert + 1, cardinality - insert);
+			values[insert] = value;
+			cardinality++;
+			return this;
+		}
+
+		@Override
+		boolean contains(char value) {
+			return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+		}
+
+		@Override
+		Container and(Container other) {
+			char[] result = new char[Math.min(cardinality, other.cardinality)];
+			int count = 0;
+			if(other instanceof ArrayContainer && other.cardinality < cardinality) {
+				// search the values of the smallest array in the other array
+				return other.and(this);
+			}
+			if(other instanceof ArrayContainer && cardinality * 64 > other.cardinality) {
+				// merge two arrays of similar sizes
+				char[] otherValues = ((ArrayContainer) other).values;
+				int i = 0;
+				int j = 0;
+				while(i < cardinality && j < other.cardinality) {
+					if(values[i] == otherValues[j]) {
+						result[count++] = values[i];
+						i++;
+						j++;
+					}else if(values[i] < otherValues[j]) {
+						i++;
+					}else {
+						j++;
+					}
+				}
+			}else {
+				for(int i = 0; i < cardinality; i++) {
+					if(other.contains(values[i])) {
+						result[count++] = values[i];
+					}
+				}
+			}
+			return count == 0 ? null : new ArrayContainer(result, count);
+		}
+
+		@Override
+		Container andNot(Container other) {
+			char[] result = new char[cardinality];
+			int count = 0;
+			if(other instanceof ArrayContainer) {
+				char[] otherValues = ((ArrayContainer) other).values;
+				int j = 0;
+				for(int i = 0; i < cardinality; i++) {
+					while(j < other.cardinality && otherValues[j] < values[i]) {
+						j++;
+					}
+					if(j == other.cardinality || otherValues[j] != values[i]) {
+						result[count++] = values[i];
+					}
+				}
+			}else {
+				for(int i = 0; i < cardinality; i++) {
+					if(!other.contains(values[i])) {
+						result[count++] = values[i];
+					}
+				}
+			}
+			return count == 0 ? null : new ArrayContainer(result, count);
+		}
+
+		@Override
+		int nextValue(int from) {
+			int index = Arrays.binarySearch(values, 0, cardinality, (char) from);
+			if(index < 0) {
+				index = -index - 1;
+			}
+			return index < cardinality ? values[index] : -1;
+		}
+
+		@Override
+		void addTo(BitSet bitset, int high) {
+			for(int i = 0; i < cardinality; i++) {
+				bitset.set(high | values[i]);
+			}
+		}
+
+		@Override
+		Container copy() {
+			return new ArrayContainer(Arrays.copyOf(values, cardinality), cardinality);
+		}
+
+		@Override
+		Container optimize() {
+			// count the runs of consecutive values
+			int runCount = cardinality == 0 ? 0 : 1;
+			for(int i = 1; i < cardinality; i++) {
+				if(values[i] != values[i - 1] + 1) {
+					runCount++;
+				}
+			}
+			// a run takes 2 chars
+			if(runCount * 2 < cardinality) {
+				char[] runs = new char[runCount * 2];
+				int run = -1;
+				for(int i = 0; i < cardinality; i++) {
+					if(i == 0 || values[i] != values[i - 1] + 1) {
+						run++;
+						runs[2 * run] = values[i];
+					}
+					runs[2 * run + 1] = (char) (values[i] - runs[2 * run]);
+				}
+				return new RunContainer(runs, runCount, cardinality);
+			}
+			if(values.length > cardinality) {
+				values = Arrays.copyOf(values, cardinality);
+			}
+			return this;
+		}
+
+		@Override
+		BitmapContainer toBitmap() {
+			BitmapContainer bitmap = new BitmapContainer();
+			for(int i = 0; i < cardinality; i++) {
+				bitmap.words[values[i] >>> 6] |= 1L << values[i];
+			}
+			bitmap.cardinality = cardinality;
+			return bitmap;
+		}
+	}
+
+	/**
+	 * A container storing its values as a bitmap of 65536 bits
+	 */
+	static final class BitmapContainer extends Container {
+
+		/** the bits */
+		final long[] words;
+
+		/**
+		 * Create an empty container
+		 */
+		BitmapContainer() {
+			words = new long[WORDS];
+		}
+
+		/**
+		 * Create a container
+		 * @param words the bits
+		 * @param cardinality the number of bits set
+		 */
+		BitmapContainer(long[] words, int cardinality) {
+			this.words = words;
+			this.cardinality = cardinality;
+		}
+
+		@Override
+		Container add(char value) {
+			long before = words[value >>> 6];
+			long after = before | (1L << value);
+			if(after != before) {
+				words[value >>> 6] = after;
+				cardinality++;
+			}
+			return this;
+		}
+
+		@Override
+		boolean contains(char value) {
+			return (words[value >>> 6] & (1L << value)) != 0;
+		}
+
+		@Override
+		Container and(Container other) {
+			if(other instanceof ArrayContainer) {
+				return other.and(this);
+			}
+			long[] result = new long[WORDS];
+			if(other instanceof BitmapContainer) {
+				long[] otherWords = ((BitmapContainer) other).words;
+				// a simple loop over the words, which the JIT compiler can vectorize
+				for(int i = 0; i < WORDS; i++) {
+					result[i] = words[i] & otherWords[i];
+				}
+			}else {
+				RunContainer runs = (RunContainer) other;
+				for(int run = 0; run < runs.runCount; run++) {
+					copyRange(words, result, runs.start(run), runs.last(run) + 1);
+				}
+			}
+			return create(result);
+		}
+
+		@Override
+		Container andNot(Container other) {
+			long[] result = words.clone();
+			if(other instanceof ArrayContainer) {
+				char[] otherValues = ((ArrayContainer) other).values;
+				for(int i = 0; i < other.cardinality; i++) {
+					result[otherValues[i] >>> 6] &= ~(1L << otherValues[i]);
+				}
+			}else if(other instanceof BitmapContainer) {
+				long[] otherWords = ((BitmapContainer) other).words;
+				for(int i = 0; i < WORDS; i++) {
+					result[i] = words[i] & ~otherWords[i];
+				}
+			}else {
+				RunContainer runs = (RunContainer) other;
+				for(int run = 0; run < runs.runCount; run++) {
+					clearRange(result, runs.start(run), runs.last(run) + 1);
+				}
+			}
+			return create(result);
+		}
+
+		/**
+		 * Create a container for some bits
+		 * @param words the bits
+		 * @return an array container if there are at most ARRAY_MAX bits set, a bitmap container
+		 *   if there are more, or null if no bits are set
+		 */
+		static Container create(long[] words) {
+			int cardinality = cardinality(words);
+			if(cardinality == 0) {
+				return null;
+			}
+			if(cardinality <= ARRAY_MAX) {
+				return toArray(words, cardinality);
+			}
+			return new BitmapContainer(words, cardinality);
+		}
+
+		/**
+		 * Count the bits set
+		 * @param words the bits
+		 * @return the number of bits set
+		 */
+		static int cardinality(long[] words) {
+			int cardinality = 0;
+			for(int i = 0; i < WORDS; i++) {
+				cardinality += Long.bitCount(words[i]);
+			}
+			return cardinality;
+		}
+
+		/**
+		 * Create an array container for some bits
+		 * @param words the bits
+		 * @param cardinality the number of bits set
+		 * @return the container
+		 */
+		static ArrayContainer toArray(long[] words, int cardinality) {
+			char[] values = new char[cardinality];
+			int count = 0;
+			for(int i = 0; i < WORDS; i++) {
+				long word = words[i];
+				while(word != 0) {
+					values[count++] = (char) ((i << 6) + Long.numberOfTrailingZeros(word));
+					word &= word - 1;
+				}
+			}
+			return new ArrayContainer(values, cardinality);
+		}
+
+		@Override
+		int nextValue(int from) {
+			int i = from >>> 6;
+			long word = words[i] & (-1L << from);
+			while(true) {
+				if(word != 0) {
+					return (i << 6) + Long.numberOfTrailingZeros(word);
+				}
+				if(++i == WORDS) {
+					return -1;
+				}
+				word = words[i];
+			}
+		}
+
+		/**
+		 * Get the first value no less than a given value that is not in this container
+		 * @param from the given value
+		 * @return the value or 65536 if there is none
+		 */
+		int nextAbsentValue(int from) {
+			int i = from >>> 6;
+			long word = ~words[i] & (-1L << from);
+			while(true) {
+				if(word != 0) {
+					return (i << 6) + Long.numberOfTrailingZeros(word);
+				}
+				if(++i == WORDS) {
+					return WORDS << 6;
+				}
+				word = ~words[i];
+			}
+		}
+
+		@Override
+		void addTo(BitSet bitset, int high) {
+			for(int i = 0; i < WORDS; i++) {
+				long word = words[i];
+				while(word != 0) {
+					bitset.set(high | ((i << 6) + Long.numberOfTrailingZeros(word)));
+					word &= word - 1;
+				}
+			}
+		}
+
+		@Override
+		Container copy() {
+			return new BitmapContainer(words.clone(), cardinality);
+		}
+
+		@Override
+		Container optimize() {
+			if(cardinality <= ARRAY_MAX) {
+				return toArray(words, cardinality);
+			}
+			// count the runs, a run starts at each bit set whose previous bit is not set
+			int runCount = 0;
+			long previous = 0;
+			for(int i = 0; i < WORDS; i++) {
+				long word = words[i];
+				runCount += Long.bitCount(word & ~((word << 1) | (previous >>> 63)));
+				previous = word;
+			}
+			// a run takes 2 chars, the bitmap takes 4096 chars
+			if(runCount * 2 >= WORDS * 4) {
+				return this;
+			}
+			char[] runs = new char[runCount * 2];
+			int run = 0;
+			for(int start = nextValue(0); start >= 0; ) {
+				int end = nextAbsentValue(start);
+				runs[2 * run] = (char) start;
+				runs[2 * run + 1] = (char) (end - 1 - start);
+				run++;
+				start = end < (WORDS << 6) ? nextValue(end) : -1;
+			}
+			return new RunContainer(runs, runCount, cardinality);
+		}
+
+		@Override
+		BitmapContainer toBitmap() {
+			return this;
+		}
+	}
+
+	/**
+	 * A container storing its values as runs of consecutive values
+	 */
+	static final class RunContainer extends Container {
+
+		/** the first value and the length minus 1 of each run, sorted */
+		final char[] runs;
+		/** the number of runs */
+		final int runCount;
+
+		/**
+		 * Create a container
+		 * @param runs the first value and the length minus 1 of each run
+		 * @param runCount the number of runs
+		 * @param cardinality the number of values
+		 */
+		RunContainer(char[] runs, int runCount, int cardinality) {
+			this.runs = runs;
+			this.runCount = runCount;
+			this.cardinality = cardinality;
+		}
+
+		/**
+		 * Get the first value of a run
+		 * @param run the run
+		 * @return the value
+		 */
+		int start(int run) {
+			return runs[2 * run];
+		}
+
+		/**
+		 * Get the last value of a run
+		 * @param run the run
+		 * @return the value
+		 */
+		int last(int run) {
+			return runs[2 * run] + runs[2 * run + 1];
+		}
+
+		/**
+		 * Find the last run starting before a value
+		 * @param value the value
+		 * @return the run or -1 if all runs start after the value
+		 */
+		private int findRun(int value) {
+			int low = 0;
+			int high = runCount - 1;
+			int result = -1;
+			while(low <= high) {
+				int middle = (low + high) >>> 1;
+				if(runs[2 * middle] <= value) {
+					result = middle;
+					low = middle + 1;
+				}else {
+					high = middle - 1;
+				}
+			}
+			return result;
+		}
+
+		@Override
+		Container add(char value) {
+			if(contains(value)) {
+				return this;
+			}
+			Container container = cardinality < ARRAY_MAX ? BitmapContainer.toArray(toBitmap().words, cardinality) : toBitmap();
+			return container.add(value);
+		}
+
+		@Override
+		boolean contains(char value) {
+			int run = findRun(value);
+			return run >= 0 && value <= last(run);
+		}
+
+		@Override
+		Container and(Container other) {
+			if(!(other instanceof RunContainer)) {
+				return other.and(this);
+			}
+			// intersect the runs
+			RunContainer otherRuns = (RunContainer) other;
+			char[] result = new char[2 * (runCount + otherRuns.runCount)];
+			int count = 0;
+			int resultCardinality = 0;
+			int i = 0;
+			int j = 0;
+			while(i < runCount && j < otherRuns.runCount) {
+				int start = Math.max(start(i), otherRuns.start(j));
+				int last = Math.min(last(i), otherRuns.last(j));
+				if(start <= last) {
+					result[2 * count] = (char) start;
+					result[2 * count + 1] = (char) (last - start);
+					count++;
+					resultCardinality += last - start + 1;
+				}
+				if(last(i) < otherRuns.last(j)) {
+					i++;
+				}else {
+					j++;
+				}
+			}
+			return resultCardinality == 0 ? null : new RunContainer(result, count, resultCardinality);
+		}
+
+		@Override
+		Container andNot(Container other) {
+			return toBitmap().andNot(other);
+		}
+
+		@Override
+		int nextValue(int from) {
+			int run = findRun(from);
+			if(run >= 0 && from <= last(run)) {
+				return from;
+			}
+			return run + 1 < runCount ? start(run + 1) : -1;
+		}
+
+		@Override
+		void addTo(BitSet bitset, int high) {
+			for(int run = 0; run < runCount; run++) {
+				bitset.set(high | start(run), (high | last(run)) + 1);
+			}
+		}
+
+		@Override
+		Container copy() {
+			return new RunContainer(Arrays.copyOf(runs, runCount * 2), runCount, cardinality);
+		}
+
+		@Override
+		Container optimize() {
+			return this;
+		}
+
+		@Override
+		BitmapContainer toBitmap() {
+			BitmapContainer bitmap = new BitmapContainer();
+			for(int run = 0; run < runCount; run++) {
+				setRange(bitmap.words, start(run), last(run) + 1);
+			}
+			bitmap.cardinality = cardinality;
+			return bitmap;
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package ca.pfv.spmf.datastructures.tidset;
+
+/* This file is part of the SPMF DATA MINING SOFTWARE
+* (http://www.philippe-fournier-viger.com/spmf).
+*
+* SPMF is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+*
+* SPMF is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* SPMF. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.util.BitSet;
+
+/**
+ * A set of transaction identifiers (a tidset), as used by vertical algorithms such as
+ * Eclat and Charm to calculate the support of itemsets by intersecting tidsets.
+ * A tidset can also store a diffset (as used by dEclat and dCharm), since a diffset
+ * is also a set of transaction identifiers.
+ * <br/><br/>
+ *
+ * Two implementations are provided: {@link BitSetTidset}, which uses a java.util.BitSet,
+ * and {@link CompressedTidset}, which uses a compressed bitmap that takes less memory
+ * when the tidsets are sparse. The two tidsets of an operation must have the same implementation.
+ *
+ * @see BitSetTidset
+ * @see CompressedTidset
+ */
+public interface Tidset {
+
+	/**
+	 * Add a transaction identifier to this tidset.
+	 * @param tid the transaction identifier (a positive integer)
+	 */
+	void add(int tid);
+
+	/**
+	 * Add all the transaction identifiers of an interval to this tidset.
+	 * @param start the first transaction identifier
+	 * @param end the last transaction identifier plus 1
+	 */
+	void addRange(int start, int end);
+
+	/**
+	 * Get the number of transaction identifiers in this tidset.
+	 * @return the cardinality
+	 */
+	int cardinality();
+
+	/**
+	 * Calculate the intersection of this tidset with another tidset.
+	 * This tidset and the other tidset are not modified.
+	 * @param other the other tidset
+	 * @return a new tidset
+	 */
+	Tidset and(Tidset other);
+
+	/**
+	 * Calculate the transaction identifiers of this tidset that are not in another tidset.
+	 * This tidset and the other tidset are not modified.
+	 * @param other the other tidset
+	 * @return a new tidset
+	 */
+	Tidset andNot(Tidset other);
+
+	/**
+	 * Get the first transaction identifier that is no less than a given value
+	 * (used to iterate over the tidset as with a BitSet).
+	 * @param from the value
+	 * @return the transaction identifier or -1 if there is none
+	 */
+	int nextSetBit(int from);
+
+	/**
+	 * Convert the tidset to a BitSet (for example, to keep it in an Itemset).
+	 * @return a BitSet (it may be the BitSet used by this tidset, so it should not be modified)
+	 */
+	BitSet toBitSet();
+
+	/**
+	 * Change the representation of this tidset to use less memory, once it has been built.
+	 * The tidset contains the same transaction identifiers.
+	 */
+	void optimize();
+}
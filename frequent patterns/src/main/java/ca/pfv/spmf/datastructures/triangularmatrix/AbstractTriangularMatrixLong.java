@@ -0,0 +1,84 @@
+package ca.pfv.spmf.datastructures.triangularmatrix;
+
+import java.io.Serializable;
+
+/* This file is part of the SPMF DATA MINING SOFTWARE
+* (http://www.philippe-fournier-viger.com/spmf).
+* 
+* SPMF is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+* 
+* SPMF is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* SPMF. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+/**
+ * This interface is for triangular matrices of long values, where the value at position i,j is
+ * the same as the value at position j,i. Such a matrix is used for example to store the TWU of
+ * pairs of items (the EUCS structure of the FHM algorithm and its variations).
+ * All the values are initialized to zero.
+ * 
+ * @see TriangularMatrixLong
+ * @see SparseTriangularMatrixLong
+ */
+public interface AbstractTriangularMatrixLong extends Serializable {
+	
+	/** the largest number of positions of a triangular matrix represented by an array 
+	 * that is created by {@link #create(int)} (32 MB) */
+	public static final long MAX_DENSE_POSITION_COUNT = 1 << 22;
+
+	/**
+	 * Create a triangular matrix for the items 0, 1, ... , itemCount - 1. A matrix represented by an array
+	 * is created if there are not too many items. Otherwise, a sparse matrix is created, which only
+	 * stores the pairs of items that have a value.
+	 * @param itemCount the number of items
+	 * @return the triangular matrix
+	 */
+	public static AbstractTriangularMatrixLong create(int itemCount) {
+		long positionCount = ((long) itemCount * (itemCount - 1)) / 2;
+		if(positionCount <= MAX_DENSE_POSITION_COUNT) {
+			return new TriangularMatrixLong(itemCount);
+		}
+		return new SparseTriangularMatrixLong();
+	}
+
+	/**
+	 * Return a reprensentation of the triangular matrix as a string.
+	 */
+	public abstract String toString();
+
+	/**
+	 * Add a value to the value at position i,j
+	 * @param i a row id
+	 * @param j a column id (different from i)
+	 * @param value the value to add
+	 */
+	public abstract void incrementValue(int i, int j, long value);
+
+	/**
+	 * Get the value stored at a given position
+	 * @param i a row id
+	 * @param j a column id (different from i)
+	 * @return the value (0 if no value was stored at that position)
+	 */
+	public abstract long getValue(int i, int j);
+
+	/**
+	 * Set the value at position i,j
+	 * @param i a row id
+	 * @param j a column id (different from i)
+	 * @param value the value
+	 */
+	public abstract void setValue(int i, int j, long value);
+	
+	/**
+	 * Get the number of positions i,j that have a value different from zero
+	 * @return the number of positions
+	 */
+	public abstract int getPairCount();
+}
@@ -0,0 +1,191 @@
+package ca.pfv.spmf.datastructures.triangularmatrix;
+
+import java.util.Arrays;
+
+/* This file is part of the SPMF DATA MINING SOFTWARE
+* (http://www.philippe-fournier-viger.com/spmf).
+* 
+* SPMF is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+* 
+* SPMF is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* SPMF. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+/**
+ * This class is for creating a triangular matrix of long values by using a hash table that only
+ * stores the pairs of items having a value (a sparse matrix rather than a full matrix).
+ * <br/><br/>
+ * 
+ * Like {@link SparseTriangularMatrix}, it is used when there are too many items for an array,
+ * but instead of a HashMap of HashMaps containing Integer objects, the hash table is made of two arrays
+ * of primitive values: an array of keys (where a key is the two items of a pair stored as a long) and
+ * an array of values. A collision is resolved by using the next position of the arrays (linear probing),
+ * so that finding a value does not create any object.
+ * 
+ * @see AbstractTriangularMatrixLong
+ * @see TriangularMatrixLong
+ * @see SparseTriangularMatrix
+ */
+public class SparseTriangularMatrixLong implements AbstractTriangularMatrixLong {
+	
+	/** serial UID */
+	private static final long serialVersionUID = -2391174567020563844L;
+
+	/** the key of an empty position (it cannot be the key of a pair of two different items) */
+	private static final long EMPTY = -1L;
+	
+	/** the keys of the hash table */
+	private long[] keys;
+	/** the values of the hash table */
+	private long[] values;
+	/** the number of pairs of items in the hash table */
+	private int size = 0;
+	/** the number of bits of a position in the hash table (the capacity is 2^bits) */
+	private int bits;
+
+	/**
+	 * Constructor of a new triangular matrix.
+	 */
+	public SparseTriangularMatrixLong(){
+		bits = 10;
+		keys = new long[1 << bits];
+		Arrays.fill(keys, EMPTY);
+		values = new long[1 << bits];
+	}
+	
+	/**
+	 * Get the key of a pair of items
+	 * @param i an item
+	 * @param j another item
+	 * @return the key
+	 */
+	private static long key(int i, int j) {
+		// so that i is always smaller than j
+		if(j < i) {
+			return (((long) j) << 32) | (i & 0xFFFFFFFFL);
+		}
+		return (((long) i) << 32) | (j & 0xFFFFFFFFL);
+	}
+	
+	/**
+	 * Get the position of a key in the hash table, or the empty position where it should be inserted
+	 * @param key the key
+	 * @return the position
+	 */
+	private int position(long key) {
+		int mask = keys.length - 1;
+		// multiplicative hashing (the highest bits are the most mixed)
+		int position = (int) ((key * 0x9E3779B97F4A7C15L) >>> (64 - bits));
+		while(keys[position] != key && keys[position] != EMPTY) {
+			position = (position + 1) & mask;
+		}
+		return position;
+	}
+
+	/* (non-Javadoc)
+	 * @see ca.pfv.spmf.datastructures.triangularmatrix.AbstractTriangularMatrixLong#incrementValue(int, int, long)
+	 */
+	public void incrementValue(int i, int j, long value) {
+		long key = key(i, j);
+		int position = position(key);
+		if(keys[position] == EMPTY) {
+			position = insert(key, position);
+		}
+		values[position] += value;
+	}
+
+	/* (non-Javadoc)
+	 * @see ca.pfv.spmf.datastructures.triangularmatrix.AbstractTriangularMatrixLong#getValue(int, int)
+	 */
+	public long getValue(int i, int j) {
+		// an empty position has the value 0
+		return values[position(key(i, j))];
+	}
+
+	/* (non-Javadoc)
+	 * @see ca.pfv.spmf.datastructures.triangularmatrix.AbstractTriangularMatrixLong#setValue(int, int, long)
+	 */
+	public void setValue(int i, int j, long value) {
+		long key = key(i, j);
+		int position = position(key);
+		if(keys[position] == EMPTY) {
+			position = insert(key, position);
+		}
+		values[position] = value;
+	}
+	
+	/**
+	 * Insert a new key in the hash table with the value 0 
+	 * (the hash table is made larger if it is more than 2/3 full)
+	 * @param key the key
+	 * @param position the empty position for the key
+	 * @return the position of the key
+	 */
+	private int insert(long key, int position) {
+		if((size + 1) * 3L > keys.length * 2L) {
+			rehash();
+			position = position(key);
+		}
+		keys[position] = key;
+		size++;
+		return position;
+	}
+
+	/**
+	 * Replace the hash table by a hash table two times larger
+	 */
+	private void rehash() {
+		long[] oldKeys = keys;
+		long[] oldValues = values;
+		bits++;
+		keys = new long[1 << bits];
+		Arrays.fill(keys, EMPTY);
+		values = new long[1 << bits];
+		for(int k = 0; k < oldKeys.length; k++) {
+			if(oldKeys[k] != EMPTY) {
+				int position = position(oldKeys[k]);
+				keys[position] = oldKeys[k];
+				values[position] = oldValues[k];
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see ca.pfv.spmf.datastructures.triangularmatrix.AbstractTriangularMatrixLong#getPairCount()
+	 */
+	public int getPairCount() {
+		int count = 0;
+		for(int k = 0; k < keys.length; k++) {
+			if(keys[k] != EMPTY && values[k] != 0) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/* (non-Javadoc)
+	 * @see ca.pfv.spmf.datastructures.triangularmatrix.AbstractTriangularMatrixLong#toString()
+	 */
+	public String toString() {
+		// create a string buffer
+		StringBuilder temp = new StringBuilder();
+		// for each pair of items
+		for(int k = 0; k < keys.length; k++) {
+			if(keys[k] != EMPTY) {
+				temp.append((int) (keys[k] >>> 32));
+				temp.append(' ');
+				temp.append((int) keys[k]);
+				temp.append(": ");
+				temp.append(values[k]);
+				temp.append("\n");
+			}
+		}
+		return temp.toString();
+	}
+}
@@ -0,0 +1,131 @@
+package ca.pfv.spmf.datastructures.triangularmatrix;
+
+/* This file is part of the SPMF DATA MINING SOFTWARE
+* (http://www.philippe-fournier-viger.com/spmf).
+* 
+* SPMF is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+* 
+* SPMF is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* SPMF. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+/**
+ * This class is for creating a triangular matrix of long values represented by a single array.
+ * The row j contains the values of the positions 0,j  1,j ... j-1,j and the rows are stored
+ * one after the other in the array, so that a value is obtained without looking at any other object.
+ * For example, for 4 items, the array contains: <br/><br/>
+ * 
+ * [0-1, 0-2, 1-2, 0-3, 1-3, 2-3]
+ * <br/><br/>
+ * 
+ * This matrix should be used when the number of items is small. Otherwise,
+ * {@link SparseTriangularMatrixLong} should be used.
+ * 
+ * @see AbstractTriangularMatrixLong
+ * @see SparseTriangularMatrixLong
+ */
+public class TriangularMatrixLong implements AbstractTriangularMatrixLong {
+	
+	/** serial UID */
+	private static final long serialVersionUID = 4628061983125840712L;
+	
+	/** the values of the matrix */
+	private final long[] matrix;
+	/** the number of items */
+	private final int elementCount;
+
+	/**
+	 * Constructor of a new triangular matrix.
+	 * @param elementCount the number of items (the items are 0, 1, ..., elementCount - 1)
+	 */
+	public TriangularMatrixLong(int elementCount){
+		this.elementCount = elementCount;
+		long positionCount = elementCount < 2 ? 0 : ((long) elementCount * (elementCount - 1)) / 2;
+		if(positionCount > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Too many items for a triangular matrix: " + elementCount);
+		}
+		matrix = new long[(int) positionCount];
+	}
+	
+	/**
+	 * Get the position of the value of two items in the array
+	 * @param i an item
+	 * @param j another item
+	 * @return the position
+	 */
+	private static int index(int i, int j) {
+		// so that i is always smaller than j
+		if(j < i) {
+			return (int)(((long) i * (i - 1)) / 2) + j;
+		}
+		return (int)(((long) j * (j - 1)) / 2) + i;
+	}
+
+	/* (non-Javadoc)
+	 * @see ca.pfv.spmf.datastructures.triangularmatrix.AbstractTriangularMatrixLong#incrementValue(int, int, long)
+	 */
+	public void incrementValue(int i, int j, long value) {
+		matrix[index(i, j)] += value;
+	}
+
+	/* (non-Javadoc)
+	 * @see ca.pfv.spmf.datastructures.triangularmatrix.AbstractTriangularMatrixLong#getValue(int, int)
+	 */
+	public long getValue(int i, int j) {
+		return matrix[index(i, j)];
+	}
+
+	/* (non-Javadoc)
+	 * @see ca.pfv.spmf.datastructures.triangularmatrix.AbstractTriangularMatrixLong#setValue(int, int, long)
+	 */
+	public void setValue(int i, int j, long value) {
+		matrix[index(i, j)] = value;
+	}
+
+	/* (non-Javadoc)
+	 * @see ca.pfv.spmf.datastructures.triangularmatrix.AbstractTriangularMatrixLong#getPairCount()
+	 */
+	public int getPairCount() {
+		int count = 0;
+		for(long value : matrix) {
+			if(value != 0) {
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Get the number of items
+	 * @return the number of items
+	 */
+	public int getElementCount(){
+		return elementCount;
+	}
+
+	/* (non-Javadoc)
+	 * @see ca.pfv.spmf.datastructures.triangularmatrix.AbstractTriangularMatrixLong#toString()
+	 */
+	public String toString() {
+		// create a string buffer
+		StringBuilder temp = new StringBuilder();
+		// for each row
+		for (int j = 1; j < elementCount; j++) {
+			temp.append(j);
+			temp.append(": ");
+			// for each column
+			for (int i = 0; i < j; i++) {
+				temp.append(getValue(i, j)); // add the value at position i,j
+				temp.append(" ");
+			}
+			temp.append("\n");
+		}
+		return temp.toString();
+	}
+}
@@ -0,0 +1,353 @@
+package ca.pfv.spmf.input.transaction_database_binary;
+
+/* This file is part of the SPMF DATA MINING SOFTWARE
+* (http://www.philippe-fournier-viger.com/spmf).
+*
+* SPMF is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+*
+* SPMF is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* SPMF. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class gives read access to a transaction database stored in the binary
+ * format written by {@link BinaryTransactionDatabaseWriter}. The file is memory-mapped,
+ * so that opening a database does not parse anything and the operating system
+ * keeps the pages in its cache between several runs of an algorithm on the same data.
+ * <br/><br/>
+ *
+ * This is the only binary transaction format: the files converted from the SPMF text format by
+ * {@link BinaryTransactionDatabaseWriter#convertTextFile(String, String)} and the files prepared from
+ * a sheet by Prep (TransactionEncoder.Format.BINARY) are both written by BinaryTransactionDatabaseWriter.
+ * The layout is only described here.
+ * <br/><br/>
+ *
+ * The file layout is (all values are little endian):
+ * <pre>
+ *  header          magic, version, flags, transaction count, max transaction length,
+ *                  distinct item count, max item, reserved (8 ints) and total item count (1 long)
+ *  support table   (item, support) pairs sorted by item
+ *  offsets         transaction count + 1 longs, transaction i is items[offsets[i] .. offsets[i+1])
+ *  items           the items of all transactions, one after the other (ints)
+ *  utilities       (only if FLAG_UTILITIES is set) the transaction utility of each transaction (ints),
+ *                  followed by the utility of each item, in the same order as items (ints)
+ * </pre>
+ *
+ * The support table is computed when the file is written, so that algorithms
+ * such as FPGrowth and FPClose do not need a first database scan to count the support of items.
+ * <br/><br/>
+ *
+ * Reading a transaction does not change the state of this object, so
+ * several threads can read the same database at the same time.
+ *
+ * @see BinaryTransactionDatabaseWriter
+ */
+public class BinaryTransactionDatabase implements Closeable {
+
+	/** The bytes "SPMB" read as a little endian int */
+	public static final int MAGIC = 0x424D5053;
+	/** The version of the file format */
+	public static final int VERSION = 1;
+	/** Flag indicating that the file contains utility values */
+	public static final int FLAG_UTILITIES = 1;
+	/** Size of the header in bytes */
+	static final int HEADER_SIZE = 40;
+
+	/** the file channel */
+	private final RandomAccessFile file;
+
+	/** the number of transactions */
+	private final int transactionCount;
+	/** the length of the longest transaction */
+	private final int maxTransactionLength;
+	/** the largest item */
+	private final int maxItem;
+	/** the total number of items in all transactions */
+	private final long totalItemCount;
+	/** true if the file contains utility values */
+	private final boolean utilities;
+
+	/** the items that appear in the database, sorted */
+	private final int[] distinctItems;
+	/** the support of each item of distinctItems */
+	private final int[] supports;
+
+	/** the mapped sections of the file */
+	private final LongBuffer offsets;
+	private final IntBuffer items;
+	private final IntBuffer transactionUtilities;
+	private final IntBuffer itemUtilities;
+
+	/**
+	 * Check if a file is a binary transaction database by looking at its first bytes
+	 * @param path the path of the file
+	 * @return true if the file starts with the magic number of this format
+	 */
+	public static boolean isBinaryFile(String path) {
+		try (DataInputStream input = new DataInputStream(new FileInputStream(path))) {
+			return Integer.reverseBytes(input.readInt()) == MAGIC;
+		} catch (IOException e) {
+			// too short or not readable: the text readers will report the error
+			return false;
+		}
+	}
+
+	/**
+	 * Open a binary transaction database
+	 * @param path the path of the file
+	 * @return the database
+	 * @throws IOException if the file cannot be read or is not in the binary format
+	 */
+	public static BinaryTransactionDatabase open(String path) throws IOException {
+		return new BinaryTransactionDatabase(path);
+	}
+
+	/**
+	 * Constructor
+	 * @param path the path of the file
+	 * @throws IOException if the file cannot be read or is not in the binary format
+	 */
+	private BinaryTransactionDatabase(String path) throws IOException {
+		file = new RandomAccessFile(path, "r");
+		try {
+			FileChannel channel = file.getChannel();
+
+			// read the header
+			ByteBuffer header = map(channel, 0, HEADER_SIZE);
+			if (header.getInt() != MAGIC) {
+				throw new IOException("Not a binary transaction database: " + path);
+			}
+			int version = header.getInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported binary transaction database version " + version + ": " + path);
+			}
+			int flags = header.getInt();
+			utilities = (flags & FLAG_UTILITIES) != 0;
+			transactionCount = header.getInt();
+			maxTransactionLength = header.getInt();
+			int distinctItemCount = header.getInt();
+			maxItem = header.getInt();
+			header.getInt(); // reserved
+			totalItemCount = header.getLong();
+
+			// read the support table in memory since it is small
+			long position = HEADER_SIZE;
+			IntBuffer supportTable = map(channel, position, (long) distinctItemCount * 8).asIntBuffer();
+			distinctItems = new int[distinctItemCount];
+			supports = new int[distinctItemCount];
+			for (int i = 0; i < distinctItemCount; i++) {
+				distinctItems[i] = supportTable.get(2 * i);
+				supports[i] = supportTable.get(2 * i + 1);
+			}
+			position += (long) distinctItemCount * 8;
+
+			// map the other sections
+			offsets = map(channel, position, ((long) transactionCount + 1) * 8).asLongBuffer();
+			position += ((long) transactionCount + 1) * 8;
+			items = map(channel, position, totalItemCount * 4).asIntBuffer();
+			position += totalItemCount * 4;
+			if (utilities) {
+				transactionUtilities = map(channel, position, (long) transactionCount * 4).asIntBuffer();
+				position += (long) transactionCount * 4;
+				itemUtilities = map(channel, position, totalItemCount * 4).asIntBuffer();
+			} else {
+				transactionUtilities = null;
+				itemUtilities = null;
+			}
+		} catch (IOException | RuntimeException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Map a section of the file in memory
+	 * @param channel the file channel
+	 * @param position the start of the section
+	 * @param size the size of the section in bytes
+	 * @return a little endian buffer
+	 * @throws IOException if the section is outside the file or too large
+	 */
+	private static ByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("Section of the binary transaction database is too large to be mapped: " + size + " bytes");
+		}
+		if (position + size > channel.size()) {
+			throw new IOException("Truncated binary transaction database");
+		}
+		return channel.map(FileChannel.MapMode.READ_ONLY, position, size).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Get the number of transactions in this database.
+	 * @return the number of transactions.
+	 */
+	public int size() {
+		return transactionCount;
+	}
+
+	/**
+	 * Get the length of the longest transaction, to allocate buffers
+	 * for {@link #getTransaction(int, int[])}.
+	 * @return the length
+	 */
+	public int getMaxTransactionLength() {
+		return maxTransactionLength;
+	}
+
+	/**
+	 * Get the largest item in this database.
+	 * @return the largest item
+	 */
+	public int getMaxItem() {
+		return maxItem;
+	}
+
+	/**
+	 * Get the total number of items in all the transactions of this database.
+	 * @return the number of items
+	 */
+	public long getTotalItemCount() {
+		return totalItemCount;
+	}
+
+	/**
+	 * Check if this database contains utility values.
+	 * @return true if it does.
+	 */
+	public boolean hasUtilities() {
+		return utilities;
+	}
+
+	/**
+	 * Get the items that appear in this database.
+	 * @return the items, sorted by increasing order (the array should not be modified)
+	 */
+	public int[] getDistinctItems() {
+		return distinctItems;
+	}
+
+	/**
+	 * Get the support of the items returned by {@link #getDistinctItems()}
+	 * @return the supports, in the same order (the array should not be modified)
+	 */
+	public int[] getItemSupports() {
+		return supports;
+	}
+
+	/**
+	 * Get the support of each item as a map, as used by the FPGrowth family.
+	 * @return a map (key: item, value: support)
+	 */
+	public Map<Integer, Integer> getItemSupportMap() {
+		Map<Integer, Integer> mapSupport = new HashMap<Integer, Integer>(distinctItems.length * 2);
+		for (int i = 0; i < distinctItems.length; i++) {
+			mapSupport.put(distinctItems[i], supports[i]);
+		}
+		return mapSupport;
+	}
+
+	/**
+	 * Get the number of items in a transaction
+	 * @param tid the transaction id (from 0 to size()-1)
+	 * @return the number of items
+	 */
+	public int getTransactionLength(int tid) {
+		return (int) (offsets.get(tid + 1) - offsets.get(tid));
+	}
+
+	/**
+	 * Copy the items of a transaction in a buffer
+	 * @param tid the transaction id (from 0 to size()-1)
+	 * @param buffer a buffer of size at least getMaxTransactionLength()
+	 * @return the number of items copied
+	 */
+	public int getTransaction(int tid, int[] buffer) {
+		return copy(items, tid, buffer);
+	}
+
+	/**
+	 * Get the items of a transaction
+	 * @param tid the transaction id (from 0 to size()-1)
+	 * @return a new array containing the items
+	 */
+	public int[] getTransaction(int tid) {
+		int[] transaction = new int[getTransactionLength(tid)];
+		copy(items, tid, transaction);
+		return transaction;
+	}
+
+	/**
+	 * Get the transaction utility of a transaction
+	 * @param tid the transaction id (from 0 to size()-1)
+	 * @return the transaction utility
+	 */
+	public int getTransactionUtility(int tid) {
+		checkUtilities();
+		return transactionUtilities.get(tid);
+	}
+
+	/**
+	 * Copy the item utilities of a transaction in a buffer, in the same order as the items
+	 * @param tid the transaction id (from 0 to size()-1)
+	 * @param buffer a buffer of size at least getMaxTransactionLength()
+	 * @return the number of utility values copied
+	 */
+	public int getUtilities(int tid, int[] buffer) {
+		checkUtilities();
+		return copy(itemUtilities, tid, buffer);
+	}
+
+	/**
+	 * Copy a section of a mapped int buffer corresponding to a transaction
+	 * @param source the buffer
+	 * @param tid the transaction id
+	 * @param buffer the destination
+	 * @return the number of ints copied
+	 */
+	private int copy(IntBuffer source, int tid, int[] buffer) {
+		int start = (int) offsets.get(tid);
+		int length = (int) (offsets.get(tid + 1) - start);
+		// absolute gets do not modify the position of the buffer, so this is thread-safe
+		for (int i = 0; i < length; i++) {
+			buffer[i] = source.get(start + i);
+		}
+		return length;
+	}
+
+	/**
+	 * Throw an exception if this database has no utility values
+	 */
+	private void checkUtilities() {
+		if (!utilities) {
+			throw new IllegalStateException("This binary transaction database does not contain utility values");
+		}
+	}
+
+	/**
+	 * Close the file. Mapped buffers are released by the garbage collector.
+	 * @throws IOException if an error occurs
+	 */
+	public void close() throws IOException {
+		file.close();
+	}
+}
@@ -0,0 +1,571 @@
+package ca.pfv.spmf.input.transaction_database_binary;
+
+/* This file is part of the SPMF DATA MINING SOFTWARE
+* (http://www.philippe-fournier-viger.com/spmf).
+*
+* SPMF is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+*
+* SPMF is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* SPMF. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class writes a transaction database in the binary format read by
+ * {@link BinaryTransactionDatabase} (see that class for the file layout). 
+ * It is also used by Prep to write a sheet in the binary format (TransactionEncoder.Format.BINARY).
+ * <br/><br/>
+ *
+ * The memory used does not grow with the number of transactions: the offsets, items and utilities
+ * are written to temporary files as transactions are added, and only the support of each item is kept
+ * in memory (in an array for small items and in a map for larger items). The file is then written by
+ * {@link #write(String)}, by writing the header and the support table and copying the temporary files.
+ * <br/><br/>
+ *
+ * Blocks of transactions can be encoded by other threads with {@link #encode(int[], int[], int)}
+ * and then added in order with {@link #addEncodedTransactions(EncodedTransactions)}.
+ * <br/><br/>
+ *
+ * The static method {@link #convertTextFile(String, String)} converts a file in the SPMF text format
+ * (one transaction per line, items separated by spaces) or in the SPMF utility format
+ * ("items:transaction utility:item utilities") to the binary format. The conversion is done once, and then
+ * the binary file can be used as input of FPGrowth, FPClose, LCM, EFIM or by TransactionDatabase
+ * any number of times without parsing text.
+ *
+ * @see BinaryTransactionDatabase
+ */
+public class BinaryTransactionDatabaseWriter implements Closeable {
+
+	/** the support of items smaller than this bound is counted in an array, larger items in a map */
+	private static final int DENSE_ITEM_LIMIT = 1 << 16;
+	/** the size of the buffers used to write files */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/** true if utility values are stored */
+	private final boolean withUtilities;
+
+	/** the end offset of each transaction in the items (longs) */
+	private final SpoolFile offsetsFile;
+	/** the items of all transactions, one after the other (ints) */
+	private final SpoolFile itemsFile;
+	/** the transaction utility of each transaction (ints, null if there are no utilities) */
+	private final SpoolFile transactionUtilitiesFile;
+	/** the item utilities, in the same order as items (ints, null if there are no utilities) */
+	private final SpoolFile itemUtilitiesFile;
+
+	/** the number of items written */
+	private long itemCount = 0;
+	/** the number of transactions */
+	private int transactionCount = 0;
+	/** the length of the longest transaction */
+	private int maxTransactionLength = 0;
+
+	/** the support of each item smaller than DENSE_ITEM_LIMIT, indexed by item */
+	private int[] denseSupports = new int[1024];
+	/** the support of each larger item */
+	private final Map<Integer, Integer> sparseSupports = new HashMap<Integer, Integer>();
+	/** the largest item */
+	private int maxItem = 0;
+
+	/**
+	 * Constructor
+	 * @param withUtilities true if the transactions have utility values (for high utility itemset mining)
+	 * @throws IOException if the temporary files cannot be created
+	 */
+	public BinaryTransactionDatabaseWriter(boolean withUtilities) throws IOException {
+		this.withUtilities = withUtilities;
+		SpoolFile[] files = new SpoolFile[withUtilities ? 4 : 2];
+		try {
+			for (int i = 0; i < files.length; i++) {
+				files[i] = new SpoolFile();
+			}
+		} catch (IOException e) {
+			for (SpoolFile file : files) {
+				if (file != null) {
+					file.delete();
+				}
+			}
+			throw e;
+		}
+		offsetsFile = files[0];
+		itemsFile = files[1];
+		transactionUtilitiesFile = withUtilities ? files[2] : null;
+		itemUtilitiesFile = withUtilities ? files[3] : null;
+	}
+
+	/**
+	 * Add a transaction without utility values
+	 * @param transaction the items of the transaction
+	 * @param length the number of items to read in the array
+	 * @throws IOException if an error occurs while writing the temporary files
+	 */
+	public void addTransaction(int[] transaction, int length) throws IOException {
+		if (withUtilities) {
+			throw new IllegalStateException("This writer expects utility values");
+		}
+		appendItems(transaction, length);
+		endTransaction();
+	}
+
+	/**
+	 * Add a transaction with utility values
+	 * @param transaction the items of the transaction
+	 * @param utilities the utility of each item of the transaction
+	 * @param length the number of items to read in the arrays
+	 * @param transactionUtility the transaction utility
+	 * @throws IOException if an error occurs while writing the temporary files
+	 */
+	public void addTransaction(int[] transaction, int[] utilities, int length, int transactionUtility) throws IOException {
+		if (!withUtilities) {
+			throw new IllegalStateException("This writer does not store utility values");
+		}
+		appendItems(transaction, length);
+		itemUtilitiesFile.putInts(utilities, 0, length);
+		transactionUtilitiesFile.putInt(transactionUtility);
+		endTransaction();
+	}
+
+	/**
+	 * Append the items of a transaction and update the supports
+	 * @param transaction the items
+	 * @param length the number of items
+	 * @throws IOException if an error occurs while writing the temporary files
+	 */
+	private void appendItems(int[] transaction, int length) throws IOException {
+		for (int i = 0; i < length; i++) {
+			int item = transaction[i];
+			checkItem(item);
+			addSupport(item, 1);
+		}
+		itemsFile.putInts(transaction, 0, length);
+		itemCount += length;
+		if (length > maxTransactionLength) {
+			maxTransactionLength = length;
+		}
+	}
+
+	/**
+	 * Record the end of the current transaction
+	 * @throws IOException if an error occurs while writing the temporary files
+	 */
+	private void endTransaction() throws IOException {
+		offsetsFile.putLong(itemCount);
+		transactionCount++;
+	}
+
+	/**
+	 * Increase the support of an item
+	 * @param item the item
+	 * @param support the support to be added
+	 */
+	private void addSupport(int item, int support) {
+		if (item < DENSE_ITEM_LIMIT) {
+			if (item >= denseSupports.length) {
+				denseSupports = Arrays.copyOf(denseSupports, Math.min(DENSE_ITEM_LIMIT, 
+						Math.max(denseSupports.length * 2, item + 1)));
+			}
+			denseSupports[item] += support;
+		} else {
+			Integer previous = sparseSupports.get(item);
+			sparseSupports.put(item, previous == null ? support : previous + support);
+		}
+		if (item > maxItem) {
+			maxItem = item;
+		}
+	}
+
+	/**
+	 * Check that an item can be stored in the binary format
+	 * @param item the item
+	 */
+	private static void checkItem(int item) {
+		if (item < 0) {
+			throw new IllegalArgumentException("Items must be positive integers: " + item);
+		}
+	}
+
+	/**
+	 * Encode a block of transactions without utility values. This method does not use the state of a writer,
+	 * so that blocks can be encoded by several threads and then added in order by
+	 * {@link #addEncodedTransactions(EncodedTransactions)}.
+	 * @param items the items of all the transactions, one after the other
+	 * @param transactionEnds the end offset of each transaction in items
+	 * @param transactionCount the number of transactions
+	 * @return the encoded transactions
+	 */
+	public static EncodedTransactions encode(int[] items, int[] transactionEnds, int transactionCount) {
+		int length = transactionCount == 0 ? 0 : transactionEnds[transactionCount - 1];
+
+		// the items, as they are written in the file
+		ByteBuffer itemBytes = ByteBuffer.allocate(length * 4).order(ByteOrder.LITTLE_ENDIAN);
+		int maxLength = 0;
+		int start = 0;
+		for (int t = 0; t < transactionCount; t++) {
+			for (int i = start; i < transactionEnds[t]; i++) {
+				checkItem(items[i]);
+				itemBytes.putInt(items[i]);
+			}
+			maxLength = Math.max(maxLength, transactionEnds[t] - start);
+			start = transactionEnds[t];
+		}
+		itemBytes.flip();
+
+		// the support of each item of the block, by sorting a copy of the items
+		int[] sorted = Arrays.copyOf(items, length);
+		Arrays.sort(sorted);
+		int[] distinctItems = new int[length];
+		int[] supports = new int[length];
+		int distinctItemCount = 0;
+		for (int i = 0; i < length; i++) {
+			if (distinctItemCount > 0 && distinctItems[distinctItemCount - 1] == sorted[i]) {
+				supports[distinctItemCount - 1]++;
+			} else {
+				distinctItems[distinctItemCount] = sorted[i];
+				supports[distinctItemCount++] = 1;
+			}
+		}
+		return new EncodedTransactions(itemBytes, Arrays.copyOf(transactionEnds, transactionCount), 
+				transactionCount, maxLength, distinctItems, supports, distinctItemCount);
+	}
+
+	/**
+	 * Add a block of transactions encoded by {@link #encode(int[], int[], int)}
+	 * @param transactions the encoded transactions
+	 * @throws IOException if an error occurs while writing the temporary files
+	 */
+	public void addEncodedTransactions(EncodedTransactions transactions) throws IOException {
+		if (withUtilities) {
+			throw new IllegalStateException("This writer expects utility values");
+		}
+		itemsFile.put(transactions.items.duplicate());
+		for (int t = 0; t < transactions.transactionCount; t++) {
+			offsetsFile.putLong(itemCount + transactions.transactionEnds[t]);
+		}
+		for (int i = 0; i < transactions.distinctItemCount; i++) {
+			addSupport(transactions.distinctItems[i], transactions.supports[i]);
+		}
+		itemCount += transactions.items.remaining() / 4;
+		transactionCount += transactions.transactionCount;
+		if (transactions.maxTransactionLength > maxTransactionLength) {
+			maxTransactionLength = transactions.maxTransactionLength;
+		}
+	}
+
+	/**
+	 * Get the number of transactions added until now
+	 * @return the number of transactions
+	 */
+	public int size() {
+		return transactionCount;
+	}
+
+	/**
+	 * Write the database to a file and delete the temporary files. 
+	 * No transaction can be added after this method has been called.
+	 * @param path the output file path
+	 * @throws IOException if an error occurs while writing the file
+	 */
+	public void write(String path) throws IOException {
+		try {
+			// the items that appear in the database, sorted (the items of the map are all larger than those of the array)
+			int[] sparseItems = new int[sparseSupports.size()];
+			int sparseItemCount = 0;
+			for (Integer item : sparseSupports.keySet()) {
+				sparseItems[sparseItemCount++] = item;
+			}
+			Arrays.sort(sparseItems);
+			int distinctItemCount = sparseItemCount;
+			for (int support : denseSupports) {
+				if (support > 0) {
+					distinctItemCount++;
+				}
+			}
+
+			try (RandomAccessFile file = new RandomAccessFile(path, "rw")) {
+				file.setLength(0);
+				FileChannel channel = file.getChannel();
+				ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+				// header
+				buffer.putInt(BinaryTransactionDatabase.MAGIC);
+				buffer.putInt(BinaryTransactionDatabase.VERSION);
+				buffer.putInt(withUtilities ? BinaryTransactionDatabase.FLAG_UTILITIES : 0);
+				buffer.putInt(transactionCount);
+				buffer.putInt(maxTransactionLength);
+				buffer.putInt(distinctItemCount);
+				buffer.putInt(maxItem);
+				buffer.putInt(0); // reserved
+				buffer.putLong(itemCount);
+
+				// support table
+				for (int item = 0; item < denseSupports.length; item++) {
+					if (denseSupports[item] > 0) {
+						ensureRemaining(channel, buffer, 8);
+						buffer.putInt(item);
+						buffer.putInt(denseSupports[item]);
+					}
+				}
+				for (int i = 0; i < sparseItemCount; i++) {
+					ensureRemaining(channel, buffer, 8);
+					buffer.putInt(sparseItems[i]);
+					buffer.putInt(sparseSupports.get(sparseItems[i]));
+				}
+
+				// offsets, starting with the offset of the first transaction
+				ensureRemaining(channel, buffer, 8);
+				buffer.putLong(0L);
+				flush(channel, buffer);
+
+				// copy the temporary files: the other offsets, the items and the utilities
+				offsetsFile.copyTo(channel);
+				itemsFile.copyTo(channel);
+				if (withUtilities) {
+					transactionUtilitiesFile.copyTo(channel);
+					itemUtilitiesFile.copyTo(channel);
+				}
+			}
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Delete the temporary files without writing the database (this is done by {@link #write(String)}).
+	 */
+	public void close() {
+		offsetsFile.delete();
+		itemsFile.delete();
+		if (withUtilities) {
+			transactionUtilitiesFile.delete();
+			itemUtilitiesFile.delete();
+		}
+	}
+
+	/**
+	 * Flush the buffer to the channel if it has less than a given number of free bytes
+	 */
+	private static void ensureRemaining(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+		if (buffer.remaining() < bytes) {
+			flush(channel, buffer);
+		}
+	}
+
+	/**
+	 * Write the content of the buffer to the channel and clear the buffer
+	 */
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * A block of transactions encoded by {@link BinaryTransactionDatabaseWriter#encode(int[], int[], int)}.
+	 */
+	public static final class EncodedTransactions {
+		/** the items, as little endian ints */
+		private final ByteBuffer items;
+		/** the end offset of each transaction in the block */
+		private final int[] transactionEnds;
+		/** the number of transactions */
+		private final int transactionCount;
+		/** the length of the longest transaction of the block */
+		private final int maxTransactionLength;
+		/** the items of the block, sorted, and their support in the block */
+		private final int[] distinctItems;
+		private final int[] supports;
+		private final int distinctItemCount;
+
+		/**
+		 * Constructor
+		 */
+		private EncodedTransactions(ByteBuffer items, int[] transactionEnds, int transactionCount,
+				int maxTransactionLength, int[] distinctItems, int[] supports, int distinctItemCount) {
+			this.items = items;
+			this.transactionEnds = transactionEnds;
+			this.transactionCount = transactionCount;
+			this.maxTransactionLength = maxTransactionLength;
+			this.distinctItems = distinctItems;
+			this.supports = supports;
+			this.distinctItemCount = distinctItemCount;
+		}
+
+		/**
+		 * Get the number of transactions of the block
+		 * @return the number of transactions
+		 */
+		public int size() {
+			return transactionCount;
+		}
+	}
+
+	/**
+	 * A temporary file where little endian values are written through a buffer.
+	 */
+	private static final class SpoolFile {
+		/** the file */
+		private final File file;
+		/** the channel to write the file */
+		private final FileChannel channel;
+		/** the buffer */
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+		/**
+		 * Create a temporary file
+		 * @throws IOException if the file cannot be created
+		 */
+		SpoolFile() throws IOException {
+			file = File.createTempFile("spmf-binary-", ".tmp");
+			file.deleteOnExit();
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.READ);
+		}
+
+		/**
+		 * Write an int
+		 */
+		void putInt(int value) throws IOException {
+			ensureRemaining(channel, buffer, 4);
+			buffer.putInt(value);
+		}
+
+		/**
+		 * Write a long
+		 */
+		void putLong(long value) throws IOException {
+			ensureRemaining(channel, buffer, 8);
+			buffer.putLong(value);
+		}
+
+		/**
+		 * Write ints of an array
+		 */
+		void putInts(int[] values, int start, int length) throws IOException {
+			for (int i = start; i < start + length; i++) {
+				ensureRemaining(channel, buffer, 4);
+				buffer.putInt(values[i]);
+			}
+		}
+
+		/**
+		 * Write the remaining bytes of a buffer
+		 */
+		void put(ByteBuffer bytes) throws IOException {
+			flush(channel, buffer);
+			while (bytes.hasRemaining()) {
+				channel.write(bytes);
+			}
+		}
+
+		/**
+		 * Copy the content of the file at the end of a channel
+		 * @param target the channel
+		 */
+		void copyTo(FileChannel target) throws IOException {
+			flush(channel, buffer);
+			long size = channel.size();
+			long position = 0;
+			while (position < size) {
+				position += channel.transferTo(position, size - position, target);
+			}
+		}
+
+		/**
+		 * Close and delete the file
+		 */
+		void delete() {
+			try {
+				channel.close();
+				Files.deleteIfExists(file.toPath());
+			} catch (IOException e) {
+				// the file is deleted when the virtual machine exits
+			}
+		}
+	}
+
+	/**
+	 * Convert a transaction database in the SPMF text format to the binary format.
+	 * If the lines contain ':' the file is read as a transaction database with utility values.
+	 * Empty lines and lines starting with '#', '%' or '@' are ignored as in the text readers.
+	 * @param input the path of the text file
+	 * @param output the path of the binary file to be written
+	 * @return the number of transactions written
+	 * @throws IOException if an error occurs while reading or writing
+	 */
+	public static int convertTextFile(String input, String output) throws IOException {
+		BinaryTransactionDatabaseWriter writer = null;
+		int[] transaction = new int[64];
+		int[] utilities = new int[64];
+
+		try (BufferedReader reader = new BufferedReader(new FileReader(input))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				// if the line is  a comment, is  empty or is a
+				// kind of metadata
+				if (line.isEmpty() == true || line.charAt(0) == '#' || line.charAt(0) == '%'
+						|| line.charAt(0) == '@') {
+					continue;
+				}
+				// the first transaction tells if the file has utility values
+				if (writer == null) {
+					writer = new BinaryTransactionDatabaseWriter(line.indexOf(':') >= 0);
+				}
+
+				String[] split = writer.withUtilities ? line.split(":") : null;
+				String[] itemsString = (writer.withUtilities ? split[0] : line).split(" ");
+				if (itemsString.length > transaction.length) {
+					transaction = new int[itemsString.length];
+					utilities = new int[itemsString.length];
+				}
+				int length = 0;
+				for (String itemString : itemsString) {
+					if (!itemString.isEmpty()) {
+						transaction[length++] = Integer.parseInt(itemString);
+					}
+				}
+
+				if (writer.withUtilities) {
+					String[] utilitiesString = split[2].split(" ");
+					for (int i = 0; i < length; i++) {
+						utilities[i] = Integer.parseInt(utilitiesString[i]);
+					}
+					writer.addTransaction(transaction, utilities, length, Integer.parseInt(split[1]));
+				} else {
+					writer.addTransaction(transaction, length);
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			if (writer != null) {
+				writer.close();
+			}
+			throw e;
+		}
+
+		if (writer == null) {
+			writer = new BinaryTransactionDatabaseWriter(false);
+		}
+		writer.write(output);
+		return writer.size();
+	}
+}
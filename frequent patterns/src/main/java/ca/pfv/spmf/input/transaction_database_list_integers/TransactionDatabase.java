@@ -26,6 +26,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import ca.pfv.spmf.input.transaction_database_binary.BinaryTransactionDatabase;
+
 /**
  * This class represents a transaction database (a.k.a. binary context), implemented
  * as a list of integers. It can read a transaction database directly from a file. 
@@ -55,6 +57,16 @@ public class TransactionDatabase {
 	 * @throws IOException exception if error reading the file
 	 */
 	public void loadFile(String path) throws IOException {
+		// a binary transaction database is read through the memory-mapped reader
+		if (BinaryTransactionDatabase.isBinaryFile(path)) {
+			BinaryTransactionDatabase database = BinaryTransactionDatabase.open(path);
+			try {
+				loadDatabase(database);
+			} finally {
+				database.close();
+			}
+			return;
+		}
 		String thisLine; // variable to read each line
 		BufferedReader myInput = null; // object to read the file
 		try {
@@ -81,6 +93,23 @@ public class TransactionDatabase {
 		}
 	}
 
+	/**
+	 * Method to load the transactions of a binary transaction database into memory
+	 * @param database the binary transaction database
+	 */
+	public void loadDatabase(BinaryTransactionDatabase database) {
+		int[] buffer = new int[database.getMaxTransactionLength()];
+		for (int tid = 0; tid < database.size(); tid++) {
+			int length = database.getTransaction(tid, buffer);
+			// create the transaction
+			List<Integer> itemset = new ArrayList<Integer>(length);
+			for (int i = 0; i < length; i++) {
+				itemset.add(buffer[i]);
+			}
+			addTransaction(itemset);
+		}
+	}
+
 	/**
 	 * This method process a line from a file that is read.
 	 * @param tokens the items contained in this line
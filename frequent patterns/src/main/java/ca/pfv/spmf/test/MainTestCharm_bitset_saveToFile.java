@@ -39,6 +39,14 @@ public class MainTestCharm_bitset_saveToFile {
 //		// Set this variable to true to show the transaction identifiers where patterns appear in the output file
 //		algo.setShowTransactionIdentifiers(true);
 		
+//		// Set this variable to true to store the tidsets as compressed bitmaps, which use less memory
+//		// for large and sparse databases
+//		algo.setUseCompressedTidsets(true);
+		
+//		// Uncomment the following line to process the equivalence classes with several threads
+//		// (the closed itemsets are then not written in the same order)
+//		algo.setThreadCount(4);
+		
 		algo.runAlgorithm(output, database, minsup, true, 10000);
 		// NOTE 1: if you  use "true" in the line above, CHARM will use
 		// a triangular matrix  for counting support of itemsets of size 2.
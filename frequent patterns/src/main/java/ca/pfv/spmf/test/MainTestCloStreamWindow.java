@@ -0,0 +1,42 @@
+package ca.pfv.spmf.test;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URL;
+import java.util.List;
+
+import ca.pfv.spmf.algorithms.frequentpatterns.clostream.AlgoCloStreamWindow;
+import ca.pfv.spmf.patterns.itemset_array_integers_with_count.Itemset;
+
+/**
+ * Example of how to use the CloStream algorithm with a sliding window, from the source code.
+ */
+public class MainTestCloStreamWindow {  
+
+	public static void main(String [] arg){
+		
+		// Creating an instance of the CloStream algorithm with a window of 4 transactions
+		AlgoCloStreamWindow cloStream = new AlgoCloStreamWindow(4);
+		
+		// Now we add 5 transactions (the first one leaves the window when the fifth one is added)
+		cloStream.processNewTransaction(new Itemset(new int[] {1,3,4}));
+		cloStream.processNewTransaction(new Itemset(new int[] {2,3,5}));
+		cloStream.processNewTransaction(new Itemset(new int[] {1,2,3,5}));
+		cloStream.processNewTransaction(new Itemset(new int[] {2,5}));
+		cloStream.processNewTransaction(new Itemset(new int[] {1,2,3,5}));
+		
+		// We print the closed itemsets of the last 4 transactions
+		List<Itemset> list = cloStream.getClosedItemsets();
+		System.out.println("Closed itemsets count : " + list.size());
+		for(Itemset itemset : list){
+			System.out.println("  " + itemset.toString() + " absolute support : " + itemset.getAbsoluteSupport());
+		}
+		
+		// We print statistics (including the number of transactions processed by second)
+		cloStream.printStats();
+	}
+	
+	public static String fileToPath(String filename) throws UnsupportedEncodingException{
+		URL url = MainTestCloStreamWindow.class.getResource(filename);
+		 return java.net.URLDecoder.decode(url.getPath(),"UTF-8");
+	}
+}
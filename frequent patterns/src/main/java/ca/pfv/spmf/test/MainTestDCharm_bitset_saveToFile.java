@@ -34,6 +34,10 @@ public class MainTestDCharm_bitset_saveToFile {
 		
 		// Applying the DECLAT algorithm
 		AlgoDCharm_Bitset algo = new AlgoDCharm_Bitset();
+//		// Set this variable to true to store the diffsets as compressed bitmaps, which use less memory
+//		// for large and sparse databases
+//		algo.setUseCompressedTidsets(true);
+		
 		algo.runAlgorithm(output, database, minsup, true, 10000);
 		// if you change use "true" in the line above, ECLAT will use
 		// a triangular matrix  for counting support of itemsets of size 2.
@@ -38,6 +38,10 @@ public class MainTestDEclat_bitset_saveToFile {
 		// Uncomment the following line to set the maximum pattern length (number of items per itemset)
 //		algo.setMaximumPatternLength(3); 
 	
+//		// Set this variable to true to store the diffsets as compressed bitmaps, which use less memory
+//		// for large and sparse databases
+//		algo.setUseCompressedTidsets(true);
+		
 		algo.runAlgorithm(output, database, minsup, true);
 		// if you change use "true" in the line above, ECLAT will use
 		// a triangular matrix  for counting support of itemsets of size 2.
@@ -37,6 +37,10 @@ public class MainTestEclat_bitset_saveToFile {
 //		// Set this variable to true to show the transaction identifiers where patterns appear in the output file
 //		algo.setShowTransactionIdentifiers(true);
 		
+//		// Set this variable to true to store the tidsets as compressed bitmaps, which use less memory
+//		// for large and sparse databases
+//		algo.setUseCompressedTidsets(true);
+		
 		algo.runAlgorithm(output, database, minsup, false);
 
 		// NOTE 1: if you  use "true" in the line above, CHARM will use
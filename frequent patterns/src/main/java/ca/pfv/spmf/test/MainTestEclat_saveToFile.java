@@ -41,6 +41,9 @@ public class MainTestEclat_saveToFile {
 ////		// Set this variable to true to show the transaction identifiers where patterns appear in the output file
 //		algo.setShowTransactionIdentifiers(true);
 		
+//		// Uncomment the following line to mine the equivalence classes with several threads
+//		algo.setThreadCount(4);
+		
 		algo.runAlgorithm(output, database, minsup, true);
 		// if you change use "true" in the line above, ECLAT will use
 		// a triangular matrix  for counting support of itemsets of size 2.
@@ -0,0 +1,41 @@
+package ca.pfv.spmf.test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URL;
+import java.util.Arrays;
+
+import ca.pfv.spmf.algorithms.frequentpatterns.fpgrowth.AlgoFPCloseSegments;
+
+
+/**
+ * Example of how to mine the closed itemsets of two segments of a database
+ * (here the first two transactions and the last three transactions) with a single
+ * read of the database, and get the support of each itemset in both segments.
+ */
+public class MainTestFPCloseSegments {
+
+	public static void main(String [] arg) throws FileNotFoundException, IOException{
+		// the transaction database
+		String input = fileToPath("contextPasquier99.txt");
+		// the segment of each transaction
+		int[] labels = new int[] {1, 1, 2, 2, 2};
+
+		// Applying the algorithm
+		AlgoFPCloseSegments algo = new AlgoFPCloseSegments();
+		algo.runAlgorithm(input, ".//output.txt", 0.6, labels);
+		algo.printStats();
+
+		// print the support of each itemset in the segments
+		System.out.println("segments " + Arrays.toString(algo.getSegmentLabels()));
+		for(int i = 0; i < algo.getItemsetCount(); i++) {
+			System.out.println(Arrays.toString(algo.getItemset(i)) + " " + Arrays.toString(algo.getSegmentSupports(i)));
+		}
+	}
+	
+	public static String fileToPath(String filename) throws UnsupportedEncodingException{
+		URL url = MainTestFPCloseSegments.class.getResource(filename);
+		 return java.net.URLDecoder.decode(url.getPath(),"UTF-8");
+	}
+}
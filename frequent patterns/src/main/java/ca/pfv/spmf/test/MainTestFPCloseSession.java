@@ -0,0 +1,39 @@
+package ca.pfv.spmf.test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URL;
+
+import ca.pfv.spmf.algorithms.frequentpatterns.fpgrowth.FPCloseSession;
+import ca.pfv.spmf.patterns.itemset_array_integers_with_count.Itemsets;
+
+
+/**
+ * Example of how to run FPClose once with the lowest minimum support of interest
+ * and then get the closed itemsets for several higher minimum supports
+ * without mining the database again.
+ */
+public class MainTestFPCloseSession {
+
+	public static void main(String [] arg) throws FileNotFoundException, IOException{
+		// the transaction database
+		String input = fileToPath("contextPasquier99.txt");
+
+		// Mine the database once, with the lowest minimum support
+		FPCloseSession session = new FPCloseSession(input, 0.4);
+		session.printStats();
+
+		// Get the result for several minimum support thresholds
+		for(double minsup : new double[] {0.8, 0.6, 0.4}) {
+			System.out.println("minsup = " + minsup);
+			Itemsets patterns = session.getClosedItemsets(minsup);
+			patterns.printItemsets(session.getDatabaseSize());
+		}
+	}
+	
+	public static String fileToPath(String filename) throws UnsupportedEncodingException{
+		URL url = MainTestFPCloseSession.class.getResource(filename);
+		 return java.net.URLDecoder.decode(url.getPath(),"UTF-8");
+	}
+}
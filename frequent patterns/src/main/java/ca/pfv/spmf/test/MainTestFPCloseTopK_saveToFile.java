@@ -0,0 +1,34 @@
+package ca.pfv.spmf.test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URL;
+
+import ca.pfv.spmf.algorithms.frequentpatterns.fpgrowth.AlgoFPCloseTopK;
+
+/**
+ * Example of how to find the top-k closed itemsets with the FPClose-based algorithm
+ * from the source code and save the result to a file.
+ */
+public class MainTestFPCloseTopK_saveToFile {
+
+	public static void main(String [] arg) throws FileNotFoundException, IOException{
+		// the transaction database
+		String input = fileToPath("contextPasquier99.txt");
+		String output = ".//output.txt";  // the path for saving the closed itemsets found
+		
+		// the number of closed itemsets to be found
+		int k = 5;
+
+		// Applying the algorithm
+		AlgoFPCloseTopK algo = new AlgoFPCloseTopK();
+		algo.runAlgorithm(input, output, k);
+		algo.printStats();
+	}
+	
+	public static String fileToPath(String filename) throws UnsupportedEncodingException{
+		URL url = MainTestFPCloseTopK_saveToFile.class.getResource(filename);
+		 return java.net.URLDecoder.decode(url.getPath(),"UTF-8");
+	}
+}
@@ -0,0 +1,44 @@
+package ca.pfv.spmf.test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URL;
+
+import ca.pfv.spmf.algorithms.frequentpatterns.fpgrowth.AlgoFPClose;
+import ca.pfv.spmf.input.transaction_database_binary.BinaryTransactionDatabase;
+import ca.pfv.spmf.input.transaction_database_binary.BinaryTransactionDatabaseWriter;
+import ca.pfv.spmf.patterns.itemset_array_integers_with_count.Itemsets;
+
+
+/**
+ * Example of how to convert a transaction database to the binary format
+ * and then run FPClose several times on the binary database without parsing the text file again.
+ */
+public class MainTestFPClose_binaryDatabase {
+
+	public static void main(String [] arg) throws FileNotFoundException, IOException{
+		// the transaction database
+		String input = fileToPath("contextPasquier99.txt");
+		// the binary database that will be created
+		String binary = ".//contextPasquier99.bin";
+
+		// Convert the database once
+		BinaryTransactionDatabaseWriter.convertTextFile(input, binary);
+
+		// Run the algorithm with several minimum support thresholds
+		BinaryTransactionDatabase database = BinaryTransactionDatabase.open(binary);
+		for(double minsup : new double[] {0.8, 0.6, 0.4}) {
+			AlgoFPClose algo = new AlgoFPClose();
+			Itemsets patterns = algo.runAlgorithm(database, null, minsup);
+			algo.printStats();
+			patterns.printItemsets(algo.getDatabaseSize());
+		}
+		database.close();
+	}
+	
+	public static String fileToPath(String filename) throws UnsupportedEncodingException{
+		URL url = MainTestFPClose_binaryDatabase.class.getResource(filename);
+		 return java.net.URLDecoder.decode(url.getPath(),"UTF-8");
+	}
+}
@@ -79,6 +79,11 @@ public class MainTestFPClose_saveToFile {
     public static void run(String input, String output, double minsup) throws FileNotFoundException, IOException {
         // Applying the algorithm
         AlgoFPClose algo = new AlgoFPClose();
+        // build the FP-tree and mine its branches on all the cores
+        algo.setThreadCount(Runtime.getRuntime().availableProcessors());
+        // Uncomment the following line to mine 16 partitions of the database stored on disk
+        // instead of the FP-tree of the whole database (when it does not fit in memory)
+//        algo.setDiskPartitions(16, null);
         algo.runAlgorithm(input, output, minsup);
         algo.printStats();
     }
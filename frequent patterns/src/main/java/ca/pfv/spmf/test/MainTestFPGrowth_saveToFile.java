@@ -30,6 +30,13 @@ public class MainTestFPGrowth_saveToFile {
 		// Uncomment the following line to set the minimum pattern length (number of items per itemset, e.g. 2 )
 //		algo.setMinimumPatternLength(2);
 		
+		// Uncomment the following line to build the initial FP-tree with several threads
+//		algo.setThreadCount(4);
+		
+		// Uncomment the following line to mine 16 partitions of the database stored on disk
+		// instead of the FP-tree of the whole database (when it does not fit in memory)
+//		algo.setDiskPartitions(16, null);
+		
 		algo.runAlgorithm(input, output, minsup);
 		algo.printStats();
 	}
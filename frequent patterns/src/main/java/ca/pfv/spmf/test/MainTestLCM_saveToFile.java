@@ -37,6 +37,10 @@ public class MainTestLCM_saveToFile {
 		
 		// Applying the algorithm
 		AlgoLCM algo = new AlgoLCM();
+
+//		// Uncomment the following line to mine the branches of the search with several threads
+//		algo.setThreadCount(4);
+
 		algo.runAlgorithm(minsup, dataset, output);
 		algo.printStats();
 	}
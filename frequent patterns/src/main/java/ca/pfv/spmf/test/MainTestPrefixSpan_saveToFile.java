@@ -28,6 +28,9 @@ public class MainTestPrefixSpan_saveToFile {
         // if you set the following parameter to true, the sequence ids of the sequences where
         // each pattern appears will be shown in the result
         algo.setShowSequenceIdentifiers(false);
+		
+		// Uncomment the following line to explore the patterns starting with different items with several threads
+//		algo.setThreadCount(4);
         
 		// execute the algorithm
 		algo.runAlgorithm(inputFile, outputPath, minsup);    
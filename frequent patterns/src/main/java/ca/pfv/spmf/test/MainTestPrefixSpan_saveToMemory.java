@@ -28,6 +28,9 @@ public class MainTestPrefixSpan_saveToMemory {
         // each pattern appears will be shown in the result
         algo.setShowSequenceIdentifiers(true);
 		
+		// Uncomment the following line to explore the patterns starting with different items with several threads
+//		algo.setThreadCount(4);
+		
 		// execute the algorithm with minsup = 50 %
 		SequentialPatterns patterns = algo.runAlgorithm(inputFile, 0.4, null);    
 		System.out.println(" == PATTERNS FOUND ==");
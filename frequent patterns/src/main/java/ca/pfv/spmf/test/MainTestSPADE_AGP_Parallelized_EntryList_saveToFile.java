@@ -51,6 +51,9 @@ public class MainTestSPADE_AGP_Parallelized_EntryList_saveToFile {
 
         AlgoSPADE algorithm = new AlgoSPADE(support,dfs,abstractionCreator);
         
+        // Uncomment the following line to set the number of threads (by default, the number of processors)
+//        algorithm.setThreadCount(4);
+
         algorithm.runAlgorithmParallelized(sequenceDatabase, candidateGenerator,keepPatterns,verbose, outputPath,outputSequenceIdentifiers);
         System.out.println("Minimum support (relative) = "+support);
         System.out.println(algorithm.getNumberOfFrequentPatterns()+ " frequent patterns.");
@@ -51,6 +51,9 @@ public class MainTestSPADE_AGP_Parallelized_FatBitMap_saveToMemory {
 
         AlgoSPADE algorithm = new AlgoSPADE(support,dfs,abstractionCreator);
         
+        // Uncomment the following line to set the number of threads (by default, the number of processors)
+//        algorithm.setThreadCount(4);
+
         algorithm.runAlgorithmParallelized(sequenceDatabase, candidateGenerator,keepPatterns,verbose,null, outputSequenceIdentifiers);
 
         System.out.println("Minimum support (relative) = "+support);
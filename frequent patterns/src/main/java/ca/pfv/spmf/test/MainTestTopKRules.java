@@ -29,7 +29,12 @@ public class MainTestTopKRules {
 //		// This optional parameter allows to specify the maximum number of items in the 
 //		// right side (consequent) of rules found:
 //		algo.setMaxConsequentSize(1);  // optional
-		
+
+		// Uncomment the following line to expand the candidate rules with several threads.
+		// The rules tied at the lowest support of the result can then differ from one run to another
+		// (the minimum support and the rules having a higher support are always the same).
+//		algo.setThreadCount(4);
+
 		algo.runAlgorithm(k, minConf, database);
 
 		algo.printStats();
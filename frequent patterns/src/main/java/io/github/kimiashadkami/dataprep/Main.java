@@ -41,20 +41,20 @@ public class Main {
 
         // converting to txt
         Prep prep = new Prep();
-        prep.prepData(free_xlsx, free_txt);
-        prep.prepData(paid_xlsx, paid_txt);
-        prep.prepData(free_xlsx_low, free_txt_low);
-        prep.prepData(paid_xlsx_low, paid_txt_low);
-
-        prep.prepData(price1_xlsx, price1_txt);
-        prep.prepData(price2_xlsx, price2_txt);
-        prep.prepData(price3_xlsx, price3_txt);
-        prep.prepData(price4_xlsx, price4_txt);
-
-        prep.prepData(price1_xlsx_low, price1_txt_low);
-        prep.prepData(price2_xlsx_low, price2_txt_low);
-        prep.prepData(price3_xlsx_low, price3_txt_low);
-        prep.prepData(price4_xlsx_low, price4_txt_low);
+        prep.prepDataStreaming(free_xlsx, free_txt);
+        prep.prepDataStreaming(paid_xlsx, paid_txt);
+        prep.prepDataStreaming(free_xlsx_low, free_txt_low);
+        prep.prepDataStreaming(paid_xlsx_low, paid_txt_low);
+
+        prep.prepDataStreaming(price1_xlsx, price1_txt);
+        prep.prepDataStreaming(price2_xlsx, price2_txt);
+        prep.prepDataStreaming(price3_xlsx, price3_txt);
+        prep.prepDataStreaming(price4_xlsx, price4_txt);
+
+        prep.prepDataStreaming(price1_xlsx_low, price1_txt_low);
+        prep.prepDataStreaming(price2_xlsx_low, price2_txt_low);
+        prep.prepDataStreaming(price3_xlsx_low, price3_txt_low);
+        prep.prepDataStreaming(price4_xlsx_low, price4_txt_low);
     }
 }
 
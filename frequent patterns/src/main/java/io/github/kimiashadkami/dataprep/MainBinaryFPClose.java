@@ -0,0 +1,38 @@
+package io.github.kimiashadkami.dataprep;
+
+import java.io.IOException;
+
+import ca.pfv.spmf.algorithms.frequentpatterns.fpgrowth.AlgoFPClose;
+import ca.pfv.spmf.input.transaction_database_binary.BinaryTransactionDatabase;
+import ca.pfv.spmf.patterns.itemset_array_integers_with_count.Itemsets;
+
+// prepares a sheet directly in the binary transaction database format of SPMF,
+// then runs FPClose on the binary database without writing or parsing a text file
+public class MainBinaryFPClose {
+
+    public static void main(String[] args) throws IOException {
+
+        // dir
+        String const_path = "D:/eclipse/workspace/paid-vs-free-apps/frequent patterns/src/main/resources";
+
+        // one transaction per row, the first row is a header
+        String free_xlsx = args.length > 0 ? args[0] : const_path + "/free_high_rated_spmf.xlsx";
+        String free_bin = args.length > 1 ? args[1] : const_path + "/free_high_rated_spmf.bin";
+
+        // converting to binary
+        Prep prep = new Prep();
+        int row_num = prep.prepDataStreaming(free_xlsx, free_bin, TransactionEncoder.Format.BINARY);
+        System.out.println("rows: " + row_num);
+
+        // mining closed itemsets from the binary database
+        BinaryTransactionDatabase database = BinaryTransactionDatabase.open(free_bin);
+        try {
+            AlgoFPClose algo = new AlgoFPClose();
+            Itemsets patterns = algo.runAlgorithm(database, null, 0.25);
+            algo.printStats();
+            patterns.printItemsets(algo.getDatabaseSize());
+        } finally {
+            database.close();
+        }
+    }
+}
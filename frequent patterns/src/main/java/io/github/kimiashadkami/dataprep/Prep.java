@@ -5,13 +5,25 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Paths;
 import java.util.Iterator;
 
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.poi.ooxml.util.SAXHelper;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
 
 public class Prep {
 
@@ -87,4 +99,57 @@ public class Prep {
             e.printStackTrace();
         }
     }
-}
\ No newline at end of file
+
+    // prep data in streaming mode
+    // parses the first sheet with SAX instead of loading the whole workbook, so memory does not grow with the file
+    // writes the same transactions as prepData and returns the same row number as getRowNum, in a single pass
+    public int prepDataStreaming(String dir_read, String dir_write) {
+        return prepDataStreaming(dir_read, dir_write, TransactionEncoder.Format.SPMF_TEXT);
+    }
+
+    // same as above, written in the given format: text rows are encoded in chunks on all cores,
+    // BINARY writes the binary transaction database that FPGrowth, FPClose, LCM and EFIM open with BinaryTransactionDatabase
+    public int prepDataStreaming(String dir_read, String dir_write, TransactionEncoder.Format format) {
+        int row_num = 0;
+        try (TransactionEncoder encoder = new TransactionEncoder(Paths.get(dir_write), format)) {
+            row_num = readRows(dir_read, encoder);
+        } catch (IOException e) {
+            System.out.println("An error occured.");
+            e.printStackTrace();
+        }
+        return --row_num;
+    }
+
+    // parses the first sheet with SAX and gives each row to the sink, as prepDataStreaming does
+    // returns the number of rows, including the header row
+    public int readRows(String dir_read, RowSink sink) throws IOException {
+        try (OPCPackage opc_package = OPCPackage.open(new File(dir_read), PackageAccess.READ)) {
+
+            XSSFReader xssf_reader = new XSSFReader(opc_package);
+            Iterator<InputStream> iterator_sheet = xssf_reader.getSheetsData();
+
+            SheetTransactionHandler handler = new SheetTransactionHandler(sink);
+
+            // POI's reader is namespace aware and does not resolve external entities (no XXE from the workbook)
+            XMLReader xml_reader = SAXHelper.newXMLReader();
+            xml_reader.setContentHandler(handler);
+
+            // only the first sheet, like getSheetAt(0)
+            if (iterator_sheet.hasNext()) {
+                try (InputStream sheet_input_stream = iterator_sheet.next()) {
+                    xml_reader.parse(new InputSource(sheet_input_stream));
+                }
+            }
+            return handler.getRowNum();
+
+        } catch (SAXException e) {
+            // the sink reports its own errors wrapped in a SAXException
+            if (e.getException() instanceof IOException) {
+                throw (IOException) e.getException();
+            }
+            throw new IOException("Cannot parse " + dir_read, e);
+        } catch (OpenXML4JException | ParserConfigurationException e) {
+            throw new IOException("Cannot read " + dir_read, e);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package io.github.kimiashadkami.dataprep;
+
+import java.io.IOException;
+
+// receives the rows of a sheet as transactions, see SheetTransactionHandler
+public interface RowSink {
+
+    // add the row items[0..length) as the next transaction, the array is reused by the caller
+    void addRow(int[] items, int length) throws IOException;
+}
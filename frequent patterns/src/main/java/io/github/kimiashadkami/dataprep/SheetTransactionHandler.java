@@ -0,0 +1,95 @@
+package io.github.kimiashadkami.dataprep;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+// SAX handler over the raw sheet xml of a .xlsx file
+// hands one transaction per row to a sink (the encoder or an in-memory pipeline), keeping only the numeric cells (same as Prep.prepData)
+public class SheetTransactionHandler extends DefaultHandler {
+
+    private final RowSink sink;
+
+    private int row_num = 0;
+
+    // numeric values of the current row
+    private int[] row = new int[64];
+    private int row_length = 0;
+
+    // state of the cell being parsed
+    private boolean numeric_cell = false;
+    private boolean formula_cell = false;
+    private boolean in_value = false;
+    private final StringBuilder value = new StringBuilder();
+
+    public SheetTransactionHandler(RowSink sink) {
+        this.sink = sink;
+    }
+
+    // number of rows seen, including the header row
+    public int getRowNum() {
+        return row_num;
+    }
+
+    @Override
+    public void startElement(String uri, String local_name, String q_name, Attributes attributes) {
+
+        switch (local_name) {
+        case "row":
+            row_num++;
+            break;
+        case "c":
+            // cells without a type attribute or with t="n" are numeric
+            String type = attributes.getValue("t");
+            numeric_cell = type == null || type.equals("n");
+            formula_cell = false;
+            break;
+        case "f":
+            // the dom api reports formula cells as FORMULA, not NUMERIC, so they are skipped
+            formula_cell = true;
+            break;
+        case "v":
+            in_value = true;
+            value.setLength(0);
+            break;
+        default:
+            break;
+        }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) {
+        if (in_value) {
+            value.append(ch, start, length);
+        }
+    }
+
+    @Override
+    public void endElement(String uri, String local_name, String q_name) throws SAXException {
+
+        try {
+            switch (local_name) {
+            case "v":
+                in_value = false;
+                if (numeric_cell && !formula_cell && value.length() > 0) {
+                    if (row_length == row.length) {
+                        row = Arrays.copyOf(row, row_length * 2);
+                    }
+                    row[row_length++] = (int) Double.parseDouble(value.toString());
+                }
+                break;
+            case "row":
+                sink.addRow(row, row_length);
+                row_length = 0;
+                break;
+            default:
+                break;
+            }
+        } catch (IOException e) {
+            throw new SAXException(e);
+        }
+    }
+}
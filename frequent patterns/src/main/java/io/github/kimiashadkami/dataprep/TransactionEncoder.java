@@ -0,0 +1,227 @@
+package io.github.kimiashadkami.dataprep;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import ca.pfv.spmf.input.transaction_database_binary.BinaryTransactionDatabaseWriter;
+import ca.pfv.spmf.input.transaction_database_binary.BinaryTransactionDatabaseWriter.EncodedTransactions;
+
+// encodes rows of item ids into a transaction file
+// rows are grouped into chunks, each chunk is encoded on a worker thread and the chunks are written back in row order
+public class TransactionEncoder implements RowSink, Closeable {
+
+    public enum Format {
+        // one transaction per line, items separated by a space (same as Prep.prepData)
+        SPMF_TEXT,
+        // the binary transaction database of SPMF, opened by BinaryTransactionDatabase.open and read
+        // by FPGrowth, FPClose, LCM and EFIM (the layout is described in BinaryTransactionDatabase)
+        BINARY
+    }
+
+    public static final int DEFAULT_CHUNK_SIZE = 8192;
+
+    private final Path dir_write;
+    private final FileChannel channel;
+    private final Format format;
+    private final int chunk_size;
+    private final int max_pending;
+    private final ExecutorService executor;
+
+    // the binary format starts with the item supports and the transaction offsets, so the writer
+    // spools the encoded chunks to temporary files and writes dir_write when the encoder is closed
+    private final BinaryTransactionDatabaseWriter binary_writer;
+
+    // chunks submitted to the workers, oldest first
+    private final ArrayDeque<Future<ByteBuffer>> pending = new ArrayDeque<>();
+    private final ArrayDeque<Future<EncodedTransactions>> pending_binary = new ArrayDeque<>();
+
+    // chunk being filled: items of all rows one after another, and the end offset of each row
+    private int[] chunk_items = new int[1024];
+    private int[] chunk_row_ends;
+    private int chunk_rows = 0;
+    private int chunk_length = 0;
+
+    private long transaction_count = 0;
+    private boolean closed = false;
+
+    public TransactionEncoder(Path dir_write, Format format) throws IOException {
+        this(dir_write, format, Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+    }
+
+    public TransactionEncoder(Path dir_write, Format format, int threads, int chunk_size) throws IOException {
+        if (threads < 1 || chunk_size < 1) {
+            throw new IllegalArgumentException("threads and chunk_size must be positive");
+        }
+        this.dir_write = dir_write;
+        this.format = format;
+        this.chunk_size = chunk_size;
+        // bounds the number of encoded chunks held in memory
+        this.max_pending = threads * 2;
+        this.chunk_row_ends = new int[chunk_size];
+
+        if (format == Format.BINARY) {
+            this.binary_writer = new BinaryTransactionDatabaseWriter(false);
+            this.channel = null;
+        } else {
+            this.binary_writer = null;
+            this.channel = FileChannel.open(dir_write, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "transaction-encoder");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // add the row items[0..length) as the next transaction
+    @Override
+    public void addRow(int[] items, int length) throws IOException {
+        transaction_count++;
+        // empty rows (such as the header) are not written to the binary format, as the text readers
+        // skip empty lines, so that the database has the same size as when the text file is read
+        if (format == Format.BINARY && length == 0) {
+            return;
+        }
+        if (chunk_length + length > chunk_items.length) {
+            chunk_items = Arrays.copyOf(chunk_items, Math.max(chunk_items.length * 2, chunk_length + length));
+        }
+        System.arraycopy(items, 0, chunk_items, chunk_length, length);
+        chunk_length += length;
+        chunk_row_ends[chunk_rows++] = chunk_length;
+
+        if (chunk_rows == chunk_size) {
+            submitChunk();
+        }
+    }
+
+    public void addRow(int[] items) throws IOException {
+        addRow(items, items.length);
+    }
+
+    public long getTransactionCount() {
+        return transaction_count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        boolean written = false;
+        try {
+            if (chunk_rows > 0) {
+                submitChunk();
+            }
+            while (!pending.isEmpty() || !pending_binary.isEmpty()) {
+                writeOldestChunk();
+            }
+            if (format == Format.BINARY) {
+                binary_writer.write(dir_write.toString());
+            }
+            written = true;
+        } finally {
+            executor.shutdownNow();
+            if (format == Format.BINARY) {
+                // write deletes the temporary files itself
+                if (!written) {
+                    binary_writer.close();
+                }
+            } else {
+                channel.close();
+            }
+        }
+    }
+
+    // hand the current chunk to a worker and start a new one
+    private void submitChunk() throws IOException {
+        final int[] items = chunk_items;
+        final int[] row_ends = chunk_row_ends;
+        final int rows = chunk_rows;
+        final int length = chunk_length;
+
+        if (format == Format.BINARY) {
+            pending_binary.add(executor.submit(() -> BinaryTransactionDatabaseWriter.encode(items, row_ends, rows)));
+        } else {
+            pending.add(executor.submit(() -> encodeText(items, row_ends, rows, length)));
+        }
+
+        chunk_items = new int[Math.max(1024, length)];
+        chunk_row_ends = new int[chunk_size];
+        chunk_rows = 0;
+        chunk_length = 0;
+
+        while (pending.size() + pending_binary.size() >= max_pending) {
+            writeOldestChunk();
+        }
+    }
+
+    private void writeOldestChunk() throws IOException {
+        try {
+            if (format == Format.BINARY) {
+                binary_writer.addEncodedTransactions(pending_binary.poll().get());
+                return;
+            }
+            ByteBuffer buffer = pending.poll().get();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while encoding transactions", e);
+        } catch (ExecutionException e) {
+            // negative items cannot be stored in the binary format
+            throw new IOException("failed to encode transactions for " + dir_write, e.getCause());
+        }
+    }
+
+    // "1 2 3 \n", the trailing space is kept so the output is byte for byte the one of Prep.prepData
+    static ByteBuffer encodeText(int[] items, int[] row_ends, int rows, int length) {
+        // at most 11 characters and a space per item, plus a newline per row
+        byte[] bytes = new byte[length * 12 + rows];
+        int position = 0;
+        int start = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int i = start; i < row_ends[r]; i++) {
+                position = writeDecimal(items[i], bytes, position);
+                bytes[position++] = ' ';
+            }
+            bytes[position++] = '\n';
+            start = row_ends[r];
+        }
+        return ByteBuffer.wrap(bytes, 0, position);
+    }
+
+    static int writeDecimal(int value, byte[] bytes, int position) {
+        if (value == Integer.MIN_VALUE) {
+            byte[] min = Integer.toString(value).getBytes();
+            System.arraycopy(min, 0, bytes, position, min.length);
+            return position + min.length;
+        }
+        if (value < 0) {
+            bytes[position++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (int rest = value / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        int end = position + digits;
+        for (int p = end - 1; p >= position; p--) {
+            bytes[p] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return end;
+    }
+}
@@ -1,6 +1,6 @@
 package io.github.kimiashadkami.outputpostproc;
 
-import java.util.HashMap;
+import java.io.IOException;
 
 public class Main {
     
@@ -59,9 +59,12 @@ public class Main {
     }
 
     public static void run(String post_processing_txt, String frequent_patterns, String output, int total) {
-        PostProcess post_process = new PostProcess();
-        HashMap<String, String> hashmap = post_process.generateHashMap(post_processing_txt);
-        post_process.postprocess(frequent_patterns, hashmap, output, total);
+        try {
+            PatternLabeller labeller = new PatternLabeller(post_processing_txt);
+            labeller.label(frequent_patterns, output, total);
+        } catch (IOException e) {
+            System.out.println("An error occured.");
+            e.printStackTrace();
+        }
     }
 }
-
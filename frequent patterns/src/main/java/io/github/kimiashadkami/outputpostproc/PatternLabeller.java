@@ -0,0 +1,373 @@
+package io.github.kimiashadkami.outputpostproc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+
+// labels the frequent patterns written by FPClose ("items #SUP: n")
+// writes the same lines as the Scanner based PostProcess.postprocess, but the file is decoded as bytes:
+// the item ids and the support are parsed in place, labels are looked up by int id and nothing is allocated per pattern
+public class PatternLabeller {
+
+    // prints every pattern, only for debugging, the check is removed by the compiler when false
+    private static final boolean DEBUG = false;
+
+    // ids below this bound are looked up directly in an array, larger ids with a binary search
+    private static final int DENSE_LIMIT = 1 << 16;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final byte[] LAST_UPDATE = bytes("Last.Update(");
+    private static final byte[] RELEASED = bytes("Released(");
+    private static final byte[] TOKEN_END = bytes("), ");
+    private static final byte[] SUPPORT_START = bytes("#SUP: ");
+    private static final byte[] PERCENTAGE_START = bytes(" [");
+    private static final byte[] PERCENTAGE_END = bytes("%]\n");
+    // "#SUP: " comes before the support
+    private static final int SUPPORT_OFFSET = SUPPORT_START.length;
+
+    // label followed by '(' for each id below DENSE_LIMIT (up to the largest one), null if the id has no label
+    private final byte[][] dense_labels;
+    // larger ids sorted in increasing order, and their labels followed by '('
+    private final int[] sparse_ids;
+    private final byte[][] sparse_labels;
+
+    // the odd lines of the file are ids separated by a space, each even line is the label of the ids above it
+    public PatternLabeller(String dir_read) throws IOException {
+        this(PostProcess.readDictionary(dir_read));
+    }
+
+    // keys are item ids, values are labels (as returned by PostProcess.generateHashMap)
+    public PatternLabeller(Map<String, String> hashmap) {
+        int dense_length = 0;
+        for (String key : hashmap.keySet()) {
+            int id = parseId(key);
+            if (id >= 0 && id < DENSE_LIMIT) {
+                dense_length = Math.max(dense_length, id + 1);
+            }
+        }
+        dense_labels = new byte[dense_length][];
+        int[] ids = new int[hashmap.size()];
+        byte[][] labels = new byte[hashmap.size()][];
+        int sparse_count = 0;
+
+        for (Map.Entry<String, String> entry : hashmap.entrySet()) {
+            // keys that are not written like an item id can never match a pattern item
+            int id = parseId(entry.getKey());
+            if (id < 0) {
+                continue;
+            }
+            byte[] label = bytes(entry.getValue() + "(");
+            if (id < DENSE_LIMIT) {
+                dense_labels[id] = label;
+            } else {
+                ids[sparse_count] = id;
+                labels[sparse_count] = label;
+                sparse_count++;
+            }
+        }
+
+        // sort the large ids, moving their labels along
+        long[] order = new long[sparse_count];
+        for (int i = 0; i < sparse_count; i++) {
+            order[i] = ((long) ids[i] << 32) | i;
+        }
+        Arrays.sort(order);
+        sparse_ids = new int[sparse_count];
+        sparse_labels = new byte[sparse_count][];
+        for (int i = 0; i < sparse_count; i++) {
+            sparse_ids[i] = (int) (order[i] >>> 32);
+            sparse_labels[i] = labels[(int) order[i]];
+        }
+    }
+
+    // write the labelled patterns of dir_read to dir_write, total is the number of transactions
+    // returns the number of patterns
+    public long label(String dir_read, String dir_write, int total) throws IOException {
+        try (FileChannel in = FileChannel.open(Paths.get(dir_read), StandardOpenOption.READ);
+                PatternWriter writer = openWriter(dir_write, total)) {
+
+            ByteBuffer input = ByteBuffer.allocate(BUFFER_SIZE);
+            // bytes of input.array() not decoded yet, the last line may be incomplete
+            int length = 0;
+
+            while (true) {
+                int read = in.read(input);
+                if (read < 0) {
+                    break;
+                }
+                length = input.position();
+                byte[] array = input.array();
+
+                int line_start = 0;
+                for (int i = 0; i < length; i++) {
+                    if (array[i] == '\n') {
+                        writer.line(array, line_start, i);
+                        line_start = i + 1;
+                    }
+                }
+
+                // move the incomplete line to the front, growing the buffer if it is full
+                length -= line_start;
+                if (line_start == 0 && length == array.length) {
+                    ByteBuffer larger = ByteBuffer.allocate(array.length * 2);
+                    larger.put(array, 0, length);
+                    input = larger;
+                } else {
+                    System.arraycopy(array, line_start, array, 0, length);
+                    input.position(length);
+                }
+            }
+            // the last line has no line break
+            if (length > 0) {
+                writer.line(input.array(), 0, length);
+            }
+            return writer.getPatternCount();
+        }
+    }
+
+    // writer of labelled patterns to dir_write, total is the number of transactions
+    public PatternWriter openWriter(String dir_write, int total) throws IOException {
+        return new PatternWriter(FileChannel.open(Paths.get(dir_write), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), total);
+    }
+
+    // label of an id or null
+    private byte[] getLabel(int id) {
+        if (id < dense_labels.length) {
+            return dense_labels[id];
+        }
+        if (id < DENSE_LIMIT) {
+            return null;
+        }
+        int index = Arrays.binarySearch(sparse_ids, id);
+        return index >= 0 ? sparse_labels[index] : null;
+    }
+
+    // writes labelled patterns through a buffer, given as lines of FPClose output or as itemsets
+    public class PatternWriter implements Closeable {
+
+        private final FileChannel out;
+        private final int total;
+        private ByteBuffer output = ByteBuffer.allocate(BUFFER_SIZE);
+        // digits of the item being written by pattern()
+        private final byte[] item_digits = new byte[20];
+        private long pattern_count = 0;
+
+        private PatternWriter(FileChannel out, int total) {
+            this.out = out;
+            this.total = total;
+        }
+
+        // write the pattern items[0..length) having the given support,
+        // same as the line "items #SUP: support" of the FPClose output
+        public void pattern(int[] items, int length, int support) throws IOException {
+            for (int i = 0; i < length; i++) {
+                int end = writeDecimal(items[i], item_digits, 0);
+                item(item_digits, 0, end);
+            }
+            write(SUPPORT_START, 0, SUPPORT_START.length);
+            writeNumber(support);
+            percentage(support);
+        }
+
+        public long getPatternCount() {
+            return pattern_count;
+        }
+
+        // decode the line array[start..end), without its line break
+        void line(byte[] array, int start, int end) throws IOException {
+            if (end > start && array[end - 1] == '\r') {
+                end--;
+            }
+            int hashtag_index = indexOf(array, start, end, (byte) '#');
+            if (hashtag_index < 0) {
+                if (isBlank(array, start, end)) {
+                    return;
+                }
+                throw new IOException("No support in pattern: " + new String(array, start, end - start));
+            }
+            if (DEBUG) {
+                System.out.println("str " + new String(array, start, end - start));
+            }
+
+            // the items, split on single spaces like String.split(" ")
+            int items_end = hashtag_index;
+            while (items_end > start && array[items_end - 1] == ' ') {
+                items_end--;
+            }
+            if (hashtag_index == start) {
+                // split("") returns one empty token
+                item(array, start, start);
+            } else {
+                int token_start = start;
+                for (int i = start; i < items_end; i++) {
+                    if (array[i] == ' ') {
+                        item(array, token_start, i);
+                        token_start = i + 1;
+                    }
+                }
+                if (token_start < items_end) {
+                    item(array, token_start, items_end);
+                }
+            }
+
+            // "#SUP: n" as it is
+            write(array, hashtag_index, end - hashtag_index);
+
+            percentage(parseSupport(array, hashtag_index + SUPPORT_OFFSET, end));
+        }
+
+        // write the percentage of transactions and end the pattern
+        private void percentage(long support) throws IOException {
+            write(PERCENTAGE_START, 0, PERCENTAGE_START.length);
+            writeNumber(support * 100 / total);
+            write(PERCENTAGE_END, 0, PERCENTAGE_END.length);
+            pattern_count++;
+        }
+
+        // write the item array[start..end) with its label
+        private void item(byte[] array, int start, int end) throws IOException {
+            int id = parseId(array, start, end);
+            byte[] label = id >= 0 ? getLabel(id) : null;
+            if (label != null) {
+                write(label, 0, label.length);
+                write(array, start, end - start);
+            } else if (end > start && array[start] == '9') {
+                write(LAST_UPDATE, 0, LAST_UPDATE.length);
+                write(array, start + 1, end - start - 1);
+            } else {
+                write(RELEASED, 0, RELEASED.length);
+                write(array, start, end - start);
+            }
+            write(TOKEN_END, 0, TOKEN_END.length);
+        }
+
+        // parse the support from array[start..end) like Integer.parseInt
+        private long parseSupport(byte[] array, int start, int end) throws IOException {
+            int i = start;
+            boolean negative = false;
+            if (i < end && (array[i] == '-' || array[i] == '+')) {
+                negative = array[i] == '-';
+                i++;
+            }
+            if (i >= end) {
+                throw new IOException("No support in pattern: " + new String(array, start, end - start));
+            }
+            long support = 0;
+            for (; i < end; i++) {
+                int digit = array[i] - '0';
+                support = support * 10 + digit;
+                if (digit < 0 || digit > 9 || support > Integer.MAX_VALUE) {
+                    throw new IOException("Invalid support: " + new String(array, start, end - start));
+                }
+            }
+            return negative ? -support : support;
+        }
+
+        private void writeNumber(long number) throws IOException {
+            ensureRemaining(20);
+            output.position(writeDecimal(number, output.array(), output.position()));
+        }
+
+        private void write(byte[] array, int offset, int length) throws IOException {
+            ensureRemaining(length);
+            output.put(array, offset, length);
+        }
+
+        private void ensureRemaining(int length) throws IOException {
+            if (output.remaining() < length) {
+                flush();
+                if (output.capacity() < length) {
+                    output = ByteBuffer.allocate(length);
+                }
+            }
+        }
+
+        private void flush() throws IOException {
+            output.flip();
+            while (output.hasRemaining()) {
+                out.write(output);
+            }
+            output.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    // write the decimal digits of value at bytes[position..], returns the end position
+    private static int writeDecimal(long value, byte[] bytes, int position) {
+        if (value < 0) {
+            bytes[position++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        int end = position + digits;
+        for (int p = end - 1; p >= position; p--) {
+            bytes[p] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return end;
+    }
+
+    // the id written in array[start..end), or -1 if it is not written like an item id
+    private static int parseId(byte[] array, int start, int end) {
+        int length = end - start;
+        // no sign, no leading zero and at most 10 digits
+        if (length == 0 || length > 10 || (array[start] == '0' && length > 1)) {
+            return -1;
+        }
+        long id = 0;
+        for (int i = start; i < end; i++) {
+            int digit = array[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            id = id * 10 + digit;
+        }
+        return id <= Integer.MAX_VALUE ? (int) id : -1;
+    }
+
+    private static int parseId(String key) {
+        byte[] array = bytes(key);
+        return parseId(array, 0, array.length);
+    }
+
+    private static int indexOf(byte[] array, int start, int end, byte value) {
+        for (int i = start; i < end; i++) {
+            if (array[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isBlank(byte[] array, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (array[i] != ' ' && array[i] != '\t') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // the files are read and written with the default charset, as the Scanner and FileWriter do
+    private static byte[] bytes(String str) {
+        return str.getBytes(Charset.defaultCharset());
+    }
+}
@@ -0,0 +1,47 @@
+package io.github.kimiashadkami.pipeline;
+
+import java.io.IOException;
+
+public class Main {
+
+    // the minimum support of the experiments
+    private static final double MINSUPP = 0.25;
+
+    public static void main(String[] args) {
+
+        String const_path = "D:/eclipse/workspace/paid-vs-free-apps/frequent patterns/src/main/resources";
+        String const_path_low = "D:/eclipse/workspace/paid-vs-free-apps/frequent patterns/src/main/resources/datalow";
+
+        String post_processing_txt = const_path + "/postprocessing.txt";
+        String post_processing_txt_low = const_path_low + "/postprocessing_low.txt";
+
+        try {
+            // the dictionaries are read once for all experiments
+            Pipeline pipeline = new Pipeline(post_processing_txt);
+            Pipeline pipeline_low = new Pipeline(post_processing_txt_low);
+
+            // free
+            pipeline.run(const_path + "/free_high_rated_spmf.xlsx",
+                    const_path + "/postprocess/free_high_rated_fp_postprocess.txt", MINSUPP);
+            pipeline_low.run(const_path_low + "/free_low_rated_spmf.xlsx",
+                    const_path_low + "/postprocess/free_low_rated_fp_postprocess.txt", MINSUPP);
+
+            // paid
+            pipeline.run(const_path + "/paid_high_rated_spmf.xlsx",
+                    const_path + "/postprocess/paid_high_rated_fp_postprocess.txt", MINSUPP);
+            pipeline_low.run(const_path_low + "/paid_low_rated_spmf.xlsx",
+                    const_path_low + "/postprocess/paid_low_rated_fp_postprocess.txt", MINSUPP);
+
+            // different price ranges
+            for (int price = 1; price <= 4; price++) {
+                pipeline.run(const_path + "/paid_high_rated_price" + price + ".xlsx",
+                        const_path + "/postprocess/price" + price + "_fp.txt", MINSUPP);
+                pipeline_low.run(const_path_low + "/paid_low_rated_price" + price + ".xlsx",
+                        const_path_low + "/postprocess/price" + price + "_fp_low.txt", MINSUPP);
+            }
+        } catch (IOException e) {
+            System.out.println("An error occured.");
+            e.printStackTrace();
+        }
+    }
+}
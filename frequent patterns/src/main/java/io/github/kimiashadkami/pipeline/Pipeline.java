@@ -0,0 +1,127 @@
+package io.github.kimiashadkami.pipeline;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import ca.pfv.spmf.algorithms.frequentpatterns.fpgrowth.AlgoFPClose;
+import ca.pfv.spmf.patterns.itemset_array_integers_with_count.Itemset;
+import io.github.kimiashadkami.dataprep.Prep;
+import io.github.kimiashadkami.outputpostproc.PatternLabeller;
+
+// runs dataprep, FPClose and outputpostproc for one experiment without the intermediate files
+// the rows of the sheet are kept in memory and given to FPClose, which mines on its own thread
+// the closed itemsets are handed to the calling thread through a bounded queue and labelled as they arrive
+// the output is the same as PostProcess.postprocess on the FPClose output of the prepared file
+public class Pipeline {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 4096;
+
+    // put in the queue by the mining thread after the last itemset
+    private static final Itemset END = new Itemset(new int[0]);
+
+    private final PatternLabeller labeller;
+    private final int queue_capacity;
+    private final int threads;
+
+    // number of transactions of the last run
+    private int total = 0;
+
+    public Pipeline(String post_processing_txt) throws IOException {
+        this(new PatternLabeller(post_processing_txt), DEFAULT_QUEUE_CAPACITY, 1);
+    }
+
+    // threads is the number of threads used by FPClose to mine the tree
+    public Pipeline(PatternLabeller labeller, int queue_capacity, int threads) {
+        if (queue_capacity < 1 || threads < 1) {
+            throw new IllegalArgumentException("queue_capacity and threads must be positive");
+        }
+        this.labeller = labeller;
+        this.queue_capacity = queue_capacity;
+        this.threads = threads;
+    }
+
+    // mine the closed itemsets of the .xlsx file dir_read with the minimum support minsupp
+    // and write them labelled to dir_write, returns the number of closed itemsets
+    public long run(String dir_read, String dir_write, double minsupp) throws IOException {
+
+        // prep, the empty rows (such as the header) are skipped by FPClose like the empty lines of a file
+        List<int[]> transactions = new ArrayList<>();
+        int row_num = new Prep().readRows(dir_read, (items, length) -> transactions.add(Arrays.copyOf(items, length)));
+        // without the header row, as returned by Prep.prepDataStreaming
+        total = row_num - 1;
+
+        BlockingQueue<Itemset> queue = new ArrayBlockingQueue<>(queue_capacity);
+        AlgoFPClose algo = new AlgoFPClose();
+        algo.setUsePrimitiveFPTree(true);
+        algo.setThreadCount(threads);
+        algo.setItemsetConsumer(itemset -> put(queue, itemset));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pipeline-fpclose");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Future<?> mining = executor.submit(() -> {
+            try {
+                algo.runAlgorithm(transactions, null, minsupp);
+            } finally {
+                // unless the labelling has stopped, the labeller is still taking itemsets
+                if (!Thread.currentThread().isInterrupted()) {
+                    queue.put(END);
+                }
+            }
+            return null;
+        });
+
+        try (PatternLabeller.PatternWriter writer = labeller.openWriter(dir_write, total)) {
+            Itemset itemset;
+            while ((itemset = queue.take()) != END) {
+                writer.pattern(itemset.getItems(), itemset.size(), itemset.getAbsoluteSupport());
+            }
+            // rethrow the error of the mining thread, if any
+            mining.get();
+            return writer.getPatternCount();
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while labelling the itemsets", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException("failed to mine the itemsets", cause);
+        } finally {
+            // stops the mining thread if the labelling failed
+            executor.shutdownNow();
+        }
+    }
+
+    // number of transactions of the last run, used for the percentages
+    public int getTotal() {
+        return total;
+    }
+
+    // called by the mining thread for each closed itemset, waits while the queue is full
+    private static void put(BlockingQueue<Itemset> queue, Itemset itemset) {
+        try {
+            queue.put(itemset);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("the labelling of the itemsets has stopped");
+        }
+    }
+}